@@ -129,6 +129,23 @@ public final class StreamPersistence {
      * <code>required bytes hash = 3;</code>
      */
     com.google.protobuf.ByteString getHash();
+
+    /**
+     * <code>optional .com.palantir.atlasdb.protos.generated.Compression compression = 4 [default = NONE];</code>
+     *
+     * <pre>
+     * Streams stored before blocks could be compressed have no compression set.
+     * </pre>
+     */
+    boolean hasCompression();
+    /**
+     * <code>optional .com.palantir.atlasdb.protos.generated.Compression compression = 4 [default = NONE];</code>
+     *
+     * <pre>
+     * Streams stored before blocks could be compressed have no compression set.
+     * </pre>
+     */
+    com.palantir.atlasdb.protos.generated.TableMetadataPersistence.Compression getCompression();
   }
   /**
    * Protobuf type {@code com.palantir.atlasdb.protos.generated.StreamMetadata}
@@ -203,6 +220,17 @@ public final class StreamPersistence {
               hash_ = input.readBytes();
               break;
             }
+            case 32: {
+              int rawValue = input.readEnum();
+              com.palantir.atlasdb.protos.generated.TableMetadataPersistence.Compression value = com.palantir.atlasdb.protos.generated.TableMetadataPersistence.Compression.valueOf(rawValue);
+              if (value == null) {
+                unknownFields.mergeVarintField(4, rawValue);
+              } else {
+                bitField0_ |= 0x00000008;
+                compression_ = value;
+              }
+              break;
+            }
           }
         }
       } catch (com.google.protobuf.InvalidProtocolBufferException e) {
@@ -288,10 +316,34 @@ public final class StreamPersistence {
       return hash_;
     }
 
+    public static final int COMPRESSION_FIELD_NUMBER = 4;
+    private com.palantir.atlasdb.protos.generated.TableMetadataPersistence.Compression compression_;
+    /**
+     * <code>optional .com.palantir.atlasdb.protos.generated.Compression compression = 4 [default = NONE];</code>
+     *
+     * <pre>
+     * Streams stored before blocks could be compressed have no compression set.
+     * </pre>
+     */
+    public boolean hasCompression() {
+      return ((bitField0_ & 0x00000008) == 0x00000008);
+    }
+    /**
+     * <code>optional .com.palantir.atlasdb.protos.generated.Compression compression = 4 [default = NONE];</code>
+     *
+     * <pre>
+     * Streams stored before blocks could be compressed have no compression set.
+     * </pre>
+     */
+    public com.palantir.atlasdb.protos.generated.TableMetadataPersistence.Compression getCompression() {
+      return compression_;
+    }
+
     private void initFields() {
       status_ = com.palantir.atlasdb.protos.generated.StreamPersistence.Status.STORING;
       length_ = 0L;
       hash_ = com.google.protobuf.ByteString.EMPTY;
+      compression_ = com.palantir.atlasdb.protos.generated.TableMetadataPersistence.Compression.NONE;
     }
     private byte memoizedIsInitialized = -1;
     public final boolean isInitialized() {
@@ -327,6 +379,9 @@ public final class StreamPersistence {
       if (((bitField0_ & 0x00000004) == 0x00000004)) {
         output.writeBytes(3, hash_);
       }
+      if (((bitField0_ & 0x00000008) == 0x00000008)) {
+        output.writeEnum(4, compression_.getNumber());
+      }
       getUnknownFields().writeTo(output);
     }
 
@@ -348,6 +403,10 @@ public final class StreamPersistence {
         size += com.google.protobuf.CodedOutputStream
           .computeBytesSize(3, hash_);
       }
+      if (((bitField0_ & 0x00000008) == 0x00000008)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeEnumSize(4, compression_.getNumber());
+      }
       size += getUnknownFields().getSerializedSize();
       memoizedSerializedSize = size;
       return size;
@@ -471,6 +530,8 @@ public final class StreamPersistence {
         bitField0_ = (bitField0_ & ~0x00000002);
         hash_ = com.google.protobuf.ByteString.EMPTY;
         bitField0_ = (bitField0_ & ~0x00000004);
+        compression_ = com.palantir.atlasdb.protos.generated.TableMetadataPersistence.Compression.NONE;
+        bitField0_ = (bitField0_ & ~0x00000008);
         return this;
       }
 
@@ -511,6 +572,10 @@ public final class StreamPersistence {
           to_bitField0_ |= 0x00000004;
         }
         result.hash_ = hash_;
+        if (((from_bitField0_ & 0x00000008) == 0x00000008)) {
+          to_bitField0_ |= 0x00000008;
+        }
+        result.compression_ = compression_;
         result.bitField0_ = to_bitField0_;
         onBuilt();
         return result;
@@ -536,6 +601,9 @@ public final class StreamPersistence {
         if (other.hasHash()) {
           setHash(other.getHash());
         }
+        if (other.hasCompression()) {
+          setCompression(other.getCompression());
+        }
         this.mergeUnknownFields(other.getUnknownFields());
         return this;
       }
@@ -677,6 +745,57 @@ public final class StreamPersistence {
         return this;
       }
 
+      private com.palantir.atlasdb.protos.generated.TableMetadataPersistence.Compression compression_ = com.palantir.atlasdb.protos.generated.TableMetadataPersistence.Compression.NONE;
+      /**
+       * <code>optional .com.palantir.atlasdb.protos.generated.Compression compression = 4 [default = NONE];</code>
+       *
+       * <pre>
+       * Streams stored before blocks could be compressed have no compression set.
+       * </pre>
+       */
+      public boolean hasCompression() {
+        return ((bitField0_ & 0x00000008) == 0x00000008);
+      }
+      /**
+       * <code>optional .com.palantir.atlasdb.protos.generated.Compression compression = 4 [default = NONE];</code>
+       *
+       * <pre>
+       * Streams stored before blocks could be compressed have no compression set.
+       * </pre>
+       */
+      public com.palantir.atlasdb.protos.generated.TableMetadataPersistence.Compression getCompression() {
+        return compression_;
+      }
+      /**
+       * <code>optional .com.palantir.atlasdb.protos.generated.Compression compression = 4 [default = NONE];</code>
+       *
+       * <pre>
+       * Streams stored before blocks could be compressed have no compression set.
+       * </pre>
+       */
+      public Builder setCompression(com.palantir.atlasdb.protos.generated.TableMetadataPersistence.Compression value) {
+        if (value == null) {
+          throw new NullPointerException();
+        }
+        bitField0_ |= 0x00000008;
+        compression_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional .com.palantir.atlasdb.protos.generated.Compression compression = 4 [default = NONE];</code>
+       *
+       * <pre>
+       * Streams stored before blocks could be compressed have no compression set.
+       * </pre>
+       */
+      public Builder clearCompression() {
+        bitField0_ = (bitField0_ & ~0x00000008);
+        compression_ = com.palantir.atlasdb.protos.generated.TableMetadataPersistence.Compression.NONE;
+        onChanged();
+        return this;
+      }
+
       // @@protoc_insertion_point(builder_scope:com.palantir.atlasdb.protos.generated.StreamMetadata)
     }
 
@@ -704,11 +823,15 @@ public final class StreamPersistence {
     java.lang.String[] descriptorData = {
       "\n>main/proto/com/palantir/atlasdb/protos" +
       "/StreamPersistence.proto\022%com.palantir.a" +
-      "tlasdb.protos.generated\"m\n\016StreamMetadat" +
-      "a\022=\n\006status\030\001 \002(\0162-.com.palantir.atlasdb" +
-      ".protos.generated.Status\022\016\n\006length\030\002 \002(\003" +
-      "\022\014\n\004hash\030\003 \002(\014*-\n\006Status\022\013\n\007STORING\020\001\022\n\n" +
-      "\006STORED\020\002\022\n\n\006FAILED\020\003"
+      "tlasdb.protos.generated\032Emain/proto/com/" +
+      "palantir/atlasdb/protos/TableMetadataPer" +
+      "sistence.proto\"\274\001\n\016StreamMetadata\022=\n\006sta" +
+      "tus\030\001 \002(\0162-.com.palantir.atlasdb.protos." +
+      "generated.Status\022\016\n\006length\030\002 \002(\003\022\014\n\004hash" +
+      "\030\003 \002(\014\022M\n\013compression\030\004 \001(\01622.com.palant" +
+      "ir.atlasdb.protos.generated.Compression:" +
+      "\004NONE*-\n\006Status\022\013\n\007STORING\020\001\022\n\n\006STORED\020\002",
+      "\022\n\n\006FAILED\020\003"
     };
     com.google.protobuf.Descriptors.FileDescriptor.InternalDescriptorAssigner assigner =
         new com.google.protobuf.Descriptors.FileDescriptor.    InternalDescriptorAssigner() {
@@ -721,13 +844,15 @@ public final class StreamPersistence {
     com.google.protobuf.Descriptors.FileDescriptor
       .internalBuildGeneratedFileFrom(descriptorData,
         new com.google.protobuf.Descriptors.FileDescriptor[] {
+          com.palantir.atlasdb.protos.generated.TableMetadataPersistence.getDescriptor(),
         }, assigner);
     internal_static_com_palantir_atlasdb_protos_generated_StreamMetadata_descriptor =
       getDescriptor().getMessageTypes().get(0);
     internal_static_com_palantir_atlasdb_protos_generated_StreamMetadata_fieldAccessorTable = new
       com.google.protobuf.GeneratedMessage.FieldAccessorTable(
         internal_static_com_palantir_atlasdb_protos_generated_StreamMetadata_descriptor,
-        new java.lang.String[] { "Status", "Length", "Hash", });
+        new java.lang.String[] { "Status", "Length", "Hash", "Compression", });
+    com.palantir.atlasdb.protos.generated.TableMetadataPersistence.getDescriptor();
   }
 
   // @@protoc_insertion_point(outer_class_scope)
@@ -338,7 +338,8 @@ public class InMemoryKeyValueService extends AbstractKeyValueService {
                 // Save memory by sharing rows.
                 row = nextKey.row;
             }
-            byte[] oldContents = table.entries.putIfAbsent(new Key(row, col, timestamp), contents);
+            // Copy the contents, as a persistent store would, so callers may reuse their buffers.
+            byte[] oldContents = table.entries.putIfAbsent(new Key(row, col, timestamp), contents == null ? null : contents.clone());
             if (oldContents != null) {
                 throw new KeyAlreadyExistsException("We already have a value for this timestamp");
             }
@@ -40,11 +40,11 @@ public enum SweepSchema implements AtlasSchema {
                 SweepSchema.class.getPackage().getName() + ".generated",
                 NAMESPACE);
 
-        // This table tracks progress on a sweep job of a single table.
+        // This table tracks progress on sweep jobs, each covering a range of rows of a single table.
         schema.addTableDefinition("progress", new TableDefinition() {{
             javaTableName("SweepProgress");
             rowName();
-                // This table has at most one row.
+                // One row per shard of a table being swept.
                 rowComponent("dummy", ValueType.VAR_LONG);
             columns();
                 // The name of the table being swept.
@@ -52,6 +52,11 @@ public enum SweepSchema implements AtlasSchema {
                 // The row to start sweeping from if sweeping
                 // is paused and resumed.
                 column("start_row", "s", ValueType.BLOB);
+                // The row (exclusive) at which this shard ends, empty for the
+                // end of the table.  Absent from progress rows written before
+                // tables were split into shards.  Sized so that the empty row
+                // is not stored as an empty value, which would be a delete.
+                column("end_row", "r", ValueType.SIZED_BLOB);
                 // The number of cells deleted so far.
                 column("cells_deleted", "d", ValueType.VAR_LONG);
                 // The number of cells examined so far.
@@ -18,7 +18,9 @@ package com.palantir.atlasdb.schema.stream;
 import com.palantir.atlasdb.protos.generated.StreamPersistence;
 import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.CachePriority;
 import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.ExpirationStrategy;
+import com.palantir.atlasdb.stream.AbstractGenericStreamStore;
 import com.palantir.atlasdb.stream.GenericStreamStore;
+import com.palantir.atlasdb.table.description.ColumnValueDescription.Compression;
 import com.palantir.atlasdb.table.description.Schema;
 import com.palantir.atlasdb.table.description.TableDefinition;
 import com.palantir.atlasdb.table.description.ValueType;
@@ -31,6 +33,8 @@ public class StreamTables {
     public static final String VALUE_TABLE_SUFFIX = "_stream_value";
     public static final String HASH_TABLE_SUFFIX = "_stream_hash_idx";
     public static final String INDEX_TABLE_SUFFIX = "_stream_idx";
+    public static final String CHUNK_TABLE_SUFFIX = "_stream_chunk";
+    public static final String CHUNK_REF_TABLE_SUFFIX = "_stream_chunk_ref";
 
     public static void generateSchema(Schema schema, final String shortPrefix, final String longPrefix, final ValueType idType) {
         schema.addTableDefinition(shortPrefix + METADATA_TABLE_SUFFIX, getStreamMetadataDefinition(longPrefix, idType, ExpirationStrategy.NEVER, false));
@@ -82,6 +86,14 @@ public class StreamTables {
                                                            final ValueType idType,
                                                            final ExpirationStrategy expirationStrategy,
                                                            final boolean hashFirstRowComponent) {
+        return getStreamValueDefinition(longPrefix, idType, expirationStrategy, hashFirstRowComponent, Compression.NONE);
+    }
+
+    public static TableDefinition getStreamValueDefinition(final String longPrefix,
+                                                           final ValueType idType,
+                                                           final ExpirationStrategy expirationStrategy,
+                                                           final boolean hashFirstRowComponent,
+                                                           final Compression blockCompression) {
         return new TableDefinition() {{
             javaTableName(Renderers.CamelCase(longPrefix) + "StreamValue");
             rowName();
@@ -93,12 +105,58 @@ public class StreamTables {
             columns();
                 column("value", "v",            ValueType.BLOB);
             conflictHandler(ConflictHandler.IGNORE_ALL);
-            maxValueSize(GenericStreamStore.BLOCK_SIZE_IN_BYTES);
+            maxValueSize(getMaxStoredBlockSize(blockCompression));
             cachePriority(CachePriority.COLD);
             expirationStrategy(expirationStrategy);
         }};
     }
 
+    /**
+     * The chunks of streams split by content, stored once each under their hash.  The value table
+     * of such streams holds the hash of each block's chunk instead of its contents.
+     * <p>
+     * References to a chunk are added in the {@link #getStreamChunkRefDefinition chunk ref table}
+     * and counted as released here.  Adding a reference rewrites the chunk's value unchanged,
+     * which does not conflict with other additions but does with the chunk being deleted once
+     * its last reference is released.
+     */
+    public static TableDefinition getStreamChunkDefinition(final String longPrefix) {
+        return getStreamChunkDefinition(longPrefix, Compression.NONE);
+    }
+
+    public static TableDefinition getStreamChunkDefinition(final String longPrefix, final Compression blockCompression) {
+        return new TableDefinition() {{
+            javaTableName(Renderers.CamelCase(longPrefix) + "StreamChunk");
+            rowName();
+                rowComponent("hash",            ValueType.SHA256HASH);
+            columns();
+                column("value", "v",            ValueType.BLOB);
+                column("release_count", "d",    ValueType.VAR_LONG);
+            conflictHandler(ConflictHandler.RETRY_ON_VALUE_CHANGED);
+            maxValueSize(getMaxStoredBlockSize(blockCompression));
+            cachePriority(CachePriority.COLD);
+        }};
+    }
+
+    /**
+     * The number of references added to each chunk, striped over several cells.  A single count
+     * would be a hotspot for chunks that many streams share, such as runs of zeros, because every
+     * stream storing such a chunk would conflict on it.  A chunk's reference count is the sum of
+     * its stripes less the number released.
+     */
+    public static TableDefinition getStreamChunkRefDefinition(final String longPrefix) {
+        return new TableDefinition() {{
+            javaTableName(Renderers.CamelCase(longPrefix) + "StreamChunkRef");
+            rowName();
+                rowComponent("hash",            ValueType.SHA256HASH);
+            dynamicColumns();
+                columnComponent("stripe",       ValueType.VAR_LONG);
+                value(ValueType.VAR_LONG);
+            conflictHandler(ConflictHandler.RETRY_ON_WRITE_WRITE_CELL);
+            maxValueSize(10);
+        }};
+    }
+
     public static TableDefinition getStreamMetadataDefinition(final String longPrefix,
                                                               final ValueType idType,
                                                               final ExpirationStrategy expirationStrategy,
@@ -119,4 +177,11 @@ public class StreamTables {
             expirationStrategy(expirationStrategy);
         }};
     }
+
+    private static int getMaxStoredBlockSize(Compression blockCompression) {
+        if (blockCompression == Compression.NONE) {
+            return GenericStreamStore.BLOCK_SIZE_IN_BYTES;
+        }
+        return GenericStreamStore.BLOCK_SIZE_IN_BYTES + AbstractGenericStreamStore.COMPRESSED_BLOCK_HEADER_SIZE;
+    }
 }
@@ -29,6 +29,7 @@ import com.google.protobuf.ByteString;
 import com.palantir.atlasdb.encoding.PtBytes;
 import com.palantir.atlasdb.protos.generated.StreamPersistence.Status;
 import com.palantir.atlasdb.protos.generated.StreamPersistence.StreamMetadata;
+import com.palantir.atlasdb.table.description.ColumnValueDescription.Compression;
 import com.palantir.atlasdb.transaction.api.Transaction;
 import com.palantir.atlasdb.transaction.api.TransactionManager;
 import com.palantir.atlasdb.transaction.api.TransactionTask;
@@ -80,8 +81,9 @@ public abstract class AbstractExpiringStreamStore<ID> extends AbstractGenericStr
         CountingInputStream countingStream = new CountingInputStream(stream);
 
         // Try to store the bytes to the stream and get length
+        Compression compression = getBlockCompression();
         try {
-            storeBlocksFromStream(id, countingStream, duration, durationUnit);
+            storeBlocksFromStream(id, countingStream, compression, duration, durationUnit);
         } catch (IOException e) {
             long length = countingStream.getCount();
             StreamMetadata metadata = StreamMetadata.newBuilder()
@@ -103,11 +105,12 @@ public abstract class AbstractExpiringStreamStore<ID> extends AbstractGenericStr
             .setStatus(Status.STORED)
             .setLength(length)
             .setHash(hashByteString)
+            .setCompression(compression.persistToProto())
             .build();
         return metadata;
     }
 
-    private void storeBlocksFromStream(ID id, InputStream stream, long duration, TimeUnit durationUnit) throws IOException {
+    private void storeBlocksFromStream(ID id, InputStream stream, Compression compression, long duration, TimeUnit durationUnit) throws IOException {
         // We need to use a buffered stream here because we assume each read will fill the whole buffer.
         stream = new BufferedInputStream(stream);
         byte[] bytesToStore = new byte[BLOCK_SIZE_IN_BYTES];
@@ -121,11 +124,11 @@ public abstract class AbstractExpiringStreamStore<ID> extends AbstractGenericStr
             }
             if (length < BLOCK_SIZE_IN_BYTES) {
                 // This is the last block.
-                storeBlock(id, blockNumber, PtBytes.head(bytesToStore, length), duration, durationUnit);
+                storeBlock(id, blockNumber, compressBlock(PtBytes.head(bytesToStore, length), compression), duration, durationUnit);
                 break;
             } else {
                 // Store a full block.
-                storeBlock(id, blockNumber, bytesToStore, duration, durationUnit);
+                storeBlock(id, blockNumber, compressBlock(bytesToStore, compression), duration, durationUnit);
             }
             blockNumber++;
         }
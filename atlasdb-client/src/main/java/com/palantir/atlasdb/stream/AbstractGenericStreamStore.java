@@ -22,24 +22,48 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
 
 import javax.annotation.CheckForNull;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Preconditions;
+import com.google.common.io.ByteStreams;
+import com.google.common.primitives.Bytes;
 import com.google.common.primitives.Ints;
+import com.palantir.atlasdb.compress.CompressionUtils;
 import com.palantir.atlasdb.protos.generated.StreamPersistence.Status;
 import com.palantir.atlasdb.protos.generated.StreamPersistence.StreamMetadata;
+import com.palantir.atlasdb.table.description.ColumnValueDescription.Compression;
 import com.palantir.atlasdb.transaction.api.Transaction;
 import com.palantir.atlasdb.transaction.api.TransactionManager;
+import com.palantir.atlasdb.transaction.api.TransactionTask;
 import com.palantir.common.base.Throwables;
+import com.palantir.common.concurrent.NamedThreadFactory;
+import com.palantir.common.concurrent.PTExecutors;
 import com.palantir.util.ByteArrayIOStream;
 import com.palantir.util.file.DeleteOnCloseFileInputStream;
 
 public abstract class AbstractGenericStreamStore<ID> implements GenericStreamStore<ID> {
     protected static final Logger log = LoggerFactory.getLogger(AbstractGenericStreamStore.class);
 
+    protected static final int DEFAULT_PREFETCH_BLOCKS = 4;
+
+    /**
+     * Each block of a compressed stream starts with a byte saying whether the rest of it is
+     * compressed, because blocks that compression would not make smaller are stored as they are.
+     * Such blocks may therefore be this much longer than {@link #BLOCK_SIZE_IN_BYTES}.
+     */
+    public static final int COMPRESSED_BLOCK_HEADER_SIZE = 1;
+    private static final byte BLOCK_STORED_AS_IS = 0;
+    private static final byte BLOCK_COMPRESSED = 1;
+
+    private static final ExecutorService blockLoader = PTExecutors.newCachedThreadPool(
+            new NamedThreadFactory("AbstractGenericStreamStore-blockLoader", true));
+
     @CheckForNull protected final TransactionManager txnMgr;
 
     protected AbstractGenericStreamStore(TransactionManager txManager) {
@@ -60,6 +84,44 @@ public abstract class AbstractGenericStreamStore<ID> implements GenericStreamSto
 
     protected abstract long getInMemoryThreshold();
 
+    /**
+     * @return true if the blocks of a stream are cut by a {@link ContentDefinedChunker} rather than
+     *         all being {@link #BLOCK_SIZE_IN_BYTES} long, in which case the number of blocks is not
+     *         known from the length of the stream
+     */
+    protected boolean usesContentDefinedChunking() {
+        return false;
+    }
+
+    /**
+     * @return an upper bound on the number of blocks of a stream, which is exact unless the stream
+     *         is split by content
+     */
+    protected final long getMaxNumberOfBlocks(StreamMetadata metadata) {
+        if (usesContentDefinedChunking()) {
+            // Every chunk but the last is at least the minimum size.
+            return metadata.getLength() / ContentDefinedChunker.MIN_CHUNK_SIZE + 1;
+        }
+        return getNumberOfBlocksFromMetadata(metadata);
+    }
+
+    /**
+     * @return the compression applied to each block of the streams this store stores.  Streams are
+     *         always read with the compression recorded in their metadata, so changing this does
+     *         not affect streams that are already stored.
+     */
+    protected Compression getBlockCompression() {
+        return Compression.NONE;
+    }
+
+    /**
+     * @return the number of blocks loaded in parallel ahead of the reader of a stream, which
+     *         bounds the memory an open stream holds to this many blocks
+     */
+    protected int getNumPrefetchBlocks() {
+        return DEFAULT_PREFETCH_BLOCKS;
+    }
+
     @Override
     public final InputStream loadStream(Transaction t, final ID id) {
         try {
@@ -68,8 +130,14 @@ public abstract class AbstractGenericStreamStore<ID> implements GenericStreamSto
                 return new ByteArrayInputStream(new byte[0]);
             } else if (metadata.getLength() <= Math.min(getInMemoryThreshold(), BLOCK_SIZE_IN_BYTES)) {
                 ByteArrayIOStream ios = new ByteArrayIOStream(Ints.saturatedCast(metadata.getLength()));
-                loadSingleBlockToOutputStream(t, id, 0, ios);
+                if (usesContentDefinedChunking()) {
+                    loadBlocksToOutputStream(t, id, metadata, ios);
+                } else {
+                    loadBlockToOutputStream(t, id, 0, metadata, ios);
+                }
                 return ios.getInputStream();
+            } else if (txnMgr != null) {
+                return newBlockStream(id, metadata);
             } else {
                 File file = loadToNewTempFile(t, id, metadata);
                 return new DeleteOnCloseFileInputStream(file);
@@ -77,6 +145,9 @@ public abstract class AbstractGenericStreamStore<ID> implements GenericStreamSto
         } catch (FileNotFoundException e) {
             log.error("Error opening temp file for stream " + id, e);
             throw Throwables.rewrapAndThrowUncheckedException("Could not open temp file to create stream.", e);
+        } catch (IOException e) {
+            log.error("Error loading blocks of stream " + id, e);
+            throw Throwables.rewrapAndThrowUncheckedException("Could not load the blocks of the stream.", e);
         }
     }
 
@@ -86,6 +157,25 @@ public abstract class AbstractGenericStreamStore<ID> implements GenericStreamSto
         return loadToNewTempFile(t, id, metadata);
     }
 
+    /**
+     * Streams the blocks as they are read, prefetching them in parallel.  Blocks are loaded in
+     * their own read-only transactions, so the stream stays readable after the transaction that
+     * opened it has finished.  This is safe because the blocks of a stored stream never change.
+     */
+    private InputStream newBlockStream(final ID id, final StreamMetadata metadata) {
+        return new BlockPrefetchingInputStream(new BlockPrefetchingInputStream.BlockLoader() {
+            @Override
+            public byte[] loadBlock(final long blockId) {
+                return txnMgr.runTaskReadOnly(new TransactionTask<byte[], RuntimeException>() {
+                    @Override
+                    public byte[] execute(Transaction t) {
+                        return loadDecompressedBlock(t, id, blockId, metadata);
+                    }
+                });
+            }
+        }, metadata.getLength(), getMaxNumberOfBlocks(metadata), getNumPrefetchBlocks(), blockLoader);
+    }
+
     private File loadToNewTempFile(Transaction t, ID id, StreamMetadata metadata) {
         try {
             File file = createTempFile(id);
@@ -121,16 +211,107 @@ public abstract class AbstractGenericStreamStore<ID> implements GenericStreamSto
     }
 
     private void tryWriteStreamToFile(Transaction t, ID id, StreamMetadata metadata, FileOutputStream fos) throws IOException {
-        long numBlocks = getNumberOfBlocksFromMetadata(metadata);
-        for (long i = 0; i < numBlocks; i++) {
-            loadSingleBlockToOutputStream(t, id, i, fos);
+        if (txnMgr != null) {
+            InputStream blocks = newBlockStream(id, metadata);
+            try {
+                ByteStreams.copy(blocks, fos);
+            } finally {
+                blocks.close();
+            }
+        } else if (usesContentDefinedChunking()) {
+            loadBlocksToOutputStream(t, id, metadata, fos);
+        } else {
+            long numBlocks = getNumberOfBlocksFromMetadata(metadata);
+            for (long i = 0; i < numBlocks; i++) {
+                loadBlockToOutputStream(t, id, i, metadata, fos);
+            }
         }
         fos.close();
     }
 
+    /**
+     * Copies blocks in order until the whole length of the stream has been copied.
+     */
+    private void loadBlocksToOutputStream(Transaction t, ID id, StreamMetadata metadata, OutputStream os) throws IOException {
+        long lengthLoaded = 0;
+        for (long blockId = 0; lengthLoaded < metadata.getLength(); blockId++) {
+            byte[] block = loadDecompressedBlock(t, id, blockId, metadata);
+            if (block == null) {
+                throw new IOException("Block " + blockId + " of stream " + id + " is missing after "
+                        + lengthLoaded + " of " + metadata.getLength() + " bytes.");
+            }
+            os.write(block);
+            lengthLoaded += block.length;
+        }
+    }
+
+    private void loadBlockToOutputStream(Transaction t, ID id, long blockId, StreamMetadata metadata, OutputStream os) throws IOException {
+        if (getCompression(metadata) == Compression.NONE) {
+            loadSingleBlockToOutputStream(t, id, blockId, os);
+        } else {
+            byte[] block = loadDecompressedBlock(t, id, blockId, metadata);
+            if (block == null) {
+                throw new IOException("Block " + blockId + " of stream " + id + " is missing.");
+            }
+            os.write(block);
+        }
+    }
+
+    @CheckForNull
+    private byte[] loadDecompressedBlock(Transaction t, ID id, long blockId, StreamMetadata metadata) {
+        byte[] block = loadSingleBlock(t, id, blockId);
+        if (block == null) {
+            return null;
+        }
+        return decompressBlock(block, getCompression(metadata));
+    }
+
+    /**
+     * @return the block as it is stored in a stream with the given compression, which is the
+     *         block itself if the stream is not compressed
+     */
+    static byte[] compressBlock(byte[] block, Compression compression) {
+        if (compression == Compression.NONE) {
+            return block;
+        }
+        byte[] compressed = CompressionUtils.compress(block, compression);
+        if (compressed.length < block.length) {
+            return Bytes.concat(new byte[] {BLOCK_COMPRESSED}, compressed);
+        }
+        return Bytes.concat(new byte[] {BLOCK_STORED_AS_IS}, block);
+    }
+
+    static byte[] decompressBlock(byte[] storedBlock, Compression compression) {
+        if (compression == Compression.NONE) {
+            return storedBlock;
+        }
+        byte[] block = Arrays.copyOfRange(storedBlock, COMPRESSED_BLOCK_HEADER_SIZE, storedBlock.length);
+        if (storedBlock[0] == BLOCK_STORED_AS_IS) {
+            return block;
+        }
+        Preconditions.checkArgument(storedBlock[0] == BLOCK_COMPRESSED, "Unknown block header: %s", storedBlock[0]);
+        return CompressionUtils.decompress(block, compression);
+    }
+
+    private static Compression getCompression(StreamMetadata metadata) {
+        // Metadata written before blocks could be compressed has no compression, which reads as NONE.
+        return Compression.hydrateFromProto(metadata.getCompression());
+    }
+
     protected abstract File createTempFile(ID id) throws IOException;
 
     protected abstract void loadSingleBlockToOutputStream(Transaction t, ID streamId, long blockId, OutputStream os);
 
+    /**
+     * @return the contents of a single block, or null if it does not exist.  Stores should override
+     *         this to return the stored block without copying it.
+     */
+    @CheckForNull
+    protected byte[] loadSingleBlock(Transaction t, ID streamId, long blockId) {
+        ByteArrayIOStream ios = new ByteArrayIOStream();
+        loadSingleBlockToOutputStream(t, streamId, blockId, ios);
+        return ios.toByteArray();
+    }
+
     protected abstract StreamMetadata getMetadata(Transaction t, ID streamId);
 }
@@ -15,32 +15,51 @@
  */
 package com.palantir.atlasdb.stream;
 
-import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.security.DigestInputStream;
 import java.security.MessageDigest;
+import java.util.concurrent.ExecutorService;
 
 import com.google.common.base.Preconditions;
-import com.google.common.io.ByteStreams;
 import com.google.common.io.CountingInputStream;
+import com.google.common.math.LongMath;
 import com.google.protobuf.ByteString;
-import com.palantir.atlasdb.encoding.PtBytes;
 import com.palantir.atlasdb.protos.generated.StreamPersistence.Status;
 import com.palantir.atlasdb.protos.generated.StreamPersistence.StreamMetadata;
+import com.palantir.atlasdb.table.description.ColumnValueDescription.Compression;
 import com.palantir.atlasdb.transaction.api.Transaction;
 import com.palantir.atlasdb.transaction.api.TransactionManager;
 import com.palantir.atlasdb.transaction.api.TransactionTask;
 import com.palantir.atlasdb.transaction.impl.TxTask;
 import com.palantir.common.base.Throwables;
+import com.palantir.common.concurrent.NamedThreadFactory;
+import com.palantir.common.concurrent.PTExecutors;
 import com.palantir.util.Pair;
 import com.palantir.util.crypto.Sha256Hash;
 
 public abstract class AbstractPersistentStreamStore extends AbstractGenericStreamStore<Long> implements PersistentStreamStore {
+    protected static final int DEFAULT_CONCURRENT_BLOCK_WRITES = 4;
+    // Each reservation is a transaction on the stream's metadata, so make one for several blocks.
+    private static final int BLOCKS_PER_RESERVATION = 16;
+    // Blocks add their references to a chunk to one of this many cells, see StreamTables.
+    private static final int CHUNK_REFERENCE_STRIPES = 16;
+
+    private static final ExecutorService blockWriter = PTExecutors.newCachedThreadPool(
+            new NamedThreadFactory("AbstractPersistentStreamStore-blockWriter", true));
+
     protected AbstractPersistentStreamStore(TransactionManager txManager) {
         super(txManager);
     }
 
+    /**
+     * @return the cell of a chunk's reference count that a block of a stream split by content adds
+     *         its reference to, spread so that the blocks of concurrent streams rarely share one
+     */
+    protected static long getChunkReferenceStripe(long id, long blockNumber) {
+        return LongMath.mod(31 * id + blockNumber, CHUNK_REFERENCE_STRIPES);
+    }
+
     private final void storeMetadataAndIndex(final long streamId, final StreamMetadata metadata) {
         Preconditions.checkNotNull(txnMgr);
         txnMgr.runTaskThrowOnConflict(new TxTask() {
@@ -95,6 +114,16 @@ public abstract class AbstractPersistentStreamStore extends AbstractGenericStrea
         return Pair.create(id, new Sha256Hash(metadata.getHash().toByteArray()));
     }
 
+    private void markStreamAsFailed(long id, long length, Exception cause) {
+        StreamMetadata metadata = StreamMetadata.newBuilder()
+            .setStatus(Status.FAILED)
+            .setLength(length)
+            .setHash(com.google.protobuf.ByteString.EMPTY)
+            .build();
+        storeMetadataAndIndex(id, metadata);
+        log.error("Could not store stream " + id + ". Failed after " + length + " bytes.", cause);
+    }
+
     protected final StreamMetadata storeBlocksAndGetFinalMetadata(long id, InputStream stream) {
         // Set up for finding hash and length
         MessageDigest digest = Sha256Hash.getMessageDigest();
@@ -102,18 +131,15 @@ public abstract class AbstractPersistentStreamStore extends AbstractGenericStrea
         CountingInputStream countingStream = new CountingInputStream(stream);
 
         // Try to store the bytes to the stream and get length
+        Compression compression = getBlockCompression();
         try {
-            storeBlocksFromStream(id, countingStream);
+            storeBlocksFromStream(id, countingStream, compression);
         } catch (IOException e) {
-            long length = countingStream.getCount();
-            StreamMetadata metadata = StreamMetadata.newBuilder()
-                .setStatus(Status.FAILED)
-                .setLength(length)
-                .setHash(com.google.protobuf.ByteString.EMPTY)
-                .build();
-            storeMetadataAndIndex(id, metadata);
-            log.error("Could not store stream " + id + ". Failed after " + length + " bytes.", e);
+            markStreamAsFailed(id, countingStream.getCount(), e);
             throw Throwables.rewrapAndThrowUncheckedException("Failed to store stream.", e);
+        } catch (RuntimeException e) {
+            markStreamAsFailed(id, countingStream.getCount(), e);
+            throw e;
         }
 
         // Get hash and length
@@ -125,35 +151,48 @@ public abstract class AbstractPersistentStreamStore extends AbstractGenericStrea
             .setStatus(Status.STORED)
             .setLength(length)
             .setHash(hashByteString)
+            .setCompression(compression.persistToProto())
             .build();
         return metadata;
     }
 
 
-    private void storeBlocksFromStream(long id, InputStream stream) throws IOException {
-        // We need to use a buffered stream here because we assume each read will fill the whole buffer.
-        stream = new BufferedInputStream(stream);
-        byte[] bytesToStore = new byte[BLOCK_SIZE_IN_BYTES];
-        long blockNumber = 0;
-
-        while (true) {
-            int length = ByteStreams.read(stream, bytesToStore, 0, BLOCK_SIZE_IN_BYTES);
-            // Store only relevant data if it only filled a partial block
-            if (length == 0) {
-                break;
+    private void storeBlocksFromStream(final long id, InputStream stream, final Compression compression) throws IOException {
+        PipelinedBlockWriter writer = new PipelinedBlockWriter(new PipelinedBlockWriter.BlockStore() {
+            @Override
+            public void reserveBlocks(long lastBlockNumber) {
+                AbstractPersistentStreamStore.this.reserveBlocks(id, lastBlockNumber);
             }
-            if (length < BLOCK_SIZE_IN_BYTES) {
-                // This is the last block.
-                storeBlock(id, blockNumber, PtBytes.head(bytesToStore, length));
-                break;
-            } else {
-                // Store a full block.
-                storeBlock(id, blockNumber, bytesToStore);
+
+            @Override
+            public void storeBlock(long blockNumber, byte[] block) {
+                // Blocks are compressed on the writer threads, in parallel with reading the stream.
+                AbstractPersistentStreamStore.this.storeBlock(id, blockNumber, compressBlock(block, compression));
             }
-            blockNumber++;
-        }
+        }, getNumConcurrentBlockWrites(), BLOCKS_PER_RESERVATION, usesContentDefinedChunking(), blockWriter);
+        writer.write(stream);
+    }
+
+    /**
+     * @return the number of blocks of one stream that are written in parallel, which bounds the
+     *         memory a stream being stored holds to this many blocks
+     */
+    protected int getNumConcurrentBlockWrites() {
+        return DEFAULT_CONCURRENT_BLOCK_WRITES;
     }
 
+    /**
+     * Records in the stream's metadata that blocks up to and including lastBlockNumber may exist,
+     * so that they are deleted if the stream is cleaned up.  This must conflict with a concurrent
+     * clean up of the stream.  Blocks are always reserved before they are stored, which is what
+     * lets {@link #storeBlock} run concurrently for blocks of the same stream.
+     */
+    protected abstract void reserveBlocks(long id, long lastBlockNumber);
+
+    /**
+     * Stores a block durably before returning.  The block may be the writer's pooled buffer, which
+     * is reused as soon as this returns, so anything kept past that must be a copy.
+     */
     protected abstract void storeBlock(long id, long blockNumber, byte[] block);
 
     protected abstract void touchMetadataWhileMarkingUsedForConflicts(Transaction t, long streamId) throws StreamCleanedException;
@@ -0,0 +1,184 @@
+/**
+ * Copyright 2015 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.stream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * An {@link InputStream} over the blocks of a stored stream that loads blocks ahead of the reader
+ * in parallel.  The stream ends once the blocks read add up to its length, so it also reads
+ * streams whose blocks vary in size, given an upper bound on how many there are.
+ * <p>
+ * At most {@code window} blocks are being loaded or waiting to be read at any time.  Another block
+ * is only requested once the reader has taken one, so a slow reader holds a bounded amount of
+ * memory and does not make more requests than it consumes.
+ */
+@NotThreadSafe
+final class BlockPrefetchingInputStream extends InputStream {
+    interface BlockLoader {
+        /**
+         * @return the contents of the block, or null if it does not exist
+         */
+        byte[] loadBlock(long blockId) throws Exception;
+    }
+
+    private final BlockLoader loader;
+    private final long length;
+    private final long maxBlocks;
+    private final int window;
+    private final ExecutorService executor;
+
+    private final ArrayDeque<Future<byte[]>> prefetched = new ArrayDeque<Future<byte[]>>();
+    private long nextBlockToFetch = 0;
+    private long nextBlockToRead = 0;
+    private long lengthRead = 0;
+    private byte[] current = null;
+    private int position = 0;
+    private boolean closed = false;
+
+    BlockPrefetchingInputStream(BlockLoader loader,
+                                long length,
+                                long maxBlocks,
+                                int window,
+                                ExecutorService executor) {
+        Preconditions.checkArgument(window > 0, "window must be positive");
+        this.loader = loader;
+        this.length = length;
+        this.maxBlocks = maxBlocks;
+        this.window = window;
+        this.executor = executor;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureCurrentBlock()) {
+            return -1;
+        }
+        return current[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        Preconditions.checkPositionIndexes(off, off + len, b.length);
+        if (len == 0) {
+            return 0;
+        }
+        if (!ensureCurrentBlock()) {
+            return -1;
+        }
+        int count = Math.min(len, current.length - position);
+        System.arraycopy(current, position, b, off, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0 || !ensureCurrentBlock()) {
+            return 0;
+        }
+        int count = (int) Math.min(n, current.length - position);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return current == null ? 0 : current.length - position;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        current = null;
+        for (Future<byte[]> future : prefetched) {
+            future.cancel(true);
+        }
+        prefetched.clear();
+    }
+
+    /**
+     * @return false if the end of the stream has been reached
+     */
+    private boolean ensureCurrentBlock() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        while (current == null || position == current.length) {
+            if (lengthRead == length) {
+                return false;
+            }
+            if (nextBlockToRead == maxBlocks) {
+                close();
+                throw new IOException("Blocks ran out after " + lengthRead + " of " + length + " bytes.");
+            }
+            fillWindow();
+            current = getBlock(prefetched.poll(), nextBlockToRead++);
+            lengthRead += current.length;
+            position = 0;
+            fillWindow();
+        }
+        return true;
+    }
+
+    private void fillWindow() {
+        while (prefetched.size() < window && nextBlockToFetch < maxBlocks) {
+            final long blockId = nextBlockToFetch++;
+            prefetched.add(executor.submit(new Callable<byte[]>() {
+                @Override
+                public byte[] call() throws Exception {
+                    return loader.loadBlock(blockId);
+                }
+            }));
+        }
+    }
+
+    private byte[] getBlock(Future<byte[]> future, long blockId) throws IOException {
+        try {
+            byte[] block = future.get();
+            if (block == null) {
+                close();
+                throw new IOException("Block " + blockId + " is missing; the stream may have been cleaned up.");
+            }
+            return block;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close();
+            throw new InterruptedIOException("Interrupted while loading block " + blockId);
+        } catch (ExecutionException e) {
+            close();
+            throw new IOException("Failed to load block " + blockId, e.getCause());
+        } catch (CancellationException e) {
+            close();
+            throw new IOException("Loading block " + blockId + " was cancelled", e);
+        }
+    }
+}
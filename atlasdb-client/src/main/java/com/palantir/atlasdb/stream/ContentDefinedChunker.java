@@ -0,0 +1,117 @@
+/**
+ * Copyright 2015 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.stream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.google.common.base.Preconditions;
+import com.google.common.io.ByteStreams;
+
+/**
+ * Splits a stream into chunks whose boundaries depend on the content around them rather than on
+ * their offset, so inserting or removing bytes only changes the chunks near the edit.  Two
+ * versions of a file that differ by a few bytes then share all but a few chunks.
+ * <p>
+ * Boundaries are found with a gear rolling hash: a boundary follows any byte at which the top
+ * bits of the hash are all zero.  The hash only depends on the last 64 bytes, so a boundary is
+ * found again after an edit as soon as the bytes before it are the same.  Chunks are never shorter
+ * than {@link #MIN_CHUNK_SIZE}, except for the last one, and never longer than
+ * {@link GenericStreamStore#BLOCK_SIZE_IN_BYTES}.
+ * <p>
+ * WARNING: changing the gear table or the sizes changes where streams are cut.  Streams stored
+ * before and after such a change will still read back correctly but will not share chunks.
+ */
+@NotThreadSafe
+final class ContentDefinedChunker {
+    static final int MIN_CHUNK_SIZE = 64 * 1024;
+    static final int MAX_CHUNK_SIZE = GenericStreamStore.BLOCK_SIZE_IN_BYTES;
+    // Chunks average MIN_CHUNK_SIZE plus 2^BOUNDARY_BITS bytes.
+    private static final int BOUNDARY_BITS = 18;
+    private static final long BOUNDARY_MASK = -1L << (64 - BOUNDARY_BITS);
+    private static final long GEAR_SEED = 0x5EEDC0DEL;
+    private static final long[] GEAR = newGearTable();
+
+    private final InputStream stream;
+    private final byte[] buffer = new byte[2 * MAX_CHUNK_SIZE];
+    private int start = 0;
+    private int end = 0;
+    private boolean endOfStream = false;
+
+    ContentDefinedChunker(InputStream stream) {
+        this.stream = stream;
+    }
+
+    /**
+     * Reads the next chunk of the stream into the start of dest.
+     *
+     * @return the length of the chunk, or 0 at the end of the stream
+     */
+    int nextChunk(byte[] dest) throws IOException {
+        Preconditions.checkArgument(dest.length >= MAX_CHUNK_SIZE, "dest must hold a full chunk");
+        fill();
+        int length = findBoundary(buffer, start, end) - start;
+        System.arraycopy(buffer, start, dest, 0, length);
+        start += length;
+        return length;
+    }
+
+    /**
+     * Makes sure a full chunk is buffered, unless the stream ends first.
+     */
+    private void fill() throws IOException {
+        if (endOfStream || end - start >= MAX_CHUNK_SIZE) {
+            return;
+        }
+        if (buffer.length - start < MAX_CHUNK_SIZE) {
+            System.arraycopy(buffer, start, buffer, 0, end - start);
+            end -= start;
+            start = 0;
+        }
+        int toRead = buffer.length - end;
+        int read = ByteStreams.read(stream, buffer, end, toRead);
+        end += read;
+        endOfStream = read < toRead;
+    }
+
+    /**
+     * @return the end of the chunk that starts at from, given the bytes up to to
+     */
+    static int findBoundary(byte[] bytes, int from, int to) {
+        int limit = Math.min(to, from + MAX_CHUNK_SIZE);
+        long hash = 0;
+        for (int i = from + MIN_CHUNK_SIZE; i < limit; i++) {
+            hash = (hash << 1) + GEAR[bytes[i] & 0xff];
+            if ((hash & BOUNDARY_MASK) == 0) {
+                return i + 1;
+            }
+        }
+        return limit;
+    }
+
+    private static long[] newGearTable() {
+        // java.util.Random's sequence for a given seed is fixed by its specification.
+        Random random = new Random(GEAR_SEED);
+        long[] gear = new long[256];
+        for (int i = 0; i < gear.length; i++) {
+            gear[i] = random.nextLong();
+        }
+        return gear;
+    }
+}
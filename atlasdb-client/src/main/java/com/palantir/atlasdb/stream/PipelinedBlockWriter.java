@@ -0,0 +1,208 @@
+/**
+ * Copyright 2015 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.stream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.google.common.base.Preconditions;
+import com.google.common.io.ByteStreams;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.common.base.Throwables;
+
+/**
+ * Cuts a stream into blocks and stores them, reading the next blocks while earlier ones are
+ * still being written.
+ * <p>
+ * The calling thread reads, and so also runs any hashing or counting wrapped around the stream.
+ * At most {@code maxConcurrentWrites} blocks are being written at once; once that many are in
+ * flight the reader waits for one of them to finish, so an upload never holds more than that many
+ * blocks in memory.  Full blocks are read into buffers from a pool and stored as they are, so only
+ * blocks shorter than that are copied.
+ * <p>
+ * The pool is shared by every writer in the JVM and keeps at most {@value #MAX_SPARE_BUFFERS} spare
+ * buffers, so idle writers hold no more than that many blocks between them; writers that find it
+ * empty allocate a new buffer.  A pooled buffer is handed to {@link BlockStore#storeBlock} and
+ * reused for a later block, possibly of another stream, once that returns.  Stores that write the
+ * block and commit before returning need not copy it.
+ * <p>
+ * Blocks are either all {@link GenericStreamStore#BLOCK_SIZE_IN_BYTES} long except for the last,
+ * or chunks cut by a {@link ContentDefinedChunker}, which may be shorter.
+ * <p>
+ * Before any block is written the store is asked to reserve it.  Reservations are made on the
+ * calling thread, in order, several blocks at a time.
+ */
+@NotThreadSafe
+final class PipelinedBlockWriter {
+    interface BlockStore {
+        /**
+         * Called before any block up to and including lastBlockNumber is stored.
+         */
+        void reserveBlocks(long lastBlockNumber);
+
+        /**
+         * The block's buffer may be reused once this returns, so the block must have been
+         * written by then, for example by committing the transaction that puts it.  Anything
+         * kept after returning must be a copy.
+         */
+        void storeBlock(long blockNumber, byte[] block);
+    }
+
+    private static final int BLOCK_SIZE_IN_BYTES = GenericStreamStore.BLOCK_SIZE_IN_BYTES;
+    private static final int MAX_SPARE_BUFFERS = 16;
+    private static final BlockingQueue<byte[]> spareBuffers = new ArrayBlockingQueue<byte[]>(MAX_SPARE_BUFFERS);
+
+    private final BlockStore store;
+    private final int maxConcurrentWrites;
+    private final int blocksPerReservation;
+    private final boolean contentDefinedChunks;
+    private final ExecutorService executor;
+
+    private final Semaphore writeSlots;
+    private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+    private long nextBlockNumber = 0;
+    private long reservedThrough = -1;
+
+    PipelinedBlockWriter(BlockStore store,
+                         int maxConcurrentWrites,
+                         int blocksPerReservation,
+                         boolean contentDefinedChunks,
+                         ExecutorService executor) {
+        Preconditions.checkArgument(maxConcurrentWrites > 0, "maxConcurrentWrites must be positive");
+        Preconditions.checkArgument(blocksPerReservation > 0, "blocksPerReservation must be positive");
+        this.store = store;
+        this.maxConcurrentWrites = maxConcurrentWrites;
+        this.blocksPerReservation = blocksPerReservation;
+        this.contentDefinedChunks = contentDefinedChunks;
+        this.executor = executor;
+        this.writeSlots = new Semaphore(maxConcurrentWrites);
+    }
+
+    /**
+     * Stores the stream and returns once every block has been written.  If reading the stream or
+     * writing a block fails, no further blocks are started and the blocks already in flight are
+     * waited for before the failure is thrown.
+     *
+     * @throws IOException if reading the stream fails
+     */
+    void write(InputStream stream) throws IOException {
+        ContentDefinedChunker chunker = contentDefinedChunks ? new ContentDefinedChunker(stream) : null;
+        try {
+            while (writeNextBlock(stream, chunker)) {
+                // keep going
+            }
+        } finally {
+            // Nothing may still be writing blocks once the caller decides how the stream ended.
+            writeSlots.acquireUninterruptibly(maxConcurrentWrites);
+            writeSlots.release(maxConcurrentWrites);
+        }
+        Throwable t = failure.get();
+        if (t != null) {
+            throw Throwables.rewrapAndThrowUncheckedException(t);
+        }
+    }
+
+    /**
+     * @return false once the end of the stream has been reached or a block write has failed
+     */
+    private boolean writeNextBlock(InputStream stream, @Nullable ContentDefinedChunker chunker) throws IOException {
+        try {
+            writeSlots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to store block " + nextBlockNumber);
+        }
+        byte[] buffer = null;
+        boolean submitted = false;
+        try {
+            if (failure.get() != null) {
+                return false;
+            }
+            buffer = takeBuffer();
+            int length = chunker != null
+                    ? chunker.nextChunk(buffer)
+                    : ByteStreams.read(stream, buffer, 0, BLOCK_SIZE_IN_BYTES);
+            if (length == 0) {
+                return false;
+            }
+            long blockNumber = nextBlockNumber++;
+            if (blockNumber > reservedThrough) {
+                reservedThrough = blockNumber + blocksPerReservation - 1;
+                store.reserveBlocks(reservedThrough);
+            }
+            if (length < BLOCK_SIZE_IN_BYTES) {
+                // Store only the bytes the block holds.  A short fixed size block is the last one.
+                byte[] shortBlock = PtBytes.head(buffer, length);
+                returnBuffer(buffer);
+                buffer = null;
+                submit(blockNumber, shortBlock, null);
+                submitted = true;
+                return chunker != null;
+            }
+            submit(blockNumber, buffer, buffer);
+            submitted = true;
+            return true;
+        } finally {
+            if (!submitted) {
+                if (buffer != null) {
+                    returnBuffer(buffer);
+                }
+                writeSlots.release();
+            }
+        }
+    }
+
+    /**
+     * Takes over the write slot held by the reader, and the pooled buffer if there is one.
+     */
+    private void submit(final long blockNumber, final byte[] block, @Nullable final byte[] pooledBuffer) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (failure.get() == null) {
+                        store.storeBlock(blockNumber, block);
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                } finally {
+                    if (pooledBuffer != null) {
+                        returnBuffer(pooledBuffer);
+                    }
+                    writeSlots.release();
+                }
+            }
+        });
+    }
+
+    private static byte[] takeBuffer() {
+        byte[] buffer = spareBuffers.poll();
+        return buffer != null ? buffer : new byte[BLOCK_SIZE_IN_BYTES];
+    }
+
+    private static void returnBuffer(byte[] buffer) {
+        spareBuffers.offer(buffer);
+    }
+}
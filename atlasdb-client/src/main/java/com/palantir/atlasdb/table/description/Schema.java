@@ -42,6 +42,7 @@ import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.Expiration
 import com.palantir.atlasdb.schema.Namespace;
 import com.palantir.atlasdb.schema.stream.StreamTables;
 import com.palantir.atlasdb.stream.GenericStreamStore;
+import com.palantir.atlasdb.table.description.ColumnValueDescription.Compression;
 import com.palantir.atlasdb.table.description.IndexDefinition.IndexType;
 import com.palantir.atlasdb.table.description.render.Renderers;
 import com.palantir.atlasdb.table.description.render.StreamStoreRenderer;
@@ -131,14 +132,40 @@ public class Schema {
     }
 
     public void addStreamStoreDefinition(final String longName, String shortName, ValueType streamIdType, int inMemoryThreshold, ExpirationStrategy expirationStrategy, boolean hashFirstRowComponent) {
+        addStreamStoreDefinition(longName, shortName, streamIdType, inMemoryThreshold, expirationStrategy, hashFirstRowComponent, false);
+    }
+
+    /**
+     * @param contentDefinedChunking Split streams into chunks by their content rather than into
+     * fixed size blocks, and store each distinct chunk only once.  Streams that share most of their
+     * content, such as successive versions of a large file, then share most of their storage.  Only
+     * supported for persistent streams.
+     */
+    public void addStreamStoreDefinition(final String longName, String shortName, ValueType streamIdType, int inMemoryThreshold, ExpirationStrategy expirationStrategy, boolean hashFirstRowComponent, boolean contentDefinedChunking) {
+        addStreamStoreDefinition(longName, shortName, streamIdType, inMemoryThreshold, expirationStrategy, hashFirstRowComponent, contentDefinedChunking, Compression.NONE);
+    }
+
+    /**
+     * @param blockCompression The compression applied to each block of a stream as it is stored.
+     * It is recorded in the metadata of every stream, so it can be changed later without affecting
+     * the streams already stored.  Compressing blocks trades CPU for less I/O to the key value
+     * service, which pays off for compressible streams such as text or JSON.
+     */
+    public void addStreamStoreDefinition(final String longName, String shortName, ValueType streamIdType, int inMemoryThreshold, ExpirationStrategy expirationStrategy, boolean hashFirstRowComponent, boolean contentDefinedChunking, Compression blockCompression) {
         if (expirationStrategy == ExpirationStrategy.NEVER) {
             Preconditions.checkArgument(streamIdType == ValueType.VAR_LONG, "ValueType must be VAR_LONG for persistent streams.");
+        } else {
+            Preconditions.checkArgument(!contentDefinedChunking, "Content defined chunking is only supported for persistent streams.");
         }
-        final StreamStoreRenderer renderer = new StreamStoreRenderer(Renderers.CamelCase(longName), streamIdType, packageName, name, inMemoryThreshold, expirationStrategy);
+        final StreamStoreRenderer renderer = new StreamStoreRenderer(Renderers.CamelCase(longName), streamIdType, packageName, name, inMemoryThreshold, expirationStrategy, contentDefinedChunking, blockCompression);
         addTableDefinition(shortName + "_stream_metadata", StreamTables.getStreamMetadataDefinition(longName, streamIdType, expirationStrategy, hashFirstRowComponent));
-        addTableDefinition(shortName + "_stream_value", StreamTables.getStreamValueDefinition(longName, streamIdType, expirationStrategy, hashFirstRowComponent));
+        addTableDefinition(shortName + "_stream_value", StreamTables.getStreamValueDefinition(longName, streamIdType, expirationStrategy, hashFirstRowComponent, blockCompression));
         addTableDefinition(shortName + "_stream_hash_aidx", StreamTables.getStreamHashIdxDefinition(longName, streamIdType, expirationStrategy));
         addTableDefinition(shortName + "_stream_idx", StreamTables.getStreamIdxDefinition(longName, streamIdType, expirationStrategy, hashFirstRowComponent));
+        if (contentDefinedChunking) {
+            addTableDefinition(shortName + StreamTables.CHUNK_TABLE_SUFFIX, StreamTables.getStreamChunkDefinition(longName, blockCompression));
+            addTableDefinition(shortName + StreamTables.CHUNK_REF_TABLE_SUFFIX, StreamTables.getStreamChunkRefDefinition(longName));
+        }
 
         // We use reflection and wrap these in suppliers because these classes are generated classes that might not always exist.
         addCleanupTask(shortName + "_stream_metadata", new Supplier<OnCleanupTask>() {
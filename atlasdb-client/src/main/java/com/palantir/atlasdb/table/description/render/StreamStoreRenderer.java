@@ -61,6 +61,7 @@ import com.palantir.atlasdb.stream.AbstractPersistentStreamStore;
 import com.palantir.atlasdb.stream.ExpiringStreamStore;
 import com.palantir.atlasdb.stream.PersistentStreamStore;
 import com.palantir.atlasdb.stream.StreamCleanedException;
+import com.palantir.atlasdb.table.description.ColumnValueDescription.Compression;
 import com.palantir.atlasdb.table.description.ValueType;
 import com.palantir.atlasdb.transaction.api.Transaction;
 import com.palantir.atlasdb.transaction.api.TransactionFailedRetriableException;
@@ -82,14 +83,26 @@ public class StreamStoreRenderer {
     private final String schemaName;
     private final int inMemoryThreshold;
     private final ExpirationStrategy expirationStrategy;
+    private final boolean contentDefinedChunking;
+    private final Compression blockCompression;
 
     public StreamStoreRenderer(String name, ValueType streamIdType, String packageName, String schemaName, int inMemoryThreshold, ExpirationStrategy expirationStrategy) {
+        this(name, streamIdType, packageName, schemaName, inMemoryThreshold, expirationStrategy, false);
+    }
+
+    public StreamStoreRenderer(String name, ValueType streamIdType, String packageName, String schemaName, int inMemoryThreshold, ExpirationStrategy expirationStrategy, boolean contentDefinedChunking) {
+        this(name, streamIdType, packageName, schemaName, inMemoryThreshold, expirationStrategy, contentDefinedChunking, Compression.NONE);
+    }
+
+    public StreamStoreRenderer(String name, ValueType streamIdType, String packageName, String schemaName, int inMemoryThreshold, ExpirationStrategy expirationStrategy, boolean contentDefinedChunking, Compression blockCompression) {
         this.name = name;
         this.streamIdType = streamIdType;
         this.packageName = packageName;
         this.schemaName = schemaName;
         this.inMemoryThreshold = inMemoryThreshold;
         this.expirationStrategy = expirationStrategy;
+        this.contentDefinedChunking = contentDefinedChunking;
+        this.blockCompression = blockCompression;
     }
 
     public String getPackageName() {
@@ -127,6 +140,14 @@ public class StreamStoreRenderer {
         final String StreamIdxColumn = StreamIdxTable + "." + name + "StreamIdxColumn";
         final String StreamIdxColumnValue = StreamIdxTable + "." + name + "StreamIdxColumnValue";
 
+        final String StreamChunkTable = name + "StreamChunkTable";
+        final String StreamChunkRow = StreamChunkTable + "." + name + "StreamChunkRow";
+
+        final String StreamChunkRefTable = name + "StreamChunkRefTable";
+        final String StreamChunkRefRow = StreamChunkRefTable + "." + name + "StreamChunkRefRow";
+        final String StreamChunkRefColumn = StreamChunkRefTable + "." + name + "StreamChunkRefColumn";
+        final String StreamChunkRefColumnValue = StreamChunkRefTable + "." + name + "StreamChunkRefColumnValue";
+
         final String TableFactory = schemaName + "TableFactory";
         final String StreamId = streamIdType.getJavaObjectClassName();
 
@@ -146,10 +167,32 @@ public class StreamStoreRenderer {
                     line();
                     getInMemoryThreshold();
                     line();
+                    if (contentDefinedChunking) {
+                        usesContentDefinedChunking();
+                        line();
+                    }
+                    if (blockCompression != Compression.NONE) {
+                        getBlockCompression();
+                        line();
+                    }
+                    if (!isExpiring()) {
+                        reserveBlocks();
+                        line();
+                    }
                     storeBlock();
                     line();
+                    if (contentDefinedChunking) {
+                        addChunkReference();
+                        line();
+                        removeChunkReferences();
+                        line();
+                    }
                     touchMetadataWhileStoringForConflicts();
                     line();
+                    if (!isExpiring()) {
+                        touchMetadataWhileStoringBlockForConflicts();
+                        line();
+                    }
                     putMetadataAndHashIndexTask();
                     line();
                     getNumberOfBlocksFromMetadata();
@@ -158,6 +201,8 @@ public class StreamStoreRenderer {
                     line();
                     loadSingleBlockToOutputStream();
                     line();
+                    loadSingleBlock();
+                    line();
                     getBlock();
                     line();
                     getMetadata();
@@ -209,22 +254,67 @@ public class StreamStoreRenderer {
                 } line("}");
             }
 
+            private void usesContentDefinedChunking() {
+                line("@Override");
+                line("protected boolean usesContentDefinedChunking() {"); {
+                    line("return true;");
+                } line("}");
+            }
+
+            private void getBlockCompression() {
+                line("@Override");
+                line("protected com.palantir.atlasdb.table.description.ColumnValueDescription.Compression getBlockCompression() {"); {
+                    line("return com.palantir.atlasdb.table.description.ColumnValueDescription.Compression.", blockCompression.name(), ";");
+                } line("}");
+            }
+
+            private void reserveBlocks() {
+                line("@Override");
+                line("protected void reserveBlocks(final long id, final long lastBlockNumber) {"); {
+                    line("Preconditions.checkNotNull(txnMgr);");
+                    line("txnMgr.runTaskThrowOnConflict(new TransactionTask<Void, RuntimeException>() {"); {
+                        line("@Override");
+                        line("public Void execute(Transaction t) {"); {
+                            line("// Do a touch operation on this table to ensure we get a conflict if someone cleans it up.");
+                            line("touchMetadataWhileStoringForConflicts(t, id, lastBlockNumber);");
+                            line("return null;");
+                        } line("}");
+                    } line("});");
+                } line("}");
+            }
+
             private void storeBlock() {
                 String params = isExpiring() ? ", final long duration, final TimeUnit unit" : "";
                 String args = isExpiring() ? ", duration, unit" : "";
                 String streamType = isExpiring() ? StreamId : "long";
                 line("@Override");
                 line("protected void storeBlock(", streamType, " id, long blockNumber, final byte[] block", params, ") {"); {
-                    line("Preconditions.checkArgument(block.length <= BLOCK_SIZE_IN_BYTES, \"Block to store in DB must be less than BLOCK_SIZE_IN_BYTES\");");
+                    String maxBlockLength = blockCompression == Compression.NONE ? "BLOCK_SIZE_IN_BYTES" : "BLOCK_SIZE_IN_BYTES + COMPRESSED_BLOCK_HEADER_SIZE";
+                    line("Preconditions.checkArgument(block.length <= ", maxBlockLength, ", \"Block to store in DB must be less than BLOCK_SIZE_IN_BYTES\");");
                     line("Preconditions.checkNotNull(txnMgr);");
                     line("final ", StreamValueRow, " row = ", StreamValueRow, ".of(id, blockNumber);");
+                    if (contentDefinedChunking) {
+                        line("final Sha256Hash chunkHash = Sha256Hash.computeHash(block);");
+                        line("final long stripe = getChunkReferenceStripe(id, blockNumber);");
+                    }
                     line("try {"); {
-                        line("txnMgr.runTaskThrowOnConflict(new TransactionTask<Void, RuntimeException>() {"); {
+                        // Blocks that add to the same reference stripe of a chunk, or race with its deletion, conflict.
+                        line("txnMgr.", contentDefinedChunking ? "runTaskWithRetry" : "runTaskThrowOnConflict", "(new TransactionTask<Void, RuntimeException>() {"); {
                             line("@Override");
                             line("public Void execute(Transaction t) {"); {
-                                line("// Do a touch operation on this table to ensure we get a conflict if someone cleans it up.");
-                                line("touchMetadataWhileStoringForConflicts(t, row.getId(), row.getBlockId()", args, ");");
-                                line("tables.get", StreamValueTable, "(t).putValue(row, block", args, ");");
+                                if (isExpiring()) {
+                                    line("// Do a touch operation on this table to ensure we get a conflict if someone cleans it up.");
+                                    line("touchMetadataWhileStoringForConflicts(t, row.getId(), row.getBlockId()", args, ");");
+                                } else {
+                                    line("// Rewrite the reserved metadata unchanged, so blocks of one stream can be stored concurrently but conflict with a cleanup.");
+                                    line("touchMetadataWhileStoringBlockForConflicts(t, row.getId());");
+                                }
+                                if (contentDefinedChunking) {
+                                    line("addChunkReference(t, chunkHash, block, stripe);");
+                                    line("tables.get", StreamValueTable, "(t).putValue(row, chunkHash.getBytes());");
+                                } else {
+                                    line("tables.get", StreamValueTable, "(t).putValue(row, block", args, ");");
+                                }
                                 line("return null;");
                             } line("}");
                         } line("});");
@@ -235,6 +325,68 @@ public class StreamStoreRenderer {
                 } line("}");
             }
 
+            private void addChunkReference() {
+                line("private void addChunkReference(Transaction t, Sha256Hash chunkHash, byte[] chunk, long stripe) {"); {
+                    line(StreamChunkTable, " chunkTable = tables.get", StreamChunkTable, "(t);");
+                    line(StreamChunkRow, " row = ", StreamChunkRow, ".of(chunkHash);");
+                    line("Long releaseCount = chunkTable.getReleaseCounts(ImmutableSet.of(row)).get(row);");
+                    line("if (releaseCount == null) {"); {
+                        line("chunkTable.putValue(row, chunk);");
+                        line("chunkTable.putReleaseCount(row, 0L);");
+                    } line("} else {"); {
+                        line("// Rewrite the release count unchanged, so this conflicts with the chunk being deleted but not with other references being added.");
+                        line("chunkTable.putReleaseCount(row, releaseCount);");
+                    } line("}");
+                    line(StreamChunkRefTable, " refTable = tables.get", StreamChunkRefTable, "(t);");
+                    line(StreamChunkRefRow, " refRow = ", StreamChunkRefRow, ".of(chunkHash);");
+                    line("long count = 0;");
+                    line("for (", StreamChunkRefColumnValue, " ref : refTable.getRowColumns(refRow)) {"); {
+                        line("if (ref.getColumnName().getStripe() == stripe) {"); {
+                            line("count = ref.getValue();");
+                        } line("}");
+                    } line("}");
+                    line("refTable.put(refRow, ", StreamChunkRefColumnValue, ".of(", StreamChunkRefColumn, ".of(stripe), count + 1));");
+                } line("}");
+            }
+
+            private void removeChunkReferences() {
+                line("private void removeChunkReferences(Transaction t, Collection<byte[]> chunkHashes) {"); {
+                    line("Map<", StreamChunkRow, ", Long> removed = Maps.newHashMap();");
+                    line("Set<", StreamChunkRefRow, "> refRows = Sets.newHashSet();");
+                    line("for (byte[] chunkHash : chunkHashes) {"); {
+                        line(StreamChunkRow, " row = ", StreamChunkRow, ".of(new Sha256Hash(chunkHash));");
+                        line("Long count = removed.get(row);");
+                        line("removed.put(row, count == null ? 1L : count + 1);");
+                        line("refRows.add(", StreamChunkRefRow, ".of(row.getHash()));");
+                    } line("}");
+                    line(StreamChunkTable, " chunkTable = tables.get", StreamChunkTable, "(t);");
+                    line(StreamChunkRefTable, " refTable = tables.get", StreamChunkRefTable, "(t);");
+                    line("Map<", StreamChunkRow, ", Long> releaseCounts = chunkTable.getReleaseCounts(removed.keySet());");
+                    line("Multimap<", StreamChunkRefRow, ", ", StreamChunkRefColumnValue, "> refs = refTable.getRowsMultimap(refRows);");
+                    line("Set<", StreamChunkRow, "> unreferenced = Sets.newHashSet();");
+                    line("Multimap<", StreamChunkRefRow, ", ", StreamChunkRefColumn, "> unreferencedRefs = HashMultimap.create();");
+                    line("for (Entry<", StreamChunkRow, ", Long> e : removed.entrySet()) {"); {
+                        line(StreamChunkRefRow, " refRow = ", StreamChunkRefRow, ".of(e.getKey().getHash());");
+                        line("long added = 0;");
+                        line("for (", StreamChunkRefColumnValue, " ref : refs.get(refRow)) {"); {
+                            line("added += ref.getValue();");
+                        } line("}");
+                        line("Long releaseCount = releaseCounts.get(e.getKey());");
+                        line("long released = (releaseCount == null ? 0 : releaseCount) + e.getValue();");
+                        line("if (released < added) {"); {
+                            line("chunkTable.putReleaseCount(e.getKey(), released);");
+                        } line("} else {"); {
+                            line("unreferenced.add(e.getKey());");
+                            line("for (", StreamChunkRefColumnValue, " ref : refs.get(refRow)) {"); {
+                                line("unreferencedRefs.put(refRow, ref.getColumnName());");
+                            } line("}");
+                        } line("}");
+                    } line("}");
+                    line("chunkTable.delete(unreferenced);");
+                    line("refTable.delete(unreferencedRefs);");
+                } line("}");
+            }
+
             private void touchMetadataWhileStoringForConflicts() {
                 String params = isExpiring() ? ", long duration, TimeUnit unit" : "";
                 String args = isExpiring() ? ", duration, unit" : "";
@@ -249,6 +401,16 @@ public class StreamStoreRenderer {
                 } line("}");
             }
 
+            private void touchMetadataWhileStoringBlockForConflicts() {
+                line("private void touchMetadataWhileStoringBlockForConflicts(Transaction t, ", StreamId, " id) {"); {
+                    line(StreamMetadataTable, " metaTable = tables.get", StreamMetadataTable, "(t);");
+                    line(StreamMetadataRow, " row = ", StreamMetadataRow, ".of(id);");
+                    line("StreamMetadata metadata = metaTable.getMetadatas(ImmutableSet.of(row)).get(row);");
+                    line("Preconditions.checkState(metadata != null && metadata.getStatus() == Status.STORING, \"This stream is being cleaned up while storing blocks: \" + id);");
+                    line("metaTable.putMetadata(row, metadata);");
+                } line("}");
+            }
+
             private void putMetadataAndHashIndexTask() {
                 String streamType = isExpiring() ? StreamId : "long";
                 String params = isExpiring() ? ", long duration, TimeUnit unit" : "";
@@ -314,10 +476,27 @@ public class StreamStoreRenderer {
                 } line("}");
             }
 
+            private void loadSingleBlock() {
+                line("@Override");
+                line("protected byte[] loadSingleBlock(Transaction t, ", StreamId, " streamId, long blockId) {"); {
+                    line(StreamValueRow, " row = ", StreamValueRow, ".of(streamId, blockId);");
+                    line("return getBlock(t, row);");
+                } line("}");
+            }
+
             private void getBlock() {
                 line("private byte[] getBlock(Transaction t, ", StreamValueRow, " row) {"); {
                     line(StreamValueTable, " valueTable = tables.get", StreamValueTable, "(t);");
-                    line("return valueTable.getValues(ImmutableSet.of(row)).get(row);");
+                    if (contentDefinedChunking) {
+                        line("byte[] chunkHash = valueTable.getValues(ImmutableSet.of(row)).get(row);");
+                        line("if (chunkHash == null) {"); {
+                            line("return null;");
+                        } line("}");
+                        line(StreamChunkRow, " chunkRow = ", StreamChunkRow, ".of(new Sha256Hash(chunkHash));");
+                        line("return tables.get", StreamChunkTable, "(t).getValues(ImmutableSet.of(chunkRow)).get(chunkRow);");
+                    } else {
+                        line("return valueTable.getValues(ImmutableSet.of(row)).get(row);");
+                    }
                 } line("}");
             }
 
@@ -389,7 +568,7 @@ public class StreamStoreRenderer {
                     line("Set<", StreamValueRow, "> streamValueToDelete = Sets.newHashSet();");
                     line("for (Entry<", StreamMetadataRow, ", StreamMetadata> e : metadatas.entrySet()) {"); {
                         line(StreamId, " streamId = e.getKey().getId();");
-                        line("long blocks = getNumberOfBlocksFromMetadata(e.getValue());");
+                        line("long blocks = ", contentDefinedChunking ? "getMaxNumberOfBlocks" : "getNumberOfBlocksFromMetadata", "(e.getValue());");
                         line("for (long i = 0; i < blocks; i++) {"); {
                             line("streamValueToDelete.add(", StreamValueRow, ".of(streamId, i));");
                         } line("}");
@@ -407,6 +586,9 @@ public class StreamStoreRenderer {
                     } line("}");
 
                     line("tables.get", StreamHashAidxTable, "(t).delete(shToDelete);");
+                    if (contentDefinedChunking) {
+                        line("removeChunkReferences(t, tables.get", StreamValueTable, "(t).getValues(streamValueToDelete).values());");
+                    }
                     line("tables.get", StreamValueTable, "(t).delete(streamValueToDelete);");
                     line("table.delete(smRows);");
                 } line("}");
@@ -0,0 +1,203 @@
+/**
+ * Copyright 2015 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.common.concurrent;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+
+/**
+ * Combines requests from concurrent callers into batches that are handled by one caller at a time.
+ * <p>
+ * Callers queue their request and then try to take the flush lock.  Whoever gets it becomes the
+ * leader: it takes everything queued so far, up to the batch limit, hands it to the
+ * {@link BatchHandler} and wakes each caller in the batch as its request is resolved.  Callers that
+ * arrive while a batch is being handled park until it is done, and one of them then leads the next
+ * batch.  A caller running alone pays no extra latency.
+ *
+ * @param <T> the type of the requests
+ * @param <R> the type of the results
+ */
+@ThreadSafe
+public final class GroupCommitter<T, R> {
+    public interface BatchHandler<T, R> {
+        /**
+         * Resolves every request in the batch, each with either a result or a failure.  If this
+         * throws, the exception fails every request it left unresolved.
+         */
+        void handle(List<Request<T, R>> batch);
+    }
+
+    public interface Weigher<T> {
+        long weigh(T request);
+    }
+
+    private static final Weigher<Object> UNIT_WEIGHER = new Weigher<Object>() {
+        @Override
+        public long weigh(Object request) {
+            return 1;
+        }
+    };
+
+    private final BatchHandler<T, R> handler;
+    private final Weigher<? super T> weigher;
+    private final long maxBatchWeight;
+
+    private final ConcurrentLinkedQueue<Request<T, R>> pending = new ConcurrentLinkedQueue<Request<T, R>>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    /**
+     * Creates a committer that handles at most maxBatchSize requests at once.
+     */
+    public static <T, R> GroupCommitter<T, R> create(BatchHandler<T, R> handler, int maxBatchSize) {
+        return new GroupCommitter<T, R>(handler, UNIT_WEIGHER, maxBatchSize);
+    }
+
+    /**
+     * Creates a committer whose batches weigh at most maxBatchWeight, except for batches of a single
+     * request, which may weigh more.
+     */
+    public static <T, R> GroupCommitter<T, R> create(BatchHandler<T, R> handler,
+                                                     Weigher<? super T> weigher,
+                                                     long maxBatchWeight) {
+        return new GroupCommitter<T, R>(handler, weigher, maxBatchWeight);
+    }
+
+    private GroupCommitter(BatchHandler<T, R> handler, Weigher<? super T> weigher, long maxBatchWeight) {
+        Preconditions.checkArgument(maxBatchWeight > 0, "maxBatchWeight must be positive");
+        this.handler = Preconditions.checkNotNull(handler);
+        this.weigher = Preconditions.checkNotNull(weigher);
+        this.maxBatchWeight = maxBatchWeight;
+    }
+
+    /**
+     * Waits until the request has been handled as part of a batch.  Interrupts are remembered and
+     * restored, but do not stop the wait.
+     *
+     * @throws ExecutionException if the handler failed the request, with its failure as the cause
+     */
+    public R submit(T value) throws ExecutionException {
+        Request<T, R> request = new Request<T, R>(value, Thread.currentThread());
+        pending.add(request);
+        boolean interrupted = false;
+        while (!request.done) {
+            if (flushLock.tryLock()) {
+                try {
+                    if (!request.done) {
+                        flush();
+                    }
+                } finally {
+                    flushLock.unlock();
+                }
+                // Anyone still queued arrived after the batch was taken; let one of them lead the next.
+                Request<T, R> next = pending.peek();
+                if (next != null) {
+                    LockSupport.unpark(next.thread);
+                }
+            } else {
+                // Woken either once our request is resolved or when the flush lock is free again.
+                LockSupport.park(this);
+                interrupted |= Thread.interrupted();
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (request.failure != null) {
+            throw new ExecutionException(request.failure);
+        }
+        return request.result;
+    }
+
+    /**
+     * Handles one batch of pending requests.  Must be called while holding {@link #flushLock}.
+     */
+    private void flush() {
+        List<Request<T, R>> batch = Lists.newArrayList();
+        long batchWeight = 0;
+        Request<T, R> next;
+        while ((next = pending.peek()) != null) {
+            long weight = weigher.weigh(next.value);
+            if (!batch.isEmpty() && batchWeight + weight > maxBatchWeight) {
+                break;
+            }
+            batch.add(pending.poll());
+            batchWeight += weight;
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        Throwable failure = null;
+        try {
+            handler.handle(batch);
+        } catch (Throwable t) {
+            failure = t;
+        }
+        for (Request<T, R> request : batch) {
+            if (!request.done) {
+                request.fail(failure != null
+                        ? failure
+                        : new IllegalStateException("Request was not resolved by its batch"));
+            }
+        }
+    }
+
+    /**
+     * A queued request, which the {@link BatchHandler} resolves exactly once.
+     */
+    public static final class Request<T, R> {
+        private final T value;
+        private final Thread thread;
+        private R result = null;
+        private Throwable failure = null;
+        // Written last, so a caller that sees done also sees the result.
+        private volatile boolean done = false;
+
+        Request(T value, Thread thread) {
+            this.value = value;
+            this.thread = thread;
+        }
+
+        public T get() {
+            return value;
+        }
+
+        public boolean isDone() {
+            return done;
+        }
+
+        public void complete(R value) {
+            Preconditions.checkState(!done, "Request was already resolved");
+            result = value;
+            done = true;
+            LockSupport.unpark(thread);
+        }
+
+        public void fail(Throwable t) {
+            Preconditions.checkState(!done, "Request was already resolved");
+            failure = Preconditions.checkNotNull(t);
+            done = true;
+            LockSupport.unpark(thread);
+        }
+    }
+}
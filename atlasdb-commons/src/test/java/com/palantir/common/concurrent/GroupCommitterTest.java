@@ -0,0 +1,170 @@
+/**
+ * Copyright 2015 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.common.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.palantir.common.concurrent.GroupCommitter.Request;
+
+public class GroupCommitterTest {
+    private static final int NUM_THREADS = 16;
+    private static final int REQUESTS_PER_THREAD = 500;
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(NUM_THREADS);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testEveryRequestGetsItsOwnResult() throws Exception {
+        final List<Integer> batchSizes = new CopyOnWriteArrayList<Integer>();
+        final GroupCommitter<Integer, Integer> committer = GroupCommitter.create(
+                new GroupCommitter.BatchHandler<Integer, Integer>() {
+                    @Override
+                    public void handle(List<Request<Integer, Integer>> batch) {
+                        batchSizes.add(batch.size());
+                        for (Request<Integer, Integer> request : batch) {
+                            request.complete(request.get() * 2);
+                        }
+                    }
+                }, 10);
+        List<Future<Void>> futures = Lists.newArrayList();
+        for (int i = 0; i < NUM_THREADS; i++) {
+            final int offset = i * REQUESTS_PER_THREAD;
+            futures.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    for (int value = offset; value < offset + REQUESTS_PER_THREAD; value++) {
+                        assertEquals(Integer.valueOf(value * 2), committer.submit(value));
+                    }
+                    return null;
+                }
+            }));
+        }
+        for (Future<Void> future : futures) {
+            future.get();
+        }
+        int total = 0;
+        for (int size : batchSizes) {
+            assertTrue("batch of " + size + " exceeds the limit", size <= 10);
+            total += size;
+        }
+        assertEquals(NUM_THREADS * REQUESTS_PER_THREAD, total);
+    }
+
+    @Test
+    public void testBatchesRespectWeightButAdmitOneOversizeRequest() throws Exception {
+        final List<Long> batchWeights = new CopyOnWriteArrayList<Long>();
+        GroupCommitter<Long, Void> committer = GroupCommitter.create(
+                new GroupCommitter.BatchHandler<Long, Void>() {
+                    @Override
+                    public void handle(List<Request<Long, Void>> batch) {
+                        long weight = 0;
+                        for (Request<Long, Void> request : batch) {
+                            weight += request.get();
+                            request.complete(null);
+                        }
+                        batchWeights.add(weight);
+                    }
+                },
+                new GroupCommitter.Weigher<Long>() {
+                    @Override
+                    public long weigh(Long request) {
+                        return request;
+                    }
+                }, 100);
+        committer.submit(500L);
+        assertEquals(Long.valueOf(500L), batchWeights.get(0));
+    }
+
+    @Test
+    public void testHandlerFailureFailsUnresolvedRequests() throws Exception {
+        final RuntimeException failure = new RuntimeException("boom");
+        GroupCommitter<Integer, Integer> committer = GroupCommitter.create(
+                new GroupCommitter.BatchHandler<Integer, Integer>() {
+                    @Override
+                    public void handle(List<Request<Integer, Integer>> batch) {
+                        throw failure;
+                    }
+                }, 10);
+        try {
+            committer.submit(1);
+            fail();
+        } catch (ExecutionException e) {
+            assertSame(failure, e.getCause());
+        }
+    }
+
+    @Test
+    public void testUnresolvedRequestFails() throws Exception {
+        GroupCommitter<Integer, Integer> committer = GroupCommitter.create(
+                new GroupCommitter.BatchHandler<Integer, Integer>() {
+                    @Override
+                    public void handle(List<Request<Integer, Integer>> batch) {
+                        // Forgets to resolve the batch.
+                    }
+                }, 10);
+        try {
+            committer.submit(1);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void testInterruptIsRestored() throws Exception {
+        GroupCommitter<Integer, Integer> committer = GroupCommitter.create(
+                new GroupCommitter.BatchHandler<Integer, Integer>() {
+                    @Override
+                    public void handle(List<Request<Integer, Integer>> batch) {
+                        for (Request<Integer, Integer> request : batch) {
+                            request.complete(request.get());
+                        }
+                    }
+                }, 10);
+        Thread.currentThread().interrupt();
+        try {
+            assertEquals(Integer.valueOf(3), committer.submit(3));
+            assertTrue(Thread.currentThread().isInterrupted());
+        } finally {
+            Thread.interrupted();
+        }
+    }
+}
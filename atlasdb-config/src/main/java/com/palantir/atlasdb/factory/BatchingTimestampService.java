@@ -0,0 +1,84 @@
+/**
+ * Copyright 2015 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.factory;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.google.common.base.Preconditions;
+import com.palantir.common.base.Throwables;
+import com.palantir.common.concurrent.GroupCommitter;
+import com.palantir.common.concurrent.GroupCommitter.Request;
+import com.palantir.timestamp.TimestampRange;
+import com.palantir.timestamp.TimestampService;
+
+/**
+ * A client-side {@link TimestampService} that combines concurrent {@link #getFreshTimestamp()}
+ * calls into a single {@link TimestampService#getFreshTimestamps(int)} request.
+ * <p>
+ * Callers are batched by a {@link GroupCommitter}, so there is at most one outstanding request per
+ * client: whoever leads a batch asks the delegate for as many timestamps as there are callers in it
+ * and hands the returned range out among them in the order they arrived.  If the delegate returns
+ * fewer timestamps than asked for, the rest of the batch is served by further requests.  A failed
+ * request fails every caller in the batch that it had not yet served.
+ * <p>
+ * Every caller is queued before the request that serves it is sent, so each timestamp handed out
+ * is still fresh with respect to the moment {@link #getFreshTimestamp()} was called.
+ */
+@ThreadSafe
+final class BatchingTimestampService implements TimestampService {
+    // The timestamp server hands out at most this many timestamps per request.
+    private static final int MAX_BATCH_SIZE = 10 * 1000;
+
+    private final TimestampService delegate;
+    private final GroupCommitter<Void, Long> committer;
+
+    BatchingTimestampService(TimestampService delegate) {
+        this.delegate = Preconditions.checkNotNull(delegate);
+        this.committer = GroupCommitter.create(new GroupCommitter.BatchHandler<Void, Long>() {
+            @Override
+            public void handle(List<Request<Void, Long>> batch) {
+                fetchBatch(batch);
+            }
+        }, MAX_BATCH_SIZE);
+    }
+
+    @Override
+    public long getFreshTimestamp() {
+        try {
+            return committer.submit(null);
+        } catch (ExecutionException e) {
+            throw Throwables.throwUncheckedException(e.getCause());
+        }
+    }
+
+    @Override
+    public TimestampRange getFreshTimestamps(int numTimestampsRequested) {
+        return delegate.getFreshTimestamps(numTimestampsRequested);
+    }
+
+    private void fetchBatch(List<Request<Void, Long>> batch) {
+        int served = 0;
+        while (served < batch.size()) {
+            TimestampRange range = delegate.getFreshTimestamps(batch.size() - served);
+            for (long next = range.getLowerBound(); next <= range.getUpperBound() && served < batch.size(); next++) {
+                batch.get(served++).complete(next);
+            }
+        }
+    }
+}
@@ -68,7 +68,8 @@ public class Leaders {
 
         ExecutorService executor = Executors.newCachedThreadPool();
 
-        PaxosProposer proposer = PaxosProposerImpl.newProposer(
+        // The leader keeps a standing promise, so rounds it proposes while still leading skip phase one.
+        PaxosProposer proposer = PaxosProposerImpl.newMultiPaxosProposer(
                 ourLearner,
                 acceptors,
                 learners,
@@ -102,7 +102,7 @@ public class TransactionManagers {
 
         LockClient lockClient = LockClient.of("atlas instance");
 
-        TransactionService transactionService = TransactionServices.createTransactionService(kvs);
+        TransactionService transactionService = TransactionServices.createGroupCommitTransactionService(kvs);
         ConflictDetectionManager conflictManager = ConflictDetectionManagers.createDefault(kvs);
         SweepStrategyManager sweepStrategyManager = SweepStrategyManagers.createDefault(kvs);
 
@@ -157,15 +157,15 @@ public class TransactionManagers {
             warnIf(config.timestamp().isPresent(), "Ignoring timestamp server configuration because leadership election is enabled");
 
             return ImmutableLockAndTimestampServices.builder()
-                    .lock(createService(sslSocketFactory, config.leader().get().leaders(), RemoteLockService.class))
-                    .time(createService(sslSocketFactory, config.leader().get().leaders(), TimestampService.class))
+                    .lock(createLockClient(sslSocketFactory, config.leader().get().leaders()))
+                    .time(createTimestampClient(sslSocketFactory, config.leader().get().leaders()))
                     .build();
         } else {
             warnIf(config.lock().isPresent() != config.timestamp().isPresent(), "Using embedded instances for one (but not both) of lock and timestamp services");
 
             return ImmutableLockAndTimestampServices.builder()
-                    .lock(config.lock().transform(new ServiceCreator<>(sslSocketFactory, RemoteLockService.class)).or(lock))
-                    .time(config.timestamp().transform(new ServiceCreator<>(sslSocketFactory, TimestampService.class)).or(time))
+                    .lock(config.lock().transform(new LockClientCreator(sslSocketFactory)).or(lock))
+                    .time(config.timestamp().transform(new TimestampClientCreator(sslSocketFactory)).or(time))
                     .build();
         }
     }
@@ -180,18 +180,45 @@ public class TransactionManagers {
         return AtlasDbHttpClients.createProxyWithFailover(sslSocketFactory, uris, serviceClass);
     }
 
-    private static class ServiceCreator<T> implements Function<ServerListConfig, T> {
+    /**
+     * Remote timestamp clients batch concurrent requests so that a busy client makes roughly one
+     * round trip to the timestamp server at a time rather than one per transaction.
+     */
+    private static TimestampService createTimestampClient(Optional<SSLSocketFactory> sslSocketFactory, Set<String> uris) {
+        return new BatchingTimestampService(createService(sslSocketFactory, uris, TimestampService.class));
+    }
+
+    /**
+     * Remote lock clients fall back to lock-and-release requests when talking to servers that
+     * predate {@link RemoteLockService#waitForLocks}, so clients can be upgraded before servers.
+     */
+    private static RemoteLockService createLockClient(Optional<SSLSocketFactory> sslSocketFactory, Set<String> uris) {
+        return new WaitForLocksFallbackLockService(createService(sslSocketFactory, uris, RemoteLockService.class));
+    }
+
+    private static class LockClientCreator implements Function<ServerListConfig, RemoteLockService> {
+        private Optional<SSLSocketFactory> sslSocketFactory;
+
+        public LockClientCreator(Optional<SSLSocketFactory> sslSocketFactory) {
+            this.sslSocketFactory = sslSocketFactory;
+        }
+
+        @Override
+        public RemoteLockService apply(ServerListConfig input) {
+            return createLockClient(sslSocketFactory, input.servers());
+        }
+    }
+
+    private static class TimestampClientCreator implements Function<ServerListConfig, TimestampService> {
         private Optional<SSLSocketFactory> sslSocketFactory;
-        private Class<T> serviceClass;
 
-        public ServiceCreator(Optional<SSLSocketFactory> sslSocketFactory, Class<T> serviceClass) {
+        public TimestampClientCreator(Optional<SSLSocketFactory> sslSocketFactory) {
             this.sslSocketFactory = sslSocketFactory;
-            this.serviceClass = serviceClass;
         }
 
         @Override
-        public T apply(ServerListConfig input) {
-            return createService(sslSocketFactory, input.servers(), serviceClass);
+        public TimestampService apply(ServerListConfig input) {
+            return createTimestampClient(sslSocketFactory, input.servers());
         }
     }
 
@@ -0,0 +1,84 @@
+/**
+ * Copyright 2015 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.factory;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSortedMap;
+import com.palantir.atlasdb.http.EndpointNotFoundException;
+import com.palantir.lock.ForwardingRemoteLockService;
+import com.palantir.lock.LockDescriptor;
+import com.palantir.lock.LockMode;
+import com.palantir.lock.LockRequest;
+import com.palantir.lock.RemoteLockService;
+
+/**
+ * A remote lock client that keeps working against lock servers that predate
+ * {@link RemoteLockService#waitForLocks(Set)}.
+ * <p>
+ * During a rolling upgrade an older server answers the new endpoint with a 404.  When that
+ * happens we wait the old way, by taking and immediately releasing a READ lock on each
+ * descriptor, and keep doing so for a while before trying the new endpoint again.
+ */
+@ThreadSafe
+final class WaitForLocksFallbackLockService extends ForwardingRemoteLockService {
+    private static final Logger log = LoggerFactory.getLogger(WaitForLocksFallbackLockService.class);
+    private static final long RECHECK_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final RemoteLockService delegate;
+    private volatile long fallBackUntilMillis = 0L;
+
+    WaitForLocksFallbackLockService(RemoteLockService delegate) {
+        this.delegate = Preconditions.checkNotNull(delegate);
+    }
+
+    @Override
+    protected RemoteLockService delegate() {
+        return delegate;
+    }
+
+    @Override
+    public void waitForLocks(Set<LockDescriptor> lockDescriptors) throws InterruptedException {
+        if (System.currentTimeMillis() >= fallBackUntilMillis) {
+            try {
+                delegate.waitForLocks(lockDescriptors);
+                return;
+            } catch (EndpointNotFoundException e) {
+                log.info("Lock server does not support waitForLocks; falling back to lock-and-release requests.", e);
+                fallBackUntilMillis = System.currentTimeMillis() + RECHECK_INTERVAL_MILLIS;
+            }
+        }
+        lockAndRelease(lockDescriptors);
+    }
+
+    private void lockAndRelease(Set<LockDescriptor> lockDescriptors) throws InterruptedException {
+        if (lockDescriptors.isEmpty()) {
+            return;
+        }
+        ImmutableSortedMap.Builder<LockDescriptor, LockMode> builder = ImmutableSortedMap.naturalOrder();
+        for (LockDescriptor descriptor : lockDescriptors) {
+            builder.put(descriptor, LockMode.READ);
+        }
+        delegate.lockAnonymously(LockRequest.builder(builder.build()).lockAndRelease().build());
+    }
+}
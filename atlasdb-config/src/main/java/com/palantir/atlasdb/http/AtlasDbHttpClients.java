@@ -27,9 +27,11 @@ import com.google.common.collect.Lists;
 import feign.Client;
 import feign.Contract;
 import feign.Feign;
+import feign.Response;
 import feign.Target;
 import feign.codec.Decoder;
 import feign.codec.Encoder;
+import feign.codec.ErrorDecoder;
 import feign.jackson.JacksonDecoder;
 import feign.jackson.JacksonEncoder;
 import feign.jaxrs.JAXRSContract;
@@ -41,6 +43,7 @@ public class AtlasDbHttpClients {
     private static final Contract contract = new JAXRSContract();
     private static final Encoder encoder = new JacksonEncoder(mapper);
     private static final Decoder decoder = new TextDelegateDecoder(new JacksonDecoder(mapper));
+    private static final ErrorDecoder errorDecoder = new NotFoundErrorDecoder();
     
     /**
      * Constructs a dynamic proxy for the specified type, using the supplied SSL factory if is present, and feign {@link
@@ -51,6 +54,7 @@ public class AtlasDbHttpClients {
                 .contract(contract)
                 .encoder(encoder)
                 .decoder(decoder)
+                .errorDecoder(errorDecoder)
                 .client(newOkHttpClient(sslSocketFactory))
                 .target(type, uri);
     }
@@ -59,7 +63,13 @@ public class AtlasDbHttpClients {
      * Constructs a dynamic proxy for the specified target, using the provided client.
      */
     public static <T> T createProxy(Client client, Target<T> target) {
-        return Feign.builder().contract(contract).encoder(encoder).decoder(decoder).client(client).target(target);
+        return Feign.builder()
+                .contract(contract)
+                .encoder(encoder)
+                .decoder(decoder)
+                .errorDecoder(errorDecoder)
+                .client(client)
+                .target(target);
     }
 
     /**
@@ -99,4 +109,20 @@ public class AtlasDbHttpClients {
         return new OkHttpClient(client);
     }
     
+    /**
+     * Surfaces 404 responses as {@link EndpointNotFoundException} so that clients can tell an
+     * endpoint the server does not have apart from other failures.
+     */
+    private static class NotFoundErrorDecoder implements ErrorDecoder {
+        private final ErrorDecoder delegate = new ErrorDecoder.Default();
+
+        @Override
+        public Exception decode(String methodKey, Response response) {
+            Exception e = delegate.decode(methodKey, response);
+            if (response.status() == 404) {
+                return new EndpointNotFoundException(e.getMessage(), e);
+            }
+            return e;
+        }
+    }
 }
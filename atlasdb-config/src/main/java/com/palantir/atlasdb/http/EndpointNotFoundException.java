@@ -0,0 +1,31 @@
+/**
+ * Copyright 2015 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.http;
+
+import feign.FeignException;
+
+/**
+ * Thrown by AtlasDB HTTP clients when the server answers 404 Not Found, which usually means the
+ * server is running an older version that does not have the endpoint yet (e.g. during a rolling
+ * upgrade). Callers can catch this to fall back to an older protocol.
+ */
+public class EndpointNotFoundException extends FeignException {
+    private static final long serialVersionUID = 1L;
+
+    public EndpointNotFoundException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,186 @@
+/**
+ * Copyright 2015 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.factory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.palantir.timestamp.InMemoryTimestampService;
+import com.palantir.timestamp.TimestampRange;
+import com.palantir.timestamp.TimestampService;
+
+public class BatchingTimestampServiceTest {
+    private static final int NUM_THREADS = 16;
+    private static final int REQUESTS_PER_THREAD = 200;
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(NUM_THREADS);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testConcurrentCallersShareRequests() throws Exception {
+        final AtomicInteger delegateCalls = new AtomicInteger();
+        final TimestampService delegate = new InMemoryTimestampService();
+        TimestampService slowDelegate = new ForwardingTimestampService(delegate) {
+            @Override
+            public TimestampRange getFreshTimestamps(int numTimestampsRequested) {
+                delegateCalls.incrementAndGet();
+                Uninterruptibles.sleepUninterruptibly(1, TimeUnit.MILLISECONDS);
+                return super.getFreshTimestamps(numTimestampsRequested);
+            }
+        };
+        Set<Long> timestamps = runConcurrently(new BatchingTimestampService(slowDelegate));
+        assertEquals(NUM_THREADS * REQUESTS_PER_THREAD, timestamps.size());
+        assertTrue("expected fewer requests than callers but made " + delegateCalls.get(),
+                delegateCalls.get() < NUM_THREADS * REQUESTS_PER_THREAD);
+    }
+
+    @Test
+    public void testShortRangesServeTheWholeBatch() throws Exception {
+        TimestampService stingyDelegate = new ForwardingTimestampService(new InMemoryTimestampService()) {
+            @Override
+            public TimestampRange getFreshTimestamps(int numTimestampsRequested) {
+                return super.getFreshTimestamps(Math.min(numTimestampsRequested, 3));
+            }
+        };
+        Set<Long> timestamps = runConcurrently(new BatchingTimestampService(stingyDelegate));
+        assertEquals(NUM_THREADS * REQUESTS_PER_THREAD, timestamps.size());
+    }
+
+    @Test
+    public void testFailureReachesEveryCallerInTheBatch() throws Exception {
+        final RuntimeException failure = new RuntimeException("timestamp server unavailable");
+        final TimestampService service = new BatchingTimestampService(new ForwardingTimestampService(null) {
+            @Override
+            public TimestampRange getFreshTimestamps(int numTimestampsRequested) {
+                Uninterruptibles.sleepUninterruptibly(1, TimeUnit.MILLISECONDS);
+                throw failure;
+            }
+        });
+        List<Future<Long>> futures = Lists.newArrayList();
+        for (int i = 0; i < NUM_THREADS; i++) {
+            futures.add(executor.submit(new Callable<Long>() {
+                @Override
+                public Long call() {
+                    return service.getFreshTimestamp();
+                }
+            }));
+        }
+        for (Future<Long> future : futures) {
+            try {
+                future.get(10, TimeUnit.SECONDS);
+                throw new AssertionError("Expected the delegate's failure");
+            } catch (ExecutionException e) {
+                assertSame(failure, e.getCause());
+            }
+        }
+    }
+
+    @Test
+    public void testFailureOnlyAffectsItsOwnBatch() {
+        final AtomicInteger calls = new AtomicInteger();
+        TimestampService service = new BatchingTimestampService(
+                new ForwardingTimestampService(new InMemoryTimestampService()) {
+                    @Override
+                    public TimestampRange getFreshTimestamps(int numTimestampsRequested) {
+                        if (calls.getAndIncrement() == 0) {
+                            throw new IllegalStateException("first request fails");
+                        }
+                        return super.getFreshTimestamps(numTimestampsRequested);
+                    }
+                });
+        try {
+            service.getFreshTimestamp();
+            throw new AssertionError("Expected the first request to fail");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        assertEquals(1L, service.getFreshTimestamp());
+    }
+
+    /**
+     * Runs getFreshTimestamp from many threads, checks that each thread sees increasing
+     * timestamps, and returns every timestamp handed out.
+     */
+    private Set<Long> runConcurrently(final TimestampService service) throws Exception {
+        final Set<Long> timestamps = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+        List<Future<Void>> futures = Lists.newArrayList();
+        for (int i = 0; i < NUM_THREADS; i++) {
+            futures.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    long last = 0;
+                    for (int j = 0; j < REQUESTS_PER_THREAD; j++) {
+                        long ts = service.getFreshTimestamp();
+                        assertTrue("timestamps went backwards: " + last + " then " + ts, ts > last);
+                        assertTrue("timestamp handed out twice: " + ts, timestamps.add(ts));
+                        last = ts;
+                    }
+                    return null;
+                }
+            }));
+        }
+        for (Future<Void> future : futures) {
+            future.get();
+        }
+        return timestamps;
+    }
+
+    private static class ForwardingTimestampService implements TimestampService {
+        private final TimestampService delegate;
+
+        ForwardingTimestampService(TimestampService delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public long getFreshTimestamp() {
+            return delegate.getFreshTimestamp();
+        }
+
+        @Override
+        public TimestampRange getFreshTimestamps(int numTimestampsRequested) {
+            return delegate.getFreshTimestamps(numTimestampsRequested);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/**
+ * Copyright 2015 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.factory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedMap;
+import com.palantir.atlasdb.http.EndpointNotFoundException;
+import com.palantir.lock.ForwardingRemoteLockService;
+import com.palantir.lock.LockDescriptor;
+import com.palantir.lock.LockMode;
+import com.palantir.lock.LockRefreshToken;
+import com.palantir.lock.LockRequest;
+import com.palantir.lock.RemoteLockService;
+import com.palantir.lock.StringLockDescriptor;
+import com.palantir.lock.impl.LockServiceImpl;
+
+public class WaitForLocksFallbackLockServiceTest {
+    private static final LockDescriptor LOCK = StringLockDescriptor.of("lock");
+
+    private LockServiceImpl server;
+    private ExecutorService executor;
+    private final AtomicInteger waitForLocksCalls = new AtomicInteger();
+    private final AtomicInteger lockAnonymouslyCalls = new AtomicInteger();
+
+    @Before
+    public void setUp() {
+        server = LockServiceImpl.create();
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        server.close();
+    }
+
+    @Test
+    public void testUsesWaitForLocksWhenServerSupportsIt() throws Exception {
+        RemoteLockService client = new WaitForLocksFallbackLockService(countingClient(false));
+        client.waitForLocks(ImmutableSet.of(LOCK));
+        client.waitForLocks(ImmutableSet.of(LOCK));
+        assertEquals(2, waitForLocksCalls.get());
+        assertEquals(0, lockAnonymouslyCalls.get());
+    }
+
+    @Test
+    public void testFallsBackToLockAndReleaseOnOldServer() throws Exception {
+        final RemoteLockService client = new WaitForLocksFallbackLockService(countingClient(true));
+        LockRefreshToken writeLock = server.lockWithClient("committer", LockRequest.builder(
+                ImmutableSortedMap.of(LOCK, LockMode.WRITE)).build());
+        assertNotNull(writeLock);
+
+        Future<?> waiter = executor.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                client.waitForLocks(ImmutableSet.of(LOCK));
+                return null;
+            }
+        });
+        try {
+            waiter.get(100, TimeUnit.MILLISECONDS);
+            throw new AssertionError("waitForLocks returned while the write lock was held");
+        } catch (TimeoutException expected) {
+            // still waiting
+        }
+        server.unlock(writeLock);
+        waiter.get(10, TimeUnit.SECONDS);
+        assertEquals(1, waitForLocksCalls.get());
+        assertEquals(1, lockAnonymouslyCalls.get());
+
+        // The missing endpoint is remembered rather than tried on every call.
+        client.waitForLocks(ImmutableSet.of(LOCK));
+        assertEquals(1, waitForLocksCalls.get());
+        assertEquals(2, lockAnonymouslyCalls.get());
+    }
+
+    private RemoteLockService countingClient(final boolean missingWaitForLocks) {
+        return new ForwardingRemoteLockService() {
+            @Override
+            protected RemoteLockService delegate() {
+                return server;
+            }
+
+            @Override
+            public LockRefreshToken lockAnonymously(LockRequest request) throws InterruptedException {
+                lockAnonymouslyCalls.incrementAndGet();
+                return super.lockAnonymously(request);
+            }
+
+            @Override
+            public void waitForLocks(Set<LockDescriptor> lockDescriptors) throws InterruptedException {
+                waitForLocksCalls.incrementAndGet();
+                if (missingWaitForLocks) {
+                    throw new EndpointNotFoundException("status 404 reading RemoteLockService#waitForLocks", null);
+                }
+                super.waitForLocks(lockDescriptors);
+            }
+        };
+    }
+}
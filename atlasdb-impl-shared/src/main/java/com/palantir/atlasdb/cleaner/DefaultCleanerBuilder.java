@@ -91,7 +91,8 @@ public class DefaultCleanerBuilder {
 
     public Cleaner buildCleaner() {
         Puncher puncher = buildPuncher();
-        Supplier<Long> immutableTs = ImmutableTimestampSupplier.createMemoizedWithExpiration(lockService, timestampService, lockClient);
+        // The scrubber keeps both timestamps in watermarks, which share reads between callers.
+        Supplier<Long> immutableTs = ImmutableTimestampSupplier.create(lockService, timestampService, lockClient);
         Scrubber scrubber = buildScrubber(puncher.getTimestampSupplier(), immutableTs);
         return new SimpleCleaner(scrubber, puncher, readTimeoutSupplier);
     }
@@ -34,6 +34,16 @@ import com.palantir.timestamp.TimestampService;
 public class ImmutableTimestampSupplier implements Supplier<Long> {
     private static final long RELOAD_INTERVAL_MILLIS = 1000L;
 
+    /**
+     * Reads the immutable timestamp on every call; wrap it in a {@link TimestampWatermark} to
+     * share reads.
+     */
+    public static Supplier<Long> create(RemoteLockService lockService,
+                                        TimestampService timestampService,
+                                        LockClient lockClient) {
+        return new ImmutableTimestampSupplier(lockService, timestampService, lockClient);
+    }
+
     public static Supplier<Long> createMemoizedWithExpiration(RemoteLockService lockService,
                                                               TimestampService timestampService,
                                                               LockClient lockClient) {
@@ -15,6 +15,10 @@
  */
 package com.palantir.atlasdb.cleaner;
 
+import java.util.Arrays;
+
+import javax.annotation.concurrent.GuardedBy;
+
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.palantir.atlasdb.AtlasDbConstants;
@@ -37,11 +41,21 @@ import com.palantir.common.base.ClosableIterator;
 
 /**
  * A PuncherStore implemented as a table in the KeyValueService.
+ * <p>
+ * The recent history of the table is kept in memory as sorted arrays of times and timestamps, so
+ * most lookups do not read the table.  The history is complete between {@link #loadedFromMillis}
+ * and {@link #loadedThroughMillis}; a lookup for a later time first reads the rows punched since,
+ * by this or any other client, and a lookup for an earlier time reads the table as before.
+ * Another client's punch for a time that has already been loaded is missed, which can only make a
+ * lookup return an earlier timestamp than the table would.
  *
  * @author jweel
  */
 public class KeyValueServicePuncherStore implements PuncherStore {
     private static final byte[] COLUMN = "t".getBytes();
+    private static final int LOAD_BATCH_SIZE = 1000;
+    // About six weeks of punches from one client punching every minute.
+    private static final int MAX_INDEXED_PUNCHES = 1 << 16;
 
     public static KeyValueServicePuncherStore create(KeyValueService keyValueService) {
         keyValueService.createTable(AtlasDbConstants.PUNCH_TABLE, EncodingUtils.sizeOfUnsignedVarLong(Long.MAX_VALUE));
@@ -55,6 +69,16 @@ public class KeyValueServicePuncherStore implements PuncherStore {
 
     private final KeyValueService keyValueService;
 
+    // Held while reading the table into the index, so that loads happen one at a time.
+    private final Object loadLock = new Object();
+
+    @GuardedBy("this") private long[] times = new long[64];
+    @GuardedBy("this") private long[] timestamps = new long[64];
+    @GuardedBy("this") private int size = 0;
+    @GuardedBy("this") private boolean loaded = false;
+    @GuardedBy("this") private long loadedFromMillis;
+    @GuardedBy("this") private long loadedThroughMillis;
+
     private KeyValueServicePuncherStore(KeyValueService keyValueService) {
         this.keyValueService = keyValueService;
     }
@@ -66,14 +90,93 @@ public class KeyValueServicePuncherStore implements PuncherStore {
         Cell cell = Cell.create(row, COLUMN);
         byte[] value = EncodingUtils.encodeUnsignedVarLong(timestamp);
         keyValueService.put(AtlasDbConstants.PUNCH_TABLE, ImmutableMap.of(cell, value), timestamp);
+        synchronized (this) {
+            insert(timeMillis, timestamp);
+        }
     }
 
     @Override
     public Long get(Long timeMillis) {
-        byte[] row = EncodingUtils.encodeUnsignedVarLong(timeMillis);
-        EncodingUtils.flipAllBitsInPlace(row);
+        if (!isLoadedThrough(timeMillis)) {
+            load(timeMillis);
+        }
+        synchronized (this) {
+            int index = floorIndex(timeMillis);
+            if (index >= 0 && times[index] >= loadedFromMillis) {
+                return timestamps[index];
+            }
+            if (loadedFromMillis == Long.MIN_VALUE) {
+                return Long.MIN_VALUE;
+            }
+        }
+        // Older than the history we keep.
+        return getFromTable(timeMillis);
+    }
+
+    private synchronized boolean isLoadedThrough(long timeMillis) {
+        return loaded && timeMillis <= loadedThroughMillis;
+    }
+
+    /**
+     * Reads the rows of the table from timeMillis back to the history we already have, or on the
+     * first load back to the start of the table or until the index is full.
+     */
+    private void load(long timeMillis) {
+        synchronized (loadLock) {
+            boolean firstLoad;
+            long stopAtMillis;
+            synchronized (this) {
+                if (loaded && timeMillis <= loadedThroughMillis) {
+                    return;
+                }
+                firstLoad = !loaded;
+                stopAtMillis = loaded ? loadedThroughMillis : Long.MIN_VALUE;
+            }
+            int rowsLoaded = 0;
+            long oldestLoadedMillis = timeMillis;
+            boolean reachedStop = false;
+            ClosableIterator<RowResult<Value>> rows = keyValueService.getRange(
+                    AtlasDbConstants.PUNCH_TABLE,
+                    RangeRequest.builder().startRowInclusive(encodeRow(timeMillis)).batchHint(LOAD_BATCH_SIZE).build(),
+                    Long.MAX_VALUE);
+            try {
+                while (true) {
+                    if (!rows.hasNext()) {
+                        reachedStop = true;
+                        break;
+                    }
+                    RowResult<Value> row = rows.next();
+                    long rowMillis = EncodingUtils.decodeUnsignedVarLong(EncodingUtils.flipAllBits(row.getRowName()));
+                    if (rowMillis <= stopAtMillis) {
+                        reachedStop = true;
+                        break;
+                    }
+                    if (firstLoad && rowsLoaded == MAX_INDEXED_PUNCHES / 2) {
+                        break;
+                    }
+                    long timestamp = EncodingUtils.decodeUnsignedVarLong(row.getColumns().get(COLUMN).getContents());
+                    synchronized (this) {
+                        insert(rowMillis, timestamp);
+                    }
+                    rowsLoaded++;
+                    oldestLoadedMillis = rowMillis;
+                }
+            } finally {
+                rows.close();
+            }
+            synchronized (this) {
+                if (firstLoad) {
+                    loadedFromMillis = reachedStop ? Long.MIN_VALUE : oldestLoadedMillis;
+                    loaded = true;
+                }
+                loadedThroughMillis = Math.max(loadedThroughMillis, timeMillis);
+            }
+        }
+    }
+
+    private Long getFromTable(long timeMillis) {
         RangeRequest rangeRequest =
-                RangeRequest.builder().startRowInclusive(row).batchHint(1).build();
+                RangeRequest.builder().startRowInclusive(encodeRow(timeMillis)).batchHint(1).build();
         ClosableIterator<RowResult<Value>> result =
                 keyValueService.getRange(AtlasDbConstants.PUNCH_TABLE, rangeRequest, Long.MAX_VALUE);
         try {
@@ -86,4 +189,56 @@ public class KeyValueServicePuncherStore implements PuncherStore {
             result.close();
         }
     }
+
+    private static byte[] encodeRow(long timeMillis) {
+        byte[] row = EncodingUtils.encodeUnsignedVarLong(timeMillis);
+        EncodingUtils.flipAllBitsInPlace(row);
+        return row;
+    }
+
+    /**
+     * @return the index of the latest time at or before timeMillis, or -1 if there is none
+     */
+    @GuardedBy("this")
+    private int floorIndex(long timeMillis) {
+        int index = Arrays.binarySearch(times, 0, size, timeMillis);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    @GuardedBy("this")
+    private void insert(long timeMillis, long timestamp) {
+        int index = Arrays.binarySearch(times, 0, size, timeMillis);
+        if (index >= 0) {
+            // The table keeps the value written at the highest timestamp, which is the higher value.
+            timestamps[index] = Math.max(timestamps[index], timestamp);
+            return;
+        }
+        index = -index - 1;
+        if (size == times.length) {
+            if (size >= MAX_INDEXED_PUNCHES) {
+                index = Math.max(index - dropOldestHalf(), 0);
+            } else {
+                times = Arrays.copyOf(times, size * 2);
+                timestamps = Arrays.copyOf(timestamps, size * 2);
+            }
+        }
+        System.arraycopy(times, index, times, index + 1, size - index);
+        System.arraycopy(timestamps, index, timestamps, index + 1, size - index);
+        times[index] = timeMillis;
+        timestamps[index] = timestamp;
+        size++;
+    }
+
+    /**
+     * @return the number of punches dropped
+     */
+    @GuardedBy("this")
+    private int dropOldestHalf() {
+        int dropped = size / 2;
+        System.arraycopy(times, dropped, times, 0, size - dropped);
+        System.arraycopy(timestamps, dropped, timestamps, 0, size - dropped);
+        size -= dropped;
+        loadedFromMillis = Math.max(loadedFromMillis, times[0]);
+        return dropped;
+    }
 }
@@ -44,7 +44,6 @@ import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
 import com.google.common.collect.Sets;
 import com.google.common.util.concurrent.Futures;
-import com.palantir.atlasdb.AtlasDbConstants;
 import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
@@ -74,6 +73,7 @@ public final class Scrubber {
     private static final int AGGRESSIVE_SCRUB_FREQUENCY_IN_MILLIS = 5 * 60 * 1000; // 5 min
     private static final int MAX_RETRY_ATTEMPTS = 100;
     private static final int RETRY_SLEEP_INTERVAL_IN_MILLIS = 1000;
+    private static final long WATERMARK_REFRESH_INTERVAL_MILLIS = 100;
 
     private final ScheduledExecutorService service = PTExecutors.newSingleThreadScheduledExecutor(
             new NamedThreadFactory("scrubber", true /* daemon */));
@@ -83,8 +83,8 @@ public final class Scrubber {
     private final ScrubberStore scrubberStore;
     private final Supplier<Long> backgroundScrubFrequencyMillisSupplier;
 
-    private final Supplier<Long> immutableTimestampSupplier;
-    private final Supplier<Long> unreadableTimestampSupplier;
+    private final TimestampWatermark immutableTimestampWatermark;
+    private final TimestampWatermark unreadableTimestampWatermark;
     private final TransactionService transactionService;
     private final Collection<Follower> followers;
     private final boolean aggressiveScrub;
@@ -113,12 +113,38 @@ public final class Scrubber {
                                   Supplier<Integer> batchSizeSupplier,
                                   int threadCount,
                                   Collection<Follower> followers) {
+        return create(
+                keyValueService,
+                scrubberStore,
+                backgroundScrubFrequencyMillisSupplier,
+                TimestampWatermark.create("unreadable", unreadableTimestampSupplier, WATERMARK_REFRESH_INTERVAL_MILLIS),
+                TimestampWatermark.create("immutable", immutableTimestampSupplier, WATERMARK_REFRESH_INTERVAL_MILLIS),
+                transactionService,
+                aggressiveScrub,
+                batchSizeSupplier,
+                threadCount,
+                followers);
+    }
+
+    /**
+     * The scrubber shuts the watermarks down when it is shut down.
+     */
+    public static Scrubber create(KeyValueService keyValueService,
+                                  ScrubberStore scrubberStore,
+                                  Supplier<Long> backgroundScrubFrequencyMillisSupplier,
+                                  TimestampWatermark unreadableTimestampWatermark,
+                                  TimestampWatermark immutableTimestampWatermark,
+                                  TransactionService transactionService,
+                                  boolean aggressiveScrub,
+                                  Supplier<Integer> batchSizeSupplier,
+                                  int threadCount,
+                                  Collection<Follower> followers) {
         Scrubber scrubber = new Scrubber(
                 keyValueService,
                 scrubberStore,
                 backgroundScrubFrequencyMillisSupplier,
-                unreadableTimestampSupplier,
-                immutableTimestampSupplier,
+                unreadableTimestampWatermark,
+                immutableTimestampWatermark,
                 transactionService,
                 aggressiveScrub,
                 batchSizeSupplier,
@@ -130,8 +156,8 @@ public final class Scrubber {
     private Scrubber(KeyValueService keyValueService,
                      ScrubberStore scrubberStore,
                      Supplier<Long> backgroundScrubFrequencyMillisSupplier,
-                     Supplier<Long> unreadableTimestampSupplier,
-                     Supplier<Long> immutableTimestampSupplier,
+                     TimestampWatermark unreadableTimestampWatermark,
+                     TimestampWatermark immutableTimestampWatermark,
                      TransactionService transactionService,
                      final boolean aggressiveScrub,
                      Supplier<Integer> batchSizeSupplier,
@@ -140,8 +166,8 @@ public final class Scrubber {
         this.keyValueService = keyValueService;
         this.scrubberStore = scrubberStore;
         this.backgroundScrubFrequencyMillisSupplier = backgroundScrubFrequencyMillisSupplier;
-        this.immutableTimestampSupplier = immutableTimestampSupplier;
-        this.unreadableTimestampSupplier = unreadableTimestampSupplier;
+        this.immutableTimestampWatermark = immutableTimestampWatermark;
+        this.unreadableTimestampWatermark = unreadableTimestampWatermark;
         this.transactionService = transactionService;
         this.aggressiveScrub = aggressiveScrub;
         this.batchSizeSupplier = batchSizeSupplier;
@@ -176,8 +202,8 @@ public final class Scrubber {
                             // the hard delete transaction (forcing it to abort or retry).  Note that this doesn't affect
                             // correctness, but could be an annoying edge cause that causes hard delete to take longer
                             // than it otherwise would have.
-                            Long immutableTimestamp = immutableTimestampSupplier.get();
-                            Long unreadableTimestamp = unreadableTimestampSupplier.get();
+                            long immutableTimestamp = immutableTimestampWatermark.get();
+                            long unreadableTimestamp = unreadableTimestampWatermark.get();
                             final long maxScrubTimestamp = aggressiveScrub ? immutableTimestamp :
                                     Math.min(unreadableTimestamp, immutableTimestamp);
                             if (log.isInfoEnabled()) {
@@ -234,18 +260,34 @@ public final class Scrubber {
         // the same cells as the current thread (since these cells were queued for scrubbing right before
         // the hard delete transaction committed; while this is unfortunate (because it means we will be
         // doing more work than necessary), the behavior is still correct
-        long nextImmutableTimestamp;
-        while ((nextImmutableTimestamp = immutableTimestampSupplier.get()) < commitTimestamp) {
-            try {
-                if (log.isInfoEnabled()) {
-                    log.info(String.format(
-                            "Sleeping because immutable timestamp %d has not advanced to at least commit timestamp %d",
-                            nextImmutableTimestamp,
-                            commitTimestamp));
+        // The hard delete transaction has just released its lock, so read the immutable timestamp
+        // again rather than relying on the last value read.
+        long immutableTimestamp = immutableTimestampWatermark.refresh();
+        if (immutableTimestamp < commitTimestamp) {
+            if (log.isInfoEnabled()) {
+                log.info(String.format(
+                        "Waiting because immutable timestamp %d has not advanced to at least commit timestamp %d",
+                        immutableTimestamp,
+                        commitTimestamp));
+            }
+            boolean interrupted = false;
+            while (immutableTimestamp < commitTimestamp) {
+                try {
+                    immutableTimestamp = immutableTimestampWatermark.await(
+                            commitTimestamp,
+                            WATERMARK_REFRESH_INTERVAL_MILLIS,
+                            TimeUnit.MILLISECONDS);
+                    if (immutableTimestamp < commitTimestamp) {
+                        // Don't depend on the background refresh alone to move the watermark.
+                        immutableTimestamp = immutableTimestampWatermark.refresh();
+                    }
+                } catch (InterruptedException e) {
+                    log.error("Interrupted while waiting for immutableTimestamp to advance past commitTimestamp", e);
+                    interrupted = true;
                 }
-                Thread.sleep(AtlasDbConstants.SCRUBBER_RETRY_DELAY_MILLIS);
-            } catch (InterruptedException e) {
-                log.error("Interrupted while waiting for immutableTimestamp to advance past commitTimestamp", e);
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
             }
         }
 
@@ -473,7 +515,7 @@ public final class Scrubber {
     }
 
     public long getUnreadableTimestamp() {
-        return unreadableTimestampSupplier.get();
+        return unreadableTimestampWatermark.get();
     }
 
     public void start(TransactionManager txManager) {
@@ -481,6 +523,8 @@ public final class Scrubber {
     }
 
     public void shutdown() {
+        immutableTimestampWatermark.shutdown();
+        unreadableTimestampWatermark.shutdown();
         service.shutdownNow();
         boolean shutdown = false;
         try {
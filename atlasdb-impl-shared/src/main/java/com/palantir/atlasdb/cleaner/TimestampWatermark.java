@@ -0,0 +1,228 @@
+/**
+ * Copyright 2015 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.cleaner;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
+import com.palantir.common.concurrent.NamedThreadFactory;
+import com.palantir.common.concurrent.PTExecutors;
+
+/**
+ * Tracks a timestamp that only moves forward, such as the immutable or the unreadable timestamp,
+ * so that callers can wait for it to pass a target or be told when it advances instead of each
+ * polling its source.
+ * <p>
+ * The source is read at most once per refresh interval by {@link #get()}.  While anyone is
+ * waiting in {@link #await(long)} or a listener is registered, a background thread also reads it
+ * every interval and wakes the waiters as soon as it has advanced far enough.  Anyone who learns
+ * of a newer value some other way can pass it to {@link #advance(long)}.  Once the watermark is
+ * shut down, nothing refreshes it in the background, and waiters are woken with an exception.
+ */
+@ThreadSafe
+public final class TimestampWatermark {
+    private static final Logger log = LoggerFactory.getLogger(TimestampWatermark.class);
+
+    public interface Listener {
+        /**
+         * Called each time the watermark advances, in order, from the thread that advanced it.
+         */
+        void watermarkAdvanced(long watermark);
+    }
+
+    public static TimestampWatermark create(String name, Supplier<Long> source, long refreshIntervalMillis) {
+        TimestampWatermark watermark = new TimestampWatermark(name, source, refreshIntervalMillis);
+        watermark.start();
+        return watermark;
+    }
+
+    private final String name;
+    private final Supplier<Long> source;
+    private final long refreshIntervalNanos;
+    private final ScheduledExecutorService refresher;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<Listener>();
+
+    @GuardedBy("this") private long watermark = Long.MIN_VALUE;
+    @GuardedBy("this") private long lastRefreshNanos;
+    @GuardedBy("this") private boolean refreshed = false;
+    @GuardedBy("this") private int waiters = 0;
+    @GuardedBy("this") private boolean shutdown = false;
+
+    // Held while calling listeners, so they see advances one at a time and in order.
+    private final Object listenerLock = new Object();
+    @GuardedBy("listenerLock") private long lastNotified = Long.MIN_VALUE;
+
+    private TimestampWatermark(String name, Supplier<Long> source, long refreshIntervalMillis) {
+        Preconditions.checkArgument(refreshIntervalMillis > 0, "refreshIntervalMillis must be positive");
+        this.name = name;
+        this.source = source;
+        this.refreshIntervalNanos = TimeUnit.MILLISECONDS.toNanos(refreshIntervalMillis);
+        this.refresher = PTExecutors.newSingleThreadScheduledExecutor(
+                new NamedThreadFactory(name + "-watermark", true /* daemon */));
+    }
+
+    private void start() {
+        long intervalMillis = TimeUnit.NANOSECONDS.toMillis(refreshIntervalNanos);
+        refresher.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (hasWaiters() || !listeners.isEmpty()) {
+                        refresh();
+                    }
+                } catch (Throwable t) { // (authorized)
+                    log.error("Failed to refresh the " + name + " watermark, will retry", t);
+                }
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return the watermark, reading the source first if it has not been read within the last
+     *         refresh interval
+     */
+    public long get() {
+        synchronized (this) {
+            if (refreshed && System.nanoTime() - lastRefreshNanos < refreshIntervalNanos) {
+                return watermark;
+            }
+        }
+        return refresh();
+    }
+
+    /**
+     * Reads the source now.
+     *
+     * @return the watermark afterwards
+     */
+    public long refresh() {
+        long value = source.get();
+        synchronized (this) {
+            lastRefreshNanos = System.nanoTime();
+            refreshed = true;
+        }
+        return advance(value);
+    }
+
+    /**
+     * Moves the watermark forward to value, if it is not already past it.
+     *
+     * @return the watermark afterwards
+     */
+    public long advance(long value) {
+        long current;
+        synchronized (this) {
+            if (value > watermark) {
+                watermark = value;
+                notifyAll();
+            }
+            current = watermark;
+        }
+        if (!listeners.isEmpty()) {
+            synchronized (listenerLock) {
+                if (current > lastNotified) {
+                    lastNotified = current;
+                    for (Listener listener : listeners) {
+                        listener.watermarkAdvanced(current);
+                    }
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Blocks until the watermark is at least target.
+     *
+     * @return the watermark, which is at least target
+     * @throws IllegalStateException if the watermark is shut down before it reaches target
+     */
+    public long await(long target) throws InterruptedException {
+        return await(target, Long.MAX_VALUE);
+    }
+
+    /**
+     * Blocks until the watermark is at least target or the timeout elapses.
+     *
+     * @return the watermark, which is less than target if the timeout elapsed
+     * @throws IllegalStateException if the watermark is shut down before it reaches target
+     */
+    public long await(long target, long timeout, TimeUnit unit) throws InterruptedException {
+        return await(target, unit.toNanos(timeout));
+    }
+
+    private long await(long target, long timeoutNanos) throws InterruptedException {
+        long current = get();
+        if (current >= target) {
+            return current;
+        }
+        long deadline = System.nanoTime() + timeoutNanos;
+        synchronized (this) {
+            waiters++;
+            try {
+                while (watermark < target) {
+                    Preconditions.checkState(!shutdown, "The %s watermark has been shut down.", name);
+                    if (timeoutNanos == Long.MAX_VALUE) {
+                        wait();
+                    } else {
+                        long remainingNanos = deadline - System.nanoTime();
+                        if (remainingNanos <= 0) {
+                            break;
+                        }
+                        TimeUnit.NANOSECONDS.timedWait(this, remainingNanos);
+                    }
+                }
+                return watermark;
+            } finally {
+                waiters--;
+            }
+        }
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    private synchronized boolean hasWaiters() {
+        return waiters > 0;
+    }
+
+    /**
+     * Stops refreshing the watermark in the background, and wakes anyone waiting for it, who will
+     * then throw.
+     */
+    public void shutdown() {
+        synchronized (this) {
+            shutdown = true;
+            notifyAll();
+        }
+        refresher.shutdownNow();
+    }
+}
@@ -15,8 +15,13 @@
  */
 package com.palantir.atlasdb.keyvalue.partition;
 
+import java.util.ArrayDeque;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
 import java.util.NavigableSet;
@@ -26,6 +31,7 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nullable;
 
@@ -36,9 +42,12 @@ import com.google.common.base.Function;
 import com.google.common.base.Functions;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
+import com.google.common.primitives.Longs;
 import com.google.common.primitives.UnsignedBytes;
 import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
@@ -49,6 +58,7 @@ import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
 import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.atlasdb.keyvalue.impl.KeyValueServices;
+import com.palantir.atlasdb.keyvalue.partition.QuorumParameters.QuorumRequestParameters;
 import com.palantir.atlasdb.keyvalue.partition.util.ClosablePeekingIterator;
 import com.palantir.atlasdb.keyvalue.partition.util.PartitionedRangedIterator;
 import com.palantir.atlasdb.keyvalue.partition.util.RowResultUtil;
@@ -61,9 +71,36 @@ import com.palantir.util.paging.TokenBackedBasicResultsPage;
 
 public class PartitionedKeyValueService implements KeyValueService {
 
+    /**
+     * How {@link PartitionedKeyValueService#get(String, Map)} reads a cell from its replicas.
+     */
+    public enum ReadMode {
+        /**
+         * Every replica returns the full values.
+         */
+        FULL,
+        /**
+         * One replica returns the full value of each cell and the others only return the
+         * timestamp of their latest value, so a read moves the values over the network once.  If
+         * a quorum shows that the full value is not the latest, the latest value is fetched from a
+         * replica that has it.
+         */
+        DIGEST,
+        /**
+         * Like {@link #DIGEST}, but replicas found to be missing the latest value of a cell are
+         * sent it in the background.  A repair may write back a value whose write is being
+         * rolled back at the same time, which is harmless to transactions but leaves garbage for
+         * sweep, so this is not the default.
+         */
+        DIGEST_WITH_READ_REPAIR,
+    }
+
     // Thread-safe
     private static final Logger log = LoggerFactory.getLogger(PartitionedKeyValueService.class);
 
+    // Below every real timestamp, including that of garbage collection sentinels.
+    private static final long NO_TIMESTAMP = Long.MIN_VALUE;
+
     // Immutable
     private static final QuorumParameters DEFAULT_QUORUM_PARAMETERS = new QuorumParameters(3, 2, 2);
 
@@ -76,6 +113,12 @@ public class PartitionedKeyValueService implements KeyValueService {
     // Thread-safe
     private final ExecutorService executor;
 
+    // Immutable
+    private final ReadMode readMode;
+
+    // Thread-safe
+    private final ReplicaLatencyTracker latencies = new ReplicaLatencyTracker();
+
     <TrackingUnit, FutureReturnType> void completeRequest(QuorumTracker<FutureReturnType, TrackingUnit> tracker,
                                                           ExecutorCompletionService<FutureReturnType> execSvc,
                                                           Function<FutureReturnType, Void> mergeFunction) {
@@ -120,6 +163,161 @@ public class PartitionedKeyValueService implements KeyValueService {
         }
     }
 
+    /**
+     * Sends each request to its replica, fastest replicas first, but only as many as it takes for
+     * every unit to be able to reach a quorum.  The rest are held back.  When a request fails,
+     * held back requests covering its units are sent in its place, and one is sent speculatively
+     * whenever the hedge delay of the table passes without the request finishing, so a single
+     * slow replica does not hold up the read.  Held back requests whose units all have a quorum
+     * already are never sent.
+     */
+    <TrackingUnit, FutureReturnType> void completeHedgedReadRequest(String tableName,
+                                                                    QuorumTracker<FutureReturnType, TrackingUnit> tracker,
+                                                                    ExecutorCompletionService<FutureReturnType> execSvc,
+                                                                    List<ReplicaRequest<FutureReturnType, TrackingUnit>> requests,
+                                                                    QuorumRequestParameters parameters,
+                                                                    Function<FutureReturnType, Void> mergeFunction) {
+        try {
+            Deque<ReplicaRequest<FutureReturnType, TrackingUnit>> heldBack = submitFastestQuorum(
+                    tableName,
+                    tracker,
+                    execSvc,
+                    requests,
+                    parameters.getSuccessFactor());
+            long hedgeAt = System.nanoTime() + latencies.getHedgeDelayNanos(tableName);
+            while (!tracker.finished()) {
+                Future<FutureReturnType> future = heldBack.isEmpty()
+                        ? execSvc.take()
+                        : execSvc.poll(hedgeAt - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (future == null) {
+                    submitSpeculative(tableName, tracker, execSvc, heldBack);
+                    hedgeAt = System.nanoTime() + latencies.getHedgeDelayNanos(tableName);
+                    continue;
+                }
+                try {
+                    FutureReturnType result = future.get();
+                    mergeFunction.apply(result);
+                    tracker.handleSuccess(future);
+                } catch (ExecutionException e) {
+                    Iterable<TrackingUnit> failedUnits = tracker.getUnits(future);
+                    tracker.handleFailure(future);
+                    // Check if the failure is fatal
+                    if (tracker.failed()) {
+                        Throwables.rewrapAndThrowUncheckedException(e.getCause());
+                    }
+                    submitReplacements(tableName, tracker, execSvc, heldBack, failedUnits);
+                }
+            }
+        } catch (InterruptedException e) {
+            throw Throwables.throwUncheckedException(e);
+        } finally {
+            tracker.cancel(true);
+        }
+    }
+
+    private <TrackingUnit, FutureReturnType> Deque<ReplicaRequest<FutureReturnType, TrackingUnit>> submitFastestQuorum(String tableName,
+                                                                                                                      QuorumTracker<FutureReturnType, TrackingUnit> tracker,
+                                                                                                                      ExecutorCompletionService<FutureReturnType> execSvc,
+                                                                                                                      List<ReplicaRequest<FutureReturnType, TrackingUnit>> requests,
+                                                                                                                      int successFactor) {
+        // Latencies change while we sort, so take a snapshot for a consistent order.
+        final Map<KeyValueService, Long> expectedLatencies = Maps.newHashMap();
+        for (ReplicaRequest<FutureReturnType, TrackingUnit> request : requests) {
+            expectedLatencies.put(request.kvs, latencies.getExpectedLatencyNanos(request.kvs));
+        }
+        List<ReplicaRequest<FutureReturnType, TrackingUnit>> sorted = Lists.newArrayList(requests);
+        Collections.sort(sorted, new Comparator<ReplicaRequest<FutureReturnType, TrackingUnit>>() {
+            @Override
+            public int compare(ReplicaRequest<FutureReturnType, TrackingUnit> r1,
+                               ReplicaRequest<FutureReturnType, TrackingUnit> r2) {
+                return Longs.compare(expectedLatencies.get(r1.kvs), expectedLatencies.get(r2.kvs));
+            }
+        });
+
+        Map<TrackingUnit, Integer> sentByUnit = Maps.newHashMap();
+        Deque<ReplicaRequest<FutureReturnType, TrackingUnit>> heldBack = new ArrayDeque<ReplicaRequest<FutureReturnType, TrackingUnit>>();
+        for (ReplicaRequest<FutureReturnType, TrackingUnit> request : sorted) {
+            boolean needed = false;
+            for (TrackingUnit unit : request.units) {
+                Integer sent = sentByUnit.get(unit);
+                needed |= sent == null || sent < successFactor;
+            }
+            if (!needed) {
+                heldBack.add(request);
+                continue;
+            }
+            for (TrackingUnit unit : request.units) {
+                Integer sent = sentByUnit.get(unit);
+                sentByUnit.put(unit, sent == null ? 1 : sent + 1);
+            }
+            submit(tableName, tracker, execSvc, request);
+        }
+        return heldBack;
+    }
+
+    private <TrackingUnit, FutureReturnType> void submitSpeculative(String tableName,
+                                                                    QuorumTracker<FutureReturnType, TrackingUnit> tracker,
+                                                                    ExecutorCompletionService<FutureReturnType> execSvc,
+                                                                    Deque<ReplicaRequest<FutureReturnType, TrackingUnit>> heldBack) {
+        while (!heldBack.isEmpty()) {
+            ReplicaRequest<FutureReturnType, TrackingUnit> request = heldBack.poll();
+            if (tracker.anyPending(request.units)) {
+                latencies.recordSpeculativeRequest(request.kvs);
+                submit(tableName, tracker, execSvc, request);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Sends the held back requests, fastest first, that it takes to cover every unit of a failed
+     * request that still needs successes.  Other held back requests would not make up for the
+     * failure, so they stay held back.
+     */
+    private <TrackingUnit, FutureReturnType> void submitReplacements(String tableName,
+                                                                     QuorumTracker<FutureReturnType, TrackingUnit> tracker,
+                                                                     ExecutorCompletionService<FutureReturnType> execSvc,
+                                                                     Deque<ReplicaRequest<FutureReturnType, TrackingUnit>> heldBack,
+                                                                     Iterable<TrackingUnit> failedUnits) {
+        Set<TrackingUnit> uncovered = Sets.newHashSet();
+        for (TrackingUnit unit : failedUnits) {
+            if (tracker.anyPending(Collections.singleton(unit))) {
+                uncovered.add(unit);
+            }
+        }
+        Iterator<ReplicaRequest<FutureReturnType, TrackingUnit>> it = heldBack.iterator();
+        while (!uncovered.isEmpty() && it.hasNext()) {
+            ReplicaRequest<FutureReturnType, TrackingUnit> request = it.next();
+            if (!tracker.anyPending(request.units)) {
+                it.remove();
+                continue;
+            }
+            boolean covers = false;
+            for (TrackingUnit unit : request.units) {
+                covers |= uncovered.remove(unit);
+            }
+            if (covers) {
+                it.remove();
+                submit(tableName, tracker, execSvc, request);
+            }
+        }
+    }
+
+    private <TrackingUnit, FutureReturnType> void submit(String tableName,
+                                                         QuorumTracker<FutureReturnType, TrackingUnit> tracker,
+                                                         ExecutorCompletionService<FutureReturnType> execSvc,
+                                                         ReplicaRequest<FutureReturnType, TrackingUnit> request) {
+        Future<FutureReturnType> future = execSvc.submit(latencies.timed(request.kvs, tableName, request.callable));
+        tracker.registerRef(future, request.units);
+    }
+
+    /**
+     * @return how fast each replica has been answering reads, keyed by the replica
+     */
+    public Map<KeyValueService, ReplicaLatencyMetricsMBean> getReplicaLatencyMetrics() {
+        return latencies.getAllMetrics();
+    }
+
     // *** Read requests *************************************************************************
     @Override
     @Idempotent
@@ -137,18 +335,17 @@ public class PartitionedKeyValueService implements KeyValueService {
                 rows,
                 quorumParameters.getReadRequestParameters());
 
-        // Schedule tasks for execution
+        List<ReplicaRequest<Map<Cell, Value>, byte[]>> requests = Lists.newArrayList();
         for (final Map.Entry<KeyValueService, NavigableSet<byte[]>> e : tasks.entrySet()) {
-            Future<Map<Cell, Value>> future = execSvc.submit(new Callable<Map<Cell, Value>>() {
+            requests.add(ReplicaRequest.of(e.getKey(), e.getValue(), new Callable<Map<Cell, Value>>() {
                 @Override
                 public Map<Cell, Value> call() throws Exception {
                     return e.getKey().getRows(tableName, e.getValue(), columnSelection, timestamp);
                 }
-            });
-            tracker.registerRef(future, e.getValue());
+            }));
         }
 
-        completeReadRequest(tracker, execSvc, new Function<Map<Cell, Value>, Void>() {
+        completeHedgedReadRequest(tableName, tracker, execSvc, requests, quorumParameters.getReadRequestParameters(), new Function<Map<Cell, Value>, Void>() {
             @Override
             @Nullable
             public Void apply(@Nullable Map<Cell, Value> input) {
@@ -162,6 +359,13 @@ public class PartitionedKeyValueService implements KeyValueService {
     @Override
     @Idempotent
     public Map<Cell, Value> get(final String tableName, Map<Cell, Long> timestampByCell) {
+        if (readMode == ReadMode.FULL) {
+            return getFromAllReplicas(tableName, timestampByCell);
+        }
+        return getWithDigests(tableName, timestampByCell);
+    }
+
+    private Map<Cell, Value> getFromAllReplicas(final String tableName, Map<Cell, Long> timestampByCell) {
         Map<KeyValueService, Map<Cell, Long>> tasks = partitionMap.getServicesForCellsRead(
                 tableName,
                 timestampByCell);
@@ -172,18 +376,17 @@ public class PartitionedKeyValueService implements KeyValueService {
                 quorumParameters.getReadRequestParameters());
         final Map<Cell, Value> globalResult = Maps.newHashMap();
 
-        // Schedule the tasks
+        List<ReplicaRequest<Map<Cell, Value>, Cell>> requests = Lists.newArrayList();
         for (final Map.Entry<KeyValueService, Map<Cell, Long>> e : tasks.entrySet()) {
-            Future<Map<Cell, Value>> future = execSvc.submit(new Callable<Map<Cell, Value>>() {
+            requests.add(ReplicaRequest.of(e.getKey(), e.getValue().keySet(), new Callable<Map<Cell, Value>>() {
                 @Override
                 public Map<Cell, Value> call() throws Exception {
                     return e.getKey().get(tableName, e.getValue());
                 }
-            });
-            tracker.registerRef(future, e.getValue().keySet());
+            }));
         }
 
-        completeRequest(tracker, execSvc, new Function<Map<Cell, Value>, Void>() {
+        completeHedgedReadRequest(tableName, tracker, execSvc, requests, quorumParameters.getReadRequestParameters(), new Function<Map<Cell, Value>, Void>() {
             @Override
             @Nullable
             public Void apply(@Nullable Map<Cell, Value> input) {
@@ -194,6 +397,184 @@ public class PartitionedKeyValueService implements KeyValueService {
         return globalResult;
     }
 
+    private Map<Cell, Value> getWithDigests(final String tableName, Map<Cell, Long> timestampByCell) {
+        Map<KeyValueService, Map<Cell, Long>> tasks = partitionMap.getServicesForCellsRead(
+                tableName,
+                timestampByCell);
+        Map<KeyValueService, Map<Cell, Long>> valueReads = chooseValueReplicas(tasks);
+        ExecutorCompletionService<ReplicaRead> execSvc = new ExecutorCompletionService<ReplicaRead>(
+                executor);
+        QuorumTracker<ReplicaRead, Cell> tracker = QuorumTracker.of(
+                timestampByCell.keySet(),
+                quorumParameters.getReadRequestParameters());
+        final Map<Cell, Value> globalResult = Maps.newHashMap();
+        final Map<Cell, ReplicaRead> latestReads = Maps.newHashMap();
+        final List<ReplicaRead> reads = Lists.newArrayList();
+
+        List<ReplicaRequest<ReplicaRead, Cell>> requests = Lists.newArrayList();
+        for (final Map.Entry<KeyValueService, Map<Cell, Long>> e : tasks.entrySet()) {
+            final KeyValueService kvs = e.getKey();
+            final Map<Cell, Long> valueCells = valueReads.get(kvs);
+            final Map<Cell, Long> digestCells = Maps.newHashMap(e.getValue());
+            digestCells.keySet().removeAll(valueCells.keySet());
+            requests.add(ReplicaRequest.of(kvs, e.getValue().keySet(), new Callable<ReplicaRead>() {
+                @Override
+                public ReplicaRead call() throws Exception {
+                    Map<Cell, Value> values = valueCells.isEmpty()
+                            ? ImmutableMap.<Cell, Value>of()
+                            : kvs.get(tableName, valueCells);
+                    Map<Cell, Long> timestamps = digestCells.isEmpty()
+                            ? ImmutableMap.<Cell, Long>of()
+                            : kvs.getLatestTimestamps(tableName, digestCells);
+                    return new ReplicaRead(kvs, e.getValue().keySet(), values, timestamps);
+                }
+            }));
+        }
+
+        completeHedgedReadRequest(tableName, tracker, execSvc, requests, quorumParameters.getReadRequestParameters(), new Function<ReplicaRead, Void>() {
+            @Override
+            @Nullable
+            public Void apply(@Nullable ReplicaRead input) {
+                reads.add(input);
+                mergeCellValueMapIntoMap(globalResult, input.values);
+                for (Cell cell : input.cells) {
+                    ReplicaRead latest = latestReads.get(cell);
+                    if (latest == null || latest.getTimestamp(cell) < input.getTimestamp(cell)) {
+                        latestReads.put(cell, input);
+                    }
+                }
+                return null;
+            }
+        });
+
+        // A quorum has answered for every cell, so the newest timestamp among the answers is the
+        // latest value.  Fetch it wherever the replica that returned full values was behind.
+        Map<KeyValueService, Map<Cell, Long>> mismatches = Maps.newHashMap();
+        for (Map.Entry<Cell, ReplicaRead> e : latestReads.entrySet()) {
+            Cell cell = e.getKey();
+            ReplicaRead latest = e.getValue();
+            Value value = globalResult.get(cell);
+            if (latest.getTimestamp(cell) != NO_TIMESTAMP
+                    && (value == null || value.getTimestamp() < latest.getTimestamp(cell))) {
+                Map<Cell, Long> cells = mismatches.get(latest.kvs);
+                if (cells == null) {
+                    cells = Maps.newHashMap();
+                    mismatches.put(latest.kvs, cells);
+                }
+                cells.put(cell, timestampByCell.get(cell));
+            }
+        }
+        if (!mismatches.isEmpty()) {
+            mergeCellValueMapIntoMap(globalResult, getMismatchedValues(tableName, mismatches));
+        }
+
+        if (readMode == ReadMode.DIGEST_WITH_READ_REPAIR) {
+            repairStaleReplicas(tableName, reads, globalResult);
+        }
+        return globalResult;
+    }
+
+    /**
+     * Picks one replica of each cell to return its full value: the one that has been answering
+     * fastest, or one chosen by the cell's hash if none of them has been read from recently.
+     */
+    private Map<KeyValueService, Map<Cell, Long>> chooseValueReplicas(Map<KeyValueService, Map<Cell, Long>> tasks) {
+        Multimap<Cell, KeyValueService> replicasByCell = HashMultimap.create();
+        Map<KeyValueService, Map<Cell, Long>> result = Maps.newHashMap();
+        for (Map.Entry<KeyValueService, Map<Cell, Long>> e : tasks.entrySet()) {
+            for (Cell cell : e.getValue().keySet()) {
+                replicasByCell.put(cell, e.getKey());
+            }
+            result.put(e.getKey(), Maps.<Cell, Long>newHashMap());
+        }
+        for (Map.Entry<Cell, Collection<KeyValueService>> e : replicasByCell.asMap().entrySet()) {
+            Cell cell = e.getKey();
+            List<KeyValueService> replicas = Lists.newArrayList(e.getValue());
+            KeyValueService chosen = replicas.get((cell.hashCode() & Integer.MAX_VALUE) % replicas.size());
+            long chosenLatency = latencies.getExpectedLatencyNanos(chosen);
+            for (KeyValueService replica : replicas) {
+                long latency = latencies.getExpectedLatencyNanos(replica);
+                if (latency < chosenLatency) {
+                    chosen = replica;
+                    chosenLatency = latency;
+                }
+            }
+            result.get(chosen).put(cell, tasks.get(chosen).get(cell));
+        }
+        return result;
+    }
+
+    /**
+     * Reads the values that the digests showed to be newer than the full values from the replicas
+     * that reported them.  Cells that cannot be read that way are read from all their replicas.
+     */
+    private Map<Cell, Value> getMismatchedValues(final String tableName,
+                                                 Map<KeyValueService, Map<Cell, Long>> mismatches) {
+        ExecutorCompletionService<Map<Cell, Value>> execSvc = new ExecutorCompletionService<Map<Cell, Value>>(
+                executor);
+        Map<Future<Map<Cell, Value>>, Map<Cell, Long>> cellsByFuture = Maps.newHashMap();
+        for (final Map.Entry<KeyValueService, Map<Cell, Long>> e : mismatches.entrySet()) {
+            Future<Map<Cell, Value>> future = execSvc.submit(new Callable<Map<Cell, Value>>() {
+                @Override
+                public Map<Cell, Value> call() throws Exception {
+                    return e.getKey().get(tableName, e.getValue());
+                }
+            });
+            cellsByFuture.put(future, e.getValue());
+        }
+
+        Map<Cell, Value> result = Maps.newHashMap();
+        Map<Cell, Long> failed = Maps.newHashMap();
+        try {
+            for (int i = 0; i < cellsByFuture.size(); i++) {
+                Future<Map<Cell, Value>> future = execSvc.take();
+                try {
+                    mergeCellValueMapIntoMap(result, future.get());
+                } catch (ExecutionException e) {
+                    log.warn("Failed to get mismatched values in table " + tableName, e.getCause());
+                    failed.putAll(cellsByFuture.get(future));
+                }
+            }
+        } catch (InterruptedException e) {
+            throw Throwables.throwUncheckedException(e);
+        }
+        if (!failed.isEmpty()) {
+            mergeCellValueMapIntoMap(result, getFromAllReplicas(tableName, failed));
+        }
+        return result;
+    }
+
+    /**
+     * Sends the latest value of each cell, in the background, to the replicas that answered with
+     * an older one.
+     */
+    private void repairStaleReplicas(final String tableName, List<ReplicaRead> reads, Map<Cell, Value> latestValues) {
+        for (final ReplicaRead read : reads) {
+            final Multimap<Cell, Value> repairs = HashMultimap.create();
+            for (Cell cell : read.cells) {
+                Value latest = latestValues.get(cell);
+                if (latest != null && read.getTimestamp(cell) < latest.getTimestamp()) {
+                    repairs.put(cell, latest);
+                }
+            }
+            if (repairs.isEmpty()) {
+                continue;
+            }
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        read.kvs.putWithTimestamps(tableName, repairs);
+                    } catch (KeyAlreadyExistsException e) {
+                        // Another write or repair got there first.
+                    } catch (RuntimeException e) {
+                        log.warn("Failed to repair " + repairs.size() + " cells in table " + tableName, e);
+                    }
+                }
+            });
+        }
+    }
+
     @Override
     @Idempotent
     public Multimap<Cell, Long> getAllTimestamps(final String tableName,
@@ -245,17 +626,17 @@ public class PartitionedKeyValueService implements KeyValueService {
         ExecutorCompletionService<Map<Cell, Long>> execSvc = new ExecutorCompletionService<Map<Cell, Long>>(
                 executor);
 
+        List<ReplicaRequest<Map<Cell, Long>, Cell>> requests = Lists.newArrayList();
         for (final Map.Entry<KeyValueService, Map<Cell, Long>> e : tasks.entrySet()) {
-            Future<Map<Cell, Long>> future = execSvc.submit(new Callable<Map<Cell, Long>>() {
+            requests.add(ReplicaRequest.of(e.getKey(), e.getValue().keySet(), new Callable<Map<Cell, Long>>() {
                 @Override
                 public Map<Cell, Long> call() throws Exception {
                     return e.getKey().getLatestTimestamps(tableName, e.getValue());
                 }
-            });
-            tracker.registerRef(future, e.getValue().keySet());
+            }));
         }
 
-        completeReadRequest(tracker, execSvc, new Function<Map<Cell, Long>, Void>() {
+        completeHedgedReadRequest(tableName, tracker, execSvc, requests, quorumParameters.getReadRequestParameters(), new Function<Map<Cell, Long>, Void>() {
             @Override
             @Nullable
             public Void apply(@Nullable Map<Cell, Long> input) {
@@ -526,13 +907,54 @@ public class PartitionedKeyValueService implements KeyValueService {
     }
 
     @Override
-    public void multiPut(Map<String, ? extends Map<Cell, byte[]>> valuesByTable, long timestamp)
+    public void multiPut(Map<String, ? extends Map<Cell, byte[]>> valuesByTable, final long timestamp)
             throws KeyAlreadyExistsException {
+        // Each replica gets one multiPut covering all of its cells in every table, so the whole
+        // batch waits for a single round of write quorums.
+        final Map<KeyValueService, Map<String, Map<Cell, byte[]>>> tasks = Maps.newHashMap();
+        List<Map.Entry<String, Cell>> tableCells = Lists.newArrayList();
         for (Map.Entry<String, ? extends Map<Cell, byte[]>> e : valuesByTable.entrySet()) {
-            final String tableName = e.getKey();
-            final Map<Cell, byte[]> values = e.getValue();
-            put(tableName, values, timestamp);
+            String tableName = e.getKey();
+            for (Cell cell : e.getValue().keySet()) {
+                tableCells.add(Maps.immutableEntry(tableName, cell));
+            }
+            Map<KeyValueService, Map<Cell, byte[]>> tableTasks = partitionMap.getServicesForCellsWrite(
+                    tableName,
+                    e.getValue());
+            for (Map.Entry<KeyValueService, Map<Cell, byte[]>> t : tableTasks.entrySet()) {
+                Map<String, Map<Cell, byte[]>> valuesForService = tasks.get(t.getKey());
+                if (valuesForService == null) {
+                    valuesForService = Maps.newHashMap();
+                    tasks.put(t.getKey(), valuesForService);
+                }
+                valuesForService.put(tableName, t.getValue());
+            }
+        }
+        final ExecutorCompletionService<Void> writeService = new ExecutorCompletionService<Void>(
+                executor);
+        final QuorumTracker<Void, Map.Entry<String, Cell>> tracker = QuorumTracker.of(
+                tableCells,
+                quorumParameters.getWriteRequestParameters());
+
+        // Schedule the requests
+        for (final Map.Entry<KeyValueService, Map<String, Map<Cell, byte[]>>> e : tasks.entrySet()) {
+            Future<Void> future = writeService.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    e.getKey().multiPut(e.getValue(), timestamp);
+                    return null;
+                }
+            });
+            List<Map.Entry<String, Cell>> units = Lists.newArrayList();
+            for (Map.Entry<String, Map<Cell, byte[]>> t : e.getValue().entrySet()) {
+                for (Cell cell : t.getValue().keySet()) {
+                    units.add(Maps.immutableEntry(t.getKey(), cell));
+                }
+            }
+            tracker.registerRef(future, units);
         }
+
+        completeWriteRequest(tracker, writeService);
     }
 
     // *** Table stuff
@@ -656,6 +1078,7 @@ public class PartitionedKeyValueService implements KeyValueService {
 
     @Override
     public void close() {
+        latencies.unregisterMBeans();
         for (KeyValueService kvs : partitionMap.getDelegates()) {
             kvs.close();
         }
@@ -683,6 +1106,12 @@ public class PartitionedKeyValueService implements KeyValueService {
     // *** Creation *******************************************************************************
     public static PartitionedKeyValueService create(Set<? extends KeyValueService> svcPool,
                                                     QuorumParameters quorumParameters) {
+        return create(svcPool, quorumParameters, ReadMode.FULL);
+    }
+
+    public static PartitionedKeyValueService create(Set<? extends KeyValueService> svcPool,
+                                                    QuorumParameters quorumParameters,
+                                                    ReadMode readMode) {
         Preconditions.checkArgument(svcPool.size() == 5);
         NavigableMap<byte[], KeyValueService> ring = Maps.newTreeMap(UnsignedBytes.lexicographicalComparator());
 
@@ -695,7 +1124,7 @@ public class PartitionedKeyValueService implements KeyValueService {
             ring.put(points[i++], kvs);
         }
 
-        return create(ring, quorumParameters);
+        return create(ring, quorumParameters, PTExecutors.newCachedThreadPool(), readMode);
     }
 
     public static PartitionedKeyValueService create(NavigableMap<byte[], KeyValueService> ring,
@@ -706,15 +1135,24 @@ public class PartitionedKeyValueService implements KeyValueService {
     public static PartitionedKeyValueService create(NavigableMap<byte[], KeyValueService> ring,
                                                     QuorumParameters quorumParameters,
                                                     ExecutorService executor) {
-        return new PartitionedKeyValueService(ring, executor, quorumParameters);
+        return create(ring, quorumParameters, executor, ReadMode.FULL);
+    }
+
+    public static PartitionedKeyValueService create(NavigableMap<byte[], KeyValueService> ring,
+                                                    QuorumParameters quorumParameters,
+                                                    ExecutorService executor,
+                                                    ReadMode readMode) {
+        return new PartitionedKeyValueService(ring, executor, quorumParameters, readMode);
     }
 
     private PartitionedKeyValueService(NavigableMap<byte[], KeyValueService> ring,
                                        ExecutorService executor,
-                                       QuorumParameters quorumParameters) {
+                                       QuorumParameters quorumParameters,
+                                       ReadMode readMode) {
         this.partitionMap = BasicPartitionMap.create(quorumParameters, ring);
         this.executor = executor;
         this.quorumParameters = quorumParameters;
+        this.readMode = Preconditions.checkNotNull(readMode);
     }
 
     // *** Helper methods *************************************************************************
@@ -756,6 +1194,58 @@ public class PartitionedKeyValueService implements KeyValueService {
         }
     }
 
+    /**
+     * One replica's part of a read, sent by {@link PartitionedKeyValueService#completeHedgedReadRequest}.
+     */
+    private static final class ReplicaRequest<FutureReturnType, TrackingUnit> {
+        final KeyValueService kvs;
+        final Iterable<TrackingUnit> units;
+        final Callable<FutureReturnType> callable;
+
+        private ReplicaRequest(KeyValueService kvs, Iterable<TrackingUnit> units, Callable<FutureReturnType> callable) {
+            this.kvs = kvs;
+            this.units = units;
+            this.callable = callable;
+        }
+
+        static <FutureReturnType, TrackingUnit> ReplicaRequest<FutureReturnType, TrackingUnit> of(KeyValueService kvs,
+                                                                                                   Iterable<TrackingUnit> units,
+                                                                                                   Callable<FutureReturnType> callable) {
+            return new ReplicaRequest<FutureReturnType, TrackingUnit>(kvs, units, callable);
+        }
+    }
+
+    /**
+     * What one replica returned for its cells: full values for some and latest timestamps for the
+     * rest.
+     */
+    private static final class ReplicaRead {
+        final KeyValueService kvs;
+        final Set<Cell> cells;
+        final Map<Cell, Value> values;
+        final Map<Cell, Long> timestamps;
+
+        ReplicaRead(KeyValueService kvs, Set<Cell> cells, Map<Cell, Value> values, Map<Cell, Long> timestamps) {
+            this.kvs = kvs;
+            this.cells = cells;
+            this.values = values;
+            this.timestamps = timestamps;
+        }
+
+        /**
+         * @return the timestamp of the replica's latest value of the cell, or
+         *         {@link PartitionedKeyValueService#NO_TIMESTAMP} if it has none
+         */
+        long getTimestamp(Cell cell) {
+            Value value = values.get(cell);
+            if (value != null) {
+                return value.getTimestamp();
+            }
+            Long timestamp = timestamps.get(cell);
+            return timestamp != null ? timestamp : NO_TIMESTAMP;
+        }
+    }
+
     private void mergeAllTimestampsMapIntoMap(Multimap<Cell, Long> globalResult,
                                               Multimap<Cell, Long> partResult) {
         for (Map.Entry<Cell, Long> e : partResult.entries()) {
@@ -92,6 +92,14 @@ public class QuorumTracker<FutureReturnType, TrackingUnit> {
         unitsByReference.put(ref, items);
     }
 
+    /**
+     * @return the units that the request behind ref was registered for
+     */
+    public Iterable<TrackingUnit> getUnits(Future<FutureReturnType> ref) {
+        Preconditions.checkArgument(unitsByReference.containsKey(ref));
+        return unitsByReference.get(ref);
+    }
+
     private void unregisterRef(Future<FutureReturnType> ref) {
         Preconditions.checkArgument(unitsByReference.containsKey(ref));
         unitsByReference.remove(ref);
@@ -103,6 +111,18 @@ public class QuorumTracker<FutureReturnType, TrackingUnit> {
         }
     }
 
+    /**
+     * @return true if any of the units still needs successes
+     */
+    public boolean anyPending(Iterable<TrackingUnit> units) {
+        for (TrackingUnit unit : units) {
+            if (numberOfRemainingSuccessesForSuccess.containsKey(unit)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public boolean failed() {
         return failure;
     }
@@ -0,0 +1,127 @@
+/**
+ * Copyright 2015 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.partition;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Tracks how fast one replica answers reads.  The latency is an exponentially weighted moving
+ * average, so it follows a replica that slows down or recovers within a few requests.  A failed
+ * request counts as at least twice the current average, so a replica that fails fast is not
+ * mistaken for a fast one.
+ */
+@ThreadSafe
+class ReplicaLatencyMetrics implements ReplicaLatencyMetricsMBean {
+    // Weight of each new sample in the average.
+    private static final double EWMA_WEIGHT = 0.2;
+    // A replica that has not been read from for this long is tried again as if it were fastest.
+    private static final long STALE_AFTER_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final String endpoint;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong speculativeRequests = new AtomicLong();
+    @GuardedBy("this")
+    private double ewmaNanos = 0;
+    @GuardedBy("this")
+    private long lastSampleNanos = 0;
+    @GuardedBy("this")
+    private boolean hasSample = false;
+
+    ReplicaLatencyMetrics(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    void recordSuccess(long nanos) {
+        recordSample(nanos);
+        requests.incrementAndGet();
+    }
+
+    void recordFailure(long nanos) {
+        synchronized (this) {
+            recordSample(Math.max(nanos, 2 * ewmaNanos));
+        }
+        requests.incrementAndGet();
+        failures.incrementAndGet();
+    }
+
+    /**
+     * Records a request cancelled after nanos.  Its latency is at least that long, so it can
+     * only raise the average.
+     */
+    void recordCancelled(long nanos) {
+        synchronized (this) {
+            recordSample(Math.max(nanos, ewmaNanos));
+        }
+        requests.incrementAndGet();
+    }
+
+    private synchronized void recordSample(double sample) {
+        ewmaNanos = hasSample ? ewmaNanos + EWMA_WEIGHT * (sample - ewmaNanos) : sample;
+        lastSampleNanos = System.nanoTime();
+        hasSample = true;
+    }
+
+    void recordSpeculativeRequest() {
+        speculativeRequests.incrementAndGet();
+    }
+
+    /**
+     * @return the average latency, or 0 if there is no recent sample
+     */
+    synchronized long getExpectedLatencyNanos() {
+        if (!hasSample || System.nanoTime() - lastSampleNanos > STALE_AFTER_NANOS) {
+            return 0;
+        }
+        return (long) ewmaNanos;
+    }
+
+    @Override
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    @Override
+    public synchronized double getEwmaLatencyMillis() {
+        return ewmaNanos / 1e6;
+    }
+
+    @Override
+    public long getRequests() {
+        return requests.get();
+    }
+
+    @Override
+    public long getFailures() {
+        return failures.get();
+    }
+
+    @Override
+    public long getSpeculativeRequests() {
+        return speculativeRequests.get();
+    }
+
+    @Override
+    public void clearStats() {
+        requests.set(0);
+        failures.set(0);
+        speculativeRequests.set(0);
+    }
+}
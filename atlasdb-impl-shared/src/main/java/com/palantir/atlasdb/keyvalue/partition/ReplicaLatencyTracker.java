@@ -0,0 +1,164 @@
+/**
+ * Copyright 2015 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.partition;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.annotation.concurrent.ThreadSafe;
+import javax.management.ObjectName;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.util.JMXUtils;
+
+/**
+ * Times the reads sent to each replica, to decide which replicas to read from first and how long
+ * to wait for them before sending a speculative request to another one.
+ * <p>
+ * The hedge delay is a high percentile of the latencies of recent successful reads of a table
+ * across all replicas, so that only the slowest few percent of requests are hedged.  It is kept
+ * per table because reads of a table of large values would otherwise hedge every read of a
+ * table of small ones.  It is recomputed every {@link #RECOMPUTE_INTERVAL} samples rather than
+ * on every read.
+ * <p>
+ * The metrics of each replica are registered with JMX until {@link #unregisterMBeans()}.
+ */
+@ThreadSafe
+final class ReplicaLatencyTracker {
+    private static final String METRICS_OBJECT_NAME = "com.palantir.atlasdb:type=PartitionedKeyValueService,replica=";
+    private static final int WINDOW_SIZE = 1024;
+    private static final int RECOMPUTE_INTERVAL = 128;
+    private static final double HEDGE_PERCENTILE = 0.95;
+    private static final long MIN_HEDGE_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long INITIAL_HEDGE_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final ConcurrentMap<KeyValueService, ReplicaLatencyMetrics> metrics = Maps.newConcurrentMap();
+    private final ConcurrentMap<String, LatencyWindow> windowsByTable = Maps.newConcurrentMap();
+
+    /**
+     * Wraps a read of tableName from kvs so that its latency is recorded.  Reads cancelled
+     * because enough other replicas answered first still count, so that a straggler does not
+     * keep looking fast.
+     */
+    <T> Callable<T> timed(final KeyValueService kvs, final String tableName, final Callable<T> callable) {
+        return new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                long start = System.nanoTime();
+                try {
+                    T result = callable.call();
+                    long nanos = System.nanoTime() - start;
+                    getMetrics(kvs).recordSuccess(nanos);
+                    getWindow(tableName).recordSample(nanos);
+                    return result;
+                } catch (Exception e) {
+                    long nanos = System.nanoTime() - start;
+                    if (Thread.currentThread().isInterrupted()
+                            || Throwables.getRootCause(e) instanceof InterruptedException) {
+                        getMetrics(kvs).recordCancelled(nanos);
+                    } else {
+                        getMetrics(kvs).recordFailure(nanos);
+                    }
+                    throw e;
+                }
+            }
+        };
+    }
+
+    long getExpectedLatencyNanos(KeyValueService kvs) {
+        return getMetrics(kvs).getExpectedLatencyNanos();
+    }
+
+    long getHedgeDelayNanos(String tableName) {
+        LatencyWindow window = windowsByTable.get(tableName);
+        return window == null ? INITIAL_HEDGE_DELAY_NANOS : window.hedgeDelayNanos;
+    }
+
+    void recordSpeculativeRequest(KeyValueService kvs) {
+        getMetrics(kvs).recordSpeculativeRequest();
+    }
+
+    Map<KeyValueService, ReplicaLatencyMetricsMBean> getAllMetrics() {
+        return ImmutableMap.<KeyValueService, ReplicaLatencyMetricsMBean>copyOf(metrics);
+    }
+
+    void unregisterMBeans() {
+        for (ReplicaLatencyMetrics m : metrics.values()) {
+            JMXUtils.unregisterMBeanCatchAndLogExceptions(getObjectName(m));
+        }
+    }
+
+    private ReplicaLatencyMetrics getMetrics(KeyValueService kvs) {
+        ReplicaLatencyMetrics m = metrics.get(kvs);
+        if (m == null) {
+            ReplicaLatencyMetrics newMetrics = new ReplicaLatencyMetrics(kvs.toString());
+            m = metrics.putIfAbsent(kvs, newMetrics);
+            if (m == null) {
+                m = newMetrics;
+                JMXUtils.registerMBeanCatchAndLogExceptions(m, getObjectName(m));
+            }
+        }
+        return m;
+    }
+
+    private static String getObjectName(ReplicaLatencyMetrics m) {
+        return METRICS_OBJECT_NAME + ObjectName.quote(m.getEndpoint());
+    }
+
+    private LatencyWindow getWindow(String tableName) {
+        LatencyWindow window = windowsByTable.get(tableName);
+        if (window == null) {
+            LatencyWindow newWindow = new LatencyWindow();
+            window = windowsByTable.putIfAbsent(tableName, newWindow);
+            if (window == null) {
+                window = newWindow;
+            }
+        }
+        return window;
+    }
+
+    /**
+     * The latencies of the most recent successful reads of one table.
+     */
+    @ThreadSafe
+    private static final class LatencyWindow {
+        private final AtomicLongArray window = new AtomicLongArray(WINDOW_SIZE);
+        private final AtomicLong samples = new AtomicLong();
+        private volatile long hedgeDelayNanos = INITIAL_HEDGE_DELAY_NANOS;
+
+        void recordSample(long nanos) {
+            long n = samples.getAndIncrement();
+            window.set((int) (n % WINDOW_SIZE), nanos);
+            if ((n + 1) % RECOMPUTE_INTERVAL == 0) {
+                int size = (int) Math.min(n + 1, WINDOW_SIZE);
+                long[] sorted = new long[size];
+                for (int i = 0; i < size; i++) {
+                    sorted[i] = window.get(i);
+                }
+                Arrays.sort(sorted);
+                hedgeDelayNanos = Math.max(MIN_HEDGE_DELAY_NANOS, sorted[(int) (HEDGE_PERCENTILE * (size - 1))]);
+            }
+        }
+    }
+}
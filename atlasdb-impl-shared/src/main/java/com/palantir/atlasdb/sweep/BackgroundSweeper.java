@@ -20,11 +20,15 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
+import javax.annotation.concurrent.GuardedBy;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Functions;
 import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
 import com.google.common.base.Stopwatch;
 import com.google.common.base.Supplier;
 import com.google.common.base.Suppliers;
@@ -33,13 +37,13 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSortedMap;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
-import com.google.common.primitives.UnsignedBytes;
+import com.google.common.util.concurrent.RateLimiter;
 import com.palantir.atlasdb.AtlasDbConstants;
 import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.InsufficientConsistencyException;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
-import com.palantir.atlasdb.keyvalue.api.RowResult;
 import com.palantir.atlasdb.keyvalue.api.SweepResults;
 import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.atlasdb.schema.generated.SweepPriorityTable;
@@ -60,16 +64,54 @@ import com.palantir.lock.LockMode;
 import com.palantir.lock.LockRefreshToken;
 import com.palantir.lock.LockRequest;
 import com.palantir.lock.StringLockDescriptor;
+import com.palantir.util.JMXUtils;
 
-public class BackgroundSweeper implements Runnable {
+/**
+ * Sweeps tables in the background with a fixed number of worker threads.
+ * <p>
+ * When a table is chosen for sweeping it is split into as many disjoint row ranges (shards) as
+ * there are workers, cut on a sample of the table's rows by {@link SweepShardSplitter}.  Each
+ * shard has its own row in the {@link SweepProgressTable}, which records the end of its range,
+ * where to resume it, and how many cells it has examined and deleted so far.  Idle workers pick
+ * up any shard that no other worker is sweeping, so a large table is swept by every worker at
+ * once, and workers move on to other tables as the shards of the current one finish.  Since
+ * each shard records its own range, shards survive a restart with a different number of
+ * workers.  Once the last shard of a table finishes the table's totals are recorded in the
+ * {@link SweepPriorityTable}.
+ * <p>
+ * A progress row without an end row was written before tables were sharded and covers the rest
+ * of its table.  When it is claimed with more than one worker, the rest of the table is split
+ * into shards like a newly chosen table, and the row keeps the first of them and its totals.
+ * <p>
+ * All workers share a single limit on the number of cells deleted per second.
+ */
+public class BackgroundSweeper {
     private static final Logger log = LoggerFactory.getLogger(BackgroundSweeper.class);
+    private static final String METRICS_OBJECT_NAME = "com.palantir.atlasdb:type=BackgroundSweeper,worker=";
+    private static final int MAX_SHARDS_PER_TABLE = 256;
+
     private final LockAwareTransactionManager txManager;
     private final KeyValueService kvs;
     private final SweepTaskRunner sweepRunner;
     private final Supplier<Boolean> isSweepEnabled;
     private final Supplier<Long> sweepPauseMillis;
+    private final Supplier<Integer> maxCellsDeletedPerSecond;
     private final SweepTableFactory tableFactory;
-    private Thread daemon;
+    private final SweepShardSplitter shardSplitter;
+    private final int numWorkers;
+    private final int shardsPerTable;
+    private final RateLimiter deleteRateLimiter = RateLimiter.create(Double.MAX_VALUE);
+
+    private final Object lockTokenLock = new Object();
+    @GuardedBy("lockTokenLock")
+    private Optional<LockRefreshToken> locks = Optional.absent();
+
+    // Held while choosing, claiming and finishing shards, so workers agree on which shards exist.
+    private final Object shardLock = new Object();
+    @GuardedBy("shardLock")
+    private final Set<Long> claimedShards = Sets.newHashSet();
+
+    private List<Thread> daemons = ImmutableList.of();
 
     public BackgroundSweeper(LockAwareTransactionManager txManager,
                              KeyValueService kvs,
@@ -77,121 +119,322 @@ public class BackgroundSweeper implements Runnable {
                              Supplier<Boolean> isSweepEnabled,
                              Supplier<Long> sweepPauseMillis,
                              SweepTableFactory tableFactory) {
+        this(txManager, kvs, sweepRunner, isSweepEnabled, sweepPauseMillis,
+                Suppliers.ofInstance(0), tableFactory, 1);
+    }
+
+    /**
+     * @param maxCellsDeletedPerSecond limit on deletions across all workers; zero or less means no limit
+     * @param numWorkers number of threads sweeping concurrently, which is also the number of
+     *        shards each table is split into (at most {@value #MAX_SHARDS_PER_TABLE})
+     */
+    public BackgroundSweeper(LockAwareTransactionManager txManager,
+                             KeyValueService kvs,
+                             SweepTaskRunner sweepRunner,
+                             Supplier<Boolean> isSweepEnabled,
+                             Supplier<Long> sweepPauseMillis,
+                             Supplier<Integer> maxCellsDeletedPerSecond,
+                             SweepTableFactory tableFactory,
+                             int numWorkers) {
+        Preconditions.checkArgument(numWorkers > 0, "numWorkers must be positive");
         this.txManager = txManager;
         this.kvs = kvs;
         this.sweepRunner = sweepRunner;
         this.isSweepEnabled = isSweepEnabled;
         this.sweepPauseMillis = sweepPauseMillis;
+        this.maxCellsDeletedPerSecond = maxCellsDeletedPerSecond;
         this.tableFactory = tableFactory;
+        this.shardSplitter = new SweepShardSplitter(kvs);
+        this.numWorkers = numWorkers;
+        this.shardsPerTable = Math.min(numWorkers, MAX_SHARDS_PER_TABLE);
     }
 
     public synchronized void runInBackground() {
-        daemon = new Thread(this);
-        daemon.setDaemon(true);
-        daemon.setName("BackgroundSweeper");
-        daemon.start();
+        ImmutableList.Builder<Thread> threads = ImmutableList.builder();
+        for (int i = 0; i < numWorkers; i++) {
+            SweepWorkerMetrics metrics = new SweepWorkerMetrics();
+            JMXUtils.registerMBeanCatchAndLogExceptions(metrics, METRICS_OBJECT_NAME + i);
+            Thread daemon = new Thread(new SweepWorker(i, metrics));
+            daemon.setDaemon(true);
+            daemon.setName(numWorkers == 1 ? "BackgroundSweeper" : "BackgroundSweeper-" + i);
+            threads.add(daemon);
+        }
+        daemons = threads.build();
+        for (Thread daemon : daemons) {
+            daemon.start();
+        }
     }
 
-    @Override
-    public void run() {
-        Optional<LockRefreshToken> locks = Optional.absent();
-        try {
-            // Wait a while before starting so short lived clis don't try to sweep.
-            Thread.sleep(20 * (1000 + sweepPauseMillis.get()));
-            log.info("Starting background sweeper.");
-            while (true) {
-                boolean sweptSuccessfully = false;
-                try {
-                    if (isSweepEnabled.get()) {
-                        locks = lockOrRefresh(locks);
-                        if (locks.isPresent()) {
-                            sweptSuccessfully = txManager.runTaskWithLocksWithRetry(
-                                    ImmutableList.of(locks.get()),
-                                    Suppliers.<LockRequest>ofInstance(null),
-                                    LockAwareTransactionTasks.asLockAware(new RuntimeTransactionTask<Boolean>() {
-                                @Override
-                                public Boolean execute(Transaction t) {
-                                    return runOnce(t);
-                                }
-                            }));
+    @VisibleForTesting
+    SweepWorker createWorker(int index) {
+        return new SweepWorker(index, new SweepWorkerMetrics());
+    }
+
+    final class SweepWorker implements Runnable {
+        private final int index;
+        private final SweepWorkerMetrics metrics;
+        private Long shardId = null;
+
+        SweepWorker(int index, SweepWorkerMetrics metrics) {
+            this.index = index;
+            this.metrics = metrics;
+        }
+
+        @Override
+        public void run() {
+            try {
+                // Wait a while before starting so short lived clis don't try to sweep.
+                Thread.sleep(20 * (1000 + sweepPauseMillis.get()));
+                log.info("Starting background sweeper worker {}.", index);
+                while (true) {
+                    boolean sweptSuccessfully = false;
+                    try {
+                        if (isSweepEnabled.get()) {
+                            Optional<LockRefreshToken> token = lockOrRefresh();
+                            if (token.isPresent()) {
+                                sweptSuccessfully = runOnce(token.get());
+                            } else {
+                                log.debug("Skipping sweep because sweep is running elsewhere.");
+                            }
                         } else {
-                            log.debug("Skipping sweep because sweep is running elsewhere.");
+                            log.debug("Skipping sweep because it is currently disabled.");
                         }
+                    } catch (InsufficientConsistencyException e) {
+                        log.warn("Could not sweep because not all nodes of the database are online.", e);
+                    } catch (RuntimeException e) {
+                        log.error("The background sweep job failed unexpectedly. Attempting to continue regardless...", e);
+                    }
+                    if (sweptSuccessfully) {
+                        Thread.sleep(sweepPauseMillis.get());
                     } else {
-                        log.debug("Skipping sweep because it is currently disabled.");
+                        Thread.sleep(20 * (1000 + sweepPauseMillis.get()));
                     }
-                } catch (InsufficientConsistencyException e) {
-                    log.warn("Could not sweep because not all nodes of the database are online.", e);
-                } catch (RuntimeException e) {
-                    log.error("The background sweep job failed unexpectedly. Attempting to continue regardless...", e);
                 }
-                if (sweptSuccessfully) {
-                    Thread.sleep(sweepPauseMillis.get());
-                } else {
-                    Thread.sleep(20 * (1000 + sweepPauseMillis.get()));
+            } catch (InterruptedException e) {
+                log.info("Shutting down background sweeper worker {}.", index);
+            } finally {
+                if (shardId != null) {
+                    releaseShard(shardId);
                 }
             }
-        } catch (InterruptedException e) {
-            log.info("Shutting down background sweeper.");
-        } finally {
-            if (locks.isPresent()) {
-                txManager.getLockService().unlock(locks.get());
+        }
+
+        /**
+         * Sweeps one batch, returning whether there was anything to sweep.
+         */
+        @VisibleForTesting
+        boolean runOnce() throws InterruptedException {
+            Optional<LockRefreshToken> token = lockOrRefresh();
+            return token.isPresent() && runOnce(token.get());
+        }
+
+        private boolean runOnce(LockRefreshToken token) throws InterruptedException {
+            if (shardId == null) {
+                shardId = claimShard(token).orNull();
+                if (shardId == null) {
+                    log.debug("Skipping sweep because no table has enough new writes to be worth sweeping at the moment.");
+                    metrics.setCurrentTable(null);
+                    return false;
+                }
+            }
+            final long id = shardId;
+            Optional<SweepResults> results = txManager.runTaskWithLocksWithRetry(
+                    ImmutableList.of(token),
+                    Suppliers.<LockRequest>ofInstance(null),
+                    LockAwareTransactionTasks.asLockAware(new RuntimeTransactionTask<Optional<SweepResults>>() {
+                @Override
+                public Optional<SweepResults> execute(Transaction t) {
+                    return sweepNextBatch(t, id, metrics);
+                }
+            }));
+            if (!results.isPresent()) {
+                releaseShard(id);
+                shardId = null;
+                return false;
             }
+            if (!results.get().getNextStartRow().isPresent()) {
+                finishShard(token, id, results.get());
+                shardId = null;
+            }
+            metrics.recordBatch(results.get());
+            throttleDeletes(results.get().getCellsDeleted());
+            return true;
         }
     }
 
-    private boolean runOnce(Transaction t) {
+    private Optional<SweepResults> sweepNextBatch(Transaction t, long id, SweepWorkerMetrics metrics) {
         SweepProgressTable progressTable = tableFactory.getSweepProgressTable(t);
-        Optional<SweepProgressRowResult> optProgress = progressTable.getRow(SweepProgressRow.of(0));
-        if (!optProgress.isPresent()) {
-            optProgress = chooseNextTableToSweep(t);
-        }
+        Optional<SweepProgressRowResult> optProgress = progressTable.getRow(SweepProgressRow.of(id));
         if (!optProgress.isPresent()) {
-            log.debug("Skipping sweep because no table has enough new writes to be worth sweeping at the moment.");
-            return false;
+            return Optional.absent();
         }
         SweepProgressRowResult progress = optProgress.get();
+        metrics.setCurrentTable(progress.getFullTableName());
+        byte[] startRow = progress.hasStartRow() ? progress.getStartRow() : new byte[0];
+        byte[] endRow = progress.hasEndRow() ? progress.getEndRow() : new byte[0];
         Stopwatch watch = Stopwatch.createStarted();
-        SweepResults results = sweepRunner.run(progress.getFullTableName(), progress.getStartRow());
+        SweepResults results = sweepRunner.run(progress.getFullTableName(), startRow, endRow);
         log.debug("Swept {} unique cells from {} and performed {} deletions in {} ms.",
                 results.getCellsExamined(), progress.getFullTableName(), results.getCellsDeleted(), watch.elapsed(TimeUnit.MILLISECONDS));
-        saveSweepResults(t, progress, results);
-        return true;
+        if (results.getNextStartRow().isPresent()) {
+            SweepProgressRow row = SweepProgressRow.of(id);
+            progressTable.putStartRow(row, results.getNextStartRow().get());
+            progressTable.putCellsDeleted(row, getCellsDeleted(progress, results));
+            progressTable.putCellsExamined(row, getCellsExamined(progress, results));
+        }
+        return Optional.of(results);
     }
 
-    private Optional<SweepProgressRowResult> chooseNextTableToSweep(Transaction t) {
-        Set<String> allTables = Sets.difference(kvs.getAllTableNames(), AtlasDbConstants.hiddenTables);
-        SweepPriorityTable priorityTable = tableFactory.getSweepPriorityTable(t);
-        List<SweepPriorityRowResult> results = priorityTable.getAllRowsUnordered().immutableCopy();
-        Set<String> unsweptTables = Sets.difference(allTables, ImmutableSet.copyOf(Iterables.transform(results,
-                Functions.compose(SweepPriorityRow.getFullTableNameFun(), SweepPriorityRowResult.getRowNameFun()))));
-        Optional<String> optTableName = getTableToSweep(unsweptTables, results);
+    private Optional<Long> claimShard(LockRefreshToken token) throws InterruptedException {
+        synchronized (shardLock) {
+            Optional<Long> shard = txManager.runTaskWithLocksWithRetry(
+                    ImmutableList.of(token),
+                    Suppliers.<LockRequest>ofInstance(null),
+                    LockAwareTransactionTasks.asLockAware(new RuntimeTransactionTask<Optional<Long>>() {
+                @Override
+                public Optional<Long> execute(Transaction t) {
+                    return findOrCreateUnclaimedShard(t);
+                }
+            }));
+            if (shard.isPresent()) {
+                claimedShards.add(shard.get());
+            }
+            return shard;
+        }
+    }
+
+    private void releaseShard(long id) {
+        synchronized (shardLock) {
+            claimedShards.remove(id);
+        }
+    }
+
+    @GuardedBy("shardLock")
+    private Optional<Long> findOrCreateUnclaimedShard(Transaction t) {
+        SweepProgressTable progressTable = tableFactory.getSweepProgressTable(t);
+        List<SweepProgressRowResult> shards = progressTable.getAllRowsUnordered().immutableCopy();
+        Set<Long> shardIds = Sets.newHashSet();
+        Set<String> tablesBeingSwept = Sets.newHashSet();
+        for (SweepProgressRowResult shard : shards) {
+            shardIds.add(shard.getRowName().getDummy());
+            tablesBeingSwept.add(shard.getFullTableName());
+        }
+        for (SweepProgressRowResult shard : shards) {
+            long id = shard.getRowName().getDummy();
+            if (!claimedShards.contains(id)) {
+                if (!shard.hasEndRow() && shardsPerTable > 1) {
+                    splitUnshardedProgress(progressTable, shard, shardIds);
+                }
+                return Optional.of(id);
+            }
+        }
+
+        Optional<String> optTableName = chooseNextTableToSweep(t, tablesBeingSwept);
         if (!optTableName.isPresent()) {
             return Optional.absent();
         }
         String tableName = optTableName.get();
-        RowResult<byte[]> rawResult = RowResult.<byte[]>create(SweepProgressRow.of(0).persistToBytes(),
-                ImmutableSortedMap.<byte[], byte[]>orderedBy(UnsignedBytes.lexicographicalComparator())
-                    .put(SweepProgressTable.SweepProgressNamedColumn.FULL_TABLE_NAME.getShortName(),
-                         SweepProgressTable.FullTableName.of(tableName).persistValue())
-                    .build());
+        List<byte[]> splitRows = shardSplitter.getSplitRows(
+                tableName, new byte[0], new byte[0], sweepRunner.getSweepTimestamp(tableName), shardsPerTable);
+        List<Long> newShardIds = allocateShardIds(shardIds, splitRows.size() + 1);
+        for (int shard = 0; shard < newShardIds.size(); shard++) {
+            putShard(progressTable,
+                    newShardIds.get(shard),
+                    tableName,
+                    shard == 0 ? new byte[0] : splitRows.get(shard - 1),
+                    shard < splitRows.size() ? splitRows.get(shard) : new byte[0]);
+        }
 
         // We zero out the write count when we start sweeping a table, then reduce
         // it when we finish sweeping to account for new writes made during sweep that
-        // were likely swept along the way.
-        priorityTable.putWriteCount(SweepPriorityRow.of(tableName), 0L);
+        // were likely swept along the way.  The cell counts are summed up as each shard finishes.
+        SweepPriorityTable priorityTable = tableFactory.getSweepPriorityTable(t);
+        SweepPriorityRow row = SweepPriorityRow.of(tableName);
+        priorityTable.putWriteCount(row, 0L);
+        priorityTable.putCellsDeleted(row, 0L);
+        priorityTable.putCellsExamined(row, 0L);
+
+        log.info("Now starting to sweep {} in {} shards.", tableName, newShardIds.size());
+        return Optional.of(newShardIds.get(0));
+    }
+
+    /**
+     * Splits the rest of the table covered by a progress row written before tables were sharded.
+     * The row keeps its start row and totals and is bounded by the first split row, and the rest
+     * of the table goes to new shards.
+     */
+    private void splitUnshardedProgress(SweepProgressTable progressTable,
+                                        SweepProgressRowResult shard,
+                                        Set<Long> shardIds) {
+        String tableName = shard.getFullTableName();
+        byte[] startRow = shard.hasStartRow() ? shard.getStartRow() : new byte[0];
+        List<byte[]> splitRows = shardSplitter.getSplitRows(
+                tableName, startRow, new byte[0], sweepRunner.getSweepTimestamp(tableName), shardsPerTable);
+        if (splitRows.isEmpty()) {
+            progressTable.putEndRow(shard.getRowName(), new byte[0]);
+            return;
+        }
+        progressTable.putEndRow(shard.getRowName(), splitRows.get(0));
+        List<Long> newShardIds = allocateShardIds(shardIds, splitRows.size());
+        for (int i = 0; i < newShardIds.size(); i++) {
+            putShard(progressTable,
+                    newShardIds.get(i),
+                    tableName,
+                    splitRows.get(i),
+                    i + 1 < splitRows.size() ? splitRows.get(i + 1) : new byte[0]);
+        }
+        log.info("Split the rest of {} from an unsharded sweep into {} shards.", tableName, splitRows.size() + 1);
+    }
+
+    private static List<Long> allocateShardIds(Set<Long> usedIds, int count) {
+        List<Long> ids = Lists.newArrayList();
+        for (long id = 0; ids.size() < count; id++) {
+            if (!usedIds.contains(id)) {
+                ids.add(id);
+            }
+        }
+        usedIds.addAll(ids);
+        return ids;
+    }
 
-        log.info("Now starting to sweep {}.", tableName);
-        return Optional.of(SweepProgressRowResult.of(rawResult));
+    /**
+     * Writes a new shard.  The end row is always written, empty for the end of the table, so
+     * that shards are told apart from progress rows written before tables were sharded.
+     */
+    private static void putShard(SweepProgressTable progressTable,
+                                 long id,
+                                 String tableName,
+                                 byte[] startRow,
+                                 byte[] endRow) {
+        SweepProgressRow row = SweepProgressRow.of(id);
+        progressTable.putFullTableName(row, tableName);
+        if (startRow.length > 0) {
+            progressTable.putStartRow(row, startRow);
+        }
+        progressTable.putEndRow(row, endRow);
+    }
+
+    private Optional<String> chooseNextTableToSweep(Transaction t, Set<String> tablesBeingSwept) {
+        Set<String> allTables = Sets.difference(kvs.getAllTableNames(), AtlasDbConstants.hiddenTables);
+        SweepPriorityTable priorityTable = tableFactory.getSweepPriorityTable(t);
+        List<SweepPriorityRowResult> results = priorityTable.getAllRowsUnordered().immutableCopy();
+        Set<String> unsweptTables = Sets.difference(allTables, ImmutableSet.copyOf(Iterables.transform(results,
+                Functions.compose(SweepPriorityRow.getFullTableNameFun(), SweepPriorityRowResult.getRowNameFun()))));
+        return getTableToSweep(Sets.difference(unsweptTables, tablesBeingSwept), results, tablesBeingSwept);
     }
 
-    private Optional<String> getTableToSweep(Set<String> unsweptTables, List<SweepPriorityRowResult> results) {
+    private Optional<String> getTableToSweep(Set<String> unsweptTables,
+                                             List<SweepPriorityRowResult> results,
+                                             Set<String> tablesBeingSwept) {
         if (!unsweptTables.isEmpty()) {
             return Optional.of(Iterables.get(unsweptTables, 0));
         }
         double maxPriority = 0.0;
         String tableName = null;
         for (SweepPriorityRowResult result : results) {
+            if (tablesBeingSwept.contains(result.getRowName().getFullTableName())) {
+                continue;
+            }
             double priority = getSweepPriority(result);
             if (priority > maxPriority) {
                 maxPriority = priority;
@@ -249,44 +492,94 @@ public class BackgroundSweeper implements Runnable {
         return SweepPriorityTable.WriteCount.BYTES_HYDRATOR.hydrateFromBytes(value.getContents()).getValue();
     }
 
-    private void saveSweepResults(Transaction t, SweepProgressRowResult progress, SweepResults results) {
+    /**
+     * Records the totals of a shard that has been swept to the end of its range, finishing its
+     * table if it was the last shard of it.
+     */
+    private void finishShard(LockRefreshToken token, final long id, final SweepResults results)
+            throws InterruptedException {
+        Optional<String> tableToCompact;
+        synchronized (shardLock) {
+            tableToCompact = txManager.runTaskWithLocksWithRetry(
+                    ImmutableList.of(token),
+                    Suppliers.<LockRequest>ofInstance(null),
+                    LockAwareTransactionTasks.asLockAware(new RuntimeTransactionTask<Optional<String>>() {
+                @Override
+                public Optional<String> execute(Transaction t) {
+                    return saveShardResults(t, id, results);
+                }
+            }));
+            claimedShards.remove(id);
+        }
+        if (tableToCompact.isPresent()) {
+            Stopwatch watch = Stopwatch.createStarted();
+            kvs.compactInternally(tableToCompact.get());
+            log.info("Finished performing compactInternally on {} in {} ms.",
+                    tableToCompact.get(), watch.elapsed(TimeUnit.MILLISECONDS));
+        }
+    }
+
+    /**
+     * @return the shard's table if this finished sweeping it and cells were deleted from it
+     */
+    @GuardedBy("shardLock")
+    private Optional<String> saveShardResults(Transaction t, long id, SweepResults results) {
+        SweepProgressTable progressTable = tableFactory.getSweepProgressTable(t);
+        Optional<SweepProgressRowResult> optProgress = progressTable.getRow(SweepProgressRow.of(id));
+        if (!optProgress.isPresent()) {
+            return Optional.absent();
+        }
+        SweepProgressRowResult progress = optProgress.get();
+        String tableName = progress.getFullTableName();
+        boolean tableHasOtherShards = false;
+        boolean otherShardsExist = false;
+        for (SweepProgressRowResult shard : progressTable.getAllRowsUnordered().immutableCopy()) {
+            if (shard.getRowName().getDummy() != id) {
+                otherShardsExist = true;
+                tableHasOtherShards |= tableName.equals(shard.getFullTableName());
+            }
+        }
+
+        SweepPriorityTable priorityTable = tableFactory.getSweepPriorityTable(t);
+        SweepPriorityRow row = SweepPriorityRow.of(tableName);
+        Optional<SweepPriorityRowResult> priority = priorityTable.getRow(row);
         long cellsDeleted = getCellsDeleted(progress, results);
         long cellsExamined = getCellsExamined(progress, results);
-        if (results.getNextStartRow().isPresent()) {
-            SweepProgressTable progressTable = tableFactory.getSweepProgressTable(t);
-            SweepProgressRow row = SweepProgressRow.of(0);
-            progressTable.putFullTableName(row, progress.getFullTableName());
-            progressTable.putStartRow(row, results.getNextStartRow().get());
-            progressTable.putCellsDeleted(row, cellsDeleted);
-            progressTable.putCellsExamined(row, cellsExamined);
-        } else {
-            SweepPriorityTable priorityTable = tableFactory.getSweepPriorityTable(t);
-            SweepPriorityRow row = SweepPriorityRow.of(progress.getFullTableName());
-            priorityTable.putCellsDeleted(row, cellsDeleted);
-            priorityTable.putCellsExamined(row, cellsExamined);
-            priorityTable.putLastSweepTime(row, System.currentTimeMillis());
-
-            // Estimate that half of the new writes that occurred while sweeping got swept.
-            Long currentWriteCount = priorityTable.getWriteCounts(ImmutableList.of(row)).get(row);
-            long oldWriteCount = getOldWriteCount(row);
-            if (currentWriteCount != null && currentWriteCount > oldWriteCount) {
-                priorityTable.putWriteCount(row, currentWriteCount - oldWriteCount / 2);
-            }
+        if (priority.isPresent() && priority.get().hasCellsDeleted()) {
+            cellsDeleted += priority.get().getCellsDeleted();
+        }
+        if (priority.isPresent() && priority.get().hasCellsExamined()) {
+            cellsExamined += priority.get().getCellsExamined();
+        }
+        priorityTable.putCellsDeleted(row, cellsDeleted);
+        priorityTable.putCellsExamined(row, cellsExamined);
+
+        if (tableHasOtherShards) {
+            progressTable.delete(SweepProgressRow.of(id));
+            log.debug("Finished a shard of {}; other shards of it are still being swept.", tableName);
+            return Optional.absent();
+        }
 
-            log.info("Finished sweeping {}, examined {} unique cells, deleted {} cells.",
-                    progress.getFullTableName(), cellsExamined, cellsDeleted);
+        priorityTable.putLastSweepTime(row, System.currentTimeMillis());
 
-            if (cellsDeleted > 0) {
-                Stopwatch watch = Stopwatch.createStarted();
-                kvs.compactInternally(progress.getFullTableName());
-                log.info("Finished performing compactInternally on {} in {} ms.",
-                        progress.getFullTableName(), watch.elapsed(TimeUnit.MILLISECONDS));
-            }
+        // Estimate that half of the new writes that occurred while sweeping got swept.
+        Long currentWriteCount = priorityTable.getWriteCounts(ImmutableList.of(row)).get(row);
+        long oldWriteCount = getOldWriteCount(row);
+        if (currentWriteCount != null && currentWriteCount > oldWriteCount) {
+            priorityTable.putWriteCount(row, currentWriteCount - oldWriteCount / 2);
+        }
+
+        log.info("Finished sweeping {}, examined {} unique cells, deleted {} cells.",
+                tableName, cellsExamined, cellsDeleted);
 
-            // Truncate instead of delete because the progress table contains only
-            // a single row that has accumulated many overwrites.
-            kvs.truncateTable(tableFactory.getSweepProgressTable(t).getTableName());
+        if (otherShardsExist) {
+            progressTable.delete(SweepProgressRow.of(id));
+        } else {
+            // Truncate instead of delete once nothing is left to sweep, because the
+            // progress rows have accumulated many overwrites.
+            kvs.truncateTable(progressTable.getTableName());
         }
+        return cellsDeleted > 0 ? Optional.of(tableName) : Optional.<String>absent();
     }
 
     private long getCellsDeleted(SweepProgressRowResult progress, SweepResults results) {
@@ -327,17 +620,58 @@ public class BackgroundSweeper implements Runnable {
         }
     }
 
-    public synchronized void shutdown() {
-        if (daemon == null) {
+    private Optional<LockRefreshToken> lockOrRefresh() throws InterruptedException {
+        synchronized (lockTokenLock) {
+            locks = lockOrRefresh(locks);
+            return locks;
+        }
+    }
+
+    private void throttleDeletes(long cellsDeleted) throws InterruptedException {
+        int maxRate = maxCellsDeletedPerSecond.get();
+        if (maxRate <= 0 || cellsDeleted <= 0) {
             return;
         }
-        log.info("Signalling background sweeper to shut down.");
-        daemon.interrupt();
-        try {
-            daemon.join();
-            daemon = null;
-        } catch (InterruptedException e) {
-            throw Throwables.rewrapAndThrowUncheckedException(e);
+        if (deleteRateLimiter.getRate() != maxRate) {
+            deleteRateLimiter.setRate(maxRate);
+        }
+        // RateLimiter waits uninterruptibly, so acquire at most a second's worth at a time
+        // to keep shutdown responsive.
+        long remaining = cellsDeleted;
+        while (remaining > 0) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            int permits = (int) Math.min(remaining, maxRate);
+            deleteRateLimiter.acquire(permits);
+            remaining -= permits;
+        }
+    }
+
+    public synchronized void shutdown() {
+        if (!daemons.isEmpty()) {
+            log.info("Signalling background sweeper to shut down.");
+            for (Thread daemon : daemons) {
+                daemon.interrupt();
+            }
+            try {
+                for (Thread daemon : daemons) {
+                    daemon.join();
+                }
+                daemons = ImmutableList.of();
+            } catch (InterruptedException e) {
+                throw Throwables.rewrapAndThrowUncheckedException(e);
+            }
+            for (int i = 0; i < numWorkers; i++) {
+                JMXUtils.unregisterMBeanCatchAndLogExceptions(METRICS_OBJECT_NAME + i);
+            }
+        }
+        // Workers may also have been run directly, so release the sweep lock regardless.
+        synchronized (lockTokenLock) {
+            if (locks.isPresent()) {
+                txManager.getLockService().unlock(locks.get());
+                locks = Optional.absent();
+            }
         }
     }
 }
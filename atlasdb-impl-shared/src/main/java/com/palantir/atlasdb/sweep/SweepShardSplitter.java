@@ -0,0 +1,283 @@
+/**
+ * Copyright 2015 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.sweep;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.primitives.Bytes;
+import com.google.common.primitives.UnsignedBytes;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.util.paging.TokenBackedBasicResultsPage;
+
+/**
+ * Splits a range of a table's rows into shards holding roughly equal numbers of rows.
+ * <p>
+ * The split follows a sample of the rows actually in the table rather than the raw byte space,
+ * so tables whose row names share a long prefix are still split evenly.  The first few rows of
+ * the range are read, and the range is cut into sub-ranges on every byte following the prefix
+ * those rows share, plus exponentially wider sub-ranges past it at each shorter prefix.  The
+ * first rows of all sub-ranges are then read in a single
+ * {@link KeyValueService#getFirstBatchForRanges} call.  A sub-range with more rows than were
+ * read is dense; its size is estimated by assuming the rest of it is as dense as its first
+ * rows, and the largest dense sub-ranges are cut up the same way in the next round.  This
+ * stops once no dense sub-range holds much of the total, or after a bounded number of rounds
+ * and sub-ranges.  Shards are then cut at sampled rows so they get about equal estimated sizes.
+ */
+final class SweepShardSplitter {
+    private static final int SAMPLE_ROWS_PER_RANGE = 16;
+    private static final int MAX_SAMPLED_RANGES = 4096;
+    private static final int MAX_ROUNDS = 8;
+    private static final int MAX_PREFIX_LEVELS = 16;
+    private static final int MAX_CHILDREN_PER_RANGE = 256 + 8 * MAX_PREFIX_LEVELS;
+    // Stop refining once every dense sub-range is estimated to be at most this fraction of a shard.
+    private static final int MIN_RANGES_PER_SHARD = 8;
+    private static final double MAX_ESTIMATE = 1L << 40;
+    private static final Comparator<byte[]> COMPARATOR = UnsignedBytes.lexicographicalComparator();
+
+    private final KeyValueService kvs;
+
+    SweepShardSplitter(KeyValueService kvs) {
+        this.kvs = kvs;
+    }
+
+    /**
+     * Returns up to {@code numShards - 1} increasing rows strictly inside the range, each of
+     * which starts a new shard.  An empty end row means the end of the table.
+     */
+    List<byte[]> getSplitRows(String tableName, byte[] startRow, byte[] endRow, long timestamp, int numShards) {
+        if (numShards <= 1) {
+            return ImmutableList.of();
+        }
+        List<SampledRange> ranges = ImmutableList.of(new SampledRange(startRow, endRow));
+        sample(tableName, ranges, timestamp);
+        for (int round = 1; round < MAX_ROUNDS; round++) {
+            List<SampledRange> toSplit = getRangesToSplit(ranges, numShards);
+            if (toSplit.isEmpty()) {
+                break;
+            }
+            List<SampledRange> refined = Lists.newArrayList();
+            for (SampledRange range : ranges) {
+                if (toSplit.contains(range)) {
+                    refined.addAll(range.split());
+                } else {
+                    refined.add(range);
+                }
+            }
+            ranges = refined;
+            sample(tableName, ranges, timestamp);
+        }
+        return cut(ranges, numShards);
+    }
+
+    /**
+     * Returns the largest dense ranges that are too big a part of a shard, as many as fit in
+     * the remaining budget of sampled ranges.
+     */
+    private static List<SampledRange> getRangesToSplit(List<SampledRange> ranges, int numShards) {
+        double total = 0;
+        List<SampledRange> dense = Lists.newArrayList();
+        for (SampledRange range : ranges) {
+            total += range.estimate;
+            if (range.dense) {
+                dense.add(range);
+            }
+        }
+        Collections.sort(dense, new Comparator<SampledRange>() {
+            @Override
+            public int compare(SampledRange o1, SampledRange o2) {
+                return Double.compare(o2.estimate, o1.estimate);
+            }
+        });
+        double threshold = total / numShards / MIN_RANGES_PER_SHARD;
+        int budget = MAX_SAMPLED_RANGES - ranges.size();
+        List<SampledRange> toSplit = Lists.newArrayList();
+        for (SampledRange range : dense) {
+            if (range.estimate <= threshold || budget < MAX_CHILDREN_PER_RANGE) {
+                break;
+            }
+            toSplit.add(range);
+            budget -= MAX_CHILDREN_PER_RANGE;
+        }
+        return toSplit;
+    }
+
+    private void sample(String tableName, List<SampledRange> ranges, long timestamp) {
+        List<RangeRequest> requests = Lists.newArrayList();
+        for (SampledRange range : ranges) {
+            if (range.rows == null) {
+                requests.add(range.toRequest());
+            }
+        }
+        if (requests.isEmpty()) {
+            return;
+        }
+        Map<RangeRequest, TokenBackedBasicResultsPage<RowResult<Value>, byte[]>> pages =
+                kvs.getFirstBatchForRanges(tableName, requests, timestamp);
+        for (SampledRange range : ranges) {
+            if (range.rows == null) {
+                TokenBackedBasicResultsPage<RowResult<Value>, byte[]> page = pages.get(range.toRequest());
+                List<byte[]> rows = Lists.newArrayList();
+                for (RowResult<Value> row : page.getResults()) {
+                    rows.add(row.getRowName());
+                }
+                range.setSample(rows, page.moreResultsAvailable());
+            }
+        }
+    }
+
+    private static List<byte[]> cut(List<SampledRange> ranges, int numShards) {
+        double total = 0;
+        for (SampledRange range : ranges) {
+            total += range.estimate;
+        }
+        List<byte[]> splitRows = Lists.newArrayList();
+        double seen = 0;
+        int nextShard = 1;
+        for (SampledRange range : ranges) {
+            // A dense range is only ever cut at its start, a sparse one at any of its rows.
+            List<byte[]> points = range.dense ? ImmutableList.of(range.start) : range.rows;
+            double weightPerPoint = range.dense ? range.estimate : 1;
+            for (byte[] point : points) {
+                if (seen > 0 && nextShard < numShards && seen * numShards >= nextShard * total) {
+                    splitRows.add(point);
+                    while (nextShard < numShards && seen * numShards >= nextShard * total) {
+                        nextShard++;
+                    }
+                }
+                seen += weightPerPoint;
+            }
+        }
+        return splitRows;
+    }
+
+    /**
+     * The rows of [start, end), together with the first of them.
+     */
+    private static final class SampledRange {
+        final byte[] start;
+        final byte[] end;
+        List<byte[]> rows = null;
+        boolean dense = false;
+        double estimate = 0;
+
+        SampledRange(byte[] start, byte[] end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        RangeRequest toRequest() {
+            return RangeRequest.builder()
+                    .startRowInclusive(start)
+                    .endRowExclusive(end)
+                    .batchHint(SAMPLE_ROWS_PER_RANGE)
+                    .build();
+        }
+
+        void setSample(List<byte[]> sampledRows, boolean moreRows) {
+            rows = sampledRows;
+            dense = moreRows && !sampledRows.isEmpty();
+            estimate = dense ? estimateSize() : rows.size();
+        }
+
+        /**
+         * Estimates the number of rows in a dense range, assuming that the rows past the
+         * sample are as dense in the byte space as the sampled ones.
+         */
+        private double estimateSize() {
+            byte[] prefix = end.length > 0 ? getCommonPrefix(ImmutableList.of(start, end)) : new byte[0];
+            double low = toFraction(start, prefix);
+            double high = end.length > 0 ? toFraction(end, prefix) : 1.0;
+            double sampleHigh = toFraction(rows.get(rows.size() - 1), prefix);
+            if (sampleHigh <= low) {
+                return MAX_ESTIMATE;
+            }
+            double estimate = rows.size() * (high - low) / (sampleHigh - low);
+            return Math.max(rows.size(), Math.min(estimate, MAX_ESTIMATE));
+        }
+
+        /**
+         * Splits this range on every byte following the prefix shared by its sampled rows, and
+         * past that prefix into exponentially wider sub-ranges at each shorter prefix.  The
+         * sampled rows differ in the byte after their shared prefix, so they always end up in
+         * at least two sub-ranges.
+         */
+        List<SampledRange> split() {
+            byte[] prefix = getCommonPrefix(rows);
+            List<byte[]> boundaries = Lists.newArrayList();
+            for (int b = 0; b < 256; b++) {
+                boundaries.add(Bytes.concat(prefix, new byte[] { (byte) b }));
+            }
+            for (int level = prefix.length - 1; level >= Math.max(0, prefix.length - MAX_PREFIX_LEVELS); level--) {
+                int first = UnsignedBytes.toInt(prefix[level]);
+                for (int step = 1; first + step < 256; step *= 2) {
+                    byte[] boundary = Arrays.copyOf(prefix, level + 1);
+                    boundary[level] = (byte) (first + step);
+                    boundaries.add(boundary);
+                }
+            }
+
+            List<SampledRange> children = Lists.newArrayList();
+            byte[] childStart = start;
+            for (byte[] boundary : boundaries) {
+                if (COMPARATOR.compare(boundary, childStart) <= 0) {
+                    continue;
+                }
+                if (end.length > 0 && COMPARATOR.compare(boundary, end) >= 0) {
+                    break;
+                }
+                children.add(new SampledRange(childStart, boundary));
+                childStart = boundary;
+            }
+            children.add(new SampledRange(childStart, end));
+            return children;
+        }
+
+        /**
+         * Reads the eight bytes of the row following the prefix as a fraction in [0, 1).
+         */
+        private static double toFraction(byte[] row, byte[] prefix) {
+            double fraction = 0;
+            double scale = 1;
+            for (int i = prefix.length; i < Math.min(row.length, prefix.length + 8); i++) {
+                scale /= 256;
+                fraction += UnsignedBytes.toInt(row[i]) * scale;
+            }
+            return fraction;
+        }
+
+        private static byte[] getCommonPrefix(List<byte[]> rows) {
+            byte[] first = rows.get(0);
+            int length = first.length;
+            for (byte[] row : rows) {
+                int i = 0;
+                while (i < length && i < row.length && row[i] == first[i]) {
+                    i++;
+                }
+                length = i;
+            }
+            return Arrays.copyOf(first, length);
+        }
+    }
+}
@@ -97,6 +97,15 @@ public class SweepTaskRunner {
     }
 
     public SweepResults run(String tableName, @Nullable byte[] startRow) {
+        return run(tableName, startRow, null);
+    }
+
+    /**
+     * Sweeps one batch of rows of the given table, starting at startRow and stopping before
+     * endRow.  A null or empty endRow means the end of the table.  The returned next start row is
+     * absent once the range has been fully swept.
+     */
+    public SweepResults run(String tableName, @Nullable byte[] startRow, @Nullable byte[] endRow) {
         Preconditions.checkNotNull(tableName);
         Preconditions.checkState(!tableName.startsWith(AtlasDbConstants.NAMESPACE_PREFIX),
                 "The sweeper should not be run on tables passed through namespace mapping.");
@@ -122,8 +131,15 @@ public class SweepTaskRunner {
         if (startRow == null) {
             startRow = new byte[0];
         }
+        if (endRow == null) {
+            endRow = new byte[0];
+        }
         int batchSize = batchSizeSupplier.get();
-        RangeRequest rangeRequest = RangeRequest.builder().startRowInclusive(startRow).batchHint(batchSize).build();
+        RangeRequest rangeRequest = RangeRequest.builder()
+                .startRowInclusive(startRow)
+                .endRowExclusive(endRow)
+                .batchHint(batchSize)
+                .build();
 
         long sweepTimestamp = getSweepTimestamp(tableName);
         ClosableIterator<RowResult<Value>> valueResults;
@@ -0,0 +1,81 @@
+/**
+ * Copyright 2015 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.sweep;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.palantir.atlasdb.keyvalue.api.SweepResults;
+
+/**
+ * Counts the cells one {@link BackgroundSweeper} worker has examined and deleted.  Rates are
+ * averaged over the wall clock time since the stats were last cleared, so time spent paused
+ * between batches counts against them.
+ */
+@ThreadSafe
+class SweepWorkerMetrics implements SweepWorkerMetricsMBean {
+    private final AtomicLong cellsExamined = new AtomicLong();
+    private final AtomicLong cellsDeleted = new AtomicLong();
+    private volatile long startNanos = System.nanoTime();
+    private volatile String currentTable = null;
+
+    void setCurrentTable(String tableName) {
+        currentTable = tableName;
+    }
+
+    void recordBatch(SweepResults results) {
+        cellsExamined.addAndGet(results.getCellsExamined());
+        cellsDeleted.addAndGet(results.getCellsDeleted());
+    }
+
+    @Override
+    public String getCurrentTable() {
+        return currentTable;
+    }
+
+    @Override
+    public long getCellsExamined() {
+        return cellsExamined.get();
+    }
+
+    @Override
+    public long getCellsDeleted() {
+        return cellsDeleted.get();
+    }
+
+    @Override
+    public double getCellsExaminedPerSecond() {
+        return perSecond(cellsExamined.get());
+    }
+
+    @Override
+    public double getCellsDeletedPerSecond() {
+        return perSecond(cellsDeleted.get());
+    }
+
+    private double perSecond(long count) {
+        long elapsedNanos = Math.max(1, System.nanoTime() - startNanos);
+        return count * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public void clearStats() {
+        startNanos = System.nanoTime();
+        cellsExamined.set(0);
+        cellsDeleted.set(0);
+    }
+}
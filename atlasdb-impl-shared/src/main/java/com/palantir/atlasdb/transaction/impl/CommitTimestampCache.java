@@ -0,0 +1,207 @@
+/**
+ * Copyright 2015 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.impl;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.google.common.base.Preconditions;
+import com.palantir.util.JMXUtils;
+
+/**
+ * A bounded cache from start timestamp to commit timestamp that may be shared by every
+ * transaction created by a transaction manager.
+ * <p>
+ * Once a start timestamp has a commit timestamp (or {@link TransactionConstants#FAILED_COMMIT_TS})
+ * written for it the mapping can never change, so entries never need to be invalidated and any
+ * transaction may safely use a mapping another transaction has already looked up.
+ * <p>
+ * Entries are held in striped, direct-mapped primitive arrays.  A put that hashes to an occupied
+ * slot evicts the previous entry, so the cache never holds more than its capacity.
+ */
+@ThreadSafe
+public class CommitTimestampCache implements CommitTimestampCacheMBean {
+    public static final int DEFAULT_SIZE = 1 << 17;
+    public static final String OBJECT_NAME = "com.palantir.atlasdb:type=CommitTimestampCache";
+
+    private static final int SEGMENT_SHIFT = 6;
+    private static final int NUM_SEGMENTS = 1 << SEGMENT_SHIFT;
+    private static final long EMPTY_KEY = Long.MIN_VALUE;
+
+    private final Segment[] segments;
+    private final int capacity;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong puts = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public static CommitTimestampCache create() {
+        return new CommitTimestampCache(DEFAULT_SIZE);
+    }
+
+    /**
+     * @param size the number of entries to hold, which is rounded up so that every segment holds a
+     *        power of two entries.  {@link #getMaxCacheSize()} returns the rounded size.
+     */
+    public static CommitTimestampCache create(int size) {
+        return new CommitTimestampCache(size);
+    }
+
+    private CommitTimestampCache(int size) {
+        Preconditions.checkArgument(size > 0, "size must be positive");
+        int minSegmentSize = (size + NUM_SEGMENTS - 1) / NUM_SEGMENTS;
+        int segmentSize = minSegmentSize == 1 ? 1 : Integer.highestOneBit(minSegmentSize - 1) << 1;
+        this.segments = new Segment[NUM_SEGMENTS];
+        for (int i = 0; i < NUM_SEGMENTS; i++) {
+            segments[i] = new Segment(segmentSize);
+        }
+        this.capacity = segmentSize * NUM_SEGMENTS;
+    }
+
+    /**
+     * @return the commit timestamp for the given start timestamp, or null if it is not cached
+     */
+    @Nullable
+    public Long get(long startTimestamp) {
+        int hash = hash(startTimestamp);
+        Segment segment = segments[hash & (NUM_SEGMENTS - 1)];
+        int slot = (hash >>> SEGMENT_SHIFT) & segment.mask;
+        synchronized (segment) {
+            if (segment.keys[slot] == startTimestamp) {
+                hits.incrementAndGet();
+                return segment.values[slot];
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    public void put(long startTimestamp, long commitTimestamp) {
+        Preconditions.checkArgument(startTimestamp != EMPTY_KEY);
+        int hash = hash(startTimestamp);
+        Segment segment = segments[hash & (NUM_SEGMENTS - 1)];
+        int slot = (hash >>> SEGMENT_SHIFT) & segment.mask;
+        puts.incrementAndGet();
+        synchronized (segment) {
+            long existing = segment.keys[slot];
+            if (existing != EMPTY_KEY && existing != startTimestamp) {
+                evictions.incrementAndGet();
+            } else if (existing == EMPTY_KEY) {
+                segment.size++;
+            }
+            segment.keys[slot] = startTimestamp;
+            segment.values[slot] = commitTimestamp;
+        }
+    }
+
+    /**
+     * Registers this cache's statistics with JMX under {@link #OBJECT_NAME}.
+     */
+    public void registerMBean() {
+        registerMBean(OBJECT_NAME);
+    }
+
+    public void registerMBean(String objectName) {
+        JMXUtils.registerMBeanCatchAndLogExceptions(this, objectName);
+    }
+
+    private static int hash(long key) {
+        // Timestamps are handed out sequentially, so spread the low bits across both the
+        // segment index and the slot index.
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    @Override
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    @Override
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    @Override
+    public long getPutCount() {
+        return puts.get();
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    @Override
+    public float getCacheHitPercentage() {
+        long hit = hits.get();
+        long miss = misses.get();
+        if (hit + miss == 0) {
+            return 100.f;
+        }
+        return 100.0f * hit / (hit + miss);
+    }
+
+    @Override
+    public int getSize() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size;
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public int getMaxCacheSize() {
+        return capacity;
+    }
+
+    @Override
+    public void clearCacheAndStats() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+        hits.set(0);
+        misses.set(0);
+        puts.set(0);
+        evictions.set(0);
+    }
+
+    private static final class Segment {
+        final long[] keys;
+        final long[] values;
+        final int mask;
+        int size = 0;
+
+        Segment(int size) {
+            this.keys = new long[size];
+            this.values = new long[size];
+            this.mask = size - 1;
+            Arrays.fill(keys, EMPTY_KEY);
+        }
+
+        synchronized void clear() {
+            Arrays.fill(keys, EMPTY_KEY);
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/**
+ * Copyright 2015 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.impl;
+
+import java.io.Closeable;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import com.google.common.collect.Range;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.common.base.ClosableIterator;
+
+/**
+ * Holds what a serializable transaction has read, as one sorted map from cell to a long per
+ * table.  The long is whatever the transaction needs to check the read at commit time, such as a
+ * hash of the value or the start timestamp of the version read.
+ * <p>
+ * A cell that is put more than once keeps one of the values it was put with; reads of one snapshot
+ * always put the same value for a cell.
+ */
+public interface ReadSetStore extends Closeable {
+    void putAll(String table, Map<Cell, Long> values);
+
+    Set<String> getTables();
+
+    /**
+     * @return the value of each of the given cells that is in the store
+     */
+    Map<Cell, Long> getAll(String table, Iterable<Cell> cells);
+
+    /**
+     * @return the entries of the table whose cells are in the range, in cell order
+     */
+    ClosableIterator<Entry<Cell, Long>> getRange(String table, Range<Cell> cells);
+
+    /**
+     * Frees everything the store holds.  The store may not be used afterwards.
+     */
+    @Override
+    void close();
+}
@@ -15,41 +15,51 @@
  */
 package com.palantir.atlasdb.transaction.impl;
 
-import java.nio.ByteBuffer;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.NavigableMap;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.SortedSet;
 import java.util.TreeSet;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ConcurrentNavigableMap;
-import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
 
 import org.apache.commons.lang.Validate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Function;
-import com.google.common.base.Functions;
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
+import com.google.common.base.Stopwatch;
 import com.google.common.base.Supplier;
 import com.google.common.base.Suppliers;
+import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
+import com.google.common.collect.Range;
 import com.google.common.collect.Sets;
+import com.google.common.hash.Hashing;
 import com.google.common.primitives.UnsignedBytes;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.palantir.atlasdb.AtlasDbConstants;
 import com.palantir.atlasdb.cleaner.Cleaner;
 import com.palantir.atlasdb.cleaner.NoOpCleaner;
 import com.palantir.atlasdb.encoding.PtBytes;
@@ -59,6 +69,7 @@ import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RangeRequests;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.atlasdb.keyvalue.impl.Cells;
 import com.palantir.atlasdb.transaction.api.AtlasDbConstraintCheckingMode;
 import com.palantir.atlasdb.transaction.api.ConflictHandler;
@@ -70,6 +81,7 @@ import com.palantir.common.annotation.Idempotent;
 import com.palantir.common.base.AbortingVisitor;
 import com.palantir.common.base.BatchingVisitable;
 import com.palantir.common.base.BatchingVisitableView;
+import com.palantir.common.base.ClosableIterator;
 import com.palantir.common.collect.IterableUtils;
 import com.palantir.common.collect.Maps2;
 import com.palantir.lock.LockRefreshToken;
@@ -86,11 +98,39 @@ import com.palantir.util.Pair;
  * If every table was marked as Serializable then we wouldn't need to also do write write conflict checking.
  * However, it is very common that we will be running in a mixed mode so this implementation does the standard
  * write/write conflict checking as well as preventing read/write conflicts to attain serializability.
+ * <p>
+ * How reads are checked at commit time is decided by the {@link ReadValidationMode}.
  */
 public class SerializableTransaction extends SnapshotTransaction {
     private final static Logger log = LoggerFactory.getLogger(SerializableTransaction.class);
+    private static final Logger perfLogger = LoggerFactory.getLogger("dualschema.perf");
+
+    public enum ReadValidationMode {
+        /**
+         * Keeps every value read and reads them all again at our commit timestamp to compare them.
+         */
+        VALUES,
+        /**
+         * Keeps only the start timestamp of each version read, and checks at commit time that no
+         * newer version of a cell read has committed before our commit timestamp.  The latest
+         * timestamps are fetched with {@link KeyValueService#getLatestTimestamps} and ranges with
+         * {@link KeyValueService#getRangeOfTimestamps}, so no values are read again.
+         * <p>
+         * Rows read with all columns keep their values and are compared as in {@link #VALUES},
+         * because a column added to such a row has no timestamp we could have read.  So do reverse
+         * range reads, temp tables and other tables that are not post filtered.
+         */
+        TIMESTAMPS,
+    }
 
-    final ConcurrentMap<String, ConcurrentNavigableMap<Cell, byte[]>> readsByTable = Maps.newConcurrentMap();
+    private static final String TIMESTAMPS_TABLE_PREFIX = "timestamps read:";
+
+    private final ReadValidationMode readValidationMode;
+
+    // Hashes of the values read, for reads checked by value, and start timestamps of the versions
+    // read, for reads checked by timestamp, under timestampsTable(table).  One store, so both share
+    // its memory budget.
+    private final ReadSetStore readSet;
     final ConcurrentMap<String, ConcurrentMap<RangeRequest, byte[]>> rangeEndByTable = Maps.newConcurrentMap();
     final ConcurrentMap<String, Set<Cell>> cellsRead = Maps.newConcurrentMap();
     final ConcurrentMap<String, Set<RowRead>> rowsRead = Maps.newConcurrentMap();
@@ -109,6 +149,197 @@ public class SerializableTransaction extends SnapshotTransaction {
                                    Long transactionTimeoutMillis,
                                    TransactionReadSentinelBehavior readSentinelBehavior,
                                    boolean allowHiddenTableAccess) {
+        this(keyValueService,
+             lockService,
+             timestampService,
+             transactionService,
+             cleaner,
+             startTimeStamp,
+             conflictDetectionManager,
+             sweepStrategyManager,
+             immutableTimestamp,
+             tokensValidForCommit,
+             constraintCheckingMode,
+             transactionTimeoutMillis,
+             readSentinelBehavior,
+             allowHiddenTableAccess,
+             CommitTimestampCache.create(PER_TRANSACTION_COMMIT_TS_CACHE_SIZE));
+    }
+
+    public SerializableTransaction(KeyValueService keyValueService,
+                                   RemoteLockService lockService,
+                                   TimestampService timestampService,
+                                   TransactionService transactionService,
+                                   Cleaner cleaner,
+                                   Supplier<Long> startTimeStamp,
+                                   ConflictDetectionManager conflictDetectionManager,
+                                   SweepStrategyManager sweepStrategyManager,
+                                   long immutableTimestamp,
+                                   Iterable<LockRefreshToken> tokensValidForCommit,
+                                   AtlasDbConstraintCheckingMode constraintCheckingMode,
+                                   Long transactionTimeoutMillis,
+                                   TransactionReadSentinelBehavior readSentinelBehavior,
+                                   boolean allowHiddenTableAccess,
+                                   CommitTimestampCache commitTimestampCache) {
+        this(keyValueService,
+             lockService,
+             timestampService,
+             transactionService,
+             cleaner,
+             startTimeStamp,
+             conflictDetectionManager,
+             sweepStrategyManager,
+             immutableTimestamp,
+             tokensValidForCommit,
+             constraintCheckingMode,
+             transactionTimeoutMillis,
+             readSentinelBehavior,
+             allowHiddenTableAccess,
+             commitTimestampCache,
+             ReadValidationMode.VALUES);
+    }
+
+    public SerializableTransaction(KeyValueService keyValueService,
+                                   RemoteLockService lockService,
+                                   TimestampService timestampService,
+                                   TransactionService transactionService,
+                                   Cleaner cleaner,
+                                   Supplier<Long> startTimeStamp,
+                                   ConflictDetectionManager conflictDetectionManager,
+                                   SweepStrategyManager sweepStrategyManager,
+                                   long immutableTimestamp,
+                                   Iterable<LockRefreshToken> tokensValidForCommit,
+                                   AtlasDbConstraintCheckingMode constraintCheckingMode,
+                                   Long transactionTimeoutMillis,
+                                   TransactionReadSentinelBehavior readSentinelBehavior,
+                                   boolean allowHiddenTableAccess,
+                                   CommitTimestampCache commitTimestampCache,
+                                   ReadValidationMode readValidationMode) {
+        this(keyValueService,
+             lockService,
+             timestampService,
+             transactionService,
+             cleaner,
+             startTimeStamp,
+             conflictDetectionManager,
+             sweepStrategyManager,
+             immutableTimestamp,
+             tokensValidForCommit,
+             constraintCheckingMode,
+             transactionTimeoutMillis,
+             readSentinelBehavior,
+             allowHiddenTableAccess,
+             commitTimestampCache,
+             readValidationMode,
+             SpillingReadSetStore.supplier(SpillingReadSetStore.DEFAULT_MAX_BYTES_IN_MEMORY));
+    }
+
+    /**
+     * @param readSetStoreSupplier creates the store that holds what this transaction read until
+     *        it commits or aborts
+     */
+    public SerializableTransaction(KeyValueService keyValueService,
+                                   RemoteLockService lockService,
+                                   TimestampService timestampService,
+                                   TransactionService transactionService,
+                                   Cleaner cleaner,
+                                   Supplier<Long> startTimeStamp,
+                                   ConflictDetectionManager conflictDetectionManager,
+                                   SweepStrategyManager sweepStrategyManager,
+                                   long immutableTimestamp,
+                                   Iterable<LockRefreshToken> tokensValidForCommit,
+                                   AtlasDbConstraintCheckingMode constraintCheckingMode,
+                                   Long transactionTimeoutMillis,
+                                   TransactionReadSentinelBehavior readSentinelBehavior,
+                                   boolean allowHiddenTableAccess,
+                                   CommitTimestampCache commitTimestampCache,
+                                   ReadValidationMode readValidationMode,
+                                   Supplier<? extends ReadSetStore> readSetStoreSupplier) {
+        this(keyValueService,
+             lockService,
+             timestampService,
+             transactionService,
+             cleaner,
+             startTimeStamp,
+             conflictDetectionManager,
+             sweepStrategyManager,
+             immutableTimestamp,
+             tokensValidForCommit,
+             constraintCheckingMode,
+             transactionTimeoutMillis,
+             readSentinelBehavior,
+             allowHiddenTableAccess,
+             commitTimestampCache,
+             readValidationMode,
+             readSetStoreSupplier,
+             MoreExecutors.newDirectExecutorService());
+    }
+
+    /**
+     * @param conflictCheckingExecutor runs the write write and read write conflict checks at
+     *        commit time
+     */
+    public SerializableTransaction(KeyValueService keyValueService,
+                                   RemoteLockService lockService,
+                                   TimestampService timestampService,
+                                   TransactionService transactionService,
+                                   Cleaner cleaner,
+                                   Supplier<Long> startTimeStamp,
+                                   ConflictDetectionManager conflictDetectionManager,
+                                   SweepStrategyManager sweepStrategyManager,
+                                   long immutableTimestamp,
+                                   Iterable<LockRefreshToken> tokensValidForCommit,
+                                   AtlasDbConstraintCheckingMode constraintCheckingMode,
+                                   Long transactionTimeoutMillis,
+                                   TransactionReadSentinelBehavior readSentinelBehavior,
+                                   boolean allowHiddenTableAccess,
+                                   CommitTimestampCache commitTimestampCache,
+                                   ReadValidationMode readValidationMode,
+                                   Supplier<? extends ReadSetStore> readSetStoreSupplier,
+                                   ExecutorService conflictCheckingExecutor) {
+        this(keyValueService,
+             lockService,
+             timestampService,
+             transactionService,
+             cleaner,
+             startTimeStamp,
+             conflictDetectionManager,
+             sweepStrategyManager,
+             immutableTimestamp,
+             tokensValidForCommit,
+             constraintCheckingMode,
+             transactionTimeoutMillis,
+             readSentinelBehavior,
+             allowHiddenTableAccess,
+             commitTimestampCache,
+             readValidationMode,
+             readSetStoreSupplier,
+             conflictCheckingExecutor,
+             null);
+    }
+
+    /**
+     * @param valueCache a cache of committed values shared with other transactions, or null
+     */
+    public SerializableTransaction(KeyValueService keyValueService,
+                                   RemoteLockService lockService,
+                                   TimestampService timestampService,
+                                   TransactionService transactionService,
+                                   Cleaner cleaner,
+                                   Supplier<Long> startTimeStamp,
+                                   ConflictDetectionManager conflictDetectionManager,
+                                   SweepStrategyManager sweepStrategyManager,
+                                   long immutableTimestamp,
+                                   Iterable<LockRefreshToken> tokensValidForCommit,
+                                   AtlasDbConstraintCheckingMode constraintCheckingMode,
+                                   Long transactionTimeoutMillis,
+                                   TransactionReadSentinelBehavior readSentinelBehavior,
+                                   boolean allowHiddenTableAccess,
+                                   CommitTimestampCache commitTimestampCache,
+                                   ReadValidationMode readValidationMode,
+                                   Supplier<? extends ReadSetStore> readSetStoreSupplier,
+                                   ExecutorService conflictCheckingExecutor,
+                                   @Nullable TransactionValueCache valueCache) {
         super(keyValueService,
               lockService,
               timestampService,
@@ -122,7 +353,12 @@ public class SerializableTransaction extends SnapshotTransaction {
               constraintCheckingMode,
               transactionTimeoutMillis,
               readSentinelBehavior,
-              allowHiddenTableAccess);
+              allowHiddenTableAccess,
+              commitTimestampCache,
+              conflictCheckingExecutor,
+              valueCache);
+        this.readValidationMode = Preconditions.checkNotNull(readValidationMode);
+        this.readSet = readSetStoreSupplier.get();
     }
 
     @Override
@@ -190,16 +426,6 @@ public class SerializableTransaction extends SnapshotTransaction {
         };
     }
 
-    private ConcurrentNavigableMap<Cell, byte[]> getReadsForTable(String table) {
-        ConcurrentNavigableMap<Cell, byte[]> reads = readsByTable.get(table);
-        if (reads == null) {
-            ConcurrentNavigableMap<Cell, byte[]> newMap = new ConcurrentSkipListMap<Cell, byte[]>();
-            readsByTable.putIfAbsent(table, newMap);
-            reads = readsByTable.get(table);
-        }
-        return reads;
-    }
-
     private void setRangeEnd(String table, RangeRequest range, byte[] maxRow) {
         Validate.notNull(maxRow);
         ConcurrentMap<RangeRequest, byte[]> rangeEnds = rangeEndByTable.get(table);
@@ -239,6 +465,23 @@ public class SerializableTransaction extends SnapshotTransaction {
         return getConflictHandlerForTable(table) == ConflictHandler.SERIALIZABLE;
     }
 
+    /**
+     * Tables that are not post filtered never report the versions we read, so they always keep
+     * their values.
+     */
+    private boolean isValidatedByTimestamp(String table) {
+        return readValidationMode == ReadValidationMode.TIMESTAMPS
+                && !isTempTable(table)
+                && !(AtlasDbConstants.SKIP_POSTFILTER_TABLES.contains(table) && allowHiddenTableAccess);
+    }
+
+    @Override
+    protected void markVisibleValues(String tableName, Map<Cell, Long> startTimestampsByCell) {
+        if (isValidatedByTimestamp(tableName) && isSerializableTable(tableName)) {
+            readSet.putAll(timestampsTable(tableName), startTimestampsByCell);
+        }
+    }
+
 
     /**
      * This exists to transform the incoming byte[] to cloned one to ensure that all the byte array
@@ -248,29 +491,51 @@ public class SerializableTransaction extends SnapshotTransaction {
         return map;
     }
 
+    private void markValuesRead(String table, Map<Cell, byte[]> values) {
+        readSet.putAll(table, Maps.transformValues(transformGetsForTesting(values), HASH_VALUE));
+    }
+
+    /**
+     * Reads are checked against 64 bit hashes of the values, so that the values need not be kept.
+     */
+    private static long hashValue(byte[] value) {
+        return Hashing.murmur3_128().hashBytes(value).asLong();
+    }
+
+    private static final Function<byte[], Long> HASH_VALUE = new Function<byte[], Long>() {
+        @Override
+        public Long apply(byte[] value) {
+            return hashValue(value);
+        }
+    };
+
     private void markCellsRead(String table, Set<Cell> searched, Map<Cell, byte[]> result) {
         if (!isSerializableTable(table)) {
             return;
         }
-        result = transformGetsForTesting(result);
-        getReadsForTable(table).putAll(result);
+        if (!isValidatedByTimestamp(table)) {
+            markValuesRead(table, result);
+        }
+        addCellsRead(table, searched);
+    }
+
+    private void addCellsRead(String table, Iterable<Cell> searched) {
         Set<Cell> cellsForTable = cellsRead.get(table);
         if (cellsForTable == null) {
             cellsRead.putIfAbsent(table, Sets.<Cell>newConcurrentHashSet());
             cellsForTable = cellsRead.get(table);
         }
-        cellsForTable.addAll(searched);
+        Iterables.addAll(cellsForTable, searched);
     }
 
     private void markRangeRead(String table, RangeRequest range, List<RowResult<byte[]>> result) {
         if (!isSerializableTable(table)) {
             return;
         }
-        ConcurrentNavigableMap<Cell, byte[]> reads = getReadsForTable(table);
-        for (RowResult<byte[]> row : result) {
-            Map<Cell, byte[]> map = Maps2.fromEntries(row.getCells());
-            map = transformGetsForTesting(map);
-            reads.putAll(map);
+        if (!isValidatedByTimestamp(table) || range.isReverse()) {
+            for (RowResult<byte[]> row : result) {
+                markValuesRead(table, Maps2.fromEntries(row.getCells()));
+            }
         }
         setRangeEnd(table, range, result.get(result.size()-1).getRowName());
     }
@@ -289,11 +554,19 @@ public class SerializableTransaction extends SnapshotTransaction {
         if (!isSerializableTable(table)) {
             return;
         }
-        ConcurrentNavigableMap<Cell, byte[]> reads = getReadsForTable(table);
+        if (isValidatedByTimestamp(table) && !cols.allColumnsSelected()) {
+            // Every cell that could have been read is known, so they are checked like single cells.
+            List<Cell> cells = Lists.newArrayList();
+            for (byte[] row : rows) {
+                for (byte[] col : cols.getSelectedColumns()) {
+                    cells.add(Cell.create(row, col));
+                }
+            }
+            addCellsRead(table, cells);
+            return;
+        }
         for (RowResult<byte[]> row : result) {
-            Map<Cell, byte[]> map = Maps2.fromEntries(row.getCells());
-            map = transformGetsForTesting(map);
-            reads.putAll(map);
+            markValuesRead(table, Maps2.fromEntries(row.getCells()));
         }
         Set<RowRead> rowReads = rowsRead.get(table);
         if (rowReads == null) {
@@ -316,17 +589,80 @@ public class SerializableTransaction extends SnapshotTransaction {
         super.put(tableName, values);
     }
 
+    @Override
+    public void commit(TransactionService transactionService) {
+        try {
+            super.commit(transactionService);
+        } finally {
+            closeReadSets();
+        }
+    }
+
+    @Override
+    public void abort() {
+        try {
+            super.abort();
+        } finally {
+            closeReadSets();
+        }
+    }
+
+    private void closeReadSets() {
+        readSet.close();
+    }
+
+    /**
+     * Timestamps read are kept apart from value hashes read under a name no table can have.
+     */
+    private static String timestampsTable(String table) {
+        return TIMESTAMPS_TABLE_PREFIX + table;
+    }
+
     @Override
     protected void throwIfReadWriteConflictForSerializable(long commitTimestamp) {
         Transaction ro = getReadOnlyTransaction(commitTimestamp);
-        verifyRanges(ro);
-        verifyCells(ro);
-        verifyRows(ro);
+        AtomicLong nanosForRanges = new AtomicLong();
+        AtomicLong nanosForCells = new AtomicLong();
+        AtomicLong nanosForRows = new AtomicLong();
+        List<Runnable> checks = Lists.newArrayList();
+        addTimedChecks(checks, getRangeChecks(ro, commitTimestamp), nanosForRanges);
+        addTimedChecks(checks, getCellChecks(ro, commitTimestamp), nanosForCells);
+        addTimedChecks(checks, getRowChecks(ro), nanosForRows);
+        Stopwatch watch = Stopwatch.createStarted();
+        runConflictChecks(checks);
+        if (perfLogger.isDebugEnabled()) {
+            perfLogger.debug("Checked reads of start ts {} for read write conflicts with {} checks in {} ms: " +
+                    "ranges took {} ms, cells took {} ms, rows took {} ms.",
+                    getTimestamp(), checks.size(), watch.elapsed(TimeUnit.MILLISECONDS),
+                    TimeUnit.NANOSECONDS.toMillis(nanosForRanges.get()),
+                    TimeUnit.NANOSECONDS.toMillis(nanosForCells.get()),
+                    TimeUnit.NANOSECONDS.toMillis(nanosForRows.get()));
+        }
     }
 
-    private void verifyRows(Transaction ro) {
-        for (String table : rowsRead.keySet()) {
-            final ConcurrentNavigableMap<Cell, byte[]> readsForTable = getReadsForTable(table);
+    /**
+     * The time each check takes is added to nanos.  Checks may run in parallel, so this is the
+     * total time spent on them rather than how long they delayed the commit.
+     */
+    private static void addTimedChecks(List<Runnable> checks, List<Runnable> toAdd, final AtomicLong nanos) {
+        for (final Runnable check : toAdd) {
+            checks.add(new Runnable() {
+                @Override
+                public void run() {
+                    long start = System.nanoTime();
+                    try {
+                        check.run();
+                    } finally {
+                        nanos.addAndGet(System.nanoTime() - start);
+                    }
+                }
+            });
+        }
+    }
+
+    private List<Runnable> getRowChecks(final Transaction ro) {
+        List<Runnable> checks = Lists.newArrayList();
+        for (final String table : rowsRead.keySet()) {
             Multimap<ColumnSelection, byte[]> map = Multimaps.newSortedSetMultimap(Maps.<ColumnSelection, Collection<byte[]>>newHashMap(), new Supplier<SortedSet<byte[]>>() {
                 @Override
                 public TreeSet<byte[]> get() {
@@ -337,143 +673,304 @@ public class SerializableTransaction extends SnapshotTransaction {
                 map.putAll(r.cols, r.rows);
             }
             for (final ColumnSelection cols : map.keySet()) {
-                for (List<byte[]> batch : Iterables.partition(map.get(cols), 1000)) {
-                    SortedMap<byte[], RowResult<byte[]>> currentRows = ro.getRows(table, batch, cols);
-                    for (byte[] row : batch) {
-                        RowResult<byte[]> currentRow = currentRows.get(row);
-                        Map<Cell, byte[]> orignalReads = readsForTable.tailMap(Cells.createSmallestCellForRow(row), true).headMap(Cells.createLargestCellForRow(row), true);
-
-                        // We want to filter out all our reads to just the set that matches our column selection.
-                        orignalReads = Maps.filterKeys(orignalReads, new Predicate<Cell>() {
-                            @Override
-                            public boolean apply(Cell input) {
-                                return cols.contains(input.getColumnName());
-                            }
-                        });
-
-                        if (writesByTable.get(table) != null) {
-                            // We don't want to verify any reads that we wrote to cause we will just read our own values.
-                            // NB: We filter our write set out here because our normal SI checking handles this case to ensure the value hasn't changed.
-                            orignalReads = Maps.filterKeys(orignalReads, Predicates.not(Predicates.in(writesByTable.get(table).keySet())));
-                        }
-
-                        if (currentRow == null && orignalReads.isEmpty()) {
-                            continue;
+                for (final List<byte[]> batch : Iterables.partition(map.get(cols), 1000)) {
+                    checks.add(new Runnable() {
+                        @Override
+                        public void run() {
+                            verifyRows(ro, table, cols, batch);
                         }
+                    });
+                }
+            }
+        }
+        return checks;
+    }
 
-                        if (currentRow == null) {
-                            throw TransactionSerializableConflictException.create(table, getTimestamp(), System.currentTimeMillis() - timeCreated);
-                        }
+    private void verifyRows(Transaction ro, String table, final ColumnSelection cols, List<byte[]> batch) {
+        SortedMap<byte[], RowResult<byte[]>> currentRows = ro.getRows(table, batch, cols);
+        for (byte[] row : batch) {
+            RowResult<byte[]> currentRow = currentRows.get(row);
+            Map<Cell, Long> orignalReads = getValueHashesRead(table,
+                    Range.closed(Cells.createSmallestCellForRow(row), Cells.createLargestCellForRow(row)));
 
-                        Map<Cell, byte[]> currentCells = Maps2.fromEntries(currentRow.getCells());
-                        if (writesByTable.get(table) != null) {
-                            // We don't want to verify any reads that we wrote to cause we will just read our own values.
-                            // NB: We filter our write set out here because our normal SI checking handles this case to ensure the value hasn't changed.
-                            currentCells = Maps.filterKeys(currentCells, Predicates.not(Predicates.in(writesByTable.get(table).keySet())));
-                        }
-                        if (!areMapsEqual(orignalReads, currentCells)) {
-                            throw TransactionSerializableConflictException.create(table, getTimestamp(), System.currentTimeMillis() - timeCreated);
-                        }
-                    }
+            // We want to filter out all our reads to just the set that matches our column selection.
+            orignalReads = Maps.filterKeys(orignalReads, new Predicate<Cell>() {
+                @Override
+                public boolean apply(Cell input) {
+                    return cols.contains(input.getColumnName());
                 }
+            });
+
+            if (writesByTable.get(table) != null) {
+                // We don't want to verify any reads that we wrote to cause we will just read our own values.
+                // NB: We filter our write set out here because our normal SI checking handles this case to ensure the value hasn't changed.
+                orignalReads = Maps.filterKeys(orignalReads, Predicates.not(Predicates.in(writesByTable.get(table).keySet())));
+            }
+
+            if (currentRow == null && orignalReads.isEmpty()) {
+                continue;
+            }
+
+            if (currentRow == null) {
+                throw TransactionSerializableConflictException.create(table, getTimestamp(), System.currentTimeMillis() - timeCreated);
             }
 
+            Map<Cell, byte[]> currentCells = Maps2.fromEntries(currentRow.getCells());
+            if (writesByTable.get(table) != null) {
+                // We don't want to verify any reads that we wrote to cause we will just read our own values.
+                // NB: We filter our write set out here because our normal SI checking handles this case to ensure the value hasn't changed.
+                currentCells = Maps.filterKeys(currentCells, Predicates.not(Predicates.in(writesByTable.get(table).keySet())));
+            }
+            if (!areHashesEqual(orignalReads, currentCells)) {
+                throw TransactionSerializableConflictException.create(table, getTimestamp(), System.currentTimeMillis() - timeCreated);
+            }
         }
     }
 
-    private boolean areMapsEqual(Map<Cell, byte[]> map1, Map<Cell, byte[]> map2) {
-        if (map1.size() != map2.size()) {
+    private boolean areHashesEqual(Map<Cell, Long> hashes, Map<Cell, byte[]> values) {
+        if (hashes.size() != values.size()) {
             return false;
         }
-        for (Map.Entry<Cell, byte[]> e : map1.entrySet()) {
-            if (!map2.containsKey(e.getKey())) {
-                return false;
-            }
-            if (UnsignedBytes.lexicographicalComparator().compare(e.getValue(), map2.get(e.getKey())) != 0) {
+        for (Map.Entry<Cell, Long> e : hashes.entrySet()) {
+            byte[] value = values.get(e.getKey());
+            if (value == null || hashValue(value) != e.getValue()) {
                 return false;
             }
         }
         return true;
     }
 
-    private void verifyCells(Transaction ro) {
-        for (String table : cellsRead.keySet()) {
-            final ConcurrentNavigableMap<Cell, byte[]> readsForTable = getReadsForTable(table);
-            for (Iterable<Cell> batch : Iterables.partition(cellsRead.get(table), 1000)) {
-                if (writesByTable.get(table) != null) {
-                    // We don't want to verify any reads that we wrote to cause we will just read our own values.
-                    // NB: If the value has changed between read and write, our normal SI checking handles this case
-                    batch = Iterables.filter(batch, Predicates.not(Predicates.in(writesByTable.get(table).keySet())));
-                }
-                ImmutableSet<Cell> batchSet = ImmutableSet.copyOf(batch);
-                Map<Cell, byte[]> currentBatch = ro.get(table, batchSet);
-                ImmutableMap<Cell, byte[]> originalReads = Maps.toMap(Sets.intersection(batchSet, readsForTable.keySet()), Functions.forMap(readsForTable));
-                if (!areMapsEqual(currentBatch, originalReads)) {
-                    throw TransactionSerializableConflictException.create(table, getTimestamp(), System.currentTimeMillis() - timeCreated);
-                }
+    private SortedMap<Cell, Long> getValueHashesRead(String table, Range<Cell> cells) {
+        SortedMap<Cell, Long> ret = Maps.newTreeMap();
+        ClosableIterator<Entry<Cell, Long>> it = readSet.getRange(table, cells);
+        try {
+            while (it.hasNext()) {
+                Entry<Cell, Long> e = it.next();
+                ret.put(e.getKey(), e.getValue());
             }
+        } finally {
+            it.close();
         }
+        return ret;
     }
 
-    private void verifyRanges(Transaction ro) {
-        // verify each set of reads to ensure they are the same.
-        for (String table : rangeEndByTable.keySet()) {
+    private List<Runnable> getCellChecks(final Transaction ro, final long commitTimestamp) {
+        List<Runnable> checks = Lists.newArrayList();
+        for (final String table : cellsRead.keySet()) {
+            final boolean validatedByTimestamp = isValidatedByTimestamp(table);
+            for (final List<Cell> batch : Iterables.partition(cellsRead.get(table), 1000)) {
+                checks.add(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (validatedByTimestamp) {
+                            verifyCellTimestamps(table, batch, commitTimestamp);
+                        } else {
+                            verifyCells(ro, table, batch);
+                        }
+                    }
+                });
+            }
+        }
+        return checks;
+    }
+
+    private void verifyCells(Transaction ro, String table, Iterable<Cell> batch) {
+        if (writesByTable.get(table) != null) {
+            // We don't want to verify any reads that we wrote to cause we will just read our own values.
+            // NB: If the value has changed between read and write, our normal SI checking handles this case
+            batch = Iterables.filter(batch, Predicates.not(Predicates.in(writesByTable.get(table).keySet())));
+        }
+        ImmutableSet<Cell> batchSet = ImmutableSet.copyOf(batch);
+        Map<Cell, byte[]> currentBatch = ro.get(table, batchSet);
+        Map<Cell, Long> originalReads = readSet.getAll(table, batchSet);
+        if (!areHashesEqual(originalReads, currentBatch)) {
+            throw TransactionSerializableConflictException.create(table, getTimestamp(), System.currentTimeMillis() - timeCreated);
+        }
+    }
+
+    private List<Runnable> getRangeChecks(final Transaction ro, final long commitTimestamp) {
+        List<Runnable> checks = Lists.newArrayList();
+        for (final String table : rangeEndByTable.keySet()) {
             for (Entry<RangeRequest, byte[]> e : rangeEndByTable.get(table).entrySet()) {
                 RangeRequest range = e.getKey();
                 byte[] rangeEnd = e.getValue();
                 if (rangeEnd.length != 0 && !RangeRequests.isTerminalRow(range.isReverse(), rangeEnd)) {
                     range = range.getBuilder().endRowExclusive(RangeRequests.getNextStartRow(range.isReverse(), rangeEnd)).build();
                 }
-
-                final ConcurrentNavigableMap<Cell, byte[]> writes = writesByTable.get(table);
-                BatchingVisitableView<RowResult<byte[]>> bv = BatchingVisitableView.of(ro.getRange(table, range));
-                NavigableMap<Cell, ByteBuffer> readsInRange = Maps.transformValues(getReadsInRange(table, e, range),
-                        new Function<byte[], ByteBuffer>() {
-                            @Override
-                            public ByteBuffer apply(byte[] input) {
-                                return ByteBuffer.wrap(input);
-                            }
-                        });
-                boolean isEqual = bv.transformBatch(new Function<List<RowResult<byte[]>>, List<Entry<Cell, ByteBuffer>>>() {
+                final RangeRequest rangeRead = range;
+                checks.add(new Runnable() {
                     @Override
-                    public List<Entry<Cell, ByteBuffer>> apply(List<RowResult<byte[]>> input) {
-                        List<Entry<Cell, ByteBuffer>> ret = Lists.newArrayList();
-                        for (RowResult<byte[]> row : input) {
-                            for (Entry<Cell, byte[]> cell : row.getCells()) {
-
-                                // NB: We filter our write set out here because our normal SI checking handles this case to ensure the value hasn't changed.
-                                if (writes == null || !writes.containsKey(cell.getKey())) {
-                                    ret.add(Maps.immutableEntry(cell.getKey(), ByteBuffer.wrap(cell.getValue())));
-                                }
+                    public void run() {
+                        if (isValidatedByTimestamp(table) && !rangeRead.isReverse()) {
+                            verifyRangeTimestamps(table, rangeRead, commitTimestamp);
+                        } else {
+                            verifyRange(ro, table, rangeRead);
+                        }
+                    }
+                });
+            }
+        }
+        return checks;
+    }
+
+    private void verifyRange(Transaction ro, String table, RangeRequest range) {
+        // verify each set of reads to ensure they are the same.
+        final ConcurrentNavigableMap<Cell, byte[]> writes = writesByTable.get(table);
+        BatchingVisitableView<RowResult<byte[]>> bv = BatchingVisitableView.of(ro.getRange(table, range));
+        ClosableIterator<Entry<Cell, Long>> readsInRange = readSet.getRange(table, getCellRange(range));
+        boolean isEqual;
+        try {
+            isEqual = bv.transformBatch(new Function<List<RowResult<byte[]>>, List<Entry<Cell, Long>>>() {
+                @Override
+                public List<Entry<Cell, Long>> apply(List<RowResult<byte[]>> input) {
+                    List<Entry<Cell, Long>> ret = Lists.newArrayList();
+                    for (RowResult<byte[]> row : input) {
+                        for (Entry<Cell, byte[]> cell : row.getCells()) {
+
+                            // NB: We filter our write set out here because our normal SI checking handles this case to ensure the value hasn't changed.
+                            if (writes == null || !writes.containsKey(cell.getKey())) {
+                                ret.add(Maps.immutableEntry(cell.getKey(), hashValue(cell.getValue())));
                             }
                         }
-                        return ret;
                     }
-                }).isEqual(readsInRange.entrySet());
-                if (!isEqual) {
-                    throw TransactionSerializableConflictException.create(table, getTimestamp(), System.currentTimeMillis() - timeCreated);
+                    return ret;
                 }
-            }
+            }).isEqual(Iterators.filter(readsInRange, new Predicate<Entry<Cell, Long>>() {
+                @Override
+                public boolean apply(Entry<Cell, Long> read) {
+                    return writes == null || !writes.containsKey(read.getKey());
+                }
+            }));
+        } finally {
+            readsInRange.close();
+        }
+        if (!isEqual) {
+            throw TransactionSerializableConflictException.create(table, getTimestamp(), System.currentTimeMillis() - timeCreated);
         }
     }
 
-    private NavigableMap<Cell, byte[]> getReadsInRange(String table,
-                                                       Entry<RangeRequest, byte[]> e,
-                                                       RangeRequest range) {
-        NavigableMap<Cell, byte[]> reads = getReadsForTable(table);
-        if (range.getStartInclusive().length != 0) {
-            reads = reads.tailMap(Cells.createSmallestCellForRow(range.getStartInclusive()), true);
+    private void verifyCellTimestamps(String table, List<Cell> batch, long commitTimestamp) {
+        ConcurrentNavigableMap<Cell, byte[]> writes = writesByTable.get(table);
+        Map<Cell, Long> timestampByCell = Maps.newHashMap();
+        for (Cell cell : batch) {
+            // NB: We filter our write set out here because our normal SI checking handles this case to ensure the value hasn't changed.
+            if (writes == null || !writes.containsKey(cell)) {
+                timestampByCell.put(cell, commitTimestamp + 1);
+            }
         }
-        if (range.getEndExclusive().length != 0) {
-            reads = reads.headMap(Cells.createSmallestCellForRow(range.getEndExclusive()), false);
+        Map<Cell, Long> readTimestamps = readSet.getAll(timestampsTable(table), timestampByCell.keySet());
+        Map<Cell, Long> latestTimestamps = keyValueService.getLatestTimestamps(table, timestampByCell);
+
+        // Only cells written since we read them need their versions looked at.
+        Set<Cell> changed = Sets.newHashSet();
+        for (Cell cell : timestampByCell.keySet()) {
+            if (!Objects.equal(readTimestamps.get(cell), latestTimestamps.get(cell))) {
+                changed.add(cell);
+            }
+        }
+        if (!changed.isEmpty()) {
+            Multimap<Cell, Long> versions = keyValueService.getAllTimestamps(table, changed, commitTimestamp + 1);
+            for (Cell cell : changed) {
+                throwIfVersionRemoved(table, cell, readTimestamps, versions);
+            }
+            throwIfNewerVersionCommitted(table, versions, readTimestamps, commitTimestamp);
         }
+    }
+
+    private void verifyRangeTimestamps(String table, RangeRequest range, long commitTimestamp) {
         ConcurrentNavigableMap<Cell, byte[]> writes = writesByTable.get(table);
-        if (writes != null) {
-            reads = Maps.filterKeys(reads, Predicates.not(Predicates.in(writes.keySet())));
+        int readCellsFound = 0;
+        ClosableIterator<RowResult<Set<Long>>> it = keyValueService.getRangeOfTimestamps(table, range, commitTimestamp + 1);
+        try {
+            Iterator<List<RowResult<Set<Long>>>> batches = Iterators.partition(it, 1000);
+            while (batches.hasNext()) {
+                List<RowResult<Set<Long>>> batch = batches.next();
+                Multimap<Cell, Long> versions = HashMultimap.create();
+                for (RowResult<Set<Long>> row : batch) {
+                    for (Entry<Cell, Set<Long>> cell : row.getCells()) {
+                        // NB: We filter our write set out here because our normal SI checking handles this case to ensure the value hasn't changed.
+                        if (writes == null || !writes.containsKey(cell.getKey())) {
+                            versions.putAll(cell.getKey(), cell.getValue());
+                        }
+                    }
+                }
+                Map<Cell, Long> readTimestamps = readSet.getAll(timestampsTable(table), versions.keySet());
+                for (Cell cell : readTimestamps.keySet()) {
+                    throwIfVersionRemoved(table, cell, readTimestamps, versions);
+                }
+                readCellsFound += readTimestamps.size();
+                throwIfNewerVersionCommitted(table, versions, readTimestamps, commitTimestamp);
+            }
+        } finally {
+            it.close();
+        }
+        int readCellsInRange = 0;
+        ClosableIterator<Entry<Cell, Long>> readsInRange = readSet.getRange(timestampsTable(table), getCellRange(range));
+        try {
+            while (readsInRange.hasNext()) {
+                Cell cell = readsInRange.next().getKey();
+                // Cells read with get may fall in the range without being in its columns.
+                if (range.containsColumn(cell.getColumnName()) && (writes == null || !writes.containsKey(cell))) {
+                    readCellsInRange++;
+                }
+            }
+        } finally {
+            readsInRange.close();
+        }
+        if (readCellsFound != readCellsInRange) {
+            // A cell we read in this range has no versions left at all.
+            throw TransactionSerializableConflictException.create(table, getTimestamp(), System.currentTimeMillis() - timeCreated);
         }
-        return reads;
     }
 
+    private void throwIfVersionRemoved(String table, Cell cell, Map<Cell, Long> readTimestamps, Multimap<Cell, Long> versions) {
+        Long readTimestamp = readTimestamps.get(cell);
+        if (readTimestamp != null && !versions.containsEntry(cell, readTimestamp)) {
+            throw TransactionSerializableConflictException.create(table, getTimestamp(), System.currentTimeMillis() - timeCreated);
+        }
+    }
+
+    /**
+     * Throws if any version newer than the one we read, or any version at all of a cell we found
+     * empty, committed before our commit timestamp.
+     */
+    private void throwIfNewerVersionCommitted(String table,
+                                              Multimap<Cell, Long> versions,
+                                              Map<Cell, Long> readTimestamps,
+                                              long commitTimestamp) {
+        Set<Long> newerTimestamps = Sets.newHashSet();
+        for (Entry<Cell, Long> e : versions.entries()) {
+            long startTs = e.getValue();
+            Long readTimestamp = readTimestamps.get(e.getKey());
+            if (startTs != Value.INVALID_VALUE_TIMESTAMP
+                    && startTs != getTimestamp()
+                    && (readTimestamp == null || startTs > readTimestamp)) {
+                newerTimestamps.add(startTs);
+            }
+        }
+        if (newerTimestamps.isEmpty()) {
+            return;
+        }
+        Map<Long, Long> commitTimestamps = getCommitTimestampsBeforeCommit(table, newerTimestamps, true, commitTimestamp);
+        for (long theirCommitTimestamp : commitTimestamps.values()) {
+            if (theirCommitTimestamp != TransactionConstants.FAILED_COMMIT_TS && theirCommitTimestamp < commitTimestamp) {
+                throw TransactionSerializableConflictException.create(table, getTimestamp(), System.currentTimeMillis() - timeCreated);
+            }
+        }
+    }
+
+    private static Range<Cell> getCellRange(RangeRequest range) {
+        byte[] start = range.getStartInclusive();
+        byte[] end = range.getEndExclusive();
+        if (start.length == 0 && end.length == 0) {
+            return Range.all();
+        } else if (start.length == 0) {
+            return Range.lessThan(Cells.createSmallestCellForRow(end));
+        } else if (end.length == 0) {
+            return Range.atLeast(Cells.createSmallestCellForRow(start));
+        }
+        return Range.closedOpen(Cells.createSmallestCellForRow(start), Cells.createSmallestCellForRow(end));
+    }
 
     private Transaction getReadOnlyTransaction(final long commitTs) {
         return new SnapshotTransaction(
@@ -490,49 +987,61 @@ public class SerializableTransaction extends SnapshotTransaction {
                 AtlasDbConstraintCheckingMode.NO_CONSTRAINT_CHECKING,
                 transactionReadTimeoutMillis,
                 getReadSentinelBehavior(),
-                allowHiddenTableAccess) {
+                allowHiddenTableAccess,
+                commitTimestampCache) {
             @Override
             protected Map<Long, Long> getCommitTimestamps(String tableName,
                                                           Iterable<Long> startTimestamps,
                                                           boolean waitForCommitterToComplete) {
-                Set<Long> beforeStart = Sets.newHashSet();
-                Set<Long> afterStart = Sets.newHashSet();
-                boolean containsMyStart = false;
-                long myStart = SerializableTransaction.this.getTimestamp();
-                for (long startTs : startTimestamps) {
-                    if (startTs == myStart) {
-                        containsMyStart = true;
-                    } else if (startTs < myStart) {
-                        beforeStart.add(startTs);
-                    } else {
-                        afterStart.add(startTs);
-                    }
-                }
-                Map<Long, Long> ret = Maps.newHashMap();
-                if (!afterStart.isEmpty()) {
-                    // We do not block when waiting for results that were written after our
-                    // start timestamp.  If we block here it may lead to deadlock if two transactions
-                    // (or a cycle of any length) have all written their data and all doing checks before committing.
-                    Map<Long, Long> afterResults = super.getCommitTimestamps(tableName, afterStart, false);
-                    if (!afterResults.keySet().containsAll(afterStart)) {
-                        // If we do not get back all these results we may be in the deadlock case so we should just
-                        // fail out early.  It may be the case that abort more transactions than needed to break the
-                        // deadlock cycle, but this should be pretty rare.
-                        throw new TransactionSerializableConflictException("An uncommitted conflicting read was " +
-                                "written after our start timestamp for table " + tableName + ".  " +
-                                "This case can cause deadlock and is very likely to be a read write conflict.");
-                    } else {
-                        ret.putAll(afterResults);
-                    }
-                }
-                // We are ok to block here because if there is a cycle of transactions that could result in a deadlock,
-                // then at least one of them will be in the ab
-                ret.putAll(super.getCommitTimestamps(tableName, beforeStart, waitForCommitterToComplete));
-                if (containsMyStart) {
-                    ret.put(myStart, commitTs);
-                }
-                return ret;
+                return getCommitTimestampsBeforeCommit(tableName, startTimestamps, waitForCommitterToComplete, commitTs);
             }
         };
     }
+
+    /**
+     * Looks up commit timestamps while checking for conflicts, where our own writes count as
+     * committed at commitTs.
+     */
+    private Map<Long, Long> getCommitTimestampsBeforeCommit(String tableName,
+                                                            Iterable<Long> startTimestamps,
+                                                            boolean waitForCommitterToComplete,
+                                                            long commitTs) {
+        Set<Long> beforeStart = Sets.newHashSet();
+        Set<Long> afterStart = Sets.newHashSet();
+        boolean containsMyStart = false;
+        long myStart = getTimestamp();
+        for (long startTs : startTimestamps) {
+            if (startTs == myStart) {
+                containsMyStart = true;
+            } else if (startTs < myStart) {
+                beforeStart.add(startTs);
+            } else {
+                afterStart.add(startTs);
+            }
+        }
+        Map<Long, Long> ret = Maps.newHashMap();
+        if (!afterStart.isEmpty()) {
+            // We do not block when waiting for results that were written after our
+            // start timestamp.  If we block here it may lead to deadlock if two transactions
+            // (or a cycle of any length) have all written their data and all doing checks before committing.
+            Map<Long, Long> afterResults = getCommitTimestamps(tableName, afterStart, false);
+            if (!afterResults.keySet().containsAll(afterStart)) {
+                // If we do not get back all these results we may be in the deadlock case so we should just
+                // fail out early.  It may be the case that abort more transactions than needed to break the
+                // deadlock cycle, but this should be pretty rare.
+                throw new TransactionSerializableConflictException("An uncommitted conflicting read was " +
+                        "written after our start timestamp for table " + tableName + ".  " +
+                        "This case can cause deadlock and is very likely to be a read write conflict.");
+            } else {
+                ret.putAll(afterResults);
+            }
+        }
+        // We are ok to block here because if there is a cycle of transactions that could result in a deadlock,
+        // then at least one of them will be in the ab
+        ret.putAll(getCommitTimestamps(tableName, beforeStart, waitForCommitterToComplete));
+        if (containsMyStart) {
+            ret.put(myStart, commitTs);
+        }
+        return ret;
+    }
 }
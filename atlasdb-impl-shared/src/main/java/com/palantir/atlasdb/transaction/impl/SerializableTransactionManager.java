@@ -15,12 +15,14 @@
  */
 package com.palantir.atlasdb.transaction.impl;
 
+import com.google.common.base.Preconditions;
 import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableList;
 import com.palantir.atlasdb.cleaner.Cleaner;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.transaction.api.AtlasDbConstraintCheckingMode;
 import com.palantir.atlasdb.transaction.api.TransactionReadSentinelBehavior;
+import com.palantir.atlasdb.transaction.impl.SerializableTransaction.ReadValidationMode;
 import com.palantir.atlasdb.transaction.service.TransactionService;
 import com.palantir.lock.LockClient;
 import com.palantir.lock.LockRefreshToken;
@@ -28,6 +30,8 @@ import com.palantir.lock.RemoteLockService;
 import com.palantir.timestamp.TimestampService;
 
 public class SerializableTransactionManager extends SnapshotTransactionManager {
+    private final ReadValidationMode readValidationMode;
+    private final Supplier<? extends ReadSetStore> readSetStoreSupplier;
 
     public SerializableTransactionManager(KeyValueService keyValueService,
                                           TimestampService timestampService,
@@ -38,6 +42,54 @@ public class SerializableTransactionManager extends SnapshotTransactionManager {
                                           ConflictDetectionManager conflictDetectionManager,
                                           SweepStrategyManager sweepStrategyManager,
                                           Cleaner cleaner) {
+        this(
+                keyValueService,
+                timestampService,
+                lockClient,
+                lockService,
+                transactionService,
+                constraintModeSupplier,
+                conflictDetectionManager,
+                sweepStrategyManager,
+                cleaner,
+                ReadValidationMode.VALUES);
+    }
+
+    public SerializableTransactionManager(KeyValueService keyValueService,
+                                          TimestampService timestampService,
+                                          LockClient lockClient,
+                                          RemoteLockService lockService,
+                                          TransactionService transactionService,
+                                          Supplier<AtlasDbConstraintCheckingMode> constraintModeSupplier,
+                                          ConflictDetectionManager conflictDetectionManager,
+                                          SweepStrategyManager sweepStrategyManager,
+                                          Cleaner cleaner,
+                                          ReadValidationMode readValidationMode) {
+        this(
+                keyValueService,
+                timestampService,
+                lockClient,
+                lockService,
+                transactionService,
+                constraintModeSupplier,
+                conflictDetectionManager,
+                sweepStrategyManager,
+                cleaner,
+                readValidationMode,
+                SpillingReadSetStore.supplier(SpillingReadSetStore.DEFAULT_MAX_BYTES_IN_MEMORY));
+    }
+
+    public SerializableTransactionManager(KeyValueService keyValueService,
+                                          TimestampService timestampService,
+                                          LockClient lockClient,
+                                          RemoteLockService lockService,
+                                          TransactionService transactionService,
+                                          Supplier<AtlasDbConstraintCheckingMode> constraintModeSupplier,
+                                          ConflictDetectionManager conflictDetectionManager,
+                                          SweepStrategyManager sweepStrategyManager,
+                                          Cleaner cleaner,
+                                          ReadValidationMode readValidationMode,
+                                          Supplier<? extends ReadSetStore> readSetStoreSupplier) {
         super(
                 keyValueService,
                 timestampService,
@@ -48,6 +100,8 @@ public class SerializableTransactionManager extends SnapshotTransactionManager {
                 conflictDetectionManager,
                 sweepStrategyManager,
                 cleaner);
+        this.readValidationMode = Preconditions.checkNotNull(readValidationMode);
+        this.readSetStoreSupplier = Preconditions.checkNotNull(readSetStoreSupplier);
     }
 
     @Override
@@ -68,7 +122,12 @@ public class SerializableTransactionManager extends SnapshotTransactionManager {
                 constraintModeSupplier.get(),
                 cleaner.getTransactionReadTimeoutMillis(),
                 TransactionReadSentinelBehavior.THROW_EXCEPTION,
-                false);
+                false,
+                commitTimestampCache,
+                readValidationMode,
+                readSetStoreSupplier,
+                conflictCheckingExecutor,
+                valueCache);
     }
 
     public TimestampService getTimestampService() {
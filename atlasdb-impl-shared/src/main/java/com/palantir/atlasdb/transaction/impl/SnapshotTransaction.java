@@ -22,11 +22,17 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NavigableMap;
 import java.util.Set;
 import java.util.SortedMap;
+import java.util.concurrent.CompletionService;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ConcurrentNavigableMap;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
@@ -62,6 +68,7 @@ import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
 import com.google.common.collect.Ordering;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.palantir.atlasdb.AtlasDbConstants;
 import com.palantir.atlasdb.AtlasDbPerformanceConstants;
 import com.palantir.atlasdb.cleaner.Cleaner;
@@ -113,9 +120,7 @@ import com.palantir.lock.LockRequest;
 import com.palantir.lock.RemoteLockService;
 import com.palantir.timestamp.TimestampService;
 import com.palantir.util.AssertUtils;
-import com.palantir.util.DistributedCacheMgrCache;
 import com.palantir.util.Pair;
-import com.palantir.util.SoftCache;
 import com.palantir.util.paging.TokenBackedBasicResultsPage;
 
 /**
@@ -135,6 +140,8 @@ import com.palantir.util.paging.TokenBackedBasicResultsPage;
  */
 public class SnapshotTransaction extends AbstractTransaction implements ConstraintCheckingTransaction {
     private static final int BATCH_SIZE_GET_FIRST_PAGE = 1000;
+    private static final int WRITE_CONFLICT_CHECK_BATCH_SIZE = 10000;
+    static final int PER_TRANSACTION_COMMIT_TS_CACHE_SIZE = 1000;
     private final static Logger log = LoggerFactory.getLogger(SnapshotTransaction.class);
     private static final Logger perfLogger = LoggerFactory.getLogger("dualschema.perf");
     private static final Logger constraintLogger = LoggerFactory.getLogger("dualschema.constraints");
@@ -163,7 +170,7 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
 
     protected final ConcurrentMap<String, ConcurrentNavigableMap<Cell, byte[]>> writesByTable = Maps.newConcurrentMap();
     private final ConflictDetectionManager conflictDetectionManager;
-    private final DistributedCacheMgrCache<Long, Long> cachedCommitTimes = new SoftCache<Long, Long>();
+    protected final CommitTimestampCache commitTimestampCache;
     private final AtomicLong byteCount = new AtomicLong();
 
     private final AtlasDbConstraintCheckingMode constraintCheckingMode;
@@ -178,6 +185,9 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
     private volatile long commitTsForScrubbing = TransactionConstants.FAILED_COMMIT_TS;
     protected final boolean allowHiddenTableAccess;
     protected final Stopwatch transactionTimer = Stopwatch.createStarted();
+    private final ExecutorService conflictCheckingExecutor;
+    @Nullable
+    private final TransactionValueCache valueCache;
 
     /**
      * @param keyValueService
@@ -204,6 +214,121 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
                                Long transactionTimeoutMillis,
                                TransactionReadSentinelBehavior readSentinelBehavior,
                                boolean allowHiddenTableAccess) {
+        this(keyValueService,
+             lockService,
+             timestampService,
+             transactionService,
+             cleaner,
+             startTimeStamp,
+             conflictDetectionManager,
+             sweepStrategyManager,
+             immutableTimestamp,
+             tokensValidForCommit,
+             constraintCheckingMode,
+             transactionTimeoutMillis,
+             readSentinelBehavior,
+             allowHiddenTableAccess,
+             CommitTimestampCache.create(PER_TRANSACTION_COMMIT_TS_CACHE_SIZE));
+    }
+
+    /**
+     * @param commitTimestampCache a cache of start to commit timestamps, usually shared by all
+     *                             transactions from the same transaction manager.
+     */
+    public SnapshotTransaction(KeyValueService keyValueService,
+                               RemoteLockService lockService,
+                               TimestampService timestampService,
+                               TransactionService transactionService,
+                               Cleaner cleaner,
+                               Supplier<Long> startTimeStamp,
+                               ConflictDetectionManager conflictDetectionManager,
+                               SweepStrategyManager sweepStrategyManager,
+                               long immutableTimestamp,
+                               Iterable<LockRefreshToken> tokensValidForCommit,
+                               AtlasDbConstraintCheckingMode constraintCheckingMode,
+                               Long transactionTimeoutMillis,
+                               TransactionReadSentinelBehavior readSentinelBehavior,
+                               boolean allowHiddenTableAccess,
+                               CommitTimestampCache commitTimestampCache) {
+        this(keyValueService,
+             lockService,
+             timestampService,
+             transactionService,
+             cleaner,
+             startTimeStamp,
+             conflictDetectionManager,
+             sweepStrategyManager,
+             immutableTimestamp,
+             tokensValidForCommit,
+             constraintCheckingMode,
+             transactionTimeoutMillis,
+             readSentinelBehavior,
+             allowHiddenTableAccess,
+             commitTimestampCache,
+             MoreExecutors.newDirectExecutorService());
+    }
+
+    /**
+     * @param conflictCheckingExecutor runs the conflict checks at commit time, which are split up by
+     *                                 table and batch.  It is usually shared by all transactions from
+     *                                 the same transaction manager.
+     */
+    public SnapshotTransaction(KeyValueService keyValueService,
+                               RemoteLockService lockService,
+                               TimestampService timestampService,
+                               TransactionService transactionService,
+                               Cleaner cleaner,
+                               Supplier<Long> startTimeStamp,
+                               ConflictDetectionManager conflictDetectionManager,
+                               SweepStrategyManager sweepStrategyManager,
+                               long immutableTimestamp,
+                               Iterable<LockRefreshToken> tokensValidForCommit,
+                               AtlasDbConstraintCheckingMode constraintCheckingMode,
+                               Long transactionTimeoutMillis,
+                               TransactionReadSentinelBehavior readSentinelBehavior,
+                               boolean allowHiddenTableAccess,
+                               CommitTimestampCache commitTimestampCache,
+                               ExecutorService conflictCheckingExecutor) {
+        this(keyValueService,
+             lockService,
+             timestampService,
+             transactionService,
+             cleaner,
+             startTimeStamp,
+             conflictDetectionManager,
+             sweepStrategyManager,
+             immutableTimestamp,
+             tokensValidForCommit,
+             constraintCheckingMode,
+             transactionTimeoutMillis,
+             readSentinelBehavior,
+             allowHiddenTableAccess,
+             commitTimestampCache,
+             conflictCheckingExecutor,
+             null);
+    }
+
+    /**
+     * @param valueCache a cache of committed values, usually shared by all transactions from the
+     *                   same transaction manager, or null to always read from the key value service.
+     */
+    public SnapshotTransaction(KeyValueService keyValueService,
+                               RemoteLockService lockService,
+                               TimestampService timestampService,
+                               TransactionService transactionService,
+                               Cleaner cleaner,
+                               Supplier<Long> startTimeStamp,
+                               ConflictDetectionManager conflictDetectionManager,
+                               SweepStrategyManager sweepStrategyManager,
+                               long immutableTimestamp,
+                               Iterable<LockRefreshToken> tokensValidForCommit,
+                               AtlasDbConstraintCheckingMode constraintCheckingMode,
+                               Long transactionTimeoutMillis,
+                               TransactionReadSentinelBehavior readSentinelBehavior,
+                               boolean allowHiddenTableAccess,
+                               CommitTimestampCache commitTimestampCache,
+                               ExecutorService conflictCheckingExecutor,
+                               @Nullable TransactionValueCache valueCache) {
         this.keyValueService = keyValueService;
         this.timestampService = timestampService;
         this.defaultTransactionService = transactionService;
@@ -218,6 +343,9 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
         this.transactionReadTimeoutMillis = transactionTimeoutMillis;
         this.readSentinelBehavior = readSentinelBehavior;
         this.allowHiddenTableAccess = allowHiddenTableAccess;
+        this.commitTimestampCache = commitTimestampCache;
+        this.conflictCheckingExecutor = conflictCheckingExecutor;
+        this.valueCache = valueCache;
     }
 
     // TEST ONLY
@@ -244,6 +372,9 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
         this.transactionReadTimeoutMillis = null;
         this.readSentinelBehavior = readSentinelBehavior;
         this.allowHiddenTableAccess = false;
+        this.commitTimestampCache = CommitTimestampCache.create(PER_TRANSACTION_COMMIT_TS_CACHE_SIZE);
+        this.conflictCheckingExecutor = MoreExecutors.newDirectExecutorService();
+        this.valueCache = null;
     }
 
     @Deprecated
@@ -295,6 +426,9 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
         this.transactionReadTimeoutMillis = null;
         this.readSentinelBehavior = readSentinelBehavior;
         this.allowHiddenTableAccess = allowHiddenTableAccess;
+        this.commitTimestampCache = CommitTimestampCache.create(PER_TRANSACTION_COMMIT_TS_CACHE_SIZE);
+        this.conflictCheckingExecutor = MoreExecutors.newDirectExecutorService();
+        this.valueCache = null;
     }
 
     @Override
@@ -440,12 +574,85 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
      */
     private Map<Cell, byte[]> getFromKeyValueService(String tableName, Set<Cell> cells) {
         Map<Cell, byte[]> result = Maps.newHashMap();
-        Map<Cell, Long> toRead = Cells.constantValueMap(cells, getStartTimestamp());
+        if (!shouldUseValueCache(tableName)) {
+            Map<Cell, Long> toRead = Cells.constantValueMap(cells, getStartTimestamp());
+            Map<Cell, Value> rawResults = keyValueService.get(tableName, toRead);
+            getWithPostfiltering(tableName, rawResults, result, Value.GET_VALUE);
+            return result;
+        }
+
+        Set<Cell> uncachedCells = getFromValueCache(tableName, cells, result);
+        if (uncachedCells.isEmpty()) {
+            return result;
+        }
+        Map<Cell, Long> toRead = Cells.constantValueMap(uncachedCells, getStartTimestamp());
         Map<Cell, Value> rawResults = keyValueService.get(tableName, toRead);
-        getWithPostfiltering(tableName, rawResults, result, Value.GET_VALUE);
+        Map<Cell, Long> latestCommitTimestamps = Maps.newHashMap();
+        getWithPostfiltering(tableName, rawResults, result, Value.GET_VALUE, latestCommitTimestamps);
+        for (Map.Entry<Cell, Long> e : latestCommitTimestamps.entrySet()) {
+            Value value = rawResults.get(e.getKey());
+            valueCache.put(tableName, e.getKey(), value.getTimestamp(), e.getValue(), value.getContents(), getStartTimestamp());
+        }
         return result;
     }
 
+    private boolean shouldUseValueCache(String tableName) {
+        return valueCache != null
+                && !isTempTable(tableName)
+                && !AtlasDbConstants.hiddenTables.contains(tableName)
+                && valueCache.isCachedTable(tableName);
+    }
+
+    /**
+     * Reads the cells whose cached version is the one we would read from the key value service,
+     * and marks those versions visible.  Cached versions that are not known to be the latest below
+     * our start timestamp are checked against the latest write timestamps of their cells.
+     *
+     * @return the cells that still need to be read from the key value service
+     */
+    private Set<Cell> getFromValueCache(String tableName, Set<Cell> cells, @Output Map<Cell, byte[]> result) {
+        long startTs = getStartTimestamp();
+        Map<Cell, TransactionValueCache.CachedValue> hits = Maps.newHashMap();
+        Map<Cell, TransactionValueCache.CachedValue> toCheck = Maps.newHashMap();
+        for (Cell cell : cells) {
+            TransactionValueCache.CachedValue cached = valueCache.get(tableName, cell);
+            if (cached == null || !cached.isVisibleAt(startTs)) {
+                continue;
+            }
+            if (cached.isKnownLatestAt(startTs)) {
+                hits.put(cell, cached);
+            } else {
+                toCheck.put(cell, cached);
+            }
+        }
+        if (!toCheck.isEmpty()) {
+            Map<Cell, Long> latestTimestamps = keyValueService.getLatestTimestamps(
+                    tableName,
+                    Cells.constantValueMap(toCheck.keySet(), startTs));
+            for (Map.Entry<Cell, TransactionValueCache.CachedValue> e : toCheck.entrySet()) {
+                Long latestTs = latestTimestamps.get(e.getKey());
+                if (latestTs != null && latestTs == e.getValue().getWriteTimestamp()) {
+                    e.getValue().markLatestAsOf(startTs);
+                    hits.put(e.getKey(), e.getValue());
+                }
+            }
+        }
+        valueCache.recordLookups(tableName, hits.size(), cells.size() - hits.size());
+        if (hits.isEmpty()) {
+            return cells;
+        }
+
+        Map<Cell, Long> visibleTimestamps = Maps.newHashMapWithExpectedSize(hits.size());
+        for (Map.Entry<Cell, TransactionValueCache.CachedValue> e : hits.entrySet()) {
+            visibleTimestamps.put(e.getKey(), e.getValue().getWriteTimestamp());
+            if (e.getValue().getContents().length != 0) {
+                result.put(e.getKey(), e.getValue().getContents());
+            }
+        }
+        markVisibleValues(tableName, visibleTimestamps);
+        return Sets.difference(cells, hits.keySet());
+    }
+
     private static byte[] getNextStartRowName(RangeRequest range, TokenBackedBasicResultsPage<RowResult<Value>, byte[]> prePostFilter) {
         if (!prePostFilter.moreResultsAvailable()) {
             return range.getEndExclusive();
@@ -843,6 +1050,19 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
                                           Map<Cell, Value> rawResults,
                                           @Output Map<Cell, T> results,
                                           Function<Value, T> transformer) {
+        getWithPostfiltering(tableName, rawResults, results, transformer, null);
+    }
+
+    /**
+     * @param latestCommitTimestamps if not null, gets the commit timestamps of the visible values
+     *        found in rawResults itself, which are the latest versions below our start timestamp
+     *        if rawResults was read at it.
+     */
+    private <T> void getWithPostfiltering(String tableName,
+                                          Map<Cell, Value> rawResults,
+                                          @Output Map<Cell, T> results,
+                                          Function<Value, T> transformer,
+                                          @Nullable @Output Map<Cell, Long> latestCommitTimestamps) {
         long bytes = 0;
         for (Map.Entry<Cell, Value> e : rawResults.entrySet()) {
             bytes += e.getValue().getContents().length + Cells.getApproxSizeOfCell(e.getKey());
@@ -869,7 +1089,9 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
             return;
         }
         while (!rawResults.isEmpty()) {
-            rawResults = getWithPostfilteringInternal(tableName, rawResults, results, transformer);
+            rawResults = getWithPostfilteringInternal(tableName, rawResults, results, transformer, latestCommitTimestamps);
+            // Anything reloaded is older than the latest version.
+            latestCommitTimestamps = null;
         }
     }
 
@@ -880,11 +1102,13 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
     private <T> Map<Cell, Value> getWithPostfilteringInternal(String tableName,
                                                               Map<Cell, Value> rawResults,
                                                               @Output Map<Cell, T> results,
-                                                              Function<Value, T> transformer) {
+                                                              Function<Value, T> transformer,
+                                                              @Nullable @Output Map<Cell, Long> visibleCommitTimestamps) {
         Set<Long> startTimestampsForValues = getStartTimestampsForValues(rawResults.values());
         Map<Long, Long> commitTimestamps = getCommitTimestamps(tableName, startTimestampsForValues, true);
         Map<Cell, Long> keysToReload = Maps.newHashMapWithExpectedSize(0);
         Map<Cell, Long> keysToDelete = Maps.newHashMapWithExpectedSize(0);
+        Map<Cell, Long> visibleTimestamps = Maps.newHashMapWithExpectedSize(rawResults.size());
         for (Map.Entry<Cell, Value> e :  rawResults.entrySet()) {
             Cell key = e.getKey();
             Value value = e.getValue();
@@ -920,12 +1144,19 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
                     keysToReload.put(key, value.getTimestamp());
                 } else {
                     // The value has a commit timestamp less than our start timestamp, and is visible and valid.
+                    visibleTimestamps.put(key, value.getTimestamp());
+                    if (visibleCommitTimestamps != null) {
+                        visibleCommitTimestamps.put(key, theirCommitTimestamp);
+                    }
                     if (value.getContents().length != 0) {
                         results.put(key, transformer.apply(value));
                     }
                 }
             }
         }
+        if (!visibleTimestamps.isEmpty()) {
+            markVisibleValues(tableName, visibleTimestamps);
+        }
 
         if (!keysToDelete.isEmpty()) {
             // if we can't roll back the failed transactions, we should just try again
@@ -942,6 +1173,15 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
         }
     }
 
+    /**
+     * Called with the start timestamp of every committed value found visible while post filtering,
+     * including deletes.  Reads of temp tables and of tables that skip post filtering are not
+     * reported.
+     */
+    protected void markVisibleValues(String tableName, Map<Cell, Long> startTimestampsByCell) {
+        // Only serializable transactions need to know which versions were read.
+    }
+
     /**
      * This is protected to allow for different post filter behavior.
      */
@@ -1168,7 +1408,9 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
             cleaner.punch(commitTimestamp);
             long millisForPunch = watch.elapsed(TimeUnit.MILLISECONDS);
 
+            watch.reset().start();
             throwIfReadWriteConflictForSerializable(commitTimestamp);
+            long millisCheckingForReadWriteConflicts = watch.elapsed(TimeUnit.MILLISECONDS);
 
             // Verify that our locks are still valid before we actually commit;
             // this check is required by the transaction protocol for correctness
@@ -1178,6 +1420,8 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
             putCommitTimestamp(commitTimestamp, commitLocksToken, transactionService);
             long millisForCommitTs = watch.elapsed(TimeUnit.MILLISECONDS);
 
+            invalidateValueCache();
+
             Set<LockRefreshToken> expiredLocks = refreshExternalAndCommitLocks(commitLocksToken);
             if (!expiredLocks.isEmpty()) {
                 String errorMessage =
@@ -1188,16 +1432,29 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
             long millisSinceCreation = System.currentTimeMillis() - timeCreated;
             perfLogger.info("Committed {} bytes with locks, start ts {}, commit ts {}, " +
                     "acquiring locks took {} ms, checking for conflicts took {} ms, " +
-                    "writing took {} ms, punch took {} ms, putCommitTs took {} ms, " +
-                    "total time since tx creation {} ms, tables: {}.",
+                    "writing took {} ms, punch took {} ms, checking for read write conflicts took {} ms, " +
+                    "putCommitTs took {} ms, total time since tx creation {} ms, tables: {}.",
                     byteCount.get(), getStartTimestamp(),
                     commitTimestamp, millisForLocks, millisCheckingForConflicts, millisForWrites,
-                    millisForPunch, millisForCommitTs, millisSinceCreation, writesByTable.keySet());
+                    millisForPunch, millisCheckingForReadWriteConflicts, millisForCommitTs,
+                    millisSinceCreation, writesByTable.keySet());
         } finally {
             lockService.unlock(commitLocksToken);
         }
     }
 
+    /**
+     * Cached versions of the cells we wrote are still right for transactions that started before
+     * we committed, but no transaction starting from now on will read them.
+     */
+    private void invalidateValueCache() {
+        for (Map.Entry<String, ConcurrentNavigableMap<Cell, byte[]>> e : writesByTable.entrySet()) {
+            if (shouldUseValueCache(e.getKey())) {
+                valueCache.invalidate(e.getKey(), e.getValue().keySet());
+            }
+        }
+    }
+
     protected void throwIfReadWriteConflictForSerializable(long commitTimestamp) {
         // This is for overriding to get serializable transactions
     }
@@ -1262,10 +1519,83 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
     /**
      * Make sure we have all the rows we are checking already locked before calling this.
      */
-    protected void throwIfConflictOnCommit(LockRefreshToken commitLocksToken, TransactionService transactionService) throws TransactionConflictException {
+    protected void throwIfConflictOnCommit(final LockRefreshToken commitLocksToken,
+                                           final TransactionService transactionService) throws TransactionConflictException {
+        List<Runnable> checks = Lists.newArrayList();
         for (Entry<String, ConcurrentNavigableMap<Cell, byte[]>> write : writesByTable.entrySet()) {
-            ConflictHandler conflictHandler = getConflictHandlerForTable(write.getKey());
-            throwIfWriteAlreadyCommitted(write.getKey(), write.getValue(), conflictHandler, commitLocksToken, transactionService);
+            final String tableName = write.getKey();
+            final ConflictHandler conflictHandler = getConflictHandlerForTable(tableName);
+            if (conflictHandler == ConflictHandler.IGNORE_ALL) {
+                continue;
+            }
+            for (final SortedMap<Cell, byte[]> batch : partitionWrites(write.getValue(), WRITE_CONFLICT_CHECK_BATCH_SIZE)) {
+                checks.add(new Runnable() {
+                    @Override
+                    public void run() {
+                        throwIfWriteAlreadyCommitted(tableName, batch, conflictHandler, commitLocksToken, transactionService);
+                    }
+                });
+            }
+        }
+        runConflictChecks(checks);
+    }
+
+    private static List<SortedMap<Cell, byte[]>> partitionWrites(NavigableMap<Cell, byte[]> writes, int batchSize) {
+        List<SortedMap<Cell, byte[]>> batches = Lists.newArrayList();
+        Cell batchStart = null;
+        int batchCount = 0;
+        for (Cell cell : writes.keySet()) {
+            if (batchStart == null) {
+                batchStart = cell;
+            } else if (batchCount == batchSize) {
+                batches.add(writes.subMap(batchStart, true, cell, false));
+                batchStart = cell;
+                batchCount = 0;
+            }
+            batchCount++;
+        }
+        if (batchStart != null) {
+            batches.add(writes.tailMap(batchStart, true));
+        }
+        return batches;
+    }
+
+    /**
+     * Runs the checks on the conflict checking executor and waits for them.  As soon as one of them
+     * throws, the rest are cancelled and its exception is thrown.
+     */
+    protected void runConflictChecks(List<? extends Runnable> checks) {
+        if (checks.size() <= 1) {
+            for (Runnable check : checks) {
+                check.run();
+            }
+            return;
+        }
+        CompletionService<Void> completionService = new ExecutorCompletionService<Void>(conflictCheckingExecutor);
+        List<Future<Void>> futures = Lists.newArrayListWithCapacity(checks.size());
+        try {
+            int pending = 0;
+            for (Runnable check : checks) {
+                futures.add(completionService.submit(check, null));
+                pending++;
+                // Look at the checks that are done as we go, so that a conflict stops us submitting more.
+                for (Future<Void> done = completionService.poll(); done != null; done = completionService.poll()) {
+                    done.get();
+                    pending--;
+                }
+            }
+            for (; pending > 0; pending--) {
+                completionService.take().get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw Throwables.throwUncheckedException(e);
+        } catch (ExecutionException e) {
+            throw Throwables.rewrapAndThrowUncheckedException(e.getCause());
+        } finally {
+            for (Future<Void> future : futures) {
+                future.cancel(true);
+            }
         }
     }
 
@@ -1515,25 +1845,21 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
      * it back.
      */
     private void waitForCommitToComplete(Iterable<Long> startTimestamps) {
-        boolean isEmpty = true;
-        Builder<LockDescriptor, LockMode> builder = ImmutableSortedMap.naturalOrder();
+        Set<LockDescriptor> commitLocks = Sets.newHashSet();
         for (long start : startTimestamps) {
             if (start < immutableTimestamp) {
                 // We don't need to block in this case because this transaction is already complete
                 continue;
             }
-            isEmpty = false;
-            builder.put(AtlasRowLockDescriptor.of(TransactionConstants.TRANSACTION_TABLE, TransactionConstants.getValueForTimestamp(start)), LockMode.READ);
+            commitLocks.add(AtlasRowLockDescriptor.of(TransactionConstants.TRANSACTION_TABLE, TransactionConstants.getValueForTimestamp(start)));
         }
 
-        if (isEmpty) {
+        if (commitLocks.isEmpty()) {
             return;
         }
 
-        // TODO: This can have better performance if we have a blockAndReturn method in lock server
-        // However lock server blocking is an issue if we fill up all our requests
         try {
-            lockService.lockAnonymously(LockRequest.builder(builder.build()).lockAndRelease().build());
+            lockService.waitForLocks(commitLocks);
         } catch (InterruptedException e) {
             throw Throwables.throwUncheckedException(e);
         }
@@ -1565,7 +1891,7 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
         Map<Long, Long> result = Maps.newHashMap();
         Set<Long> gets = Sets.newHashSet();
         for (long startTS : startTimestamps) {
-            Long cached = cachedCommitTimes.get(startTS);
+            Long cached = commitTimestampCache.get(startTS);
             if (cached != null) {
                 result.put(startTS, cached);
             } else {
@@ -1591,7 +1917,7 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
                 long startTS = e.getKey();
                 long commitTS = e.getValue();
                 result.put(startTS, commitTS);
-                cachedCommitTimes.put(startTS, commitTS);
+                commitTimestampCache.put(startTS, commitTS);
             }
         }
         return result;
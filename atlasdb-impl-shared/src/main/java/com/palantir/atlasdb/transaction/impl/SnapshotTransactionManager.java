@@ -16,6 +16,10 @@
 package com.palantir.atlasdb.transaction.impl;
 
 import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 import com.google.common.base.Preconditions;
@@ -23,6 +27,7 @@ import com.google.common.base.Supplier;
 import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.palantir.atlasdb.cleaner.Cleaner;
 import com.palantir.atlasdb.cleaner.NoOpCleaner;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
@@ -35,6 +40,7 @@ import com.palantir.atlasdb.transaction.api.TransactionReadSentinelBehavior;
 import com.palantir.atlasdb.transaction.api.TransactionTask;
 import com.palantir.atlasdb.transaction.service.TransactionService;
 import com.palantir.common.base.Throwables;
+import com.palantir.common.concurrent.PTExecutors;
 import com.palantir.lock.AtlasTimestampLockDescriptor;
 import com.palantir.lock.LockClient;
 import com.palantir.lock.LockDescriptor;
@@ -46,6 +52,7 @@ import com.palantir.timestamp.TimestampService;
 
 public class SnapshotTransactionManager extends AbstractLockAwareTransactionManager {
     private final static int NUM_RETRIES = 10;
+    private static final int CONFLICT_CHECKING_THREADS = 8;
 
     final KeyValueService keyValueService;
     final TransactionService transactionService;
@@ -58,6 +65,10 @@ public class SnapshotTransactionManager extends AbstractLockAwareTransactionMana
     final AtomicLong recentImmutableTs = new AtomicLong(-1L);
     final Cleaner cleaner;
     final boolean allowHiddenTableAccess;
+    final CommitTimestampCache commitTimestampCache = CommitTimestampCache.create();
+    // Bounded so that commits checking many tables at once cannot flood the key value service.
+    final ExecutorService conflictCheckingExecutor = createConflictCheckingExecutor();
+    final TransactionValueCache valueCache;
 
     public SnapshotTransactionManager(KeyValueService keyValueService,
                                       TimestampService timestampService,
@@ -93,6 +104,9 @@ public class SnapshotTransactionManager extends AbstractLockAwareTransactionMana
         this.constraintModeSupplier = constraintModeSupplier;
         this.cleaner = cleaner;
         this.allowHiddenTableAccess = allowHiddenTableAccess;
+        this.valueCache = TransactionValueCache.create(keyValueService);
+        commitTimestampCache.registerMBean();
+        valueCache.registerMBean();
     }
 
     @Override
@@ -170,7 +184,22 @@ public class SnapshotTransactionManager extends AbstractLockAwareTransactionMana
                 constraintModeSupplier.get(),
                 cleaner.getTransactionReadTimeoutMillis(),
                 TransactionReadSentinelBehavior.THROW_EXCEPTION,
-                allowHiddenTableAccess);
+                allowHiddenTableAccess,
+                commitTimestampCache,
+                conflictCheckingExecutor,
+                valueCache);
+    }
+
+    private static ExecutorService createConflictCheckingExecutor() {
+        ThreadPoolExecutor executor = PTExecutors.newThreadPoolExecutor(
+                CONFLICT_CHECKING_THREADS,
+                CONFLICT_CHECKING_THREADS,
+                1,
+                TimeUnit.MINUTES,
+                new LinkedBlockingQueue<Runnable>(),
+                PTExecutors.newNamedThreadFactory(true));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
     }
 
     @Override
@@ -190,7 +219,10 @@ public class SnapshotTransactionManager extends AbstractLockAwareTransactionMana
                 constraintModeSupplier.get(),
                 cleaner.getTransactionReadTimeoutMillis(),
                 TransactionReadSentinelBehavior.THROW_EXCEPTION,
-                allowHiddenTableAccess);
+                allowHiddenTableAccess,
+                commitTimestampCache,
+                MoreExecutors.newDirectExecutorService(),
+                valueCache);
         return runTaskThrowOnConflict(task, new OnlyWriteTempTablesTransaction(t, sweepStrategyManager));
     }
 
@@ -265,4 +297,19 @@ public class SnapshotTransactionManager extends AbstractLockAwareTransactionMana
     public KeyValueService getKeyValueService() {
         return keyValueService;
     }
+
+    /**
+     * The start to commit timestamp cache shared by all transactions created by this manager.
+     */
+    public CommitTimestampCache getCommitTimestampCache() {
+        return commitTimestampCache;
+    }
+
+    /**
+     * The cache of committed values from hot tables shared by all transactions created by this
+     * manager.
+     */
+    public TransactionValueCache getValueCache() {
+        return valueCache;
+    }
 }
@@ -0,0 +1,648 @@
+/**
+ * Copyright 2015 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.BoundType;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Ordering;
+import com.google.common.collect.PeekingIterator;
+import com.google.common.collect.Range;
+import com.google.common.io.ByteArrayDataInput;
+import com.google.common.io.ByteArrayDataOutput;
+import com.google.common.io.ByteStreams;
+import com.google.common.primitives.Longs;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.impl.Cells;
+import com.palantir.common.base.ClosableIterator;
+import com.palantir.common.base.ClosableIterators;
+import com.palantir.common.base.Throwables;
+
+/**
+ * A {@link ReadSetStore} that keeps reads in memory until they take up more than a given number of
+ * bytes, and then writes them out to a temp file as one sorted run per table.
+ * <p>
+ * In memory, each table's newest reads are buffered in a small sorted map.  Every
+ * {@link #BUFFER_ENTRIES} entries the buffer is packed into a sorted run of arrays, which holds
+ * little more than the bytes of the cells and the longs, and runs of similar sizes are merged so
+ * that there are only logarithmically many of them.
+ * <p>
+ * A spilled run is cut into blocks of {@link #ENTRIES_PER_BLOCK} entries, and only the first cell
+ * of each block is kept in memory.  Looking up a cell reads one block of each spilled run, and
+ * reading a range reads the blocks it covers from each spilled run and merges them with what is
+ * still in memory.  The temp file is deleted when the store is closed.
+ */
+@ThreadSafe
+public final class SpillingReadSetStore implements ReadSetStore {
+    public static final long DEFAULT_MAX_BYTES_IN_MEMORY = 64L * 1024 * 1024;
+    // Tree map entry, cell, row and column arrays and the boxed long of a buffered entry.
+    private static final int BUFFERED_ENTRY_OVERHEAD_BYTES = 128;
+    private static final int BUFFER_ENTRIES = 1024;
+    private static final int ENTRIES_PER_BLOCK = 256;
+    private static final Comparator<Entry<Cell, Long>> BY_CELL = new Comparator<Entry<Cell, Long>>() {
+        @Override
+        public int compare(Entry<Cell, Long> e1, Entry<Cell, Long> e2) {
+            return e1.getKey().compareTo(e2.getKey());
+        }
+    };
+
+    private final long maxBytesInMemory;
+    // Reads of the runs in a file may happen concurrently; anything that changes the store is exclusive.
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    @GuardedBy("lock")
+    private final Map<String, TableReads> tables = Maps.newHashMap();
+    @GuardedBy("lock")
+    private long bytesInMemory = 0;
+    @GuardedBy("lock")
+    private File spillFile = null;
+    @GuardedBy("lock")
+    private FileChannel spillChannel = null;
+    @GuardedBy("lock")
+    private long spillFileLength = 0;
+
+    public static Supplier<ReadSetStore> supplier(final long maxBytesInMemory) {
+        return new Supplier<ReadSetStore>() {
+            @Override
+            public ReadSetStore get() {
+                return new SpillingReadSetStore(maxBytesInMemory);
+            }
+        };
+    }
+
+    public SpillingReadSetStore(long maxBytesInMemory) {
+        Preconditions.checkArgument(maxBytesInMemory >= 0, "maxBytesInMemory must not be negative");
+        this.maxBytesInMemory = maxBytesInMemory;
+    }
+
+    @Override
+    public void putAll(String table, Map<Cell, Long> values) {
+        if (values.isEmpty()) {
+            return;
+        }
+        // The values may be computed lazily, so compute them before taking the lock.
+        Map<Cell, Long> copy = ImmutableMap.copyOf(values);
+        lock.writeLock().lock();
+        try {
+            TableReads reads = tables.get(table);
+            if (reads == null) {
+                reads = new TableReads();
+                tables.put(table, reads);
+            }
+            for (Entry<Cell, Long> e : copy.entrySet()) {
+                if (reads.buffer.put(e.getKey(), e.getValue()) == null) {
+                    long bytes = Cells.getApproxSizeOfCell(e.getKey()) + BUFFERED_ENTRY_OVERHEAD_BYTES;
+                    reads.bufferBytes += bytes;
+                    bytesInMemory += bytes;
+                }
+                if (reads.buffer.size() >= BUFFER_ENTRIES) {
+                    packBuffer(reads);
+                }
+            }
+            if (bytesInMemory > maxBytesInMemory) {
+                spill();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Set<String> getTables() {
+        lock.readLock().lock();
+        try {
+            return ImmutableSet.copyOf(tables.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Map<Cell, Long> getAll(String table, Iterable<Cell> cells) {
+        lock.readLock().lock();
+        try {
+            TableReads reads = tables.get(table);
+            if (reads == null) {
+                return Collections.emptyMap();
+            }
+            Map<Cell, Long> ret = Maps.newHashMap();
+            List<Cell> notInMemory = Lists.newArrayList();
+            for (Cell cell : cells) {
+                Long value = reads.getFromMemory(cell);
+                if (value != null) {
+                    ret.put(cell, value);
+                } else {
+                    notInMemory.add(cell);
+                }
+            }
+            if (!notInMemory.isEmpty() && !reads.spilledRuns.isEmpty()) {
+                // Sorted, so that cells sharing a block only read it once.
+                Collections.sort(notInMemory);
+                for (SpilledRun run : reads.spilledRuns) {
+                    run.getAll(notInMemory, ret);
+                }
+            }
+            return ret;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public ClosableIterator<Entry<Cell, Long>> getRange(String table, Range<Cell> cells) {
+        List<Iterator<Entry<Cell, Long>>> iterators = Lists.newArrayList();
+        lock.readLock().lock();
+        try {
+            TableReads reads = tables.get(table);
+            if (reads == null) {
+                return ClosableIterators.wrap(Collections.<Entry<Cell, Long>>emptyIterator());
+            }
+            // The buffer changes after the lock is released, but runs never do.
+            List<Entry<Cell, Long>> buffered = Lists.newArrayList();
+            for (Entry<Cell, Long> e : subMap(reads.buffer, cells).entrySet()) {
+                buffered.add(Maps.immutableEntry(e.getKey(), e.getValue()));
+            }
+            iterators.add(buffered.iterator());
+            for (PackedRun run : reads.memoryRuns) {
+                iterators.add(run.getRange(cells));
+            }
+            for (SpilledRun run : reads.spilledRuns) {
+                iterators.add(run.getRange(cells));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return ClosableIterators.wrap(mergeUnique(iterators));
+    }
+
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            tables.clear();
+            bytesInMemory = 0;
+            if (spillChannel != null) {
+                try {
+                    spillChannel.close();
+                } catch (IOException e) {
+                    // The file is deleted below either way.
+                }
+                spillChannel = null;
+                spillFile.delete();
+                spillFile = null;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    long getBytesInMemory() {
+        lock.readLock().lock();
+        try {
+            return bytesInMemory;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the temp file that reads have been spilled to, or null if there is none
+     */
+    File getSpillFile() {
+        lock.readLock().lock();
+        try {
+            return spillFile;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Packs the buffer into a run, and merges the newest runs for as long as the newer of the two
+     * is at least half the size of the older, so run sizes at least double from newest to oldest.
+     */
+    @GuardedBy("lock")
+    private void packBuffer(TableReads reads) {
+        List<PackedRun> runs = Lists.newArrayList(reads.memoryRuns);
+        runs.add(0, PackedRun.create(reads.buffer.entrySet().iterator(), reads.buffer.size()));
+        bytesInMemory += runs.get(0).getApproxSizeInBytes() - reads.bufferBytes;
+        reads.buffer.clear();
+        reads.bufferBytes = 0;
+        while (runs.size() > 1 && 2 * runs.get(0).size() >= runs.get(1).size()) {
+            PackedRun newer = runs.remove(0);
+            PackedRun older = runs.get(0);
+            PackedRun merged = PackedRun.create(
+                    mergeUnique(ImmutableList.of(newer.getRange(Range.<Cell>all()), older.getRange(Range.<Cell>all()))),
+                    newer.size() + older.size());
+            bytesInMemory += merged.getApproxSizeInBytes() - newer.getApproxSizeInBytes() - older.getApproxSizeInBytes();
+            runs.set(0, merged);
+        }
+        reads.memoryRuns = ImmutableList.copyOf(runs);
+    }
+
+    @GuardedBy("lock")
+    private void spill() {
+        try {
+            if (spillChannel == null) {
+                spillFile = File.createTempFile("atlasdb-read-set-", ".tmp");
+                spillChannel = new RandomAccessFile(spillFile, "rw").getChannel();
+            }
+            for (TableReads reads : tables.values()) {
+                if (reads.buffer.isEmpty() && reads.memoryRuns.isEmpty()) {
+                    continue;
+                }
+                List<Iterator<Entry<Cell, Long>>> iterators = Lists.newArrayList();
+                iterators.add(reads.buffer.entrySet().iterator());
+                for (PackedRun run : reads.memoryRuns) {
+                    iterators.add(run.getRange(Range.<Cell>all()));
+                }
+                SpilledRun run = writeRun(mergeUnique(iterators));
+                reads.spilledRuns = ImmutableList.<SpilledRun>builder().add(run).addAll(reads.spilledRuns).build();
+                reads.buffer.clear();
+                reads.bufferBytes = 0;
+                reads.memoryRuns = ImmutableList.of();
+            }
+            bytesInMemory = 0;
+        } catch (IOException e) {
+            throw Throwables.rewrapAndThrowUncheckedException("Could not spill the read set to disk.", e);
+        }
+    }
+
+    @GuardedBy("lock")
+    private SpilledRun writeRun(Iterator<Entry<Cell, Long>> sortedEntries) throws IOException {
+        List<Cell> firstCells = Lists.newArrayList();
+        List<Long> offsets = Lists.newArrayList();
+        List<Entry<Cell, Long>> block = Lists.newArrayListWithCapacity(ENTRIES_PER_BLOCK);
+        while (sortedEntries.hasNext()) {
+            block.clear();
+            while (block.size() < ENTRIES_PER_BLOCK && sortedEntries.hasNext()) {
+                block.add(sortedEntries.next());
+            }
+            ByteArrayDataOutput out = ByteStreams.newDataOutput();
+            out.writeInt(block.size());
+            for (Entry<Cell, Long> e : block) {
+                writeEntry(out, e.getKey(), e.getValue());
+            }
+            firstCells.add(block.get(0).getKey());
+            offsets.add(spillFileLength);
+            ByteBuffer buffer = ByteBuffer.wrap(out.toByteArray());
+            while (buffer.hasRemaining()) {
+                spillFileLength += spillChannel.write(buffer, spillFileLength);
+            }
+        }
+        offsets.add(spillFileLength);
+        return new SpilledRun(spillChannel, firstCells.toArray(new Cell[firstCells.size()]), Longs.toArray(offsets));
+    }
+
+    private static void writeEntry(ByteArrayDataOutput out, Cell cell, long value) {
+        out.writeShort(cell.getRowName().length);
+        out.write(cell.getRowName());
+        out.writeShort(cell.getColumnName().length);
+        out.write(cell.getColumnName());
+        out.writeLong(value);
+    }
+
+    /**
+     * Merges iterators sorted by cell, returning each cell once.  A cell in more than one of them
+     * was put with the same value each time.
+     */
+    private static Iterator<Entry<Cell, Long>> mergeUnique(List<Iterator<Entry<Cell, Long>>> iterators) {
+        if (iterators.size() == 1) {
+            return iterators.get(0);
+        }
+        final PeekingIterator<Entry<Cell, Long>> merged = Iterators.peekingIterator(Iterators.mergeSorted(iterators, BY_CELL));
+        return new AbstractIterator<Entry<Cell, Long>>() {
+            @Override
+            protected Entry<Cell, Long> computeNext() {
+                if (!merged.hasNext()) {
+                    return endOfData();
+                }
+                Entry<Cell, Long> next = merged.next();
+                while (merged.hasNext() && merged.peek().getKey().equals(next.getKey())) {
+                    merged.next();
+                }
+                return next;
+            }
+        };
+    }
+
+    private static NavigableMap<Cell, Long> subMap(NavigableMap<Cell, Long> map, Range<Cell> cells) {
+        NavigableMap<Cell, Long> ret = map;
+        if (cells.hasLowerBound()) {
+            ret = ret.tailMap(cells.lowerEndpoint(), cells.lowerBoundType() == BoundType.CLOSED);
+        }
+        if (cells.hasUpperBound()) {
+            ret = ret.headMap(cells.upperEndpoint(), cells.upperBoundType() == BoundType.CLOSED);
+        }
+        return ret;
+    }
+
+    private static final class TableReads {
+        @GuardedBy("lock")
+        final NavigableMap<Cell, Long> buffer = Maps.newTreeMap();
+        @GuardedBy("lock")
+        long bufferBytes = 0;
+        // Newest first.
+        @GuardedBy("lock")
+        List<PackedRun> memoryRuns = ImmutableList.of();
+        // Newest first.
+        @GuardedBy("lock")
+        List<SpilledRun> spilledRuns = ImmutableList.of();
+
+        @Nullable
+        Long getFromMemory(Cell cell) {
+            Long value = buffer.get(cell);
+            for (Iterator<PackedRun> it = memoryRuns.iterator(); value == null && it.hasNext(); ) {
+                value = it.next().get(cell);
+            }
+            return value;
+        }
+    }
+
+    /**
+     * Entries sorted by cell and packed into arrays.  Each cell is stored as the length of its row,
+     * its row and its column, one after the other in a single byte array.
+     */
+    private static final class PackedRun {
+        private final byte[] cells;
+        // Cell i is stored from offsets[i] up to offsets[i + 1].
+        private final int[] offsets;
+        private final long[] values;
+
+        private PackedRun(byte[] cells, int[] offsets, long[] values) {
+            this.cells = cells;
+            this.offsets = offsets;
+            this.values = values;
+        }
+
+        /**
+         * @param sortedEntries entries sorted by cell, each cell at most once
+         * @param maxSize at least the number of entries
+         */
+        static PackedRun create(Iterator<Entry<Cell, Long>> sortedEntries, int maxSize) {
+            ByteArrayDataOutput out = ByteStreams.newDataOutput();
+            int[] offsets = new int[maxSize + 1];
+            long[] values = new long[maxSize];
+            int size = 0;
+            int position = 0;
+            while (sortedEntries.hasNext()) {
+                Entry<Cell, Long> e = sortedEntries.next();
+                byte[] row = e.getKey().getRowName();
+                byte[] col = e.getKey().getColumnName();
+                out.writeShort(row.length);
+                out.write(row);
+                out.write(col);
+                offsets[size] = position;
+                values[size] = e.getValue();
+                position += 2 + row.length + col.length;
+                size++;
+            }
+            offsets[size] = position;
+            return new PackedRun(out.toByteArray(), Arrays.copyOf(offsets, size + 1), Arrays.copyOf(values, size));
+        }
+
+        int size() {
+            return values.length;
+        }
+
+        long getApproxSizeInBytes() {
+            return cells.length + 4L * offsets.length + 8L * values.length;
+        }
+
+        @Nullable
+        Long get(Cell cell) {
+            int index = indexOf(cell);
+            return index >= 0 ? values[index] : null;
+        }
+
+        Iterator<Entry<Cell, Long>> getRange(final Range<Cell> range) {
+            int start = 0;
+            if (range.hasLowerBound()) {
+                int index = indexOf(range.lowerEndpoint());
+                if (index < 0) {
+                    start = -index - 1;
+                } else {
+                    start = range.lowerBoundType() == BoundType.CLOSED ? index : index + 1;
+                }
+            }
+            final int first = start;
+            return new AbstractIterator<Entry<Cell, Long>>() {
+                int next = first;
+
+                @Override
+                protected Entry<Cell, Long> computeNext() {
+                    if (next == values.length) {
+                        return endOfData();
+                    }
+                    Cell cell = getCell(next);
+                    // Cells from here on are above the lower bound, so this only checks the upper one.
+                    if (!range.contains(cell)) {
+                        return endOfData();
+                    }
+                    return Maps.immutableEntry(cell, values[next++]);
+                }
+            };
+        }
+
+        /**
+         * @return the index of the cell if it is in the run, or else (-(insertion point) - 1)
+         */
+        private int indexOf(Cell cell) {
+            int low = 0;
+            int high = values.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int cmp = compare(cell, mid);
+                if (cmp > 0) {
+                    low = mid + 1;
+                } else if (cmp < 0) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+
+        private int compare(Cell cell, int index) {
+            int rowStart = offsets[index] + 2;
+            int rowLength = getRowLength(index);
+            int cmp = compare(cell.getRowName(), rowStart, rowLength);
+            if (cmp != 0) {
+                return cmp;
+            }
+            int colStart = rowStart + rowLength;
+            return compare(cell.getColumnName(), colStart, offsets[index + 1] - colStart);
+        }
+
+        // Compares unsigned bytes lexicographically, as cells are ordered.
+        private int compare(byte[] name, int start, int length) {
+            int minLength = Math.min(name.length, length);
+            for (int i = 0; i < minLength; i++) {
+                int cmp = (name[i] & 0xff) - (cells[start + i] & 0xff);
+                if (cmp != 0) {
+                    return cmp;
+                }
+            }
+            return name.length - length;
+        }
+
+        private int getRowLength(int index) {
+            return ((cells[offsets[index]] & 0xff) << 8) | (cells[offsets[index] + 1] & 0xff);
+        }
+
+        private Cell getCell(int index) {
+            int rowStart = offsets[index] + 2;
+            int colStart = rowStart + getRowLength(index);
+            return Cell.create(Arrays.copyOfRange(cells, rowStart, colStart), Arrays.copyOfRange(cells, colStart, offsets[index + 1]));
+        }
+    }
+
+    /**
+     * One table's reads as they were when they were spilled, sorted by cell.  Blocks are read with
+     * positional reads, so runs may be read from many threads at once.
+     */
+    private static final class SpilledRun {
+        private final FileChannel channel;
+        private final Cell[] firstCells;
+        // Block i is stored from offsets[i] up to offsets[i + 1].
+        private final long[] offsets;
+
+        SpilledRun(FileChannel channel, Cell[] firstCells, long[] offsets) {
+            this.channel = channel;
+            this.firstCells = firstCells;
+            this.offsets = offsets;
+        }
+
+        /**
+         * Adds the value of each of the sorted cells that is in this run and not yet in ret.
+         */
+        void getAll(List<Cell> sortedCells, Map<Cell, Long> ret) {
+            int loadedBlock = -1;
+            Map<Cell, Long> block = null;
+            for (Cell cell : sortedCells) {
+                if (ret.containsKey(cell)) {
+                    continue;
+                }
+                int blockIndex = findBlock(cell);
+                if (blockIndex < 0) {
+                    continue;
+                }
+                if (blockIndex != loadedBlock) {
+                    block = Maps.newHashMap();
+                    for (Entry<Cell, Long> e : readBlock(blockIndex)) {
+                        block.put(e.getKey(), e.getValue());
+                    }
+                    loadedBlock = blockIndex;
+                }
+                Long value = block.get(cell);
+                if (value != null) {
+                    ret.put(cell, value);
+                }
+            }
+        }
+
+        Iterator<Entry<Cell, Long>> getRange(final Range<Cell> cells) {
+            final int firstBlock = cells.hasLowerBound() ? Math.max(findBlock(cells.lowerEndpoint()), 0) : 0;
+            return new AbstractIterator<Entry<Cell, Long>>() {
+                int nextBlock = firstBlock;
+                Iterator<Entry<Cell, Long>> current = Collections.emptyIterator();
+
+                @Override
+                protected Entry<Cell, Long> computeNext() {
+                    while (true) {
+                        while (current.hasNext()) {
+                            Entry<Cell, Long> e = current.next();
+                            if (cells.contains(e.getKey())) {
+                                return e;
+                            }
+                            if (cells.hasUpperBound() && e.getKey().compareTo(cells.upperEndpoint()) > 0) {
+                                return endOfData();
+                            }
+                        }
+                        if (nextBlock == firstCells.length) {
+                            return endOfData();
+                        }
+                        current = readBlock(nextBlock++).iterator();
+                    }
+                }
+            };
+        }
+
+        /**
+         * @return the last block whose first cell is not after the given cell, or -1 if there is none
+         */
+        private int findBlock(Cell cell) {
+            int index = Arrays.binarySearch(firstCells, cell, Ordering.natural());
+            return index >= 0 ? index : -index - 2;
+        }
+
+        private List<Entry<Cell, Long>> readBlock(int blockIndex) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) (offsets[blockIndex + 1] - offsets[blockIndex]));
+            try {
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, offsets[blockIndex] + buffer.position()) < 0) {
+                        throw new IOException("Unexpected end of the spilled read set.");
+                    }
+                }
+            } catch (IOException e) {
+                throw Throwables.rewrapAndThrowUncheckedException("Could not read the spilled read set.", e);
+            }
+            ByteArrayDataInput in = ByteStreams.newDataInput(buffer.array());
+            int blockSize = in.readInt();
+            List<Entry<Cell, Long>> entries = Lists.newArrayListWithCapacity(blockSize);
+            for (int i = 0; i < blockSize; i++) {
+                entries.add(readEntry(in));
+            }
+            return entries;
+        }
+
+        private static Entry<Cell, Long> readEntry(ByteArrayDataInput in) {
+            byte[] row = new byte[in.readUnsignedShort()];
+            in.readFully(row);
+            byte[] col = new byte[in.readUnsignedShort()];
+            in.readFully(col);
+            return Maps.immutableEntry(Cell.create(row, col), in.readLong());
+        }
+    }
+}
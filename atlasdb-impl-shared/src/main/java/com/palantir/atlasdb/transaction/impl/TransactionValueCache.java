@@ -0,0 +1,420 @@
+/**
+ * Copyright 2015 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.impl;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Predicate;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.impl.Cells;
+import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.CachePriority;
+import com.palantir.atlasdb.table.description.TableMetadata;
+import com.palantir.util.JMXUtils;
+
+/**
+ * A size bounded cache of committed values that may be shared by every transaction created by a
+ * transaction manager.  By default only tables whose metadata has a {@link CachePriority} of
+ * {@link CachePriority#HOT} or {@link CachePriority#HOTTEST} are cached.
+ * <p>
+ * Each entry holds the latest version of a cell that some transaction read, along with the start
+ * and commit timestamps of the transaction that wrote it and the highest start timestamp for
+ * which that version is known to be the latest one.  Versions are never changed once written, and
+ * any version written after a transaction has read a cell gets a commit timestamp after that
+ * transaction's start timestamp.  So an entry that was the latest version below start timestamp
+ * {@code latestAsOf} is what any transaction with a start timestamp between its commit timestamp
+ * and {@code latestAsOf} would read.  Later transactions may use it once they have checked that it
+ * is still the latest version below their own start timestamp, which only needs timestamps from
+ * the key value service and not values.
+ * <p>
+ * Entries do not need to be invalidated for correctness, but commits remove the cells they wrote
+ * because nobody starting after them will read the old versions.  Values removed by aggressive hard
+ * delete may still be served to transactions that started before the delete.
+ */
+@ThreadSafe
+public class TransactionValueCache implements TransactionValueCacheMBean {
+    public static final long DEFAULT_MAX_SIZE_IN_BYTES = 64L * 1024 * 1024;
+    public static final String OBJECT_NAME = "com.palantir.atlasdb:type=TransactionValueCache";
+
+    // Rough size of the key, entry and cache bookkeeping held for every cell on top of its name and value.
+    private static final int ENTRY_OVERHEAD_BYTES = 128;
+    // How long to trust whether a table is cached before asking again, so that a table whose
+    // cache priority changes is picked up without a restart.
+    private static final long TABLE_RECHECK_INTERVAL_SECONDS = 60;
+
+    private final long maxSizeInBytes;
+    private final Cache<TableCell, CachedValue> cache;
+    private final LoadingCache<String, Boolean> cachedTables;
+    private final ConcurrentMap<String, TableStats> statsByTable = Maps.newConcurrentMap();
+
+    public static TransactionValueCache create(KeyValueService keyValueService) {
+        return create(keyValueService, DEFAULT_MAX_SIZE_IN_BYTES);
+    }
+
+    public static TransactionValueCache create(KeyValueService keyValueService, long maxSizeInBytes) {
+        return create(hotTables(keyValueService), maxSizeInBytes);
+    }
+
+    /**
+     * @param shouldCacheTable decides which tables are cached.  It is asked again about a table
+     *        once a minute, or once {@link #clearCacheAndStats()} is called.
+     */
+    public static TransactionValueCache create(Predicate<String> shouldCacheTable, long maxSizeInBytes) {
+        return new TransactionValueCache(shouldCacheTable, maxSizeInBytes, Ticker.systemTicker());
+    }
+
+    static TransactionValueCache create(Predicate<String> shouldCacheTable, long maxSizeInBytes, Ticker ticker) {
+        return new TransactionValueCache(shouldCacheTable, maxSizeInBytes, ticker);
+    }
+
+    private TransactionValueCache(final Predicate<String> shouldCacheTable, long maxSizeInBytes, Ticker ticker) {
+        Preconditions.checkArgument(maxSizeInBytes > 0, "maxSizeInBytes must be positive");
+        this.maxSizeInBytes = maxSizeInBytes;
+        this.cachedTables = CacheBuilder.newBuilder()
+                .expireAfterWrite(TABLE_RECHECK_INTERVAL_SECONDS, TimeUnit.SECONDS)
+                .ticker(ticker)
+                .build(new CacheLoader<String, Boolean>() {
+                    @Override
+                    public Boolean load(String tableName) {
+                        return shouldCacheTable.apply(tableName);
+                    }
+                });
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(maxSizeInBytes)
+                .weigher(new Weigher<TableCell, CachedValue>() {
+                    @Override
+                    public int weigh(TableCell key, CachedValue value) {
+                        return getApproxSize(key, value);
+                    }
+                })
+                .removalListener(new RemovalListener<TableCell, CachedValue>() {
+                    @Override
+                    public void onRemoval(RemovalNotification<TableCell, CachedValue> notification) {
+                        TableStats stats = getStats(notification.getKey().tableName);
+                        stats.bytes.addAndGet(-getApproxSize(notification.getKey(), notification.getValue()));
+                    }
+                })
+                .build();
+    }
+
+    private static Predicate<String> hotTables(final KeyValueService keyValueService) {
+        return new Predicate<String>() {
+            @Override
+            public boolean apply(String tableName) {
+                byte[] metadata = keyValueService.getMetadataForTable(tableName);
+                if (metadata == null || metadata.length == 0) {
+                    return false;
+                }
+                CachePriority priority = TableMetadata.BYTES_HYDRATOR.hydrateFromBytes(metadata).getCachePriority();
+                return priority == CachePriority.HOT || priority == CachePriority.HOTTEST;
+            }
+        };
+    }
+
+    public boolean isCachedTable(String tableName) {
+        return cachedTables.getUnchecked(tableName);
+    }
+
+    /**
+     * Does not count towards the hit rate; callers report how many of their lookups they could use
+     * through {@link #recordLookups(String, int, int)}.
+     */
+    @Nullable
+    public CachedValue get(String tableName, Cell cell) {
+        return cache.getIfPresent(new TableCell(tableName, cell));
+    }
+
+    public void recordLookups(String tableName, int hits, int misses) {
+        TableStats stats = getStats(tableName);
+        stats.hits.addAndGet(hits);
+        stats.misses.addAndGet(misses);
+    }
+
+    /**
+     * Caches a committed version of a cell that was the latest version below the given start
+     * timestamp.  A cached newer version of the cell is kept instead.
+     *
+     * @param contents the value, which is empty if the version is a delete
+     */
+    public void put(String tableName,
+                    Cell cell,
+                    long writeTimestamp,
+                    long commitTimestamp,
+                    byte[] contents,
+                    long latestAsOf) {
+        Preconditions.checkArgument(commitTimestamp <= latestAsOf,
+                "Version committed at %s is not visible at %s", commitTimestamp, latestAsOf);
+        TableCell key = new TableCell(tableName, cell);
+        CachedValue value = new CachedValue(writeTimestamp, commitTimestamp, contents, latestAsOf);
+        ConcurrentMap<TableCell, CachedValue> map = cache.asMap();
+        while (true) {
+            CachedValue existing = map.putIfAbsent(key, value);
+            if (existing == null) {
+                break;
+            }
+            if (existing.writeTimestamp == writeTimestamp) {
+                existing.markLatestAsOf(latestAsOf);
+                return;
+            }
+            if (existing.writeTimestamp > writeTimestamp) {
+                return;
+            }
+            if (map.replace(key, existing, value)) {
+                break;
+            }
+        }
+        getStats(tableName).bytes.addAndGet(getApproxSize(key, value));
+    }
+
+    public void invalidate(String tableName, Iterable<Cell> cells) {
+        for (Cell cell : cells) {
+            cache.invalidate(new TableCell(tableName, cell));
+        }
+    }
+
+    /**
+     * Registers this cache's statistics with JMX under {@link #OBJECT_NAME}.
+     */
+    public void registerMBean() {
+        registerMBean(OBJECT_NAME);
+    }
+
+    public void registerMBean(String objectName) {
+        JMXUtils.registerMBeanCatchAndLogExceptions(this, objectName);
+    }
+
+    private TableStats getStats(String tableName) {
+        TableStats stats = statsByTable.get(tableName);
+        if (stats == null) {
+            statsByTable.putIfAbsent(tableName, new TableStats());
+            stats = statsByTable.get(tableName);
+        }
+        return stats;
+    }
+
+    private static int getApproxSize(TableCell key, CachedValue value) {
+        return (int) Math.min(Integer.MAX_VALUE,
+                Cells.getApproxSizeOfCell(key.cell) + value.contents.length + ENTRY_OVERHEAD_BYTES);
+    }
+
+    @Override
+    public long getHitCount() {
+        long hits = 0;
+        for (TableStats stats : statsByTable.values()) {
+            hits += stats.hits.get();
+        }
+        return hits;
+    }
+
+    @Override
+    public long getMissCount() {
+        long misses = 0;
+        for (TableStats stats : statsByTable.values()) {
+            misses += stats.misses.get();
+        }
+        return misses;
+    }
+
+    @Override
+    public float getCacheHitPercentage() {
+        return getHitPercentage(getHitCount(), getMissCount());
+    }
+
+    @Override
+    public long getSize() {
+        return cache.size();
+    }
+
+    @Override
+    public long getApproximateSizeInBytes() {
+        long bytes = 0;
+        for (TableStats stats : statsByTable.values()) {
+            bytes += stats.bytes.get();
+        }
+        return bytes;
+    }
+
+    @Override
+    public long getMaxSizeInBytes() {
+        return maxSizeInBytes;
+    }
+
+    @Override
+    public Map<String, Long> getHitCountByTable() {
+        ImmutableMap.Builder<String, Long> builder = ImmutableMap.builder();
+        for (Map.Entry<String, TableStats> e : statsByTable.entrySet()) {
+            builder.put(e.getKey(), e.getValue().hits.get());
+        }
+        return builder.build();
+    }
+
+    @Override
+    public Map<String, Long> getMissCountByTable() {
+        ImmutableMap.Builder<String, Long> builder = ImmutableMap.builder();
+        for (Map.Entry<String, TableStats> e : statsByTable.entrySet()) {
+            builder.put(e.getKey(), e.getValue().misses.get());
+        }
+        return builder.build();
+    }
+
+    @Override
+    public Map<String, Float> getCacheHitPercentageByTable() {
+        ImmutableMap.Builder<String, Float> builder = ImmutableMap.builder();
+        for (Map.Entry<String, TableStats> e : statsByTable.entrySet()) {
+            builder.put(e.getKey(), getHitPercentage(e.getValue().hits.get(), e.getValue().misses.get()));
+        }
+        return builder.build();
+    }
+
+    @Override
+    public Map<String, Long> getApproximateSizeInBytesByTable() {
+        ImmutableMap.Builder<String, Long> builder = ImmutableMap.builder();
+        for (Map.Entry<String, TableStats> e : statsByTable.entrySet()) {
+            builder.put(e.getKey(), e.getValue().bytes.get());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Also forgets which tables are cached, so changes to their metadata are picked up.
+     */
+    @Override
+    public void clearCacheAndStats() {
+        cachedTables.invalidateAll();
+        cache.invalidateAll();
+        for (TableStats stats : statsByTable.values()) {
+            stats.hits.set(0);
+            stats.misses.set(0);
+        }
+    }
+
+    private static float getHitPercentage(long hits, long misses) {
+        if (hits + misses == 0) {
+            return 100.f;
+        }
+        return 100.0f * hits / (hits + misses);
+    }
+
+    /**
+     * A committed version of a cell.
+     */
+    public static final class CachedValue {
+        private final long writeTimestamp;
+        private final long commitTimestamp;
+        private final byte[] contents;
+        private final AtomicLong latestAsOf;
+
+        CachedValue(long writeTimestamp, long commitTimestamp, byte[] contents, long latestAsOf) {
+            this.writeTimestamp = writeTimestamp;
+            this.commitTimestamp = commitTimestamp;
+            this.contents = contents;
+            this.latestAsOf = new AtomicLong(latestAsOf);
+        }
+
+        public long getWriteTimestamp() {
+            return writeTimestamp;
+        }
+
+        public long getCommitTimestamp() {
+            return commitTimestamp;
+        }
+
+        /**
+         * @return the value, which is empty if this version is a delete
+         */
+        public byte[] getContents() {
+            return contents;
+        }
+
+        /**
+         * @return true if a transaction with this start timestamp may read this version, if it is
+         *         still the latest one
+         */
+        public boolean isVisibleAt(long startTimestamp) {
+            return commitTimestamp <= startTimestamp;
+        }
+
+        /**
+         * @return true if this version is known to be the one a transaction with this start
+         *         timestamp reads
+         */
+        public boolean isKnownLatestAt(long startTimestamp) {
+            return isVisibleAt(startTimestamp) && startTimestamp <= latestAsOf.get();
+        }
+
+        /**
+         * Records that this version is the latest one below the given start timestamp.
+         */
+        public void markLatestAsOf(long startTimestamp) {
+            while (true) {
+                long current = latestAsOf.get();
+                if (current >= startTimestamp || latestAsOf.compareAndSet(current, startTimestamp)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private static final class TableCell {
+        final String tableName;
+        final Cell cell;
+
+        TableCell(String tableName, Cell cell) {
+            this.tableName = tableName;
+            this.cell = cell;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * tableName.hashCode() + cell.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof TableCell)) {
+                return false;
+            }
+            TableCell other = (TableCell) obj;
+            return tableName.equals(other.tableName) && cell.equals(other.cell);
+        }
+    }
+
+    private static final class TableStats {
+        final AtomicLong hits = new AtomicLong();
+        final AtomicLong misses = new AtomicLong();
+        final AtomicLong bytes = new AtomicLong();
+    }
+}
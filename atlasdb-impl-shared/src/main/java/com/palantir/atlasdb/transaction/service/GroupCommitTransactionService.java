@@ -0,0 +1,202 @@
+/**
+ * Copyright 2015 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.transaction.impl.TransactionConstants;
+import com.palantir.common.base.Throwables;
+import com.palantir.common.concurrent.GroupCommitter;
+import com.palantir.common.concurrent.GroupCommitter.Request;
+
+/**
+ * A {@link TransactionService} that coalesces concurrent {@link #putUnlessExists(long, long)}
+ * calls into a single multi-cell {@link KeyValueService#putUnlessExists(String, Map)}.
+ * <p>
+ * Writes are batched by a {@link GroupCommitter}: whichever caller leads a batch writes everything
+ * queued so far at once, and writes that arrive while a batch is in flight are grouped into the
+ * next one.  A caller running alone pays no extra latency.
+ * <p>
+ * A multi-cell putUnlessExists is not atomic across cells, so if the batch fails each write in it
+ * is resolved on its own: values that were written are reported as successful, values that lost
+ * to another writer throw {@link KeyAlreadyExistsException}, and values that were not written are
+ * retried individually.  A retry that finds the caller's own commit timestamp already stored
+ * counts as successful.
+ */
+@ThreadSafe
+final class GroupCommitTransactionService implements TransactionService {
+    private static final Logger log = LoggerFactory.getLogger(GroupCommitTransactionService.class);
+
+    private static final int DEFAULT_MAX_BATCH_SIZE = 1000;
+
+    private final KeyValueService keyValueService;
+    private final TransactionService delegate;
+    private final GroupCommitter<PendingPut, Void> committer;
+
+    GroupCommitTransactionService(KeyValueService keyValueService, TransactionService delegate) {
+        this(keyValueService, delegate, DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    GroupCommitTransactionService(KeyValueService keyValueService,
+                                  TransactionService delegate,
+                                  int maxBatchSize) {
+        Preconditions.checkArgument(maxBatchSize > 0, "maxBatchSize must be positive");
+        this.keyValueService = keyValueService;
+        this.delegate = delegate;
+        this.committer = GroupCommitter.create(new GroupCommitter.BatchHandler<PendingPut, Void>() {
+            @Override
+            public void handle(List<Request<PendingPut, Void>> batch) {
+                flush(batch);
+            }
+        }, maxBatchSize);
+    }
+
+    @Override
+    public Long get(long startTimestamp) {
+        return delegate.get(startTimestamp);
+    }
+
+    @Override
+    public Map<Long, Long> get(Iterable<Long> startTimestamps) {
+        return delegate.get(startTimestamps);
+    }
+
+    @Override
+    public void putUnlessExists(long startTimestamp, long commitTimestamp) throws KeyAlreadyExistsException {
+        try {
+            committer.submit(new PendingPut(startTimestamp, commitTimestamp));
+        } catch (ExecutionException e) {
+            throw Throwables.throwUncheckedException(e.getCause());
+        }
+    }
+
+    private void flush(List<Request<PendingPut, Void>> requests) {
+        List<Request<PendingPut, Void>> batch = Lists.newArrayListWithCapacity(requests.size());
+        Set<Long> startTimestamps = Sets.newHashSet();
+        for (Request<PendingPut, Void> request : requests) {
+            if (!startTimestamps.add(request.get().startTimestamp)) {
+                // Two callers racing on the same start timestamp; only one of them can win.
+                request.fail(new KeyAlreadyExistsException("Commit timestamp for start timestamp "
+                        + request.get().startTimestamp + " was already being written."));
+                continue;
+            }
+            batch.add(request);
+        }
+        if (batch.size() == 1) {
+            putSingle(batch.get(0));
+            return;
+        }
+        try {
+            Map<Cell, byte[]> values = Maps.newHashMapWithExpectedSize(batch.size());
+            for (Request<PendingPut, Void> request : batch) {
+                values.put(getTransactionCell(request.get().startTimestamp),
+                        TransactionConstants.getValueForTimestamp(request.get().commitTimestamp));
+            }
+            keyValueService.putUnlessExists(TransactionConstants.TRANSACTION_TABLE, values);
+            for (Request<PendingPut, Void> request : batch) {
+                request.complete(null);
+            }
+        } catch (RuntimeException e) {
+            log.debug("Group commit of {} commit timestamps failed; resolving them individually.", batch.size(), e);
+            resolveIndividually(batch);
+        }
+    }
+
+    private void resolveIndividually(List<Request<PendingPut, Void>> batch) {
+        Map<Long, Long> stored;
+        try {
+            List<Long> startTimestamps = Lists.newArrayListWithCapacity(batch.size());
+            for (Request<PendingPut, Void> request : batch) {
+                startTimestamps.add(request.get().startTimestamp);
+            }
+            stored = delegate.get(startTimestamps);
+        } catch (RuntimeException e) {
+            log.warn("Failed to read back commit timestamps after a failed group commit.", e);
+            stored = Maps.newHashMap();
+        }
+        for (Request<PendingPut, Void> request : batch) {
+            Long storedCommitTs = stored.get(request.get().startTimestamp);
+            if (storedCommitTs == null) {
+                putSingle(request);
+            } else if (storedCommitTs == request.get().commitTimestamp) {
+                request.complete(null);
+            } else {
+                request.fail(new KeyAlreadyExistsException("Commit timestamp for start timestamp "
+                        + request.get().startTimestamp + " already exists."));
+            }
+        }
+    }
+
+    private static Cell getTransactionCell(long startTimestamp) {
+        return Cell.create(
+                TransactionConstants.getValueForTimestamp(startTimestamp),
+                TransactionConstants.COMMIT_TS_COLUMN);
+    }
+
+    private void putSingle(Request<PendingPut, Void> request) {
+        PendingPut put = request.get();
+        try {
+            delegate.putUnlessExists(put.startTimestamp, put.commitTimestamp);
+        } catch (KeyAlreadyExistsException e) {
+            // Our own batch may have written the value before failing.
+            if (isStored(put)) {
+                request.complete(null);
+            } else {
+                request.fail(e);
+            }
+            return;
+        } catch (RuntimeException e) {
+            request.fail(e);
+            return;
+        }
+        request.complete(null);
+    }
+
+    private boolean isStored(PendingPut put) {
+        try {
+            Long storedCommitTs = delegate.get(put.startTimestamp);
+            return storedCommitTs != null && storedCommitTs == put.commitTimestamp;
+        } catch (RuntimeException e) {
+            log.warn("Failed to read back the commit timestamp for start timestamp {}.", put.startTimestamp, e);
+            return false;
+        }
+    }
+
+    private static final class PendingPut {
+        final long startTimestamp;
+        final long commitTimestamp;
+
+        PendingPut(long startTimestamp, long commitTimestamp) {
+            this.startTimestamp = startTimestamp;
+            this.commitTimestamp = commitTimestamp;
+        }
+    }
+}
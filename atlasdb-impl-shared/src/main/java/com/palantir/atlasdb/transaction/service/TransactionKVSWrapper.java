@@ -18,8 +18,12 @@ package com.palantir.atlasdb.transaction.service;
 import java.util.HashMap;
 import java.util.Map;
 
+import javax.annotation.Nullable;
+
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.Maps;
+import com.palantir.atlasdb.encoding.PtBytes;
 import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
@@ -31,6 +35,12 @@ public class TransactionKVSWrapper {
     // All entries in transaction table are stored with timestamp 0
     private static final long MAX_TIMESTAMP = 1L;
 
+    // Transactions only read the commit timestamp column, so another column in their table is safe
+    // from them.  The watermark is stored at a key value store timestamp equal to its value.
+    private static final Cell WATERMARK_CELL = Cell.create(
+            TransactionConstants.getValueForTimestamp(0L),
+            PtBytes.toBytes("w"));
+
     private final KeyValueService keyValueService;
 
     public TransactionKVSWrapper(KeyValueService keyValueService) {
@@ -88,4 +98,33 @@ public class TransactionKVSWrapper {
         keyValueService.put(TransactionConstants.TRANSACTION_TABLE, kvMap, 0); // This can throw unchecked exceptions
     }
 
+    /**
+     * @return the greatest watermark stored so far, or null if none has been
+     */
+    @Nullable
+    public Long getWatermark() {
+        Map<Cell, Value> returnMap = keyValueService.get(TransactionConstants.TRANSACTION_TABLE,
+                                                         ImmutableMap.of(WATERMARK_CELL, Long.MAX_VALUE));
+        Value value = returnMap.get(WATERMARK_CELL);
+        return value == null ? null : value.getTimestamp();
+    }
+
+    /**
+     * Stores a watermark, which only takes effect if it is greater than the stored one, and removes
+     * the previous one it replaces.
+     */
+    public void putWatermark(long watermark, @Nullable Long previousWatermark) {
+        try {
+            keyValueService.put(TransactionConstants.TRANSACTION_TABLE,
+                                ImmutableMap.of(WATERMARK_CELL, TransactionConstants.getValueForTimestamp(watermark)),
+                                watermark);
+        } catch (KeyAlreadyExistsException e) {
+            // someone else stored the same watermark
+        }
+        if (previousWatermark != null && previousWatermark < watermark) {
+            keyValueService.delete(TransactionConstants.TRANSACTION_TABLE,
+                                   ImmutableMultimap.of(WATERMARK_CELL, previousWatermark));
+        }
+    }
+
 }
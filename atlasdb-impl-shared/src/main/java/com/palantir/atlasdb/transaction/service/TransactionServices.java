@@ -22,4 +22,14 @@ public class TransactionServices {
             KeyValueService keyValueService) {
         return new SimpleTransactionService(keyValueService);
     }
+
+    /**
+     * Creates a transaction service that groups concurrent commit timestamp writes into a single
+     * multi-cell putUnlessExists against the transaction table.
+     */
+    public static TransactionService createGroupCommitTransactionService(
+            KeyValueService keyValueService) {
+        return new GroupCommitTransactionService(keyValueService,
+                createTransactionService(keyValueService));
+    }
 }
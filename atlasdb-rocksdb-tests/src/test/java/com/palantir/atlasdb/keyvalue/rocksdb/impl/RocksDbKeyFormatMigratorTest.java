@@ -0,0 +1,198 @@
+/**
+ * Copyright 2015 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.rocksdb.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.rocksdb.ColumnFamilyDescriptor;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.ColumnFamilyOptions;
+import org.rocksdb.Options;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.common.base.ClosableIterator;
+
+public final class RocksDbKeyFormatMigratorTest {
+    private static final File LEGACY_DIR = new File("testdb-legacy");
+    private static final File NEW_DIR = new File("testdb-migrated");
+    private static final String TABLE = "t";
+    private static final byte[] METADATA = PtBytes.toBytes("table metadata");
+
+    // Rows and columns that sort differently in the two formats, including ones that need escaping.
+    private static final byte[][] NAMES = new byte[][] {
+        new byte[] {0},
+        new byte[] {0, 0},
+        new byte[] {0, 1},
+        new byte[] {1},
+        new byte[] {1, 0, 1},
+        new byte[] {(byte) 0xFF},
+        "r".getBytes(Charsets.UTF_8),
+        "r1".getBytes(Charsets.UTF_8),
+    };
+    private static final long[] TIMESTAMPS = new long[] {1L, 2L, 300L};
+
+    @Before
+    public void setUp() throws Exception {
+        deleteRecursively(LEGACY_DIR);
+        deleteRecursively(NEW_DIR);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        deleteRecursively(LEGACY_DIR);
+        deleteRecursively(NEW_DIR);
+    }
+
+    @Test
+    public void testMigratedDatabaseHoldsEveryVersion() throws Exception {
+        writeLegacyDatabase();
+        RocksDbKeyFormatMigrator.migrate(LEGACY_DIR, NEW_DIR);
+
+        RocksDbKeyValueService kvs = RocksDbKeyValueService.create(NEW_DIR.getAbsolutePath());
+        try {
+            assertEquals(ImmutableSet.of(TABLE), kvs.getAllTableNames());
+            assertArrayEquals(METADATA, kvs.getMetadataForTable(TABLE));
+
+            Map<Cell, Long> latest = Maps.newHashMap();
+            for (byte[] row : NAMES) {
+                for (byte[] col : NAMES) {
+                    latest.put(Cell.create(row, col), Long.MAX_VALUE);
+                }
+            }
+            Map<Cell, Value> values = kvs.get(TABLE, latest);
+            assertEquals(latest.size(), values.size());
+            for (Map.Entry<Cell, Value> entry : values.entrySet()) {
+                assertEquals(TIMESTAMPS[TIMESTAMPS.length - 1], entry.getValue().getTimestamp());
+                assertArrayEquals(valueFor(entry.getKey(), entry.getValue().getTimestamp()),
+                        entry.getValue().getContents());
+            }
+
+            Multimap<Cell, Long> timestamps = kvs.getAllTimestamps(TABLE, latest.keySet(), Long.MAX_VALUE);
+            assertEquals(latest.size() * TIMESTAMPS.length, timestamps.size());
+
+            // Reads at an older timestamp see the older version.
+            Map<Cell, Long> older = Maps.newHashMap();
+            for (Cell cell : latest.keySet()) {
+                older.put(cell, TIMESTAMPS[1]);
+            }
+            for (Map.Entry<Cell, Value> entry : kvs.get(TABLE, older).entrySet()) {
+                assertEquals(TIMESTAMPS[0], entry.getValue().getTimestamp());
+            }
+
+            // Range scans come back in row order under the new format.
+            List<byte[]> rows = Lists.newArrayList();
+            ClosableIterator<RowResult<Value>> range = kvs.getRange(TABLE, RangeRequest.all(), Long.MAX_VALUE);
+            try {
+                while (range.hasNext()) {
+                    RowResult<Value> rowResult = range.next();
+                    assertEquals(NAMES.length, rowResult.getColumns().size());
+                    rows.add(rowResult.getRowName());
+                }
+            } finally {
+                range.close();
+            }
+            assertEquals(NAMES.length, rows.size());
+            for (int i = 1; i < rows.size(); i++) {
+                assertEquals(-1, Integer.signum(PtBytes.BYTES_COMPARATOR.compare(rows.get(i - 1), rows.get(i))));
+            }
+        } finally {
+            kvs.close();
+        }
+    }
+
+    @Test
+    public void testLegacyDatabaseIsRejected() throws Exception {
+        writeLegacyDatabase();
+        try {
+            RocksDbKeyValueService.create(LEGACY_DIR.getAbsolutePath()).close();
+            fail("Opened a database in the legacy key format");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testNonEmptyTargetIsRejected() throws Exception {
+        writeLegacyDatabase();
+        RocksDbKeyFormatMigrator.migrate(LEGACY_DIR, NEW_DIR);
+        try {
+            RocksDbKeyFormatMigrator.migrate(LEGACY_DIR, NEW_DIR);
+            fail("Migrated into a directory that already holds a database");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    private static void writeLegacyDatabase() throws RocksDBException {
+        RocksDB db = RocksDB.open(new Options().setCreateIfMissing(true), LEGACY_DIR.getAbsolutePath());
+        ColumnFamilyHandle table = db.createColumnFamily(new ColumnFamilyDescriptor(
+                TABLE.getBytes(Charsets.UTF_8), new ColumnFamilyOptions().setComparator(RocksComparator.INSTANCE)));
+        ColumnFamilyHandle metadata = db.createColumnFamily(new ColumnFamilyDescriptor(
+                RocksDbKeyValueService.METADATA_TABLE_NAME.getBytes(Charsets.UTF_8)));
+        try {
+            for (byte[] row : NAMES) {
+                for (byte[] col : NAMES) {
+                    for (long ts : TIMESTAMPS) {
+                        db.put(table, RocksComparator.getKey(row, col, ts), valueFor(Cell.create(row, col), ts));
+                    }
+                }
+            }
+            db.put(metadata, TABLE.getBytes(Charsets.UTF_8), METADATA);
+        } finally {
+            table.dispose();
+            metadata.dispose();
+            db.close();
+        }
+    }
+
+    private static byte[] valueFor(Cell cell, long ts) {
+        return PtBytes.toBytes(PtBytes.encodeHexString(cell.getRowName()) + "/"
+                + PtBytes.encodeHexString(cell.getColumnName()) + "@" + ts);
+    }
+
+    private static void deleteRecursively(File file) throws IOException {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        if (file.exists() && !file.delete()) {
+            throw new IOException("Could not delete " + file);
+        }
+    }
+}
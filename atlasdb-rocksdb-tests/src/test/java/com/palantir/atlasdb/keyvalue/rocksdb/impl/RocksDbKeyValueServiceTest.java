@@ -21,6 +21,9 @@ import static org.junit.Assert.fail;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.After;
 import org.junit.Before;
@@ -270,6 +273,42 @@ public final class RocksDbKeyValueServiceTest {
     }
 
 
+    @Test
+    public void testConcurrentPutsAreAllWritten() throws Exception {
+        final int numThreads = 16;
+        final int putsPerThread = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            List<Future<?>> futures = Lists.newArrayList();
+            for (int t = 0; t < numThreads; t++) {
+                final int thread = t;
+                futures.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        for (int i = 0; i < putsPerThread; i++) {
+                            Cell cell = Cell.create(("r" + thread + "_" + i).getBytes(), COMMIT_TS_COLUMN);
+                            db.put("yo", ImmutableMap.of(cell, ("v" + i).getBytes()), i + 1);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        for (int t = 0; t < numThreads; t++) {
+            for (int i = 0; i < putsPerThread; i++) {
+                Cell cell = Cell.create(("r" + t + "_" + i).getBytes(), COMMIT_TS_COLUMN);
+                Value value = db.get("yo", ImmutableMap.of(cell, Long.MAX_VALUE)).get(cell);
+                assertEquals(i + 1, value.getTimestamp());
+                assertEquals("v" + i, new String(value.getContents()));
+            }
+        }
+    }
+
+
     @Test
     public void testDoubleOpen() {
         try {
@@ -0,0 +1,108 @@
+/**
+ * Copyright 2015 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.rocksdb.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.google.common.collect.ComparisonChain;
+import com.google.common.collect.Lists;
+import com.google.common.primitives.UnsignedBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.util.Pair;
+
+public final class RocksDbKeyValueServicesTest {
+    private static final byte[][] NAMES = new byte[][] {
+        new byte[] {0},
+        new byte[] {0, 0},
+        new byte[] {0, 1},
+        new byte[] {0, (byte) 0xFF},
+        new byte[] {1},
+        new byte[] {1, 0},
+        new byte[] {1, 0, 1},
+        new byte[] {1, 2},
+        new byte[] {(byte) 0xFF},
+        new byte[] {(byte) 0xFF, 0},
+        "r".getBytes(),
+        "r1".getBytes(),
+        "r12".getBytes(),
+    };
+
+    private static final long[] TIMESTAMPS = new long[] {
+        Value.INVALID_VALUE_TIMESTAMP, 0L, 1L, 255L, 256L, Long.MAX_VALUE - 1, Long.MAX_VALUE,
+    };
+
+    @Test
+    public void testRoundTrip() {
+        for (byte[] row : NAMES) {
+            for (byte[] col : NAMES) {
+                for (long ts : TIMESTAMPS) {
+                    Pair<Cell, Long> cellAndTs = RocksDbKeyValueServices.parseCellAndTs(
+                            RocksDbKeyValueServices.getKey(row, col, ts));
+                    assertArrayEquals(row, cellAndTs.lhSide.getRowName());
+                    assertArrayEquals(col, cellAndTs.lhSide.getColumnName());
+                    assertEquals(ts, (long) cellAndTs.rhSide);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testBytewiseOrderMatchesCellOrder() {
+        List<Pair<Cell, Long>> cells = Lists.newArrayList();
+        for (byte[] row : NAMES) {
+            for (byte[] col : NAMES) {
+                for (long ts : TIMESTAMPS) {
+                    cells.add(Pair.create(Cell.create(row, col), ts));
+                }
+            }
+        }
+        Collections.shuffle(cells, new Random(0));
+        for (Pair<Cell, Long> a : cells.subList(0, 200)) {
+            for (Pair<Cell, Long> b : cells) {
+                int expected = ComparisonChain.start()
+                        .compare(a.lhSide.getRowName(), b.lhSide.getRowName(), UnsignedBytes.lexicographicalComparator())
+                        .compare(a.lhSide.getColumnName(), b.lhSide.getColumnName(), UnsignedBytes.lexicographicalComparator())
+                        .compare(a.rhSide, b.rhSide)
+                        .result();
+                int actual = UnsignedBytes.lexicographicalComparator().compare(
+                        RocksDbKeyValueServices.getKey(a.lhSide, a.rhSide),
+                        RocksDbKeyValueServices.getKey(b.lhSide, b.rhSide));
+                assertEquals(a + " vs " + b, Integer.signum(expected), Integer.signum(actual));
+            }
+        }
+    }
+
+    @Test
+    public void testPrefixes() {
+        Cell cell = Cell.create(new byte[] {1, 0}, new byte[] {0});
+        byte[] key = RocksDbKeyValueServices.getKey(cell, Value.INVALID_VALUE_TIMESTAMP);
+        assertTrue(RocksDbKeyValueServices.startsWith(key, RocksDbKeyValueServices.getRowPrefix(cell.getRowName())));
+        assertTrue(RocksDbKeyValueServices.startsWith(key, RocksDbKeyValueServices.getCellPrefix(cell)));
+        // A row must not match the prefix of a shorter row that it starts with.
+        assertTrue(!RocksDbKeyValueServices.startsWith(key, RocksDbKeyValueServices.getRowPrefix(new byte[] {1})));
+        assertTrue(UnsignedBytes.lexicographicalComparator().compare(
+                RocksDbKeyValueServices.getCellPrefix(cell), key) < 0);
+    }
+}
@@ -0,0 +1,152 @@
+/**
+ * Copyright 2015 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.rocksdb.impl;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.WriteBatch;
+import org.rocksdb.WriteOptions;
+
+import com.google.common.collect.Lists;
+import com.palantir.common.base.Throwables;
+import com.palantir.common.concurrent.GroupCommitter;
+import com.palantir.common.concurrent.GroupCommitter.Request;
+
+/**
+ * Writes batches to RocksDB with synced write-ahead log writes, combining batches from concurrent
+ * writers into a single write so that they share one fsync.
+ * <p>
+ * Writers are grouped by a {@link GroupCommitter}: whichever writer leads a group applies
+ * everything queued so far, up to {@code maxGroupSizeBytes}, in one {@link WriteBatch}.  Writers that
+ * arrive while a group is being synced are grouped into the next one.  A writer running alone pays
+ * no extra latency.
+ * <p>
+ * A group is written atomically, so if the write fails it fails for every writer in the group.
+ */
+@ThreadSafe
+final class GroupCommitWriter {
+    private static final long DEFAULT_MAX_GROUP_SIZE_BYTES = 4 * 1024 * 1024;
+
+    private static final GroupCommitter.Weigher<Writes> SIZE_WEIGHER = new GroupCommitter.Weigher<Writes>() {
+        @Override
+        public long weigh(Writes writes) {
+            return writes.sizeBytes;
+        }
+    };
+
+    private final RocksDB db;
+    private final GroupCommitter<Writes, Void> committer;
+
+    GroupCommitWriter(RocksDB db) {
+        this(db, DEFAULT_MAX_GROUP_SIZE_BYTES);
+    }
+
+    GroupCommitWriter(RocksDB db, long maxGroupSizeBytes) {
+        this.db = db;
+        this.committer = GroupCommitter.create(new GroupCommitter.BatchHandler<Writes, Void>() {
+            @Override
+            public void handle(List<Request<Writes, Void>> group) {
+                writeGroup(group);
+            }
+        }, SIZE_WEIGHER, maxGroupSizeBytes);
+    }
+
+    /**
+     * Applies the writes and syncs the write-ahead log.
+     */
+    void write(Writes writes) throws RocksDBException {
+        if (writes.isEmpty()) {
+            return;
+        }
+        try {
+            committer.submit(writes);
+        } catch (ExecutionException e) {
+            Throwables.throwIfInstance(e.getCause(), RocksDBException.class);
+            throw Throwables.throwUncheckedException(e.getCause());
+        }
+    }
+
+    private void writeGroup(List<Request<Writes, Void>> group) {
+        RocksDBException failure = null;
+        WriteBatch batch = new WriteBatch();
+        WriteOptions options = new WriteOptions().setSync(true);
+        try {
+            for (Request<Writes, Void> write : group) {
+                write.get().addTo(batch);
+            }
+            db.write(options, batch);
+        } catch (RocksDBException e) {
+            failure = e;
+        } finally {
+            options.dispose();
+            batch.dispose();
+        }
+        for (Request<Writes, Void> write : group) {
+            if (failure == null) {
+                write.complete(null);
+            } else {
+                write.fail(failure);
+            }
+        }
+    }
+
+    /**
+     * The puts and removes making up one atomic write.
+     */
+    @NotThreadSafe
+    static final class Writes {
+        private final List<ColumnFamilyHandle> tables = Lists.newArrayList();
+        private final List<byte[]> keys = Lists.newArrayList();
+        // A null value marks a remove.
+        private final List<byte[]> values = Lists.newArrayList();
+        private long sizeBytes = 0;
+
+        void put(ColumnFamilyHandle table, byte[] key, byte[] value) {
+            tables.add(table);
+            keys.add(key);
+            values.add(value);
+            sizeBytes += key.length + value.length;
+        }
+
+        void remove(ColumnFamilyHandle table, byte[] key) {
+            tables.add(table);
+            keys.add(key);
+            values.add(null);
+            sizeBytes += key.length;
+        }
+
+        boolean isEmpty() {
+            return keys.isEmpty();
+        }
+
+        void addTo(WriteBatch batch) {
+            for (int i = 0; i < keys.size(); i++) {
+                if (values.get(i) == null) {
+                    batch.remove(tables.get(i), keys.get(i));
+                } else {
+                    batch.put(tables.get(i), keys.get(i), values.get(i));
+                }
+            }
+        }
+    }
+}
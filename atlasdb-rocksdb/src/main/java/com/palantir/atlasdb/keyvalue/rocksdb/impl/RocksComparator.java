@@ -15,16 +15,28 @@
  */
 package com.palantir.atlasdb.keyvalue.rocksdb.impl;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.apache.commons.lang.ArrayUtils;
 import org.rocksdb.Comparator;
 import org.rocksdb.ComparatorOptions;
 import org.rocksdb.Slice;
 
 import com.google.common.collect.ComparisonChain;
 import com.google.common.primitives.UnsignedBytes;
+import com.palantir.atlasdb.encoding.PtBytes;
 import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.ptobject.EncodingUtils;
 import com.palantir.util.Pair;
 
+/**
+ * The comparator for the legacy key format, in which keys were the raw row and column followed by
+ * the timestamp and a reversed var-long row length.  Column families written in that format can
+ * only be opened with this comparator, so it is kept for {@link RocksDbKeyFormatMigrator}.
+ */
 public class RocksComparator extends Comparator {
+    public static final String NAME = "atlasdb";
     public static final RocksComparator INSTANCE = new RocksComparator(new ComparatorOptions());
 
     public RocksComparator(ComparatorOptions copt) {
@@ -33,17 +45,49 @@ public class RocksComparator extends Comparator {
 
     @Override
     public String name() {
-        return "atlasdb";
+        return NAME;
     }
 
     @Override
     public int compare(Slice a, Slice b) {
-        Pair<Cell, Long> cellAndTsA = RocksDbKeyValueServices.parseCellAndTs(a.data());
-        Pair<Cell, Long> cellAndTsB = RocksDbKeyValueServices.parseCellAndTs(b.data());
+        Pair<Cell, Long> cellAndTsA = parseCellAndTs(a.data());
+        Pair<Cell, Long> cellAndTsB = parseCellAndTs(b.data());
         return ComparisonChain.start()
                 .compare(cellAndTsA.lhSide.getRowName(), cellAndTsB.lhSide.getRowName(), UnsignedBytes.lexicographicalComparator())
                 .compare(cellAndTsA.lhSide.getColumnName(), cellAndTsB.lhSide.getColumnName(), UnsignedBytes.lexicographicalComparator())
                 .compare(cellAndTsA.rhSide, cellAndTsB.rhSide)
                 .result();
     }
+
+    /**
+     * Encodes a key in the legacy format.  Only used to write legacy databases in tests.
+     */
+    static byte[] getKey(byte[] row, byte[] col, long ts) {
+        byte[] rowSize = EncodingUtils.encodeVarLong(row.length);
+        ArrayUtils.reverse(rowSize);
+        byte[] key = new byte[row.length + col.length + 8 + rowSize.length];
+        ByteBuffer.wrap(key).order(ByteOrder.BIG_ENDIAN)
+                .put(row)
+                .put(col)
+                .putLong(ts)
+                .put(rowSize);
+        return key;
+    }
+
+    static Pair<Cell, Long> parseCellAndTs(byte[] key) {
+        byte[] rowSizeBytes = PtBytes.tail(key, 2);
+        ArrayUtils.reverse(rowSizeBytes);
+
+        int rowSize = (int) EncodingUtils.decodeVarLong(rowSizeBytes);
+        int colSize = key.length - rowSize - 8 - EncodingUtils.sizeOfVarLong(rowSize);
+        byte[] rowName = new byte[rowSize];
+        byte[] colName = new byte[colSize];
+
+        ByteBuffer keyBuffer = ByteBuffer.wrap(key).order(ByteOrder.BIG_ENDIAN);
+        keyBuffer.get(rowName);
+        keyBuffer.get(colName);
+        long ts = keyBuffer.getLong();
+
+        return Pair.create(Cell.create(rowName, colName), ts);
+    }
 }
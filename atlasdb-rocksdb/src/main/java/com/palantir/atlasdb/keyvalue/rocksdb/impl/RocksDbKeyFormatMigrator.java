@@ -0,0 +1,159 @@
+/**
+ * Copyright 2015 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.rocksdb.impl;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.rocksdb.ColumnFamilyDescriptor;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.ColumnFamilyOptions;
+import org.rocksdb.DBOptions;
+import org.rocksdb.Options;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.RocksIterator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.util.Pair;
+
+/**
+ * Offline tool that copies a RocksDB database written in the legacy key format, which relied on
+ * {@link RocksComparator}, into a new database using the bytewise-orderable format of
+ * {@link RocksDbKeyValueServices}.  Table metadata is copied as is.
+ * <p>
+ * Neither database may be in use while the migration runs.  The legacy database is left untouched.
+ */
+public final class RocksDbKeyFormatMigrator {
+    private static final Logger log = LoggerFactory.getLogger(RocksDbKeyFormatMigrator.class);
+
+    private static final int BATCH_SIZE = 10000;
+
+    private RocksDbKeyFormatMigrator() {
+        // cannot instantiate
+    }
+
+    public static void main(String[] args) throws RocksDBException {
+        if (args.length != 2) {
+            System.err.println("Usage: RocksDbKeyFormatMigrator <legacy data dir> <new data dir>");
+            System.exit(1);
+        }
+        migrate(new File(args[0]), new File(args[1]));
+    }
+
+    public static void migrate(File legacyDir, File newDir) throws RocksDBException {
+        Preconditions.checkArgument(legacyDir.isDirectory(), "Legacy data dir %s does not exist.", legacyDir);
+        Preconditions.checkArgument(!newDir.exists() || MoreObjects.firstNonNull(newDir.list(), new String[0]).length == 0,
+                "New data dir %s must be empty.", newDir);
+
+        List<byte[]> cfNames = MoreObjects.firstNonNull(
+                RocksDB.listColumnFamilies(new Options(), legacyDir.getAbsolutePath()), ImmutableList.<byte[]>of());
+        List<ColumnFamilyDescriptor> cfDescriptors = Lists.newArrayListWithCapacity(1 + cfNames.size());
+        List<ColumnFamilyHandle> cfHandles = Lists.newArrayListWithCapacity(1 + cfNames.size());
+        cfDescriptors.add(new ColumnFamilyDescriptor(RocksDB.DEFAULT_COLUMN_FAMILY));
+        for (byte[] cfName : cfNames) {
+            if (Arrays.equals(cfName, RocksDB.DEFAULT_COLUMN_FAMILY)) {
+                continue;
+            }
+            ColumnFamilyOptions cfOptions = new ColumnFamilyOptions();
+            if (!getName(cfName).equals(RocksDbKeyValueService.METADATA_TABLE_NAME)) {
+                cfOptions.setComparator(RocksComparator.INSTANCE);
+            }
+            cfDescriptors.add(new ColumnFamilyDescriptor(cfName, cfOptions));
+        }
+
+        RocksDB legacyDb = RocksDB.openReadOnly(new DBOptions(), legacyDir.getAbsolutePath(), cfDescriptors, cfHandles);
+        try {
+            RocksDbKeyValueService newKvs = RocksDbKeyValueService.create(newDir.getAbsolutePath());
+            try {
+                Map<String, byte[]> metadata = Maps.newHashMap();
+                for (int i = 1; i < cfDescriptors.size(); i++) {
+                    String tableName = getName(cfDescriptors.get(i).columnFamilyName());
+                    if (tableName.equals(RocksDbKeyValueService.METADATA_TABLE_NAME)) {
+                        copyMetadata(legacyDb, cfHandles.get(i), metadata);
+                    } else {
+                        newKvs.createTable(tableName, Integer.MAX_VALUE);
+                        long numCells = copyTable(legacyDb, cfHandles.get(i), newKvs, tableName);
+                        log.info("Migrated {} cells in table {}.", numCells, tableName);
+                    }
+                }
+                newKvs.putMetadataForTables(metadata);
+            } finally {
+                newKvs.close();
+            }
+        } finally {
+            for (ColumnFamilyHandle handle : cfHandles) {
+                handle.dispose();
+            }
+            legacyDb.close();
+        }
+    }
+
+    private static void copyMetadata(RocksDB legacyDb, ColumnFamilyHandle handle, Map<String, byte[]> metadata) {
+        RocksIterator iter = legacyDb.newIterator(handle);
+        try {
+            for (iter.seekToFirst(); iter.isValid(); iter.next()) {
+                metadata.put(getName(iter.key()), iter.value());
+            }
+        } finally {
+            iter.dispose();
+        }
+    }
+
+    private static long copyTable(RocksDB legacyDb,
+                                  ColumnFamilyHandle handle,
+                                  RocksDbKeyValueService newKvs,
+                                  String tableName) {
+        long numCells = 0;
+        Multimap<Cell, Value> batch = ArrayListMultimap.create();
+        RocksIterator iter = legacyDb.newIterator(handle);
+        try {
+            for (iter.seekToFirst(); iter.isValid(); iter.next()) {
+                Pair<Cell, Long> cellAndTs = RocksComparator.parseCellAndTs(iter.key());
+                batch.put(cellAndTs.lhSide, Value.create(iter.value(), cellAndTs.rhSide));
+                if (batch.size() >= BATCH_SIZE) {
+                    newKvs.putWithTimestamps(tableName, batch);
+                    numCells += batch.size();
+                    batch.clear();
+                }
+            }
+        } finally {
+            iter.dispose();
+        }
+        if (!batch.isEmpty()) {
+            newKvs.putWithTimestamps(tableName, batch);
+            numCells += batch.size();
+        }
+        return numCells;
+    }
+
+    private static String getName(byte[] cfName) {
+        return new String(cfName, Charsets.UTF_8);
+    }
+}
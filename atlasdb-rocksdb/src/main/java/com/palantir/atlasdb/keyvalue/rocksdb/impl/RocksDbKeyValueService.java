@@ -18,16 +18,20 @@ package com.palantir.atlasdb.keyvalue.rocksdb.impl;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
 import java.nio.channels.OverlappingFileLockException;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ConcurrentMap;
 
+import org.rocksdb.BlockBasedTableConfig;
+import org.rocksdb.BloomFilter;
 import org.rocksdb.ColumnFamilyDescriptor;
 import org.rocksdb.ColumnFamilyHandle;
 import org.rocksdb.ColumnFamilyOptions;
@@ -47,10 +51,13 @@ import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.ImmutableSortedSet;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
+import com.google.common.primitives.UnsignedBytes;
 import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
 import com.palantir.atlasdb.keyvalue.api.InsufficientConsistencyException;
@@ -60,6 +67,10 @@ import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
 import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.atlasdb.keyvalue.impl.KeyValueServices;
+import com.palantir.atlasdb.keyvalue.rocksdb.impl.GroupCommitWriter.Writes;
+import com.palantir.atlasdb.rocksdb.ImmutableRocksDbKeyValueServiceConfig;
+import com.palantir.atlasdb.rocksdb.RocksDbDurability;
+import com.palantir.atlasdb.rocksdb.RocksDbKeyValueServiceConfig;
 import com.palantir.common.base.ClosableIterator;
 import com.palantir.common.collect.Maps2;
 import com.palantir.util.MutuallyExclusiveSetLock;
@@ -67,21 +78,26 @@ import com.palantir.util.MutuallyExclusiveSetLock.LockState;
 import com.palantir.util.paging.TokenBackedBasicResultsPage;
 
 public class RocksDbKeyValueService implements KeyValueService {
-    private static final String METADATA_TABLE_NAME = "_metadata";
+    static final String METADATA_TABLE_NAME = "_metadata";
     private static final long PUT_UNLESS_EXISTS_TS = 0L;
     private static final String LOCK_FILE_PREFIX = ".pt_kv_lock";
     private final RocksDB db;
-    private final Options options;
+    private final RocksDbKeyValueServiceConfig config;
     private final ConcurrentMap<String, ColumnFamilyHandle> tables;
     private final FileLock lock;
     private final RandomAccessFile lockFile;
+    private final GroupCommitWriter groupCommitWriter;
     private final MutuallyExclusiveSetLock<Cell> lockSet = MutuallyExclusiveSetLock.<Cell>create(false);
     private volatile boolean closed = false;
 
     public static RocksDbKeyValueService create(String dataDir) {
+        return create(ImmutableRocksDbKeyValueServiceConfig.builder().dataDir(new File(dataDir)).build());
+    }
+
+    public static RocksDbKeyValueService create(RocksDbKeyValueServiceConfig config) {
         Options options = new Options().setCreateIfMissing(true);
         try {
-            return lockAndCreateDb(options, new File(dataDir));
+            return lockAndCreateDb(options, config);
         } catch (RocksDBException e) {
             throw Throwables.propagate(e);
         } catch (IOException e) {
@@ -110,7 +126,9 @@ public class RocksDbKeyValueService implements KeyValueService {
         return f.isDirectory();
     }
 
-    private static RocksDbKeyValueService lockAndCreateDb(Options options, File dbDir) throws IOException, RocksDBException {
+    private static RocksDbKeyValueService lockAndCreateDb(Options options,
+                                                          RocksDbKeyValueServiceConfig config) throws IOException, RocksDBException {
+        File dbDir = config.dataDir();
         mkdirsWithRetry(dbDir);
         Preconditions.checkArgument(dbDir.exists() && dbDir.isDirectory(), "DB file must be a directory: " + dbDir);
         final RandomAccessFile randomAccessFile =
@@ -141,15 +159,15 @@ public class RocksDbKeyValueService implements KeyValueService {
             List<ColumnFamilyHandle> cfHandles = Lists.newArrayListWithCapacity(1 + initialCfs.size());
             cfDescriptors.add(new ColumnFamilyDescriptor(RocksDB.DEFAULT_COLUMN_FAMILY));
             for (byte[] cf : initialCfs) {
-                cfDescriptors.add(new ColumnFamilyDescriptor(cf, getCfOptions(options, new String(cf, Charsets.UTF_8))));
+                cfDescriptors.add(new ColumnFamilyDescriptor(cf, getCfOptions(config, new String(cf, Charsets.UTF_8))));
             }
-            RocksDB db = RocksDB.open(getDBOptions(options), dbDir.getAbsolutePath(), cfDescriptors, cfHandles);
+            RocksDB db = openDb(options, dbDir, cfDescriptors, cfHandles);
             Preconditions.checkState(cfDescriptors.size() == cfHandles.size());
             ConcurrentMap<String, ColumnFamilyHandle> tables = Maps.newConcurrentMap();
             for (int i = 0; i < cfDescriptors.size(); i++) {
                 tables.put(new String(cfDescriptors.get(i).columnFamilyName(), Charsets.UTF_8), cfHandles.get(i));
             }
-            RocksDbKeyValueService ret = new RocksDbKeyValueService(db, options, tables, lock, randomAccessFile);
+            RocksDbKeyValueService ret = new RocksDbKeyValueService(db, config, tables, lock, randomAccessFile);
             ret.createTable(METADATA_TABLE_NAME, Integer.MAX_VALUE);
             success = true;
             return ret;
@@ -162,28 +180,50 @@ public class RocksDbKeyValueService implements KeyValueService {
         }
     }
 
+    private static RocksDB openDb(Options options,
+                                  File dbDir,
+                                  List<ColumnFamilyDescriptor> cfDescriptors,
+                                  List<ColumnFamilyHandle> cfHandles) throws RocksDBException {
+        try {
+            return RocksDB.open(getDBOptions(options), dbDir.getAbsolutePath(), cfDescriptors, cfHandles);
+        } catch (RocksDBException e) {
+            if (e.getMessage() != null && e.getMessage().contains("existing comparator " + RocksComparator.NAME)) {
+                throw new IllegalStateException("The database in " + dbDir + " uses the legacy key format. "
+                        + "Run " + RocksDbKeyFormatMigrator.class.getName() + " to migrate it to a new directory.", e);
+            }
+            throw e;
+        }
+    }
+
     private static DBOptions getDBOptions(Options options) {
         DBOptions dbOptions = new DBOptions();
         dbOptions.setCreateIfMissing(options.createIfMissing());
         return dbOptions;
     }
 
-    private static ColumnFamilyOptions getCfOptions(Options options,
+    private static ColumnFamilyOptions getCfOptions(RocksDbKeyValueServiceConfig config,
                                                     String tableName) {
-        ColumnFamilyOptions cfOptions = new ColumnFamilyOptions();
-        if (!tableName.equals(METADATA_TABLE_NAME)) {
-            cfOptions.setComparator(RocksComparator.INSTANCE);
+        // Keys are encoded to sort correctly under the default bytewise comparator,
+        // see RocksDbKeyValueServices.
+        BlockBasedTableConfig tableConfig = new BlockBasedTableConfig()
+                .setBlockCacheSize(config.blockCacheSizeMb() * 1024L * 1024L);
+        int bloomFilterBitsPerKey = MoreObjects.firstNonNull(
+                config.bloomFilterBitsPerKeyByTable().get(tableName),
+                config.bloomFilterBitsPerKey());
+        if (bloomFilterBitsPerKey > 0) {
+            tableConfig.setFilter(new BloomFilter(bloomFilterBitsPerKey));
         }
-        return cfOptions;
+        return new ColumnFamilyOptions().setTableFormatConfig(tableConfig);
     }
 
     private RocksDbKeyValueService(RocksDB db,
-                                   Options options,
+                                   RocksDbKeyValueServiceConfig config,
                                    ConcurrentMap<String, ColumnFamilyHandle> tables,
                                    FileLock lock,
                                    RandomAccessFile file) {
         this.db = db;
-        this.options = options;
+        this.groupCommitWriter = new GroupCommitWriter(db);
+        this.config = config;
         this.tables = tables;
         this.lock = lock;
         this.lockFile = file;
@@ -227,7 +267,8 @@ public class RocksDbKeyValueService implements KeyValueService {
         Map<Cell, Value> results = Maps.newHashMap();
         RocksIterator iter = getDb().newIterator(getTable(tableName));
         try {
-            for (byte[] row : rows) {
+            // Visiting rows in key order keeps the iterator moving forward through the same blocks.
+            for (byte[] row : ImmutableSortedSet.copyOf(UnsignedBytes.lexicographicalComparator(), rows)) {
                 RocksDbKeyValueServices.getRow(iter, row, columnSelection, timestamp, results);
             }
         } finally {
@@ -242,7 +283,7 @@ public class RocksDbKeyValueService implements KeyValueService {
         Map<Cell, Value> results = Maps.newHashMap();
         RocksIterator iter = getDb().newIterator(getTable(tableName));
         try {
-            for (Entry<Cell, Long> entry : timestampByCell.entrySet()) {
+            for (Entry<Cell, Long> entry : ImmutableSortedMap.copyOf(timestampByCell).entrySet()) {
                 Value value = RocksDbKeyValueServices.getCell(iter, entry.getKey(), entry.getValue());
                 if (value != null) {
                     results.put(entry.getKey(), value);
@@ -260,7 +301,7 @@ public class RocksDbKeyValueService implements KeyValueService {
         Map<Cell, Long> results = Maps.newHashMap();
         RocksIterator iter = getDb().newIterator(getTable(tableName));
         try {
-            for (Entry<Cell, Long> entry : timestampByCell.entrySet()) {
+            for (Entry<Cell, Long> entry : ImmutableSortedMap.copyOf(timestampByCell).entrySet()) {
                 Long ts = RocksDbKeyValueServices.getTimestamp(iter, entry.getKey(), entry.getValue());
                 if (ts != null) {
                     results.put(entry.getKey(), ts);
@@ -275,14 +316,13 @@ public class RocksDbKeyValueService implements KeyValueService {
     @Override
     public void put(String tableName, Map<Cell, byte[]> values, long timestamp) {
         ColumnFamilyHandle table = getTable(tableName);
-        try (Disposer d = new Disposer()) {
-            WriteOptions options = d.register(new WriteOptions().setSync(true));
-            WriteBatch batch = d.register(new WriteBatch());
+        try {
+            Writes batch = new Writes();
             for (Entry<Cell, byte[]> entry : values.entrySet()) {
                 byte[] key = RocksDbKeyValueServices.getKey(entry.getKey(), timestamp);
                 batch.put(table, key, entry.getValue());
             }
-            getDb().write(options, batch);
+            write(batch, getDurability(tableName));
         } catch (RocksDBException e) {
             throw Throwables.propagate(e);
         }
@@ -290,17 +330,22 @@ public class RocksDbKeyValueService implements KeyValueService {
 
     @Override
     public void multiPut(Map<String, ? extends Map<Cell, byte[]>> valuesByTable, long timestamp) {
-        try (Disposer d = new Disposer()) {
-            WriteOptions options = d.register(new WriteOptions().setSync(true));
-            WriteBatch batch = d.register(new WriteBatch());
+        try {
+            Writes batch = new Writes();
+            // The batch is written atomically, so it gets the strongest durability of any table in it.
+            RocksDbDurability durability = RocksDbDurability.NO_WAL;
             for (Entry<String, ? extends Map<Cell, byte[]>> entry : valuesByTable.entrySet()) {
                 ColumnFamilyHandle table = getTable(entry.getKey());
+                RocksDbDurability tableDurability = getDurability(entry.getKey());
+                if (tableDurability.compareTo(durability) < 0) {
+                    durability = tableDurability;
+                }
                 for (Entry<Cell, byte[]> subEntry : entry.getValue().entrySet()) {
                     byte[] key = RocksDbKeyValueServices.getKey(subEntry.getKey(), timestamp);
                     batch.put(table, key, subEntry.getValue());
                 }
             }
-            getDb().write(options, batch);
+            write(batch, durability);
         } catch (RocksDBException e) {
             throw Throwables.propagate(e);
         }
@@ -309,15 +354,14 @@ public class RocksDbKeyValueService implements KeyValueService {
     @Override
     public void putWithTimestamps(String tableName, Multimap<Cell, Value> cellValues) {
         ColumnFamilyHandle table = getTable(tableName);
-        try (Disposer d = new Disposer()) {
-            WriteOptions options = d.register(new WriteOptions().setSync(true));
-            WriteBatch batch = d.register(new WriteBatch());
+        try {
+            Writes batch = new Writes();
             for (Entry<Cell, Value> entry : cellValues.entries()) {
                 Value value = entry.getValue();
                 byte[] key = RocksDbKeyValueServices.getKey(entry.getKey(), value.getTimestamp());
                 batch.put(table, key, value.getContents());
             }
-            getDb().write(options, batch);
+            write(batch, getDurability(tableName));
         } catch (RocksDBException e) {
             throw Throwables.propagate(e);
         }
@@ -328,20 +372,28 @@ public class RocksDbKeyValueService implements KeyValueService {
             throws KeyAlreadyExistsException {
         ColumnFamilyHandle table = getTable(tableName);
         LockState<Cell> locks = lockSet.lockOnObjects(values.keySet());
-        try (Disposer d = new Disposer()) {
+        try {
             Set<Cell> alreadyExists = Sets.newHashSetWithExpectedSize(0);
-            WriteOptions options = d.register(new WriteOptions().setSync(true));
-            WriteBatch batch = d.register(new WriteBatch());
-            RocksIterator iter = d.register(getDb().newIterator(getTable(tableName)));
-            for (Entry<Cell, byte[]> entry : values.entrySet()) {
-                byte[] key = RocksDbKeyValueServices.getKey(entry.getKey(), PUT_UNLESS_EXISTS_TS);
-                if (RocksDbKeyValueServices.keyExists(iter, key)) {
-                    alreadyExists.add(entry.getKey());
+            Writes batch = new Writes();
+            List<Entry<Cell, byte[]>> entries = ImmutableList.copyOf(values.entrySet());
+            List<byte[]> keys = Lists.newArrayListWithCapacity(entries.size());
+            for (Entry<Cell, byte[]> entry : entries) {
+                keys.add(RocksDbKeyValueServices.getKey(entry.getKey(), PUT_UNLESS_EXISTS_TS));
+            }
+            // These are exact key lookups, so the bloom filters let most of them skip reading any blocks.
+            Set<ByteBuffer> existingKeys = Sets.newHashSet();
+            for (byte[] key : getDb().multiGet(Collections.nCopies(keys.size(), table), keys).keySet()) {
+                existingKeys.add(ByteBuffer.wrap(key));
+            }
+            for (int i = 0; i < entries.size(); i++) {
+                byte[] key = keys.get(i);
+                if (existingKeys.contains(ByteBuffer.wrap(key))) {
+                    alreadyExists.add(entries.get(i).getKey());
                 } else {
-                    batch.put(table, key, entry.getValue());
+                    batch.put(table, key, entries.get(i).getValue());
                 }
             }
-            getDb().write(options, batch);
+            write(batch, getDurability(tableName));
             if (!alreadyExists.isEmpty()) {
                 throw new KeyAlreadyExistsException("key already exists", alreadyExists);
             }
@@ -355,14 +407,13 @@ public class RocksDbKeyValueService implements KeyValueService {
     @Override
     public void delete(String tableName, Multimap<Cell, Long> keys) {
         ColumnFamilyHandle table = getTable(tableName);
-        try (Disposer d = new Disposer()) {
-            WriteOptions options = d.register(new WriteOptions().setSync(true));
-            WriteBatch batch = d.register(new WriteBatch());
+        try {
+            Writes batch = new Writes();
             for (Entry<Cell, Long> entry : keys.entries()) {
                 byte[] key = RocksDbKeyValueServices.getKey(entry.getKey(), entry.getValue());
                 batch.remove(table, key);
             }
-            getDb().write(options, batch);
+            write(batch, getDurability(tableName));
         } catch (RocksDBException e) {
             throw Throwables.propagate(e);
         }
@@ -457,7 +508,7 @@ public class RocksDbKeyValueService implements KeyValueService {
             }
             try {
                 ColumnFamilyDescriptor descriptor = new ColumnFamilyDescriptor(
-                        tableName.getBytes(Charsets.UTF_8), getCfOptions(options, tableName));
+                        tableName.getBytes(Charsets.UTF_8), getCfOptions(config, tableName));
                 ColumnFamilyHandle handle = getDb().createColumnFamily(descriptor);
                 if (tables.putIfAbsent(tableName, handle) != null) {
                     handle.dispose();
@@ -510,26 +561,24 @@ public class RocksDbKeyValueService implements KeyValueService {
     @Override
     public void putMetadataForTable(String tableName, byte[] metadata) {
         ColumnFamilyHandle metadataTable = getTable(METADATA_TABLE_NAME);
-        WriteOptions options = new WriteOptions().setSync(true);
         try {
-            getDb().put(metadataTable, options, tableName.getBytes(Charsets.UTF_8), metadata);
+            Writes batch = new Writes();
+            batch.put(metadataTable, tableName.getBytes(Charsets.UTF_8), metadata);
+            write(batch, RocksDbDurability.SYNC);
         } catch (RocksDBException e) {
             throw Throwables.propagate(e);
-        } finally {
-            options.dispose();
         }
     }
 
     @Override
     public void putMetadataForTables(Map<String, byte[]> tableNameToMetadata) {
-        try (Disposer d = new Disposer()) {
+        try {
             ColumnFamilyHandle metadataTable = getTable(METADATA_TABLE_NAME);
-            WriteOptions options = d.register(new WriteOptions().setSync(true));
-            WriteBatch batch = d.register(new WriteBatch());
+            Writes batch = new Writes();
             for (Entry<String, byte[]> entry : tableNameToMetadata.entrySet()) {
                 batch.put(metadataTable, entry.getKey().getBytes(Charsets.UTF_8), entry.getValue());
             }
-            getDb().write(options, batch);
+            write(batch, RocksDbDurability.SYNC);
         } catch (RocksDBException e) {
             throw Throwables.propagate(e);
         }
@@ -540,14 +589,13 @@ public class RocksDbKeyValueService implements KeyValueService {
                                                    Set<Cell> cells) {
         ColumnFamilyHandle table = getTable(tableName);
         byte[] val = new byte[0];
-        try (Disposer d = new Disposer()) {
-            WriteOptions options = d.register(new WriteOptions().setSync(true));
-            WriteBatch batch = d.register(new WriteBatch());
+        try {
+            Writes batch = new Writes();
             for (Cell cell : cells) {
                 byte[] key = RocksDbKeyValueServices.getKey(cell, Value.INVALID_VALUE_TIMESTAMP);
                 batch.put(table, key, val);
             }
-            getDb().write(options, batch);
+            write(batch, getDurability(tableName));
         } catch (RocksDBException e) {
             throw Throwables.propagate(e);
         }
@@ -575,6 +623,27 @@ public class RocksDbKeyValueService implements KeyValueService {
         // nothing
     }
 
+    private RocksDbDurability getDurability(String tableName) {
+        return MoreObjects.firstNonNull(config.tableDurability().get(tableName), config.defaultDurability());
+    }
+
+    private void write(Writes batch, RocksDbDurability durability) throws RocksDBException {
+        RocksDB db = getDb();
+        if (durability == RocksDbDurability.SYNC) {
+            groupCommitWriter.write(batch);
+            return;
+        }
+        // Writes that are not synced are cheap, so there is nothing to gain by grouping them.
+        try (Disposer d = new Disposer()) {
+            WriteOptions options = d.register(new WriteOptions()
+                    .setSync(false)
+                    .setDisableWAL(durability == RocksDbDurability.NO_WAL));
+            WriteBatch writeBatch = d.register(new WriteBatch());
+            batch.addTo(writeBatch);
+            db.write(options, writeBatch);
+        }
+    }
+
     private ColumnFamilyHandle getTable(String tableName) {
         ColumnFamilyHandle handle = tables.get(tableName);
         Preconditions.checkArgument(handle != null, "Table %s does not exist.", tableName);
@@ -17,109 +17,136 @@ package com.palantir.atlasdb.keyvalue.rocksdb.impl;
 
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.util.Arrays;
 import java.util.Map;
 
-import org.apache.commons.lang.ArrayUtils;
 import org.rocksdb.RocksIterator;
 
-import com.google.common.base.Preconditions;
 import com.google.common.collect.Multimap;
 import com.palantir.atlasdb.encoding.PtBytes;
 import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
 import com.palantir.atlasdb.keyvalue.api.Value;
-import com.palantir.atlasdb.ptobject.EncodingUtils;
 import com.palantir.common.annotation.Output;
 import com.palantir.util.Pair;
 
+/**
+ * Helpers for reading and writing atlas cells in RocksDB.
+ * <p>
+ * Keys are encoded so that RocksDB's default bytewise comparator orders them by row, then column,
+ * then timestamp, so no comparator has to be called back through JNI.  The row and the column are
+ * each escaped and terminated: every 0x00 byte is written as 0x00 0xFF and the name is followed by
+ * 0x00 0x01.  A name therefore sorts before any longer name it is a prefix of.  The timestamp is
+ * written last as a big-endian long with its sign bit flipped, so that negative timestamps such as
+ * {@link Value#INVALID_VALUE_TIMESTAMP} sort first.
+ */
 public class RocksDbKeyValueServices {
+    private static final byte ESCAPE = 0x00;
+    private static final byte ESCAPED_ZERO = (byte) 0xFF;
+    private static final byte TERMINATOR = 0x01;
+    private static final int TIMESTAMP_SIZE = 8;
 
     private RocksDbKeyValueServices() {
         // cannot instantiate
     }
 
 
-    static boolean keyExists(RocksIterator iter, byte[] key) {
-        iter.seek(key);
-        return iter.isValid() && Arrays.equals(key, iter.key());
-    }
-
     static void getRow(RocksIterator iter,
                        byte[] row,
                        ColumnSelection columnSelection,
                        long timestamp,
                        @Output Map<Cell, Value> results) {
-        iter.seek(getKey(row, Value.INVALID_VALUE_TIMESTAMP));
+        byte[] rowPrefix = getRowPrefix(row);
+        iter.seek(rowPrefix);
         for (; iter.isValid(); iter.next()) {
-            Pair<Cell, Long> cellAndTs = parseCellAndTs(iter.key());
-            if (!Arrays.equals(row, cellAndTs.lhSide.getRowName())) {
+            byte[] key = iter.key();
+            if (!startsWith(key, rowPrefix)) {
                 return;
             }
-            if (cellAndTs.rhSide >= timestamp || !columnSelection.contains(cellAndTs.lhSide.getColumnName())) {
+            long ts = parseTimestamp(key);
+            if (ts >= timestamp) {
+                continue;
+            }
+            byte[] col = parseColumn(key, rowPrefix.length);
+            if (!columnSelection.contains(col)) {
                 continue;
             }
-            results.put(cellAndTs.lhSide, Value.create(iter.value(), cellAndTs.rhSide));
+            results.put(Cell.create(row, col), Value.create(iter.value(), ts));
         }
     }
 
     static Value getCell(RocksIterator iter,
                          Cell cell,
                          long timestamp) {
-        Value value = null;
-        iter.seek(getKey(cell, Value.INVALID_VALUE_TIMESTAMP));
-        for (; iter.isValid(); iter.next()) {
-            Pair<Cell, Long> cellAndTs = parseCellAndTs(iter.key());
-            if (!cellAndTs.lhSide.equals(cell) || cellAndTs.rhSide >= timestamp) {
-                break;
-            }
-            value = Value.create(iter.value(), cellAndTs.rhSide);
+        if (!seekToLatestVersionBefore(iter, cell, timestamp)) {
+            return null;
         }
-        return value;
+        return Value.create(iter.value(), parseTimestamp(iter.key()));
     }
 
     static Long getTimestamp(RocksIterator iter,
                              Cell cell,
                              long timestamp) {
-        Long ts = null;
-        iter.seek(getKey(cell, Value.INVALID_VALUE_TIMESTAMP));
-        for (; iter.isValid(); iter.next()) {
-            Pair<Cell, Long> cellAndTs = parseCellAndTs(iter.key());
-            if (!cellAndTs.lhSide.equals(cell) || cellAndTs.rhSide >= timestamp) {
-                break;
-            }
-            ts = cellAndTs.rhSide;
+        if (!seekToLatestVersionBefore(iter, cell, timestamp)) {
+            return null;
+        }
+        return parseTimestamp(iter.key());
+    }
+
+    /**
+     * Positions the iterator on the latest version of the cell older than the given timestamp,
+     * without stepping over any of the older versions.
+     *
+     * @return false if the cell has no version older than the timestamp
+     */
+    private static boolean seekToLatestVersionBefore(RocksIterator iter,
+                                                     Cell cell,
+                                                     long timestamp) {
+        iter.seek(getKey(cell, timestamp));
+        if (iter.isValid()) {
+            iter.prev();
+        } else {
+            iter.seekToLast();
         }
-        return ts;
+        return iter.isValid() && startsWith(iter.key(), getCellPrefix(cell));
     }
 
     static void getTimestamps(RocksIterator iter,
                               Cell cell,
                               long timestamp,
                               @Output Multimap<Cell, Long> results) {
-        iter.seek(getKey(cell, Value.INVALID_VALUE_TIMESTAMP));
+        byte[] cellPrefix = getCellPrefix(cell);
+        iter.seek(cellPrefix);
         for (; iter.isValid(); iter.next()) {
-            Pair<Cell, Long> cellAndTs = parseCellAndTs(iter.key());
-            if (!cell.equals(cellAndTs.lhSide) || cellAndTs.rhSide >= timestamp) {
+            byte[] key = iter.key();
+            if (!startsWith(key, cellPrefix)) {
+                return;
+            }
+            long ts = parseTimestamp(key);
+            if (ts >= timestamp) {
                 return;
             }
-            results.put(cellAndTs.lhSide, cellAndTs.rhSide);
+            results.put(cell, ts);
         }
     }
 
-    static byte[] getKeyPrefix(Cell cell) {
-        byte[] rowName = cell.getRowName();
-        byte[] colName = cell.getColumnName();
-
-        byte[] key = new byte[rowName.length + colName.length];
-        System.arraycopy(rowName, 0, key, 0, rowName.length);
-        System.arraycopy(colName, 0, key, rowName.length, colName.length);
-        return key;
+    /**
+     * @return a key that sorts before, and is a prefix of, every key in the given row
+     */
+    static byte[] getRowPrefix(byte[] row) {
+        byte[] prefix = new byte[escapedSize(row)];
+        writeEscaped(row, prefix, 0);
+        return prefix;
     }
 
-    static byte[] getKey(byte[] row,
-                         long timeStamp) {
-        return getKey(row, new byte[1], timeStamp);
+    /**
+     * @return a key that sorts before, and is a prefix of, every key for the given cell
+     */
+    static byte[] getCellPrefix(Cell cell) {
+        byte[] row = cell.getRowName();
+        byte[] col = cell.getColumnName();
+        byte[] prefix = new byte[escapedSize(row) + escapedSize(col)];
+        writeEscaped(col, prefix, writeEscaped(row, prefix, 0));
+        return prefix;
     }
 
     static byte[] getKey(Cell cell,
@@ -130,37 +157,100 @@ public class RocksDbKeyValueServices {
     static byte[] getKey(byte[] row,
                          byte[] col,
                          long timeStamp) {
-        Preconditions.checkArgument(EncodingUtils.sizeOfVarLong(row.length) <= 2);
-        byte[] rowSize = EncodingUtils.encodeVarLong(row.length);
-        ArrayUtils.reverse(rowSize);
-
-        byte[] key = new byte[row.length + col.length + 8 + rowSize.length];
-        ByteBuffer.wrap(key).order(ByteOrder.BIG_ENDIAN)
-                .put(row)
-                .put(col)
-                .putLong(timeStamp)
-                .put(rowSize);
+        byte[] key = new byte[escapedSize(row) + escapedSize(col) + TIMESTAMP_SIZE];
+        int pos = writeEscaped(col, key, writeEscaped(row, key, 0));
+        ByteBuffer.wrap(key, pos, TIMESTAMP_SIZE).order(ByteOrder.BIG_ENDIAN).putLong(timeStamp ^ Long.MIN_VALUE);
         return key;
     }
 
     static Pair<Cell, Long> parseCellAndTs(byte[] key) {
-        byte[] rowSizeBytes = PtBytes.tail(key, 2);
-        ArrayUtils.reverse(rowSizeBytes);
-
-        int rowSize = (int) EncodingUtils.decodeVarLong(rowSizeBytes);
-        int colSize = key.length - rowSize - 8 - EncodingUtils.sizeOfVarLong(rowSize);
-        byte[] rowName = new byte[rowSize];
-        if (colSize < 0) {
-            System.out.println("bad");
+        int rowEnd = findTerminator(key, 0);
+        byte[] rowName = unescape(key, 0, rowEnd);
+        byte[] colName = parseColumn(key, rowEnd + 2);
+        return Pair.create(Cell.create(rowName, colName), parseTimestamp(key));
+    }
+
+    static long parseTimestamp(byte[] key) {
+        return ByteBuffer.wrap(key, key.length - TIMESTAMP_SIZE, TIMESTAMP_SIZE)
+                .order(ByteOrder.BIG_ENDIAN)
+                .getLong() ^ Long.MIN_VALUE;
+    }
+
+    private static byte[] parseColumn(byte[] key, int colStart) {
+        return unescape(key, colStart, findTerminator(key, colStart));
+    }
+
+    static boolean startsWith(byte[] key, byte[] prefix) {
+        if (key.length < prefix.length) {
+            return false;
         }
-        byte[] colName = new byte[colSize];
+        for (int i = prefix.length - 1; i >= 0; i--) {
+            if (key[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
 
-        ByteBuffer keyBuffer = ByteBuffer.wrap(key).order(ByteOrder.BIG_ENDIAN);
-        keyBuffer.get(rowName);
-        keyBuffer.get(colName);
-        long ts = keyBuffer.getLong();
+    private static int escapedSize(byte[] name) {
+        int size = name.length + 2;
+        for (byte b : name) {
+            if (b == ESCAPE) {
+                size++;
+            }
+        }
+        return size;
+    }
 
-        return Pair.create(Cell.create(rowName, colName), ts);
+    /**
+     * Writes the escaped and terminated name into dest at pos.
+     *
+     * @return the position just past the terminator
+     */
+    private static int writeEscaped(byte[] name, byte[] dest, int pos) {
+        for (byte b : name) {
+            dest[pos++] = b;
+            if (b == ESCAPE) {
+                dest[pos++] = ESCAPED_ZERO;
+            }
+        }
+        dest[pos++] = ESCAPE;
+        dest[pos++] = TERMINATOR;
+        return pos;
+    }
+
+    /**
+     * @return the position of the terminator of the name starting at start
+     */
+    private static int findTerminator(byte[] key, int start) {
+        for (int i = start; i < key.length - 1; i++) {
+            if (key[i] == ESCAPE) {
+                if (key[i + 1] == TERMINATOR) {
+                    return i;
+                }
+                i++;
+            }
+        }
+        throw new IllegalArgumentException("Malformed key: " + PtBytes.encodeHexString(key));
+    }
+
+    private static byte[] unescape(byte[] key, int start, int end) {
+        int size = end - start;
+        for (int i = start; i < end; i++) {
+            if (key[i] == ESCAPE) {
+                size--;
+                i++;
+            }
+        }
+        byte[] name = new byte[size];
+        int pos = 0;
+        for (int i = start; i < end; i++) {
+            name[pos++] = key[i];
+            if (key[i] == ESCAPE) {
+                i++;
+            }
+        }
+        return name;
     }
 
     static boolean isInRange(byte[] row, byte[] endRow) {
@@ -36,7 +36,7 @@ public class RocksDbAtlasDbFactory implements AtlasDbFactory {
         Preconditions.checkArgument(config instanceof RocksDbKeyValueServiceConfig,
                 "RocksDbAtlasDbFactory expects a configuration of type RocksDbKeyValueServiceConfig, found %s", config.getClass());
         RocksDbKeyValueServiceConfig rocksDbConfig = (RocksDbKeyValueServiceConfig) config;
-        return RocksDbKeyValueService.create(rocksDbConfig.dataDir().getAbsolutePath());
+        return RocksDbKeyValueService.create(rocksDbConfig);
     }
 
     @Override
@@ -0,0 +1,36 @@
+/**
+ * Copyright 2015 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.rocksdb;
+
+/**
+ * How hard a write to a RocksDB table tries to survive a crash.
+ */
+public enum RocksDbDurability {
+    /**
+     * The write is in the write-ahead log and the log has been synced to disk before the write returns.
+     */
+    SYNC,
+    /**
+     * The write is in the write-ahead log but the log is not synced, so it may be lost if the
+     * machine crashes.  It survives the process crashing.
+     */
+    NO_SYNC,
+    /**
+     * The write skips the write-ahead log and is lost if the process crashes before it is flushed.
+     * Only suitable for scratch tables.
+     */
+    NO_WAL;
+}
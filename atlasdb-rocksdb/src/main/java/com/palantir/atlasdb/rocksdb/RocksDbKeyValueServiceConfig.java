@@ -16,6 +16,7 @@
 package com.palantir.atlasdb.rocksdb;
 
 import java.io.File;
+import java.util.Map;
 
 import org.immutables.value.Value;
 
@@ -35,10 +36,50 @@ public abstract class RocksDbKeyValueServiceConfig implements KeyValueServiceCon
 
     public abstract File dataDir();
 
+    /**
+     * Size of the LRU block cache for each table.  The RocksDB JNI bindings in use do not expose a
+     * cache object, so tables cannot share one.
+     */
+    @Value.Default
+    public long blockCacheSizeMb() {
+        return 8;
+    }
+
+    /**
+     * Bits per key of the bloom filter built for each table, or 0 for no bloom filters.  The
+     * filters let exact key lookups, such as those done by putUnlessExists, skip blocks that
+     * cannot contain the key.
+     */
+    @Value.Default
+    public int bloomFilterBitsPerKey() {
+        return 10;
+    }
+
+    /**
+     * Per-table overrides of {@link #bloomFilterBitsPerKey()}.
+     */
+    public abstract Map<String, Integer> bloomFilterBitsPerKeyByTable();
+
+    /**
+     * Durability of writes to tables without an entry in {@link #tableDurability()}.  Concurrent
+     * {@link RocksDbDurability#SYNC} writes are grouped so that they share one sync.
+     */
+    @Value.Default
+    public RocksDbDurability defaultDurability() {
+        return RocksDbDurability.SYNC;
+    }
+
+    /**
+     * Per-table overrides of {@link #defaultDurability()}, for example to skip the sync on scratch tables.
+     */
+    public abstract Map<String, RocksDbDurability> tableDurability();
+
     @Value.Check
     protected final void check() {
         Preconditions.checkArgument(dataDir().exists() || dataDir().mkdirs(),
                 "dataDir '%s' does not exist and cannot be created.", dataDir());
+        Preconditions.checkArgument(blockCacheSizeMb() >= 0, "blockCacheSizeMb must not be negative.");
+        Preconditions.checkArgument(bloomFilterBitsPerKey() >= 0, "bloomFilterBitsPerKey must not be negative.");
     }
 
     @Override
@@ -15,26 +15,154 @@
  */
 package com.palantir.atlasdb.transaction.service;
 
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
 
-import com.google.common.collect.ImmutableMap;
-import com.palantir.atlasdb.encoding.PtBytes;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
+import com.palantir.common.base.Throwables;
+import com.palantir.common.concurrent.GroupCommitter;
+import com.palantir.common.concurrent.GroupCommitter.Request;
 import com.palantir.common.remoting.ServiceNotAvailableException;
+import com.palantir.paxos.PaxosLearner;
 import com.palantir.paxos.PaxosProposer;
 import com.palantir.paxos.PaxosRoundFailureException;
+import com.palantir.paxos.PaxosValue;
 
+/**
+ * A {@link TransactionService} that decides commit timestamps through a log of paxos instances on
+ * a dense sequence, each of which holds a batch of start to commit timestamp decisions.
+ * <p>
+ * Concurrent {@link #putUnlessExists(long, long)} calls are grouped by a {@link GroupCommitter}.
+ * Whoever leads a group packs its decisions into one value, proposes it for the next sequence
+ * number and writes the chosen batch back to the key value store in one put.  If another
+ * proposer's batch was chosen instead, that batch is written back and ours is proposed for the
+ * following sequence number.
+ * <p>
+ * When a start timestamp appears in more than one batch, the batch with the lowest sequence number
+ * wins.  Batches are written back in sequence order, skipping start timestamps that already have a
+ * commit timestamp, so the key value store always holds the winning decision.
+ * <p>
+ * Every {@value #DEFAULT_WATERMARK_INTERVAL} sequence numbers the service stores a watermark in the key
+ * value store, below which every chosen batch has been written back.  The first commit replays the
+ * log from the stored watermark rather than from the start, and the local paxos logs given to
+ * {@link #create(PaxosProposer, PaxosLearner, TransactionKVSWrapper, LogTruncator)} are truncated
+ * below it.  A service that falls behind a watermark another node stored, and so finds its rounds
+ * truncated, skips ahead to it.  Values the local learner already knows are read from it, and the
+ * rest are found by proposing for them.
+ * <p>
+ * A proposer from {@link com.palantir.paxos.PaxosProposerImpl#newMultiPaxosProposer} suits this
+ * service best, because the sequence numbers are dense and it can skip phase one for most of them.
+ */
+@ThreadSafe
 public class PaxosTransactionService implements TransactionService {
+    private static final int DEFAULT_MAX_BATCH_SIZE = 1000;
+    private static final byte BATCH_FORMAT_VERSION = 1;
+    private static final int ENTRY_SIZE = 2 * 8;
+    // A round lost to another proposer's promise leaves our proposal number ahead of it.
+    private static final int MAX_PROPOSE_ATTEMPTS = 3;
+    private static final long DEFAULT_WATERMARK_INTERVAL = 1000;
+
+    /**
+     * Discards the local paxos state for rounds that every node can now skip.
+     */
+    public interface LogTruncator {
+        void truncate(long toDeleteInclusive);
+    }
+
+    private static final LogTruncator NO_TRUNCATION = new LogTruncator() {
+        @Override
+        public void truncate(long toDeleteInclusive) {
+            // nothing to truncate
+        }
+    };
+
     private final PaxosProposer proposer;
+    @Nullable
+    private final PaxosLearner learner;
     private final TransactionKVSWrapper kvStore;
+    private final LogTruncator truncator;
+    private final long watermarkInterval;
+    private final GroupCommitter<TimestampPair, Void> committer;
+
+    // Only read or written by the leader of a group.
+    @GuardedBy("committer")
+    private long nextSeq = -1;
+    @GuardedBy("committer")
+    @Nullable
+    private Long storedWatermark = null;
 
     public static TransactionService create(PaxosProposer proposer, TransactionKVSWrapper kvStore) {
-        return new PaxosTransactionService(proposer, kvStore);
+        return new PaxosTransactionService(
+                proposer, null, kvStore, NO_TRUNCATION, DEFAULT_MAX_BATCH_SIZE, DEFAULT_WATERMARK_INTERVAL);
+    }
+
+    /**
+     * @param learner the learner the proposer teaches locally, used to replay the log without
+     *        running a paxos round for every batch that is already known
+     */
+    public static TransactionService create(PaxosProposer proposer,
+                                            PaxosLearner learner,
+                                            TransactionKVSWrapper kvStore) {
+        return new PaxosTransactionService(
+                proposer, learner, kvStore, NO_TRUNCATION, DEFAULT_MAX_BATCH_SIZE, DEFAULT_WATERMARK_INTERVAL);
+    }
+
+    /**
+     * @param truncator discards the local learner's and acceptor's logs below the stored watermark
+     */
+    public static TransactionService create(PaxosProposer proposer,
+                                            PaxosLearner learner,
+                                            TransactionKVSWrapper kvStore,
+                                            LogTruncator truncator) {
+        return new PaxosTransactionService(
+                proposer, learner, kvStore, truncator, DEFAULT_MAX_BATCH_SIZE, DEFAULT_WATERMARK_INTERVAL);
+    }
+
+    static TransactionService create(PaxosProposer proposer,
+                                     PaxosLearner learner,
+                                     TransactionKVSWrapper kvStore,
+                                     int maxBatchSize) {
+        return new PaxosTransactionService(
+                proposer, learner, kvStore, NO_TRUNCATION, maxBatchSize, DEFAULT_WATERMARK_INTERVAL);
+    }
+
+    static TransactionService create(PaxosProposer proposer,
+                                     PaxosLearner learner,
+                                     TransactionKVSWrapper kvStore,
+                                     LogTruncator truncator,
+                                     long watermarkInterval) {
+        return new PaxosTransactionService(
+                proposer, learner, kvStore, truncator, DEFAULT_MAX_BATCH_SIZE, watermarkInterval);
     }
 
-    private PaxosTransactionService(PaxosProposer proposer, TransactionKVSWrapper kvStore) {
+    private PaxosTransactionService(PaxosProposer proposer,
+                                    @Nullable PaxosLearner learner,
+                                    TransactionKVSWrapper kvStore,
+                                    LogTruncator truncator,
+                                    int maxBatchSize,
+                                    long watermarkInterval) {
+        Preconditions.checkArgument(watermarkInterval > 0, "watermarkInterval must be positive");
         this.proposer = proposer;
+        this.learner = learner;
         this.kvStore = kvStore;
+        this.truncator = Preconditions.checkNotNull(truncator);
+        this.watermarkInterval = watermarkInterval;
+        this.committer = GroupCommitter.create(new GroupCommitter.BatchHandler<TimestampPair, Void>() {
+            @Override
+            public void handle(List<Request<TimestampPair, Void>> batch) {
+                decide(batch);
+            }
+        }, maxBatchSize);
     }
 
     @Override
@@ -50,20 +178,183 @@ public class PaxosTransactionService implements TransactionService {
     @Override
     public void putUnlessExists(long startTimestamp, long commitTimestamp) throws KeyAlreadyExistsException {
         try {
-            byte[] finalValue = proposer.propose(startTimestamp, PtBytes.toBytes(commitTimestamp));
-            long finalCommitTs = PtBytes.toLong(finalValue);
+            committer.submit(new TimestampPair(startTimestamp, commitTimestamp));
+        } catch (ExecutionException e) {
+            throw Throwables.throwUncheckedException(e.getCause());
+        }
+    }
+
+    /**
+     * Decides one batch of puts, along with any batches chosen before it that have not been written
+     * back yet.  Only called by the leader of a group.
+     */
+    private void decide(List<Request<TimestampPair, Void>> requests) {
+        List<Request<TimestampPair, Void>> batch = Lists.newArrayList(requests);
+        try {
+            if (nextSeq < 0) {
+                nextSeq = readWatermark();
+            }
+            while (!batch.isEmpty()) {
+                long seq = nextSeq;
+                byte[] chosen = getLearnedBatch(seq);
+                if (chosen == null) {
+                    try {
+                        chosen = propose(seq, encodeBatch(batch));
+                    } catch (PaxosRoundFailureException e) {
+                        // Our rounds may have been truncated after another node stored a later watermark.
+                        long watermark = readWatermark();
+                        if (watermark > seq) {
+                            nextSeq = watermark;
+                            continue;
+                        }
+                        throw e;
+                    }
+                }
+                Map<Long, Long> decided = writeBack(decodeBatch(chosen));
+                nextSeq = seq + 1;
+                resolve(batch, decided);
+                if (nextSeq % watermarkInterval == 0) {
+                    storeWatermark(nextSeq);
+                }
+            }
+        } catch (PaxosRoundFailureException e) {
+            failAll(batch, new ServiceNotAvailableException("Could not store transaction", e));
+        }
+    }
+
+    private long readWatermark() {
+        Long watermark = kvStore.getWatermark();
+        if (watermark == null) {
+            return 0;
+        }
+        if (storedWatermark == null || storedWatermark < watermark) {
+            storedWatermark = watermark;
+        }
+        return watermark;
+    }
+
+    /**
+     * Records that every batch before the given sequence number has been written back, and drops
+     * the local log entries for them.
+     */
+    private void storeWatermark(long watermark) {
+        kvStore.putWatermark(watermark, storedWatermark);
+        storedWatermark = watermark;
+        truncator.truncate(watermark - 1);
+    }
+
+    private byte[] propose(long seq, byte[] value) throws PaxosRoundFailureException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return proposer.propose(seq, value);
+            } catch (PaxosRoundFailureException e) {
+                if (attempt == MAX_PROPOSE_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    @Nullable
+    private byte[] getLearnedBatch(long seq) {
+        if (learner == null) {
+            return null;
+        }
+        PaxosValue value = learner.getLearnedValue(seq);
+        return value == null ? null : value.getData();
+    }
+
+    /**
+     * Writes a chosen batch to the key value store.  Start timestamps that already have a commit
+     * timestamp, from an earlier batch or earlier in this one, keep it.
+     *
+     * @return the commit timestamp now stored for every start timestamp in the batch
+     */
+    private Map<Long, Long> writeBack(Map<Long, Long> batch) {
+        if (batch.isEmpty()) {
+            return batch;
+        }
+        Map<Long, Long> decided = Maps.newHashMap(kvStore.get(batch.keySet()));
+        Map<Long, Long> toWrite = Maps.newHashMap();
+        for (Map.Entry<Long, Long> e : batch.entrySet()) {
+            if (!decided.containsKey(e.getKey())) {
+                toWrite.put(e.getKey(), e.getValue());
+            }
+        }
+        if (!toWrite.isEmpty()) {
             try {
                 // Make sure we do this put before we return because we want #get to succeed.
-                kvStore.putAll(ImmutableMap.of(startTimestamp, finalCommitTs));
+                kvStore.putAll(toWrite);
             } catch (KeyAlreadyExistsException e) {
                 // this case isn't worrisome
             }
-            if (commitTimestamp != finalCommitTs) {
-                throw new KeyAlreadyExistsException("Key " + startTimestamp + " already exists and is mapped to " + finalCommitTs);
+            decided.putAll(toWrite);
+        }
+        return decided;
+    }
+
+    /**
+     * Resolves the puts whose start timestamps were decided and removes them from the batch.
+     */
+    private static void resolve(List<Request<TimestampPair, Void>> batch, Map<Long, Long> decided) {
+        for (Iterator<Request<TimestampPair, Void>> it = batch.iterator(); it.hasNext(); ) {
+            Request<TimestampPair, Void> request = it.next();
+            TimestampPair put = request.get();
+            Long commitTs = decided.get(put.startTimestamp);
+            if (commitTs == null) {
+                continue;
             }
-        } catch (PaxosRoundFailureException e) {
-            throw new ServiceNotAvailableException("Could not store trascaction");
+            it.remove();
+            if (commitTs == put.commitTimestamp) {
+                request.complete(null);
+            } else {
+                request.fail(new KeyAlreadyExistsException("Key " + put.startTimestamp
+                        + " already exists and is mapped to " + commitTs));
+            }
+        }
+    }
+
+    private static void failAll(List<Request<TimestampPair, Void>> batch, RuntimeException e) {
+        for (Request<TimestampPair, Void> request : batch) {
+            request.fail(e);
+        }
+    }
+
+    private static byte[] encodeBatch(List<Request<TimestampPair, Void>> batch) {
+        ByteBuffer buffer = ByteBuffer.allocate(1 + ENTRY_SIZE * batch.size());
+        buffer.put(BATCH_FORMAT_VERSION);
+        for (Request<TimestampPair, Void> request : batch) {
+            buffer.putLong(request.get().startTimestamp).putLong(request.get().commitTimestamp);
         }
+        return buffer.array();
     }
 
+    /**
+     * @return the decisions in the batch in order, keeping the first one for a repeated start
+     *         timestamp
+     */
+    private static Map<Long, Long> decodeBatch(byte[] value) {
+        Preconditions.checkArgument(value.length % ENTRY_SIZE == 1 && value[0] == BATCH_FORMAT_VERSION,
+                "Unrecognized transaction batch of %s bytes", value.length);
+        ByteBuffer buffer = ByteBuffer.wrap(value, 1, value.length - 1);
+        Map<Long, Long> batch = Maps.newLinkedHashMap();
+        while (buffer.hasRemaining()) {
+            long startTs = buffer.getLong();
+            long commitTs = buffer.getLong();
+            if (!batch.containsKey(startTs)) {
+                batch.put(startTs, commitTs);
+            }
+        }
+        return batch;
+    }
+
+    private static final class TimestampPair {
+        final long startTimestamp;
+        final long commitTimestamp;
+
+        TimestampPair(long startTimestamp, long commitTimestamp) {
+            this.startTimestamp = startTimestamp;
+            this.commitTimestamp = commitTimestamp;
+        }
+    }
 }
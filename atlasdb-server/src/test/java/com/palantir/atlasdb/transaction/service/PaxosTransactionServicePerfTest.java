@@ -0,0 +1,106 @@
+/**
+ * Copyright 2015 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.service;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.palantir.atlasdb.keyvalue.impl.InMemoryKeyValueService;
+import com.palantir.common.concurrent.PTExecutors;
+import com.palantir.paxos.PaxosAcceptor;
+import com.palantir.paxos.PaxosAcceptorImpl;
+import com.palantir.paxos.PaxosLearner;
+import com.palantir.paxos.PaxosLearnerImpl;
+import com.palantir.paxos.PaxosProposerImpl;
+
+/**
+ * Measures commits per second through {@link PaxosTransactionService} against three in-process
+ * acceptors, for a range of maximum batch sizes.  A batch size of one is a paxos round per commit.
+ */
+@Ignore("Benchmark; run by hand")
+public final class PaxosTransactionServicePerfTest {
+    private static final String LOG_DIR = "testlogs/paxos-transaction-service-perf/";
+    private static final int NUM_NODES = 3;
+    private static final int QUORUM_SIZE = 2;
+    private static final int NUM_THREADS = 64;
+    private static final int COMMITS_PER_THREAD = 500;
+
+    private final ExecutorService executor = PTExecutors.newCachedThreadPool();
+
+    @After
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+        FileUtils.deleteDirectory(new File(LOG_DIR));
+    }
+
+    @Test
+    public void testCommitThroughputByBatchSize() throws Exception {
+        for (int maxBatchSize : new int[] {1, 10, 100, 1000}) {
+            report(maxBatchSize, runCommits(maxBatchSize));
+        }
+    }
+
+    private long runCommits(int maxBatchSize) throws Exception {
+        String dir = LOG_DIR + maxBatchSize + "/";
+        List<PaxosAcceptor> acceptors = Lists.newArrayList();
+        List<PaxosLearner> learners = Lists.newArrayList();
+        for (int i = 0; i < NUM_NODES; i++) {
+            acceptors.add(PaxosAcceptorImpl.newAcceptor(dir + "acceptor/" + i));
+            learners.add(PaxosLearnerImpl.newLearner(dir + "learner/" + i));
+        }
+        final TransactionService service = PaxosTransactionService.create(
+                PaxosProposerImpl.newMultiPaxosProposer(learners.get(0), acceptors, learners, QUORUM_SIZE, executor),
+                learners.get(0),
+                new TransactionKVSWrapper(new InMemoryKeyValueService(true)),
+                maxBatchSize);
+
+        final AtomicLong nextTimestamp = new AtomicLong();
+        final CountDownLatch done = new CountDownLatch(NUM_THREADS);
+        long start = System.nanoTime();
+        for (int t = 0; t < NUM_THREADS; t++) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < COMMITS_PER_THREAD; i++) {
+                        long startTs = nextTimestamp.getAndIncrement();
+                        service.putUnlessExists(startTs, startTs + 1);
+                    }
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        return System.nanoTime() - start;
+    }
+
+    private static void report(int maxBatchSize, long nanos) {
+        long commits = (long) NUM_THREADS * COMMITS_PER_THREAD;
+        System.out.println("max batch size " + maxBatchSize + ": " + commits + " commits from " + NUM_THREADS
+                + " threads in " + TimeUnit.NANOSECONDS.toMillis(nanos) + " ms, "
+                + (commits * TimeUnit.SECONDS.toNanos(1) / nanos) + " commits/sec");
+    }
+}
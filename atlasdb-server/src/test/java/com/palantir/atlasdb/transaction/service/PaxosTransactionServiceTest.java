@@ -0,0 +1,210 @@
+/**
+ * Copyright 2015 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.impl.InMemoryKeyValueService;
+import com.palantir.common.concurrent.PTExecutors;
+import com.palantir.paxos.PaxosAcceptor;
+import com.palantir.paxos.PaxosAcceptorImpl;
+import com.palantir.paxos.PaxosLearner;
+import com.palantir.paxos.PaxosLearnerImpl;
+import com.palantir.paxos.PaxosProposerImpl;
+
+public class PaxosTransactionServiceTest {
+    private static final String LOG_DIR = "testlogs/paxos-transaction-service/";
+    private static final int NUM_NODES = 3;
+    private static final int QUORUM_SIZE = 2;
+    private static final long WATERMARK_INTERVAL = 50;
+
+    private final ExecutorService executor = PTExecutors.newCachedThreadPool();
+    private final List<PaxosAcceptor> acceptors = Lists.newArrayList();
+    private final List<PaxosLearner> learners = Lists.newArrayList();
+    private final KeyValueService kvs = new InMemoryKeyValueService(true);
+
+    @Before
+    public void setup() {
+        for (int i = 0; i < NUM_NODES; i++) {
+            acceptors.add(PaxosAcceptorImpl.newAcceptor(LOG_DIR + "acceptor/" + i));
+            learners.add(PaxosLearnerImpl.newLearner(LOG_DIR + "learner/" + i));
+        }
+    }
+
+    @After
+    public void teardown() throws Exception {
+        executor.shutdownNow();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+        FileUtils.deleteDirectory(new File(LOG_DIR));
+    }
+
+    @Test
+    public void testCommitAndConflict() {
+        TransactionService service = newService(0);
+        service.putUnlessExists(1L, 2L);
+        assertEquals(Long.valueOf(2L), service.get(1L));
+        try {
+            service.putUnlessExists(1L, 3L);
+            fail("expected the second commit to lose");
+        } catch (KeyAlreadyExistsException e) {
+            // expected
+        }
+        assertEquals(Long.valueOf(2L), service.get(1L));
+    }
+
+    @Test
+    public void testServicesOnDifferentNodesAgree() {
+        TransactionService first = newService(0);
+        TransactionService second = newService(1);
+        first.putUnlessExists(5L, 6L);
+        assertCommitFails(second, 5L, 7L);
+        second.putUnlessExists(8L, 9L);
+        assertCommitFails(first, 8L, 10L);
+        first.putUnlessExists(11L, 12L);
+        assertEquals(Long.valueOf(6L), first.get(5L));
+        assertEquals(Long.valueOf(9L), second.get(8L));
+        assertEquals(Long.valueOf(12L), second.get(11L));
+    }
+
+    @Test
+    public void testRestartedServiceReplaysLog() {
+        newService(0).putUnlessExists(1L, 2L);
+        TransactionService restarted = newService(0);
+        assertCommitFails(restarted, 1L, 3L);
+        restarted.putUnlessExists(4L, 5L);
+        assertEquals(Long.valueOf(5L), restarted.get(4L));
+    }
+
+    @Test
+    public void testRestartedServiceReplaysFromWatermark() {
+        TransactionService service = newTruncatingService(0);
+        for (long startTs = 0; startTs < 2 * WATERMARK_INTERVAL + 5; startTs++) {
+            service.putUnlessExists(startTs, startTs + 1);
+        }
+        assertEquals(Long.valueOf(2 * WATERMARK_INTERVAL), new TransactionKVSWrapper(kvs).getWatermark());
+        // truncation keeps the greatest value learned at the time
+        assertNull(learners.get(0).getLearnedValue(2 * WATERMARK_INTERVAL - 2));
+
+        TransactionService restarted = newTruncatingService(0);
+        assertCommitFails(restarted, 3L, 5L);
+        restarted.putUnlessExists(2 * WATERMARK_INTERVAL + 5, 1L);
+        assertEquals(Long.valueOf(1L), restarted.get(2 * WATERMARK_INTERVAL + 5));
+    }
+
+    @Test
+    public void testLaggingServiceSkipsToWatermark() {
+        TransactionService lagging = newTruncatingService(1);
+        lagging.putUnlessExists(0L, 1L);
+        TransactionService service = newTruncatingService(0);
+        for (long startTs = 1; startTs < 2 * WATERMARK_INTERVAL + 5; startTs++) {
+            service.putUnlessExists(startTs, startTs + 1);
+        }
+        assertCommitFails(lagging, 7L, 9L);
+        lagging.putUnlessExists(2 * WATERMARK_INTERVAL + 5, 1L);
+        assertEquals(Long.valueOf(1L), service.get(2 * WATERMARK_INTERVAL + 5));
+    }
+
+    @Test
+    public void testConcurrentCommits() throws Exception {
+        final TransactionService service = newService(0);
+        final ConcurrentMap<Long, Long> winners = Maps.newConcurrentMap();
+        List<Future<?>> futures = Lists.newArrayList();
+        for (int t = 0; t < 8; t++) {
+            // pairs of threads race on every start timestamp
+            final long offset = (t / 2) * 1000;
+            final long commitTs = t;
+            futures.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    for (long startTs = offset; startTs < offset + 200; startTs++) {
+                        try {
+                            service.putUnlessExists(startTs, commitTs);
+                            Long previous = winners.putIfAbsent(startTs, commitTs);
+                            assertEquals(null, previous);
+                        } catch (KeyAlreadyExistsException e) {
+                            // the other thread won
+                        }
+                    }
+                    return null;
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        assertEquals(800, winners.size());
+        Map<Long, Long> stored = service.get(winners.keySet());
+        assertEquals(winners, stored);
+    }
+
+    private TransactionService newService(int node) {
+        return PaxosTransactionService.create(
+                PaxosProposerImpl.newMultiPaxosProposer(
+                        learners.get(node), acceptors, learners, QUORUM_SIZE, executor),
+                learners.get(node),
+                new TransactionKVSWrapper(kvs));
+    }
+
+    /**
+     * Creates a service that truncates every node's logs, as if each node ran one.
+     */
+    private TransactionService newTruncatingService(int node) {
+        return PaxosTransactionService.create(
+                PaxosProposerImpl.newMultiPaxosProposer(
+                        learners.get(node), acceptors, learners, QUORUM_SIZE, executor),
+                learners.get(node),
+                new TransactionKVSWrapper(kvs),
+                new PaxosTransactionService.LogTruncator() {
+                    @Override
+                    public void truncate(long toDeleteInclusive) {
+                        for (int i = 0; i < NUM_NODES; i++) {
+                            ((PaxosLearnerImpl) learners.get(i)).truncate(toDeleteInclusive);
+                            ((PaxosAcceptorImpl) acceptors.get(i)).truncate(toDeleteInclusive);
+                        }
+                    }
+                },
+                WATERMARK_INTERVAL);
+    }
+
+    private static void assertCommitFails(TransactionService service, long startTs, long commitTs) {
+        try {
+            service.putUnlessExists(startTs, commitTs);
+            fail("expected the commit of " + startTs + " to lose");
+        } catch (KeyAlreadyExistsException e) {
+            // expected
+        }
+    }
+}
@@ -19,6 +19,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
 
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.BrokenBarrierException;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CyclicBarrier;
@@ -34,7 +35,9 @@ import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import com.palantir.atlasdb.cleaner.NoOpCleaner;
+import com.palantir.atlasdb.encoding.PtBytes;
 import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
@@ -45,6 +48,7 @@ import com.palantir.atlasdb.transaction.api.TransactionFailedRetriableException;
 import com.palantir.atlasdb.transaction.api.TransactionManager;
 import com.palantir.atlasdb.transaction.api.TransactionReadSentinelBehavior;
 import com.palantir.atlasdb.transaction.api.TransactionSerializableConflictException;
+import com.palantir.atlasdb.transaction.impl.SerializableTransaction.ReadValidationMode;
 import com.palantir.common.base.BatchingVisitables;
 import com.palantir.common.base.Throwables;
 import com.palantir.common.concurrent.PTExecutors;
@@ -52,6 +56,12 @@ import com.palantir.lock.LockRefreshToken;
 
 
 public abstract class AbstractSerializableTransactionTest extends AbstractTransactionTest {
+    private static final ExecutorService conflictCheckingExecutor =
+            PTExecutors.newFixedThreadPool(4, PTExecutors.newNamedThreadFactory(true));
+
+    protected ReadValidationMode getReadValidationMode() {
+        return ReadValidationMode.VALUES;
+    }
 
     @Override
     protected TransactionManager getManager() {
@@ -64,7 +74,8 @@ public abstract class AbstractSerializableTransactionTest extends AbstractTransa
                 Suppliers.ofInstance(AtlasDbConstraintCheckingMode.FULL_CONSTRAINT_CHECKING_THROWS_EXCEPTIONS),
                 conflictDetectionManager,
                 SweepStrategyManagers.createDefault(keyValueService),
-                NoOpCleaner.INSTANCE);
+                NoOpCleaner.INSTANCE,
+                getReadValidationMode());
     }
 
     @Override
@@ -88,7 +99,11 @@ public abstract class AbstractSerializableTransactionTest extends AbstractTransa
                 AtlasDbConstraintCheckingMode.NO_CONSTRAINT_CHECKING,
                 null,
                 TransactionReadSentinelBehavior.THROW_EXCEPTION,
-                true) {
+                true,
+                CommitTimestampCache.create(SnapshotTransaction.PER_TRANSACTION_COMMIT_TS_CACHE_SIZE),
+                getReadValidationMode(),
+                SpillingReadSetStore.supplier(SpillingReadSetStore.DEFAULT_MAX_BYTES_IN_MEMORY),
+                conflictCheckingExecutor) {
             @Override
             protected Map<Cell, byte[]> transformGetsForTesting(Map<Cell, byte[]> map) {
                 return Maps.transformValues(map, new Function<byte[], byte[]>() {
@@ -452,5 +467,30 @@ public abstract class AbstractSerializableTransactionTest extends AbstractTransa
         }
     }
 
+    @Test
+    public void testConflictInOneOfManyChecksFails() {
+        Set<Cell> cells = Sets.newHashSet();
+        Transaction t0 = startTransaction();
+        for (int i = 0; i < 2500; i++) {
+            put(t0, "row" + i, "col1", "100");
+            cells.add(Cell.create(PtBytes.toBytes("row" + i), PtBytes.toBytes("col1")));
+        }
+        t0.commit();
+
+        Transaction t1 = startTransaction();
+        t1.get(TEST_TABLE, cells);
+        BatchingVisitables.copyToList(t1.getRange(TEST_TABLE, RangeRequest.builder().build()));
+        put(t1, "row2500", "col1", "100");
 
+        Transaction t2 = startTransaction();
+        put(t2, "row2345", "col1", "101");
+        t2.commit();
+
+        try {
+            t1.commit();
+            fail();
+        } catch (TransactionSerializableConflictException e) {
+            // only the checks covering row2345 see the conflict
+        }
+    }
 }
@@ -24,6 +24,7 @@ import com.palantir.atlasdb.cleaner.InMemorySweeperTest;
 import com.palantir.atlasdb.cleaner.PuncherTest;
 import com.palantir.atlasdb.compress.CompressionUtilsTest;
 import com.palantir.atlasdb.keyvalue.impl.RangeRequestsTest;
+import com.palantir.atlasdb.transaction.impl.CommitTimestampCacheTest;
 
 @RunWith(Suite.class)
 @SuiteClasses({
@@ -32,6 +33,7 @@ import com.palantir.atlasdb.keyvalue.impl.RangeRequestsTest;
                 InMemorySweeperTest.class,
                 AsyncPuncherTest.class,
                 RangeRequestsTest.class,
+                CommitTimestampCacheTest.class,
     })
 public class AllAtlasDbFastTests {
 }
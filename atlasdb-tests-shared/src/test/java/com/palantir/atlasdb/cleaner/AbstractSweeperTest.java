@@ -234,6 +234,22 @@ public abstract class AbstractSweeperTest {
         Assert.assertEquals(ImmutableSet.of(50L, 75L, 100L, 125L, 150L), getAllTs("foo"));
     }
 
+    @Test
+    public void testSweepRowRange() {
+        createTable(SweepStrategy.CONSERVATIVE);
+        put("bar", "a", 50);
+        put("bar", "b", 100);
+        put("foo", "a", 50);
+        put("foo", "b", 100);
+        sweepTimestamp.set(175);
+        SweepResults results = sweepRunner.run(TABLE_NAME, new byte[0], "c".getBytes());
+        Assert.assertFalse(results.getNextStartRow().isPresent());
+        Assert.assertEquals(1, results.getCellsDeleted());
+        Assert.assertEquals(1, results.getCellsExamined());
+        Assert.assertEquals(ImmutableSet.of(-1L, 100L), getAllTs("bar"));
+        Assert.assertEquals(ImmutableSet.of(50L, 100L), getAllTs("foo"));
+    }
+
     private SweepResults sweep(long ts) {
         sweepTimestamp.set(ts);
         SweepResults results = sweepRunner.run(TABLE_NAME, new byte[0]);
@@ -0,0 +1,58 @@
+/**
+ * Copyright 2015 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.cleaner;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.palantir.atlasdb.keyvalue.impl.InMemoryKeyValueService;
+
+public class KeyValueServicePuncherStoreTest {
+    private final InMemoryKeyValueService kvs = new InMemoryKeyValueService(false);
+
+    @After
+    public void tearDown() {
+        kvs.close();
+    }
+
+    @Test
+    public void testLoadsExistingHistory() {
+        PuncherStore writer = KeyValueServicePuncherStore.create(kvs);
+        writer.put(1L, 100L);
+        writer.put(2L, 200L);
+        writer.put(3L, 300L);
+
+        PuncherStore reader = KeyValueServicePuncherStore.create(kvs);
+        assertEquals(Long.MIN_VALUE, (long) reader.get(50L));
+        assertEquals(1L, (long) reader.get(100L));
+        assertEquals(2L, (long) reader.get(250L));
+        assertEquals(3L, (long) reader.get(1000L));
+    }
+
+    @Test
+    public void testSeesLaterPunchesFromOtherClients() {
+        PuncherStore writer = KeyValueServicePuncherStore.create(kvs);
+        PuncherStore reader = KeyValueServicePuncherStore.create(kvs);
+        writer.put(1L, 100L);
+        assertEquals(1L, (long) reader.get(150L));
+
+        writer.put(2L, 200L);
+        assertEquals(1L, (long) reader.get(150L));
+        assertEquals(2L, (long) reader.get(250L));
+    }
+}
@@ -0,0 +1,125 @@
+/**
+ * Copyright 2015 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.cleaner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.palantir.common.concurrent.PTExecutors;
+
+public class TimestampWatermarkTest {
+    private final AtomicLong source = new AtomicLong(10);
+    private final ExecutorService executor = PTExecutors.newCachedThreadPool();
+    private TimestampWatermark watermark;
+
+    @Before
+    public void setup() {
+        watermark = TimestampWatermark.create("test", new Supplier<Long>() {
+            @Override
+            public Long get() {
+                return source.get();
+            }
+        }, 10);
+    }
+
+    @After
+    public void tearDown() {
+        watermark.shutdown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testAwaitReturnsOnceSourceAdvances() throws Exception {
+        Future<Long> awaited = executor.submit(new Callable<Long>() {
+            @Override
+            public Long call() throws Exception {
+                return watermark.await(100);
+            }
+        });
+        Thread.sleep(50);
+        assertFalse(awaited.isDone());
+        source.set(100);
+        assertEquals(100L, (long) awaited.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testAwaitReturnsWhenTimeoutElapses() throws Exception {
+        assertEquals(10L, watermark.await(100, 50, TimeUnit.MILLISECONDS));
+        source.set(100);
+        assertEquals(100L, watermark.await(100, 5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testShutdownWakesWaiters() throws Exception {
+        Future<Long> awaited = executor.submit(new Callable<Long>() {
+            @Override
+            public Long call() throws Exception {
+                return watermark.await(100);
+            }
+        });
+        Thread.sleep(50);
+        assertFalse(awaited.isDone());
+        watermark.shutdown();
+        try {
+            awaited.get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void testNeverMovesBackwards() {
+        assertEquals(10L, watermark.refresh());
+        source.set(5);
+        assertEquals(10L, watermark.refresh());
+        assertEquals(20L, watermark.advance(20));
+        assertEquals(20L, watermark.refresh());
+    }
+
+    @Test
+    public void testListenersSeeEachAdvanceInOrder() {
+        final List<Long> seen = Lists.newArrayList();
+        watermark.addListener(new TimestampWatermark.Listener() {
+            @Override
+            public void watermarkAdvanced(long value) {
+                seen.add(value);
+            }
+        });
+        watermark.advance(15);
+        watermark.advance(12);
+        watermark.advance(15);
+        watermark.advance(30);
+        assertEquals(ImmutableList.of(15L, 30L), seen);
+    }
+}
@@ -33,6 +33,7 @@ import com.google.common.reflect.AbstractInvocationHandler;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.keyvalue.impl.InMemoryKeyValueService;
 import com.palantir.atlasdb.keyvalue.partition.PartitionedKeyValueService;
+import com.palantir.atlasdb.keyvalue.partition.PartitionedKeyValueService.ReadMode;
 import com.palantir.atlasdb.keyvalue.partition.QuorumParameters;
 import com.palantir.atlasdb.keyvalue.partition.QuorumParameters.QuorumRequestParameters;
 
@@ -231,6 +232,10 @@ public class FailableKeyValueServices {
     }
 
     public static KeyValueService sampleFailingKeyValueService() {
+        return sampleFailingKeyValueService(ReadMode.FULL);
+    }
+
+    public static KeyValueService sampleFailingKeyValueService(ReadMode readMode) {
         Set<FailableKeyValueService> svcs = Sets.newHashSet();
         Set<KeyValueService> rawSvcs = Sets.newHashSet();
         QuorumParameters quorumParameters = new QuorumParameters(5, 3, 3);
@@ -242,7 +247,8 @@ public class FailableKeyValueServices {
         }
         PartitionedKeyValueService parition = PartitionedKeyValueService.create(
                 rawSvcs,
-                quorumParameters);
+                quorumParameters,
+                readMode);
         return ShutdownNodesProxy.newProxyInstance(parition, svcs, quorumParameters);
     }
 
@@ -0,0 +1,106 @@
+/**
+ * Copyright 2015 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.impl.partition;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.google.common.primitives.UnsignedBytes;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.keyvalue.impl.AbstractAtlasDbKeyValueServiceTest;
+import com.palantir.atlasdb.keyvalue.impl.InMemoryKeyValueService;
+import com.palantir.atlasdb.keyvalue.partition.PartitionedKeyValueService;
+import com.palantir.atlasdb.keyvalue.partition.PartitionedKeyValueService.ReadMode;
+import com.palantir.atlasdb.keyvalue.partition.QuorumParameters;
+import com.palantir.common.concurrent.PTExecutors;
+
+public class PartitionedKeyValueServiceDigestReadTest extends AbstractAtlasDbKeyValueServiceTest {
+    private static final String TABLE = "ns.pt_digest_read_test";
+
+    @Override
+    protected KeyValueService getKeyValueService() {
+        return FailableKeyValueServices.sampleFailingKeyValueService(ReadMode.DIGEST_WITH_READ_REPAIR);
+    }
+
+    @Test
+    public void testStaleReplicaIsCorrectedAndRepaired() throws InterruptedException {
+        List<KeyValueService> replicas = ImmutableList.<KeyValueService>of(
+                new InMemoryKeyValueService(false),
+                new InMemoryKeyValueService(false),
+                new InMemoryKeyValueService(false));
+        NavigableMap<byte[], KeyValueService> ring = Maps.newTreeMap(UnsignedBytes.lexicographicalComparator());
+        for (int i = 0; i < replicas.size(); i++) {
+            ring.put(new byte[] { (byte) (i + 1) }, replicas.get(i));
+        }
+        // Every replica answers every read, so the stale one is both read from and repaired.
+        KeyValueService kvs = PartitionedKeyValueService.create(
+                ring,
+                new QuorumParameters(3, 3, 3),
+                PTExecutors.newCachedThreadPool(),
+                ReadMode.DIGEST_WITH_READ_REPAIR);
+        kvs.createTable(TABLE, Integer.MAX_VALUE);
+
+        Map<Cell, byte[]> oldValues = Maps.newHashMap();
+        Map<Cell, byte[]> newValues = Maps.newHashMap();
+        Map<Cell, Long> reads = Maps.newHashMap();
+        for (int i = 0; i < 20; i++) {
+            Cell cell = Cell.create(PtBytes.toBytes("row"), PtBytes.toBytes("col" + i));
+            oldValues.put(cell, PtBytes.toBytes("old"));
+            newValues.put(cell, PtBytes.toBytes("new"));
+            reads.put(cell, 3L);
+        }
+        kvs.put(TABLE, oldValues, 1L);
+        // The last replica misses the second write.
+        replicas.get(0).put(TABLE, newValues, 2L);
+        replicas.get(1).put(TABLE, newValues, 2L);
+
+        Map<Cell, Value> result = kvs.get(TABLE, reads);
+        assertEquals(reads.size(), result.size());
+        for (Value value : result.values()) {
+            assertEquals(2L, value.getTimestamp());
+            assertArrayEquals(PtBytes.toBytes("new"), value.getContents());
+        }
+
+        KeyValueService stale = replicas.get(2);
+        for (int i = 0; i < 100 && !isUpToDate(stale, reads); i++) {
+            Thread.sleep(10);
+        }
+        assertTrue(isUpToDate(stale, reads));
+        kvs.teardown();
+    }
+
+    private static boolean isUpToDate(KeyValueService kvs, Map<Cell, Long> reads) {
+        for (Value value : kvs.get(TABLE, reads).values()) {
+            if (value.getTimestamp() != 2L) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,161 @@
+/**
+ * Copyright 2015 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.impl.partition;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.google.common.primitives.UnsignedBytes;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.keyvalue.impl.ForwardingKeyValueService;
+import com.palantir.atlasdb.keyvalue.impl.InMemoryKeyValueService;
+import com.palantir.atlasdb.keyvalue.partition.PartitionedKeyValueService;
+import com.palantir.atlasdb.keyvalue.partition.QuorumParameters;
+import com.palantir.common.concurrent.PTExecutors;
+
+public class PartitionedKeyValueServiceHedgingTest {
+    private static final String TABLE = "ns.pt_hedging_test";
+    private static final Cell CELL = Cell.create(PtBytes.toBytes("row"), PtBytes.toBytes("col"));
+    private static final long SLOW_READ_MILLIS = 2000;
+
+    @Test
+    public void testReadsDoNotWaitForSlowReplica() {
+        final KeyValueService slowDelegate = new InMemoryKeyValueService(false);
+        KeyValueService slow = new ForwardingKeyValueService() {
+            @Override
+            protected KeyValueService delegate() {
+                return slowDelegate;
+            }
+
+            @Override
+            public Map<Cell, Value> get(String tableName, Map<Cell, Long> timestampByCell) {
+                try {
+                    Thread.sleep(SLOW_READ_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(e);
+                }
+                return super.get(tableName, timestampByCell);
+            }
+        };
+        NavigableMap<byte[], KeyValueService> ring = Maps.newTreeMap(UnsignedBytes.lexicographicalComparator());
+        ring.put(new byte[] { 1 }, slow);
+        ring.put(new byte[] { 2 }, new InMemoryKeyValueService(false));
+        ring.put(new byte[] { 3 }, new InMemoryKeyValueService(false));
+        PartitionedKeyValueService kvs = PartitionedKeyValueService.create(
+                ring,
+                new QuorumParameters(3, 2, 2),
+                PTExecutors.newCachedThreadPool());
+        kvs.createTable(TABLE, Integer.MAX_VALUE);
+        kvs.put(TABLE, ImmutableMap.of(CELL, PtBytes.toBytes("value")), 1L);
+
+        for (int i = 0; i < 20; i++) {
+            Stopwatch stopwatch = Stopwatch.createStarted();
+            Map<Cell, Value> result = kvs.get(TABLE, ImmutableMap.of(CELL, 2L));
+            assertEquals(1L, result.get(CELL).getTimestamp());
+            assertTrue(stopwatch.elapsed(TimeUnit.MILLISECONDS) < SLOW_READ_MILLIS / 2);
+        }
+        // Once it has been timed, the slow replica is only read from when another one fails.
+        assertTrue(kvs.getReplicaLatencyMetrics().get(slow).getRequests() < 5);
+        kvs.teardown();
+    }
+
+    @Test
+    public void testFailedReadsAreReplacedByReplicasHoldingTheirCells() {
+        final KeyValueService failingDelegate = new InMemoryKeyValueService(false);
+        KeyValueService failing = new ForwardingKeyValueService() {
+            @Override
+            protected KeyValueService delegate() {
+                return failingDelegate;
+            }
+
+            @Override
+            public Map<Cell, Value> get(String tableName, Map<Cell, Long> timestampByCell) {
+                throw new RuntimeException("replica is down");
+            }
+        };
+        NavigableMap<byte[], KeyValueService> ring = Maps.newTreeMap(UnsignedBytes.lexicographicalComparator());
+        ring.put(new byte[] { 0x20 }, new InMemoryKeyValueService(false));
+        ring.put(new byte[] { 0x40 }, failing);
+        ring.put(new byte[] { 0x60 }, new InMemoryKeyValueService(false));
+        ring.put(new byte[] { (byte) 0x80 }, new InMemoryKeyValueService(false));
+        ring.put(new byte[] { (byte) 0xa0 }, new InMemoryKeyValueService(false));
+        PartitionedKeyValueService kvs = PartitionedKeyValueService.create(
+                ring,
+                new QuorumParameters(3, 2, 2),
+                PTExecutors.newCachedThreadPool());
+        kvs.createTable(TABLE, Integer.MAX_VALUE);
+        Map<Cell, byte[]> values = Maps.newHashMap();
+        Map<Cell, Long> timestamps = Maps.newHashMap();
+        for (int i = 0; i < 256; i += 8) {
+            Cell cell = Cell.create(new byte[] { (byte) i }, PtBytes.toBytes("col"));
+            values.put(cell, PtBytes.toBytes("value" + i));
+            timestamps.put(cell, 2L);
+        }
+        kvs.put(TABLE, values, 1L);
+
+        for (int i = 0; i < 20; i++) {
+            Map<Cell, Value> result = kvs.get(TABLE, timestamps);
+            assertEquals(values.size(), result.size());
+            for (Map.Entry<Cell, byte[]> e : values.entrySet()) {
+                assertTrue(Arrays.equals(e.getValue(), result.get(e.getKey()).getContents()));
+            }
+        }
+        assertTrue(kvs.getReplicaLatencyMetrics().get(failing).getFailures() > 0);
+        kvs.teardown();
+    }
+
+    @Test
+    public void testReplicaMetricsAreRegisteredWithJmx() throws Exception {
+        KeyValueService replica = new InMemoryKeyValueService(false);
+        NavigableMap<byte[], KeyValueService> ring = Maps.newTreeMap(UnsignedBytes.lexicographicalComparator());
+        ring.put(new byte[] { 1 }, replica);
+        ring.put(new byte[] { 2 }, new InMemoryKeyValueService(false));
+        ring.put(new byte[] { 3 }, new InMemoryKeyValueService(false));
+        PartitionedKeyValueService kvs = PartitionedKeyValueService.create(
+                ring,
+                new QuorumParameters(3, 2, 2),
+                PTExecutors.newCachedThreadPool());
+        kvs.createTable(TABLE, Integer.MAX_VALUE);
+        kvs.put(TABLE, ImmutableMap.of(CELL, PtBytes.toBytes("value")), 1L);
+        kvs.get(TABLE, ImmutableMap.of(CELL, 2L));
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("com.palantir.atlasdb:type=PartitionedKeyValueService,replica="
+                + ObjectName.quote(replica.toString()));
+        assertTrue(server.isRegistered(name));
+        kvs.close();
+        assertFalse(server.isRegistered(name));
+    }
+}
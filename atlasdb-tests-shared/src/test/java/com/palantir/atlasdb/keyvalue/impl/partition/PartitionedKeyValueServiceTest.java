@@ -15,7 +15,17 @@
  */
 package com.palantir.atlasdb.keyvalue.impl.partition;
 
+import static org.junit.Assert.assertArrayEquals;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.atlasdb.keyvalue.impl.AbstractAtlasDbKeyValueServiceTest;
 
 public class PartitionedKeyValueServiceTest extends AbstractAtlasDbKeyValueServiceTest {
@@ -25,4 +35,24 @@ public class PartitionedKeyValueServiceTest extends AbstractAtlasDbKeyValueServi
         return FailableKeyValueServices.sampleFailingKeyValueService();
     }
 
+    @Test
+    public void testMultiPutAcrossTables() {
+        String table1 = "ns.pt_multi_put_1";
+        String table2 = "ns.pt_multi_put_2";
+        Cell cell = Cell.create(PtBytes.toBytes("row"), PtBytes.toBytes("col"));
+        KeyValueService kvs = getKeyValueService();
+        kvs.createTable(table1, Integer.MAX_VALUE);
+        kvs.createTable(table2, Integer.MAX_VALUE);
+
+        kvs.multiPut(ImmutableMap.of(
+                table1, ImmutableMap.of(cell, PtBytes.toBytes("value1")),
+                table2, ImmutableMap.of(cell, PtBytes.toBytes("value2"))), 1L);
+
+        Map<Cell, Value> result1 = kvs.get(table1, ImmutableMap.of(cell, 2L));
+        Map<Cell, Value> result2 = kvs.get(table2, ImmutableMap.of(cell, 2L));
+        assertArrayEquals(PtBytes.toBytes("value1"), result1.get(cell).getContents());
+        assertArrayEquals(PtBytes.toBytes("value2"), result2.get(cell).getContents());
+        kvs.teardown();
+    }
+
 }
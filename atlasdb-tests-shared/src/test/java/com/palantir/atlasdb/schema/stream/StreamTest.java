@@ -16,19 +16,56 @@
 package com.palantir.atlasdb.schema.stream;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+import com.google.common.primitives.Bytes;
+import com.google.common.util.concurrent.Uninterruptibles;
 import com.palantir.atlasdb.AtlasDbTestCase;
 import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.protos.generated.StreamPersistence.Status;
+import com.palantir.atlasdb.schema.stream.generated.StreamTestMetadataCleanupTask;
+import com.palantir.atlasdb.schema.stream.generated.StreamTestStreamMetadataTable.StreamTestStreamMetadataRowResult;
 import com.palantir.atlasdb.schema.stream.generated.StreamTestStreamStore;
+import com.palantir.atlasdb.schema.stream.generated.StreamTestStreamValueTable.StreamTestStreamValueRowResult;
 import com.palantir.atlasdb.schema.stream.generated.StreamTestTableFactory;
+import com.palantir.atlasdb.schema.stream.generated.StreamTestWithChunksIndexCleanupTask;
+import com.palantir.atlasdb.schema.stream.generated.StreamTestWithChunksStreamChunkRefTable.StreamTestWithChunksStreamChunkRefColumnValue;
+import com.palantir.atlasdb.schema.stream.generated.StreamTestWithChunksStreamChunkRefTable.StreamTestWithChunksStreamChunkRefRowResult;
+import com.palantir.atlasdb.schema.stream.generated.StreamTestWithChunksStreamChunkTable;
+import com.palantir.atlasdb.schema.stream.generated.StreamTestWithChunksStreamChunkTable.StreamTestWithChunksStreamChunkRow;
+import com.palantir.atlasdb.schema.stream.generated.StreamTestWithChunksStreamIdxTable.StreamTestWithChunksStreamIdxRow;
+import com.palantir.atlasdb.schema.stream.generated.StreamTestWithChunksStreamStore;
+import com.palantir.atlasdb.stream.GenericStreamStore;
 import com.palantir.atlasdb.stream.PersistentStreamStore;
 import com.palantir.atlasdb.table.description.Schemas;
 import com.palantir.atlasdb.transaction.api.Transaction;
 import com.palantir.atlasdb.transaction.api.TransactionTask;
+import com.palantir.common.concurrent.PTExecutors;
 import com.palantir.util.crypto.Sha256Hash;
 
 public class StreamTest extends AtlasDbTestCase {
@@ -69,4 +106,289 @@ public class StreamTest extends AtlasDbTestCase {
             }
         });
     }
+
+    @Test
+    public void testLoadMultiBlockStream() throws Exception {
+        final byte[] data = new byte[GenericStreamStore.BLOCK_SIZE_IN_BYTES * 7 / 2];
+        new Random(0).nextBytes(data);
+        final PersistentStreamStore store = StreamTestStreamStore.of(txManager, StreamTestTableFactory.of());
+        final long streamId = store.storeStream(new ByteArrayInputStream(data)).lhSide;
+
+        // the stream is read after the transaction that opened it has finished
+        InputStream stream = txManager.runTaskReadOnly(new TransactionTask<InputStream, Exception>() {
+            @Override
+            public InputStream execute(Transaction t) throws Exception {
+                return store.loadStream(t, streamId);
+            }
+        });
+        try {
+            Assert.assertArrayEquals(data, ByteStreams.toByteArray(stream));
+        } finally {
+            stream.close();
+        }
+
+        File file = txManager.runTaskReadOnly(new TransactionTask<File, Exception>() {
+            @Override
+            public File execute(Transaction t) throws Exception {
+                return store.loadStreamAsFile(t, streamId);
+            }
+        });
+        try {
+            Assert.assertArrayEquals(data, Files.toByteArray(file));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testCleanupWhileStoringLeavesNoBlocks() throws Exception {
+        final int blockSize = GenericStreamStore.BLOCK_SIZE_IN_BYTES;
+        byte[] data = new byte[blockSize * 3];
+        new Random(0).nextBytes(data);
+        final CountDownLatch firstBlockRead = new CountDownLatch(1);
+        final CountDownLatch cleanedUp = new CountDownLatch(1);
+        final InputStream stream = new FilterInputStream(new ByteArrayInputStream(data)) {
+            private long bytesRead = 0;
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (bytesRead >= blockSize) {
+                    // the first block is being stored; hold the rest back until the stream is cleaned up
+                    firstBlockRead.countDown();
+                    Uninterruptibles.awaitUninterruptibly(cleanedUp);
+                }
+                int read = super.read(b, off, len);
+                bytesRead += Math.max(read, 0);
+                return read;
+            }
+        };
+        final PersistentStreamStore store = StreamTestStreamStore.of(txManager, StreamTestTableFactory.of());
+        ExecutorService executor = PTExecutors.newSingleThreadExecutor();
+        try {
+            Future<?> storing = executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    store.storeStream(stream);
+                    return null;
+                }
+            });
+            firstBlockRead.await();
+            final long streamId = txManager.runTaskWithRetry(new TransactionTask<Long, RuntimeException>() {
+                @Override
+                public Long execute(Transaction t) {
+                    List<StreamTestStreamMetadataRowResult> rows = StreamTestTableFactory.of()
+                            .getStreamTestStreamMetadataTable(t).getAllRowsUnordered().immutableCopy();
+                    Assert.assertEquals(1, rows.size());
+                    Assert.assertEquals(Status.STORING, rows.get(0).getMetadata().getStatus());
+                    Set<Cell> cells = Sets.newHashSet(Cell.create(
+                            rows.get(0).getRowName().persistToBytes(),
+                            PtBytes.toBytes("md")));
+                    new StreamTestMetadataCleanupTask().cellsCleanedUp(t, cells);
+                    return rows.get(0).getRowName().getId();
+                }
+            });
+            cleanedUp.countDown();
+            try {
+                storing.get();
+                Assert.fail("expected storing a cleaned up stream to fail");
+            } catch (ExecutionException e) {
+                // expected
+            }
+
+            // whichever of the cleanup and a block write committed first, the other must not leave a block behind
+            List<Long> leftBehind = txManager.runTaskReadOnly(new TransactionTask<List<Long>, RuntimeException>() {
+                @Override
+                public List<Long> execute(Transaction t) {
+                    List<Long> blocks = Lists.newArrayList();
+                    for (StreamTestStreamValueRowResult row : StreamTestTableFactory.of()
+                            .getStreamTestStreamValueTable(t).getAllRowsUnordered().immutableCopy()) {
+                        if (row.getRowName().getId() == streamId) {
+                            blocks.add(row.getRowName().getBlockId());
+                        }
+                    }
+                    return blocks;
+                }
+            });
+            Assert.assertEquals(Lists.newArrayList(), leftBehind);
+        } finally {
+            cleanedUp.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testStoreAndLoadChunkedStream() throws Exception {
+        final byte[] data = new byte[GenericStreamStore.BLOCK_SIZE_IN_BYTES * 5 / 2];
+        new Random(0).nextBytes(data);
+        final PersistentStreamStore store = StreamTestWithChunksStreamStore.of(txManager, StreamTestTableFactory.of());
+        final long streamId = store.storeStream(new ByteArrayInputStream(data)).lhSide;
+
+        InputStream stream = txManager.runTaskReadOnly(new TransactionTask<InputStream, Exception>() {
+            @Override
+            public InputStream execute(Transaction t) throws Exception {
+                return store.loadStream(t, streamId);
+            }
+        });
+        try {
+            Assert.assertArrayEquals(data, ByteStreams.toByteArray(stream));
+        } finally {
+            stream.close();
+        }
+        Assert.assertTrue(getChunkReferences().size() > 1);
+    }
+
+    @Test
+    public void testChunkedStreamsShareChunks() throws Exception {
+        byte[] data = new byte[GenericStreamStore.BLOCK_SIZE_IN_BYTES * 2];
+        new Random(0).nextBytes(data);
+        PersistentStreamStore store = StreamTestWithChunksStreamStore.of(txManager, StreamTestTableFactory.of());
+        store.storeStream(new ByteArrayInputStream(data));
+        int chunks = getChunkReferences().size();
+
+        // The same content again only adds references to the chunks already stored.
+        store.storeStream(new ByteArrayInputStream(data));
+        Assert.assertEquals(chunks, getChunkReferences().size());
+        for (long references : getChunkReferences().values()) {
+            Assert.assertEquals(2, references);
+        }
+
+        // An edit in the middle only changes the chunks around it.
+        byte[] edited = insert(data, data.length / 2, PtBytes.toBytes("an edit"));
+        long editedId = store.storeStream(new ByteArrayInputStream(edited)).lhSide;
+        int newChunks = getChunkReferences().size() - chunks;
+        Assert.assertTrue("new chunks: " + newChunks, newChunks > 0 && newChunks <= 3);
+        Assert.assertArrayEquals(edited, loadStream(store, editedId));
+    }
+
+    @Test
+    public void testDeletingChunkedStreamsReleasesChunks() throws Exception {
+        byte[] data = new byte[GenericStreamStore.BLOCK_SIZE_IN_BYTES * 2];
+        new Random(0).nextBytes(data);
+        byte[] edited = insert(data, data.length / 2, PtBytes.toBytes("an edit"));
+        PersistentStreamStore store = StreamTestWithChunksStreamStore.of(txManager, StreamTestTableFactory.of());
+        long firstId = store.storeStream(new ByteArrayInputStream(data)).lhSide;
+        Set<Sha256Hash> firstChunks = getChunkReferences().keySet();
+        long secondId = store.storeStream(new ByteArrayInputStream(edited)).lhSide;
+        Set<Sha256Hash> allChunks = getChunkReferences().keySet();
+
+        // Only the chunks that just the deleted stream referred to go away.
+        deleteUnusedChunkedStream(firstId);
+        Map<Sha256Hash, Long> references = getChunkReferences();
+        Assert.assertTrue(allChunks.containsAll(references.keySet()));
+        Assert.assertTrue(references.size() < allChunks.size());
+        Assert.assertTrue(references.keySet().containsAll(Sets.difference(allChunks, firstChunks)));
+        for (long count : references.values()) {
+            Assert.assertEquals(1, count);
+        }
+        Assert.assertArrayEquals(edited, loadStream(store, secondId));
+
+        deleteUnusedChunkedStream(secondId);
+        Assert.assertEquals(ImmutableMap.of(), getChunkReferences());
+        Assert.assertEquals(0, txManager.runTaskReadOnly(new TransactionTask<Integer, RuntimeException>() {
+            @Override
+            public Integer execute(Transaction t) {
+                return StreamTestTableFactory.of().getStreamTestWithChunksStreamChunkTable(t)
+                        .getAllRowsUnordered().immutableCopy().size();
+            }
+        }).intValue());
+    }
+
+    @Test
+    public void testConcurrentChunkedStreamsCountEveryReference() throws Exception {
+        final int numStreams = 8;
+        final byte[] data = new byte[GenericStreamStore.BLOCK_SIZE_IN_BYTES];
+        new Random(0).nextBytes(data);
+        final PersistentStreamStore store = StreamTestWithChunksStreamStore.of(txManager, StreamTestTableFactory.of());
+        ExecutorService executor = PTExecutors.newFixedThreadPool(numStreams);
+        List<Future<Long>> futures = Lists.newArrayList();
+        try {
+            for (int i = 0; i < numStreams; i++) {
+                futures.add(executor.submit(new Callable<Long>() {
+                    @Override
+                    public Long call() {
+                        return store.storeStream(new ByteArrayInputStream(data)).lhSide;
+                    }
+                }));
+            }
+            for (Future<Long> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        for (long references : getChunkReferences().values()) {
+            Assert.assertEquals(numStreams, references);
+        }
+
+        for (Future<Long> future : futures) {
+            deleteUnusedChunkedStream(future.get());
+        }
+        Assert.assertEquals(ImmutableMap.of(), getChunkReferences());
+    }
+
+    private static byte[] insert(byte[] data, int offset, byte[] insertion) {
+        return Bytes.concat(Arrays.copyOfRange(data, 0, offset), insertion, Arrays.copyOfRange(data, offset, data.length));
+    }
+
+    private byte[] loadStream(final PersistentStreamStore store, final long streamId) throws IOException {
+        InputStream stream = txManager.runTaskReadOnly(new TransactionTask<InputStream, RuntimeException>() {
+            @Override
+            public InputStream execute(Transaction t) {
+                return store.loadStream(t, streamId);
+            }
+        });
+        try {
+            return ByteStreams.toByteArray(stream);
+        } finally {
+            stream.close();
+        }
+    }
+
+    /**
+     * @return the number of stream blocks that refer to each stored chunk
+     */
+    private Map<Sha256Hash, Long> getChunkReferences() {
+        return txManager.runTaskReadOnly(new TransactionTask<Map<Sha256Hash, Long>, RuntimeException>() {
+            @Override
+            public Map<Sha256Hash, Long> execute(Transaction t) {
+                StreamTestTableFactory tables = StreamTestTableFactory.of();
+                Map<Sha256Hash, Long> references = Maps.newHashMap();
+                for (StreamTestWithChunksStreamChunkRefRowResult row : tables.getStreamTestWithChunksStreamChunkRefTable(t)
+                        .getAllRowsUnordered().immutableCopy()) {
+                    long count = 0;
+                    for (StreamTestWithChunksStreamChunkRefColumnValue ref : row.getColumnValues()) {
+                        count += ref.getValue();
+                    }
+                    references.put(row.getRowName().getHash(), count);
+                }
+                StreamTestWithChunksStreamChunkTable chunkTable = tables.getStreamTestWithChunksStreamChunkTable(t);
+                for (Map.Entry<StreamTestWithChunksStreamChunkRow, Long> e
+                        : chunkTable.getReleaseCounts(chunkRows(references.keySet())).entrySet()) {
+                    references.put(e.getKey().getHash(), references.get(e.getKey().getHash()) - e.getValue());
+                }
+                return references;
+            }
+        });
+    }
+
+    private static Set<StreamTestWithChunksStreamChunkRow> chunkRows(Set<Sha256Hash> hashes) {
+        Set<StreamTestWithChunksStreamChunkRow> rows = Sets.newHashSet();
+        for (Sha256Hash hash : hashes) {
+            rows.add(StreamTestWithChunksStreamChunkRow.of(hash));
+        }
+        return rows;
+    }
+
+    private void deleteUnusedChunkedStream(final long streamId) {
+        txManager.runTaskWithRetry(new TransactionTask<Void, RuntimeException>() {
+            @Override
+            public Void execute(Transaction t) {
+                Set<Cell> cells = ImmutableSet.of(Cell.create(
+                        StreamTestWithChunksStreamIdxRow.of(streamId).persistToBytes(),
+                        PtBytes.toBytes("reference")));
+                new StreamTestWithChunksIndexCleanupTask().cellsCleanedUp(t, cells);
+                return null;
+            }
+        });
+    }
 }
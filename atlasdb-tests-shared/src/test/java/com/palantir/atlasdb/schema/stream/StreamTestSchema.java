@@ -20,6 +20,7 @@ import java.io.File;
 import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.ExpirationStrategy;
 import com.palantir.atlasdb.schema.AtlasSchema;
 import com.palantir.atlasdb.schema.Namespace;
+import com.palantir.atlasdb.table.description.ColumnValueDescription.Compression;
 import com.palantir.atlasdb.table.description.Schema;
 import com.palantir.atlasdb.table.description.ValueType;
 
@@ -37,6 +38,10 @@ public class StreamTestSchema implements AtlasSchema {
 
         schema.addStreamStoreDefinition("stream_test_2", "stream_test_2", ValueType.VAR_LONG, 4000, ExpirationStrategy.INDIVIDUALLY_SPECIFIED, false);
 
+        schema.addStreamStoreDefinition("stream_test_with_chunks", "stream_test_with_chunks", ValueType.VAR_LONG, 4000, ExpirationStrategy.NEVER, false, true);
+
+        schema.addStreamStoreDefinition("stream_test_compressed", "stream_test_compressed", ValueType.VAR_LONG, 4000, ExpirationStrategy.NEVER, false, false, Compression.SNAPPY);
+
         return schema;
     }
 
@@ -237,6 +237,14 @@ public final class StreamTest2StreamMetadataTable implements
      *     label: LABEL_REQUIRED
      *     type: TYPE_BYTES
      *   }
+     *   field {
+     *     name: "compression"
+     *     number: 4
+     *     label: LABEL_OPTIONAL
+     *     type: TYPE_ENUM
+     *     type_name: ".com.palantir.atlasdb.protos.generated.Compression"
+     *     default_value: "NONE"
+     *   }
      * }
      * </pre>
      */
@@ -619,5 +627,5 @@ public final class StreamTest2StreamMetadataTable implements
         return ImmutableList.of();
     }
 
-    static String __CLASS_HASH = "fJBmiJ2sxoo1v7Ly5ln0Mw==";
+    static String __CLASS_HASH = "gCS1I+4qbsht4/ZhAMc1SQ==";
 }
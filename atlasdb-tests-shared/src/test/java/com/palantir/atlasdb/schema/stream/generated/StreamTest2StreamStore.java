@@ -170,6 +170,12 @@ public final class StreamTest2StreamStore extends AbstractExpiringStreamStore<Lo
         }
     }
 
+    @Override
+    protected byte[] loadSingleBlock(Transaction t, Long streamId, long blockId) {
+        StreamTest2StreamValueTable.StreamTest2StreamValueRow row = StreamTest2StreamValueTable.StreamTest2StreamValueRow.of(streamId, blockId);
+        return getBlock(t, row);
+    }
+
     private byte[] getBlock(Transaction t, StreamTest2StreamValueTable.StreamTest2StreamValueRow row) {
         StreamTest2StreamValueTable valueTable = tables.getStreamTest2StreamValueTable(t);
         return valueTable.getValues(ImmutableSet.of(row)).get(row);
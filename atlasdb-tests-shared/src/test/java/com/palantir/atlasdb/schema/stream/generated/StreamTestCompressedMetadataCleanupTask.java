@@ -0,0 +1,37 @@
+package com.palantir.atlasdb.schema.stream.generated;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.palantir.atlasdb.cleaner.api.OnCleanupTask;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.protos.generated.StreamPersistence.Status;
+import com.palantir.atlasdb.protos.generated.StreamPersistence.StreamMetadata;
+import com.palantir.atlasdb.table.description.ValueType;
+import com.palantir.atlasdb.transaction.api.Transaction;
+
+public class StreamTestCompressedMetadataCleanupTask implements OnCleanupTask {
+
+    private final StreamTestTableFactory tables = StreamTestTableFactory.of();
+
+    @Override
+    public boolean cellsCleanedUp(Transaction t, Set<Cell> cells) {
+        StreamTestCompressedStreamMetadataTable metaTable = tables.getStreamTestCompressedStreamMetadataTable(t);
+        Collection<StreamTestCompressedStreamMetadataTable.StreamTestCompressedStreamMetadataRow> rows = Lists.newArrayListWithCapacity(cells.size());
+        for (Cell cell : cells) {
+            rows.add(StreamTestCompressedStreamMetadataTable.StreamTestCompressedStreamMetadataRow.of((Long) ValueType.VAR_LONG.convertToJava(cell.getRowName(), 0)));
+        }
+        Map<StreamTestCompressedStreamMetadataTable.StreamTestCompressedStreamMetadataRow, StreamMetadata> currentMetadata = metaTable.getMetadatas(rows);
+        Set<Long> toDelete = Sets.newHashSet();
+        for (Map.Entry<StreamTestCompressedStreamMetadataTable.StreamTestCompressedStreamMetadataRow, StreamMetadata> e : currentMetadata.entrySet()) {
+            if (e.getValue().getStatus() != Status.STORED) {
+                toDelete.add(e.getKey().getId());
+            }
+        }
+        StreamTestCompressedStreamStore.of(tables).deleteStreams(t, toDelete);
+        return false;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,642 @@
+package com.palantir.atlasdb.schema.stream.generated;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+
+
+import com.google.common.base.Function;
+import com.google.common.base.Joiner;
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Objects;
+import com.google.common.base.Optional;
+import com.google.common.base.Supplier;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Collections2;
+import com.google.common.collect.ComparisonChain;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Multimaps;
+import com.google.common.collect.Sets;
+import com.google.common.primitives.Bytes;
+import com.google.common.primitives.UnsignedBytes;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.palantir.atlasdb.compress.CompressionUtils;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
+import com.palantir.atlasdb.keyvalue.api.Prefix;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.impl.Cells;
+import com.palantir.atlasdb.ptobject.EncodingUtils;
+import com.palantir.atlasdb.schema.Namespace;
+import com.palantir.atlasdb.table.api.AtlasDbDynamicMutableExpiringTable;
+import com.palantir.atlasdb.table.api.AtlasDbDynamicMutablePersistentTable;
+import com.palantir.atlasdb.table.api.AtlasDbMutableExpiringTable;
+import com.palantir.atlasdb.table.api.AtlasDbMutablePersistentTable;
+import com.palantir.atlasdb.table.api.AtlasDbNamedExpiringSet;
+import com.palantir.atlasdb.table.api.AtlasDbNamedMutableTable;
+import com.palantir.atlasdb.table.api.AtlasDbNamedPersistentSet;
+import com.palantir.atlasdb.table.api.ColumnValue;
+import com.palantir.atlasdb.table.api.TypedRowResult;
+import com.palantir.atlasdb.table.description.ColumnValueDescription.Compression;
+import com.palantir.atlasdb.table.generation.ColumnValues;
+import com.palantir.atlasdb.table.generation.Descending;
+import com.palantir.atlasdb.table.generation.NamedColumnValue;
+import com.palantir.atlasdb.transaction.api.AtlasDbConstraintCheckingMode;
+import com.palantir.atlasdb.transaction.api.ConstraintCheckingTransaction;
+import com.palantir.atlasdb.transaction.api.Transaction;
+import com.palantir.common.base.AbortingVisitor;
+import com.palantir.common.base.AbortingVisitors;
+import com.palantir.common.base.BatchingVisitable;
+import com.palantir.common.base.BatchingVisitableView;
+import com.palantir.common.base.BatchingVisitables;
+import com.palantir.common.base.Throwables;
+import com.palantir.common.collect.IterableView;
+import com.palantir.common.persist.Persistable;
+import com.palantir.common.persist.Persistable.Hydrator;
+import com.palantir.common.persist.Persistables;
+import com.palantir.common.proxy.AsyncProxy;
+import com.palantir.util.AssertUtils;
+import com.palantir.util.crypto.Sha256Hash;
+
+
+public final class StreamTestCompressedStreamIdxTable implements
+        AtlasDbDynamicMutablePersistentTable<StreamTestCompressedStreamIdxTable.StreamTestCompressedStreamIdxRow,
+                                                StreamTestCompressedStreamIdxTable.StreamTestCompressedStreamIdxColumn,
+                                                StreamTestCompressedStreamIdxTable.StreamTestCompressedStreamIdxColumnValue,
+                                                StreamTestCompressedStreamIdxTable.StreamTestCompressedStreamIdxRowResult> {
+    private final Transaction t;
+    private final List<StreamTestCompressedStreamIdxTrigger> triggers;
+    private final static String rawTableName = "stream_test_compressed_stream_idx";
+    private final String tableName;
+    private final Namespace namespace;
+
+    static StreamTestCompressedStreamIdxTable of(Transaction t, Namespace namespace) {
+        return new StreamTestCompressedStreamIdxTable(t, namespace, ImmutableList.<StreamTestCompressedStreamIdxTrigger>of());
+    }
+
+    static StreamTestCompressedStreamIdxTable of(Transaction t, Namespace namespace, StreamTestCompressedStreamIdxTrigger trigger, StreamTestCompressedStreamIdxTrigger... triggers) {
+        return new StreamTestCompressedStreamIdxTable(t, namespace, ImmutableList.<StreamTestCompressedStreamIdxTrigger>builder().add(trigger).add(triggers).build());
+    }
+
+    static StreamTestCompressedStreamIdxTable of(Transaction t, Namespace namespace, List<StreamTestCompressedStreamIdxTrigger> triggers) {
+        return new StreamTestCompressedStreamIdxTable(t, namespace, triggers);
+    }
+
+    private StreamTestCompressedStreamIdxTable(Transaction t, Namespace namespace, List<StreamTestCompressedStreamIdxTrigger> triggers) {
+        this.t = t;
+        this.tableName = namespace.getName() + "." + rawTableName;
+        this.triggers = triggers;
+        this.namespace = namespace;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public Namespace getNamespace() {
+        return namespace;
+    }
+
+    /**
+     * <pre>
+     * StreamTestCompressedStreamIdxRow {
+     *   {@literal Long id};
+     * }
+     * </pre>
+     */
+    public static final class StreamTestCompressedStreamIdxRow implements Persistable, Comparable<StreamTestCompressedStreamIdxRow> {
+        private final long id;
+
+        public static StreamTestCompressedStreamIdxRow of(long id) {
+            return new StreamTestCompressedStreamIdxRow(id);
+        }
+
+        private StreamTestCompressedStreamIdxRow(long id) {
+            this.id = id;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public static Function<StreamTestCompressedStreamIdxRow, Long> getIdFun() {
+            return new Function<StreamTestCompressedStreamIdxRow, Long>() {
+                @Override
+                public Long apply(StreamTestCompressedStreamIdxRow row) {
+                    return row.id;
+                }
+            };
+        }
+
+        public static Function<Long, StreamTestCompressedStreamIdxRow> fromIdFun() {
+            return new Function<Long, StreamTestCompressedStreamIdxRow>() {
+                @Override
+                public StreamTestCompressedStreamIdxRow apply(Long row) {
+                    return new StreamTestCompressedStreamIdxRow(row);
+                }
+            };
+        }
+
+        @Override
+        public byte[] persistToBytes() {
+            byte[] idBytes = EncodingUtils.encodeUnsignedVarLong(id);
+            return EncodingUtils.add(idBytes);
+        }
+
+        public static final Hydrator<StreamTestCompressedStreamIdxRow> BYTES_HYDRATOR = new Hydrator<StreamTestCompressedStreamIdxRow>() {
+            @Override
+            public StreamTestCompressedStreamIdxRow hydrateFromBytes(byte[] __input) {
+                int __index = 0;
+                Long id = EncodingUtils.decodeUnsignedVarLong(__input, __index);
+                __index += EncodingUtils.sizeOfUnsignedVarLong(id);
+                return of(id);
+            }
+        };
+
+        @Override
+        public String toString() {
+            return MoreObjects.toStringHelper(getClass().getSimpleName())
+                .add("id", id)
+                .toString();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null) {
+                return false;
+            }
+            if (getClass() != obj.getClass()) {
+                return false;
+            }
+            StreamTestCompressedStreamIdxRow other = (StreamTestCompressedStreamIdxRow) obj;
+            return Objects.equal(id, other.id);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(id);
+        }
+
+        @Override
+        public int compareTo(StreamTestCompressedStreamIdxRow o) {
+            return ComparisonChain.start()
+                .compare(this.id, o.id)
+                .result();
+        }
+    }
+
+    /**
+     * <pre>
+     * StreamTestCompressedStreamIdxColumn {
+     *   {@literal byte[] reference};
+     * }
+     * </pre>
+     */
+    public static final class StreamTestCompressedStreamIdxColumn implements Persistable, Comparable<StreamTestCompressedStreamIdxColumn> {
+        private final byte[] reference;
+
+        public static StreamTestCompressedStreamIdxColumn of(byte[] reference) {
+            return new StreamTestCompressedStreamIdxColumn(reference);
+        }
+
+        private StreamTestCompressedStreamIdxColumn(byte[] reference) {
+            this.reference = reference;
+        }
+
+        public byte[] getReference() {
+            return reference;
+        }
+
+        public static Function<StreamTestCompressedStreamIdxColumn, byte[]> getReferenceFun() {
+            return new Function<StreamTestCompressedStreamIdxColumn, byte[]>() {
+                @Override
+                public byte[] apply(StreamTestCompressedStreamIdxColumn row) {
+                    return row.reference;
+                }
+            };
+        }
+
+        public static Function<byte[], StreamTestCompressedStreamIdxColumn> fromReferenceFun() {
+            return new Function<byte[], StreamTestCompressedStreamIdxColumn>() {
+                @Override
+                public StreamTestCompressedStreamIdxColumn apply(byte[] row) {
+                    return new StreamTestCompressedStreamIdxColumn(row);
+                }
+            };
+        }
+
+        @Override
+        public byte[] persistToBytes() {
+            byte[] referenceBytes = EncodingUtils.encodeSizedBytes(reference);
+            return EncodingUtils.add(referenceBytes);
+        }
+
+        public static final Hydrator<StreamTestCompressedStreamIdxColumn> BYTES_HYDRATOR = new Hydrator<StreamTestCompressedStreamIdxColumn>() {
+            @Override
+            public StreamTestCompressedStreamIdxColumn hydrateFromBytes(byte[] __input) {
+                int __index = 0;
+                byte[] reference = EncodingUtils.decodeSizedBytes(__input, __index);
+                __index += EncodingUtils.sizeOfSizedBytes(reference);
+                return of(reference);
+            }
+        };
+
+        @Override
+        public String toString() {
+            return MoreObjects.toStringHelper(getClass().getSimpleName())
+                .add("reference", reference)
+                .toString();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null) {
+                return false;
+            }
+            if (getClass() != obj.getClass()) {
+                return false;
+            }
+            StreamTestCompressedStreamIdxColumn other = (StreamTestCompressedStreamIdxColumn) obj;
+            return Arrays.equals(reference, other.reference);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(reference);
+        }
+
+        @Override
+        public int compareTo(StreamTestCompressedStreamIdxColumn o) {
+            return ComparisonChain.start()
+                .compare(this.reference, o.reference, UnsignedBytes.lexicographicalComparator())
+                .result();
+        }
+    }
+
+    public interface StreamTestCompressedStreamIdxTrigger {
+        public void putStreamTestCompressedStreamIdx(Multimap<StreamTestCompressedStreamIdxRow, ? extends StreamTestCompressedStreamIdxColumnValue> newRows);
+    }
+
+    /**
+     * <pre>
+     * Column name description {
+     *   {@literal byte[] reference};
+     * }
+     * Column value description {
+     *   type: Long;
+     * }
+     * </pre>
+     */
+    public static final class StreamTestCompressedStreamIdxColumnValue implements ColumnValue<Long> {
+        private final StreamTestCompressedStreamIdxColumn columnName;
+        private final Long value;
+
+        public static StreamTestCompressedStreamIdxColumnValue of(StreamTestCompressedStreamIdxColumn columnName, Long value) {
+            return new StreamTestCompressedStreamIdxColumnValue(columnName, value);
+        }
+
+        private StreamTestCompressedStreamIdxColumnValue(StreamTestCompressedStreamIdxColumn columnName, Long value) {
+            this.columnName = columnName;
+            this.value = value;
+        }
+
+        public StreamTestCompressedStreamIdxColumn getColumnName() {
+            return columnName;
+        }
+
+        @Override
+        public Long getValue() {
+            return value;
+        }
+
+        @Override
+        public byte[] persistColumnName() {
+            return columnName.persistToBytes();
+        }
+
+        @Override
+        public byte[] persistValue() {
+            byte[] bytes = EncodingUtils.encodeUnsignedVarLong(value);
+            return CompressionUtils.compress(bytes, Compression.NONE);
+        }
+
+        public static Long hydrateValue(byte[] bytes) {
+            bytes = CompressionUtils.decompress(bytes, Compression.NONE);
+            return EncodingUtils.decodeUnsignedVarLong(bytes, 0);
+        }
+
+        public static Function<StreamTestCompressedStreamIdxColumnValue, StreamTestCompressedStreamIdxColumn> getColumnNameFun() {
+            return new Function<StreamTestCompressedStreamIdxColumnValue, StreamTestCompressedStreamIdxColumn>() {
+                @Override
+                public StreamTestCompressedStreamIdxColumn apply(StreamTestCompressedStreamIdxColumnValue columnValue) {
+                    return columnValue.getColumnName();
+                }
+            };
+        }
+
+        public static Function<StreamTestCompressedStreamIdxColumnValue, Long> getValueFun() {
+            return new Function<StreamTestCompressedStreamIdxColumnValue, Long>() {
+                @Override
+                public Long apply(StreamTestCompressedStreamIdxColumnValue columnValue) {
+                    return columnValue.getValue();
+                }
+            };
+        }
+
+        @Override
+        public String toString() {
+            return MoreObjects.toStringHelper(getClass().getSimpleName())
+                .add("ColumnName", this.columnName)
+                .add("Value", this.value)
+                .toString();
+        }
+    }
+
+    public static final class StreamTestCompressedStreamIdxRowResult implements TypedRowResult {
+        private final StreamTestCompressedStreamIdxRow rowName;
+        private final ImmutableSet<StreamTestCompressedStreamIdxColumnValue> columnValues;
+
+        public static StreamTestCompressedStreamIdxRowResult of(RowResult<byte[]> rowResult) {
+            StreamTestCompressedStreamIdxRow rowName = StreamTestCompressedStreamIdxRow.BYTES_HYDRATOR.hydrateFromBytes(rowResult.getRowName());
+            Set<StreamTestCompressedStreamIdxColumnValue> columnValues = Sets.newHashSetWithExpectedSize(rowResult.getColumns().size());
+            for (Entry<byte[], byte[]> e : rowResult.getColumns().entrySet()) {
+                StreamTestCompressedStreamIdxColumn col = StreamTestCompressedStreamIdxColumn.BYTES_HYDRATOR.hydrateFromBytes(e.getKey());
+                Long value = StreamTestCompressedStreamIdxColumnValue.hydrateValue(e.getValue());
+                columnValues.add(StreamTestCompressedStreamIdxColumnValue.of(col, value));
+            }
+            return new StreamTestCompressedStreamIdxRowResult(rowName, ImmutableSet.copyOf(columnValues));
+        }
+
+        private StreamTestCompressedStreamIdxRowResult(StreamTestCompressedStreamIdxRow rowName, ImmutableSet<StreamTestCompressedStreamIdxColumnValue> columnValues) {
+            this.rowName = rowName;
+            this.columnValues = columnValues;
+        }
+
+        @Override
+        public StreamTestCompressedStreamIdxRow getRowName() {
+            return rowName;
+        }
+
+        public Set<StreamTestCompressedStreamIdxColumnValue> getColumnValues() {
+            return columnValues;
+        }
+
+        public static Function<StreamTestCompressedStreamIdxRowResult, StreamTestCompressedStreamIdxRow> getRowNameFun() {
+            return new Function<StreamTestCompressedStreamIdxRowResult, StreamTestCompressedStreamIdxRow>() {
+                @Override
+                public StreamTestCompressedStreamIdxRow apply(StreamTestCompressedStreamIdxRowResult rowResult) {
+                    return rowResult.rowName;
+                }
+            };
+        }
+
+        public static Function<StreamTestCompressedStreamIdxRowResult, ImmutableSet<StreamTestCompressedStreamIdxColumnValue>> getColumnValuesFun() {
+            return new Function<StreamTestCompressedStreamIdxRowResult, ImmutableSet<StreamTestCompressedStreamIdxColumnValue>>() {
+                @Override
+                public ImmutableSet<StreamTestCompressedStreamIdxColumnValue> apply(StreamTestCompressedStreamIdxRowResult rowResult) {
+                    return rowResult.columnValues;
+                }
+            };
+        }
+
+        @Override
+        public String toString() {
+            return MoreObjects.toStringHelper(getClass().getSimpleName())
+                .add("RowName", getRowName())
+                .add("ColumnValues", getColumnValues())
+                .toString();
+        }
+    }
+
+    @Override
+    public void delete(StreamTestCompressedStreamIdxRow row, StreamTestCompressedStreamIdxColumn column) {
+        delete(ImmutableMultimap.of(row, column));
+    }
+
+    @Override
+    public void delete(Iterable<StreamTestCompressedStreamIdxRow> rows) {
+        Multimap<StreamTestCompressedStreamIdxRow, StreamTestCompressedStreamIdxColumn> toRemove = HashMultimap.create();
+        Multimap<StreamTestCompressedStreamIdxRow, StreamTestCompressedStreamIdxColumnValue> result = getRowsMultimap(rows);
+        for (Entry<StreamTestCompressedStreamIdxRow, StreamTestCompressedStreamIdxColumnValue> e : result.entries()) {
+            toRemove.put(e.getKey(), e.getValue().getColumnName());
+        }
+        delete(toRemove);
+    }
+
+    @Override
+    public void delete(Multimap<StreamTestCompressedStreamIdxRow, StreamTestCompressedStreamIdxColumn> values) {
+        t.delete(tableName, ColumnValues.toCells(values));
+    }
+
+    @Override
+    public void put(StreamTestCompressedStreamIdxRow rowName, Iterable<StreamTestCompressedStreamIdxColumnValue> values) {
+        put(ImmutableMultimap.<StreamTestCompressedStreamIdxRow, StreamTestCompressedStreamIdxColumnValue>builder().putAll(rowName, values).build());
+    }
+
+    @Override
+    public void put(StreamTestCompressedStreamIdxRow rowName, StreamTestCompressedStreamIdxColumnValue... values) {
+        put(ImmutableMultimap.<StreamTestCompressedStreamIdxRow, StreamTestCompressedStreamIdxColumnValue>builder().putAll(rowName, values).build());
+    }
+
+    @Override
+    public void put(Multimap<StreamTestCompressedStreamIdxRow, ? extends StreamTestCompressedStreamIdxColumnValue> values) {
+        t.useTable(tableName, this);
+        t.put(tableName, ColumnValues.toCellValues(values));
+        for (StreamTestCompressedStreamIdxTrigger trigger : triggers) {
+            trigger.putStreamTestCompressedStreamIdx(values);
+        }
+    }
+
+    @Override
+    public void putUnlessExists(StreamTestCompressedStreamIdxRow rowName, Iterable<StreamTestCompressedStreamIdxColumnValue> values) {
+        putUnlessExists(ImmutableMultimap.<StreamTestCompressedStreamIdxRow, StreamTestCompressedStreamIdxColumnValue>builder().putAll(rowName, values).build());
+    }
+
+    @Override
+    public void putUnlessExists(StreamTestCompressedStreamIdxRow rowName, StreamTestCompressedStreamIdxColumnValue... values) {
+        putUnlessExists(ImmutableMultimap.<StreamTestCompressedStreamIdxRow, StreamTestCompressedStreamIdxColumnValue>builder().putAll(rowName, values).build());
+    }
+
+    @Override
+    public void putUnlessExists(Multimap<StreamTestCompressedStreamIdxRow, ? extends StreamTestCompressedStreamIdxColumnValue> rows) {
+        Multimap<StreamTestCompressedStreamIdxRow, StreamTestCompressedStreamIdxColumn> toGet = Multimaps.transformValues(rows, StreamTestCompressedStreamIdxColumnValue.getColumnNameFun());
+        Multimap<StreamTestCompressedStreamIdxRow, StreamTestCompressedStreamIdxColumnValue> existing = get(toGet);
+        Multimap<StreamTestCompressedStreamIdxRow, StreamTestCompressedStreamIdxColumnValue> toPut = HashMultimap.create();
+        for (Entry<StreamTestCompressedStreamIdxRow, ? extends StreamTestCompressedStreamIdxColumnValue> entry : rows.entries()) {
+            if (!existing.containsEntry(entry.getKey(), entry.getValue())) {
+                toPut.put(entry.getKey(), entry.getValue());
+            }
+        }
+        put(toPut);
+    }
+
+    @Override
+    public void touch(Multimap<StreamTestCompressedStreamIdxRow, StreamTestCompressedStreamIdxColumn> values) {
+        Multimap<StreamTestCompressedStreamIdxRow, StreamTestCompressedStreamIdxColumnValue> currentValues = get(values);
+        put(currentValues);
+        Multimap<StreamTestCompressedStreamIdxRow, StreamTestCompressedStreamIdxColumn> toDelete = HashMultimap.create(values);
+        for (Map.Entry<StreamTestCompressedStreamIdxRow, StreamTestCompressedStreamIdxColumnValue> e : currentValues.entries()) {
+            toDelete.remove(e.getKey(), e.getValue().getColumnName());
+        }
+        delete(toDelete);
+    }
+
+    public static ColumnSelection getColumnSelection(Collection<StreamTestCompressedStreamIdxColumn> cols) {
+        return ColumnSelection.create(Collections2.transform(cols, Persistables.persistToBytesFunction()));
+    }
+
+    public static ColumnSelection getColumnSelection(StreamTestCompressedStreamIdxColumn... cols) {
+        return getColumnSelection(Arrays.asList(cols));
+    }
+
+    @Override
+    public Multimap<StreamTestCompressedStreamIdxRow, StreamTestCompressedStreamIdxColumnValue> get(Multimap<StreamTestCompressedStreamIdxRow, StreamTestCompressedStreamIdxColumn> cells) {
+        Set<Cell> rawCells = ColumnValues.toCells(cells);
+        Map<Cell, byte[]> rawResults = t.get(tableName, rawCells);
+        Multimap<StreamTestCompressedStreamIdxRow, StreamTestCompressedStreamIdxColumnValue> rowMap = HashMultimap.create();
+        for (Entry<Cell, byte[]> e : rawResults.entrySet()) {
+            if (e.getValue().length > 0) {
+                StreamTestCompressedStreamIdxRow row = StreamTestCompressedStreamIdxRow.BYTES_HYDRATOR.hydrateFromBytes(e.getKey().getRowName());
+                StreamTestCompressedStreamIdxColumn col = StreamTestCompressedStreamIdxColumn.BYTES_HYDRATOR.hydrateFromBytes(e.getKey().getColumnName());
+                Long val = StreamTestCompressedStreamIdxColumnValue.hydrateValue(e.getValue());
+                rowMap.put(row, StreamTestCompressedStreamIdxColumnValue.of(col, val));
+            }
+        }
+        return rowMap;
+    }
+
+    @Override
+    public Multimap<StreamTestCompressedStreamIdxRow, StreamTestCompressedStreamIdxColumnValue> getAsync(final Multimap<StreamTestCompressedStreamIdxRow, StreamTestCompressedStreamIdxColumn> cells, ExecutorService exec) {
+        Callable<Multimap<StreamTestCompressedStreamIdxRow, StreamTestCompressedStreamIdxColumnValue>> c =
+                new Callable<Multimap<StreamTestCompressedStreamIdxRow, StreamTestCompressedStreamIdxColumnValue>>() {
+            @Override
+            public Multimap<StreamTestCompressedStreamIdxRow, StreamTestCompressedStreamIdxColumnValue> call() {
+                return get(cells);
+            }
+        };
+        return AsyncProxy.create(exec.submit(c), Multimap.class);
+    }
+
+    @Override
+    public List<StreamTestCompressedStreamIdxColumnValue> getRowColumns(StreamTestCompressedStreamIdxRow row) {
+        return getRowColumns(row, ColumnSelection.all());
+    }
+
+    @Override
+    public List<StreamTestCompressedStreamIdxColumnValue> getRowColumns(StreamTestCompressedStreamIdxRow row, ColumnSelection columns) {
+        byte[] bytes = row.persistToBytes();
+        RowResult<byte[]> rowResult = t.getRows(tableName, ImmutableSet.of(bytes), columns).get(bytes);
+        if (rowResult == null) {
+            return ImmutableList.of();
+        } else {
+            List<StreamTestCompressedStreamIdxColumnValue> ret = Lists.newArrayListWithCapacity(rowResult.getColumns().size());
+            for (Entry<byte[], byte[]> e : rowResult.getColumns().entrySet()) {
+                StreamTestCompressedStreamIdxColumn col = StreamTestCompressedStreamIdxColumn.BYTES_HYDRATOR.hydrateFromBytes(e.getKey());
+                Long val = StreamTestCompressedStreamIdxColumnValue.hydrateValue(e.getValue());
+                ret.add(StreamTestCompressedStreamIdxColumnValue.of(col, val));
+            }
+            return ret;
+        }
+    }
+
+    @Override
+    public Multimap<StreamTestCompressedStreamIdxRow, StreamTestCompressedStreamIdxColumnValue> getRowsMultimap(Iterable<StreamTestCompressedStreamIdxRow> rows) {
+        return getRowsMultimapInternal(rows, ColumnSelection.all());
+    }
+
+    @Override
+    public Multimap<StreamTestCompressedStreamIdxRow, StreamTestCompressedStreamIdxColumnValue> getRowsMultimap(Iterable<StreamTestCompressedStreamIdxRow> rows, ColumnSelection columns) {
+        return getRowsMultimapInternal(rows, columns);
+    }
+
+    @Override
+    public Multimap<StreamTestCompressedStreamIdxRow, StreamTestCompressedStreamIdxColumnValue> getAsyncRowsMultimap(Iterable<StreamTestCompressedStreamIdxRow> rows, ExecutorService exec) {
+        return getAsyncRowsMultimap(rows, ColumnSelection.all(), exec);
+    }
+
+    @Override
+    public Multimap<StreamTestCompressedStreamIdxRow, StreamTestCompressedStreamIdxColumnValue> getAsyncRowsMultimap(final Iterable<StreamTestCompressedStreamIdxRow> rows, final ColumnSelection columns, ExecutorService exec) {
+        Callable<Multimap<StreamTestCompressedStreamIdxRow, StreamTestCompressedStreamIdxColumnValue>> c =
+                new Callable<Multimap<StreamTestCompressedStreamIdxRow, StreamTestCompressedStreamIdxColumnValue>>() {
+            @Override
+            public Multimap<StreamTestCompressedStreamIdxRow, StreamTestCompressedStreamIdxColumnValue> call() {
+                return getRowsMultimapInternal(rows, columns);
+            }
+        };
+        return AsyncProxy.create(exec.submit(c), Multimap.class);
+    }
+
+    private Multimap<StreamTestCompressedStreamIdxRow, StreamTestCompressedStreamIdxColumnValue> getRowsMultimapInternal(Iterable<StreamTestCompressedStreamIdxRow> rows, ColumnSelection columns) {
+        SortedMap<byte[], RowResult<byte[]>> results = t.getRows(tableName, Persistables.persistAll(rows), columns);
+        return getRowMapFromRowResults(results.values());
+    }
+
+    private static Multimap<StreamTestCompressedStreamIdxRow, StreamTestCompressedStreamIdxColumnValue> getRowMapFromRowResults(Collection<RowResult<byte[]>> rowResults) {
+        Multimap<StreamTestCompressedStreamIdxRow, StreamTestCompressedStreamIdxColumnValue> rowMap = HashMultimap.create();
+        for (RowResult<byte[]> result : rowResults) {
+            StreamTestCompressedStreamIdxRow row = StreamTestCompressedStreamIdxRow.BYTES_HYDRATOR.hydrateFromBytes(result.getRowName());
+            for (Entry<byte[], byte[]> e : result.getColumns().entrySet()) {
+                StreamTestCompressedStreamIdxColumn col = StreamTestCompressedStreamIdxColumn.BYTES_HYDRATOR.hydrateFromBytes(e.getKey());
+                Long val = StreamTestCompressedStreamIdxColumnValue.hydrateValue(e.getValue());
+                rowMap.put(row, StreamTestCompressedStreamIdxColumnValue.of(col, val));
+            }
+        }
+        return rowMap;
+    }
+
+    public BatchingVisitableView<StreamTestCompressedStreamIdxRowResult> getAllRowsUnordered() {
+        return getAllRowsUnordered(ColumnSelection.all());
+    }
+
+    public BatchingVisitableView<StreamTestCompressedStreamIdxRowResult> getAllRowsUnordered(ColumnSelection columns) {
+        return BatchingVisitables.transform(t.getRange(tableName, RangeRequest.builder().retainColumns(columns).build()),
+                new Function<RowResult<byte[]>, StreamTestCompressedStreamIdxRowResult>() {
+            @Override
+            public StreamTestCompressedStreamIdxRowResult apply(RowResult<byte[]> input) {
+                return StreamTestCompressedStreamIdxRowResult.of(input);
+            }
+        });
+    }
+
+    @Override
+    public List<String> findConstraintFailures(Map<Cell, byte[]> writes,
+                                               ConstraintCheckingTransaction transaction,
+                                               AtlasDbConstraintCheckingMode constraintCheckingMode) {
+        return ImmutableList.of();
+    }
+
+    @Override
+    public List<String> findConstraintFailuresNoRead(Map<Cell, byte[]> writes,
+                                                     AtlasDbConstraintCheckingMode constraintCheckingMode) {
+        return ImmutableList.of();
+    }
+
+    static String __CLASS_HASH = "MLXJebw4P6qspKI90KZPcQ==";
+}
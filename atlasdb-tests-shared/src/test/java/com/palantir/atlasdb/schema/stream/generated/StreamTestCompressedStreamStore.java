@@ -0,0 +1,321 @@
+package com.palantir.atlasdb.schema.stream.generated;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.CheckForNull;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Collections2;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Multimaps;
+import com.google.common.collect.Sets;
+import com.google.common.collect.Sets.SetView;
+import com.google.common.io.CountingInputStream;
+import com.google.common.primitives.Ints;
+import com.google.protobuf.ByteString;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.protos.generated.StreamPersistence.Status;
+import com.palantir.atlasdb.protos.generated.StreamPersistence.StreamMetadata;
+import com.palantir.atlasdb.protos.generated.StreamPersistence.StreamMetadata.Builder;
+import com.palantir.atlasdb.stream.AbstractExpiringStreamStore;
+import com.palantir.atlasdb.stream.AbstractPersistentStreamStore;
+import com.palantir.atlasdb.stream.ExpiringStreamStore;
+import com.palantir.atlasdb.stream.PersistentStreamStore;
+import com.palantir.atlasdb.stream.StreamCleanedException;
+import com.palantir.atlasdb.transaction.api.Transaction;
+import com.palantir.atlasdb.transaction.api.TransactionFailedRetriableException;
+import com.palantir.atlasdb.transaction.api.TransactionManager;
+import com.palantir.atlasdb.transaction.api.TransactionTask;
+import com.palantir.atlasdb.transaction.impl.TxTask;
+import com.palantir.common.base.Throwables;
+import com.palantir.common.io.ConcatenatedInputStream;
+import com.palantir.util.AssertUtils;
+import com.palantir.util.ByteArrayIOStream;
+import com.palantir.util.crypto.Sha256Hash;
+import com.palantir.util.file.DeleteOnCloseFileInputStream;
+import com.palantir.util.file.FileUtils;
+
+
+public final class StreamTestCompressedStreamStore extends AbstractPersistentStreamStore {
+    public static final int BLOCK_SIZE_IN_BYTES = 1000000; // 1MB. DO NOT CHANGE THIS WITHOUT AN UPGRADE TASK
+    public static final int IN_MEMORY_THRESHOLD = 4000; // streams under this size are kept in memory when loaded
+    public static final String STREAM_FILE_PREFIX = "StreamTestCompressed_stream_";
+    public static final String STREAM_FILE_SUFFIX = ".tmp";
+
+    private static final Logger log = LoggerFactory.getLogger(StreamTestCompressedStreamStore.class);
+
+    private final StreamTestTableFactory tables;
+
+    private StreamTestCompressedStreamStore(TransactionManager txManager, StreamTestTableFactory tables) {
+        super(txManager);
+        this.tables = tables;
+    }
+
+    public static StreamTestCompressedStreamStore of(TransactionManager txManager, StreamTestTableFactory tables) {
+        return new StreamTestCompressedStreamStore(txManager, tables);
+    }
+
+    /**
+     * This should only be used by test code or as a performance optimization.
+     */
+    static StreamTestCompressedStreamStore of(StreamTestTableFactory tables) {
+        return new StreamTestCompressedStreamStore(null, tables);
+    }
+
+    @Override
+    protected long getInMemoryThreshold() {
+        return IN_MEMORY_THRESHOLD;
+    }
+
+    @Override
+    protected com.palantir.atlasdb.table.description.ColumnValueDescription.Compression getBlockCompression() {
+        return com.palantir.atlasdb.table.description.ColumnValueDescription.Compression.SNAPPY;
+    }
+
+    @Override
+    protected void reserveBlocks(final long id, final long lastBlockNumber) {
+        Preconditions.checkNotNull(txnMgr);
+        txnMgr.runTaskThrowOnConflict(new TransactionTask<Void, RuntimeException>() {
+            @Override
+            public Void execute(Transaction t) {
+                // Do a touch operation on this table to ensure we get a conflict if someone cleans it up.
+                touchMetadataWhileStoringForConflicts(t, id, lastBlockNumber);
+                return null;
+            }
+        });
+    }
+
+    @Override
+    protected void storeBlock(long id, long blockNumber, final byte[] block) {
+        Preconditions.checkArgument(block.length <= BLOCK_SIZE_IN_BYTES + COMPRESSED_BLOCK_HEADER_SIZE, "Block to store in DB must be less than BLOCK_SIZE_IN_BYTES");
+        Preconditions.checkNotNull(txnMgr);
+        final StreamTestCompressedStreamValueTable.StreamTestCompressedStreamValueRow row = StreamTestCompressedStreamValueTable.StreamTestCompressedStreamValueRow.of(id, blockNumber);
+        try {
+            txnMgr.runTaskThrowOnConflict(new TransactionTask<Void, RuntimeException>() {
+                @Override
+                public Void execute(Transaction t) {
+                    // Rewrite the reserved metadata unchanged, so blocks of one stream can be stored concurrently but conflict with a cleanup.
+                    touchMetadataWhileStoringBlockForConflicts(t, row.getId());
+                    tables.getStreamTestCompressedStreamValueTable(t).putValue(row, block);
+                    return null;
+                }
+            });
+        } catch (RuntimeException e) {
+            log.error("Error storing block " + row.getBlockId() + " for stream id " + row.getId(), e);
+            throw e;
+        }
+    }
+
+    private void touchMetadataWhileStoringForConflicts(Transaction t, Long id, long blockNumber) {
+        StreamTestCompressedStreamMetadataTable metaTable = tables.getStreamTestCompressedStreamMetadataTable(t);
+        StreamTestCompressedStreamMetadataTable.StreamTestCompressedStreamMetadataRow row = StreamTestCompressedStreamMetadataTable.StreamTestCompressedStreamMetadataRow.of(id);
+        StreamMetadata metadata = metaTable.getMetadatas(ImmutableSet.of(row)).values().iterator().next();
+        Preconditions.checkState(metadata.getStatus() == Status.STORING, "This stream is being cleaned up while storing blocks: " + id);
+        Builder builder = StreamMetadata.newBuilder(metadata);
+        builder.setLength(blockNumber * BLOCK_SIZE_IN_BYTES + 1);
+        metaTable.putMetadata(row, builder.build());
+    }
+
+    private void touchMetadataWhileStoringBlockForConflicts(Transaction t, Long id) {
+        StreamTestCompressedStreamMetadataTable metaTable = tables.getStreamTestCompressedStreamMetadataTable(t);
+        StreamTestCompressedStreamMetadataTable.StreamTestCompressedStreamMetadataRow row = StreamTestCompressedStreamMetadataTable.StreamTestCompressedStreamMetadataRow.of(id);
+        StreamMetadata metadata = metaTable.getMetadatas(ImmutableSet.of(row)).get(row);
+        Preconditions.checkState(metadata != null && metadata.getStatus() == Status.STORING, "This stream is being cleaned up while storing blocks: " + id);
+        metaTable.putMetadata(row, metadata);
+    }
+
+    @Override
+    protected void putMetadataAndHashIndexTask(Transaction t, long streamId, StreamMetadata metadata) {
+        StreamTestCompressedStreamMetadataTable.StreamTestCompressedStreamMetadataRow row = StreamTestCompressedStreamMetadataTable.StreamTestCompressedStreamMetadataRow.of(streamId);
+        StreamTestCompressedStreamMetadataTable mdTable = tables.getStreamTestCompressedStreamMetadataTable(t);
+        if (metadata.getStatus() == Status.STORED) {
+            StreamMetadata prevMetadata = getMetadata(t, streamId);
+            if (prevMetadata == null || prevMetadata.getStatus() != Status.STORING) {
+                // This can happen if we cleanup old streams.
+                throw new TransactionFailedRetriableException("Cannot mark a stream as stored that isn't currently storing: " + prevMetadata);
+            }
+            putHashIndexTask(t, row, metadata);
+        } else if (metadata.getStatus() == Status.STORING) {
+            StreamMetadata prevMetadata = getMetadata(t, streamId);
+            // This will prevent two users trying to store the same id.
+            if (prevMetadata != null) {
+                throw new TransactionFailedRetriableException("Cannot reuse the same stream id: " + streamId);
+            }
+        }
+
+        mdTable.putMetadata(row, metadata);
+    }
+
+    private long getNumberOfBlocksFromMetadata(StreamMetadata metadata) {
+        return (metadata.getLength() + BLOCK_SIZE_IN_BYTES - 1) / BLOCK_SIZE_IN_BYTES;
+    }
+
+    @Override
+    protected File createTempFile(Long id) throws IOException {
+        File file = FileUtils.createTempFile(STREAM_FILE_PREFIX + id, STREAM_FILE_SUFFIX);
+        file.deleteOnExit();
+        return file;
+    }
+
+    @Override
+    protected void loadSingleBlockToOutputStream(Transaction t, Long streamId, long blockId, OutputStream os) {
+        StreamTestCompressedStreamValueTable.StreamTestCompressedStreamValueRow row = StreamTestCompressedStreamValueTable.StreamTestCompressedStreamValueRow.of(streamId, blockId);
+        try {
+            os.write(getBlock(t, row));
+        } catch (RuntimeException e) {
+            log.error("Error getting block " + row.getBlockId() + " of stream " + row.getId(), e);
+            throw e;
+        } catch (IOException e) {
+            log.error("Error writing block " + row.getBlockId() + " to file when getting stream id " + row.getId(), e);
+            throw Throwables.rewrapAndThrowUncheckedException("Error writing blocks to file when creating stream.", e);
+        }
+    }
+
+    @Override
+    protected byte[] loadSingleBlock(Transaction t, Long streamId, long blockId) {
+        StreamTestCompressedStreamValueTable.StreamTestCompressedStreamValueRow row = StreamTestCompressedStreamValueTable.StreamTestCompressedStreamValueRow.of(streamId, blockId);
+        return getBlock(t, row);
+    }
+
+    private byte[] getBlock(Transaction t, StreamTestCompressedStreamValueTable.StreamTestCompressedStreamValueRow row) {
+        StreamTestCompressedStreamValueTable valueTable = tables.getStreamTestCompressedStreamValueTable(t);
+        return valueTable.getValues(ImmutableSet.of(row)).get(row);
+    }
+
+    @Override
+    protected StreamMetadata getMetadata(Transaction t, Long streamId) {
+        StreamTestCompressedStreamMetadataTable.StreamTestCompressedStreamMetadataRow row = StreamTestCompressedStreamMetadataTable.StreamTestCompressedStreamMetadataRow.of(streamId);
+        StreamTestCompressedStreamMetadataTable table = tables.getStreamTestCompressedStreamMetadataTable(t);
+        return table.getMetadatas(ImmutableSet.of(row)).get(row);
+    }
+
+    @Override
+    @CheckForNull
+    public Long lookupStreamIdByHash(Transaction t, Sha256Hash hash) {
+        StreamTestCompressedStreamHashAidxTable idx = tables.getStreamTestCompressedStreamHashAidxTable(t);
+        List<StreamTestCompressedStreamHashAidxTable.StreamTestCompressedStreamHashAidxColumnValue> columns = idx.getRowColumns(StreamTestCompressedStreamHashAidxTable.StreamTestCompressedStreamHashAidxRow.of(hash));
+        for (StreamTestCompressedStreamHashAidxTable.StreamTestCompressedStreamHashAidxColumnValue colVal : columns) {
+            long streamId = colVal.getColumnName().getStreamId();
+            StreamMetadata meta = getMetadata(t, streamId);
+            if (meta.getStatus() == Status.STORED) {
+                return streamId;
+            }
+        }
+        return null;
+    }
+
+    private void putHashIndexTask(Transaction t, StreamTestCompressedStreamMetadataTable.StreamTestCompressedStreamMetadataRow row, StreamMetadata metadata) {
+        Preconditions.checkArgument(
+                metadata.getStatus() == Status.STORED,
+                "Should only index successfully stored streams.");
+
+        Sha256Hash hash = Sha256Hash.EMPTY;
+        if (metadata.getHash() != com.google.protobuf.ByteString.EMPTY) {
+            hash = new Sha256Hash(metadata.getHash().toByteArray());
+        }
+        StreamTestCompressedStreamHashAidxTable.StreamTestCompressedStreamHashAidxRow hashRow = StreamTestCompressedStreamHashAidxTable.StreamTestCompressedStreamHashAidxRow.of(hash);
+        StreamTestCompressedStreamHashAidxTable.StreamTestCompressedStreamHashAidxColumn column = StreamTestCompressedStreamHashAidxTable.StreamTestCompressedStreamHashAidxColumn.of(row.getId());
+        StreamTestCompressedStreamHashAidxTable.StreamTestCompressedStreamHashAidxColumnValue columnValue = StreamTestCompressedStreamHashAidxTable.StreamTestCompressedStreamHashAidxColumnValue.of(column, 0L);
+        StreamTestCompressedStreamHashAidxTable hiTable = tables.getStreamTestCompressedStreamHashAidxTable(t);
+        hiTable.put(hashRow, columnValue);
+    }
+
+    /**
+     * This should only be used from the cleanup tasks.
+     */
+    void deleteStreams(Transaction t, final Set<Long> streamIds) {
+        if (streamIds.isEmpty()) {
+            return;
+        }
+        Set<StreamTestCompressedStreamMetadataTable.StreamTestCompressedStreamMetadataRow> smRows = Sets.newHashSet();
+        Multimap<StreamTestCompressedStreamHashAidxTable.StreamTestCompressedStreamHashAidxRow, StreamTestCompressedStreamHashAidxTable.StreamTestCompressedStreamHashAidxColumn> shToDelete = HashMultimap.create();
+        for (Long streamId : streamIds) {
+            smRows.add(StreamTestCompressedStreamMetadataTable.StreamTestCompressedStreamMetadataRow.of(streamId));
+        }
+        StreamTestCompressedStreamMetadataTable table = tables.getStreamTestCompressedStreamMetadataTable(t);
+        Map<StreamTestCompressedStreamMetadataTable.StreamTestCompressedStreamMetadataRow, StreamMetadata> metadatas = table.getMetadatas(smRows);
+        Set<StreamTestCompressedStreamValueTable.StreamTestCompressedStreamValueRow> streamValueToDelete = Sets.newHashSet();
+        for (Entry<StreamTestCompressedStreamMetadataTable.StreamTestCompressedStreamMetadataRow, StreamMetadata> e : metadatas.entrySet()) {
+            Long streamId = e.getKey().getId();
+            long blocks = getNumberOfBlocksFromMetadata(e.getValue());
+            for (long i = 0; i < blocks; i++) {
+                streamValueToDelete.add(StreamTestCompressedStreamValueTable.StreamTestCompressedStreamValueRow.of(streamId, i));
+            }
+            ByteString streamHash = e.getValue().getHash();
+            Sha256Hash hash = Sha256Hash.EMPTY;
+            if (streamHash != com.google.protobuf.ByteString.EMPTY) {
+                hash = new Sha256Hash(streamHash.toByteArray());
+            } else {
+                log.error("Empty hash for stream " + streamId);
+            }
+            StreamTestCompressedStreamHashAidxTable.StreamTestCompressedStreamHashAidxRow hashRow = StreamTestCompressedStreamHashAidxTable.StreamTestCompressedStreamHashAidxRow.of(hash);
+            StreamTestCompressedStreamHashAidxTable.StreamTestCompressedStreamHashAidxColumn column = StreamTestCompressedStreamHashAidxTable.StreamTestCompressedStreamHashAidxColumn.of(streamId);
+            shToDelete.put(hashRow, column);
+        }
+        tables.getStreamTestCompressedStreamHashAidxTable(t).delete(shToDelete);
+        tables.getStreamTestCompressedStreamValueTable(t).delete(streamValueToDelete);
+        table.delete(smRows);
+    }
+
+    @Override
+    protected void markStreamAsUsedInternal(Transaction t, long streamId, byte[] reference) {
+        StreamTestCompressedStreamIdxTable index = tables.getStreamTestCompressedStreamIdxTable(t);
+        StreamTestCompressedStreamIdxTable.StreamTestCompressedStreamIdxColumn col = StreamTestCompressedStreamIdxTable.StreamTestCompressedStreamIdxColumn.of(reference);
+        StreamTestCompressedStreamIdxTable.StreamTestCompressedStreamIdxColumnValue value = StreamTestCompressedStreamIdxTable.StreamTestCompressedStreamIdxColumnValue.of(col, 0L);
+        index.put(StreamTestCompressedStreamIdxTable.StreamTestCompressedStreamIdxRow.of(streamId), value);
+    }
+
+    @Override
+    public void unmarkStreamAsUsed(Transaction t, long streamId, byte[] reference) {
+        StreamTestCompressedStreamIdxTable index = tables.getStreamTestCompressedStreamIdxTable(t);
+        StreamTestCompressedStreamIdxTable.StreamTestCompressedStreamIdxRow row = StreamTestCompressedStreamIdxTable.StreamTestCompressedStreamIdxRow.of(streamId);
+        StreamTestCompressedStreamIdxTable.StreamTestCompressedStreamIdxColumn col = StreamTestCompressedStreamIdxTable.StreamTestCompressedStreamIdxColumn.of(reference);
+        index.delete(row, col);
+    }
+
+    @Override
+    protected void touchMetadataWhileMarkingUsedForConflicts(Transaction t, long streamId) {
+        StreamTestCompressedStreamMetadataTable metaTable = tables.getStreamTestCompressedStreamMetadataTable(t);
+        Set<StreamTestCompressedStreamMetadataTable.StreamTestCompressedStreamMetadataRow> rows = Sets.newHashSet();
+        rows.add(StreamTestCompressedStreamMetadataTable.StreamTestCompressedStreamMetadataRow.of(streamId));
+        Map<StreamTestCompressedStreamMetadataTable.StreamTestCompressedStreamMetadataRow, StreamMetadata> metadatas = metaTable.getMetadatas(rows);
+        for (Map.Entry<StreamTestCompressedStreamMetadataTable.StreamTestCompressedStreamMetadataRow, StreamMetadata> e : metadatas.entrySet()) {
+            StreamMetadata metadata = e.getValue();
+            Preconditions.checkState(metadata.getStatus() == Status.STORED,
+                    "Stream: " + e.getKey().getId() + " has status: " + metadata.getStatus());
+            metaTable.putMetadata(e.getKey(), metadata);
+        }
+        SetView<StreamTestCompressedStreamMetadataTable.StreamTestCompressedStreamMetadataRow> missingRows = Sets.difference(rows, metadatas.keySet());
+        if (!missingRows.isEmpty()) {
+            throw new StreamCleanedException("Missing metadata rows for:" + missingRows
+                    + " rows: " + rows + " metadata: " + metadatas + " txn timestamp: " + t.getTimestamp());
+        }
+    }
+
+    static final int dummy = 0;
+}
\ No newline at end of file
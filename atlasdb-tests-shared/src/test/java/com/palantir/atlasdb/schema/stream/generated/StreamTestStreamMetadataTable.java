@@ -237,6 +237,14 @@ public final class StreamTestStreamMetadataTable implements
      *     label: LABEL_REQUIRED
      *     type: TYPE_BYTES
      *   }
+     *   field {
+     *     name: "compression"
+     *     number: 4
+     *     label: LABEL_OPTIONAL
+     *     type: TYPE_ENUM
+     *     type_name: ".com.palantir.atlasdb.protos.generated.Compression"
+     *     default_value: "NONE"
+     *   }
      * }
      * </pre>
      */
@@ -619,5 +627,5 @@ public final class StreamTestStreamMetadataTable implements
         return ImmutableList.of();
     }
 
-    static String __CLASS_HASH = "C45Plyjt0dfiIQ4C3UQR3Q==";
+    static String __CLASS_HASH = "ugQ7CoLlCVrgSTv53yhUVg==";
 }
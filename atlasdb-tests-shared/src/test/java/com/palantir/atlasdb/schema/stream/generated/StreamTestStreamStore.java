@@ -92,6 +92,19 @@ public final class StreamTestStreamStore extends AbstractPersistentStreamStore {
         return IN_MEMORY_THRESHOLD;
     }
 
+    @Override
+    protected void reserveBlocks(final long id, final long lastBlockNumber) {
+        Preconditions.checkNotNull(txnMgr);
+        txnMgr.runTaskThrowOnConflict(new TransactionTask<Void, RuntimeException>() {
+            @Override
+            public Void execute(Transaction t) {
+                // Do a touch operation on this table to ensure we get a conflict if someone cleans it up.
+                touchMetadataWhileStoringForConflicts(t, id, lastBlockNumber);
+                return null;
+            }
+        });
+    }
+
     @Override
     protected void storeBlock(long id, long blockNumber, final byte[] block) {
         Preconditions.checkArgument(block.length <= BLOCK_SIZE_IN_BYTES, "Block to store in DB must be less than BLOCK_SIZE_IN_BYTES");
@@ -101,8 +114,8 @@ public final class StreamTestStreamStore extends AbstractPersistentStreamStore {
             txnMgr.runTaskThrowOnConflict(new TransactionTask<Void, RuntimeException>() {
                 @Override
                 public Void execute(Transaction t) {
-                    // Do a touch operation on this table to ensure we get a conflict if someone cleans it up.
-                    touchMetadataWhileStoringForConflicts(t, row.getId(), row.getBlockId());
+                    // Rewrite the reserved metadata unchanged, so blocks of one stream can be stored concurrently but conflict with a cleanup.
+                    touchMetadataWhileStoringBlockForConflicts(t, row.getId());
                     tables.getStreamTestStreamValueTable(t).putValue(row, block);
                     return null;
                 }
@@ -123,6 +136,14 @@ public final class StreamTestStreamStore extends AbstractPersistentStreamStore {
         metaTable.putMetadata(row, builder.build());
     }
 
+    private void touchMetadataWhileStoringBlockForConflicts(Transaction t, Long id) {
+        StreamTestStreamMetadataTable metaTable = tables.getStreamTestStreamMetadataTable(t);
+        StreamTestStreamMetadataTable.StreamTestStreamMetadataRow row = StreamTestStreamMetadataTable.StreamTestStreamMetadataRow.of(id);
+        StreamMetadata metadata = metaTable.getMetadatas(ImmutableSet.of(row)).get(row);
+        Preconditions.checkState(metadata != null && metadata.getStatus() == Status.STORING, "This stream is being cleaned up while storing blocks: " + id);
+        metaTable.putMetadata(row, metadata);
+    }
+
     @Override
     protected void putMetadataAndHashIndexTask(Transaction t, long streamId, StreamMetadata metadata) {
         StreamTestStreamMetadataTable.StreamTestStreamMetadataRow row = StreamTestStreamMetadataTable.StreamTestStreamMetadataRow.of(streamId);
@@ -170,6 +191,12 @@ public final class StreamTestStreamStore extends AbstractPersistentStreamStore {
         }
     }
 
+    @Override
+    protected byte[] loadSingleBlock(Transaction t, Long streamId, long blockId) {
+        StreamTestStreamValueTable.StreamTestStreamValueRow row = StreamTestStreamValueTable.StreamTestStreamValueRow.of(streamId, blockId);
+        return getBlock(t, row);
+    }
+
     private byte[] getBlock(Transaction t, StreamTestStreamValueTable.StreamTestStreamValueRow row) {
         StreamTestStreamValueTable valueTable = tables.getStreamTestStreamValueTable(t);
         return valueTable.getValues(ImmutableSet.of(row)).get(row);
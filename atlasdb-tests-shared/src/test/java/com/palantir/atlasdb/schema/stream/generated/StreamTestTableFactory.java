@@ -51,6 +51,22 @@ public class StreamTestTableFactory {
         return StreamTest2StreamValueTable.of(t, namespace, Triggers.getAllTriggers(t, sharedTriggers, triggers));
     }
 
+    public StreamTestCompressedStreamHashAidxTable getStreamTestCompressedStreamHashAidxTable(Transaction t, StreamTestCompressedStreamHashAidxTable.StreamTestCompressedStreamHashAidxTrigger... triggers) {
+        return StreamTestCompressedStreamHashAidxTable.of(t, namespace, Triggers.getAllTriggers(t, sharedTriggers, triggers));
+    }
+
+    public StreamTestCompressedStreamIdxTable getStreamTestCompressedStreamIdxTable(Transaction t, StreamTestCompressedStreamIdxTable.StreamTestCompressedStreamIdxTrigger... triggers) {
+        return StreamTestCompressedStreamIdxTable.of(t, namespace, Triggers.getAllTriggers(t, sharedTriggers, triggers));
+    }
+
+    public StreamTestCompressedStreamMetadataTable getStreamTestCompressedStreamMetadataTable(Transaction t, StreamTestCompressedStreamMetadataTable.StreamTestCompressedStreamMetadataTrigger... triggers) {
+        return StreamTestCompressedStreamMetadataTable.of(t, namespace, Triggers.getAllTriggers(t, sharedTriggers, triggers));
+    }
+
+    public StreamTestCompressedStreamValueTable getStreamTestCompressedStreamValueTable(Transaction t, StreamTestCompressedStreamValueTable.StreamTestCompressedStreamValueTrigger... triggers) {
+        return StreamTestCompressedStreamValueTable.of(t, namespace, Triggers.getAllTriggers(t, sharedTriggers, triggers));
+    }
+
     public StreamTestStreamHashAidxTable getStreamTestStreamHashAidxTable(Transaction t, StreamTestStreamHashAidxTable.StreamTestStreamHashAidxTrigger... triggers) {
         return StreamTestStreamHashAidxTable.of(t, namespace, Triggers.getAllTriggers(t, sharedTriggers, triggers));
     }
@@ -67,15 +83,49 @@ public class StreamTestTableFactory {
         return StreamTestStreamValueTable.of(t, namespace, Triggers.getAllTriggers(t, sharedTriggers, triggers));
     }
 
+    public StreamTestWithChunksStreamChunkTable getStreamTestWithChunksStreamChunkTable(Transaction t, StreamTestWithChunksStreamChunkTable.StreamTestWithChunksStreamChunkTrigger... triggers) {
+        return StreamTestWithChunksStreamChunkTable.of(t, namespace, Triggers.getAllTriggers(t, sharedTriggers, triggers));
+    }
+
+    public StreamTestWithChunksStreamChunkRefTable getStreamTestWithChunksStreamChunkRefTable(Transaction t, StreamTestWithChunksStreamChunkRefTable.StreamTestWithChunksStreamChunkRefTrigger... triggers) {
+        return StreamTestWithChunksStreamChunkRefTable.of(t, namespace, Triggers.getAllTriggers(t, sharedTriggers, triggers));
+    }
+
+    public StreamTestWithChunksStreamHashAidxTable getStreamTestWithChunksStreamHashAidxTable(Transaction t, StreamTestWithChunksStreamHashAidxTable.StreamTestWithChunksStreamHashAidxTrigger... triggers) {
+        return StreamTestWithChunksStreamHashAidxTable.of(t, namespace, Triggers.getAllTriggers(t, sharedTriggers, triggers));
+    }
+
+    public StreamTestWithChunksStreamIdxTable getStreamTestWithChunksStreamIdxTable(Transaction t, StreamTestWithChunksStreamIdxTable.StreamTestWithChunksStreamIdxTrigger... triggers) {
+        return StreamTestWithChunksStreamIdxTable.of(t, namespace, Triggers.getAllTriggers(t, sharedTriggers, triggers));
+    }
+
+    public StreamTestWithChunksStreamMetadataTable getStreamTestWithChunksStreamMetadataTable(Transaction t, StreamTestWithChunksStreamMetadataTable.StreamTestWithChunksStreamMetadataTrigger... triggers) {
+        return StreamTestWithChunksStreamMetadataTable.of(t, namespace, Triggers.getAllTriggers(t, sharedTriggers, triggers));
+    }
+
+    public StreamTestWithChunksStreamValueTable getStreamTestWithChunksStreamValueTable(Transaction t, StreamTestWithChunksStreamValueTable.StreamTestWithChunksStreamValueTrigger... triggers) {
+        return StreamTestWithChunksStreamValueTable.of(t, namespace, Triggers.getAllTriggers(t, sharedTriggers, triggers));
+    }
+
     public interface SharedTriggers extends
             StreamTest2StreamHashAidxTable.StreamTest2StreamHashAidxTrigger,
             StreamTest2StreamIdxTable.StreamTest2StreamIdxTrigger,
             StreamTest2StreamMetadataTable.StreamTest2StreamMetadataTrigger,
             StreamTest2StreamValueTable.StreamTest2StreamValueTrigger,
+            StreamTestCompressedStreamHashAidxTable.StreamTestCompressedStreamHashAidxTrigger,
+            StreamTestCompressedStreamIdxTable.StreamTestCompressedStreamIdxTrigger,
+            StreamTestCompressedStreamMetadataTable.StreamTestCompressedStreamMetadataTrigger,
+            StreamTestCompressedStreamValueTable.StreamTestCompressedStreamValueTrigger,
             StreamTestStreamHashAidxTable.StreamTestStreamHashAidxTrigger,
             StreamTestStreamIdxTable.StreamTestStreamIdxTrigger,
             StreamTestStreamMetadataTable.StreamTestStreamMetadataTrigger,
-            StreamTestStreamValueTable.StreamTestStreamValueTrigger {
+            StreamTestStreamValueTable.StreamTestStreamValueTrigger,
+            StreamTestWithChunksStreamChunkTable.StreamTestWithChunksStreamChunkTrigger,
+            StreamTestWithChunksStreamChunkRefTable.StreamTestWithChunksStreamChunkRefTrigger,
+            StreamTestWithChunksStreamHashAidxTable.StreamTestWithChunksStreamHashAidxTrigger,
+            StreamTestWithChunksStreamIdxTable.StreamTestWithChunksStreamIdxTrigger,
+            StreamTestWithChunksStreamMetadataTable.StreamTestWithChunksStreamMetadataTrigger,
+            StreamTestWithChunksStreamValueTable.StreamTestWithChunksStreamValueTrigger {
         /* empty */
     }
 
@@ -100,6 +150,26 @@ public class StreamTestTableFactory {
             // do nothing
         }
 
+        @Override
+        public void putStreamTestCompressedStreamHashAidx(Multimap<StreamTestCompressedStreamHashAidxTable.StreamTestCompressedStreamHashAidxRow, ? extends StreamTestCompressedStreamHashAidxTable.StreamTestCompressedStreamHashAidxColumnValue> newRows) {
+            // do nothing
+        }
+
+        @Override
+        public void putStreamTestCompressedStreamIdx(Multimap<StreamTestCompressedStreamIdxTable.StreamTestCompressedStreamIdxRow, ? extends StreamTestCompressedStreamIdxTable.StreamTestCompressedStreamIdxColumnValue> newRows) {
+            // do nothing
+        }
+
+        @Override
+        public void putStreamTestCompressedStreamMetadata(Multimap<StreamTestCompressedStreamMetadataTable.StreamTestCompressedStreamMetadataRow, ? extends StreamTestCompressedStreamMetadataTable.StreamTestCompressedStreamMetadataNamedColumnValue<?>> newRows) {
+            // do nothing
+        }
+
+        @Override
+        public void putStreamTestCompressedStreamValue(Multimap<StreamTestCompressedStreamValueTable.StreamTestCompressedStreamValueRow, ? extends StreamTestCompressedStreamValueTable.StreamTestCompressedStreamValueNamedColumnValue<?>> newRows) {
+            // do nothing
+        }
+
         @Override
         public void putStreamTestStreamHashAidx(Multimap<StreamTestStreamHashAidxTable.StreamTestStreamHashAidxRow, ? extends StreamTestStreamHashAidxTable.StreamTestStreamHashAidxColumnValue> newRows) {
             // do nothing
@@ -119,5 +189,35 @@ public class StreamTestTableFactory {
         public void putStreamTestStreamValue(Multimap<StreamTestStreamValueTable.StreamTestStreamValueRow, ? extends StreamTestStreamValueTable.StreamTestStreamValueNamedColumnValue<?>> newRows) {
             // do nothing
         }
+
+        @Override
+        public void putStreamTestWithChunksStreamChunk(Multimap<StreamTestWithChunksStreamChunkTable.StreamTestWithChunksStreamChunkRow, ? extends StreamTestWithChunksStreamChunkTable.StreamTestWithChunksStreamChunkNamedColumnValue<?>> newRows) {
+            // do nothing
+        }
+
+        @Override
+        public void putStreamTestWithChunksStreamChunkRef(Multimap<StreamTestWithChunksStreamChunkRefTable.StreamTestWithChunksStreamChunkRefRow, ? extends StreamTestWithChunksStreamChunkRefTable.StreamTestWithChunksStreamChunkRefColumnValue> newRows) {
+            // do nothing
+        }
+
+        @Override
+        public void putStreamTestWithChunksStreamHashAidx(Multimap<StreamTestWithChunksStreamHashAidxTable.StreamTestWithChunksStreamHashAidxRow, ? extends StreamTestWithChunksStreamHashAidxTable.StreamTestWithChunksStreamHashAidxColumnValue> newRows) {
+            // do nothing
+        }
+
+        @Override
+        public void putStreamTestWithChunksStreamIdx(Multimap<StreamTestWithChunksStreamIdxTable.StreamTestWithChunksStreamIdxRow, ? extends StreamTestWithChunksStreamIdxTable.StreamTestWithChunksStreamIdxColumnValue> newRows) {
+            // do nothing
+        }
+
+        @Override
+        public void putStreamTestWithChunksStreamMetadata(Multimap<StreamTestWithChunksStreamMetadataTable.StreamTestWithChunksStreamMetadataRow, ? extends StreamTestWithChunksStreamMetadataTable.StreamTestWithChunksStreamMetadataNamedColumnValue<?>> newRows) {
+            // do nothing
+        }
+
+        @Override
+        public void putStreamTestWithChunksStreamValue(Multimap<StreamTestWithChunksStreamValueTable.StreamTestWithChunksStreamValueRow, ? extends StreamTestWithChunksStreamValueTable.StreamTestWithChunksStreamValueNamedColumnValue<?>> newRows) {
+            // do nothing
+        }
     }
 }
\ No newline at end of file
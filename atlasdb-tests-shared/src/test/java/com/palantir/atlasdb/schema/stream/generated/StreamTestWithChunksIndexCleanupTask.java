@@ -0,0 +1,31 @@
+package com.palantir.atlasdb.schema.stream.generated;
+
+import java.util.Set;
+
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Sets;
+import com.palantir.atlasdb.cleaner.api.OnCleanupTask;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.table.description.ValueType;
+import com.palantir.atlasdb.transaction.api.Transaction;
+
+public class StreamTestWithChunksIndexCleanupTask implements OnCleanupTask {
+
+    private final StreamTestTableFactory tables = StreamTestTableFactory.of();
+
+    @Override
+    public boolean cellsCleanedUp(Transaction t, Set<Cell> cells) {
+        StreamTestWithChunksStreamIdxTable usersIndex = tables.getStreamTestWithChunksStreamIdxTable(t);
+        Set<StreamTestWithChunksStreamIdxTable.StreamTestWithChunksStreamIdxRow> rows = Sets.newHashSetWithExpectedSize(cells.size());
+        for (Cell cell : cells) {
+            rows.add(StreamTestWithChunksStreamIdxTable.StreamTestWithChunksStreamIdxRow.of((Long) ValueType.VAR_LONG.convertToJava(cell.getRowName(), 0)));
+        }
+        Multimap<StreamTestWithChunksStreamIdxTable.StreamTestWithChunksStreamIdxRow, StreamTestWithChunksStreamIdxTable.StreamTestWithChunksStreamIdxColumnValue> rowsInDb = usersIndex.getRowsMultimap(rows);
+        Set<Long> toDelete = Sets.newHashSetWithExpectedSize(rows.size() - rowsInDb.keySet().size());
+        for (StreamTestWithChunksStreamIdxTable.StreamTestWithChunksStreamIdxRow rowToDelete : Sets.difference(rows, rowsInDb.keySet())) {
+            toDelete.add(rowToDelete.getId());
+        }
+        StreamTestWithChunksStreamStore.of(tables).deleteStreams(t, toDelete);
+        return false;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,37 @@
+package com.palantir.atlasdb.schema.stream.generated;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.palantir.atlasdb.cleaner.api.OnCleanupTask;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.protos.generated.StreamPersistence.Status;
+import com.palantir.atlasdb.protos.generated.StreamPersistence.StreamMetadata;
+import com.palantir.atlasdb.table.description.ValueType;
+import com.palantir.atlasdb.transaction.api.Transaction;
+
+public class StreamTestWithChunksMetadataCleanupTask implements OnCleanupTask {
+
+    private final StreamTestTableFactory tables = StreamTestTableFactory.of();
+
+    @Override
+    public boolean cellsCleanedUp(Transaction t, Set<Cell> cells) {
+        StreamTestWithChunksStreamMetadataTable metaTable = tables.getStreamTestWithChunksStreamMetadataTable(t);
+        Collection<StreamTestWithChunksStreamMetadataTable.StreamTestWithChunksStreamMetadataRow> rows = Lists.newArrayListWithCapacity(cells.size());
+        for (Cell cell : cells) {
+            rows.add(StreamTestWithChunksStreamMetadataTable.StreamTestWithChunksStreamMetadataRow.of((Long) ValueType.VAR_LONG.convertToJava(cell.getRowName(), 0)));
+        }
+        Map<StreamTestWithChunksStreamMetadataTable.StreamTestWithChunksStreamMetadataRow, StreamMetadata> currentMetadata = metaTable.getMetadatas(rows);
+        Set<Long> toDelete = Sets.newHashSet();
+        for (Map.Entry<StreamTestWithChunksStreamMetadataTable.StreamTestWithChunksStreamMetadataRow, StreamMetadata> e : currentMetadata.entrySet()) {
+            if (e.getValue().getStatus() != Status.STORED) {
+                toDelete.add(e.getKey().getId());
+            }
+        }
+        StreamTestWithChunksStreamStore.of(tables).deleteStreams(t, toDelete);
+        return false;
+    }
+}
\ No newline at end of file
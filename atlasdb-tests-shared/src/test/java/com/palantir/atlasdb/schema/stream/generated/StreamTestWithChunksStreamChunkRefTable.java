@@ -0,0 +1,642 @@
+package com.palantir.atlasdb.schema.stream.generated;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+
+
+import com.google.common.base.Function;
+import com.google.common.base.Joiner;
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Objects;
+import com.google.common.base.Optional;
+import com.google.common.base.Supplier;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Collections2;
+import com.google.common.collect.ComparisonChain;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Multimaps;
+import com.google.common.collect.Sets;
+import com.google.common.primitives.Bytes;
+import com.google.common.primitives.UnsignedBytes;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.palantir.atlasdb.compress.CompressionUtils;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
+import com.palantir.atlasdb.keyvalue.api.Prefix;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.impl.Cells;
+import com.palantir.atlasdb.ptobject.EncodingUtils;
+import com.palantir.atlasdb.schema.Namespace;
+import com.palantir.atlasdb.table.api.AtlasDbDynamicMutableExpiringTable;
+import com.palantir.atlasdb.table.api.AtlasDbDynamicMutablePersistentTable;
+import com.palantir.atlasdb.table.api.AtlasDbMutableExpiringTable;
+import com.palantir.atlasdb.table.api.AtlasDbMutablePersistentTable;
+import com.palantir.atlasdb.table.api.AtlasDbNamedExpiringSet;
+import com.palantir.atlasdb.table.api.AtlasDbNamedMutableTable;
+import com.palantir.atlasdb.table.api.AtlasDbNamedPersistentSet;
+import com.palantir.atlasdb.table.api.ColumnValue;
+import com.palantir.atlasdb.table.api.TypedRowResult;
+import com.palantir.atlasdb.table.description.ColumnValueDescription.Compression;
+import com.palantir.atlasdb.table.generation.ColumnValues;
+import com.palantir.atlasdb.table.generation.Descending;
+import com.palantir.atlasdb.table.generation.NamedColumnValue;
+import com.palantir.atlasdb.transaction.api.AtlasDbConstraintCheckingMode;
+import com.palantir.atlasdb.transaction.api.ConstraintCheckingTransaction;
+import com.palantir.atlasdb.transaction.api.Transaction;
+import com.palantir.common.base.AbortingVisitor;
+import com.palantir.common.base.AbortingVisitors;
+import com.palantir.common.base.BatchingVisitable;
+import com.palantir.common.base.BatchingVisitableView;
+import com.palantir.common.base.BatchingVisitables;
+import com.palantir.common.base.Throwables;
+import com.palantir.common.collect.IterableView;
+import com.palantir.common.persist.Persistable;
+import com.palantir.common.persist.Persistable.Hydrator;
+import com.palantir.common.persist.Persistables;
+import com.palantir.common.proxy.AsyncProxy;
+import com.palantir.util.AssertUtils;
+import com.palantir.util.crypto.Sha256Hash;
+
+
+public final class StreamTestWithChunksStreamChunkRefTable implements
+        AtlasDbDynamicMutablePersistentTable<StreamTestWithChunksStreamChunkRefTable.StreamTestWithChunksStreamChunkRefRow,
+                                                StreamTestWithChunksStreamChunkRefTable.StreamTestWithChunksStreamChunkRefColumn,
+                                                StreamTestWithChunksStreamChunkRefTable.StreamTestWithChunksStreamChunkRefColumnValue,
+                                                StreamTestWithChunksStreamChunkRefTable.StreamTestWithChunksStreamChunkRefRowResult> {
+    private final Transaction t;
+    private final List<StreamTestWithChunksStreamChunkRefTrigger> triggers;
+    private final static String rawTableName = "stream_test_with_chunks_stream_chunk_ref";
+    private final String tableName;
+    private final Namespace namespace;
+
+    static StreamTestWithChunksStreamChunkRefTable of(Transaction t, Namespace namespace) {
+        return new StreamTestWithChunksStreamChunkRefTable(t, namespace, ImmutableList.<StreamTestWithChunksStreamChunkRefTrigger>of());
+    }
+
+    static StreamTestWithChunksStreamChunkRefTable of(Transaction t, Namespace namespace, StreamTestWithChunksStreamChunkRefTrigger trigger, StreamTestWithChunksStreamChunkRefTrigger... triggers) {
+        return new StreamTestWithChunksStreamChunkRefTable(t, namespace, ImmutableList.<StreamTestWithChunksStreamChunkRefTrigger>builder().add(trigger).add(triggers).build());
+    }
+
+    static StreamTestWithChunksStreamChunkRefTable of(Transaction t, Namespace namespace, List<StreamTestWithChunksStreamChunkRefTrigger> triggers) {
+        return new StreamTestWithChunksStreamChunkRefTable(t, namespace, triggers);
+    }
+
+    private StreamTestWithChunksStreamChunkRefTable(Transaction t, Namespace namespace, List<StreamTestWithChunksStreamChunkRefTrigger> triggers) {
+        this.t = t;
+        this.tableName = namespace.getName() + "." + rawTableName;
+        this.triggers = triggers;
+        this.namespace = namespace;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public Namespace getNamespace() {
+        return namespace;
+    }
+
+    /**
+     * <pre>
+     * StreamTestWithChunksStreamChunkRefRow {
+     *   {@literal Sha256Hash hash};
+     * }
+     * </pre>
+     */
+    public static final class StreamTestWithChunksStreamChunkRefRow implements Persistable, Comparable<StreamTestWithChunksStreamChunkRefRow> {
+        private final Sha256Hash hash;
+
+        public static StreamTestWithChunksStreamChunkRefRow of(Sha256Hash hash) {
+            return new StreamTestWithChunksStreamChunkRefRow(hash);
+        }
+
+        private StreamTestWithChunksStreamChunkRefRow(Sha256Hash hash) {
+            this.hash = hash;
+        }
+
+        public Sha256Hash getHash() {
+            return hash;
+        }
+
+        public static Function<StreamTestWithChunksStreamChunkRefRow, Sha256Hash> getHashFun() {
+            return new Function<StreamTestWithChunksStreamChunkRefRow, Sha256Hash>() {
+                @Override
+                public Sha256Hash apply(StreamTestWithChunksStreamChunkRefRow row) {
+                    return row.hash;
+                }
+            };
+        }
+
+        public static Function<Sha256Hash, StreamTestWithChunksStreamChunkRefRow> fromHashFun() {
+            return new Function<Sha256Hash, StreamTestWithChunksStreamChunkRefRow>() {
+                @Override
+                public StreamTestWithChunksStreamChunkRefRow apply(Sha256Hash row) {
+                    return new StreamTestWithChunksStreamChunkRefRow(row);
+                }
+            };
+        }
+
+        @Override
+        public byte[] persistToBytes() {
+            byte[] hashBytes = hash.getBytes();
+            return EncodingUtils.add(hashBytes);
+        }
+
+        public static final Hydrator<StreamTestWithChunksStreamChunkRefRow> BYTES_HYDRATOR = new Hydrator<StreamTestWithChunksStreamChunkRefRow>() {
+            @Override
+            public StreamTestWithChunksStreamChunkRefRow hydrateFromBytes(byte[] __input) {
+                int __index = 0;
+                Sha256Hash hash = new Sha256Hash(EncodingUtils.get32Bytes(__input, __index));
+                __index += 32;
+                return of(hash);
+            }
+        };
+
+        @Override
+        public String toString() {
+            return MoreObjects.toStringHelper(getClass().getSimpleName())
+                .add("hash", hash)
+                .toString();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null) {
+                return false;
+            }
+            if (getClass() != obj.getClass()) {
+                return false;
+            }
+            StreamTestWithChunksStreamChunkRefRow other = (StreamTestWithChunksStreamChunkRefRow) obj;
+            return Objects.equal(hash, other.hash);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(hash);
+        }
+
+        @Override
+        public int compareTo(StreamTestWithChunksStreamChunkRefRow o) {
+            return ComparisonChain.start()
+                .compare(this.hash, o.hash)
+                .result();
+        }
+    }
+
+    /**
+     * <pre>
+     * StreamTestWithChunksStreamChunkRefColumn {
+     *   {@literal Long stripe};
+     * }
+     * </pre>
+     */
+    public static final class StreamTestWithChunksStreamChunkRefColumn implements Persistable, Comparable<StreamTestWithChunksStreamChunkRefColumn> {
+        private final long stripe;
+
+        public static StreamTestWithChunksStreamChunkRefColumn of(long stripe) {
+            return new StreamTestWithChunksStreamChunkRefColumn(stripe);
+        }
+
+        private StreamTestWithChunksStreamChunkRefColumn(long stripe) {
+            this.stripe = stripe;
+        }
+
+        public long getStripe() {
+            return stripe;
+        }
+
+        public static Function<StreamTestWithChunksStreamChunkRefColumn, Long> getStripeFun() {
+            return new Function<StreamTestWithChunksStreamChunkRefColumn, Long>() {
+                @Override
+                public Long apply(StreamTestWithChunksStreamChunkRefColumn row) {
+                    return row.stripe;
+                }
+            };
+        }
+
+        public static Function<Long, StreamTestWithChunksStreamChunkRefColumn> fromStripeFun() {
+            return new Function<Long, StreamTestWithChunksStreamChunkRefColumn>() {
+                @Override
+                public StreamTestWithChunksStreamChunkRefColumn apply(Long row) {
+                    return new StreamTestWithChunksStreamChunkRefColumn(row);
+                }
+            };
+        }
+
+        @Override
+        public byte[] persistToBytes() {
+            byte[] stripeBytes = EncodingUtils.encodeUnsignedVarLong(stripe);
+            return EncodingUtils.add(stripeBytes);
+        }
+
+        public static final Hydrator<StreamTestWithChunksStreamChunkRefColumn> BYTES_HYDRATOR = new Hydrator<StreamTestWithChunksStreamChunkRefColumn>() {
+            @Override
+            public StreamTestWithChunksStreamChunkRefColumn hydrateFromBytes(byte[] __input) {
+                int __index = 0;
+                Long stripe = EncodingUtils.decodeUnsignedVarLong(__input, __index);
+                __index += EncodingUtils.sizeOfUnsignedVarLong(stripe);
+                return of(stripe);
+            }
+        };
+
+        @Override
+        public String toString() {
+            return MoreObjects.toStringHelper(getClass().getSimpleName())
+                .add("stripe", stripe)
+                .toString();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null) {
+                return false;
+            }
+            if (getClass() != obj.getClass()) {
+                return false;
+            }
+            StreamTestWithChunksStreamChunkRefColumn other = (StreamTestWithChunksStreamChunkRefColumn) obj;
+            return Objects.equal(stripe, other.stripe);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(stripe);
+        }
+
+        @Override
+        public int compareTo(StreamTestWithChunksStreamChunkRefColumn o) {
+            return ComparisonChain.start()
+                .compare(this.stripe, o.stripe)
+                .result();
+        }
+    }
+
+    public interface StreamTestWithChunksStreamChunkRefTrigger {
+        public void putStreamTestWithChunksStreamChunkRef(Multimap<StreamTestWithChunksStreamChunkRefRow, ? extends StreamTestWithChunksStreamChunkRefColumnValue> newRows);
+    }
+
+    /**
+     * <pre>
+     * Column name description {
+     *   {@literal Long stripe};
+     * }
+     * Column value description {
+     *   type: Long;
+     * }
+     * </pre>
+     */
+    public static final class StreamTestWithChunksStreamChunkRefColumnValue implements ColumnValue<Long> {
+        private final StreamTestWithChunksStreamChunkRefColumn columnName;
+        private final Long value;
+
+        public static StreamTestWithChunksStreamChunkRefColumnValue of(StreamTestWithChunksStreamChunkRefColumn columnName, Long value) {
+            return new StreamTestWithChunksStreamChunkRefColumnValue(columnName, value);
+        }
+
+        private StreamTestWithChunksStreamChunkRefColumnValue(StreamTestWithChunksStreamChunkRefColumn columnName, Long value) {
+            this.columnName = columnName;
+            this.value = value;
+        }
+
+        public StreamTestWithChunksStreamChunkRefColumn getColumnName() {
+            return columnName;
+        }
+
+        @Override
+        public Long getValue() {
+            return value;
+        }
+
+        @Override
+        public byte[] persistColumnName() {
+            return columnName.persistToBytes();
+        }
+
+        @Override
+        public byte[] persistValue() {
+            byte[] bytes = EncodingUtils.encodeUnsignedVarLong(value);
+            return CompressionUtils.compress(bytes, Compression.NONE);
+        }
+
+        public static Long hydrateValue(byte[] bytes) {
+            bytes = CompressionUtils.decompress(bytes, Compression.NONE);
+            return EncodingUtils.decodeUnsignedVarLong(bytes, 0);
+        }
+
+        public static Function<StreamTestWithChunksStreamChunkRefColumnValue, StreamTestWithChunksStreamChunkRefColumn> getColumnNameFun() {
+            return new Function<StreamTestWithChunksStreamChunkRefColumnValue, StreamTestWithChunksStreamChunkRefColumn>() {
+                @Override
+                public StreamTestWithChunksStreamChunkRefColumn apply(StreamTestWithChunksStreamChunkRefColumnValue columnValue) {
+                    return columnValue.getColumnName();
+                }
+            };
+        }
+
+        public static Function<StreamTestWithChunksStreamChunkRefColumnValue, Long> getValueFun() {
+            return new Function<StreamTestWithChunksStreamChunkRefColumnValue, Long>() {
+                @Override
+                public Long apply(StreamTestWithChunksStreamChunkRefColumnValue columnValue) {
+                    return columnValue.getValue();
+                }
+            };
+        }
+
+        @Override
+        public String toString() {
+            return MoreObjects.toStringHelper(getClass().getSimpleName())
+                .add("ColumnName", this.columnName)
+                .add("Value", this.value)
+                .toString();
+        }
+    }
+
+    public static final class StreamTestWithChunksStreamChunkRefRowResult implements TypedRowResult {
+        private final StreamTestWithChunksStreamChunkRefRow rowName;
+        private final ImmutableSet<StreamTestWithChunksStreamChunkRefColumnValue> columnValues;
+
+        public static StreamTestWithChunksStreamChunkRefRowResult of(RowResult<byte[]> rowResult) {
+            StreamTestWithChunksStreamChunkRefRow rowName = StreamTestWithChunksStreamChunkRefRow.BYTES_HYDRATOR.hydrateFromBytes(rowResult.getRowName());
+            Set<StreamTestWithChunksStreamChunkRefColumnValue> columnValues = Sets.newHashSetWithExpectedSize(rowResult.getColumns().size());
+            for (Entry<byte[], byte[]> e : rowResult.getColumns().entrySet()) {
+                StreamTestWithChunksStreamChunkRefColumn col = StreamTestWithChunksStreamChunkRefColumn.BYTES_HYDRATOR.hydrateFromBytes(e.getKey());
+                Long value = StreamTestWithChunksStreamChunkRefColumnValue.hydrateValue(e.getValue());
+                columnValues.add(StreamTestWithChunksStreamChunkRefColumnValue.of(col, value));
+            }
+            return new StreamTestWithChunksStreamChunkRefRowResult(rowName, ImmutableSet.copyOf(columnValues));
+        }
+
+        private StreamTestWithChunksStreamChunkRefRowResult(StreamTestWithChunksStreamChunkRefRow rowName, ImmutableSet<StreamTestWithChunksStreamChunkRefColumnValue> columnValues) {
+            this.rowName = rowName;
+            this.columnValues = columnValues;
+        }
+
+        @Override
+        public StreamTestWithChunksStreamChunkRefRow getRowName() {
+            return rowName;
+        }
+
+        public Set<StreamTestWithChunksStreamChunkRefColumnValue> getColumnValues() {
+            return columnValues;
+        }
+
+        public static Function<StreamTestWithChunksStreamChunkRefRowResult, StreamTestWithChunksStreamChunkRefRow> getRowNameFun() {
+            return new Function<StreamTestWithChunksStreamChunkRefRowResult, StreamTestWithChunksStreamChunkRefRow>() {
+                @Override
+                public StreamTestWithChunksStreamChunkRefRow apply(StreamTestWithChunksStreamChunkRefRowResult rowResult) {
+                    return rowResult.rowName;
+                }
+            };
+        }
+
+        public static Function<StreamTestWithChunksStreamChunkRefRowResult, ImmutableSet<StreamTestWithChunksStreamChunkRefColumnValue>> getColumnValuesFun() {
+            return new Function<StreamTestWithChunksStreamChunkRefRowResult, ImmutableSet<StreamTestWithChunksStreamChunkRefColumnValue>>() {
+                @Override
+                public ImmutableSet<StreamTestWithChunksStreamChunkRefColumnValue> apply(StreamTestWithChunksStreamChunkRefRowResult rowResult) {
+                    return rowResult.columnValues;
+                }
+            };
+        }
+
+        @Override
+        public String toString() {
+            return MoreObjects.toStringHelper(getClass().getSimpleName())
+                .add("RowName", getRowName())
+                .add("ColumnValues", getColumnValues())
+                .toString();
+        }
+    }
+
+    @Override
+    public void delete(StreamTestWithChunksStreamChunkRefRow row, StreamTestWithChunksStreamChunkRefColumn column) {
+        delete(ImmutableMultimap.of(row, column));
+    }
+
+    @Override
+    public void delete(Iterable<StreamTestWithChunksStreamChunkRefRow> rows) {
+        Multimap<StreamTestWithChunksStreamChunkRefRow, StreamTestWithChunksStreamChunkRefColumn> toRemove = HashMultimap.create();
+        Multimap<StreamTestWithChunksStreamChunkRefRow, StreamTestWithChunksStreamChunkRefColumnValue> result = getRowsMultimap(rows);
+        for (Entry<StreamTestWithChunksStreamChunkRefRow, StreamTestWithChunksStreamChunkRefColumnValue> e : result.entries()) {
+            toRemove.put(e.getKey(), e.getValue().getColumnName());
+        }
+        delete(toRemove);
+    }
+
+    @Override
+    public void delete(Multimap<StreamTestWithChunksStreamChunkRefRow, StreamTestWithChunksStreamChunkRefColumn> values) {
+        t.delete(tableName, ColumnValues.toCells(values));
+    }
+
+    @Override
+    public void put(StreamTestWithChunksStreamChunkRefRow rowName, Iterable<StreamTestWithChunksStreamChunkRefColumnValue> values) {
+        put(ImmutableMultimap.<StreamTestWithChunksStreamChunkRefRow, StreamTestWithChunksStreamChunkRefColumnValue>builder().putAll(rowName, values).build());
+    }
+
+    @Override
+    public void put(StreamTestWithChunksStreamChunkRefRow rowName, StreamTestWithChunksStreamChunkRefColumnValue... values) {
+        put(ImmutableMultimap.<StreamTestWithChunksStreamChunkRefRow, StreamTestWithChunksStreamChunkRefColumnValue>builder().putAll(rowName, values).build());
+    }
+
+    @Override
+    public void put(Multimap<StreamTestWithChunksStreamChunkRefRow, ? extends StreamTestWithChunksStreamChunkRefColumnValue> values) {
+        t.useTable(tableName, this);
+        t.put(tableName, ColumnValues.toCellValues(values));
+        for (StreamTestWithChunksStreamChunkRefTrigger trigger : triggers) {
+            trigger.putStreamTestWithChunksStreamChunkRef(values);
+        }
+    }
+
+    @Override
+    public void putUnlessExists(StreamTestWithChunksStreamChunkRefRow rowName, Iterable<StreamTestWithChunksStreamChunkRefColumnValue> values) {
+        putUnlessExists(ImmutableMultimap.<StreamTestWithChunksStreamChunkRefRow, StreamTestWithChunksStreamChunkRefColumnValue>builder().putAll(rowName, values).build());
+    }
+
+    @Override
+    public void putUnlessExists(StreamTestWithChunksStreamChunkRefRow rowName, StreamTestWithChunksStreamChunkRefColumnValue... values) {
+        putUnlessExists(ImmutableMultimap.<StreamTestWithChunksStreamChunkRefRow, StreamTestWithChunksStreamChunkRefColumnValue>builder().putAll(rowName, values).build());
+    }
+
+    @Override
+    public void putUnlessExists(Multimap<StreamTestWithChunksStreamChunkRefRow, ? extends StreamTestWithChunksStreamChunkRefColumnValue> rows) {
+        Multimap<StreamTestWithChunksStreamChunkRefRow, StreamTestWithChunksStreamChunkRefColumn> toGet = Multimaps.transformValues(rows, StreamTestWithChunksStreamChunkRefColumnValue.getColumnNameFun());
+        Multimap<StreamTestWithChunksStreamChunkRefRow, StreamTestWithChunksStreamChunkRefColumnValue> existing = get(toGet);
+        Multimap<StreamTestWithChunksStreamChunkRefRow, StreamTestWithChunksStreamChunkRefColumnValue> toPut = HashMultimap.create();
+        for (Entry<StreamTestWithChunksStreamChunkRefRow, ? extends StreamTestWithChunksStreamChunkRefColumnValue> entry : rows.entries()) {
+            if (!existing.containsEntry(entry.getKey(), entry.getValue())) {
+                toPut.put(entry.getKey(), entry.getValue());
+            }
+        }
+        put(toPut);
+    }
+
+    @Override
+    public void touch(Multimap<StreamTestWithChunksStreamChunkRefRow, StreamTestWithChunksStreamChunkRefColumn> values) {
+        Multimap<StreamTestWithChunksStreamChunkRefRow, StreamTestWithChunksStreamChunkRefColumnValue> currentValues = get(values);
+        put(currentValues);
+        Multimap<StreamTestWithChunksStreamChunkRefRow, StreamTestWithChunksStreamChunkRefColumn> toDelete = HashMultimap.create(values);
+        for (Map.Entry<StreamTestWithChunksStreamChunkRefRow, StreamTestWithChunksStreamChunkRefColumnValue> e : currentValues.entries()) {
+            toDelete.remove(e.getKey(), e.getValue().getColumnName());
+        }
+        delete(toDelete);
+    }
+
+    public static ColumnSelection getColumnSelection(Collection<StreamTestWithChunksStreamChunkRefColumn> cols) {
+        return ColumnSelection.create(Collections2.transform(cols, Persistables.persistToBytesFunction()));
+    }
+
+    public static ColumnSelection getColumnSelection(StreamTestWithChunksStreamChunkRefColumn... cols) {
+        return getColumnSelection(Arrays.asList(cols));
+    }
+
+    @Override
+    public Multimap<StreamTestWithChunksStreamChunkRefRow, StreamTestWithChunksStreamChunkRefColumnValue> get(Multimap<StreamTestWithChunksStreamChunkRefRow, StreamTestWithChunksStreamChunkRefColumn> cells) {
+        Set<Cell> rawCells = ColumnValues.toCells(cells);
+        Map<Cell, byte[]> rawResults = t.get(tableName, rawCells);
+        Multimap<StreamTestWithChunksStreamChunkRefRow, StreamTestWithChunksStreamChunkRefColumnValue> rowMap = HashMultimap.create();
+        for (Entry<Cell, byte[]> e : rawResults.entrySet()) {
+            if (e.getValue().length > 0) {
+                StreamTestWithChunksStreamChunkRefRow row = StreamTestWithChunksStreamChunkRefRow.BYTES_HYDRATOR.hydrateFromBytes(e.getKey().getRowName());
+                StreamTestWithChunksStreamChunkRefColumn col = StreamTestWithChunksStreamChunkRefColumn.BYTES_HYDRATOR.hydrateFromBytes(e.getKey().getColumnName());
+                Long val = StreamTestWithChunksStreamChunkRefColumnValue.hydrateValue(e.getValue());
+                rowMap.put(row, StreamTestWithChunksStreamChunkRefColumnValue.of(col, val));
+            }
+        }
+        return rowMap;
+    }
+
+    @Override
+    public Multimap<StreamTestWithChunksStreamChunkRefRow, StreamTestWithChunksStreamChunkRefColumnValue> getAsync(final Multimap<StreamTestWithChunksStreamChunkRefRow, StreamTestWithChunksStreamChunkRefColumn> cells, ExecutorService exec) {
+        Callable<Multimap<StreamTestWithChunksStreamChunkRefRow, StreamTestWithChunksStreamChunkRefColumnValue>> c =
+                new Callable<Multimap<StreamTestWithChunksStreamChunkRefRow, StreamTestWithChunksStreamChunkRefColumnValue>>() {
+            @Override
+            public Multimap<StreamTestWithChunksStreamChunkRefRow, StreamTestWithChunksStreamChunkRefColumnValue> call() {
+                return get(cells);
+            }
+        };
+        return AsyncProxy.create(exec.submit(c), Multimap.class);
+    }
+
+    @Override
+    public List<StreamTestWithChunksStreamChunkRefColumnValue> getRowColumns(StreamTestWithChunksStreamChunkRefRow row) {
+        return getRowColumns(row, ColumnSelection.all());
+    }
+
+    @Override
+    public List<StreamTestWithChunksStreamChunkRefColumnValue> getRowColumns(StreamTestWithChunksStreamChunkRefRow row, ColumnSelection columns) {
+        byte[] bytes = row.persistToBytes();
+        RowResult<byte[]> rowResult = t.getRows(tableName, ImmutableSet.of(bytes), columns).get(bytes);
+        if (rowResult == null) {
+            return ImmutableList.of();
+        } else {
+            List<StreamTestWithChunksStreamChunkRefColumnValue> ret = Lists.newArrayListWithCapacity(rowResult.getColumns().size());
+            for (Entry<byte[], byte[]> e : rowResult.getColumns().entrySet()) {
+                StreamTestWithChunksStreamChunkRefColumn col = StreamTestWithChunksStreamChunkRefColumn.BYTES_HYDRATOR.hydrateFromBytes(e.getKey());
+                Long val = StreamTestWithChunksStreamChunkRefColumnValue.hydrateValue(e.getValue());
+                ret.add(StreamTestWithChunksStreamChunkRefColumnValue.of(col, val));
+            }
+            return ret;
+        }
+    }
+
+    @Override
+    public Multimap<StreamTestWithChunksStreamChunkRefRow, StreamTestWithChunksStreamChunkRefColumnValue> getRowsMultimap(Iterable<StreamTestWithChunksStreamChunkRefRow> rows) {
+        return getRowsMultimapInternal(rows, ColumnSelection.all());
+    }
+
+    @Override
+    public Multimap<StreamTestWithChunksStreamChunkRefRow, StreamTestWithChunksStreamChunkRefColumnValue> getRowsMultimap(Iterable<StreamTestWithChunksStreamChunkRefRow> rows, ColumnSelection columns) {
+        return getRowsMultimapInternal(rows, columns);
+    }
+
+    @Override
+    public Multimap<StreamTestWithChunksStreamChunkRefRow, StreamTestWithChunksStreamChunkRefColumnValue> getAsyncRowsMultimap(Iterable<StreamTestWithChunksStreamChunkRefRow> rows, ExecutorService exec) {
+        return getAsyncRowsMultimap(rows, ColumnSelection.all(), exec);
+    }
+
+    @Override
+    public Multimap<StreamTestWithChunksStreamChunkRefRow, StreamTestWithChunksStreamChunkRefColumnValue> getAsyncRowsMultimap(final Iterable<StreamTestWithChunksStreamChunkRefRow> rows, final ColumnSelection columns, ExecutorService exec) {
+        Callable<Multimap<StreamTestWithChunksStreamChunkRefRow, StreamTestWithChunksStreamChunkRefColumnValue>> c =
+                new Callable<Multimap<StreamTestWithChunksStreamChunkRefRow, StreamTestWithChunksStreamChunkRefColumnValue>>() {
+            @Override
+            public Multimap<StreamTestWithChunksStreamChunkRefRow, StreamTestWithChunksStreamChunkRefColumnValue> call() {
+                return getRowsMultimapInternal(rows, columns);
+            }
+        };
+        return AsyncProxy.create(exec.submit(c), Multimap.class);
+    }
+
+    private Multimap<StreamTestWithChunksStreamChunkRefRow, StreamTestWithChunksStreamChunkRefColumnValue> getRowsMultimapInternal(Iterable<StreamTestWithChunksStreamChunkRefRow> rows, ColumnSelection columns) {
+        SortedMap<byte[], RowResult<byte[]>> results = t.getRows(tableName, Persistables.persistAll(rows), columns);
+        return getRowMapFromRowResults(results.values());
+    }
+
+    private static Multimap<StreamTestWithChunksStreamChunkRefRow, StreamTestWithChunksStreamChunkRefColumnValue> getRowMapFromRowResults(Collection<RowResult<byte[]>> rowResults) {
+        Multimap<StreamTestWithChunksStreamChunkRefRow, StreamTestWithChunksStreamChunkRefColumnValue> rowMap = HashMultimap.create();
+        for (RowResult<byte[]> result : rowResults) {
+            StreamTestWithChunksStreamChunkRefRow row = StreamTestWithChunksStreamChunkRefRow.BYTES_HYDRATOR.hydrateFromBytes(result.getRowName());
+            for (Entry<byte[], byte[]> e : result.getColumns().entrySet()) {
+                StreamTestWithChunksStreamChunkRefColumn col = StreamTestWithChunksStreamChunkRefColumn.BYTES_HYDRATOR.hydrateFromBytes(e.getKey());
+                Long val = StreamTestWithChunksStreamChunkRefColumnValue.hydrateValue(e.getValue());
+                rowMap.put(row, StreamTestWithChunksStreamChunkRefColumnValue.of(col, val));
+            }
+        }
+        return rowMap;
+    }
+
+    public BatchingVisitableView<StreamTestWithChunksStreamChunkRefRowResult> getAllRowsUnordered() {
+        return getAllRowsUnordered(ColumnSelection.all());
+    }
+
+    public BatchingVisitableView<StreamTestWithChunksStreamChunkRefRowResult> getAllRowsUnordered(ColumnSelection columns) {
+        return BatchingVisitables.transform(t.getRange(tableName, RangeRequest.builder().retainColumns(columns).build()),
+                new Function<RowResult<byte[]>, StreamTestWithChunksStreamChunkRefRowResult>() {
+            @Override
+            public StreamTestWithChunksStreamChunkRefRowResult apply(RowResult<byte[]> input) {
+                return StreamTestWithChunksStreamChunkRefRowResult.of(input);
+            }
+        });
+    }
+
+    @Override
+    public List<String> findConstraintFailures(Map<Cell, byte[]> writes,
+                                               ConstraintCheckingTransaction transaction,
+                                               AtlasDbConstraintCheckingMode constraintCheckingMode) {
+        return ImmutableList.of();
+    }
+
+    @Override
+    public List<String> findConstraintFailuresNoRead(Map<Cell, byte[]> writes,
+                                                     AtlasDbConstraintCheckingMode constraintCheckingMode) {
+        return ImmutableList.of();
+    }
+
+    static String __CLASS_HASH = "ByVV7eOJQwvGRyGEApuwOw==";
+}
@@ -0,0 +1,738 @@
+package com.palantir.atlasdb.schema.stream.generated;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+
+
+import com.google.common.base.Function;
+import com.google.common.base.Joiner;
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Objects;
+import com.google.common.base.Optional;
+import com.google.common.base.Supplier;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Collections2;
+import com.google.common.collect.ComparisonChain;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Multimaps;
+import com.google.common.collect.Sets;
+import com.google.common.primitives.Bytes;
+import com.google.common.primitives.UnsignedBytes;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.palantir.atlasdb.compress.CompressionUtils;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
+import com.palantir.atlasdb.keyvalue.api.Prefix;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.impl.Cells;
+import com.palantir.atlasdb.ptobject.EncodingUtils;
+import com.palantir.atlasdb.schema.Namespace;
+import com.palantir.atlasdb.table.api.AtlasDbDynamicMutableExpiringTable;
+import com.palantir.atlasdb.table.api.AtlasDbDynamicMutablePersistentTable;
+import com.palantir.atlasdb.table.api.AtlasDbMutableExpiringTable;
+import com.palantir.atlasdb.table.api.AtlasDbMutablePersistentTable;
+import com.palantir.atlasdb.table.api.AtlasDbNamedExpiringSet;
+import com.palantir.atlasdb.table.api.AtlasDbNamedMutableTable;
+import com.palantir.atlasdb.table.api.AtlasDbNamedPersistentSet;
+import com.palantir.atlasdb.table.api.ColumnValue;
+import com.palantir.atlasdb.table.api.TypedRowResult;
+import com.palantir.atlasdb.table.description.ColumnValueDescription.Compression;
+import com.palantir.atlasdb.table.generation.ColumnValues;
+import com.palantir.atlasdb.table.generation.Descending;
+import com.palantir.atlasdb.table.generation.NamedColumnValue;
+import com.palantir.atlasdb.transaction.api.AtlasDbConstraintCheckingMode;
+import com.palantir.atlasdb.transaction.api.ConstraintCheckingTransaction;
+import com.palantir.atlasdb.transaction.api.Transaction;
+import com.palantir.common.base.AbortingVisitor;
+import com.palantir.common.base.AbortingVisitors;
+import com.palantir.common.base.BatchingVisitable;
+import com.palantir.common.base.BatchingVisitableView;
+import com.palantir.common.base.BatchingVisitables;
+import com.palantir.common.base.Throwables;
+import com.palantir.common.collect.IterableView;
+import com.palantir.common.persist.Persistable;
+import com.palantir.common.persist.Persistable.Hydrator;
+import com.palantir.common.persist.Persistables;
+import com.palantir.common.proxy.AsyncProxy;
+import com.palantir.util.AssertUtils;
+import com.palantir.util.crypto.Sha256Hash;
+
+
+public final class StreamTestWithChunksStreamChunkTable implements
+        AtlasDbMutablePersistentTable<StreamTestWithChunksStreamChunkTable.StreamTestWithChunksStreamChunkRow,
+                                         StreamTestWithChunksStreamChunkTable.StreamTestWithChunksStreamChunkNamedColumnValue<?>,
+                                         StreamTestWithChunksStreamChunkTable.StreamTestWithChunksStreamChunkRowResult>,
+        AtlasDbNamedMutableTable<StreamTestWithChunksStreamChunkTable.StreamTestWithChunksStreamChunkRow,
+                                    StreamTestWithChunksStreamChunkTable.StreamTestWithChunksStreamChunkNamedColumnValue<?>,
+                                    StreamTestWithChunksStreamChunkTable.StreamTestWithChunksStreamChunkRowResult> {
+    private final Transaction t;
+    private final List<StreamTestWithChunksStreamChunkTrigger> triggers;
+    private final static String rawTableName = "stream_test_with_chunks_stream_chunk";
+    private final String tableName;
+    private final Namespace namespace;
+
+    static StreamTestWithChunksStreamChunkTable of(Transaction t, Namespace namespace) {
+        return new StreamTestWithChunksStreamChunkTable(t, namespace, ImmutableList.<StreamTestWithChunksStreamChunkTrigger>of());
+    }
+
+    static StreamTestWithChunksStreamChunkTable of(Transaction t, Namespace namespace, StreamTestWithChunksStreamChunkTrigger trigger, StreamTestWithChunksStreamChunkTrigger... triggers) {
+        return new StreamTestWithChunksStreamChunkTable(t, namespace, ImmutableList.<StreamTestWithChunksStreamChunkTrigger>builder().add(trigger).add(triggers).build());
+    }
+
+    static StreamTestWithChunksStreamChunkTable of(Transaction t, Namespace namespace, List<StreamTestWithChunksStreamChunkTrigger> triggers) {
+        return new StreamTestWithChunksStreamChunkTable(t, namespace, triggers);
+    }
+
+    private StreamTestWithChunksStreamChunkTable(Transaction t, Namespace namespace, List<StreamTestWithChunksStreamChunkTrigger> triggers) {
+        this.t = t;
+        this.tableName = namespace.getName() + "." + rawTableName;
+        this.triggers = triggers;
+        this.namespace = namespace;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public Namespace getNamespace() {
+        return namespace;
+    }
+
+    /**
+     * <pre>
+     * StreamTestWithChunksStreamChunkRow {
+     *   {@literal Sha256Hash hash};
+     * }
+     * </pre>
+     */
+    public static final class StreamTestWithChunksStreamChunkRow implements Persistable, Comparable<StreamTestWithChunksStreamChunkRow> {
+        private final Sha256Hash hash;
+
+        public static StreamTestWithChunksStreamChunkRow of(Sha256Hash hash) {
+            return new StreamTestWithChunksStreamChunkRow(hash);
+        }
+
+        private StreamTestWithChunksStreamChunkRow(Sha256Hash hash) {
+            this.hash = hash;
+        }
+
+        public Sha256Hash getHash() {
+            return hash;
+        }
+
+        public static Function<StreamTestWithChunksStreamChunkRow, Sha256Hash> getHashFun() {
+            return new Function<StreamTestWithChunksStreamChunkRow, Sha256Hash>() {
+                @Override
+                public Sha256Hash apply(StreamTestWithChunksStreamChunkRow row) {
+                    return row.hash;
+                }
+            };
+        }
+
+        public static Function<Sha256Hash, StreamTestWithChunksStreamChunkRow> fromHashFun() {
+            return new Function<Sha256Hash, StreamTestWithChunksStreamChunkRow>() {
+                @Override
+                public StreamTestWithChunksStreamChunkRow apply(Sha256Hash row) {
+                    return new StreamTestWithChunksStreamChunkRow(row);
+                }
+            };
+        }
+
+        @Override
+        public byte[] persistToBytes() {
+            byte[] hashBytes = hash.getBytes();
+            return EncodingUtils.add(hashBytes);
+        }
+
+        public static final Hydrator<StreamTestWithChunksStreamChunkRow> BYTES_HYDRATOR = new Hydrator<StreamTestWithChunksStreamChunkRow>() {
+            @Override
+            public StreamTestWithChunksStreamChunkRow hydrateFromBytes(byte[] __input) {
+                int __index = 0;
+                Sha256Hash hash = new Sha256Hash(EncodingUtils.get32Bytes(__input, __index));
+                __index += 32;
+                return of(hash);
+            }
+        };
+
+        @Override
+        public String toString() {
+            return MoreObjects.toStringHelper(getClass().getSimpleName())
+                .add("hash", hash)
+                .toString();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null) {
+                return false;
+            }
+            if (getClass() != obj.getClass()) {
+                return false;
+            }
+            StreamTestWithChunksStreamChunkRow other = (StreamTestWithChunksStreamChunkRow) obj;
+            return Objects.equal(hash, other.hash);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(hash);
+        }
+
+        @Override
+        public int compareTo(StreamTestWithChunksStreamChunkRow o) {
+            return ComparisonChain.start()
+                .compare(this.hash, o.hash)
+                .result();
+        }
+    }
+
+    public interface StreamTestWithChunksStreamChunkNamedColumnValue<T> extends NamedColumnValue<T> { /* */ }
+
+    /**
+     * <pre>
+     * Column value description {
+     *   type: Long;
+     * }
+     * </pre>
+     */
+    public static final class ReleaseCount implements StreamTestWithChunksStreamChunkNamedColumnValue<Long> {
+        private final Long value;
+
+        public static ReleaseCount of(Long value) {
+            return new ReleaseCount(value);
+        }
+
+        private ReleaseCount(Long value) {
+            this.value = value;
+        }
+
+        @Override
+        public String getColumnName() {
+            return "release_count";
+        }
+
+        @Override
+        public String getShortColumnName() {
+            return "d";
+        }
+
+        @Override
+        public Long getValue() {
+            return value;
+        }
+
+        @Override
+        public byte[] persistValue() {
+            byte[] bytes = EncodingUtils.encodeUnsignedVarLong(value);
+            return CompressionUtils.compress(bytes, Compression.NONE);
+        }
+
+        @Override
+        public byte[] persistColumnName() {
+            return PtBytes.toCachedBytes("d");
+        }
+
+        public static final Hydrator<ReleaseCount> BYTES_HYDRATOR = new Hydrator<ReleaseCount>() {
+            @Override
+            public ReleaseCount hydrateFromBytes(byte[] bytes) {
+                bytes = CompressionUtils.decompress(bytes, Compression.NONE);
+                return of(EncodingUtils.decodeUnsignedVarLong(bytes, 0));
+            }
+        };
+
+        @Override
+        public String toString() {
+            return MoreObjects.toStringHelper(getClass().getSimpleName())
+                .add("Value", this.value)
+                .toString();
+        }
+    }
+
+    /**
+     * <pre>
+     * Column value description {
+     *   type: byte[];
+     * }
+     * </pre>
+     */
+    public static final class Value implements StreamTestWithChunksStreamChunkNamedColumnValue<byte[]> {
+        private final byte[] value;
+
+        public static Value of(byte[] value) {
+            return new Value(value);
+        }
+
+        private Value(byte[] value) {
+            this.value = value;
+        }
+
+        @Override
+        public String getColumnName() {
+            return "value";
+        }
+
+        @Override
+        public String getShortColumnName() {
+            return "v";
+        }
+
+        @Override
+        public byte[] getValue() {
+            return value;
+        }
+
+        @Override
+        public byte[] persistValue() {
+            byte[] bytes = value;
+            return CompressionUtils.compress(bytes, Compression.NONE);
+        }
+
+        @Override
+        public byte[] persistColumnName() {
+            return PtBytes.toCachedBytes("v");
+        }
+
+        public static final Hydrator<Value> BYTES_HYDRATOR = new Hydrator<Value>() {
+            @Override
+            public Value hydrateFromBytes(byte[] bytes) {
+                bytes = CompressionUtils.decompress(bytes, Compression.NONE);
+                return of(EncodingUtils.getBytesFromOffsetToEnd(bytes, 0));
+            }
+        };
+
+        @Override
+        public String toString() {
+            return MoreObjects.toStringHelper(getClass().getSimpleName())
+                .add("Value", this.value)
+                .toString();
+        }
+    }
+
+    public interface StreamTestWithChunksStreamChunkTrigger {
+        public void putStreamTestWithChunksStreamChunk(Multimap<StreamTestWithChunksStreamChunkRow, ? extends StreamTestWithChunksStreamChunkNamedColumnValue<?>> newRows);
+    }
+
+    public static final class StreamTestWithChunksStreamChunkRowResult implements TypedRowResult {
+        private final RowResult<byte[]> row;
+
+        public static StreamTestWithChunksStreamChunkRowResult of(RowResult<byte[]> row) {
+            return new StreamTestWithChunksStreamChunkRowResult(row);
+        }
+
+        private StreamTestWithChunksStreamChunkRowResult(RowResult<byte[]> row) {
+            this.row = row;
+        }
+
+        @Override
+        public StreamTestWithChunksStreamChunkRow getRowName() {
+            return StreamTestWithChunksStreamChunkRow.BYTES_HYDRATOR.hydrateFromBytes(row.getRowName());
+        }
+
+        public static Function<StreamTestWithChunksStreamChunkRowResult, StreamTestWithChunksStreamChunkRow> getRowNameFun() {
+            return new Function<StreamTestWithChunksStreamChunkRowResult, StreamTestWithChunksStreamChunkRow>() {
+                @Override
+                public StreamTestWithChunksStreamChunkRow apply(StreamTestWithChunksStreamChunkRowResult rowResult) {
+                    return rowResult.getRowName();
+                }
+            };
+        }
+
+        public static Function<RowResult<byte[]>, StreamTestWithChunksStreamChunkRowResult> fromRawRowResultFun() {
+            return new Function<RowResult<byte[]>, StreamTestWithChunksStreamChunkRowResult>() {
+                @Override
+                public StreamTestWithChunksStreamChunkRowResult apply(RowResult<byte[]> rowResult) {
+                    return new StreamTestWithChunksStreamChunkRowResult(rowResult);
+                }
+            };
+        }
+
+        public boolean hasReleaseCount() {
+            return row.getColumns().containsKey(PtBytes.toCachedBytes("d"));
+        }
+
+        public boolean hasValue() {
+            return row.getColumns().containsKey(PtBytes.toCachedBytes("v"));
+        }
+
+        public Long getReleaseCount() {
+            byte[] bytes = row.getColumns().get(PtBytes.toCachedBytes("d"));
+            if (bytes == null) {
+                return null;
+            }
+            ReleaseCount value = ReleaseCount.BYTES_HYDRATOR.hydrateFromBytes(bytes);
+            return value.getValue();
+        }
+
+        public byte[] getValue() {
+            byte[] bytes = row.getColumns().get(PtBytes.toCachedBytes("v"));
+            if (bytes == null) {
+                return null;
+            }
+            Value value = Value.BYTES_HYDRATOR.hydrateFromBytes(bytes);
+            return value.getValue();
+        }
+
+        public static Function<StreamTestWithChunksStreamChunkRowResult, Long> getReleaseCountFun() {
+            return new Function<StreamTestWithChunksStreamChunkRowResult, Long>() {
+                @Override
+                public Long apply(StreamTestWithChunksStreamChunkRowResult rowResult) {
+                    return rowResult.getReleaseCount();
+                }
+            };
+        }
+
+        public static Function<StreamTestWithChunksStreamChunkRowResult, byte[]> getValueFun() {
+            return new Function<StreamTestWithChunksStreamChunkRowResult, byte[]>() {
+                @Override
+                public byte[] apply(StreamTestWithChunksStreamChunkRowResult rowResult) {
+                    return rowResult.getValue();
+                }
+            };
+        }
+
+        @Override
+        public String toString() {
+            return MoreObjects.toStringHelper(getClass().getSimpleName())
+                .add("RowName", getRowName())
+                .add("ReleaseCount", getReleaseCount())
+                .add("Value", getValue())
+                .toString();
+        }
+    }
+
+    public enum StreamTestWithChunksStreamChunkNamedColumn {
+        RELEASE_COUNT {
+            @Override
+            public byte[] getShortName() {
+                return PtBytes.toCachedBytes("d");
+            }
+        },
+        VALUE {
+            @Override
+            public byte[] getShortName() {
+                return PtBytes.toCachedBytes("v");
+            }
+        };
+
+        public abstract byte[] getShortName();
+
+        public static Function<StreamTestWithChunksStreamChunkNamedColumn, byte[]> toShortName() {
+            return new Function<StreamTestWithChunksStreamChunkNamedColumn, byte[]>() {
+                @Override
+                public byte[] apply(StreamTestWithChunksStreamChunkNamedColumn namedColumn) {
+                    return namedColumn.getShortName();
+                }
+            };
+        }
+    }
+
+    public static ColumnSelection getColumnSelection(Collection<StreamTestWithChunksStreamChunkNamedColumn> cols) {
+        return ColumnSelection.create(Collections2.transform(cols, StreamTestWithChunksStreamChunkNamedColumn.toShortName()));
+    }
+
+    public static ColumnSelection getColumnSelection(StreamTestWithChunksStreamChunkNamedColumn... cols) {
+        return getColumnSelection(Arrays.asList(cols));
+    }
+
+    private static final Map<String, Hydrator<? extends StreamTestWithChunksStreamChunkNamedColumnValue<?>>> shortNameToHydrator =
+            ImmutableMap.<String, Hydrator<? extends StreamTestWithChunksStreamChunkNamedColumnValue<?>>>builder()
+                .put("v", Value.BYTES_HYDRATOR)
+                .put("d", ReleaseCount.BYTES_HYDRATOR)
+                .build();
+
+    public Map<StreamTestWithChunksStreamChunkRow, byte[]> getValues(Collection<StreamTestWithChunksStreamChunkRow> rows) {
+        Map<Cell, StreamTestWithChunksStreamChunkRow> cells = Maps.newHashMapWithExpectedSize(rows.size());
+        for (StreamTestWithChunksStreamChunkRow row : rows) {
+            cells.put(Cell.create(row.persistToBytes(), PtBytes.toCachedBytes("v")), row);
+        }
+        Map<Cell, byte[]> results = t.get(tableName, cells.keySet());
+        Map<StreamTestWithChunksStreamChunkRow, byte[]> ret = Maps.newHashMapWithExpectedSize(results.size());
+        for (Entry<Cell, byte[]> e : results.entrySet()) {
+            byte[] val = Value.BYTES_HYDRATOR.hydrateFromBytes(e.getValue()).getValue();
+            ret.put(cells.get(e.getKey()), val);
+        }
+        return ret;
+    }
+
+    public Map<StreamTestWithChunksStreamChunkRow, Long> getReleaseCounts(Collection<StreamTestWithChunksStreamChunkRow> rows) {
+        Map<Cell, StreamTestWithChunksStreamChunkRow> cells = Maps.newHashMapWithExpectedSize(rows.size());
+        for (StreamTestWithChunksStreamChunkRow row : rows) {
+            cells.put(Cell.create(row.persistToBytes(), PtBytes.toCachedBytes("d")), row);
+        }
+        Map<Cell, byte[]> results = t.get(tableName, cells.keySet());
+        Map<StreamTestWithChunksStreamChunkRow, Long> ret = Maps.newHashMapWithExpectedSize(results.size());
+        for (Entry<Cell, byte[]> e : results.entrySet()) {
+            Long val = ReleaseCount.BYTES_HYDRATOR.hydrateFromBytes(e.getValue()).getValue();
+            ret.put(cells.get(e.getKey()), val);
+        }
+        return ret;
+    }
+
+    public void putValue(StreamTestWithChunksStreamChunkRow row, byte[] value) {
+        put(ImmutableMultimap.of(row, Value.of(value)));
+    }
+
+    public void putValue(Map<StreamTestWithChunksStreamChunkRow, byte[]> map) {
+        Map<StreamTestWithChunksStreamChunkRow, StreamTestWithChunksStreamChunkNamedColumnValue<?>> toPut = Maps.newHashMapWithExpectedSize(map.size());
+        for (Entry<StreamTestWithChunksStreamChunkRow, byte[]> e : map.entrySet()) {
+            toPut.put(e.getKey(), Value.of(e.getValue()));
+        }
+        put(Multimaps.forMap(toPut));
+    }
+
+    public void putValueUnlessExists(StreamTestWithChunksStreamChunkRow row, byte[] value) {
+        putUnlessExists(ImmutableMultimap.of(row, Value.of(value)));
+    }
+
+    public void putValueUnlessExists(Map<StreamTestWithChunksStreamChunkRow, byte[]> map) {
+        Map<StreamTestWithChunksStreamChunkRow, StreamTestWithChunksStreamChunkNamedColumnValue<?>> toPut = Maps.newHashMapWithExpectedSize(map.size());
+        for (Entry<StreamTestWithChunksStreamChunkRow, byte[]> e : map.entrySet()) {
+            toPut.put(e.getKey(), Value.of(e.getValue()));
+        }
+        putUnlessExists(Multimaps.forMap(toPut));
+    }
+
+    public void putReleaseCount(StreamTestWithChunksStreamChunkRow row, Long value) {
+        put(ImmutableMultimap.of(row, ReleaseCount.of(value)));
+    }
+
+    public void putReleaseCount(Map<StreamTestWithChunksStreamChunkRow, Long> map) {
+        Map<StreamTestWithChunksStreamChunkRow, StreamTestWithChunksStreamChunkNamedColumnValue<?>> toPut = Maps.newHashMapWithExpectedSize(map.size());
+        for (Entry<StreamTestWithChunksStreamChunkRow, Long> e : map.entrySet()) {
+            toPut.put(e.getKey(), ReleaseCount.of(e.getValue()));
+        }
+        put(Multimaps.forMap(toPut));
+    }
+
+    public void putReleaseCountUnlessExists(StreamTestWithChunksStreamChunkRow row, Long value) {
+        putUnlessExists(ImmutableMultimap.of(row, ReleaseCount.of(value)));
+    }
+
+    public void putReleaseCountUnlessExists(Map<StreamTestWithChunksStreamChunkRow, Long> map) {
+        Map<StreamTestWithChunksStreamChunkRow, StreamTestWithChunksStreamChunkNamedColumnValue<?>> toPut = Maps.newHashMapWithExpectedSize(map.size());
+        for (Entry<StreamTestWithChunksStreamChunkRow, Long> e : map.entrySet()) {
+            toPut.put(e.getKey(), ReleaseCount.of(e.getValue()));
+        }
+        putUnlessExists(Multimaps.forMap(toPut));
+    }
+
+    @Override
+    public void put(Multimap<StreamTestWithChunksStreamChunkRow, ? extends StreamTestWithChunksStreamChunkNamedColumnValue<?>> rows) {
+        t.useTable(tableName, this);
+        t.put(tableName, ColumnValues.toCellValues(rows));
+        for (StreamTestWithChunksStreamChunkTrigger trigger : triggers) {
+            trigger.putStreamTestWithChunksStreamChunk(rows);
+        }
+    }
+
+    @Override
+    public void putUnlessExists(Multimap<StreamTestWithChunksStreamChunkRow, ? extends StreamTestWithChunksStreamChunkNamedColumnValue<?>> rows) {
+        Multimap<StreamTestWithChunksStreamChunkRow, StreamTestWithChunksStreamChunkNamedColumnValue<?>> existing = getRowsMultimap(rows.keySet());
+        Multimap<StreamTestWithChunksStreamChunkRow, StreamTestWithChunksStreamChunkNamedColumnValue<?>> toPut = HashMultimap.create();
+        for (Entry<StreamTestWithChunksStreamChunkRow, ? extends StreamTestWithChunksStreamChunkNamedColumnValue<?>> entry : rows.entries()) {
+            if (!existing.containsEntry(entry.getKey(), entry.getValue())) {
+                toPut.put(entry.getKey(), entry.getValue());
+            }
+        }
+        put(toPut);
+    }
+
+    public void deleteValue(StreamTestWithChunksStreamChunkRow row) {
+        deleteValue(ImmutableSet.of(row));
+    }
+
+    public void deleteValue(Iterable<StreamTestWithChunksStreamChunkRow> rows) {
+        byte[] col = PtBytes.toCachedBytes("v");
+        Set<Cell> cells = Cells.cellsWithConstantColumn(Persistables.persistAll(rows), col);
+        t.delete(tableName, cells);
+    }
+
+    public void deleteReleaseCount(StreamTestWithChunksStreamChunkRow row) {
+        deleteReleaseCount(ImmutableSet.of(row));
+    }
+
+    public void deleteReleaseCount(Iterable<StreamTestWithChunksStreamChunkRow> rows) {
+        byte[] col = PtBytes.toCachedBytes("d");
+        Set<Cell> cells = Cells.cellsWithConstantColumn(Persistables.persistAll(rows), col);
+        t.delete(tableName, cells);
+    }
+
+    @Override
+    public void delete(StreamTestWithChunksStreamChunkRow row) {
+        delete(ImmutableSet.of(row));
+    }
+
+    @Override
+    public void delete(Iterable<StreamTestWithChunksStreamChunkRow> rows) {
+        List<byte[]> rowBytes = Persistables.persistAll(rows);
+        Set<Cell> cells = Sets.newHashSetWithExpectedSize(rowBytes.size() * 2);
+        cells.addAll(Cells.cellsWithConstantColumn(rowBytes, PtBytes.toCachedBytes("d")));
+        cells.addAll(Cells.cellsWithConstantColumn(rowBytes, PtBytes.toCachedBytes("v")));
+        t.delete(tableName, cells);
+    }
+
+    @Override
+    public Optional<StreamTestWithChunksStreamChunkRowResult> getRow(StreamTestWithChunksStreamChunkRow row) {
+        return getRow(row, ColumnSelection.all());
+    }
+
+    @Override
+    public Optional<StreamTestWithChunksStreamChunkRowResult> getRow(StreamTestWithChunksStreamChunkRow row, ColumnSelection columns) {
+        byte[] bytes = row.persistToBytes();
+        RowResult<byte[]> rowResult = t.getRows(tableName, ImmutableSet.of(bytes), columns).get(bytes);
+        if (rowResult == null) {
+            return Optional.absent();
+        } else {
+            return Optional.of(StreamTestWithChunksStreamChunkRowResult.of(rowResult));
+        }
+    }
+
+    @Override
+    public List<StreamTestWithChunksStreamChunkRowResult> getRows(Iterable<StreamTestWithChunksStreamChunkRow> rows) {
+        return getRows(rows, ColumnSelection.all());
+    }
+
+    @Override
+    public List<StreamTestWithChunksStreamChunkRowResult> getRows(Iterable<StreamTestWithChunksStreamChunkRow> rows, ColumnSelection columns) {
+        SortedMap<byte[], RowResult<byte[]>> results = t.getRows(tableName, Persistables.persistAll(rows), columns);
+        List<StreamTestWithChunksStreamChunkRowResult> rowResults = Lists.newArrayListWithCapacity(results.size());
+        for (RowResult<byte[]> row : results.values()) {
+            rowResults.add(StreamTestWithChunksStreamChunkRowResult.of(row));
+        }
+        return rowResults;
+    }
+
+    @Override
+    public List<StreamTestWithChunksStreamChunkRowResult> getAsyncRows(Iterable<StreamTestWithChunksStreamChunkRow> rows, ExecutorService exec) {
+        return getAsyncRows(rows, ColumnSelection.all(), exec);
+    }
+
+    @Override
+    public List<StreamTestWithChunksStreamChunkRowResult> getAsyncRows(final Iterable<StreamTestWithChunksStreamChunkRow> rows, final ColumnSelection columns, ExecutorService exec) {
+        Callable<List<StreamTestWithChunksStreamChunkRowResult>> c =
+                new Callable<List<StreamTestWithChunksStreamChunkRowResult>>() {
+            @Override
+            public List<StreamTestWithChunksStreamChunkRowResult> call() {
+                return getRows(rows, columns);
+            }
+        };
+        return AsyncProxy.create(exec.submit(c), List.class);
+    }
+
+    @Override
+    public List<StreamTestWithChunksStreamChunkNamedColumnValue<?>> getRowColumns(StreamTestWithChunksStreamChunkRow row) {
+        return getRowColumns(row, ColumnSelection.all());
+    }
+
+    @Override
+    public List<StreamTestWithChunksStreamChunkNamedColumnValue<?>> getRowColumns(StreamTestWithChunksStreamChunkRow row, ColumnSelection columns) {
+        byte[] bytes = row.persistToBytes();
+        RowResult<byte[]> rowResult = t.getRows(tableName, ImmutableSet.of(bytes), columns).get(bytes);
+        if (rowResult == null) {
+            return ImmutableList.of();
+        } else {
+            List<StreamTestWithChunksStreamChunkNamedColumnValue<?>> ret = Lists.newArrayListWithCapacity(rowResult.getColumns().size());
+            for (Entry<byte[], byte[]> e : rowResult.getColumns().entrySet()) {
+                ret.add(shortNameToHydrator.get(PtBytes.toString(e.getKey())).hydrateFromBytes(e.getValue()));
+            }
+            return ret;
+        }
+    }
+
+    @Override
+    public Multimap<StreamTestWithChunksStreamChunkRow, StreamTestWithChunksStreamChunkNamedColumnValue<?>> getRowsMultimap(Iterable<StreamTestWithChunksStreamChunkRow> rows) {
+        return getRowsMultimapInternal(rows, ColumnSelection.all());
+    }
+
+    @Override
+    public Multimap<StreamTestWithChunksStreamChunkRow, StreamTestWithChunksStreamChunkNamedColumnValue<?>> getRowsMultimap(Iterable<StreamTestWithChunksStreamChunkRow> rows, ColumnSelection columns) {
+        return getRowsMultimapInternal(rows, columns);
+    }
+
+    @Override
+    public Multimap<StreamTestWithChunksStreamChunkRow, StreamTestWithChunksStreamChunkNamedColumnValue<?>> getAsyncRowsMultimap(Iterable<StreamTestWithChunksStreamChunkRow> rows, ExecutorService exec) {
+        return getAsyncRowsMultimap(rows, ColumnSelection.all(), exec);
+    }
+
+    @Override
+    public Multimap<StreamTestWithChunksStreamChunkRow, StreamTestWithChunksStreamChunkNamedColumnValue<?>> getAsyncRowsMultimap(final Iterable<StreamTestWithChunksStreamChunkRow> rows, final ColumnSelection columns, ExecutorService exec) {
+        Callable<Multimap<StreamTestWithChunksStreamChunkRow, StreamTestWithChunksStreamChunkNamedColumnValue<?>>> c =
+                new Callable<Multimap<StreamTestWithChunksStreamChunkRow, StreamTestWithChunksStreamChunkNamedColumnValue<?>>>() {
+            @Override
+            public Multimap<StreamTestWithChunksStreamChunkRow, StreamTestWithChunksStreamChunkNamedColumnValue<?>> call() {
+                return getRowsMultimapInternal(rows, columns);
+            }
+        };
+        return AsyncProxy.create(exec.submit(c), Multimap.class);
+    }
+
+    private Multimap<StreamTestWithChunksStreamChunkRow, StreamTestWithChunksStreamChunkNamedColumnValue<?>> getRowsMultimapInternal(Iterable<StreamTestWithChunksStreamChunkRow> rows, ColumnSelection columns) {
+        SortedMap<byte[], RowResult<byte[]>> results = t.getRows(tableName, Persistables.persistAll(rows), columns);
+        return getRowMapFromRowResults(results.values());
+    }
+
+    private static Multimap<StreamTestWithChunksStreamChunkRow, StreamTestWithChunksStreamChunkNamedColumnValue<?>> getRowMapFromRowResults(Collection<RowResult<byte[]>> rowResults) {
+        Multimap<StreamTestWithChunksStreamChunkRow, StreamTestWithChunksStreamChunkNamedColumnValue<?>> rowMap = HashMultimap.create();
+        for (RowResult<byte[]> result : rowResults) {
+            StreamTestWithChunksStreamChunkRow row = StreamTestWithChunksStreamChunkRow.BYTES_HYDRATOR.hydrateFromBytes(result.getRowName());
+            for (Entry<byte[], byte[]> e : result.getColumns().entrySet()) {
+                rowMap.put(row, shortNameToHydrator.get(PtBytes.toString(e.getKey())).hydrateFromBytes(e.getValue()));
+            }
+        }
+        return rowMap;
+    }
+
+    public BatchingVisitableView<StreamTestWithChunksStreamChunkRowResult> getAllRowsUnordered() {
+        return getAllRowsUnordered(ColumnSelection.all());
+    }
+
+    public BatchingVisitableView<StreamTestWithChunksStreamChunkRowResult> getAllRowsUnordered(ColumnSelection columns) {
+        return BatchingVisitables.transform(t.getRange(tableName, RangeRequest.builder().retainColumns(columns).build()),
+                new Function<RowResult<byte[]>, StreamTestWithChunksStreamChunkRowResult>() {
+            @Override
+            public StreamTestWithChunksStreamChunkRowResult apply(RowResult<byte[]> input) {
+                return StreamTestWithChunksStreamChunkRowResult.of(input);
+            }
+        });
+    }
+
+    @Override
+    public List<String> findConstraintFailures(Map<Cell, byte[]> writes,
+                                               ConstraintCheckingTransaction transaction,
+                                               AtlasDbConstraintCheckingMode constraintCheckingMode) {
+        return ImmutableList.of();
+    }
+
+    @Override
+    public List<String> findConstraintFailuresNoRead(Map<Cell, byte[]> writes,
+                                                     AtlasDbConstraintCheckingMode constraintCheckingMode) {
+        return ImmutableList.of();
+    }
+
+    static String __CLASS_HASH = "cXdr7ZGOLVFLAgURZpCQuw==";
+}
@@ -0,0 +1,642 @@
+package com.palantir.atlasdb.schema.stream.generated;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+
+
+import com.google.common.base.Function;
+import com.google.common.base.Joiner;
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Objects;
+import com.google.common.base.Optional;
+import com.google.common.base.Supplier;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Collections2;
+import com.google.common.collect.ComparisonChain;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Multimaps;
+import com.google.common.collect.Sets;
+import com.google.common.primitives.Bytes;
+import com.google.common.primitives.UnsignedBytes;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.palantir.atlasdb.compress.CompressionUtils;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
+import com.palantir.atlasdb.keyvalue.api.Prefix;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.impl.Cells;
+import com.palantir.atlasdb.ptobject.EncodingUtils;
+import com.palantir.atlasdb.schema.Namespace;
+import com.palantir.atlasdb.table.api.AtlasDbDynamicMutableExpiringTable;
+import com.palantir.atlasdb.table.api.AtlasDbDynamicMutablePersistentTable;
+import com.palantir.atlasdb.table.api.AtlasDbMutableExpiringTable;
+import com.palantir.atlasdb.table.api.AtlasDbMutablePersistentTable;
+import com.palantir.atlasdb.table.api.AtlasDbNamedExpiringSet;
+import com.palantir.atlasdb.table.api.AtlasDbNamedMutableTable;
+import com.palantir.atlasdb.table.api.AtlasDbNamedPersistentSet;
+import com.palantir.atlasdb.table.api.ColumnValue;
+import com.palantir.atlasdb.table.api.TypedRowResult;
+import com.palantir.atlasdb.table.description.ColumnValueDescription.Compression;
+import com.palantir.atlasdb.table.generation.ColumnValues;
+import com.palantir.atlasdb.table.generation.Descending;
+import com.palantir.atlasdb.table.generation.NamedColumnValue;
+import com.palantir.atlasdb.transaction.api.AtlasDbConstraintCheckingMode;
+import com.palantir.atlasdb.transaction.api.ConstraintCheckingTransaction;
+import com.palantir.atlasdb.transaction.api.Transaction;
+import com.palantir.common.base.AbortingVisitor;
+import com.palantir.common.base.AbortingVisitors;
+import com.palantir.common.base.BatchingVisitable;
+import com.palantir.common.base.BatchingVisitableView;
+import com.palantir.common.base.BatchingVisitables;
+import com.palantir.common.base.Throwables;
+import com.palantir.common.collect.IterableView;
+import com.palantir.common.persist.Persistable;
+import com.palantir.common.persist.Persistable.Hydrator;
+import com.palantir.common.persist.Persistables;
+import com.palantir.common.proxy.AsyncProxy;
+import com.palantir.util.AssertUtils;
+import com.palantir.util.crypto.Sha256Hash;
+
+
+public final class StreamTestWithChunksStreamHashAidxTable implements
+        AtlasDbDynamicMutablePersistentTable<StreamTestWithChunksStreamHashAidxTable.StreamTestWithChunksStreamHashAidxRow,
+                                                StreamTestWithChunksStreamHashAidxTable.StreamTestWithChunksStreamHashAidxColumn,
+                                                StreamTestWithChunksStreamHashAidxTable.StreamTestWithChunksStreamHashAidxColumnValue,
+                                                StreamTestWithChunksStreamHashAidxTable.StreamTestWithChunksStreamHashAidxRowResult> {
+    private final Transaction t;
+    private final List<StreamTestWithChunksStreamHashAidxTrigger> triggers;
+    private final static String rawTableName = "stream_test_with_chunks_stream_hash_aidx";
+    private final String tableName;
+    private final Namespace namespace;
+
+    static StreamTestWithChunksStreamHashAidxTable of(Transaction t, Namespace namespace) {
+        return new StreamTestWithChunksStreamHashAidxTable(t, namespace, ImmutableList.<StreamTestWithChunksStreamHashAidxTrigger>of());
+    }
+
+    static StreamTestWithChunksStreamHashAidxTable of(Transaction t, Namespace namespace, StreamTestWithChunksStreamHashAidxTrigger trigger, StreamTestWithChunksStreamHashAidxTrigger... triggers) {
+        return new StreamTestWithChunksStreamHashAidxTable(t, namespace, ImmutableList.<StreamTestWithChunksStreamHashAidxTrigger>builder().add(trigger).add(triggers).build());
+    }
+
+    static StreamTestWithChunksStreamHashAidxTable of(Transaction t, Namespace namespace, List<StreamTestWithChunksStreamHashAidxTrigger> triggers) {
+        return new StreamTestWithChunksStreamHashAidxTable(t, namespace, triggers);
+    }
+
+    private StreamTestWithChunksStreamHashAidxTable(Transaction t, Namespace namespace, List<StreamTestWithChunksStreamHashAidxTrigger> triggers) {
+        this.t = t;
+        this.tableName = namespace.getName() + "." + rawTableName;
+        this.triggers = triggers;
+        this.namespace = namespace;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public Namespace getNamespace() {
+        return namespace;
+    }
+
+    /**
+     * <pre>
+     * StreamTestWithChunksStreamHashAidxRow {
+     *   {@literal Sha256Hash hash};
+     * }
+     * </pre>
+     */
+    public static final class StreamTestWithChunksStreamHashAidxRow implements Persistable, Comparable<StreamTestWithChunksStreamHashAidxRow> {
+        private final Sha256Hash hash;
+
+        public static StreamTestWithChunksStreamHashAidxRow of(Sha256Hash hash) {
+            return new StreamTestWithChunksStreamHashAidxRow(hash);
+        }
+
+        private StreamTestWithChunksStreamHashAidxRow(Sha256Hash hash) {
+            this.hash = hash;
+        }
+
+        public Sha256Hash getHash() {
+            return hash;
+        }
+
+        public static Function<StreamTestWithChunksStreamHashAidxRow, Sha256Hash> getHashFun() {
+            return new Function<StreamTestWithChunksStreamHashAidxRow, Sha256Hash>() {
+                @Override
+                public Sha256Hash apply(StreamTestWithChunksStreamHashAidxRow row) {
+                    return row.hash;
+                }
+            };
+        }
+
+        public static Function<Sha256Hash, StreamTestWithChunksStreamHashAidxRow> fromHashFun() {
+            return new Function<Sha256Hash, StreamTestWithChunksStreamHashAidxRow>() {
+                @Override
+                public StreamTestWithChunksStreamHashAidxRow apply(Sha256Hash row) {
+                    return new StreamTestWithChunksStreamHashAidxRow(row);
+                }
+            };
+        }
+
+        @Override
+        public byte[] persistToBytes() {
+            byte[] hashBytes = hash.getBytes();
+            return EncodingUtils.add(hashBytes);
+        }
+
+        public static final Hydrator<StreamTestWithChunksStreamHashAidxRow> BYTES_HYDRATOR = new Hydrator<StreamTestWithChunksStreamHashAidxRow>() {
+            @Override
+            public StreamTestWithChunksStreamHashAidxRow hydrateFromBytes(byte[] __input) {
+                int __index = 0;
+                Sha256Hash hash = new Sha256Hash(EncodingUtils.get32Bytes(__input, __index));
+                __index += 32;
+                return of(hash);
+            }
+        };
+
+        @Override
+        public String toString() {
+            return MoreObjects.toStringHelper(getClass().getSimpleName())
+                .add("hash", hash)
+                .toString();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null) {
+                return false;
+            }
+            if (getClass() != obj.getClass()) {
+                return false;
+            }
+            StreamTestWithChunksStreamHashAidxRow other = (StreamTestWithChunksStreamHashAidxRow) obj;
+            return Objects.equal(hash, other.hash);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(hash);
+        }
+
+        @Override
+        public int compareTo(StreamTestWithChunksStreamHashAidxRow o) {
+            return ComparisonChain.start()
+                .compare(this.hash, o.hash)
+                .result();
+        }
+    }
+
+    /**
+     * <pre>
+     * StreamTestWithChunksStreamHashAidxColumn {
+     *   {@literal Long streamId};
+     * }
+     * </pre>
+     */
+    public static final class StreamTestWithChunksStreamHashAidxColumn implements Persistable, Comparable<StreamTestWithChunksStreamHashAidxColumn> {
+        private final long streamId;
+
+        public static StreamTestWithChunksStreamHashAidxColumn of(long streamId) {
+            return new StreamTestWithChunksStreamHashAidxColumn(streamId);
+        }
+
+        private StreamTestWithChunksStreamHashAidxColumn(long streamId) {
+            this.streamId = streamId;
+        }
+
+        public long getStreamId() {
+            return streamId;
+        }
+
+        public static Function<StreamTestWithChunksStreamHashAidxColumn, Long> getStreamIdFun() {
+            return new Function<StreamTestWithChunksStreamHashAidxColumn, Long>() {
+                @Override
+                public Long apply(StreamTestWithChunksStreamHashAidxColumn row) {
+                    return row.streamId;
+                }
+            };
+        }
+
+        public static Function<Long, StreamTestWithChunksStreamHashAidxColumn> fromStreamIdFun() {
+            return new Function<Long, StreamTestWithChunksStreamHashAidxColumn>() {
+                @Override
+                public StreamTestWithChunksStreamHashAidxColumn apply(Long row) {
+                    return new StreamTestWithChunksStreamHashAidxColumn(row);
+                }
+            };
+        }
+
+        @Override
+        public byte[] persistToBytes() {
+            byte[] streamIdBytes = EncodingUtils.encodeUnsignedVarLong(streamId);
+            return EncodingUtils.add(streamIdBytes);
+        }
+
+        public static final Hydrator<StreamTestWithChunksStreamHashAidxColumn> BYTES_HYDRATOR = new Hydrator<StreamTestWithChunksStreamHashAidxColumn>() {
+            @Override
+            public StreamTestWithChunksStreamHashAidxColumn hydrateFromBytes(byte[] __input) {
+                int __index = 0;
+                Long streamId = EncodingUtils.decodeUnsignedVarLong(__input, __index);
+                __index += EncodingUtils.sizeOfUnsignedVarLong(streamId);
+                return of(streamId);
+            }
+        };
+
+        @Override
+        public String toString() {
+            return MoreObjects.toStringHelper(getClass().getSimpleName())
+                .add("streamId", streamId)
+                .toString();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null) {
+                return false;
+            }
+            if (getClass() != obj.getClass()) {
+                return false;
+            }
+            StreamTestWithChunksStreamHashAidxColumn other = (StreamTestWithChunksStreamHashAidxColumn) obj;
+            return Objects.equal(streamId, other.streamId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(streamId);
+        }
+
+        @Override
+        public int compareTo(StreamTestWithChunksStreamHashAidxColumn o) {
+            return ComparisonChain.start()
+                .compare(this.streamId, o.streamId)
+                .result();
+        }
+    }
+
+    public interface StreamTestWithChunksStreamHashAidxTrigger {
+        public void putStreamTestWithChunksStreamHashAidx(Multimap<StreamTestWithChunksStreamHashAidxRow, ? extends StreamTestWithChunksStreamHashAidxColumnValue> newRows);
+    }
+
+    /**
+     * <pre>
+     * Column name description {
+     *   {@literal Long streamId};
+     * }
+     * Column value description {
+     *   type: Long;
+     * }
+     * </pre>
+     */
+    public static final class StreamTestWithChunksStreamHashAidxColumnValue implements ColumnValue<Long> {
+        private final StreamTestWithChunksStreamHashAidxColumn columnName;
+        private final Long value;
+
+        public static StreamTestWithChunksStreamHashAidxColumnValue of(StreamTestWithChunksStreamHashAidxColumn columnName, Long value) {
+            return new StreamTestWithChunksStreamHashAidxColumnValue(columnName, value);
+        }
+
+        private StreamTestWithChunksStreamHashAidxColumnValue(StreamTestWithChunksStreamHashAidxColumn columnName, Long value) {
+            this.columnName = columnName;
+            this.value = value;
+        }
+
+        public StreamTestWithChunksStreamHashAidxColumn getColumnName() {
+            return columnName;
+        }
+
+        @Override
+        public Long getValue() {
+            return value;
+        }
+
+        @Override
+        public byte[] persistColumnName() {
+            return columnName.persistToBytes();
+        }
+
+        @Override
+        public byte[] persistValue() {
+            byte[] bytes = EncodingUtils.encodeUnsignedVarLong(value);
+            return CompressionUtils.compress(bytes, Compression.NONE);
+        }
+
+        public static Long hydrateValue(byte[] bytes) {
+            bytes = CompressionUtils.decompress(bytes, Compression.NONE);
+            return EncodingUtils.decodeUnsignedVarLong(bytes, 0);
+        }
+
+        public static Function<StreamTestWithChunksStreamHashAidxColumnValue, StreamTestWithChunksStreamHashAidxColumn> getColumnNameFun() {
+            return new Function<StreamTestWithChunksStreamHashAidxColumnValue, StreamTestWithChunksStreamHashAidxColumn>() {
+                @Override
+                public StreamTestWithChunksStreamHashAidxColumn apply(StreamTestWithChunksStreamHashAidxColumnValue columnValue) {
+                    return columnValue.getColumnName();
+                }
+            };
+        }
+
+        public static Function<StreamTestWithChunksStreamHashAidxColumnValue, Long> getValueFun() {
+            return new Function<StreamTestWithChunksStreamHashAidxColumnValue, Long>() {
+                @Override
+                public Long apply(StreamTestWithChunksStreamHashAidxColumnValue columnValue) {
+                    return columnValue.getValue();
+                }
+            };
+        }
+
+        @Override
+        public String toString() {
+            return MoreObjects.toStringHelper(getClass().getSimpleName())
+                .add("ColumnName", this.columnName)
+                .add("Value", this.value)
+                .toString();
+        }
+    }
+
+    public static final class StreamTestWithChunksStreamHashAidxRowResult implements TypedRowResult {
+        private final StreamTestWithChunksStreamHashAidxRow rowName;
+        private final ImmutableSet<StreamTestWithChunksStreamHashAidxColumnValue> columnValues;
+
+        public static StreamTestWithChunksStreamHashAidxRowResult of(RowResult<byte[]> rowResult) {
+            StreamTestWithChunksStreamHashAidxRow rowName = StreamTestWithChunksStreamHashAidxRow.BYTES_HYDRATOR.hydrateFromBytes(rowResult.getRowName());
+            Set<StreamTestWithChunksStreamHashAidxColumnValue> columnValues = Sets.newHashSetWithExpectedSize(rowResult.getColumns().size());
+            for (Entry<byte[], byte[]> e : rowResult.getColumns().entrySet()) {
+                StreamTestWithChunksStreamHashAidxColumn col = StreamTestWithChunksStreamHashAidxColumn.BYTES_HYDRATOR.hydrateFromBytes(e.getKey());
+                Long value = StreamTestWithChunksStreamHashAidxColumnValue.hydrateValue(e.getValue());
+                columnValues.add(StreamTestWithChunksStreamHashAidxColumnValue.of(col, value));
+            }
+            return new StreamTestWithChunksStreamHashAidxRowResult(rowName, ImmutableSet.copyOf(columnValues));
+        }
+
+        private StreamTestWithChunksStreamHashAidxRowResult(StreamTestWithChunksStreamHashAidxRow rowName, ImmutableSet<StreamTestWithChunksStreamHashAidxColumnValue> columnValues) {
+            this.rowName = rowName;
+            this.columnValues = columnValues;
+        }
+
+        @Override
+        public StreamTestWithChunksStreamHashAidxRow getRowName() {
+            return rowName;
+        }
+
+        public Set<StreamTestWithChunksStreamHashAidxColumnValue> getColumnValues() {
+            return columnValues;
+        }
+
+        public static Function<StreamTestWithChunksStreamHashAidxRowResult, StreamTestWithChunksStreamHashAidxRow> getRowNameFun() {
+            return new Function<StreamTestWithChunksStreamHashAidxRowResult, StreamTestWithChunksStreamHashAidxRow>() {
+                @Override
+                public StreamTestWithChunksStreamHashAidxRow apply(StreamTestWithChunksStreamHashAidxRowResult rowResult) {
+                    return rowResult.rowName;
+                }
+            };
+        }
+
+        public static Function<StreamTestWithChunksStreamHashAidxRowResult, ImmutableSet<StreamTestWithChunksStreamHashAidxColumnValue>> getColumnValuesFun() {
+            return new Function<StreamTestWithChunksStreamHashAidxRowResult, ImmutableSet<StreamTestWithChunksStreamHashAidxColumnValue>>() {
+                @Override
+                public ImmutableSet<StreamTestWithChunksStreamHashAidxColumnValue> apply(StreamTestWithChunksStreamHashAidxRowResult rowResult) {
+                    return rowResult.columnValues;
+                }
+            };
+        }
+
+        @Override
+        public String toString() {
+            return MoreObjects.toStringHelper(getClass().getSimpleName())
+                .add("RowName", getRowName())
+                .add("ColumnValues", getColumnValues())
+                .toString();
+        }
+    }
+
+    @Override
+    public void delete(StreamTestWithChunksStreamHashAidxRow row, StreamTestWithChunksStreamHashAidxColumn column) {
+        delete(ImmutableMultimap.of(row, column));
+    }
+
+    @Override
+    public void delete(Iterable<StreamTestWithChunksStreamHashAidxRow> rows) {
+        Multimap<StreamTestWithChunksStreamHashAidxRow, StreamTestWithChunksStreamHashAidxColumn> toRemove = HashMultimap.create();
+        Multimap<StreamTestWithChunksStreamHashAidxRow, StreamTestWithChunksStreamHashAidxColumnValue> result = getRowsMultimap(rows);
+        for (Entry<StreamTestWithChunksStreamHashAidxRow, StreamTestWithChunksStreamHashAidxColumnValue> e : result.entries()) {
+            toRemove.put(e.getKey(), e.getValue().getColumnName());
+        }
+        delete(toRemove);
+    }
+
+    @Override
+    public void delete(Multimap<StreamTestWithChunksStreamHashAidxRow, StreamTestWithChunksStreamHashAidxColumn> values) {
+        t.delete(tableName, ColumnValues.toCells(values));
+    }
+
+    @Override
+    public void put(StreamTestWithChunksStreamHashAidxRow rowName, Iterable<StreamTestWithChunksStreamHashAidxColumnValue> values) {
+        put(ImmutableMultimap.<StreamTestWithChunksStreamHashAidxRow, StreamTestWithChunksStreamHashAidxColumnValue>builder().putAll(rowName, values).build());
+    }
+
+    @Override
+    public void put(StreamTestWithChunksStreamHashAidxRow rowName, StreamTestWithChunksStreamHashAidxColumnValue... values) {
+        put(ImmutableMultimap.<StreamTestWithChunksStreamHashAidxRow, StreamTestWithChunksStreamHashAidxColumnValue>builder().putAll(rowName, values).build());
+    }
+
+    @Override
+    public void put(Multimap<StreamTestWithChunksStreamHashAidxRow, ? extends StreamTestWithChunksStreamHashAidxColumnValue> values) {
+        t.useTable(tableName, this);
+        t.put(tableName, ColumnValues.toCellValues(values));
+        for (StreamTestWithChunksStreamHashAidxTrigger trigger : triggers) {
+            trigger.putStreamTestWithChunksStreamHashAidx(values);
+        }
+    }
+
+    @Override
+    public void putUnlessExists(StreamTestWithChunksStreamHashAidxRow rowName, Iterable<StreamTestWithChunksStreamHashAidxColumnValue> values) {
+        putUnlessExists(ImmutableMultimap.<StreamTestWithChunksStreamHashAidxRow, StreamTestWithChunksStreamHashAidxColumnValue>builder().putAll(rowName, values).build());
+    }
+
+    @Override
+    public void putUnlessExists(StreamTestWithChunksStreamHashAidxRow rowName, StreamTestWithChunksStreamHashAidxColumnValue... values) {
+        putUnlessExists(ImmutableMultimap.<StreamTestWithChunksStreamHashAidxRow, StreamTestWithChunksStreamHashAidxColumnValue>builder().putAll(rowName, values).build());
+    }
+
+    @Override
+    public void putUnlessExists(Multimap<StreamTestWithChunksStreamHashAidxRow, ? extends StreamTestWithChunksStreamHashAidxColumnValue> rows) {
+        Multimap<StreamTestWithChunksStreamHashAidxRow, StreamTestWithChunksStreamHashAidxColumn> toGet = Multimaps.transformValues(rows, StreamTestWithChunksStreamHashAidxColumnValue.getColumnNameFun());
+        Multimap<StreamTestWithChunksStreamHashAidxRow, StreamTestWithChunksStreamHashAidxColumnValue> existing = get(toGet);
+        Multimap<StreamTestWithChunksStreamHashAidxRow, StreamTestWithChunksStreamHashAidxColumnValue> toPut = HashMultimap.create();
+        for (Entry<StreamTestWithChunksStreamHashAidxRow, ? extends StreamTestWithChunksStreamHashAidxColumnValue> entry : rows.entries()) {
+            if (!existing.containsEntry(entry.getKey(), entry.getValue())) {
+                toPut.put(entry.getKey(), entry.getValue());
+            }
+        }
+        put(toPut);
+    }
+
+    @Override
+    public void touch(Multimap<StreamTestWithChunksStreamHashAidxRow, StreamTestWithChunksStreamHashAidxColumn> values) {
+        Multimap<StreamTestWithChunksStreamHashAidxRow, StreamTestWithChunksStreamHashAidxColumnValue> currentValues = get(values);
+        put(currentValues);
+        Multimap<StreamTestWithChunksStreamHashAidxRow, StreamTestWithChunksStreamHashAidxColumn> toDelete = HashMultimap.create(values);
+        for (Map.Entry<StreamTestWithChunksStreamHashAidxRow, StreamTestWithChunksStreamHashAidxColumnValue> e : currentValues.entries()) {
+            toDelete.remove(e.getKey(), e.getValue().getColumnName());
+        }
+        delete(toDelete);
+    }
+
+    public static ColumnSelection getColumnSelection(Collection<StreamTestWithChunksStreamHashAidxColumn> cols) {
+        return ColumnSelection.create(Collections2.transform(cols, Persistables.persistToBytesFunction()));
+    }
+
+    public static ColumnSelection getColumnSelection(StreamTestWithChunksStreamHashAidxColumn... cols) {
+        return getColumnSelection(Arrays.asList(cols));
+    }
+
+    @Override
+    public Multimap<StreamTestWithChunksStreamHashAidxRow, StreamTestWithChunksStreamHashAidxColumnValue> get(Multimap<StreamTestWithChunksStreamHashAidxRow, StreamTestWithChunksStreamHashAidxColumn> cells) {
+        Set<Cell> rawCells = ColumnValues.toCells(cells);
+        Map<Cell, byte[]> rawResults = t.get(tableName, rawCells);
+        Multimap<StreamTestWithChunksStreamHashAidxRow, StreamTestWithChunksStreamHashAidxColumnValue> rowMap = HashMultimap.create();
+        for (Entry<Cell, byte[]> e : rawResults.entrySet()) {
+            if (e.getValue().length > 0) {
+                StreamTestWithChunksStreamHashAidxRow row = StreamTestWithChunksStreamHashAidxRow.BYTES_HYDRATOR.hydrateFromBytes(e.getKey().getRowName());
+                StreamTestWithChunksStreamHashAidxColumn col = StreamTestWithChunksStreamHashAidxColumn.BYTES_HYDRATOR.hydrateFromBytes(e.getKey().getColumnName());
+                Long val = StreamTestWithChunksStreamHashAidxColumnValue.hydrateValue(e.getValue());
+                rowMap.put(row, StreamTestWithChunksStreamHashAidxColumnValue.of(col, val));
+            }
+        }
+        return rowMap;
+    }
+
+    @Override
+    public Multimap<StreamTestWithChunksStreamHashAidxRow, StreamTestWithChunksStreamHashAidxColumnValue> getAsync(final Multimap<StreamTestWithChunksStreamHashAidxRow, StreamTestWithChunksStreamHashAidxColumn> cells, ExecutorService exec) {
+        Callable<Multimap<StreamTestWithChunksStreamHashAidxRow, StreamTestWithChunksStreamHashAidxColumnValue>> c =
+                new Callable<Multimap<StreamTestWithChunksStreamHashAidxRow, StreamTestWithChunksStreamHashAidxColumnValue>>() {
+            @Override
+            public Multimap<StreamTestWithChunksStreamHashAidxRow, StreamTestWithChunksStreamHashAidxColumnValue> call() {
+                return get(cells);
+            }
+        };
+        return AsyncProxy.create(exec.submit(c), Multimap.class);
+    }
+
+    @Override
+    public List<StreamTestWithChunksStreamHashAidxColumnValue> getRowColumns(StreamTestWithChunksStreamHashAidxRow row) {
+        return getRowColumns(row, ColumnSelection.all());
+    }
+
+    @Override
+    public List<StreamTestWithChunksStreamHashAidxColumnValue> getRowColumns(StreamTestWithChunksStreamHashAidxRow row, ColumnSelection columns) {
+        byte[] bytes = row.persistToBytes();
+        RowResult<byte[]> rowResult = t.getRows(tableName, ImmutableSet.of(bytes), columns).get(bytes);
+        if (rowResult == null) {
+            return ImmutableList.of();
+        } else {
+            List<StreamTestWithChunksStreamHashAidxColumnValue> ret = Lists.newArrayListWithCapacity(rowResult.getColumns().size());
+            for (Entry<byte[], byte[]> e : rowResult.getColumns().entrySet()) {
+                StreamTestWithChunksStreamHashAidxColumn col = StreamTestWithChunksStreamHashAidxColumn.BYTES_HYDRATOR.hydrateFromBytes(e.getKey());
+                Long val = StreamTestWithChunksStreamHashAidxColumnValue.hydrateValue(e.getValue());
+                ret.add(StreamTestWithChunksStreamHashAidxColumnValue.of(col, val));
+            }
+            return ret;
+        }
+    }
+
+    @Override
+    public Multimap<StreamTestWithChunksStreamHashAidxRow, StreamTestWithChunksStreamHashAidxColumnValue> getRowsMultimap(Iterable<StreamTestWithChunksStreamHashAidxRow> rows) {
+        return getRowsMultimapInternal(rows, ColumnSelection.all());
+    }
+
+    @Override
+    public Multimap<StreamTestWithChunksStreamHashAidxRow, StreamTestWithChunksStreamHashAidxColumnValue> getRowsMultimap(Iterable<StreamTestWithChunksStreamHashAidxRow> rows, ColumnSelection columns) {
+        return getRowsMultimapInternal(rows, columns);
+    }
+
+    @Override
+    public Multimap<StreamTestWithChunksStreamHashAidxRow, StreamTestWithChunksStreamHashAidxColumnValue> getAsyncRowsMultimap(Iterable<StreamTestWithChunksStreamHashAidxRow> rows, ExecutorService exec) {
+        return getAsyncRowsMultimap(rows, ColumnSelection.all(), exec);
+    }
+
+    @Override
+    public Multimap<StreamTestWithChunksStreamHashAidxRow, StreamTestWithChunksStreamHashAidxColumnValue> getAsyncRowsMultimap(final Iterable<StreamTestWithChunksStreamHashAidxRow> rows, final ColumnSelection columns, ExecutorService exec) {
+        Callable<Multimap<StreamTestWithChunksStreamHashAidxRow, StreamTestWithChunksStreamHashAidxColumnValue>> c =
+                new Callable<Multimap<StreamTestWithChunksStreamHashAidxRow, StreamTestWithChunksStreamHashAidxColumnValue>>() {
+            @Override
+            public Multimap<StreamTestWithChunksStreamHashAidxRow, StreamTestWithChunksStreamHashAidxColumnValue> call() {
+                return getRowsMultimapInternal(rows, columns);
+            }
+        };
+        return AsyncProxy.create(exec.submit(c), Multimap.class);
+    }
+
+    private Multimap<StreamTestWithChunksStreamHashAidxRow, StreamTestWithChunksStreamHashAidxColumnValue> getRowsMultimapInternal(Iterable<StreamTestWithChunksStreamHashAidxRow> rows, ColumnSelection columns) {
+        SortedMap<byte[], RowResult<byte[]>> results = t.getRows(tableName, Persistables.persistAll(rows), columns);
+        return getRowMapFromRowResults(results.values());
+    }
+
+    private static Multimap<StreamTestWithChunksStreamHashAidxRow, StreamTestWithChunksStreamHashAidxColumnValue> getRowMapFromRowResults(Collection<RowResult<byte[]>> rowResults) {
+        Multimap<StreamTestWithChunksStreamHashAidxRow, StreamTestWithChunksStreamHashAidxColumnValue> rowMap = HashMultimap.create();
+        for (RowResult<byte[]> result : rowResults) {
+            StreamTestWithChunksStreamHashAidxRow row = StreamTestWithChunksStreamHashAidxRow.BYTES_HYDRATOR.hydrateFromBytes(result.getRowName());
+            for (Entry<byte[], byte[]> e : result.getColumns().entrySet()) {
+                StreamTestWithChunksStreamHashAidxColumn col = StreamTestWithChunksStreamHashAidxColumn.BYTES_HYDRATOR.hydrateFromBytes(e.getKey());
+                Long val = StreamTestWithChunksStreamHashAidxColumnValue.hydrateValue(e.getValue());
+                rowMap.put(row, StreamTestWithChunksStreamHashAidxColumnValue.of(col, val));
+            }
+        }
+        return rowMap;
+    }
+
+    public BatchingVisitableView<StreamTestWithChunksStreamHashAidxRowResult> getAllRowsUnordered() {
+        return getAllRowsUnordered(ColumnSelection.all());
+    }
+
+    public BatchingVisitableView<StreamTestWithChunksStreamHashAidxRowResult> getAllRowsUnordered(ColumnSelection columns) {
+        return BatchingVisitables.transform(t.getRange(tableName, RangeRequest.builder().retainColumns(columns).build()),
+                new Function<RowResult<byte[]>, StreamTestWithChunksStreamHashAidxRowResult>() {
+            @Override
+            public StreamTestWithChunksStreamHashAidxRowResult apply(RowResult<byte[]> input) {
+                return StreamTestWithChunksStreamHashAidxRowResult.of(input);
+            }
+        });
+    }
+
+    @Override
+    public List<String> findConstraintFailures(Map<Cell, byte[]> writes,
+                                               ConstraintCheckingTransaction transaction,
+                                               AtlasDbConstraintCheckingMode constraintCheckingMode) {
+        return ImmutableList.of();
+    }
+
+    @Override
+    public List<String> findConstraintFailuresNoRead(Map<Cell, byte[]> writes,
+                                                     AtlasDbConstraintCheckingMode constraintCheckingMode) {
+        return ImmutableList.of();
+    }
+
+    static String __CLASS_HASH = "aw7/TeJUZ5S2SVbNribBEg==";
+}
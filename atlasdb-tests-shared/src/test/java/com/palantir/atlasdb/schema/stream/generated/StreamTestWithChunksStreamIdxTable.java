@@ -0,0 +1,642 @@
+package com.palantir.atlasdb.schema.stream.generated;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+
+
+import com.google.common.base.Function;
+import com.google.common.base.Joiner;
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Objects;
+import com.google.common.base.Optional;
+import com.google.common.base.Supplier;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Collections2;
+import com.google.common.collect.ComparisonChain;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Multimaps;
+import com.google.common.collect.Sets;
+import com.google.common.primitives.Bytes;
+import com.google.common.primitives.UnsignedBytes;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.palantir.atlasdb.compress.CompressionUtils;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
+import com.palantir.atlasdb.keyvalue.api.Prefix;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.impl.Cells;
+import com.palantir.atlasdb.ptobject.EncodingUtils;
+import com.palantir.atlasdb.schema.Namespace;
+import com.palantir.atlasdb.table.api.AtlasDbDynamicMutableExpiringTable;
+import com.palantir.atlasdb.table.api.AtlasDbDynamicMutablePersistentTable;
+import com.palantir.atlasdb.table.api.AtlasDbMutableExpiringTable;
+import com.palantir.atlasdb.table.api.AtlasDbMutablePersistentTable;
+import com.palantir.atlasdb.table.api.AtlasDbNamedExpiringSet;
+import com.palantir.atlasdb.table.api.AtlasDbNamedMutableTable;
+import com.palantir.atlasdb.table.api.AtlasDbNamedPersistentSet;
+import com.palantir.atlasdb.table.api.ColumnValue;
+import com.palantir.atlasdb.table.api.TypedRowResult;
+import com.palantir.atlasdb.table.description.ColumnValueDescription.Compression;
+import com.palantir.atlasdb.table.generation.ColumnValues;
+import com.palantir.atlasdb.table.generation.Descending;
+import com.palantir.atlasdb.table.generation.NamedColumnValue;
+import com.palantir.atlasdb.transaction.api.AtlasDbConstraintCheckingMode;
+import com.palantir.atlasdb.transaction.api.ConstraintCheckingTransaction;
+import com.palantir.atlasdb.transaction.api.Transaction;
+import com.palantir.common.base.AbortingVisitor;
+import com.palantir.common.base.AbortingVisitors;
+import com.palantir.common.base.BatchingVisitable;
+import com.palantir.common.base.BatchingVisitableView;
+import com.palantir.common.base.BatchingVisitables;
+import com.palantir.common.base.Throwables;
+import com.palantir.common.collect.IterableView;
+import com.palantir.common.persist.Persistable;
+import com.palantir.common.persist.Persistable.Hydrator;
+import com.palantir.common.persist.Persistables;
+import com.palantir.common.proxy.AsyncProxy;
+import com.palantir.util.AssertUtils;
+import com.palantir.util.crypto.Sha256Hash;
+
+
+public final class StreamTestWithChunksStreamIdxTable implements
+        AtlasDbDynamicMutablePersistentTable<StreamTestWithChunksStreamIdxTable.StreamTestWithChunksStreamIdxRow,
+                                                StreamTestWithChunksStreamIdxTable.StreamTestWithChunksStreamIdxColumn,
+                                                StreamTestWithChunksStreamIdxTable.StreamTestWithChunksStreamIdxColumnValue,
+                                                StreamTestWithChunksStreamIdxTable.StreamTestWithChunksStreamIdxRowResult> {
+    private final Transaction t;
+    private final List<StreamTestWithChunksStreamIdxTrigger> triggers;
+    private final static String rawTableName = "stream_test_with_chunks_stream_idx";
+    private final String tableName;
+    private final Namespace namespace;
+
+    static StreamTestWithChunksStreamIdxTable of(Transaction t, Namespace namespace) {
+        return new StreamTestWithChunksStreamIdxTable(t, namespace, ImmutableList.<StreamTestWithChunksStreamIdxTrigger>of());
+    }
+
+    static StreamTestWithChunksStreamIdxTable of(Transaction t, Namespace namespace, StreamTestWithChunksStreamIdxTrigger trigger, StreamTestWithChunksStreamIdxTrigger... triggers) {
+        return new StreamTestWithChunksStreamIdxTable(t, namespace, ImmutableList.<StreamTestWithChunksStreamIdxTrigger>builder().add(trigger).add(triggers).build());
+    }
+
+    static StreamTestWithChunksStreamIdxTable of(Transaction t, Namespace namespace, List<StreamTestWithChunksStreamIdxTrigger> triggers) {
+        return new StreamTestWithChunksStreamIdxTable(t, namespace, triggers);
+    }
+
+    private StreamTestWithChunksStreamIdxTable(Transaction t, Namespace namespace, List<StreamTestWithChunksStreamIdxTrigger> triggers) {
+        this.t = t;
+        this.tableName = namespace.getName() + "." + rawTableName;
+        this.triggers = triggers;
+        this.namespace = namespace;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public Namespace getNamespace() {
+        return namespace;
+    }
+
+    /**
+     * <pre>
+     * StreamTestWithChunksStreamIdxRow {
+     *   {@literal Long id};
+     * }
+     * </pre>
+     */
+    public static final class StreamTestWithChunksStreamIdxRow implements Persistable, Comparable<StreamTestWithChunksStreamIdxRow> {
+        private final long id;
+
+        public static StreamTestWithChunksStreamIdxRow of(long id) {
+            return new StreamTestWithChunksStreamIdxRow(id);
+        }
+
+        private StreamTestWithChunksStreamIdxRow(long id) {
+            this.id = id;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public static Function<StreamTestWithChunksStreamIdxRow, Long> getIdFun() {
+            return new Function<StreamTestWithChunksStreamIdxRow, Long>() {
+                @Override
+                public Long apply(StreamTestWithChunksStreamIdxRow row) {
+                    return row.id;
+                }
+            };
+        }
+
+        public static Function<Long, StreamTestWithChunksStreamIdxRow> fromIdFun() {
+            return new Function<Long, StreamTestWithChunksStreamIdxRow>() {
+                @Override
+                public StreamTestWithChunksStreamIdxRow apply(Long row) {
+                    return new StreamTestWithChunksStreamIdxRow(row);
+                }
+            };
+        }
+
+        @Override
+        public byte[] persistToBytes() {
+            byte[] idBytes = EncodingUtils.encodeUnsignedVarLong(id);
+            return EncodingUtils.add(idBytes);
+        }
+
+        public static final Hydrator<StreamTestWithChunksStreamIdxRow> BYTES_HYDRATOR = new Hydrator<StreamTestWithChunksStreamIdxRow>() {
+            @Override
+            public StreamTestWithChunksStreamIdxRow hydrateFromBytes(byte[] __input) {
+                int __index = 0;
+                Long id = EncodingUtils.decodeUnsignedVarLong(__input, __index);
+                __index += EncodingUtils.sizeOfUnsignedVarLong(id);
+                return of(id);
+            }
+        };
+
+        @Override
+        public String toString() {
+            return MoreObjects.toStringHelper(getClass().getSimpleName())
+                .add("id", id)
+                .toString();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null) {
+                return false;
+            }
+            if (getClass() != obj.getClass()) {
+                return false;
+            }
+            StreamTestWithChunksStreamIdxRow other = (StreamTestWithChunksStreamIdxRow) obj;
+            return Objects.equal(id, other.id);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(id);
+        }
+
+        @Override
+        public int compareTo(StreamTestWithChunksStreamIdxRow o) {
+            return ComparisonChain.start()
+                .compare(this.id, o.id)
+                .result();
+        }
+    }
+
+    /**
+     * <pre>
+     * StreamTestWithChunksStreamIdxColumn {
+     *   {@literal byte[] reference};
+     * }
+     * </pre>
+     */
+    public static final class StreamTestWithChunksStreamIdxColumn implements Persistable, Comparable<StreamTestWithChunksStreamIdxColumn> {
+        private final byte[] reference;
+
+        public static StreamTestWithChunksStreamIdxColumn of(byte[] reference) {
+            return new StreamTestWithChunksStreamIdxColumn(reference);
+        }
+
+        private StreamTestWithChunksStreamIdxColumn(byte[] reference) {
+            this.reference = reference;
+        }
+
+        public byte[] getReference() {
+            return reference;
+        }
+
+        public static Function<StreamTestWithChunksStreamIdxColumn, byte[]> getReferenceFun() {
+            return new Function<StreamTestWithChunksStreamIdxColumn, byte[]>() {
+                @Override
+                public byte[] apply(StreamTestWithChunksStreamIdxColumn row) {
+                    return row.reference;
+                }
+            };
+        }
+
+        public static Function<byte[], StreamTestWithChunksStreamIdxColumn> fromReferenceFun() {
+            return new Function<byte[], StreamTestWithChunksStreamIdxColumn>() {
+                @Override
+                public StreamTestWithChunksStreamIdxColumn apply(byte[] row) {
+                    return new StreamTestWithChunksStreamIdxColumn(row);
+                }
+            };
+        }
+
+        @Override
+        public byte[] persistToBytes() {
+            byte[] referenceBytes = EncodingUtils.encodeSizedBytes(reference);
+            return EncodingUtils.add(referenceBytes);
+        }
+
+        public static final Hydrator<StreamTestWithChunksStreamIdxColumn> BYTES_HYDRATOR = new Hydrator<StreamTestWithChunksStreamIdxColumn>() {
+            @Override
+            public StreamTestWithChunksStreamIdxColumn hydrateFromBytes(byte[] __input) {
+                int __index = 0;
+                byte[] reference = EncodingUtils.decodeSizedBytes(__input, __index);
+                __index += EncodingUtils.sizeOfSizedBytes(reference);
+                return of(reference);
+            }
+        };
+
+        @Override
+        public String toString() {
+            return MoreObjects.toStringHelper(getClass().getSimpleName())
+                .add("reference", reference)
+                .toString();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null) {
+                return false;
+            }
+            if (getClass() != obj.getClass()) {
+                return false;
+            }
+            StreamTestWithChunksStreamIdxColumn other = (StreamTestWithChunksStreamIdxColumn) obj;
+            return Arrays.equals(reference, other.reference);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(reference);
+        }
+
+        @Override
+        public int compareTo(StreamTestWithChunksStreamIdxColumn o) {
+            return ComparisonChain.start()
+                .compare(this.reference, o.reference, UnsignedBytes.lexicographicalComparator())
+                .result();
+        }
+    }
+
+    public interface StreamTestWithChunksStreamIdxTrigger {
+        public void putStreamTestWithChunksStreamIdx(Multimap<StreamTestWithChunksStreamIdxRow, ? extends StreamTestWithChunksStreamIdxColumnValue> newRows);
+    }
+
+    /**
+     * <pre>
+     * Column name description {
+     *   {@literal byte[] reference};
+     * }
+     * Column value description {
+     *   type: Long;
+     * }
+     * </pre>
+     */
+    public static final class StreamTestWithChunksStreamIdxColumnValue implements ColumnValue<Long> {
+        private final StreamTestWithChunksStreamIdxColumn columnName;
+        private final Long value;
+
+        public static StreamTestWithChunksStreamIdxColumnValue of(StreamTestWithChunksStreamIdxColumn columnName, Long value) {
+            return new StreamTestWithChunksStreamIdxColumnValue(columnName, value);
+        }
+
+        private StreamTestWithChunksStreamIdxColumnValue(StreamTestWithChunksStreamIdxColumn columnName, Long value) {
+            this.columnName = columnName;
+            this.value = value;
+        }
+
+        public StreamTestWithChunksStreamIdxColumn getColumnName() {
+            return columnName;
+        }
+
+        @Override
+        public Long getValue() {
+            return value;
+        }
+
+        @Override
+        public byte[] persistColumnName() {
+            return columnName.persistToBytes();
+        }
+
+        @Override
+        public byte[] persistValue() {
+            byte[] bytes = EncodingUtils.encodeUnsignedVarLong(value);
+            return CompressionUtils.compress(bytes, Compression.NONE);
+        }
+
+        public static Long hydrateValue(byte[] bytes) {
+            bytes = CompressionUtils.decompress(bytes, Compression.NONE);
+            return EncodingUtils.decodeUnsignedVarLong(bytes, 0);
+        }
+
+        public static Function<StreamTestWithChunksStreamIdxColumnValue, StreamTestWithChunksStreamIdxColumn> getColumnNameFun() {
+            return new Function<StreamTestWithChunksStreamIdxColumnValue, StreamTestWithChunksStreamIdxColumn>() {
+                @Override
+                public StreamTestWithChunksStreamIdxColumn apply(StreamTestWithChunksStreamIdxColumnValue columnValue) {
+                    return columnValue.getColumnName();
+                }
+            };
+        }
+
+        public static Function<StreamTestWithChunksStreamIdxColumnValue, Long> getValueFun() {
+            return new Function<StreamTestWithChunksStreamIdxColumnValue, Long>() {
+                @Override
+                public Long apply(StreamTestWithChunksStreamIdxColumnValue columnValue) {
+                    return columnValue.getValue();
+                }
+            };
+        }
+
+        @Override
+        public String toString() {
+            return MoreObjects.toStringHelper(getClass().getSimpleName())
+                .add("ColumnName", this.columnName)
+                .add("Value", this.value)
+                .toString();
+        }
+    }
+
+    public static final class StreamTestWithChunksStreamIdxRowResult implements TypedRowResult {
+        private final StreamTestWithChunksStreamIdxRow rowName;
+        private final ImmutableSet<StreamTestWithChunksStreamIdxColumnValue> columnValues;
+
+        public static StreamTestWithChunksStreamIdxRowResult of(RowResult<byte[]> rowResult) {
+            StreamTestWithChunksStreamIdxRow rowName = StreamTestWithChunksStreamIdxRow.BYTES_HYDRATOR.hydrateFromBytes(rowResult.getRowName());
+            Set<StreamTestWithChunksStreamIdxColumnValue> columnValues = Sets.newHashSetWithExpectedSize(rowResult.getColumns().size());
+            for (Entry<byte[], byte[]> e : rowResult.getColumns().entrySet()) {
+                StreamTestWithChunksStreamIdxColumn col = StreamTestWithChunksStreamIdxColumn.BYTES_HYDRATOR.hydrateFromBytes(e.getKey());
+                Long value = StreamTestWithChunksStreamIdxColumnValue.hydrateValue(e.getValue());
+                columnValues.add(StreamTestWithChunksStreamIdxColumnValue.of(col, value));
+            }
+            return new StreamTestWithChunksStreamIdxRowResult(rowName, ImmutableSet.copyOf(columnValues));
+        }
+
+        private StreamTestWithChunksStreamIdxRowResult(StreamTestWithChunksStreamIdxRow rowName, ImmutableSet<StreamTestWithChunksStreamIdxColumnValue> columnValues) {
+            this.rowName = rowName;
+            this.columnValues = columnValues;
+        }
+
+        @Override
+        public StreamTestWithChunksStreamIdxRow getRowName() {
+            return rowName;
+        }
+
+        public Set<StreamTestWithChunksStreamIdxColumnValue> getColumnValues() {
+            return columnValues;
+        }
+
+        public static Function<StreamTestWithChunksStreamIdxRowResult, StreamTestWithChunksStreamIdxRow> getRowNameFun() {
+            return new Function<StreamTestWithChunksStreamIdxRowResult, StreamTestWithChunksStreamIdxRow>() {
+                @Override
+                public StreamTestWithChunksStreamIdxRow apply(StreamTestWithChunksStreamIdxRowResult rowResult) {
+                    return rowResult.rowName;
+                }
+            };
+        }
+
+        public static Function<StreamTestWithChunksStreamIdxRowResult, ImmutableSet<StreamTestWithChunksStreamIdxColumnValue>> getColumnValuesFun() {
+            return new Function<StreamTestWithChunksStreamIdxRowResult, ImmutableSet<StreamTestWithChunksStreamIdxColumnValue>>() {
+                @Override
+                public ImmutableSet<StreamTestWithChunksStreamIdxColumnValue> apply(StreamTestWithChunksStreamIdxRowResult rowResult) {
+                    return rowResult.columnValues;
+                }
+            };
+        }
+
+        @Override
+        public String toString() {
+            return MoreObjects.toStringHelper(getClass().getSimpleName())
+                .add("RowName", getRowName())
+                .add("ColumnValues", getColumnValues())
+                .toString();
+        }
+    }
+
+    @Override
+    public void delete(StreamTestWithChunksStreamIdxRow row, StreamTestWithChunksStreamIdxColumn column) {
+        delete(ImmutableMultimap.of(row, column));
+    }
+
+    @Override
+    public void delete(Iterable<StreamTestWithChunksStreamIdxRow> rows) {
+        Multimap<StreamTestWithChunksStreamIdxRow, StreamTestWithChunksStreamIdxColumn> toRemove = HashMultimap.create();
+        Multimap<StreamTestWithChunksStreamIdxRow, StreamTestWithChunksStreamIdxColumnValue> result = getRowsMultimap(rows);
+        for (Entry<StreamTestWithChunksStreamIdxRow, StreamTestWithChunksStreamIdxColumnValue> e : result.entries()) {
+            toRemove.put(e.getKey(), e.getValue().getColumnName());
+        }
+        delete(toRemove);
+    }
+
+    @Override
+    public void delete(Multimap<StreamTestWithChunksStreamIdxRow, StreamTestWithChunksStreamIdxColumn> values) {
+        t.delete(tableName, ColumnValues.toCells(values));
+    }
+
+    @Override
+    public void put(StreamTestWithChunksStreamIdxRow rowName, Iterable<StreamTestWithChunksStreamIdxColumnValue> values) {
+        put(ImmutableMultimap.<StreamTestWithChunksStreamIdxRow, StreamTestWithChunksStreamIdxColumnValue>builder().putAll(rowName, values).build());
+    }
+
+    @Override
+    public void put(StreamTestWithChunksStreamIdxRow rowName, StreamTestWithChunksStreamIdxColumnValue... values) {
+        put(ImmutableMultimap.<StreamTestWithChunksStreamIdxRow, StreamTestWithChunksStreamIdxColumnValue>builder().putAll(rowName, values).build());
+    }
+
+    @Override
+    public void put(Multimap<StreamTestWithChunksStreamIdxRow, ? extends StreamTestWithChunksStreamIdxColumnValue> values) {
+        t.useTable(tableName, this);
+        t.put(tableName, ColumnValues.toCellValues(values));
+        for (StreamTestWithChunksStreamIdxTrigger trigger : triggers) {
+            trigger.putStreamTestWithChunksStreamIdx(values);
+        }
+    }
+
+    @Override
+    public void putUnlessExists(StreamTestWithChunksStreamIdxRow rowName, Iterable<StreamTestWithChunksStreamIdxColumnValue> values) {
+        putUnlessExists(ImmutableMultimap.<StreamTestWithChunksStreamIdxRow, StreamTestWithChunksStreamIdxColumnValue>builder().putAll(rowName, values).build());
+    }
+
+    @Override
+    public void putUnlessExists(StreamTestWithChunksStreamIdxRow rowName, StreamTestWithChunksStreamIdxColumnValue... values) {
+        putUnlessExists(ImmutableMultimap.<StreamTestWithChunksStreamIdxRow, StreamTestWithChunksStreamIdxColumnValue>builder().putAll(rowName, values).build());
+    }
+
+    @Override
+    public void putUnlessExists(Multimap<StreamTestWithChunksStreamIdxRow, ? extends StreamTestWithChunksStreamIdxColumnValue> rows) {
+        Multimap<StreamTestWithChunksStreamIdxRow, StreamTestWithChunksStreamIdxColumn> toGet = Multimaps.transformValues(rows, StreamTestWithChunksStreamIdxColumnValue.getColumnNameFun());
+        Multimap<StreamTestWithChunksStreamIdxRow, StreamTestWithChunksStreamIdxColumnValue> existing = get(toGet);
+        Multimap<StreamTestWithChunksStreamIdxRow, StreamTestWithChunksStreamIdxColumnValue> toPut = HashMultimap.create();
+        for (Entry<StreamTestWithChunksStreamIdxRow, ? extends StreamTestWithChunksStreamIdxColumnValue> entry : rows.entries()) {
+            if (!existing.containsEntry(entry.getKey(), entry.getValue())) {
+                toPut.put(entry.getKey(), entry.getValue());
+            }
+        }
+        put(toPut);
+    }
+
+    @Override
+    public void touch(Multimap<StreamTestWithChunksStreamIdxRow, StreamTestWithChunksStreamIdxColumn> values) {
+        Multimap<StreamTestWithChunksStreamIdxRow, StreamTestWithChunksStreamIdxColumnValue> currentValues = get(values);
+        put(currentValues);
+        Multimap<StreamTestWithChunksStreamIdxRow, StreamTestWithChunksStreamIdxColumn> toDelete = HashMultimap.create(values);
+        for (Map.Entry<StreamTestWithChunksStreamIdxRow, StreamTestWithChunksStreamIdxColumnValue> e : currentValues.entries()) {
+            toDelete.remove(e.getKey(), e.getValue().getColumnName());
+        }
+        delete(toDelete);
+    }
+
+    public static ColumnSelection getColumnSelection(Collection<StreamTestWithChunksStreamIdxColumn> cols) {
+        return ColumnSelection.create(Collections2.transform(cols, Persistables.persistToBytesFunction()));
+    }
+
+    public static ColumnSelection getColumnSelection(StreamTestWithChunksStreamIdxColumn... cols) {
+        return getColumnSelection(Arrays.asList(cols));
+    }
+
+    @Override
+    public Multimap<StreamTestWithChunksStreamIdxRow, StreamTestWithChunksStreamIdxColumnValue> get(Multimap<StreamTestWithChunksStreamIdxRow, StreamTestWithChunksStreamIdxColumn> cells) {
+        Set<Cell> rawCells = ColumnValues.toCells(cells);
+        Map<Cell, byte[]> rawResults = t.get(tableName, rawCells);
+        Multimap<StreamTestWithChunksStreamIdxRow, StreamTestWithChunksStreamIdxColumnValue> rowMap = HashMultimap.create();
+        for (Entry<Cell, byte[]> e : rawResults.entrySet()) {
+            if (e.getValue().length > 0) {
+                StreamTestWithChunksStreamIdxRow row = StreamTestWithChunksStreamIdxRow.BYTES_HYDRATOR.hydrateFromBytes(e.getKey().getRowName());
+                StreamTestWithChunksStreamIdxColumn col = StreamTestWithChunksStreamIdxColumn.BYTES_HYDRATOR.hydrateFromBytes(e.getKey().getColumnName());
+                Long val = StreamTestWithChunksStreamIdxColumnValue.hydrateValue(e.getValue());
+                rowMap.put(row, StreamTestWithChunksStreamIdxColumnValue.of(col, val));
+            }
+        }
+        return rowMap;
+    }
+
+    @Override
+    public Multimap<StreamTestWithChunksStreamIdxRow, StreamTestWithChunksStreamIdxColumnValue> getAsync(final Multimap<StreamTestWithChunksStreamIdxRow, StreamTestWithChunksStreamIdxColumn> cells, ExecutorService exec) {
+        Callable<Multimap<StreamTestWithChunksStreamIdxRow, StreamTestWithChunksStreamIdxColumnValue>> c =
+                new Callable<Multimap<StreamTestWithChunksStreamIdxRow, StreamTestWithChunksStreamIdxColumnValue>>() {
+            @Override
+            public Multimap<StreamTestWithChunksStreamIdxRow, StreamTestWithChunksStreamIdxColumnValue> call() {
+                return get(cells);
+            }
+        };
+        return AsyncProxy.create(exec.submit(c), Multimap.class);
+    }
+
+    @Override
+    public List<StreamTestWithChunksStreamIdxColumnValue> getRowColumns(StreamTestWithChunksStreamIdxRow row) {
+        return getRowColumns(row, ColumnSelection.all());
+    }
+
+    @Override
+    public List<StreamTestWithChunksStreamIdxColumnValue> getRowColumns(StreamTestWithChunksStreamIdxRow row, ColumnSelection columns) {
+        byte[] bytes = row.persistToBytes();
+        RowResult<byte[]> rowResult = t.getRows(tableName, ImmutableSet.of(bytes), columns).get(bytes);
+        if (rowResult == null) {
+            return ImmutableList.of();
+        } else {
+            List<StreamTestWithChunksStreamIdxColumnValue> ret = Lists.newArrayListWithCapacity(rowResult.getColumns().size());
+            for (Entry<byte[], byte[]> e : rowResult.getColumns().entrySet()) {
+                StreamTestWithChunksStreamIdxColumn col = StreamTestWithChunksStreamIdxColumn.BYTES_HYDRATOR.hydrateFromBytes(e.getKey());
+                Long val = StreamTestWithChunksStreamIdxColumnValue.hydrateValue(e.getValue());
+                ret.add(StreamTestWithChunksStreamIdxColumnValue.of(col, val));
+            }
+            return ret;
+        }
+    }
+
+    @Override
+    public Multimap<StreamTestWithChunksStreamIdxRow, StreamTestWithChunksStreamIdxColumnValue> getRowsMultimap(Iterable<StreamTestWithChunksStreamIdxRow> rows) {
+        return getRowsMultimapInternal(rows, ColumnSelection.all());
+    }
+
+    @Override
+    public Multimap<StreamTestWithChunksStreamIdxRow, StreamTestWithChunksStreamIdxColumnValue> getRowsMultimap(Iterable<StreamTestWithChunksStreamIdxRow> rows, ColumnSelection columns) {
+        return getRowsMultimapInternal(rows, columns);
+    }
+
+    @Override
+    public Multimap<StreamTestWithChunksStreamIdxRow, StreamTestWithChunksStreamIdxColumnValue> getAsyncRowsMultimap(Iterable<StreamTestWithChunksStreamIdxRow> rows, ExecutorService exec) {
+        return getAsyncRowsMultimap(rows, ColumnSelection.all(), exec);
+    }
+
+    @Override
+    public Multimap<StreamTestWithChunksStreamIdxRow, StreamTestWithChunksStreamIdxColumnValue> getAsyncRowsMultimap(final Iterable<StreamTestWithChunksStreamIdxRow> rows, final ColumnSelection columns, ExecutorService exec) {
+        Callable<Multimap<StreamTestWithChunksStreamIdxRow, StreamTestWithChunksStreamIdxColumnValue>> c =
+                new Callable<Multimap<StreamTestWithChunksStreamIdxRow, StreamTestWithChunksStreamIdxColumnValue>>() {
+            @Override
+            public Multimap<StreamTestWithChunksStreamIdxRow, StreamTestWithChunksStreamIdxColumnValue> call() {
+                return getRowsMultimapInternal(rows, columns);
+            }
+        };
+        return AsyncProxy.create(exec.submit(c), Multimap.class);
+    }
+
+    private Multimap<StreamTestWithChunksStreamIdxRow, StreamTestWithChunksStreamIdxColumnValue> getRowsMultimapInternal(Iterable<StreamTestWithChunksStreamIdxRow> rows, ColumnSelection columns) {
+        SortedMap<byte[], RowResult<byte[]>> results = t.getRows(tableName, Persistables.persistAll(rows), columns);
+        return getRowMapFromRowResults(results.values());
+    }
+
+    private static Multimap<StreamTestWithChunksStreamIdxRow, StreamTestWithChunksStreamIdxColumnValue> getRowMapFromRowResults(Collection<RowResult<byte[]>> rowResults) {
+        Multimap<StreamTestWithChunksStreamIdxRow, StreamTestWithChunksStreamIdxColumnValue> rowMap = HashMultimap.create();
+        for (RowResult<byte[]> result : rowResults) {
+            StreamTestWithChunksStreamIdxRow row = StreamTestWithChunksStreamIdxRow.BYTES_HYDRATOR.hydrateFromBytes(result.getRowName());
+            for (Entry<byte[], byte[]> e : result.getColumns().entrySet()) {
+                StreamTestWithChunksStreamIdxColumn col = StreamTestWithChunksStreamIdxColumn.BYTES_HYDRATOR.hydrateFromBytes(e.getKey());
+                Long val = StreamTestWithChunksStreamIdxColumnValue.hydrateValue(e.getValue());
+                rowMap.put(row, StreamTestWithChunksStreamIdxColumnValue.of(col, val));
+            }
+        }
+        return rowMap;
+    }
+
+    public BatchingVisitableView<StreamTestWithChunksStreamIdxRowResult> getAllRowsUnordered() {
+        return getAllRowsUnordered(ColumnSelection.all());
+    }
+
+    public BatchingVisitableView<StreamTestWithChunksStreamIdxRowResult> getAllRowsUnordered(ColumnSelection columns) {
+        return BatchingVisitables.transform(t.getRange(tableName, RangeRequest.builder().retainColumns(columns).build()),
+                new Function<RowResult<byte[]>, StreamTestWithChunksStreamIdxRowResult>() {
+            @Override
+            public StreamTestWithChunksStreamIdxRowResult apply(RowResult<byte[]> input) {
+                return StreamTestWithChunksStreamIdxRowResult.of(input);
+            }
+        });
+    }
+
+    @Override
+    public List<String> findConstraintFailures(Map<Cell, byte[]> writes,
+                                               ConstraintCheckingTransaction transaction,
+                                               AtlasDbConstraintCheckingMode constraintCheckingMode) {
+        return ImmutableList.of();
+    }
+
+    @Override
+    public List<String> findConstraintFailuresNoRead(Map<Cell, byte[]> writes,
+                                                     AtlasDbConstraintCheckingMode constraintCheckingMode) {
+        return ImmutableList.of();
+    }
+
+    static String __CLASS_HASH = "xI239TWxTTSApd9oiweVBQ==";
+}
@@ -0,0 +1,388 @@
+package com.palantir.atlasdb.schema.stream.generated;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.CheckForNull;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Collections2;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Multimaps;
+import com.google.common.collect.Sets;
+import com.google.common.collect.Sets.SetView;
+import com.google.common.io.CountingInputStream;
+import com.google.common.primitives.Ints;
+import com.google.protobuf.ByteString;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.protos.generated.StreamPersistence.Status;
+import com.palantir.atlasdb.protos.generated.StreamPersistence.StreamMetadata;
+import com.palantir.atlasdb.protos.generated.StreamPersistence.StreamMetadata.Builder;
+import com.palantir.atlasdb.stream.AbstractExpiringStreamStore;
+import com.palantir.atlasdb.stream.AbstractPersistentStreamStore;
+import com.palantir.atlasdb.stream.ExpiringStreamStore;
+import com.palantir.atlasdb.stream.PersistentStreamStore;
+import com.palantir.atlasdb.stream.StreamCleanedException;
+import com.palantir.atlasdb.transaction.api.Transaction;
+import com.palantir.atlasdb.transaction.api.TransactionFailedRetriableException;
+import com.palantir.atlasdb.transaction.api.TransactionManager;
+import com.palantir.atlasdb.transaction.api.TransactionTask;
+import com.palantir.atlasdb.transaction.impl.TxTask;
+import com.palantir.common.base.Throwables;
+import com.palantir.common.io.ConcatenatedInputStream;
+import com.palantir.util.AssertUtils;
+import com.palantir.util.ByteArrayIOStream;
+import com.palantir.util.crypto.Sha256Hash;
+import com.palantir.util.file.DeleteOnCloseFileInputStream;
+import com.palantir.util.file.FileUtils;
+
+
+public final class StreamTestWithChunksStreamStore extends AbstractPersistentStreamStore {
+    public static final int BLOCK_SIZE_IN_BYTES = 1000000; // 1MB. DO NOT CHANGE THIS WITHOUT AN UPGRADE TASK
+    public static final int IN_MEMORY_THRESHOLD = 4000; // streams under this size are kept in memory when loaded
+    public static final String STREAM_FILE_PREFIX = "StreamTestWithChunks_stream_";
+    public static final String STREAM_FILE_SUFFIX = ".tmp";
+
+    private static final Logger log = LoggerFactory.getLogger(StreamTestWithChunksStreamStore.class);
+
+    private final StreamTestTableFactory tables;
+
+    private StreamTestWithChunksStreamStore(TransactionManager txManager, StreamTestTableFactory tables) {
+        super(txManager);
+        this.tables = tables;
+    }
+
+    public static StreamTestWithChunksStreamStore of(TransactionManager txManager, StreamTestTableFactory tables) {
+        return new StreamTestWithChunksStreamStore(txManager, tables);
+    }
+
+    /**
+     * This should only be used by test code or as a performance optimization.
+     */
+    static StreamTestWithChunksStreamStore of(StreamTestTableFactory tables) {
+        return new StreamTestWithChunksStreamStore(null, tables);
+    }
+
+    @Override
+    protected long getInMemoryThreshold() {
+        return IN_MEMORY_THRESHOLD;
+    }
+
+    @Override
+    protected boolean usesContentDefinedChunking() {
+        return true;
+    }
+
+    @Override
+    protected void reserveBlocks(final long id, final long lastBlockNumber) {
+        Preconditions.checkNotNull(txnMgr);
+        txnMgr.runTaskThrowOnConflict(new TransactionTask<Void, RuntimeException>() {
+            @Override
+            public Void execute(Transaction t) {
+                // Do a touch operation on this table to ensure we get a conflict if someone cleans it up.
+                touchMetadataWhileStoringForConflicts(t, id, lastBlockNumber);
+                return null;
+            }
+        });
+    }
+
+    @Override
+    protected void storeBlock(long id, long blockNumber, final byte[] block) {
+        Preconditions.checkArgument(block.length <= BLOCK_SIZE_IN_BYTES, "Block to store in DB must be less than BLOCK_SIZE_IN_BYTES");
+        Preconditions.checkNotNull(txnMgr);
+        final StreamTestWithChunksStreamValueTable.StreamTestWithChunksStreamValueRow row = StreamTestWithChunksStreamValueTable.StreamTestWithChunksStreamValueRow.of(id, blockNumber);
+        final Sha256Hash chunkHash = Sha256Hash.computeHash(block);
+        final long stripe = getChunkReferenceStripe(id, blockNumber);
+        try {
+            txnMgr.runTaskWithRetry(new TransactionTask<Void, RuntimeException>() {
+                @Override
+                public Void execute(Transaction t) {
+                    // Rewrite the reserved metadata unchanged, so blocks of one stream can be stored concurrently but conflict with a cleanup.
+                    touchMetadataWhileStoringBlockForConflicts(t, row.getId());
+                    addChunkReference(t, chunkHash, block, stripe);
+                    tables.getStreamTestWithChunksStreamValueTable(t).putValue(row, chunkHash.getBytes());
+                    return null;
+                }
+            });
+        } catch (RuntimeException e) {
+            log.error("Error storing block " + row.getBlockId() + " for stream id " + row.getId(), e);
+            throw e;
+        }
+    }
+
+    private void addChunkReference(Transaction t, Sha256Hash chunkHash, byte[] chunk, long stripe) {
+        StreamTestWithChunksStreamChunkTable chunkTable = tables.getStreamTestWithChunksStreamChunkTable(t);
+        StreamTestWithChunksStreamChunkTable.StreamTestWithChunksStreamChunkRow row = StreamTestWithChunksStreamChunkTable.StreamTestWithChunksStreamChunkRow.of(chunkHash);
+        Long releaseCount = chunkTable.getReleaseCounts(ImmutableSet.of(row)).get(row);
+        if (releaseCount == null) {
+            chunkTable.putValue(row, chunk);
+            chunkTable.putReleaseCount(row, 0L);
+        } else {
+            // Rewrite the release count unchanged, so this conflicts with the chunk being deleted but not with other references being added.
+            chunkTable.putReleaseCount(row, releaseCount);
+        }
+        StreamTestWithChunksStreamChunkRefTable refTable = tables.getStreamTestWithChunksStreamChunkRefTable(t);
+        StreamTestWithChunksStreamChunkRefTable.StreamTestWithChunksStreamChunkRefRow refRow = StreamTestWithChunksStreamChunkRefTable.StreamTestWithChunksStreamChunkRefRow.of(chunkHash);
+        long count = 0;
+        for (StreamTestWithChunksStreamChunkRefTable.StreamTestWithChunksStreamChunkRefColumnValue ref : refTable.getRowColumns(refRow)) {
+            if (ref.getColumnName().getStripe() == stripe) {
+                count = ref.getValue();
+            }
+        }
+        refTable.put(refRow, StreamTestWithChunksStreamChunkRefTable.StreamTestWithChunksStreamChunkRefColumnValue.of(StreamTestWithChunksStreamChunkRefTable.StreamTestWithChunksStreamChunkRefColumn.of(stripe), count + 1));
+    }
+
+    private void removeChunkReferences(Transaction t, Collection<byte[]> chunkHashes) {
+        Map<StreamTestWithChunksStreamChunkTable.StreamTestWithChunksStreamChunkRow, Long> removed = Maps.newHashMap();
+        Set<StreamTestWithChunksStreamChunkRefTable.StreamTestWithChunksStreamChunkRefRow> refRows = Sets.newHashSet();
+        for (byte[] chunkHash : chunkHashes) {
+            StreamTestWithChunksStreamChunkTable.StreamTestWithChunksStreamChunkRow row = StreamTestWithChunksStreamChunkTable.StreamTestWithChunksStreamChunkRow.of(new Sha256Hash(chunkHash));
+            Long count = removed.get(row);
+            removed.put(row, count == null ? 1L : count + 1);
+            refRows.add(StreamTestWithChunksStreamChunkRefTable.StreamTestWithChunksStreamChunkRefRow.of(row.getHash()));
+        }
+        StreamTestWithChunksStreamChunkTable chunkTable = tables.getStreamTestWithChunksStreamChunkTable(t);
+        StreamTestWithChunksStreamChunkRefTable refTable = tables.getStreamTestWithChunksStreamChunkRefTable(t);
+        Map<StreamTestWithChunksStreamChunkTable.StreamTestWithChunksStreamChunkRow, Long> releaseCounts = chunkTable.getReleaseCounts(removed.keySet());
+        Multimap<StreamTestWithChunksStreamChunkRefTable.StreamTestWithChunksStreamChunkRefRow, StreamTestWithChunksStreamChunkRefTable.StreamTestWithChunksStreamChunkRefColumnValue> refs = refTable.getRowsMultimap(refRows);
+        Set<StreamTestWithChunksStreamChunkTable.StreamTestWithChunksStreamChunkRow> unreferenced = Sets.newHashSet();
+        Multimap<StreamTestWithChunksStreamChunkRefTable.StreamTestWithChunksStreamChunkRefRow, StreamTestWithChunksStreamChunkRefTable.StreamTestWithChunksStreamChunkRefColumn> unreferencedRefs = HashMultimap.create();
+        for (Entry<StreamTestWithChunksStreamChunkTable.StreamTestWithChunksStreamChunkRow, Long> e : removed.entrySet()) {
+            StreamTestWithChunksStreamChunkRefTable.StreamTestWithChunksStreamChunkRefRow refRow = StreamTestWithChunksStreamChunkRefTable.StreamTestWithChunksStreamChunkRefRow.of(e.getKey().getHash());
+            long added = 0;
+            for (StreamTestWithChunksStreamChunkRefTable.StreamTestWithChunksStreamChunkRefColumnValue ref : refs.get(refRow)) {
+                added += ref.getValue();
+            }
+            Long releaseCount = releaseCounts.get(e.getKey());
+            long released = (releaseCount == null ? 0 : releaseCount) + e.getValue();
+            if (released < added) {
+                chunkTable.putReleaseCount(e.getKey(), released);
+            } else {
+                unreferenced.add(e.getKey());
+                for (StreamTestWithChunksStreamChunkRefTable.StreamTestWithChunksStreamChunkRefColumnValue ref : refs.get(refRow)) {
+                    unreferencedRefs.put(refRow, ref.getColumnName());
+                }
+            }
+        }
+        chunkTable.delete(unreferenced);
+        refTable.delete(unreferencedRefs);
+    }
+
+    private void touchMetadataWhileStoringForConflicts(Transaction t, Long id, long blockNumber) {
+        StreamTestWithChunksStreamMetadataTable metaTable = tables.getStreamTestWithChunksStreamMetadataTable(t);
+        StreamTestWithChunksStreamMetadataTable.StreamTestWithChunksStreamMetadataRow row = StreamTestWithChunksStreamMetadataTable.StreamTestWithChunksStreamMetadataRow.of(id);
+        StreamMetadata metadata = metaTable.getMetadatas(ImmutableSet.of(row)).values().iterator().next();
+        Preconditions.checkState(metadata.getStatus() == Status.STORING, "This stream is being cleaned up while storing blocks: " + id);
+        Builder builder = StreamMetadata.newBuilder(metadata);
+        builder.setLength(blockNumber * BLOCK_SIZE_IN_BYTES + 1);
+        metaTable.putMetadata(row, builder.build());
+    }
+
+    private void touchMetadataWhileStoringBlockForConflicts(Transaction t, Long id) {
+        StreamTestWithChunksStreamMetadataTable metaTable = tables.getStreamTestWithChunksStreamMetadataTable(t);
+        StreamTestWithChunksStreamMetadataTable.StreamTestWithChunksStreamMetadataRow row = StreamTestWithChunksStreamMetadataTable.StreamTestWithChunksStreamMetadataRow.of(id);
+        StreamMetadata metadata = metaTable.getMetadatas(ImmutableSet.of(row)).get(row);
+        Preconditions.checkState(metadata != null && metadata.getStatus() == Status.STORING, "This stream is being cleaned up while storing blocks: " + id);
+        metaTable.putMetadata(row, metadata);
+    }
+
+    @Override
+    protected void putMetadataAndHashIndexTask(Transaction t, long streamId, StreamMetadata metadata) {
+        StreamTestWithChunksStreamMetadataTable.StreamTestWithChunksStreamMetadataRow row = StreamTestWithChunksStreamMetadataTable.StreamTestWithChunksStreamMetadataRow.of(streamId);
+        StreamTestWithChunksStreamMetadataTable mdTable = tables.getStreamTestWithChunksStreamMetadataTable(t);
+        if (metadata.getStatus() == Status.STORED) {
+            StreamMetadata prevMetadata = getMetadata(t, streamId);
+            if (prevMetadata == null || prevMetadata.getStatus() != Status.STORING) {
+                // This can happen if we cleanup old streams.
+                throw new TransactionFailedRetriableException("Cannot mark a stream as stored that isn't currently storing: " + prevMetadata);
+            }
+            putHashIndexTask(t, row, metadata);
+        } else if (metadata.getStatus() == Status.STORING) {
+            StreamMetadata prevMetadata = getMetadata(t, streamId);
+            // This will prevent two users trying to store the same id.
+            if (prevMetadata != null) {
+                throw new TransactionFailedRetriableException("Cannot reuse the same stream id: " + streamId);
+            }
+        }
+
+        mdTable.putMetadata(row, metadata);
+    }
+
+    private long getNumberOfBlocksFromMetadata(StreamMetadata metadata) {
+        return (metadata.getLength() + BLOCK_SIZE_IN_BYTES - 1) / BLOCK_SIZE_IN_BYTES;
+    }
+
+    @Override
+    protected File createTempFile(Long id) throws IOException {
+        File file = FileUtils.createTempFile(STREAM_FILE_PREFIX + id, STREAM_FILE_SUFFIX);
+        file.deleteOnExit();
+        return file;
+    }
+
+    @Override
+    protected void loadSingleBlockToOutputStream(Transaction t, Long streamId, long blockId, OutputStream os) {
+        StreamTestWithChunksStreamValueTable.StreamTestWithChunksStreamValueRow row = StreamTestWithChunksStreamValueTable.StreamTestWithChunksStreamValueRow.of(streamId, blockId);
+        try {
+            os.write(getBlock(t, row));
+        } catch (RuntimeException e) {
+            log.error("Error getting block " + row.getBlockId() + " of stream " + row.getId(), e);
+            throw e;
+        } catch (IOException e) {
+            log.error("Error writing block " + row.getBlockId() + " to file when getting stream id " + row.getId(), e);
+            throw Throwables.rewrapAndThrowUncheckedException("Error writing blocks to file when creating stream.", e);
+        }
+    }
+
+    @Override
+    protected byte[] loadSingleBlock(Transaction t, Long streamId, long blockId) {
+        StreamTestWithChunksStreamValueTable.StreamTestWithChunksStreamValueRow row = StreamTestWithChunksStreamValueTable.StreamTestWithChunksStreamValueRow.of(streamId, blockId);
+        return getBlock(t, row);
+    }
+
+    private byte[] getBlock(Transaction t, StreamTestWithChunksStreamValueTable.StreamTestWithChunksStreamValueRow row) {
+        StreamTestWithChunksStreamValueTable valueTable = tables.getStreamTestWithChunksStreamValueTable(t);
+        byte[] chunkHash = valueTable.getValues(ImmutableSet.of(row)).get(row);
+        if (chunkHash == null) {
+            return null;
+        }
+        StreamTestWithChunksStreamChunkTable.StreamTestWithChunksStreamChunkRow chunkRow = StreamTestWithChunksStreamChunkTable.StreamTestWithChunksStreamChunkRow.of(new Sha256Hash(chunkHash));
+        return tables.getStreamTestWithChunksStreamChunkTable(t).getValues(ImmutableSet.of(chunkRow)).get(chunkRow);
+    }
+
+    @Override
+    protected StreamMetadata getMetadata(Transaction t, Long streamId) {
+        StreamTestWithChunksStreamMetadataTable.StreamTestWithChunksStreamMetadataRow row = StreamTestWithChunksStreamMetadataTable.StreamTestWithChunksStreamMetadataRow.of(streamId);
+        StreamTestWithChunksStreamMetadataTable table = tables.getStreamTestWithChunksStreamMetadataTable(t);
+        return table.getMetadatas(ImmutableSet.of(row)).get(row);
+    }
+
+    @Override
+    @CheckForNull
+    public Long lookupStreamIdByHash(Transaction t, Sha256Hash hash) {
+        StreamTestWithChunksStreamHashAidxTable idx = tables.getStreamTestWithChunksStreamHashAidxTable(t);
+        List<StreamTestWithChunksStreamHashAidxTable.StreamTestWithChunksStreamHashAidxColumnValue> columns = idx.getRowColumns(StreamTestWithChunksStreamHashAidxTable.StreamTestWithChunksStreamHashAidxRow.of(hash));
+        for (StreamTestWithChunksStreamHashAidxTable.StreamTestWithChunksStreamHashAidxColumnValue colVal : columns) {
+            long streamId = colVal.getColumnName().getStreamId();
+            StreamMetadata meta = getMetadata(t, streamId);
+            if (meta.getStatus() == Status.STORED) {
+                return streamId;
+            }
+        }
+        return null;
+    }
+
+    private void putHashIndexTask(Transaction t, StreamTestWithChunksStreamMetadataTable.StreamTestWithChunksStreamMetadataRow row, StreamMetadata metadata) {
+        Preconditions.checkArgument(
+                metadata.getStatus() == Status.STORED,
+                "Should only index successfully stored streams.");
+
+        Sha256Hash hash = Sha256Hash.EMPTY;
+        if (metadata.getHash() != com.google.protobuf.ByteString.EMPTY) {
+            hash = new Sha256Hash(metadata.getHash().toByteArray());
+        }
+        StreamTestWithChunksStreamHashAidxTable.StreamTestWithChunksStreamHashAidxRow hashRow = StreamTestWithChunksStreamHashAidxTable.StreamTestWithChunksStreamHashAidxRow.of(hash);
+        StreamTestWithChunksStreamHashAidxTable.StreamTestWithChunksStreamHashAidxColumn column = StreamTestWithChunksStreamHashAidxTable.StreamTestWithChunksStreamHashAidxColumn.of(row.getId());
+        StreamTestWithChunksStreamHashAidxTable.StreamTestWithChunksStreamHashAidxColumnValue columnValue = StreamTestWithChunksStreamHashAidxTable.StreamTestWithChunksStreamHashAidxColumnValue.of(column, 0L);
+        StreamTestWithChunksStreamHashAidxTable hiTable = tables.getStreamTestWithChunksStreamHashAidxTable(t);
+        hiTable.put(hashRow, columnValue);
+    }
+
+    /**
+     * This should only be used from the cleanup tasks.
+     */
+    void deleteStreams(Transaction t, final Set<Long> streamIds) {
+        if (streamIds.isEmpty()) {
+            return;
+        }
+        Set<StreamTestWithChunksStreamMetadataTable.StreamTestWithChunksStreamMetadataRow> smRows = Sets.newHashSet();
+        Multimap<StreamTestWithChunksStreamHashAidxTable.StreamTestWithChunksStreamHashAidxRow, StreamTestWithChunksStreamHashAidxTable.StreamTestWithChunksStreamHashAidxColumn> shToDelete = HashMultimap.create();
+        for (Long streamId : streamIds) {
+            smRows.add(StreamTestWithChunksStreamMetadataTable.StreamTestWithChunksStreamMetadataRow.of(streamId));
+        }
+        StreamTestWithChunksStreamMetadataTable table = tables.getStreamTestWithChunksStreamMetadataTable(t);
+        Map<StreamTestWithChunksStreamMetadataTable.StreamTestWithChunksStreamMetadataRow, StreamMetadata> metadatas = table.getMetadatas(smRows);
+        Set<StreamTestWithChunksStreamValueTable.StreamTestWithChunksStreamValueRow> streamValueToDelete = Sets.newHashSet();
+        for (Entry<StreamTestWithChunksStreamMetadataTable.StreamTestWithChunksStreamMetadataRow, StreamMetadata> e : metadatas.entrySet()) {
+            Long streamId = e.getKey().getId();
+            long blocks = getMaxNumberOfBlocks(e.getValue());
+            for (long i = 0; i < blocks; i++) {
+                streamValueToDelete.add(StreamTestWithChunksStreamValueTable.StreamTestWithChunksStreamValueRow.of(streamId, i));
+            }
+            ByteString streamHash = e.getValue().getHash();
+            Sha256Hash hash = Sha256Hash.EMPTY;
+            if (streamHash != com.google.protobuf.ByteString.EMPTY) {
+                hash = new Sha256Hash(streamHash.toByteArray());
+            } else {
+                log.error("Empty hash for stream " + streamId);
+            }
+            StreamTestWithChunksStreamHashAidxTable.StreamTestWithChunksStreamHashAidxRow hashRow = StreamTestWithChunksStreamHashAidxTable.StreamTestWithChunksStreamHashAidxRow.of(hash);
+            StreamTestWithChunksStreamHashAidxTable.StreamTestWithChunksStreamHashAidxColumn column = StreamTestWithChunksStreamHashAidxTable.StreamTestWithChunksStreamHashAidxColumn.of(streamId);
+            shToDelete.put(hashRow, column);
+        }
+        tables.getStreamTestWithChunksStreamHashAidxTable(t).delete(shToDelete);
+        removeChunkReferences(t, tables.getStreamTestWithChunksStreamValueTable(t).getValues(streamValueToDelete).values());
+        tables.getStreamTestWithChunksStreamValueTable(t).delete(streamValueToDelete);
+        table.delete(smRows);
+    }
+
+    @Override
+    protected void markStreamAsUsedInternal(Transaction t, long streamId, byte[] reference) {
+        StreamTestWithChunksStreamIdxTable index = tables.getStreamTestWithChunksStreamIdxTable(t);
+        StreamTestWithChunksStreamIdxTable.StreamTestWithChunksStreamIdxColumn col = StreamTestWithChunksStreamIdxTable.StreamTestWithChunksStreamIdxColumn.of(reference);
+        StreamTestWithChunksStreamIdxTable.StreamTestWithChunksStreamIdxColumnValue value = StreamTestWithChunksStreamIdxTable.StreamTestWithChunksStreamIdxColumnValue.of(col, 0L);
+        index.put(StreamTestWithChunksStreamIdxTable.StreamTestWithChunksStreamIdxRow.of(streamId), value);
+    }
+
+    @Override
+    public void unmarkStreamAsUsed(Transaction t, long streamId, byte[] reference) {
+        StreamTestWithChunksStreamIdxTable index = tables.getStreamTestWithChunksStreamIdxTable(t);
+        StreamTestWithChunksStreamIdxTable.StreamTestWithChunksStreamIdxRow row = StreamTestWithChunksStreamIdxTable.StreamTestWithChunksStreamIdxRow.of(streamId);
+        StreamTestWithChunksStreamIdxTable.StreamTestWithChunksStreamIdxColumn col = StreamTestWithChunksStreamIdxTable.StreamTestWithChunksStreamIdxColumn.of(reference);
+        index.delete(row, col);
+    }
+
+    @Override
+    protected void touchMetadataWhileMarkingUsedForConflicts(Transaction t, long streamId) {
+        StreamTestWithChunksStreamMetadataTable metaTable = tables.getStreamTestWithChunksStreamMetadataTable(t);
+        Set<StreamTestWithChunksStreamMetadataTable.StreamTestWithChunksStreamMetadataRow> rows = Sets.newHashSet();
+        rows.add(StreamTestWithChunksStreamMetadataTable.StreamTestWithChunksStreamMetadataRow.of(streamId));
+        Map<StreamTestWithChunksStreamMetadataTable.StreamTestWithChunksStreamMetadataRow, StreamMetadata> metadatas = metaTable.getMetadatas(rows);
+        for (Map.Entry<StreamTestWithChunksStreamMetadataTable.StreamTestWithChunksStreamMetadataRow, StreamMetadata> e : metadatas.entrySet()) {
+            StreamMetadata metadata = e.getValue();
+            Preconditions.checkState(metadata.getStatus() == Status.STORED,
+                    "Stream: " + e.getKey().getId() + " has status: " + metadata.getStatus());
+            metaTable.putMetadata(e.getKey(), metadata);
+        }
+        SetView<StreamTestWithChunksStreamMetadataTable.StreamTestWithChunksStreamMetadataRow> missingRows = Sets.difference(rows, metadatas.keySet());
+        if (!missingRows.isEmpty()) {
+            throw new StreamCleanedException("Missing metadata rows for:" + missingRows
+                    + " rows: " + rows + " metadata: " + metadatas + " txn timestamp: " + t.getTimestamp());
+        }
+    }
+
+    static final int dummy = 0;
+}
\ No newline at end of file
@@ -0,0 +1,611 @@
+package com.palantir.atlasdb.schema.stream.generated;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+
+
+import com.google.common.base.Function;
+import com.google.common.base.Joiner;
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Objects;
+import com.google.common.base.Optional;
+import com.google.common.base.Supplier;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Collections2;
+import com.google.common.collect.ComparisonChain;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Multimaps;
+import com.google.common.collect.Sets;
+import com.google.common.primitives.Bytes;
+import com.google.common.primitives.UnsignedBytes;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.palantir.atlasdb.compress.CompressionUtils;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
+import com.palantir.atlasdb.keyvalue.api.Prefix;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.impl.Cells;
+import com.palantir.atlasdb.ptobject.EncodingUtils;
+import com.palantir.atlasdb.schema.Namespace;
+import com.palantir.atlasdb.table.api.AtlasDbDynamicMutableExpiringTable;
+import com.palantir.atlasdb.table.api.AtlasDbDynamicMutablePersistentTable;
+import com.palantir.atlasdb.table.api.AtlasDbMutableExpiringTable;
+import com.palantir.atlasdb.table.api.AtlasDbMutablePersistentTable;
+import com.palantir.atlasdb.table.api.AtlasDbNamedExpiringSet;
+import com.palantir.atlasdb.table.api.AtlasDbNamedMutableTable;
+import com.palantir.atlasdb.table.api.AtlasDbNamedPersistentSet;
+import com.palantir.atlasdb.table.api.ColumnValue;
+import com.palantir.atlasdb.table.api.TypedRowResult;
+import com.palantir.atlasdb.table.description.ColumnValueDescription.Compression;
+import com.palantir.atlasdb.table.generation.ColumnValues;
+import com.palantir.atlasdb.table.generation.Descending;
+import com.palantir.atlasdb.table.generation.NamedColumnValue;
+import com.palantir.atlasdb.transaction.api.AtlasDbConstraintCheckingMode;
+import com.palantir.atlasdb.transaction.api.ConstraintCheckingTransaction;
+import com.palantir.atlasdb.transaction.api.Transaction;
+import com.palantir.common.base.AbortingVisitor;
+import com.palantir.common.base.AbortingVisitors;
+import com.palantir.common.base.BatchingVisitable;
+import com.palantir.common.base.BatchingVisitableView;
+import com.palantir.common.base.BatchingVisitables;
+import com.palantir.common.base.Throwables;
+import com.palantir.common.collect.IterableView;
+import com.palantir.common.persist.Persistable;
+import com.palantir.common.persist.Persistable.Hydrator;
+import com.palantir.common.persist.Persistables;
+import com.palantir.common.proxy.AsyncProxy;
+import com.palantir.util.AssertUtils;
+import com.palantir.util.crypto.Sha256Hash;
+
+
+public final class StreamTestWithChunksStreamValueTable implements
+        AtlasDbMutablePersistentTable<StreamTestWithChunksStreamValueTable.StreamTestWithChunksStreamValueRow,
+                                         StreamTestWithChunksStreamValueTable.StreamTestWithChunksStreamValueNamedColumnValue<?>,
+                                         StreamTestWithChunksStreamValueTable.StreamTestWithChunksStreamValueRowResult>,
+        AtlasDbNamedMutableTable<StreamTestWithChunksStreamValueTable.StreamTestWithChunksStreamValueRow,
+                                    StreamTestWithChunksStreamValueTable.StreamTestWithChunksStreamValueNamedColumnValue<?>,
+                                    StreamTestWithChunksStreamValueTable.StreamTestWithChunksStreamValueRowResult> {
+    private final Transaction t;
+    private final List<StreamTestWithChunksStreamValueTrigger> triggers;
+    private final static String rawTableName = "stream_test_with_chunks_stream_value";
+    private final String tableName;
+    private final Namespace namespace;
+
+    static StreamTestWithChunksStreamValueTable of(Transaction t, Namespace namespace) {
+        return new StreamTestWithChunksStreamValueTable(t, namespace, ImmutableList.<StreamTestWithChunksStreamValueTrigger>of());
+    }
+
+    static StreamTestWithChunksStreamValueTable of(Transaction t, Namespace namespace, StreamTestWithChunksStreamValueTrigger trigger, StreamTestWithChunksStreamValueTrigger... triggers) {
+        return new StreamTestWithChunksStreamValueTable(t, namespace, ImmutableList.<StreamTestWithChunksStreamValueTrigger>builder().add(trigger).add(triggers).build());
+    }
+
+    static StreamTestWithChunksStreamValueTable of(Transaction t, Namespace namespace, List<StreamTestWithChunksStreamValueTrigger> triggers) {
+        return new StreamTestWithChunksStreamValueTable(t, namespace, triggers);
+    }
+
+    private StreamTestWithChunksStreamValueTable(Transaction t, Namespace namespace, List<StreamTestWithChunksStreamValueTrigger> triggers) {
+        this.t = t;
+        this.tableName = namespace.getName() + "." + rawTableName;
+        this.triggers = triggers;
+        this.namespace = namespace;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public Namespace getNamespace() {
+        return namespace;
+    }
+
+    /**
+     * <pre>
+     * StreamTestWithChunksStreamValueRow {
+     *   {@literal Long id};
+     *   {@literal Long blockId};
+     * }
+     * </pre>
+     */
+    public static final class StreamTestWithChunksStreamValueRow implements Persistable, Comparable<StreamTestWithChunksStreamValueRow> {
+        private final long id;
+        private final long blockId;
+
+        public static StreamTestWithChunksStreamValueRow of(long id, long blockId) {
+            return new StreamTestWithChunksStreamValueRow(id, blockId);
+        }
+
+        private StreamTestWithChunksStreamValueRow(long id, long blockId) {
+            this.id = id;
+            this.blockId = blockId;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public long getBlockId() {
+            return blockId;
+        }
+
+        public static Function<StreamTestWithChunksStreamValueRow, Long> getIdFun() {
+            return new Function<StreamTestWithChunksStreamValueRow, Long>() {
+                @Override
+                public Long apply(StreamTestWithChunksStreamValueRow row) {
+                    return row.id;
+                }
+            };
+        }
+
+        public static Function<StreamTestWithChunksStreamValueRow, Long> getBlockIdFun() {
+            return new Function<StreamTestWithChunksStreamValueRow, Long>() {
+                @Override
+                public Long apply(StreamTestWithChunksStreamValueRow row) {
+                    return row.blockId;
+                }
+            };
+        }
+
+        @Override
+        public byte[] persistToBytes() {
+            byte[] idBytes = EncodingUtils.encodeUnsignedVarLong(id);
+            byte[] blockIdBytes = EncodingUtils.encodeUnsignedVarLong(blockId);
+            return EncodingUtils.add(idBytes, blockIdBytes);
+        }
+
+        public static final Hydrator<StreamTestWithChunksStreamValueRow> BYTES_HYDRATOR = new Hydrator<StreamTestWithChunksStreamValueRow>() {
+            @Override
+            public StreamTestWithChunksStreamValueRow hydrateFromBytes(byte[] __input) {
+                int __index = 0;
+                Long id = EncodingUtils.decodeUnsignedVarLong(__input, __index);
+                __index += EncodingUtils.sizeOfUnsignedVarLong(id);
+                Long blockId = EncodingUtils.decodeUnsignedVarLong(__input, __index);
+                __index += EncodingUtils.sizeOfUnsignedVarLong(blockId);
+                return of(id, blockId);
+            }
+        };
+
+        @Override
+        public String toString() {
+            return MoreObjects.toStringHelper(getClass().getSimpleName())
+                .add("id", id)
+                .add("blockId", blockId)
+                .toString();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null) {
+                return false;
+            }
+            if (getClass() != obj.getClass()) {
+                return false;
+            }
+            StreamTestWithChunksStreamValueRow other = (StreamTestWithChunksStreamValueRow) obj;
+            return Objects.equal(id, other.id) && Objects.equal(blockId, other.blockId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(id, blockId);
+        }
+
+        @Override
+        public int compareTo(StreamTestWithChunksStreamValueRow o) {
+            return ComparisonChain.start()
+                .compare(this.id, o.id)
+                .compare(this.blockId, o.blockId)
+                .result();
+        }
+    }
+
+    public interface StreamTestWithChunksStreamValueNamedColumnValue<T> extends NamedColumnValue<T> { /* */ }
+
+    /**
+     * <pre>
+     * Column value description {
+     *   type: byte[];
+     * }
+     * </pre>
+     */
+    public static final class Value implements StreamTestWithChunksStreamValueNamedColumnValue<byte[]> {
+        private final byte[] value;
+
+        public static Value of(byte[] value) {
+            return new Value(value);
+        }
+
+        private Value(byte[] value) {
+            this.value = value;
+        }
+
+        @Override
+        public String getColumnName() {
+            return "value";
+        }
+
+        @Override
+        public String getShortColumnName() {
+            return "v";
+        }
+
+        @Override
+        public byte[] getValue() {
+            return value;
+        }
+
+        @Override
+        public byte[] persistValue() {
+            byte[] bytes = value;
+            return CompressionUtils.compress(bytes, Compression.NONE);
+        }
+
+        @Override
+        public byte[] persistColumnName() {
+            return PtBytes.toCachedBytes("v");
+        }
+
+        public static final Hydrator<Value> BYTES_HYDRATOR = new Hydrator<Value>() {
+            @Override
+            public Value hydrateFromBytes(byte[] bytes) {
+                bytes = CompressionUtils.decompress(bytes, Compression.NONE);
+                return of(EncodingUtils.getBytesFromOffsetToEnd(bytes, 0));
+            }
+        };
+
+        @Override
+        public String toString() {
+            return MoreObjects.toStringHelper(getClass().getSimpleName())
+                .add("Value", this.value)
+                .toString();
+        }
+    }
+
+    public interface StreamTestWithChunksStreamValueTrigger {
+        public void putStreamTestWithChunksStreamValue(Multimap<StreamTestWithChunksStreamValueRow, ? extends StreamTestWithChunksStreamValueNamedColumnValue<?>> newRows);
+    }
+
+    public static final class StreamTestWithChunksStreamValueRowResult implements TypedRowResult {
+        private final RowResult<byte[]> row;
+
+        public static StreamTestWithChunksStreamValueRowResult of(RowResult<byte[]> row) {
+            return new StreamTestWithChunksStreamValueRowResult(row);
+        }
+
+        private StreamTestWithChunksStreamValueRowResult(RowResult<byte[]> row) {
+            this.row = row;
+        }
+
+        @Override
+        public StreamTestWithChunksStreamValueRow getRowName() {
+            return StreamTestWithChunksStreamValueRow.BYTES_HYDRATOR.hydrateFromBytes(row.getRowName());
+        }
+
+        public static Function<StreamTestWithChunksStreamValueRowResult, StreamTestWithChunksStreamValueRow> getRowNameFun() {
+            return new Function<StreamTestWithChunksStreamValueRowResult, StreamTestWithChunksStreamValueRow>() {
+                @Override
+                public StreamTestWithChunksStreamValueRow apply(StreamTestWithChunksStreamValueRowResult rowResult) {
+                    return rowResult.getRowName();
+                }
+            };
+        }
+
+        public static Function<RowResult<byte[]>, StreamTestWithChunksStreamValueRowResult> fromRawRowResultFun() {
+            return new Function<RowResult<byte[]>, StreamTestWithChunksStreamValueRowResult>() {
+                @Override
+                public StreamTestWithChunksStreamValueRowResult apply(RowResult<byte[]> rowResult) {
+                    return new StreamTestWithChunksStreamValueRowResult(rowResult);
+                }
+            };
+        }
+
+        public boolean hasValue() {
+            return row.getColumns().containsKey(PtBytes.toCachedBytes("v"));
+        }
+
+        public byte[] getValue() {
+            byte[] bytes = row.getColumns().get(PtBytes.toCachedBytes("v"));
+            if (bytes == null) {
+                return null;
+            }
+            Value value = Value.BYTES_HYDRATOR.hydrateFromBytes(bytes);
+            return value.getValue();
+        }
+
+        public static Function<StreamTestWithChunksStreamValueRowResult, byte[]> getValueFun() {
+            return new Function<StreamTestWithChunksStreamValueRowResult, byte[]>() {
+                @Override
+                public byte[] apply(StreamTestWithChunksStreamValueRowResult rowResult) {
+                    return rowResult.getValue();
+                }
+            };
+        }
+
+        @Override
+        public String toString() {
+            return MoreObjects.toStringHelper(getClass().getSimpleName())
+                .add("RowName", getRowName())
+                .add("Value", getValue())
+                .toString();
+        }
+    }
+
+    public enum StreamTestWithChunksStreamValueNamedColumn {
+        VALUE {
+            @Override
+            public byte[] getShortName() {
+                return PtBytes.toCachedBytes("v");
+            }
+        };
+
+        public abstract byte[] getShortName();
+
+        public static Function<StreamTestWithChunksStreamValueNamedColumn, byte[]> toShortName() {
+            return new Function<StreamTestWithChunksStreamValueNamedColumn, byte[]>() {
+                @Override
+                public byte[] apply(StreamTestWithChunksStreamValueNamedColumn namedColumn) {
+                    return namedColumn.getShortName();
+                }
+            };
+        }
+    }
+
+    public static ColumnSelection getColumnSelection(Collection<StreamTestWithChunksStreamValueNamedColumn> cols) {
+        return ColumnSelection.create(Collections2.transform(cols, StreamTestWithChunksStreamValueNamedColumn.toShortName()));
+    }
+
+    public static ColumnSelection getColumnSelection(StreamTestWithChunksStreamValueNamedColumn... cols) {
+        return getColumnSelection(Arrays.asList(cols));
+    }
+
+    private static final Map<String, Hydrator<? extends StreamTestWithChunksStreamValueNamedColumnValue<?>>> shortNameToHydrator =
+            ImmutableMap.<String, Hydrator<? extends StreamTestWithChunksStreamValueNamedColumnValue<?>>>builder()
+                .put("v", Value.BYTES_HYDRATOR)
+                .build();
+
+    public Map<StreamTestWithChunksStreamValueRow, byte[]> getValues(Collection<StreamTestWithChunksStreamValueRow> rows) {
+        Map<Cell, StreamTestWithChunksStreamValueRow> cells = Maps.newHashMapWithExpectedSize(rows.size());
+        for (StreamTestWithChunksStreamValueRow row : rows) {
+            cells.put(Cell.create(row.persistToBytes(), PtBytes.toCachedBytes("v")), row);
+        }
+        Map<Cell, byte[]> results = t.get(tableName, cells.keySet());
+        Map<StreamTestWithChunksStreamValueRow, byte[]> ret = Maps.newHashMapWithExpectedSize(results.size());
+        for (Entry<Cell, byte[]> e : results.entrySet()) {
+            byte[] val = Value.BYTES_HYDRATOR.hydrateFromBytes(e.getValue()).getValue();
+            ret.put(cells.get(e.getKey()), val);
+        }
+        return ret;
+    }
+
+    public void putValue(StreamTestWithChunksStreamValueRow row, byte[] value) {
+        put(ImmutableMultimap.of(row, Value.of(value)));
+    }
+
+    public void putValue(Map<StreamTestWithChunksStreamValueRow, byte[]> map) {
+        Map<StreamTestWithChunksStreamValueRow, StreamTestWithChunksStreamValueNamedColumnValue<?>> toPut = Maps.newHashMapWithExpectedSize(map.size());
+        for (Entry<StreamTestWithChunksStreamValueRow, byte[]> e : map.entrySet()) {
+            toPut.put(e.getKey(), Value.of(e.getValue()));
+        }
+        put(Multimaps.forMap(toPut));
+    }
+
+    public void putValueUnlessExists(StreamTestWithChunksStreamValueRow row, byte[] value) {
+        putUnlessExists(ImmutableMultimap.of(row, Value.of(value)));
+    }
+
+    public void putValueUnlessExists(Map<StreamTestWithChunksStreamValueRow, byte[]> map) {
+        Map<StreamTestWithChunksStreamValueRow, StreamTestWithChunksStreamValueNamedColumnValue<?>> toPut = Maps.newHashMapWithExpectedSize(map.size());
+        for (Entry<StreamTestWithChunksStreamValueRow, byte[]> e : map.entrySet()) {
+            toPut.put(e.getKey(), Value.of(e.getValue()));
+        }
+        putUnlessExists(Multimaps.forMap(toPut));
+    }
+
+    @Override
+    public void put(Multimap<StreamTestWithChunksStreamValueRow, ? extends StreamTestWithChunksStreamValueNamedColumnValue<?>> rows) {
+        t.useTable(tableName, this);
+        t.put(tableName, ColumnValues.toCellValues(rows));
+        for (StreamTestWithChunksStreamValueTrigger trigger : triggers) {
+            trigger.putStreamTestWithChunksStreamValue(rows);
+        }
+    }
+
+    @Override
+    public void putUnlessExists(Multimap<StreamTestWithChunksStreamValueRow, ? extends StreamTestWithChunksStreamValueNamedColumnValue<?>> rows) {
+        Multimap<StreamTestWithChunksStreamValueRow, StreamTestWithChunksStreamValueNamedColumnValue<?>> existing = getRowsMultimap(rows.keySet());
+        Multimap<StreamTestWithChunksStreamValueRow, StreamTestWithChunksStreamValueNamedColumnValue<?>> toPut = HashMultimap.create();
+        for (Entry<StreamTestWithChunksStreamValueRow, ? extends StreamTestWithChunksStreamValueNamedColumnValue<?>> entry : rows.entries()) {
+            if (!existing.containsEntry(entry.getKey(), entry.getValue())) {
+                toPut.put(entry.getKey(), entry.getValue());
+            }
+        }
+        put(toPut);
+    }
+
+    public void deleteValue(StreamTestWithChunksStreamValueRow row) {
+        deleteValue(ImmutableSet.of(row));
+    }
+
+    public void deleteValue(Iterable<StreamTestWithChunksStreamValueRow> rows) {
+        byte[] col = PtBytes.toCachedBytes("v");
+        Set<Cell> cells = Cells.cellsWithConstantColumn(Persistables.persistAll(rows), col);
+        t.delete(tableName, cells);
+    }
+
+    @Override
+    public void delete(StreamTestWithChunksStreamValueRow row) {
+        delete(ImmutableSet.of(row));
+    }
+
+    @Override
+    public void delete(Iterable<StreamTestWithChunksStreamValueRow> rows) {
+        List<byte[]> rowBytes = Persistables.persistAll(rows);
+        Set<Cell> cells = Sets.newHashSetWithExpectedSize(rowBytes.size());
+        cells.addAll(Cells.cellsWithConstantColumn(rowBytes, PtBytes.toCachedBytes("v")));
+        t.delete(tableName, cells);
+    }
+
+    @Override
+    public Optional<StreamTestWithChunksStreamValueRowResult> getRow(StreamTestWithChunksStreamValueRow row) {
+        return getRow(row, ColumnSelection.all());
+    }
+
+    @Override
+    public Optional<StreamTestWithChunksStreamValueRowResult> getRow(StreamTestWithChunksStreamValueRow row, ColumnSelection columns) {
+        byte[] bytes = row.persistToBytes();
+        RowResult<byte[]> rowResult = t.getRows(tableName, ImmutableSet.of(bytes), columns).get(bytes);
+        if (rowResult == null) {
+            return Optional.absent();
+        } else {
+            return Optional.of(StreamTestWithChunksStreamValueRowResult.of(rowResult));
+        }
+    }
+
+    @Override
+    public List<StreamTestWithChunksStreamValueRowResult> getRows(Iterable<StreamTestWithChunksStreamValueRow> rows) {
+        return getRows(rows, ColumnSelection.all());
+    }
+
+    @Override
+    public List<StreamTestWithChunksStreamValueRowResult> getRows(Iterable<StreamTestWithChunksStreamValueRow> rows, ColumnSelection columns) {
+        SortedMap<byte[], RowResult<byte[]>> results = t.getRows(tableName, Persistables.persistAll(rows), columns);
+        List<StreamTestWithChunksStreamValueRowResult> rowResults = Lists.newArrayListWithCapacity(results.size());
+        for (RowResult<byte[]> row : results.values()) {
+            rowResults.add(StreamTestWithChunksStreamValueRowResult.of(row));
+        }
+        return rowResults;
+    }
+
+    @Override
+    public List<StreamTestWithChunksStreamValueRowResult> getAsyncRows(Iterable<StreamTestWithChunksStreamValueRow> rows, ExecutorService exec) {
+        return getAsyncRows(rows, ColumnSelection.all(), exec);
+    }
+
+    @Override
+    public List<StreamTestWithChunksStreamValueRowResult> getAsyncRows(final Iterable<StreamTestWithChunksStreamValueRow> rows, final ColumnSelection columns, ExecutorService exec) {
+        Callable<List<StreamTestWithChunksStreamValueRowResult>> c =
+                new Callable<List<StreamTestWithChunksStreamValueRowResult>>() {
+            @Override
+            public List<StreamTestWithChunksStreamValueRowResult> call() {
+                return getRows(rows, columns);
+            }
+        };
+        return AsyncProxy.create(exec.submit(c), List.class);
+    }
+
+    @Override
+    public List<StreamTestWithChunksStreamValueNamedColumnValue<?>> getRowColumns(StreamTestWithChunksStreamValueRow row) {
+        return getRowColumns(row, ColumnSelection.all());
+    }
+
+    @Override
+    public List<StreamTestWithChunksStreamValueNamedColumnValue<?>> getRowColumns(StreamTestWithChunksStreamValueRow row, ColumnSelection columns) {
+        byte[] bytes = row.persistToBytes();
+        RowResult<byte[]> rowResult = t.getRows(tableName, ImmutableSet.of(bytes), columns).get(bytes);
+        if (rowResult == null) {
+            return ImmutableList.of();
+        } else {
+            List<StreamTestWithChunksStreamValueNamedColumnValue<?>> ret = Lists.newArrayListWithCapacity(rowResult.getColumns().size());
+            for (Entry<byte[], byte[]> e : rowResult.getColumns().entrySet()) {
+                ret.add(shortNameToHydrator.get(PtBytes.toString(e.getKey())).hydrateFromBytes(e.getValue()));
+            }
+            return ret;
+        }
+    }
+
+    @Override
+    public Multimap<StreamTestWithChunksStreamValueRow, StreamTestWithChunksStreamValueNamedColumnValue<?>> getRowsMultimap(Iterable<StreamTestWithChunksStreamValueRow> rows) {
+        return getRowsMultimapInternal(rows, ColumnSelection.all());
+    }
+
+    @Override
+    public Multimap<StreamTestWithChunksStreamValueRow, StreamTestWithChunksStreamValueNamedColumnValue<?>> getRowsMultimap(Iterable<StreamTestWithChunksStreamValueRow> rows, ColumnSelection columns) {
+        return getRowsMultimapInternal(rows, columns);
+    }
+
+    @Override
+    public Multimap<StreamTestWithChunksStreamValueRow, StreamTestWithChunksStreamValueNamedColumnValue<?>> getAsyncRowsMultimap(Iterable<StreamTestWithChunksStreamValueRow> rows, ExecutorService exec) {
+        return getAsyncRowsMultimap(rows, ColumnSelection.all(), exec);
+    }
+
+    @Override
+    public Multimap<StreamTestWithChunksStreamValueRow, StreamTestWithChunksStreamValueNamedColumnValue<?>> getAsyncRowsMultimap(final Iterable<StreamTestWithChunksStreamValueRow> rows, final ColumnSelection columns, ExecutorService exec) {
+        Callable<Multimap<StreamTestWithChunksStreamValueRow, StreamTestWithChunksStreamValueNamedColumnValue<?>>> c =
+                new Callable<Multimap<StreamTestWithChunksStreamValueRow, StreamTestWithChunksStreamValueNamedColumnValue<?>>>() {
+            @Override
+            public Multimap<StreamTestWithChunksStreamValueRow, StreamTestWithChunksStreamValueNamedColumnValue<?>> call() {
+                return getRowsMultimapInternal(rows, columns);
+            }
+        };
+        return AsyncProxy.create(exec.submit(c), Multimap.class);
+    }
+
+    private Multimap<StreamTestWithChunksStreamValueRow, StreamTestWithChunksStreamValueNamedColumnValue<?>> getRowsMultimapInternal(Iterable<StreamTestWithChunksStreamValueRow> rows, ColumnSelection columns) {
+        SortedMap<byte[], RowResult<byte[]>> results = t.getRows(tableName, Persistables.persistAll(rows), columns);
+        return getRowMapFromRowResults(results.values());
+    }
+
+    private static Multimap<StreamTestWithChunksStreamValueRow, StreamTestWithChunksStreamValueNamedColumnValue<?>> getRowMapFromRowResults(Collection<RowResult<byte[]>> rowResults) {
+        Multimap<StreamTestWithChunksStreamValueRow, StreamTestWithChunksStreamValueNamedColumnValue<?>> rowMap = HashMultimap.create();
+        for (RowResult<byte[]> result : rowResults) {
+            StreamTestWithChunksStreamValueRow row = StreamTestWithChunksStreamValueRow.BYTES_HYDRATOR.hydrateFromBytes(result.getRowName());
+            for (Entry<byte[], byte[]> e : result.getColumns().entrySet()) {
+                rowMap.put(row, shortNameToHydrator.get(PtBytes.toString(e.getKey())).hydrateFromBytes(e.getValue()));
+            }
+        }
+        return rowMap;
+    }
+
+    public BatchingVisitableView<StreamTestWithChunksStreamValueRowResult> getAllRowsUnordered() {
+        return getAllRowsUnordered(ColumnSelection.all());
+    }
+
+    public BatchingVisitableView<StreamTestWithChunksStreamValueRowResult> getAllRowsUnordered(ColumnSelection columns) {
+        return BatchingVisitables.transform(t.getRange(tableName, RangeRequest.builder().retainColumns(columns).build()),
+                new Function<RowResult<byte[]>, StreamTestWithChunksStreamValueRowResult>() {
+            @Override
+            public StreamTestWithChunksStreamValueRowResult apply(RowResult<byte[]> input) {
+                return StreamTestWithChunksStreamValueRowResult.of(input);
+            }
+        });
+    }
+
+    @Override
+    public List<String> findConstraintFailures(Map<Cell, byte[]> writes,
+                                               ConstraintCheckingTransaction transaction,
+                                               AtlasDbConstraintCheckingMode constraintCheckingMode) {
+        return ImmutableList.of();
+    }
+
+    @Override
+    public List<String> findConstraintFailuresNoRead(Map<Cell, byte[]> writes,
+                                                     AtlasDbConstraintCheckingMode constraintCheckingMode) {
+        return ImmutableList.of();
+    }
+
+    static String __CLASS_HASH = "oWOX8zX3oZr+plyaVqfC7A==";
+}
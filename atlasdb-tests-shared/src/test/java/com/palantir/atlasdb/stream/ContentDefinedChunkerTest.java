@@ -0,0 +1,106 @@
+/**
+ * Copyright 2015 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.primitives.Bytes;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.util.crypto.Sha256Hash;
+
+public class ContentDefinedChunkerTest {
+    @Test
+    public void testChunksCoverStream() throws IOException {
+        byte[] data = randomBytes(10 * ContentDefinedChunker.MAX_CHUNK_SIZE + 12345, 0);
+        List<byte[]> chunks = chunk(data);
+
+        ByteArrayOutputStream joined = new ByteArrayOutputStream();
+        for (int i = 0; i < chunks.size(); i++) {
+            byte[] chunk = chunks.get(i);
+            assertTrue(chunk.length <= ContentDefinedChunker.MAX_CHUNK_SIZE);
+            if (i < chunks.size() - 1) {
+                assertTrue(chunk.length >= ContentDefinedChunker.MIN_CHUNK_SIZE);
+            }
+            joined.write(chunk);
+        }
+        assertArrayEquals(data, joined.toByteArray());
+    }
+
+    @Test
+    public void testEmptyStream() throws IOException {
+        assertEquals(0, chunk(new byte[0]).size());
+    }
+
+    @Test
+    public void testInsertionOnlyChangesNearbyChunks() throws IOException {
+        byte[] original = randomBytes(40 * ContentDefinedChunker.MIN_CHUNK_SIZE, 1);
+        byte[] inserted = randomBytes(100, 2);
+        int offset = original.length / 3;
+        byte[] edited = Bytes.concat(
+                PtBytes.head(original, offset),
+                inserted,
+                PtBytes.tail(original, original.length - offset));
+
+        Set<Sha256Hash> originalChunks = hashes(chunk(original));
+        List<byte[]> editedChunks = chunk(edited);
+        int shared = 0;
+        for (Sha256Hash hash : hashes(editedChunks)) {
+            if (originalChunks.contains(hash)) {
+                shared++;
+            }
+        }
+        assertTrue("only " + shared + " of " + editedChunks.size() + " chunks are shared",
+                shared >= editedChunks.size() - 2);
+    }
+
+    private static List<byte[]> chunk(byte[] data) throws IOException {
+        ContentDefinedChunker chunker = new ContentDefinedChunker(new ByteArrayInputStream(data));
+        byte[] buffer = new byte[ContentDefinedChunker.MAX_CHUNK_SIZE];
+        List<byte[]> chunks = Lists.newArrayList();
+        int length;
+        while ((length = chunker.nextChunk(buffer)) > 0) {
+            chunks.add(PtBytes.head(buffer, length));
+        }
+        return chunks;
+    }
+
+    private static Set<Sha256Hash> hashes(List<byte[]> chunks) {
+        Set<Sha256Hash> hashes = Sets.newHashSet();
+        for (byte[] chunk : chunks) {
+            hashes.add(Sha256Hash.computeHash(chunk));
+        }
+        return hashes;
+    }
+
+    private static byte[] randomBytes(int length, long seed) {
+        byte[] bytes = new byte[length];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,141 @@
+/**
+ * Copyright 2015 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.stream;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
+import com.palantir.atlasdb.protos.generated.StreamPersistence.StreamMetadata;
+import com.palantir.atlasdb.table.description.ColumnValueDescription.Compression;
+import com.palantir.atlasdb.transaction.api.Transaction;
+import com.palantir.atlasdb.transaction.api.TransactionManager;
+import com.palantir.common.base.Throwables;
+import com.palantir.util.Pair;
+import com.palantir.util.crypto.Sha256Hash;
+
+/**
+ * A persistent stream store that keeps its metadata and blocks in maps instead of tables, so tests
+ * can look at exactly what is stored.  Streams are never marked as used or cleaned up.
+ */
+final class InMemoryPersistentStreamStore extends AbstractPersistentStreamStore {
+    private volatile Compression blockCompression;
+    private final ConcurrentMap<Long, StreamMetadata> metadata = Maps.newConcurrentMap();
+    private final ConcurrentMap<Pair<Long, Long>, byte[]> blocks = Maps.newConcurrentMap();
+    private final AtomicLong storedBytes = new AtomicLong();
+
+    InMemoryPersistentStreamStore(TransactionManager txManager, Compression blockCompression) {
+        super(txManager);
+        this.blockCompression = blockCompression;
+    }
+
+    /**
+     * @return the number of bytes of blocks stored so far
+     */
+    long getStoredBytes() {
+        return storedBytes.get();
+    }
+
+    /**
+     * Changes the compression of streams stored from now on, as a schema change would.
+     */
+    void setBlockCompression(Compression blockCompression) {
+        this.blockCompression = blockCompression;
+    }
+
+    void putMetadata(long streamId, StreamMetadata streamMetadata) {
+        metadata.put(streamId, streamMetadata);
+    }
+
+    @Override
+    protected Compression getBlockCompression() {
+        return blockCompression;
+    }
+
+    @Override
+    protected long getInMemoryThreshold() {
+        return BLOCK_SIZE_IN_BYTES;
+    }
+
+    @Override
+    protected void reserveBlocks(long id, long lastBlockNumber) {
+        // nothing is ever cleaned up
+    }
+
+    @Override
+    protected void storeBlock(long id, long blockNumber, byte[] block) {
+        // As the generated stores check.
+        Preconditions.checkArgument(block.length <= BLOCK_SIZE_IN_BYTES + COMPRESSED_BLOCK_HEADER_SIZE);
+        // The writer reuses the buffers of uncompressed blocks.
+        blocks.put(Pair.create(id, blockNumber), block.clone());
+        storedBytes.addAndGet(block.length);
+    }
+
+    @Override
+    protected File createTempFile(Long id) throws IOException {
+        File file = File.createTempFile("in_memory_stream_" + id + "_", ".tmp");
+        file.deleteOnExit();
+        return file;
+    }
+
+    @Override
+    protected void loadSingleBlockToOutputStream(Transaction t, Long streamId, long blockId, OutputStream os) {
+        try {
+            os.write(loadSingleBlock(t, streamId, blockId));
+        } catch (IOException e) {
+            throw Throwables.rewrapAndThrowUncheckedException(e);
+        }
+    }
+
+    @Override
+    protected byte[] loadSingleBlock(Transaction t, Long streamId, long blockId) {
+        return blocks.get(Pair.create(streamId, blockId));
+    }
+
+    @Override
+    protected StreamMetadata getMetadata(Transaction t, Long streamId) {
+        return metadata.get(streamId);
+    }
+
+    @Override
+    protected void putMetadataAndHashIndexTask(Transaction t, long streamId, StreamMetadata streamMetadata) {
+        metadata.put(streamId, streamMetadata);
+    }
+
+    @Override
+    public Long lookupStreamIdByHash(Transaction t, Sha256Hash hash) {
+        return null;
+    }
+
+    @Override
+    protected void touchMetadataWhileMarkingUsedForConflicts(Transaction t, long streamId) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    protected void markStreamAsUsedInternal(Transaction t, long streamId, byte[] reference) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void unmarkStreamAsUsed(Transaction t, long streamId, byte[] reference) {
+        throw new UnsupportedOperationException();
+    }
+}
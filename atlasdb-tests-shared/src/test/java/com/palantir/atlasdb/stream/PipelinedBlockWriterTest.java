@@ -0,0 +1,177 @@
+/**
+ * Copyright 2015 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.primitives.Bytes;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.common.concurrent.PTExecutors;
+
+public class PipelinedBlockWriterTest {
+    private static final int BLOCK_SIZE = GenericStreamStore.BLOCK_SIZE_IN_BYTES;
+    private static final int MAX_CONCURRENT_WRITES = 3;
+    private static final int BLOCKS_PER_RESERVATION = 2;
+
+    private final ExecutorService executor = PTExecutors.newCachedThreadPool();
+
+    @After
+    public void teardown() throws Exception {
+        executor.shutdownNow();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testStoresEveryBlockAfterReservingIt() throws IOException {
+        byte[] data = randomBytes(BLOCK_SIZE * 11 / 2);
+        RecordingStore store = new RecordingStore();
+        newWriter(store).write(new ByteArrayInputStream(data));
+
+        assertEquals(6, store.blocks.size());
+        List<byte[]> blocks = Lists.newArrayList();
+        for (long i = 0; i < store.blocks.size(); i++) {
+            blocks.add(store.blocks.get(i));
+        }
+        assertArrayEquals(data, Bytes.concat(blocks.toArray(new byte[0][])));
+        assertEquals(Lists.newArrayList(1L, 3L, 5L), store.reservations);
+        assertEquals(0, store.outOfOrder.get());
+        assertTrue(store.maxInFlight.get() <= MAX_CONCURRENT_WRITES);
+    }
+
+    @Test
+    public void testBlockFailureStopsWritingAndIsThrown() throws IOException {
+        final RuntimeException failure = new RuntimeException("block 2 failed");
+        RecordingStore store = new RecordingStore() {
+            @Override
+            void store(long blockNumber, byte[] block) {
+                if (blockNumber == 2) {
+                    throw failure;
+                }
+                super.store(blockNumber, block);
+            }
+        };
+        try {
+            newWriter(store).write(new ByteArrayInputStream(randomBytes(BLOCK_SIZE * 20)));
+            fail("expected the failed block to fail the write");
+        } catch (RuntimeException e) {
+            // rethrown from the reading thread, wrapped to keep its stack
+            assertTrue(Throwables.getCausalChain(e).contains(failure));
+        }
+        assertEquals(0, store.inFlight.get());
+        // only the blocks already read when the failure was seen may have been started
+        assertTrue(store.blocks.size() < 2 + MAX_CONCURRENT_WRITES + 1);
+    }
+
+    @Test
+    public void testReadFailureWaitsForWritesInFlight() {
+        final IOException failure = new IOException("stream broke");
+        InputStream stream = new FilterInputStream(new ByteArrayInputStream(randomBytes(BLOCK_SIZE * 2))) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int read = super.read(b, off, len);
+                if (read == -1) {
+                    throw failure;
+                }
+                return read;
+            }
+        };
+        RecordingStore store = new RecordingStore();
+        try {
+            newWriter(store).write(stream);
+            fail("expected the read failure to fail the write");
+        } catch (IOException e) {
+            assertSame(failure, e);
+        }
+        assertEquals(0, store.inFlight.get());
+        assertEquals(2, store.blocks.size());
+    }
+
+    private PipelinedBlockWriter newWriter(RecordingStore store) {
+        return new PipelinedBlockWriter(store, MAX_CONCURRENT_WRITES, BLOCKS_PER_RESERVATION, false, executor);
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(0).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static class RecordingStore implements PipelinedBlockWriter.BlockStore {
+        final ConcurrentMap<Long, byte[]> blocks = Maps.newConcurrentMap();
+        final List<Long> reservations = Lists.newArrayList();
+        final AtomicLong reservedThrough = new AtomicLong(-1);
+        final AtomicInteger outOfOrder = new AtomicInteger();
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+
+        @Override
+        public void reserveBlocks(long lastBlockNumber) {
+            reservations.add(lastBlockNumber);
+            reservedThrough.set(lastBlockNumber);
+        }
+
+        @Override
+        public void storeBlock(long blockNumber, byte[] block) {
+            int current = inFlight.incrementAndGet();
+            try {
+                while (true) {
+                    int max = maxInFlight.get();
+                    if (current <= max || maxInFlight.compareAndSet(max, current)) {
+                        break;
+                    }
+                }
+                if (blockNumber > reservedThrough.get()) {
+                    outOfOrder.incrementAndGet();
+                }
+                // give other writes the chance to overlap
+                Thread.sleep(10);
+                store(blockNumber, block);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+
+        void store(long blockNumber, byte[] block) {
+            // the writer reuses the buffer, so keep a copy
+            blocks.put(blockNumber, PtBytes.head(block, block.length));
+        }
+    }
+}
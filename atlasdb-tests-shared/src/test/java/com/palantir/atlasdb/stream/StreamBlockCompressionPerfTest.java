@@ -0,0 +1,144 @@
+/**
+ * Copyright 2015 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.stream;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.ByteStreams;
+import com.palantir.atlasdb.AtlasDbTestCase;
+import com.palantir.atlasdb.table.description.ColumnValueDescription.Compression;
+import com.palantir.atlasdb.transaction.api.Transaction;
+import com.palantir.atlasdb.transaction.api.TransactionTask;
+
+/**
+ * Measures how fast streams are stored and loaded with each block compression, and how many bytes
+ * reach the store, for JSON, log text and random payloads.  The blocks are kept in memory, so the
+ * times are the cost of compressing; against a key value service whose I/O is the bottleneck the
+ * stored fraction is what matters.
+ */
+@Ignore("Benchmark; run by hand")
+public final class StreamBlockCompressionPerfTest extends AtlasDbTestCase {
+    private static final int STREAM_LENGTH = 64 * 1024 * 1024;
+    private static final int ITERATIONS = 5;
+
+    @Test
+    public void testJson() throws Exception {
+        run("json", jsonBytes(STREAM_LENGTH));
+    }
+
+    @Test
+    public void testLogText() throws Exception {
+        run("log text", logBytes(STREAM_LENGTH));
+    }
+
+    @Test
+    public void testRandom() throws Exception {
+        byte[] data = new byte[STREAM_LENGTH];
+        new Random(0).nextBytes(data);
+        run("random", data);
+    }
+
+    private void run(String payload, byte[] data) throws Exception {
+        for (Compression compression : Compression.values()) {
+            InMemoryPersistentStreamStore store = new InMemoryPersistentStreamStore(txManager, compression);
+            long storeNanos = 0;
+            long loadNanos = 0;
+            for (int i = 0; i < ITERATIONS; i++) {
+                long start = System.nanoTime();
+                long streamId = store.storeStream(new ByteArrayInputStream(data)).lhSide;
+                storeNanos += System.nanoTime() - start;
+
+                start = System.nanoTime();
+                load(store, streamId);
+                loadNanos += System.nanoTime() - start;
+            }
+            report(payload, compression, store.getStoredBytes() / ITERATIONS, storeNanos, loadNanos);
+        }
+    }
+
+    private void load(final GenericStreamStore<Long> store, final long streamId) throws Exception {
+        InputStream stream = txManager.runTaskReadOnly(new TransactionTask<InputStream, RuntimeException>() {
+            @Override
+            public InputStream execute(Transaction t) {
+                return store.loadStream(t, streamId);
+            }
+        });
+        try {
+            ByteStreams.copy(stream, ByteStreams.nullOutputStream());
+        } finally {
+            stream.close();
+        }
+    }
+
+    private static void report(String payload, Compression compression, long storedBytes, long storeNanos, long loadNanos) {
+        System.out.println(payload + ", " + compression + ": stored " + (100 * storedBytes / STREAM_LENGTH)
+                + "% of " + (STREAM_LENGTH >> 20) + " MB, store " + megabytesPerSecond(storeNanos)
+                + " MB/sec, load " + megabytesPerSecond(loadNanos) + " MB/sec");
+    }
+
+    private static long megabytesPerSecond(long nanos) {
+        long bytes = (long) STREAM_LENGTH * ITERATIONS;
+        return (bytes >> 20) * TimeUnit.SECONDS.toNanos(1) / nanos;
+    }
+
+    private static byte[] jsonBytes(int length) {
+        Random random = new Random(0);
+        StringBuilder json = new StringBuilder(length + 1000);
+        while (json.length() < length) {
+            int id = random.nextInt(10000000);
+            json.append("{\"id\":").append(id)
+                .append(",\"name\":\"user-").append(id)
+                .append("\",\"email\":\"user").append(id).append("@example.com")
+                .append("\",\"created\":").append(1420070400000L + random.nextInt(Integer.MAX_VALUE))
+                .append(",\"score\":").append(random.nextDouble())
+                .append(",\"tags\":[\"tag").append(random.nextInt(50)).append("\",\"tag").append(random.nextInt(50))
+                .append("\"],\"active\":").append(random.nextBoolean())
+                .append("}\n");
+        }
+        json.setLength(length);
+        return json.toString().getBytes(Charsets.UTF_8);
+    }
+
+    private static byte[] logBytes(int length) {
+        String[] levels = {"INFO", "INFO", "INFO", "WARN", "ERROR", "DEBUG"};
+        String[] messages = {
+                "Processed request %d in %d ms",
+                "Cache miss for key %d after %d attempts",
+                "Connection %d closed by peer after %d bytes",
+                "Retrying transaction %d, attempt %d",
+        };
+        Random random = new Random(0);
+        StringBuilder log = new StringBuilder(length + 1000);
+        while (log.length() < length) {
+            log.append("2015-06-").append(10 + random.nextInt(20))
+                .append('T').append(10 + random.nextInt(14)).append(':').append(10 + random.nextInt(50))
+                .append(':').append(10 + random.nextInt(50)).append('.').append(100 + random.nextInt(900))
+                .append("Z ").append(levels[random.nextInt(levels.length)])
+                .append(" [worker-").append(random.nextInt(32)).append("] com.palantir.atlasdb.Service - ")
+                .append(String.format(messages[random.nextInt(messages.length)], random.nextInt(1000000), random.nextInt(1000)))
+                .append('\n');
+        }
+        log.setLength(length);
+        return log.toString().getBytes(Charsets.UTF_8);
+    }
+}
@@ -0,0 +1,133 @@
+/**
+ * Copyright 2015 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.ByteStreams;
+import com.google.common.primitives.Bytes;
+import com.palantir.atlasdb.AtlasDbTestCase;
+import com.palantir.atlasdb.protos.generated.StreamPersistence.StreamMetadata;
+import com.palantir.atlasdb.protos.generated.TableMetadataPersistence;
+import com.palantir.atlasdb.schema.stream.StreamTestSchema;
+import com.palantir.atlasdb.schema.stream.generated.StreamTestCompressedStreamStore;
+import com.palantir.atlasdb.schema.stream.generated.StreamTestTableFactory;
+import com.palantir.atlasdb.table.description.ColumnValueDescription.Compression;
+import com.palantir.atlasdb.table.description.Schemas;
+import com.palantir.atlasdb.transaction.api.Transaction;
+import com.palantir.atlasdb.transaction.api.TransactionTask;
+
+public class StreamBlockCompressionTest extends AtlasDbTestCase {
+    @Test
+    public void testCompressedStreamsRoundTrip() throws Exception {
+        InMemoryPersistentStreamStore store = new InMemoryPersistentStreamStore(txManager, Compression.SNAPPY);
+        // one stream read into memory and one streamed block by block
+        for (int length : new int[] {1000, GenericStreamStore.BLOCK_SIZE_IN_BYTES * 7 / 2}) {
+            byte[] data = jsonBytes(length);
+            long storedBefore = store.getStoredBytes();
+            long streamId = store.storeStream(new ByteArrayInputStream(data)).lhSide;
+
+            assertTrue(store.getStoredBytes() - storedBefore < data.length / 2);
+            assertEquals(TableMetadataPersistence.Compression.SNAPPY, store.getMetadata(null, streamId).getCompression());
+            assertArrayEquals(data, load(store, streamId));
+        }
+    }
+
+    @Test
+    public void testStreamsStoredBeforeCompressionStillRead() throws Exception {
+        InMemoryPersistentStreamStore store = new InMemoryPersistentStreamStore(txManager, Compression.NONE);
+        byte[] oldData = jsonBytes(GenericStreamStore.BLOCK_SIZE_IN_BYTES * 3 / 2);
+        long oldStreamId = store.storeStream(new ByteArrayInputStream(oldData)).lhSide;
+        // Metadata written before streams recorded their compression has no compression at all.
+        StreamMetadata oldMetadata = store.getMetadata(null, oldStreamId).toBuilder().clearCompression().build();
+        assertFalse(oldMetadata.hasCompression());
+        store.putMetadata(oldStreamId, oldMetadata);
+
+        store.setBlockCompression(Compression.SNAPPY);
+        byte[] newData = jsonBytes(GenericStreamStore.BLOCK_SIZE_IN_BYTES * 3 / 2);
+        long newStreamId = store.storeStream(new ByteArrayInputStream(newData)).lhSide;
+
+        assertArrayEquals(oldData, load(store, oldStreamId));
+        assertArrayEquals(newData, load(store, newStreamId));
+    }
+
+    @Test
+    public void testIncompressibleBlocksAreStoredAsTheyAre() throws Exception {
+        InMemoryPersistentStreamStore store = new InMemoryPersistentStreamStore(txManager, Compression.SNAPPY);
+        byte[] data = new byte[GenericStreamStore.BLOCK_SIZE_IN_BYTES * 5 / 2];
+        new Random(0).nextBytes(data);
+        long streamId = store.storeStream(new ByteArrayInputStream(data)).lhSide;
+
+        // Each of the three blocks only gains its header.
+        assertEquals(data.length + 3, store.getStoredBytes());
+        assertArrayEquals(data, load(store, streamId));
+    }
+
+    @Test
+    public void testGeneratedStoreStoresIncompressibleStreams() throws Exception {
+        Schemas.deleteTablesAndIndexes(StreamTestSchema.getSchema(), keyValueService);
+        Schemas.createTablesAndIndexes(StreamTestSchema.getSchema(), keyValueService);
+        PersistentStreamStore store = StreamTestCompressedStreamStore.of(txManager, StreamTestTableFactory.of());
+
+        // Random bytes that Snappy would make larger, followed by JSON that it makes smaller.
+        byte[] random = new byte[GenericStreamStore.BLOCK_SIZE_IN_BYTES * 3 / 2];
+        new Random(0).nextBytes(random);
+        byte[] data = Bytes.concat(random, jsonBytes(GenericStreamStore.BLOCK_SIZE_IN_BYTES * 2));
+        long streamId = store.storeStream(new ByteArrayInputStream(data)).lhSide;
+
+        assertArrayEquals(data, load(store, streamId));
+    }
+
+    private byte[] load(final GenericStreamStore<Long> store, final long streamId) throws IOException {
+        InputStream stream = txManager.runTaskReadOnly(new TransactionTask<InputStream, RuntimeException>() {
+            @Override
+            public InputStream execute(Transaction t) {
+                return store.loadStream(t, streamId);
+            }
+        });
+        try {
+            return ByteStreams.toByteArray(stream);
+        } finally {
+            stream.close();
+        }
+    }
+
+    private static byte[] jsonBytes(int length) {
+        Random random = new Random(length);
+        StringBuilder json = new StringBuilder(length + 100);
+        while (json.length() < length) {
+            int id = random.nextInt(1000000);
+            json.append("{\"id\":").append(id)
+                .append(",\"name\":\"user-").append(id)
+                .append("\",\"score\":").append(random.nextInt(100))
+                .append(",\"active\":").append(random.nextBoolean())
+                .append("}\n");
+        }
+        json.setLength(length);
+        return json.toString().getBytes(Charsets.UTF_8);
+    }
+}
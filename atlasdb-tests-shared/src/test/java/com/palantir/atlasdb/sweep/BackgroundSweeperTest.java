@@ -0,0 +1,323 @@
+/**
+ * Copyright 2015 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.sweep;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.primitives.UnsignedBytes;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.cleaner.Cleaner;
+import com.palantir.atlasdb.cleaner.Follower;
+import com.palantir.atlasdb.cleaner.NoOpCleaner;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.impl.InMemoryKeyValueService;
+import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.SweepStrategy;
+import com.palantir.atlasdb.schema.SweepSchema;
+import com.palantir.atlasdb.schema.generated.SweepPriorityTable;
+import com.palantir.atlasdb.schema.generated.SweepPriorityTable.SweepPriorityRow;
+import com.palantir.atlasdb.schema.generated.SweepPriorityTable.SweepPriorityRowResult;
+import com.palantir.atlasdb.schema.generated.SweepProgressTable;
+import com.palantir.atlasdb.schema.generated.SweepProgressTable.SweepProgressRow;
+import com.palantir.atlasdb.schema.generated.SweepProgressTable.SweepProgressRowResult;
+import com.palantir.atlasdb.schema.generated.SweepTableFactory;
+import com.palantir.atlasdb.table.description.Schemas;
+import com.palantir.atlasdb.table.description.TableDefinition;
+import com.palantir.atlasdb.table.description.ValueType;
+import com.palantir.atlasdb.transaction.api.AtlasDbConstraintCheckingMode;
+import com.palantir.atlasdb.transaction.api.ConflictHandler;
+import com.palantir.atlasdb.transaction.api.LockAwareTransactionManager;
+import com.palantir.atlasdb.transaction.api.Transaction;
+import com.palantir.atlasdb.transaction.api.TransactionTask;
+import com.palantir.atlasdb.transaction.impl.ConflictDetectionManager;
+import com.palantir.atlasdb.transaction.impl.ConflictDetectionManagers;
+import com.palantir.atlasdb.transaction.impl.SnapshotTransactionManager;
+import com.palantir.atlasdb.transaction.impl.SweepStrategyManager;
+import com.palantir.atlasdb.transaction.impl.SweepStrategyManagers;
+import com.palantir.atlasdb.transaction.service.TransactionService;
+import com.palantir.atlasdb.transaction.service.TransactionServices;
+import com.palantir.common.concurrent.PTExecutors;
+import com.palantir.lock.LockClient;
+import com.palantir.lock.LockServerOptions;
+import com.palantir.lock.impl.LockServiceImpl;
+import com.palantir.timestamp.InMemoryTimestampService;
+import com.palantir.timestamp.TimestampService;
+
+public class BackgroundSweeperTest {
+    private static final String TABLE_NAME = "table";
+    private static final String COL = "c";
+    private static final int NUM_ROWS = 400;
+
+    private ExecutorService exec;
+    private LockServiceImpl lockService;
+    private KeyValueService kvs;
+    private TimestampService tsService;
+    private TransactionService txService;
+    private LockAwareTransactionManager txManager;
+    private SweepTaskRunner sweepRunner;
+    private final SweepTableFactory tableFactory = SweepTableFactory.of();
+    private long oldTs;
+    private long newTs;
+    private long sweepTs;
+    private final List<BackgroundSweeper> sweepers = Lists.newArrayList();
+
+    @Before
+    @SuppressWarnings("serial")
+    public void setup() {
+        exec = PTExecutors.newCachedThreadPool();
+        kvs = new InMemoryKeyValueService(true, exec);
+        Schemas.createTablesAndIndexes(SweepSchema.INSTANCE.getLatestSchema(), kvs);
+        tsService = new InMemoryTimestampService();
+        LockClient lockClient = LockClient.of("sweep client");
+        lockService = LockServiceImpl.create(new LockServerOptions() { @Override public boolean isStandaloneServer() { return false; }});
+        txService = TransactionServices.createTransactionService(kvs);
+        Supplier<AtlasDbConstraintCheckingMode> constraints = Suppliers.ofInstance(AtlasDbConstraintCheckingMode.NO_CONSTRAINT_CHECKING);
+        ConflictDetectionManager cdm = ConflictDetectionManagers.createDefault(kvs);
+        SweepStrategyManager ssm = SweepStrategyManagers.createDefault(kvs);
+        Cleaner cleaner = new NoOpCleaner();
+        txManager = new SnapshotTransactionManager(kvs, tsService, lockClient, lockService, txService, constraints, cdm, ssm, cleaner, false);
+        Supplier<Long> tsSupplier = new Supplier<Long>() { @Override public Long get() { return sweepTs; }};
+        sweepRunner = new SweepTaskRunner(txManager, kvs, tsSupplier, tsSupplier, txService, ssm, Suppliers.ofInstance(10), ImmutableList.<Follower>of());
+
+        createTable();
+        oldTs = tsService.getFreshTimestamp();
+        newTs = tsService.getFreshTimestamp();
+        for (int i = 0; i < NUM_ROWS; i++) {
+            put(getRow(i), "old", oldTs);
+            put(getRow(i), "new", newTs);
+        }
+        txService.putUnlessExists(oldTs, oldTs);
+        txService.putUnlessExists(newTs, newTs);
+        sweepTs = tsService.getFreshTimestamp();
+        markOtherTablesSwept();
+    }
+
+    @After
+    public void teardown() {
+        for (BackgroundSweeper sweeper : sweepers) {
+            sweeper.shutdown();
+        }
+        lockService.close();
+        exec.shutdown();
+    }
+
+    @Test
+    public void testSplitsTableOnItsRows() throws Exception {
+        List<BackgroundSweeper.SweepWorker> workers = createWorkers(4);
+        Assert.assertTrue(workers.get(0).runOnce());
+
+        // Every row shares the prefix "row0", so splitting on the first byte would put every
+        // row into one shard.
+        List<byte[]> endRows = Lists.newArrayList();
+        for (SweepProgressRowResult shard : getShards()) {
+            Assert.assertEquals(TABLE_NAME, shard.getFullTableName());
+            Assert.assertTrue(shard.hasEndRow());
+            endRows.add(shard.getEndRow());
+        }
+        Collections.sort(endRows, UnsignedBytes.lexicographicalComparator());
+        Assert.assertEquals(4, endRows.size());
+        Assert.assertEquals(0, endRows.get(0).length);
+        int previous = 0;
+        for (byte[] endRow : endRows.subList(1, endRows.size())) {
+            int end = Integer.parseInt(new String(endRow).substring(3));
+            Assert.assertTrue("uneven shard ending at " + end, end - previous > NUM_ROWS / 8);
+            Assert.assertTrue("uneven shard ending at " + end, end - previous < NUM_ROWS * 3 / 8);
+            previous = end;
+        }
+
+        sweepUntilDone(workers);
+        assertSwept(0, NUM_ROWS);
+        assertTotals(NUM_ROWS, NUM_ROWS);
+    }
+
+    @Test
+    public void testResumesShardsWithFewerWorkers() throws Exception {
+        for (BackgroundSweeper.SweepWorker worker : createWorkers(4)) {
+            Assert.assertTrue(worker.runOnce());
+        }
+        Assert.assertEquals(4, getShards().size());
+        sweepers.get(0).shutdown();
+
+        // A restart with fewer workers picks up every shard where it was left.
+        sweepUntilDone(createWorkers(2));
+        Assert.assertTrue(getShards().isEmpty());
+        assertSwept(0, NUM_ROWS);
+        assertTotals(NUM_ROWS, NUM_ROWS);
+    }
+
+    @Test
+    public void testSplitsProgressFromBeforeSharding() throws Exception {
+        // Progress as written by the single-threaded sweeper, half way through the table.
+        final int resumeRow = NUM_ROWS / 2;
+        txManager.runTaskWithRetry(new TransactionTask<Void, RuntimeException>() {
+            @Override
+            public Void execute(Transaction t) {
+                SweepProgressTable progressTable = tableFactory.getSweepProgressTable(t);
+                SweepProgressRow row = SweepProgressRow.of(0L);
+                progressTable.putFullTableName(row, TABLE_NAME);
+                progressTable.putStartRow(row, getRow(resumeRow).getBytes());
+                progressTable.putCellsExamined(row, (long) resumeRow);
+                progressTable.putCellsDeleted(row, (long) resumeRow);
+                SweepPriorityTable priorityTable = tableFactory.getSweepPriorityTable(t);
+                SweepPriorityRow priorityRow = SweepPriorityRow.of(TABLE_NAME);
+                priorityTable.putWriteCount(priorityRow, 0L);
+                priorityTable.putCellsExamined(priorityRow, 0L);
+                priorityTable.putCellsDeleted(priorityRow, 0L);
+                return null;
+            }
+        });
+
+        List<BackgroundSweeper.SweepWorker> workers = createWorkers(4);
+        Assert.assertTrue(workers.get(0).runOnce());
+        List<SweepProgressRowResult> shards = getShards();
+        Assert.assertEquals(4, shards.size());
+        for (SweepProgressRowResult shard : shards) {
+            Assert.assertTrue(shard.hasEndRow());
+            if (shard.getRowName().getDummy() == 0L) {
+                Assert.assertTrue(shard.getCellsExamined() > resumeRow);
+            } else {
+                Assert.assertTrue(UnsignedBytes.lexicographicalComparator().compare(
+                        shard.getStartRow(), getRow(resumeRow).getBytes()) > 0);
+            }
+        }
+
+        sweepUntilDone(workers);
+        assertNotSwept(0, resumeRow);
+        assertSwept(resumeRow, NUM_ROWS);
+        assertTotals(NUM_ROWS, NUM_ROWS);
+    }
+
+    private List<BackgroundSweeper.SweepWorker> createWorkers(int numWorkers) {
+        BackgroundSweeper sweeper = new BackgroundSweeper(txManager, kvs, sweepRunner,
+                Suppliers.ofInstance(true), Suppliers.ofInstance(0L), Suppliers.ofInstance(0),
+                tableFactory, numWorkers);
+        sweepers.add(sweeper);
+        List<BackgroundSweeper.SweepWorker> workers = Lists.newArrayList();
+        for (int i = 0; i < numWorkers; i++) {
+            workers.add(sweeper.createWorker(i));
+        }
+        return workers;
+    }
+
+    private void sweepUntilDone(List<BackgroundSweeper.SweepWorker> workers) throws InterruptedException {
+        for (int round = 0; round < 10 * NUM_ROWS; round++) {
+            boolean sweptAnything = false;
+            for (BackgroundSweeper.SweepWorker worker : workers) {
+                sweptAnything |= worker.runOnce();
+            }
+            if (!sweptAnything) {
+                return;
+            }
+        }
+        Assert.fail("sweep did not finish");
+    }
+
+    private List<SweepProgressRowResult> getShards() {
+        return txManager.runTaskReadOnly(new TransactionTask<List<SweepProgressRowResult>, RuntimeException>() {
+            @Override
+            public List<SweepProgressRowResult> execute(Transaction t) {
+                return tableFactory.getSweepProgressTable(t).getAllRowsUnordered().immutableCopy();
+            }
+        });
+    }
+
+    private void assertTotals(final long cellsExamined, final long cellsDeleted) {
+        SweepPriorityRowResult priority = txManager.runTaskReadOnly(new TransactionTask<SweepPriorityRowResult, RuntimeException>() {
+            @Override
+            public SweepPriorityRowResult execute(Transaction t) {
+                return tableFactory.getSweepPriorityTable(t).getRow(SweepPriorityRow.of(TABLE_NAME)).get();
+            }
+        });
+        Assert.assertTrue(priority.hasLastSweepTime());
+        Assert.assertEquals(cellsExamined, (long) priority.getCellsExamined());
+        Assert.assertEquals(cellsDeleted, (long) priority.getCellsDeleted());
+    }
+
+    private void assertSwept(int fromRow, int toRow) {
+        for (int i = fromRow; i < toRow; i++) {
+            Assert.assertEquals(getRow(i), ImmutableSet.of(-1L, newTs), getAllTs(getRow(i)));
+        }
+    }
+
+    private void assertNotSwept(int fromRow, int toRow) {
+        for (int i = fromRow; i < toRow; i++) {
+            Assert.assertEquals(getRow(i), ImmutableSet.of(oldTs, newTs), getAllTs(getRow(i)));
+        }
+    }
+
+    /**
+     * Records every other table as just swept with no new writes, so that only the test table
+     * is worth sweeping.
+     */
+    private void markOtherTablesSwept() {
+        txManager.runTaskWithRetry(new TransactionTask<Void, RuntimeException>() {
+            @Override
+            public Void execute(Transaction t) {
+                SweepPriorityTable priorityTable = tableFactory.getSweepPriorityTable(t);
+                for (String tableName : kvs.getAllTableNames()) {
+                    if (!tableName.equals(TABLE_NAME) && !AtlasDbConstants.hiddenTables.contains(tableName)) {
+                        SweepPriorityRow row = SweepPriorityRow.of(tableName);
+                        priorityTable.putLastSweepTime(row, System.currentTimeMillis());
+                        priorityTable.putCellsExamined(row, 1000000L);
+                        priorityTable.putCellsDeleted(row, 0L);
+                        priorityTable.putWriteCount(row, 0L);
+                    }
+                }
+                return null;
+            }
+        });
+    }
+
+    private static String getRow(int i) {
+        return String.format("row%04d", i);
+    }
+
+    private Set<Long> getAllTs(String row) {
+        Cell cell = Cell.create(row.getBytes(), COL.getBytes());
+        return ImmutableSet.copyOf(kvs.getAllTimestamps(TABLE_NAME, ImmutableSet.of(cell), Long.MAX_VALUE).get(cell));
+    }
+
+    private void put(String row, String val, long ts) {
+        Cell cell = Cell.create(row.getBytes(), COL.getBytes());
+        kvs.put(TABLE_NAME, ImmutableMap.of(cell, val.getBytes()), ts);
+    }
+
+    private void createTable() {
+        kvs.createTable(TABLE_NAME, Integer.MAX_VALUE);
+        kvs.putMetadataForTable(TABLE_NAME, new TableDefinition() {{
+            rowName();
+                rowComponent("row", ValueType.BLOB);
+            columns();
+                column("col", COL, ValueType.BLOB);
+            conflictHandler(ConflictHandler.IGNORE_ALL);
+            sweepStrategy(SweepStrategy.CONSERVATIVE);
+        }}.toTableMetadata().persistToBytes());
+    }
+}
@@ -0,0 +1,67 @@
+/**
+ * Copyright 2015 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class CommitTimestampCacheTest {
+
+    @Test
+    public void testGetAfterPut() {
+        CommitTimestampCache cache = CommitTimestampCache.create(1000);
+        assertNull(cache.get(5L));
+        cache.put(5L, 7L);
+        cache.put(6L, TransactionConstants.FAILED_COMMIT_TS);
+        assertEquals(Long.valueOf(7L), cache.get(5L));
+        assertEquals(Long.valueOf(TransactionConstants.FAILED_COMMIT_TS), cache.get(6L));
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void testSizeIsBounded() {
+        CommitTimestampCache cache = CommitTimestampCache.create(1000);
+        for (long i = 0; i < 100000; i++) {
+            cache.put(i, i + 1);
+        }
+        assertTrue(cache.getSize() <= cache.getMaxCacheSize());
+        assertTrue(cache.getEvictionCount() > 0);
+        for (long i = 0; i < 100000; i++) {
+            Long commitTs = cache.get(i);
+            assertTrue(commitTs == null || commitTs == i + 1);
+        }
+    }
+
+    @Test
+    public void testSizeIsRoundedUp() {
+        assertEquals(1024, CommitTimestampCache.create(1000).getMaxCacheSize());
+        assertEquals(1024, CommitTimestampCache.create(1024).getMaxCacheSize());
+        assertEquals(64, CommitTimestampCache.create(1).getMaxCacheSize());
+    }
+
+    @Test
+    public void testClear() {
+        CommitTimestampCache cache = CommitTimestampCache.create(1000);
+        cache.put(1L, 2L);
+        cache.clearCacheAndStats();
+        assertEquals(0, cache.getSize());
+        assertNull(cache.get(1L));
+    }
+}
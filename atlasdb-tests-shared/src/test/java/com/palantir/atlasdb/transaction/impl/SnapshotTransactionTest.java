@@ -652,6 +652,55 @@ public class SnapshotTransactionTest extends AtlasDbTestCase {
         }
     }
 
+    @Test
+    public void testValueCacheSeesOtherWriters() {
+        final String hotTable = "default.hot_table";
+        final Cell cell = Cell.create("row1".getBytes(), "column1".getBytes());
+        keyValueService.createTable(hotTable, Integer.MAX_VALUE);
+        keyValueService.putMetadataForTable(hotTable,
+                getTableMetadata(CachePriority.HOT, SweepStrategy.CONSERVATIVE).persistToBytes());
+        SnapshotTransactionManager cachingManager = new TestTransactionManagerImpl(
+                keyValueService,
+                timestampService,
+                lockClient,
+                lockService,
+                transactionService,
+                conflictDetectionManager,
+                sweepStrategyManager);
+        TransactionValueCache cache = cachingManager.getValueCache();
+        TransactionTask<byte[], RuntimeException> read = new TransactionTask<byte[], RuntimeException>() {
+            @Override
+            public byte[] execute(Transaction t) {
+                return t.get(hotTable, ImmutableSet.of(cell)).get(cell);
+            }
+        };
+
+        // Transactions from txManager do not use the cache, so they act like writers in another process.
+        Transaction t1 = txManager.createNewTransaction();
+        t1.put(hotTable, ImmutableMap.of(cell, PtBytes.toBytes("v1")));
+        t1.commit();
+        Assert.assertArrayEquals(PtBytes.toBytes("v1"), cachingManager.runTaskReadOnly(read));
+        Assert.assertArrayEquals(PtBytes.toBytes("v1"), cachingManager.runTaskReadOnly(read));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        Transaction t2 = txManager.createNewTransaction();
+        t2.put(hotTable, ImmutableMap.of(cell, PtBytes.toBytes("v2")));
+        t2.commit();
+        Assert.assertArrayEquals(PtBytes.toBytes("v2"), cachingManager.runTaskReadOnly(read));
+        assertEquals(1, cache.getHitCount());
+
+        cachingManager.runTaskWithRetry(new TxTask() {
+            @Override
+            public Void execute(Transaction t) {
+                t.put(hotTable, ImmutableMap.of(cell, PtBytes.toBytes("v3")));
+                return null;
+            }
+        });
+        Assert.assertNull(cache.get(hotTable, cell));
+        Assert.assertArrayEquals(PtBytes.toBytes("v3"), cachingManager.runTaskReadOnly(read));
+    }
+
     private LockRefreshToken getFakeHeldLocksToken() {
         ImmutableSortedMap.Builder<LockDescriptor, LockMode> builder =
                 ImmutableSortedMap.naturalOrder();
@@ -661,11 +710,15 @@ public class SnapshotTransactionTest extends AtlasDbTestCase {
     }
 
     private TableMetadata getTableMetadataForSweepStrategy(SweepStrategy sweepStrategy) {
+        return getTableMetadata(CachePriority.WARM, sweepStrategy);
+    }
+
+    private TableMetadata getTableMetadata(CachePriority cachePriority, SweepStrategy sweepStrategy) {
         return new TableMetadata(
                 new NameMetadataDescription(),
                 new ColumnMetadataDescription(),
                 ConflictHandler.RETRY_ON_WRITE_WRITE,
-                CachePriority.WARM,
+                cachePriority,
                 PartitionStrategy.ORDERED,
                 false,
                 0,
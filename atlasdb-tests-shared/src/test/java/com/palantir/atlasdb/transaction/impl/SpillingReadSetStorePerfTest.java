@@ -0,0 +1,98 @@
+/**
+ * Copyright 2015 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.impl;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.primitives.Ints;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+
+/**
+ * Measures the heap a read set of a million cells takes, and how fast cells are looked up in it,
+ * kept fully in memory and with a 16MB budget.  Heap is measured after a full collection, so run
+ * it on its own with nothing else allocating.  With a budget, what is left in memory depends on
+ * how long ago the last spill was, and is at most the budget.
+ */
+@Ignore("Benchmark; run by hand")
+public final class SpillingReadSetStorePerfTest {
+    private static final String TABLE = "ns.table";
+    private static final int CELLS = 1000000;
+    private static final int BATCH_SIZE = 1000;
+    private static final int LOOKUPS = 100000;
+
+    @Test
+    public void testInMemory() {
+        run("in memory", Long.MAX_VALUE);
+    }
+
+    @Test
+    public void testSpilled() {
+        run("16 MB budget", 16L * 1024 * 1024);
+    }
+
+    private static void run(String name, long maxBytesInMemory) {
+        long heapBefore = usedHeap();
+        SpillingReadSetStore store = new SpillingReadSetStore(maxBytesInMemory);
+        try {
+            Random random = new Random(0);
+            Map<Cell, Long> batch = Maps.newHashMap();
+            for (int i = 0; i < CELLS; i++) {
+                batch.put(cell(i), random.nextLong());
+                if (batch.size() == BATCH_SIZE) {
+                    store.putAll(TABLE, batch);
+                    batch.clear();
+                }
+            }
+            store.putAll(TABLE, batch);
+            long heap = usedHeap() - heapBefore;
+
+            List<Cell> lookups = Lists.newArrayListWithCapacity(BATCH_SIZE);
+            long start = System.nanoTime();
+            for (int i = 0; i < LOOKUPS; i++) {
+                lookups.add(cell(random.nextInt(CELLS)));
+                if (lookups.size() == BATCH_SIZE) {
+                    store.getAll(TABLE, lookups);
+                    lookups.clear();
+                }
+            }
+            long lookupNanos = System.nanoTime() - start;
+            System.out.println(String.format("%s: %.1f MB of heap for %d cells, %d lookups/sec",
+                    name, heap / (1024.0 * 1024), CELLS, LOOKUPS * TimeUnit.SECONDS.toNanos(1) / lookupNanos));
+        } finally {
+            store.close();
+        }
+    }
+
+    private static Cell cell(int i) {
+        return Cell.create(Ints.toByteArray(i), Ints.toByteArray(i % 7));
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
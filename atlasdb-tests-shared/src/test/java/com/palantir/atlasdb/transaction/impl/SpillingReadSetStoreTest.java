@@ -0,0 +1,229 @@
+/**
+ * Copyright 2015 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Range;
+import com.google.common.collect.Sets;
+import com.google.common.primitives.Ints;
+import com.palantir.atlasdb.AtlasDbTestCase;
+import com.palantir.atlasdb.cleaner.NoOpCleaner;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.impl.Cells;
+import com.palantir.atlasdb.transaction.api.AtlasDbConstraintCheckingMode;
+import com.palantir.atlasdb.transaction.api.ConflictHandler;
+import com.palantir.atlasdb.transaction.api.Transaction;
+import com.palantir.atlasdb.transaction.api.TransactionReadSentinelBehavior;
+import com.palantir.atlasdb.transaction.api.TransactionTask;
+import com.palantir.atlasdb.transaction.impl.SerializableTransaction.ReadValidationMode;
+import com.palantir.common.base.ClosableIterator;
+import com.palantir.lock.LockRefreshToken;
+
+public class SpillingReadSetStoreTest extends AtlasDbTestCase {
+    private static final String TABLE = "ns.table";
+    private static final Set<Cell> CELLS = cells(100);
+
+    @Test
+    public void testSpilledReadsMatchInMemoryReads() {
+        SpillingReadSetStore store = new SpillingReadSetStore(64 * 1024);
+        try {
+            assertReadsMatch(store, putRandomReads(store));
+            assertTrue(store.getBytesInMemory() < 64 * 1024);
+            assertNotNull(store.getSpillFile());
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    public void testPackedReadsMatchInMemoryReads() {
+        SpillingReadSetStore store = new SpillingReadSetStore(SpillingReadSetStore.DEFAULT_MAX_BYTES_IN_MEMORY);
+        try {
+            assertReadsMatch(store, putRandomReads(store));
+            assertNull(store.getSpillFile());
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    public void testTablesAreSeparate() {
+        SpillingReadSetStore store = new SpillingReadSetStore(0);
+        try {
+            Cell cell = Cell.create(new byte[] {1}, new byte[] {2});
+            store.putAll(TABLE, ImmutableMap.of(cell, 1L));
+            store.putAll("ns.other", ImmutableMap.of(cell, 2L));
+            assertEquals(ImmutableMap.of(cell, 1L), store.getAll(TABLE, ImmutableList.of(cell)));
+            assertEquals(ImmutableMap.of(cell, 2L), store.getAll("ns.other", ImmutableList.of(cell)));
+            assertEquals(0, store.getAll("ns.unread", ImmutableList.of(cell)).size());
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    public void testSpillFileIsDeletedOnCommit() {
+        List<SpillingReadSetStore> stores = Lists.newArrayList();
+        Transaction t = startTransaction(stores);
+        List<File> spillFiles = readEverything(t, stores);
+        t.commit();
+        assertDeleted(spillFiles);
+    }
+
+    @Test
+    public void testSpillFileIsDeletedOnAbort() {
+        List<SpillingReadSetStore> stores = Lists.newArrayList();
+        Transaction t = startTransaction(stores);
+        List<File> spillFiles = readEverything(t, stores);
+        t.abort();
+        assertDeleted(spillFiles);
+    }
+
+    private Transaction startTransaction(final List<SpillingReadSetStore> stores) {
+        createTable(TABLE);
+        final Map<Cell, byte[]> values = Maps.newHashMap();
+        for (Cell cell : CELLS) {
+            values.put(cell, cell.getRowName());
+        }
+        txManager.runTaskWithRetry(new TransactionTask<Void, RuntimeException>() {
+            @Override
+            public Void execute(Transaction t) {
+                t.put(TABLE, values);
+                return null;
+            }
+        });
+        return new SerializableTransaction(
+                keyValueService,
+                lockService,
+                timestampService,
+                transactionService,
+                NoOpCleaner.INSTANCE,
+                Suppliers.ofInstance(timestampService.getFreshTimestamp()),
+                ConflictDetectionManagers.fromMap(ImmutableMap.of(TABLE, ConflictHandler.SERIALIZABLE)),
+                sweepStrategyManager,
+                0L,
+                ImmutableList.<LockRefreshToken>of(),
+                AtlasDbConstraintCheckingMode.NO_CONSTRAINT_CHECKING,
+                null,
+                TransactionReadSentinelBehavior.THROW_EXCEPTION,
+                true,
+                CommitTimestampCache.create(SnapshotTransaction.PER_TRANSACTION_COMMIT_TS_CACHE_SIZE),
+                ReadValidationMode.VALUES,
+                new Supplier<ReadSetStore>() {
+                    @Override
+                    public ReadSetStore get() {
+                        // Spill every read.
+                        SpillingReadSetStore store = new SpillingReadSetStore(0);
+                        stores.add(store);
+                        return store;
+                    }
+                });
+    }
+
+    private static List<File> readEverything(Transaction t, List<SpillingReadSetStore> stores) {
+        assertEquals(CELLS.size(), t.get(TABLE, CELLS).size());
+        List<File> spillFiles = Lists.newArrayList();
+        for (SpillingReadSetStore store : stores) {
+            if (store.getSpillFile() != null) {
+                spillFiles.add(store.getSpillFile());
+            }
+        }
+        assertFalse(spillFiles.isEmpty());
+        for (File file : spillFiles) {
+            assertTrue(file.exists());
+        }
+        return spillFiles;
+    }
+
+    private static NavigableMap<Cell, Long> putRandomReads(SpillingReadSetStore store) {
+        NavigableMap<Cell, Long> expected = Maps.newTreeMap();
+        Random random = new Random(0);
+        for (int batch = 0; batch < 20; batch++) {
+            Map<Cell, Long> values = Maps.newHashMap();
+            for (int i = 0; i < 500; i++) {
+                Cell cell = Cell.create(Ints.toByteArray(random.nextInt(5000)), Ints.toByteArray(random.nextInt(3)));
+                values.put(cell, (long) cell.hashCode());
+            }
+            store.putAll(TABLE, values);
+            expected.putAll(values);
+        }
+        return expected;
+    }
+
+    private static void assertReadsMatch(SpillingReadSetStore store, NavigableMap<Cell, Long> expected) {
+        assertEquals(expected, toMap(store.getRange(TABLE, Range.<Cell>all())));
+        Cell from = Cells.createSmallestCellForRow(Ints.toByteArray(1000));
+        Cell to = Cells.createSmallestCellForRow(Ints.toByteArray(2000));
+        assertEquals(expected.subMap(from, true, to, false), toMap(store.getRange(TABLE, Range.closedOpen(from, to))));
+        Cell first = expected.higherKey(from);
+        Cell last = expected.lowerKey(to);
+        assertEquals(expected.subMap(first, false, last, true), toMap(store.getRange(TABLE, Range.openClosed(first, last))));
+
+        Cell missing = Cell.create(Ints.toByteArray(6000), Ints.toByteArray(0));
+        Map<Cell, Long> found = store.getAll(TABLE, ImmutableList.of(expected.firstKey(), expected.lastKey(), missing));
+        assertEquals(ImmutableMap.of(expected.firstKey(), expected.firstEntry().getValue(),
+                expected.lastKey(), expected.lastEntry().getValue()), found);
+        assertEquals(expected, store.getAll(TABLE, Lists.newArrayList(expected.keySet())));
+    }
+
+    private static void assertDeleted(List<File> spillFiles) {
+        for (File file : spillFiles) {
+            assertFalse(file.exists());
+        }
+    }
+
+    private static Set<Cell> cells(int count) {
+        Set<Cell> cells = Sets.newHashSet();
+        for (int i = 0; i < count; i++) {
+            cells.add(Cell.create(Ints.toByteArray(i), Ints.toByteArray(0)));
+        }
+        return cells;
+    }
+
+    private static Map<Cell, Long> toMap(ClosableIterator<Entry<Cell, Long>> it) {
+        Map<Cell, Long> ret = Maps.newLinkedHashMap();
+        try {
+            while (it.hasNext()) {
+                Entry<Cell, Long> e = it.next();
+                assertEquals(null, ret.put(e.getKey(), e.getValue()));
+            }
+        } finally {
+            it.close();
+        }
+        return ret;
+    }
+}
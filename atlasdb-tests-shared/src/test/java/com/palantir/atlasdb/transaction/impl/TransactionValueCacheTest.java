@@ -0,0 +1,118 @@
+/**
+ * Copyright 2015 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableSet;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+
+public class TransactionValueCacheTest {
+    private static final String TABLE = "default.table";
+    private static final Cell CELL = Cell.create(PtBytes.toBytes("row"), PtBytes.toBytes("col"));
+
+    @Test
+    public void testVisibility() {
+        TransactionValueCache cache = TransactionValueCache.create(Predicates.<String>alwaysTrue(), 1 << 20);
+        cache.put(TABLE, CELL, 10L, 20L, PtBytes.toBytes("value"), 30L);
+        TransactionValueCache.CachedValue cached = cache.get(TABLE, CELL);
+        assertArrayEquals(PtBytes.toBytes("value"), cached.getContents());
+
+        assertFalse(cached.isVisibleAt(15L));
+        assertTrue(cached.isKnownLatestAt(25L));
+        assertTrue(cached.isKnownLatestAt(30L));
+        assertTrue(cached.isVisibleAt(40L));
+        assertFalse(cached.isKnownLatestAt(40L));
+
+        cached.markLatestAsOf(40L);
+        cached.markLatestAsOf(35L);
+        assertTrue(cached.isKnownLatestAt(40L));
+    }
+
+    @Test
+    public void testNewerVersionIsKept() {
+        TransactionValueCache cache = TransactionValueCache.create(Predicates.<String>alwaysTrue(), 1 << 20);
+        cache.put(TABLE, CELL, 10L, 20L, PtBytes.toBytes("old"), 30L);
+        cache.put(TABLE, CELL, 40L, 50L, PtBytes.toBytes("new"), 60L);
+        cache.put(TABLE, CELL, 10L, 20L, PtBytes.toBytes("old"), 45L);
+        assertEquals(40L, cache.get(TABLE, CELL).getWriteTimestamp());
+
+        cache.put(TABLE, CELL, 40L, 50L, PtBytes.toBytes("new"), 70L);
+        assertTrue(cache.get(TABLE, CELL).isKnownLatestAt(70L));
+        assertEquals(1, cache.getSize());
+    }
+
+    @Test
+    public void testInvalidateAndStats() {
+        TransactionValueCache cache = TransactionValueCache.create(Predicates.<String>alwaysTrue(), 1 << 20);
+        cache.put(TABLE, CELL, 10L, 20L, new byte[1000], 30L);
+        assertTrue(cache.getApproximateSizeInBytesByTable().get(TABLE) > 1000);
+        cache.recordLookups(TABLE, 3, 1);
+        assertEquals(Long.valueOf(3), cache.getHitCountByTable().get(TABLE));
+        assertEquals(75.0f, cache.getCacheHitPercentage(), 0.01f);
+
+        cache.invalidate(TABLE, ImmutableSet.of(CELL));
+        assertNull(cache.get(TABLE, CELL));
+        assertEquals(0, cache.getApproximateSizeInBytes());
+    }
+
+    @Test
+    public void testSizeIsBounded() {
+        TransactionValueCache cache = TransactionValueCache.create(Predicates.<String>alwaysTrue(), 1 << 20);
+        for (int i = 0; i < 1000; i++) {
+            Cell cell = Cell.create(PtBytes.toBytes("row" + i), PtBytes.toBytes("col"));
+            cache.put(TABLE, cell, 10L, 20L, new byte[10000], 30L);
+        }
+        assertTrue(cache.getSize() < 1000);
+        assertTrue(cache.getApproximateSizeInBytes() <= cache.getMaxSizeInBytes());
+    }
+
+    @Test
+    public void testCachedTablesAreRechecked() {
+        final AtomicBoolean hot = new AtomicBoolean(false);
+        final AtomicLong nanos = new AtomicLong();
+        TransactionValueCache cache = TransactionValueCache.create(new Predicate<String>() {
+            @Override
+            public boolean apply(String tableName) {
+                return hot.get();
+            }
+        }, 1 << 20, new Ticker() {
+            @Override
+            public long read() {
+                return nanos.get();
+            }
+        });
+        assertFalse(cache.isCachedTable(TABLE));
+        hot.set(true);
+        assertFalse(cache.isCachedTable(TABLE));
+        nanos.addAndGet(TimeUnit.MINUTES.toNanos(2));
+        assertTrue(cache.isCachedTable(TABLE));
+    }
+}
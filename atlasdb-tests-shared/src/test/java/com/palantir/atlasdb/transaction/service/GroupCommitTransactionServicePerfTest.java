@@ -0,0 +1,106 @@
+/**
+ * Copyright 2015 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.service;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.impl.ForwardingKeyValueService;
+import com.palantir.atlasdb.keyvalue.impl.InMemoryKeyValueService;
+import com.palantir.atlasdb.transaction.impl.SnapshotTransactionManager;
+import com.palantir.common.concurrent.PTExecutors;
+
+/**
+ * Measures commits per second through {@link GroupCommitTransactionService} and through a plain
+ * {@link SimpleTransactionService}, against a key value service that applies one write at a time and
+ * takes a millisecond for each, like a store that syncs a single commit log.
+ */
+@Ignore("Benchmark; run by hand")
+public final class GroupCommitTransactionServicePerfTest {
+    private static final long WRITE_LATENCY_MICROS = 1000;
+    private static final int NUM_THREADS = 64;
+    private static final int COMMITS_PER_THREAD = 50;
+
+    private final ExecutorService executor = PTExecutors.newCachedThreadPool();
+
+    @After
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testCommitThroughput() throws Exception {
+        KeyValueService simpleKvs = createSlowKvs();
+        report("simple", runCommits(TransactionServices.createTransactionService(simpleKvs)));
+        KeyValueService groupKvs = createSlowKvs();
+        report("group commit", runCommits(TransactionServices.createGroupCommitTransactionService(groupKvs)));
+    }
+
+    private static KeyValueService createSlowKvs() {
+        final KeyValueService kvs = new InMemoryKeyValueService(false);
+        SnapshotTransactionManager.createTables(kvs);
+        return new ForwardingKeyValueService() {
+            @Override
+            protected KeyValueService delegate() {
+                return kvs;
+            }
+
+            @Override
+            public synchronized void putUnlessExists(String tableName, Map<Cell, byte[]> values) {
+                Uninterruptibles.sleepUninterruptibly(WRITE_LATENCY_MICROS, TimeUnit.MICROSECONDS);
+                super.putUnlessExists(tableName, values);
+            }
+        };
+    }
+
+    private long runCommits(final TransactionService service) throws Exception {
+        final AtomicLong nextTimestamp = new AtomicLong();
+        final CountDownLatch done = new CountDownLatch(NUM_THREADS);
+        long start = System.nanoTime();
+        for (int t = 0; t < NUM_THREADS; t++) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < COMMITS_PER_THREAD; i++) {
+                        long startTs = nextTimestamp.getAndIncrement();
+                        service.putUnlessExists(startTs, startTs + 1);
+                    }
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        return System.nanoTime() - start;
+    }
+
+    private static void report(String name, long nanos) {
+        long commits = (long) NUM_THREADS * COMMITS_PER_THREAD;
+        System.out.println(name + ": " + commits + " commits from " + NUM_THREADS
+                + " threads in " + TimeUnit.NANOSECONDS.toMillis(nanos) + " ms, "
+                + (commits * TimeUnit.SECONDS.toNanos(1) / nanos) + " commits/sec");
+    }
+}
@@ -0,0 +1,162 @@
+/**
+ * Copyright 2015 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.service;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.impl.ForwardingKeyValueService;
+import com.palantir.atlasdb.keyvalue.impl.InMemoryKeyValueService;
+import com.palantir.atlasdb.transaction.impl.SnapshotTransactionManager;
+
+public class GroupCommitTransactionServiceTest {
+    private static final int NUM_THREADS = 16;
+    private static final int PUTS_PER_THREAD = 200;
+
+    private KeyValueService kvs;
+    private TransactionService transactionService;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        kvs = new InMemoryKeyValueService(false);
+        SnapshotTransactionManager.createTables(kvs);
+        transactionService = TransactionServices.createGroupCommitTransactionService(kvs);
+        executor = Executors.newFixedThreadPool(NUM_THREADS);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testConcurrentPutsAllSucceed() throws Exception {
+        List<Future<Void>> futures = Lists.newArrayList();
+        for (int i = 0; i < NUM_THREADS; i++) {
+            final long offset = i * PUTS_PER_THREAD;
+            futures.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    for (long startTs = offset; startTs < offset + PUTS_PER_THREAD; startTs++) {
+                        transactionService.putUnlessExists(startTs, startTs + 1);
+                    }
+                    return null;
+                }
+            }));
+        }
+        for (Future<Void> future : futures) {
+            future.get();
+        }
+        for (long startTs = 0; startTs < NUM_THREADS * PUTS_PER_THREAD; startTs++) {
+            assertEquals(Long.valueOf(startTs + 1), transactionService.get(startTs));
+        }
+    }
+
+    @Test
+    public void testOnlyOneWriterWinsPerStartTimestamp() throws Exception {
+        List<Future<Boolean>> futures = Lists.newArrayList();
+        for (int i = 0; i < NUM_THREADS; i++) {
+            final long commitTs = 100 + i;
+            futures.add(executor.submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    try {
+                        transactionService.putUnlessExists(1L, commitTs);
+                        return true;
+                    } catch (KeyAlreadyExistsException e) {
+                        return false;
+                    }
+                }
+            }));
+        }
+        int successes = 0;
+        for (Future<Boolean> future : futures) {
+            if (getUnchecked(future)) {
+                successes++;
+            }
+        }
+        assertEquals(1, successes);
+    }
+
+    @Test(expected = KeyAlreadyExistsException.class)
+    public void testPutOverExistingValueFails() {
+        transactionService.putUnlessExists(5L, 6L);
+        transactionService.putUnlessExists(5L, 7L);
+    }
+
+    @Test
+    public void testOwnValueWrittenByFailedBatchCountsAsSuccess() throws Exception {
+        // Multi-cell writes land and then report failure, and the read-back after them fails too,
+        // so every put in a batch is retried on its own and finds its own value already stored.
+        KeyValueService failingKvs = new ForwardingKeyValueService() {
+            @Override
+            protected KeyValueService delegate() {
+                return kvs;
+            }
+
+            @Override
+            public void putUnlessExists(String tableName, Map<Cell, byte[]> values) {
+                super.putUnlessExists(tableName, values);
+                if (values.size() > 1) {
+                    throw new RuntimeException("Simulated failure after a partial write");
+                }
+            }
+        };
+        final TransactionService simple = TransactionServices.createTransactionService(failingKvs);
+        TransactionService failingReads = new TransactionService() {
+            @Override
+            public Long get(long startTimestamp) {
+                return simple.get(startTimestamp);
+            }
+
+            @Override
+            public Map<Long, Long> get(Iterable<Long> startTimestamps) {
+                throw new RuntimeException("Simulated read failure");
+            }
+
+            @Override
+            public void putUnlessExists(long startTimestamp, long commitTimestamp) {
+                simple.putUnlessExists(startTimestamp, commitTimestamp);
+            }
+        };
+        transactionService = new GroupCommitTransactionService(failingKvs, failingReads);
+        testConcurrentPutsAllSucceed();
+    }
+
+    private static boolean getUnchecked(Future<Boolean> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+}
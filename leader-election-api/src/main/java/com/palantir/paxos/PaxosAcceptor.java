@@ -40,6 +40,22 @@ public interface PaxosAcceptor {
     @Consumes(MediaType.APPLICATION_JSON)
     public PaxosPromise prepare(@PathParam("seq") long seq, PaxosProposalId pid);
 
+    /**
+     * The acceptor prepares for a given proposal at the given sequence number and at every later
+     * one, either promising not to accept lower numbered proposals for any of them or rejecting the
+     * proposal.  This lets a stable proposer skip phase one for the rounds after this one until it
+     * is preempted.
+     *
+     * @param seq the first number of the instances of paxos being prepared for
+     * @param pid the proposal to prepare for
+     * @return a paxos promise for {@code seq} along with the acceptor's latest sequence number
+     */
+    @POST
+    @Path("prepare-range/{seq}")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.APPLICATION_JSON)
+    public PaxosRangePromise prepareRange(@PathParam("seq") long seq, PaxosProposalId pid);
+
     /**
      * The acceptor decides whether to accept or reject a given proposal.
      *
@@ -0,0 +1,60 @@
+/**
+ * Copyright 2015 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.paxos;
+
+import javax.annotation.Nonnull;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.base.Preconditions;
+import com.palantir.common.annotation.Immutable;
+
+/**
+ * A promise to not accept new proposals less than promisedID for the sequence number it was made
+ * for or for any sequence number after it.
+ * <p>
+ * Alongside the promise for that sequence number the acceptor reports its latest sequence number,
+ * so the proposer knows from where on no member of the quorum can have accepted a value.
+ */
+@Immutable
+public class PaxosRangePromise implements PaxosResponse {
+    private static final long serialVersionUID = 1L;
+
+    @Nonnull final PaxosPromise promise;
+    final long latestSequencePreparedOrAccepted;
+
+    @JsonCreator
+    public PaxosRangePromise(@JsonProperty("promise") PaxosPromise promise,
+                             @JsonProperty("latestSequencePreparedOrAccepted") long latestSequencePreparedOrAccepted) {
+        this.promise = Preconditions.checkNotNull(promise);
+        this.latestSequencePreparedOrAccepted = latestSequencePreparedOrAccepted;
+    }
+
+    @Override
+    @JsonIgnore // derived from the promise
+    public boolean isSuccessful() {
+        return promise.isSuccessful();
+    }
+
+    public PaxosPromise getPromise() {
+        return promise;
+    }
+
+    public long getLatestSequencePreparedOrAccepted() {
+        return latestSequencePreparedOrAccepted;
+    }
+}
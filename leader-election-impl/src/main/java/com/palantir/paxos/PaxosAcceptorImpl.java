@@ -15,38 +15,74 @@
  */
 package com.palantir.paxos;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Charsets;
+import com.palantir.common.annotation.Immutable;
+import com.palantir.common.persist.Persistable;
+
 public class PaxosAcceptorImpl implements PaxosAcceptor {
     private static final Logger logger = LoggerFactory.getLogger(PaxosAcceptorImpl.class);
 
+    /*
+     * Each standing promise is logged at its version, and the versions before it are truncated once
+     * it is durable, so the log only ever holds the current promise.
+     */
+    private static final String STANDING_PROMISE_DIR = "standing-promise";
+
     /**
      * @param logDir string path for directory to place durable logs
      * @param type the type of the objects accepted by the acceptor
      * @return a new acceptor
      */
     public static PaxosAcceptor newAcceptor(String logDir) {
-        PaxosStateLog<PaxosAcceptorState> log = new PaxosStateLogImpl<PaxosAcceptorState>(logDir);
+        PaxosStateLog<PaxosAcceptorState> log = new SegmentedPaxosStateLog<PaxosAcceptorState>(logDir);
+        PaxosStateLog<StandingPromise> standingPromiseLog = new SegmentedPaxosStateLog<StandingPromise>(
+                new File(logDir, STANDING_PROMISE_DIR).getPath());
         return new PaxosAcceptorImpl(
                 new ConcurrentSkipListMap<Long, PaxosAcceptorState>(),
                 log,
-                log.getGreatestLogEntry());
+                log.getGreatestLogEntry(),
+                standingPromiseLog,
+                readStandingPromise(standingPromiseLog));
     }
 
     final ConcurrentSkipListMap<Long, PaxosAcceptorState> state;
     final PaxosStateLog<PaxosAcceptorState> log;
     final long greatestInLogAtStartup;
 
+    /*
+     * Single round prepares and accepts hold the read lock while they check the standing promise,
+     * so a range prepare, which holds the write lock, sees every round promised or accepted before
+     * it and none of the rounds promised or accepted after it.
+     */
+    private final ReadWriteLock standingPromiseLock = new ReentrantReadWriteLock();
+    private final PaxosStateLog<StandingPromise> standingPromiseLog;
+    @GuardedBy("standingPromiseLock")
+    @Nullable
+    private StandingPromise standingPromise;
+
     private PaxosAcceptorImpl(ConcurrentSkipListMap<Long, PaxosAcceptorState> state,
                              PaxosStateLog<PaxosAcceptorState> log,
-                             long greatestInLogAtStartup) {
+                             long greatestInLogAtStartup,
+                             PaxosStateLog<StandingPromise> standingPromiseLog,
+                             @Nullable StandingPromise standingPromise) {
         this.state = state;
         this.log = log;
         this.greatestInLogAtStartup = greatestInLogAtStartup;
+        this.standingPromiseLog = standingPromiseLog;
+        this.standingPromise = standingPromise;
     }
 
     @Override
@@ -58,34 +94,85 @@ public class PaxosAcceptorImpl implements PaxosAcceptor {
             return new PaxosPromise(pid); // nack
         }
 
-        for (;;) {
-            PaxosAcceptorState oldState = state.get(seq);
+        standingPromiseLock.readLock().lock();
+        try {
+            PaxosProposalId standingId = getStandingPromiseFor(seq);
+            if (standingId != null && pid.compareTo(standingId) < 0) {
+                return new PaxosPromise(standingId); // nack
+            }
+
+            for (;;) {
+                PaxosAcceptorState oldState = state.get(seq);
+
+                // nack
+                if (oldState != null && pid.compareTo(oldState.lastPromisedId) < 0) {
+                    return new PaxosPromise(oldState.lastPromisedId);
+                }
+
+                // allow for the same propose to be repeated and return the same result.
+                if (oldState != null && pid.compareTo(oldState.lastPromisedId) == 0) {
+                    return new PaxosPromise(
+                            oldState.lastPromisedId,
+                            oldState.lastAcceptedId,
+                            oldState.lastAcceptedValue);
+                }
 
-            // nack
-            if (oldState != null && pid.compareTo(oldState.lastPromisedId) < 0) {
-                return new PaxosPromise(oldState.lastPromisedId);
+                // ack
+                PaxosAcceptorState newState = oldState != null
+                        ? oldState.withPromise(pid)
+                        : PaxosAcceptorState.newState(pid);
+                if ((oldState == null && state.putIfAbsent(seq, newState) == null)
+                        || (oldState != null && state.replace(seq, oldState, newState))) {
+                    log.writeRound(seq, newState);
+                    return new PaxosPromise(
+                            newState.lastPromisedId,
+                            newState.lastAcceptedId,
+                            newState.lastAcceptedValue);
+                }
             }
+        } finally {
+            standingPromiseLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public PaxosRangePromise prepareRange(long seq, PaxosProposalId pid) {
+        try {
+            checkLogIfNeeded(seq);
+        } catch (Exception e) {
+            logger.error("log read failed for request: " + seq, e);
+            return new PaxosRangePromise(new PaxosPromise(pid), NO_LOG_ENTRY); // nack
+        }
 
-            // allow for the same propose to be repeated and return the same result.
-            if (oldState != null && pid.compareTo(oldState.lastPromisedId) == 0) {
-                return new PaxosPromise(
-                        oldState.lastPromisedId,
-                        oldState.lastAcceptedId,
-                        oldState.lastAcceptedValue);
+        standingPromiseLock.writeLock().lock();
+        try {
+            StandingPromise oldPromise = standingPromise;
+            if (oldPromise != null && pid.compareTo(oldPromise.proposalId) < 0) {
+                return new PaxosRangePromise(new PaxosPromise(oldPromise.proposalId), NO_LOG_ENTRY);
+            }
+            PaxosAcceptorState stateAtSeq = state.get(seq);
+            if (stateAtSeq != null && pid.compareTo(stateAtSeq.lastPromisedId) < 0) {
+                return new PaxosRangePromise(new PaxosPromise(stateAtSeq.lastPromisedId), NO_LOG_ENTRY);
             }
 
-            // ack
-            PaxosAcceptorState newState = oldState != null
-                    ? oldState.withPromise(pid)
-                    : PaxosAcceptorState.newState(pid);
-            if ((oldState == null && state.putIfAbsent(seq, newState) == null)
-                    || (oldState != null && state.replace(seq, oldState, newState))) {
-                log.writeRound(seq, newState);
-                return new PaxosPromise(
-                        newState.lastPromisedId,
-                        newState.lastAcceptedId,
-                        newState.lastAcceptedValue);
+            // Rounds after seq that were promised to a higher proposal keep that promise, since the
+            // effective promise for a round is the greater of its own and the standing one.
+            StandingPromise newPromise = oldPromise == null
+                    ? new StandingPromise(seq, pid, 0L)
+                    : oldPromise.withPromise(Math.min(seq, oldPromise.firstSeq), pid);
+            if (!newPromise.isSamePromiseAs(oldPromise)) {
+                // must be durable before we answer, or a restarted acceptor could break the promise
+                standingPromiseLog.writeRound(newPromise.version, newPromise);
+                standingPromise = newPromise;
+                standingPromiseLog.truncate(newPromise.version - 1);
             }
+
+            PaxosPromise promise = stateAtSeq == null
+                    ? new PaxosPromise(pid, null, null)
+                    : new PaxosPromise(pid, stateAtSeq.lastAcceptedId, stateAtSeq.lastAcceptedValue);
+            return new PaxosRangePromise(promise, getLatestSequencePreparedOrAccepted());
+        } finally {
+            standingPromiseLock.writeLock().unlock();
         }
     }
 
@@ -98,26 +185,36 @@ public class PaxosAcceptorImpl implements PaxosAcceptor {
             return new BooleanPaxosResponse(false); // nack
         }
 
-        for (;;) {
-            PaxosAcceptorState oldState = state.get(seq);
-
-            // nack
-            if (oldState != null && proposal.id.compareTo(oldState.lastPromisedId) < 0) {
-                return new BooleanPaxosResponse(false);
+        standingPromiseLock.readLock().lock();
+        try {
+            PaxosProposalId standingId = getStandingPromiseFor(seq);
+            if (standingId != null && proposal.id.compareTo(standingId) < 0) {
+                return new BooleanPaxosResponse(false); // nack
             }
 
-            // ack
-            final PaxosAcceptorState newState;
-            if (oldState == null) {
-                newState = PaxosAcceptorState.newState(proposal);
-            } else {
-                newState = oldState.withState(proposal.id, proposal.id, proposal.val);
-            }
-            if ((oldState == null && state.putIfAbsent(seq, newState) == null)
-                    || (oldState != null && state.replace(seq, oldState, newState))) {
-                log.writeRound(seq, newState);
-                return new BooleanPaxosResponse(true);
+            for (;;) {
+                PaxosAcceptorState oldState = state.get(seq);
+
+                // nack
+                if (oldState != null && proposal.id.compareTo(oldState.lastPromisedId) < 0) {
+                    return new BooleanPaxosResponse(false);
+                }
+
+                // ack
+                final PaxosAcceptorState newState;
+                if (oldState == null) {
+                    newState = PaxosAcceptorState.newState(proposal);
+                } else {
+                    newState = oldState.withState(proposal.id, proposal.id, proposal.val);
+                }
+                if ((oldState == null && state.putIfAbsent(seq, newState) == null)
+                        || (oldState != null && state.replace(seq, oldState, newState))) {
+                    log.writeRound(seq, newState);
+                    return new BooleanPaxosResponse(true);
+                }
             }
+        } finally {
+            standingPromiseLock.readLock().unlock();
         }
     }
 
@@ -130,6 +227,26 @@ public class PaxosAcceptorImpl implements PaxosAcceptor {
         }
     }
 
+    /**
+     * Forgets the rounds up to and including the given one, except for the latest round prepared
+     * or accepted.  Prepares and accepts for forgotten rounds are rejected from then on.
+     */
+    public void truncate(long toDeleteInclusive) {
+        log.truncate(toDeleteInclusive);
+        long latest = getLatestSequencePreparedOrAccepted();
+        state.headMap(Math.min(toDeleteInclusive, latest - 1), true).clear();
+    }
+
+    @GuardedBy("standingPromiseLock")
+    @Nullable
+    private PaxosProposalId getStandingPromiseFor(long seq) {
+        StandingPromise promise = standingPromise;
+        if (promise == null || seq < promise.firstSeq) {
+            return null;
+        }
+        return promise.proposalId;
+    }
+
     private void checkLogIfNeeded(long seq) throws TruncatedStateLogException, IOException {
         if (state.containsKey(seq)) {
             return;
@@ -148,4 +265,75 @@ public class PaxosAcceptorImpl implements PaxosAcceptor {
         }
     }
 
+    @Nullable
+    private static StandingPromise readStandingPromise(PaxosStateLog<StandingPromise> standingPromiseLog) {
+        try {
+            long greatest = standingPromiseLog.getGreatestLogEntry();
+            if (greatest == NO_LOG_ENTRY) {
+                return null;
+            }
+            byte[] bytes = standingPromiseLog.readRound(greatest);
+            return bytes == null ? null : StandingPromise.BYTES_HYDRATOR.hydrateFromBytes(bytes);
+        } catch (IOException e) {
+            throw new RuntimeException("failed to read the standing promise", e);
+        }
+    }
+
+    /**
+     * A promise not to accept proposals less than proposalId for any round from firstSeq onwards.
+     */
+    @Immutable
+    static final class StandingPromise implements Persistable, Versionable {
+        final long firstSeq;
+        final PaxosProposalId proposalId;
+        final long version;
+
+        static final Hydrator<StandingPromise> BYTES_HYDRATOR = new Hydrator<StandingPromise>() {
+            @Override
+            public StandingPromise hydrateFromBytes(byte[] input) {
+                ByteBuffer buffer = ByteBuffer.wrap(input);
+                long version = buffer.getLong();
+                long firstSeq = buffer.getLong();
+                long number = buffer.getLong();
+                byte[] uuid = new byte[buffer.remaining()];
+                buffer.get(uuid);
+                return new StandingPromise(
+                        firstSeq,
+                        new PaxosProposalId(number, new String(uuid, Charsets.UTF_8)),
+                        version);
+            }
+        };
+
+        StandingPromise(long firstSeq, PaxosProposalId proposalId, long version) {
+            this.firstSeq = firstSeq;
+            this.proposalId = proposalId;
+            this.version = version;
+        }
+
+        StandingPromise withPromise(long newFirstSeq, PaxosProposalId newProposalId) {
+            return new StandingPromise(newFirstSeq, newProposalId, version + 1);
+        }
+
+        boolean isSamePromiseAs(@Nullable StandingPromise other) {
+            return other != null
+                    && firstSeq == other.firstSeq
+                    && proposalId.compareTo(other.proposalId) == 0;
+        }
+
+        @Override
+        public byte[] persistToBytes() {
+            byte[] uuid = proposalId.getProposerUUID().getBytes(Charsets.UTF_8);
+            return ByteBuffer.allocate(3 * 8 + uuid.length)
+                    .putLong(version)
+                    .putLong(firstSeq)
+                    .putLong(proposalId.getNumber())
+                    .put(uuid)
+                    .array();
+        }
+
+        @Override
+        public long getVersion() {
+            return version;
+        }
+    }
 }
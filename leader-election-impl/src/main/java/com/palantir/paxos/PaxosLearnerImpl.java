@@ -34,7 +34,7 @@ public class PaxosLearnerImpl implements PaxosLearner {
      * @return a new learner
      */
     public static PaxosLearner newLearner(String logDir) {
-        PaxosStateLogImpl<PaxosValue> log = new PaxosStateLogImpl<PaxosValue>(logDir);
+        PaxosStateLog<PaxosValue> log = new SegmentedPaxosStateLog<PaxosValue>(logDir);
         ConcurrentSkipListMap<Long, PaxosValue> state = new ConcurrentSkipListMap<Long, PaxosValue>();
 
         byte[] greatestValidValue = PaxosStateLogs.getGreatestValidLogEntry(log);
@@ -104,4 +104,16 @@ public class PaxosLearnerImpl implements PaxosLearner {
         }
         return null;
     }
+
+    /**
+     * Forgets the values learned for rounds up to and including the given one, except for the
+     * greatest learned value.  Callers must no longer need those rounds.
+     */
+    public void truncate(long toDeleteInclusive) {
+        log.truncate(toDeleteInclusive);
+        PaxosValue greatest = getGreatestLearnedValue();
+        if (greatest != null) {
+            state.headMap(Math.min(toDeleteInclusive + 1, greatest.seq)).clear();
+        }
+    }
 }
@@ -17,11 +17,13 @@ package com.palantir.paxos;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.TreeSet;
 import java.util.UUID;
 import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,16 +31,31 @@ import org.slf4j.LoggerFactory;
 import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 
 /**
  * Implementation of a paxos proposer than can be a designated proposer (leader) and designated
  * learner (informer).
+ * <p>
+ * A proposer created with {@link #newMultiPaxosProposer} runs phase one with
+ * {@link PaxosAcceptor#prepareRange}, which also promises every later round.  Until it is preempted
+ * it then proposes in those later rounds with phase two alone.  This only pays off for a proposer
+ * that is the sole one proposing for a while, such as one used only by the current leader; with
+ * several active proposers they keep preempting one another and every round runs both phases.
  *
  * @author rullman
  */
 public class PaxosProposerImpl implements PaxosProposer {
     private static final Logger log = LoggerFactory.getLogger(PaxosProposerImpl.class);
 
+    /*
+     * The fast path may be taken at most once per round under a standing promise, since two
+     * different values accepted under the same proposal id could both reach a quorum.  Past this
+     * many claimed rounds the oldest ones are forgotten and all rounds up to them run both phases.
+     */
+    private static final int MAX_CLAIMED_ROUNDS = 10000;
+
     public static PaxosProposer newProposer(PaxosLearner localLearner,
                                             List<PaxosAcceptor> allAcceptors,
                                             List<PaxosLearner> allLearners,
@@ -50,7 +67,27 @@ public class PaxosProposerImpl implements PaxosProposer {
                 ImmutableList.copyOf(allLearners),
                 quorumSize,
                 UUID.randomUUID().toString(),
-                executor);
+                executor,
+                false);
+    }
+
+    /**
+     * Creates a proposer that keeps a standing promise from a quorum of acceptors after its first
+     * successful round and skips phase one for later rounds until another proposer preempts it.
+     */
+    public static PaxosProposer newMultiPaxosProposer(PaxosLearner localLearner,
+                                                      List<PaxosAcceptor> allAcceptors,
+                                                      List<PaxosLearner> allLearners,
+                                                      int quorumSize,
+                                                      Executor executor) {
+        return new PaxosProposerImpl(
+                localLearner,
+                ImmutableList.copyOf(allAcceptors),
+                ImmutableList.copyOf(allLearners),
+                quorumSize,
+                UUID.randomUUID().toString(),
+                executor,
+                true);
     }
 
     final ImmutableList<PaxosAcceptor> allAcceptors;
@@ -61,13 +98,17 @@ public class PaxosProposerImpl implements PaxosProposer {
     final AtomicLong proposalNum;
 
     private final Executor executor;
+    private final boolean multiPaxos;
+    @Nullable
+    private volatile StandingPromise standingPromise = null;
 
     private PaxosProposerImpl(PaxosLearner localLearner,
                              ImmutableList<PaxosAcceptor> acceptors,
                              ImmutableList<PaxosLearner> learners,
                              int quorumSize,
                              String uuid,
-                             Executor executor) {
+                             Executor executor,
+                             boolean multiPaxos) {
         Preconditions.checkState(
                 quorumSize > acceptors.size() / 2,
                 "quorum size needs to be at least the majority of acceptors");
@@ -78,18 +119,36 @@ public class PaxosProposerImpl implements PaxosProposer {
         this.uuid = uuid;
         this.proposalNum = new AtomicLong();
         this.executor = executor;
+        this.multiPaxos = multiPaxos;
     }
 
     @Override
     public byte[] propose(final long seq, @Nullable byte[] bytes) throws PaxosRoundFailureException {
-        final PaxosProposalId proposalID = new PaxosProposalId(proposalNum.incrementAndGet(), uuid);
         PaxosValue toPropose = new PaxosValue(uuid, seq, bytes);
+        final PaxosValue finalValue;
 
-        // paxos phase one (prepare and promise)
-        final PaxosValue finalValue = phaseOne(seq, proposalID, toPropose);
+        StandingPromise promise = standingPromise;
+        if (promise != null && promise.claim(seq)) {
+            // no member of the quorum had accepted anything this late when it made the promise
+            finalValue = toPropose;
+            try {
+                phaseTwo(seq, promise.proposalId, finalValue);
+            } catch (PaxosRoundFailureException e) {
+                log.info("lost the standing promise for round {}, rerunning phase one", seq);
+                dropStandingPromise(promise);
+                return propose(seq, bytes);
+            }
+        } else {
+            final PaxosProposalId proposalID = new PaxosProposalId(proposalNum.incrementAndGet(), uuid);
+
+            // paxos phase one (prepare and promise)
+            finalValue = multiPaxos
+                    ? rangePhaseOne(seq, proposalID, toPropose)
+                    : phaseOne(seq, proposalID, toPropose);
 
-        // paxos phase two (accept request and accepted)
-        phaseTwo(seq, proposalID, finalValue);
+            // paxos phase two (accept request and accepted)
+            phaseTwo(seq, proposalID, finalValue);
+        }
 
         // broadcast learned value
         for (final PaxosLearner learner : allLearners) {
@@ -143,22 +202,68 @@ public class PaxosProposerImpl implements PaxosProposer {
                 PaxosQuorumChecker.DEFAULT_REMOTE_REQUESTS_TIMEOUT_IN_SECONDS);
 
         if (!PaxosQuorumChecker.hasQuorum(receivedPromises, quorumSize)) {
-            // update proposal number on failure
-            for (PaxosPromise promise : receivedPromises) {
-                while (true) {
-                    long curNum = proposalNum.get();
-                    if (promise.promisedId.getNumber() <= curNum) {
-                        break;
-                    }
-                    if (proposalNum.compareAndSet(curNum, promise.promisedId.getNumber())) {
-                        break;
+            updateProposalNumber(receivedPromises);
+            throw new PaxosRoundFailureException("failed to acquire quorum in paxos phase one");
+        }
+
+        PaxosPromise greatestPromise = Collections.max(receivedPromises);
+        if (greatestPromise.lastAcceptedValue != null) {
+            return greatestPromise.lastAcceptedValue;
+        }
+
+        return value;
+    }
+
+    /**
+     * Executes phase one of paxos for the given round and every later round.  On success the
+     * acceptors in the quorum have promised proposalID every round from seq onwards, and the rounds
+     * after the latest one any of them knows about become a standing promise this proposer can use
+     * without running phase one again.
+     * <p>
+     * If no acceptor rejects the proposal but there are still too few responses, which is what
+     * acceptors that predate range prepares look like, this falls back to a plain phase one.
+     *
+     * @return the value accepted by the quorum
+     * @throws PaxosRoundFailureException if quorum cannot be reached in this phase
+     */
+    private PaxosValue rangePhaseOne(final long seq, final PaxosProposalId pid, PaxosValue value)
+            throws PaxosRoundFailureException {
+        List<PaxosRangePromise> receivedPromises = PaxosQuorumChecker.<PaxosAcceptor, PaxosRangePromise> collectQuorumResponses(
+                allAcceptors,
+                new Function<PaxosAcceptor, PaxosRangePromise>() {
+                    @Override
+                    @Nullable
+                    public PaxosRangePromise apply(@Nullable PaxosAcceptor acceptor) {
+                        return acceptor.prepareRange(seq, pid);
                     }
-                }
+                },
+                quorumSize,
+                executor,
+                PaxosQuorumChecker.DEFAULT_REMOTE_REQUESTS_TIMEOUT_IN_SECONDS);
+
+        List<PaxosPromise> promises = Lists.newArrayListWithCapacity(receivedPromises.size());
+        long latestSeq = seq;
+        boolean rejected = false;
+        for (PaxosRangePromise rangePromise : receivedPromises) {
+            promises.add(rangePromise.promise);
+            if (rangePromise.isSuccessful()) {
+                latestSeq = Math.max(latestSeq, rangePromise.latestSequencePreparedOrAccepted);
+            } else {
+                rejected = true;
+            }
+        }
+
+        if (!PaxosQuorumChecker.hasQuorum(receivedPromises, quorumSize)) {
+            if (!rejected) {
+                return phaseOne(seq, pid, value);
             }
+            updateProposalNumber(promises);
             throw new PaxosRoundFailureException("failed to acquire quorum in paxos phase one");
         }
 
-        PaxosPromise greatestPromise = Collections.max(receivedPromises);
+        installStandingPromise(new StandingPromise(pid, latestSeq + 1));
+
+        PaxosPromise greatestPromise = Collections.max(promises);
         if (greatestPromise.lastAcceptedValue != null) {
             return greatestPromise.lastAcceptedValue;
         }
@@ -166,6 +271,19 @@ public class PaxosProposerImpl implements PaxosProposer {
         return value;
     }
 
+    private synchronized void installStandingPromise(StandingPromise promise) {
+        StandingPromise current = standingPromise;
+        if (current == null || current.proposalId.compareTo(promise.proposalId) < 0) {
+            standingPromise = promise;
+        }
+    }
+
+    private synchronized void dropStandingPromise(StandingPromise promise) {
+        if (standingPromise == promise) {
+            standingPromise = null;
+        }
+    }
+
     /**
      * Executes phase two of paxos (see
      * http://en.wikipedia.org/wiki/Paxos_(computer_science)#Basic_Paxos)
@@ -195,6 +313,23 @@ public class PaxosProposerImpl implements PaxosProposer {
         }
     }
 
+    /**
+     * Updates the proposal number on failure so the next attempt outbids the competing proposals.
+     */
+    private void updateProposalNumber(List<PaxosPromise> receivedPromises) {
+        for (PaxosPromise promise : receivedPromises) {
+            while (true) {
+                long curNum = proposalNum.get();
+                if (promise.promisedId.getNumber() <= curNum) {
+                    break;
+                }
+                if (proposalNum.compareAndSet(curNum, promise.promisedId.getNumber())) {
+                    break;
+                }
+            }
+        }
+    }
+
     @Override
     public int getQuorumSize() {
         return quorumSize;
@@ -204,5 +339,36 @@ public class PaxosProposerImpl implements PaxosProposer {
     public String getUUID() {
         return uuid;
     }
+    /**
+     * A promise from a quorum of acceptors not to accept proposals less than proposalId for any
+     * round from firstSeq onwards, in none of which a member of that quorum had accepted a value.
+     */
+    private static final class StandingPromise {
+        final PaxosProposalId proposalId;
+        final long firstSeq;
+        @GuardedBy("this")
+        final TreeSet<Long> claimedRounds = Sets.newTreeSet();
+        @GuardedBy("this")
+        long claimedThrough;
+
+        StandingPromise(PaxosProposalId proposalId, long firstSeq) {
+            this.proposalId = proposalId;
+            this.firstSeq = firstSeq;
+            this.claimedThrough = firstSeq - 1;
+        }
 
+        /**
+         * @return true if the round may be proposed in with phase two alone, which is only the case
+         *         for the first attempt at it
+         */
+        synchronized boolean claim(long seq) {
+            if (seq <= claimedThrough || !claimedRounds.add(seq)) {
+                return false;
+            }
+            while (claimedRounds.size() > MAX_CLAIMED_ROUNDS) {
+                claimedThrough = claimedRounds.pollFirst();
+            }
+            return true;
+        }
+    }
 }
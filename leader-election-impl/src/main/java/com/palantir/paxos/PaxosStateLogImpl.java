@@ -227,7 +227,34 @@ public class PaxosStateLogImpl<V extends Persistable & Versionable> implements P
         }
     }
 
-    private List<File> getLogEntries(File dir) {
+    /**
+     * @return true if the directory holds any rounds written in this class's one file per round layout
+     */
+    static boolean hasRoundFiles(File dir) {
+        List<File> files = getLogEntries(dir);
+        return files != null && !files.isEmpty();
+    }
+
+    /**
+     * Deletes every round file, including any left half written, from the given directory.
+     */
+    static void deleteRoundFiles(File dir) throws IOException {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            String name = file.getName();
+            if (name.endsWith(TMP_FILE_SUFFIX)) {
+                name = name.substring(0, name.length() - TMP_FILE_SUFFIX.length());
+            }
+            if (nameIsALongPredicate().apply(new File(name)) && !file.delete()) {
+                throw new IOException("Failed to delete " + file.getAbsolutePath());
+            }
+        }
+    }
+
+    private static List<File> getLogEntries(File dir) {
         File[] files = dir.listFiles();
         if (files == null) {
             return null;
@@ -0,0 +1,601 @@
+/**
+ * Copyright 2015 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.paxos;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.palantir.common.base.Throwables;
+import com.palantir.common.persist.Persistable;
+import com.palantir.util.file.FileUtils;
+
+/**
+ * A {@link PaxosStateLog} that appends rounds to a sequence of segment files rather than writing
+ * each round to a file of its own.
+ * <p>
+ * Every record holds the round's sequence number, version and bytes followed by a CRC32 of the
+ * record, and an in-memory index maps each sequence number to the record holding its latest
+ * version.  Concurrent {@link #writeRound} calls append their records and then share one fsync:
+ * a single writer forces the segment while the others wait for it, and everything appended
+ * before it started is durable once it finishes.
+ * <p>
+ * A new segment is started once the active one grows past its size limit.  {@link #truncate}
+ * appends the truncation point to the log and deletes every older segment whose rounds all fall
+ * at or below it.  Rounds at or below the truncation point are ignored from then on, including
+ * any that are written later.
+ * <p>
+ * A directory written by {@link PaxosStateLogImpl}, with one file per round, is migrated into a
+ * single segment the first time it is opened.
+ */
+public class SegmentedPaxosStateLog<V extends Persistable & Versionable> implements PaxosStateLog<V> {
+    private static final Logger log = LoggerFactory.getLogger(SegmentedPaxosStateLog.class);
+
+    private static final String SEGMENT_SUFFIX = ".segment";
+    private static final String TMP_FILE_SUFFIX = ".tmp";
+    private static final long DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+    private static final byte ROUND_RECORD = 1;
+    private static final byte TRUNCATE_RECORD = 2;
+    // type, seq, version and payload length
+    private static final int HEADER_SIZE = 1 + 8 + 8 + 4;
+    private static final int CHECKSUM_SIZE = 4;
+    private static final long NOT_TRUNCATED = Long.MIN_VALUE;
+    // Rounds migrated from the old layout have no known version, so any new write replaces them.
+    private static final long MIGRATED_VERSION = Long.MIN_VALUE;
+
+    final String path;
+    private final long segmentSize;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    @GuardedBy("lock")
+    private final TreeMap<Long, Segment> segments = Maps.newTreeMap();
+    @GuardedBy("lock")
+    private final TreeMap<Long, Entry> index = Maps.newTreeMap();
+    @GuardedBy("lock")
+    private Segment active;
+    // Segments rolled over since the last fsync, which the next one forces along with the active segment.
+    @GuardedBy("lock")
+    private final List<Segment> rolledSegments = Lists.newArrayList();
+    @GuardedBy("lock")
+    private long appended = 0;
+    @GuardedBy("lock")
+    private long truncatedThrough = NOT_TRUNCATED;
+
+    private final Object syncMonitor = new Object();
+    @GuardedBy("syncMonitor")
+    private long synced;
+    @GuardedBy("syncMonitor")
+    private boolean syncing = false;
+
+    public SegmentedPaxosStateLog(String path) {
+        this(path, DEFAULT_SEGMENT_SIZE);
+    }
+
+    SegmentedPaxosStateLog(String path, long segmentSize) {
+        this.path = path;
+        this.segmentSize = segmentSize;
+        File dir = new File(path);
+        lock.lock();
+        try {
+            FileUtils.mkdirsWithRetry(dir);
+            if (PaxosStateLogImpl.hasRoundFiles(dir)) {
+                migrateRoundFiles(dir);
+            }
+            openSegments(dir);
+            synchronized (syncMonitor) {
+                synced = appended;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("IO problem related to the path " + dir.getAbsolutePath(), e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void writeRound(long seq, V round) {
+        byte[] bytes = round.persistToBytes();
+        long version = round.getVersion();
+        Entry entry;
+        lock.lock();
+        try {
+            // reject old state
+            Entry latest = index.get(seq);
+            if (seq <= truncatedThrough || (latest != null && version < latest.version)) {
+                return;
+            }
+            entry = append(ROUND_RECORD, seq, version, bytes);
+        } finally {
+            lock.unlock();
+        }
+
+        awaitDurable(entry.appendCount);
+
+        lock.lock();
+        try {
+            install(seq, entry);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @GuardedBy("lock")
+    private Entry append(byte type, long seq, long version, byte[] bytes) {
+        try {
+            if (active.size >= segmentSize) {
+                roll();
+            }
+            long offset = active.size;
+            active.append(encode(type, seq, version, bytes));
+            if (type == ROUND_RECORD) {
+                active.maxRoundSeq = Math.max(active.maxRoundSeq, seq);
+            }
+            return new Entry(active, offset, version, ++appended);
+        } catch (IOException e) {
+            log.error("problem writing paxos state", e);
+            throw Throwables.throwUncheckedException(e);
+        }
+    }
+
+    @GuardedBy("lock")
+    private void roll() throws IOException {
+        // Not forced here, so writers don't wait on the lock for it; see awaitDurable.
+        rolledSegments.add(active);
+        long id = active.id + 1;
+        active = Segment.open(id, new File(path, getSegmentName(id)));
+        segments.put(id, active);
+        if (truncatedThrough != NOT_TRUNCATED) {
+            // Restate the truncation point so that it survives older segments being deleted.
+            active.append(encode(TRUNCATE_RECORD, truncatedThrough, 0, new byte[0]));
+            appended++;
+        }
+    }
+
+    /**
+     * Waits until at least the first appendCount records appended are durable, forcing the
+     * active segment and any segments rolled over since the last fsync itself unless another
+     * writer is already doing so.
+     */
+    private void awaitDurable(long appendCount) {
+        boolean interrupted = false;
+        while (true) {
+            synchronized (syncMonitor) {
+                while (syncing && synced < appendCount) {
+                    try {
+                        syncMonitor.wait();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+                if (synced >= appendCount) {
+                    break;
+                }
+                syncing = true;
+            }
+            long target = 0;
+            boolean success = false;
+            try {
+                List<Segment> toForce;
+                lock.lock();
+                try {
+                    target = appended;
+                    toForce = ImmutableList.<Segment>builder().addAll(rolledSegments).add(active).build();
+                } finally {
+                    lock.unlock();
+                }
+                for (Segment segment : toForce) {
+                    segment.force();
+                }
+                lock.lock();
+                try {
+                    rolledSegments.removeAll(toForce);
+                } finally {
+                    lock.unlock();
+                }
+                success = true;
+            } catch (IOException e) {
+                log.error("problem writing paxos state", e);
+                throw Throwables.throwUncheckedException(e);
+            } finally {
+                synchronized (syncMonitor) {
+                    syncing = false;
+                    if (success) {
+                        synced = Math.max(synced, target);
+                    }
+                    syncMonitor.notifyAll();
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @GuardedBy("lock")
+    private void install(long seq, Entry entry) {
+        if (seq <= truncatedThrough) {
+            return;
+        }
+        Entry existing = index.get(seq);
+        if (existing == null
+                || entry.version > existing.version
+                || (entry.version == existing.version && entry.appendCount > existing.appendCount)) {
+            index.put(seq, entry);
+        }
+    }
+
+    @Override
+    public byte[] readRound(long seq) throws IOException {
+        Entry entry;
+        lock.lock();
+        try {
+            entry = index.get(seq);
+        } finally {
+            lock.unlock();
+        }
+        if (entry == null) {
+            return null;
+        }
+        Record record;
+        try {
+            record = readRecord(entry.segment.channel, entry.offset);
+        } catch (ClosedChannelException e) {
+            // The segment was deleted by a concurrent truncate.
+            return null;
+        }
+        if (record == null || record.type != ROUND_RECORD || record.seq != seq) {
+            throw new CorruptLogFileException();
+        }
+        return record.bytes;
+    }
+
+    @Override
+    public long getLeastLogEntry() {
+        lock.lock();
+        try {
+            if (truncatedThrough < PaxosAcceptor.NO_LOG_ENTRY || index.isEmpty()) {
+                return PaxosAcceptor.NO_LOG_ENTRY;
+            }
+            return index.firstKey();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long getGreatestLogEntry() {
+        lock.lock();
+        try {
+            return index.isEmpty() ? PaxosAcceptor.NO_LOG_ENTRY : index.lastKey();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void truncate(long toDeleteInclusive) {
+        Entry marker;
+        lock.lock();
+        try {
+            if (!index.isEmpty()) {
+                // We never want to remove our most recent entry
+                toDeleteInclusive = Math.min(index.lastKey() - 1, toDeleteInclusive);
+            }
+            if (toDeleteInclusive <= truncatedThrough) {
+                return;
+            }
+            applyTruncate(toDeleteInclusive);
+            marker = append(TRUNCATE_RECORD, toDeleteInclusive, 0, new byte[0]);
+        } finally {
+            lock.unlock();
+        }
+
+        // Only delete segments once the truncation point is durable, or they could come back as
+        // a partial log after a crash.
+        awaitDurable(marker.appendCount);
+
+        lock.lock();
+        try {
+            deleteTruncatedSegments();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @GuardedBy("lock")
+    private void applyTruncate(long toDeleteInclusive) {
+        truncatedThrough = Math.max(truncatedThrough, toDeleteInclusive);
+        index.headMap(truncatedThrough, true).clear();
+    }
+
+    @GuardedBy("lock")
+    private void deleteTruncatedSegments() {
+        // The latest truncation point is always in the active segment, which is never deleted.
+        Iterator<Segment> it = segments.values().iterator();
+        while (it.hasNext()) {
+            Segment segment = it.next();
+            if (segment == active || segment.maxRoundSeq > truncatedThrough) {
+                continue;
+            }
+            it.remove();
+            rolledSegments.remove(segment);
+            segment.close();
+            if (!segment.file.delete()) {
+                log.warn("failed to delete log segment {}", segment.file.getAbsolutePath());
+            }
+        }
+    }
+
+    @GuardedBy("lock")
+    private void openSegments(File dir) throws IOException {
+        TreeMap<Long, File> files = Maps.newTreeMap();
+        for (File file : dir.listFiles()) {
+            String name = file.getName();
+            if (name.endsWith(SEGMENT_SUFFIX + TMP_FILE_SUFFIX)) {
+                deleteFile(file);
+            } else if (name.endsWith(SEGMENT_SUFFIX)) {
+                files.put(getSegmentId(name), file);
+            }
+        }
+        for (File file : files.values()) {
+            Segment segment = Segment.open(getSegmentId(file.getName()), file);
+            segments.put(segment.id, segment);
+            replay(segment, file == files.lastEntry().getValue());
+        }
+        if (segments.isEmpty()) {
+            Segment segment = Segment.open(0, new File(dir, getSegmentName(0)));
+            segments.put(segment.id, segment);
+        }
+        active = segments.lastEntry().getValue();
+    }
+
+    @GuardedBy("lock")
+    private void replay(Segment segment, boolean isLast) throws IOException {
+        long position = 0;
+        Record record;
+        while ((record = readRecord(segment.channel, position)) != null) {
+            if (record.type == TRUNCATE_RECORD) {
+                applyTruncate(record.seq);
+            } else if (record.type == ROUND_RECORD) {
+                segment.maxRoundSeq = Math.max(segment.maxRoundSeq, record.seq);
+                install(record.seq, new Entry(segment, position, record.version, ++appended));
+            }
+            position += record.size();
+        }
+        long length = segment.channel.size();
+        if (position < length) {
+            log.warn("Ignoring {} bytes of incomplete or corrupt records at the end of {}.",
+                    length - position, segment.file.getAbsolutePath());
+            if (isLast) {
+                // Most likely a torn write; drop it so new records follow the last good one.
+                segment.channel.truncate(position);
+                length = position;
+            }
+        }
+        segment.size = length;
+    }
+
+    @GuardedBy("lock")
+    private void migrateRoundFiles(File dir) throws IOException {
+        File first = new File(dir, getSegmentName(0));
+        if (!first.exists()) {
+            // A segment is only renamed into place once every round has been copied into it.
+            File tmp = new File(dir, getSegmentName(0) + TMP_FILE_SUFFIX);
+            deleteFile(tmp);
+            Segment segment = Segment.open(0, tmp);
+            try {
+                PaxosStateLogImpl<V> oldLog = new PaxosStateLogImpl<V>(path);
+                long least = oldLog.getLeastLogEntry();
+                long greatest = oldLog.getGreatestLogEntry();
+                if (least != PaxosAcceptor.NO_LOG_ENTRY) {
+                    segment.append(encode(TRUNCATE_RECORD, least - 1, 0, new byte[0]));
+                }
+                int migrated = 0;
+                for (long seq = least; seq <= greatest; seq++) {
+                    if (seq == PaxosAcceptor.NO_LOG_ENTRY) {
+                        continue;
+                    }
+                    byte[] bytes;
+                    try {
+                        bytes = oldLog.readRound(seq);
+                    } catch (CorruptLogFileException e) {
+                        log.warn("Not migrating corrupt paxos round {} in {}.", seq, path);
+                        continue;
+                    }
+                    if (bytes != null) {
+                        segment.append(encode(ROUND_RECORD, seq, MIGRATED_VERSION, bytes));
+                        migrated++;
+                    }
+                }
+                segment.force();
+                log.info("Migrated {} paxos rounds in {} to a segmented log.", migrated, path);
+            } finally {
+                segment.close();
+            }
+            if (!tmp.renameTo(first)) {
+                throw new IOException("Failed to rename " + tmp.getAbsolutePath() + " to " + first.getAbsolutePath());
+            }
+        }
+        PaxosStateLogImpl.deleteRoundFiles(dir);
+    }
+
+    private static void deleteFile(File file) throws IOException {
+        if (file.exists() && !file.delete()) {
+            throw new IOException("Failed to delete " + file.getAbsolutePath());
+        }
+    }
+
+    private static String getSegmentName(long id) {
+        return id + SEGMENT_SUFFIX;
+    }
+
+    private static long getSegmentId(String name) {
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static ByteBuffer encode(byte type, long seq, long version, byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + bytes.length + CHECKSUM_SIZE);
+        buffer.put(type).putLong(seq).putLong(version).putInt(bytes.length).put(bytes);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * @return the record at the given position, or null if it is incomplete or fails its checksum
+     */
+    @Nullable
+    private static Record readRecord(FileChannel channel, long position) throws IOException {
+        long available = channel.size() - position;
+        if (available < HEADER_SIZE + CHECKSUM_SIZE) {
+            return null;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(channel, header, position);
+        header.flip();
+        byte type = header.get();
+        long seq = header.getLong();
+        long version = header.getLong();
+        int length = header.getInt();
+        if (length < 0 || HEADER_SIZE + (long) length + CHECKSUM_SIZE > available) {
+            return null;
+        }
+        ByteBuffer rest = ByteBuffer.allocate(length + CHECKSUM_SIZE);
+        readFully(channel, rest, position + HEADER_SIZE);
+        CRC32 crc = new CRC32();
+        crc.update(header.array());
+        crc.update(rest.array(), 0, length);
+        if (rest.getInt(length) != (int) crc.getValue()) {
+            return null;
+        }
+        return new Record(type, seq, version, Arrays.copyOf(rest.array(), length));
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    private static final class Segment {
+        final long id;
+        final File file;
+        final FileChannel channel;
+        long size = 0;
+        long maxRoundSeq = Long.MIN_VALUE;
+
+        static Segment open(long id, File file) throws IOException {
+            return new Segment(id, file, new RandomAccessFile(file, "rw").getChannel());
+        }
+
+        private Segment(long id, File file, FileChannel channel) {
+            this.id = id;
+            this.file = file;
+            this.channel = channel;
+        }
+
+        void append(ByteBuffer record) throws IOException {
+            long offset = size;
+            try {
+                while (record.hasRemaining()) {
+                    channel.write(record, offset + record.position());
+                }
+            } catch (IOException e) {
+                // Don't leave a partial record behind for later ones to be appended after.
+                try {
+                    channel.truncate(offset);
+                } catch (IOException suppressed) {
+                    log.warn("failed to discard partial paxos record in {}", file.getAbsolutePath(), suppressed);
+                }
+                throw e;
+            }
+            size = offset + record.limit();
+        }
+
+        void force() throws IOException {
+            try {
+                channel.force(true);
+            } catch (ClosedChannelException e) {
+                // Only segments deleted by a truncation, whose rounds no longer matter, are closed
+                // while the log is open.
+            }
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("failed to close log segment {}", file.getAbsolutePath(), e);
+            }
+        }
+    }
+
+    private static final class Entry {
+        final Segment segment;
+        final long offset;
+        final long version;
+        final long appendCount;
+
+        Entry(Segment segment, long offset, long version, long appendCount) {
+            this.segment = segment;
+            this.offset = offset;
+            this.version = version;
+            this.appendCount = appendCount;
+        }
+    }
+
+    private static final class Record {
+        final byte type;
+        final long seq;
+        final long version;
+        final byte[] bytes;
+
+        Record(byte type, long seq, long version, byte[] bytes) {
+            this.type = type;
+            this.seq = seq;
+            this.version = version;
+            this.bytes = bytes;
+        }
+
+        int size() {
+            return HEADER_SIZE + bytes.length + CHECKSUM_SIZE;
+        }
+    }
+}
@@ -22,7 +22,9 @@ import org.junit.runners.Suite.SuiteClasses;
 @RunWith(Suite.class)
 @SuiteClasses({
     PaxosConsensusFastTest.class,
-    PaxosConsensusSlowTest.class
+    PaxosConsensusSlowTest.class,
+    MultiPaxosProposerTest.class,
+    SegmentedPaxosStateLogTest.class
 })
 public class AllTests {
 }
@@ -0,0 +1,294 @@
+/**
+ * Copyright 2015 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.paxos;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.palantir.common.concurrent.PTExecutors;
+
+public class MultiPaxosProposerTest {
+    private static final String LOG_DIR = "testlogs/multipaxos/";
+    private static final int NUM_NODES = 5;
+    private static final int QUORUM_SIZE = 3;
+
+    private final ExecutorService executor = PTExecutors.newCachedThreadPool();
+    private final List<FaultInjectingAcceptor> acceptors = Lists.newArrayList();
+    private final List<PaxosLearner> learners = Lists.newArrayList();
+
+    @Before
+    public void setup() {
+        for (int i = 0; i < NUM_NODES; i++) {
+            acceptors.add(new FaultInjectingAcceptor(PaxosAcceptorImpl.newAcceptor(getAcceptorLogDir(i))));
+            learners.add(PaxosLearnerImpl.newLearner(LOG_DIR + "learner/" + i));
+        }
+    }
+
+    @After
+    public void teardown() throws Exception {
+        executor.shutdownNow();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+        FileUtils.deleteDirectory(new File(LOG_DIR));
+    }
+
+    @Test
+    public void testStableProposerSkipsPhaseOne() throws Exception {
+        PaxosProposer proposer = newMultiPaxosProposer(0);
+        for (int seq = 0; seq < 10; seq++) {
+            assertArrayEquals(bytes("value" + seq), proposer.propose(seq, bytes("value" + seq)));
+        }
+        // Only the first round ran phase one, and none of it went to a single round.
+        assertTrue(totalRangePrepares() <= NUM_NODES);
+        assertEquals(0, totalPrepares());
+        for (int seq = 0; seq < 10; seq++) {
+            assertArrayEquals(bytes("value" + seq), learners.get(0).getLearnedValue(seq).getData());
+        }
+    }
+
+    @Test
+    public void testClassicProposerRunsPhaseOneEveryRound() throws Exception {
+        PaxosProposer proposer = PaxosProposerImpl.newProposer(
+                learners.get(0), acceptorList(), learners, QUORUM_SIZE, executor);
+        for (int seq = 0; seq < 3; seq++) {
+            proposer.propose(seq, bytes("value" + seq));
+        }
+        assertEquals(0, totalRangePrepares());
+        assertTrue(totalPrepares() >= 3 * QUORUM_SIZE);
+    }
+
+    @Test
+    public void testPreemptedProposerKeepsChosenValue() throws Exception {
+        PaxosProposer first = newMultiPaxosProposer(0);
+        PaxosProposer second = newMultiPaxosProposer(1);
+        first.propose(0, bytes("first"));
+
+        // the second proposer outbids the first one's standing promise
+        assertArrayEquals(bytes("second"), proposeWithRetries(second, 1, "second"));
+
+        // the first proposer's phase two is rejected, and its new phase one finds the chosen value
+        assertArrayEquals(bytes("second"), proposeWithRetries(first, 1, "first"));
+        assertArrayEquals(bytes("first again"), proposeWithRetries(first, 2, "first again"));
+        assertArrayEquals(bytes("second"), learners.get(0).getLearnedValue(1).getData());
+    }
+
+    @Test
+    public void testProposersTakingTurns() throws Exception {
+        List<PaxosProposer> proposers = Lists.newArrayList();
+        for (int i = 0; i < 3; i++) {
+            proposers.add(newMultiPaxosProposer(i));
+        }
+        for (int seq = 0; seq < 30; seq++) {
+            PaxosProposer proposer = proposers.get((seq / 4) % proposers.size());
+            assertArrayEquals(bytes("value" + seq), proposeWithRetries(proposer, seq, "value" + seq));
+        }
+        for (int seq = 0; seq < 30; seq++) {
+            byte[] learned = proposeWithRetries(proposers.get(seq % proposers.size()), seq, "late");
+            assertArrayEquals(bytes("value" + seq), learned);
+        }
+    }
+
+    @Test
+    public void testMinorityOfAcceptorsDown() throws Exception {
+        PaxosProposer proposer = newMultiPaxosProposer(0);
+        proposer.propose(0, bytes("before"));
+        acceptors.get(3).down.set(true);
+        acceptors.get(4).down.set(true);
+        assertArrayEquals(bytes("during"), proposer.propose(1, bytes("during")));
+        assertEquals(0, totalPrepares());
+    }
+
+    @Test
+    public void testMajorityOfAcceptorsDown() throws Exception {
+        PaxosProposer proposer = newMultiPaxosProposer(0);
+        proposer.propose(0, bytes("before"));
+        for (int i = 2; i < NUM_NODES; i++) {
+            acceptors.get(i).down.set(true);
+        }
+        try {
+            proposer.propose(1, bytes("during"));
+            fail("expected the round to fail without a quorum");
+        } catch (PaxosRoundFailureException e) {
+            // expected
+        }
+        for (int i = 2; i < NUM_NODES; i++) {
+            acceptors.get(i).down.set(false);
+        }
+        assertArrayEquals(bytes("after"), proposer.propose(2, bytes("after")));
+        // round 1 may or may not have been chosen, but a retry must agree with any learner
+        byte[] retried = proposer.propose(1, bytes("retry"));
+        assertTrue(new String(retried, Charsets.UTF_8).equals("during")
+                || new String(retried, Charsets.UTF_8).equals("retry"));
+    }
+
+    @Test
+    public void testFallsBackWithoutRangePrepare() throws Exception {
+        for (FaultInjectingAcceptor acceptor : acceptors) {
+            acceptor.rangePrepareUnsupported.set(true);
+        }
+        PaxosProposer proposer = newMultiPaxosProposer(0);
+        for (int seq = 0; seq < 3; seq++) {
+            assertArrayEquals(bytes("value" + seq), proposer.propose(seq, bytes("value" + seq)));
+        }
+        assertTrue(totalPrepares() >= 3 * QUORUM_SIZE);
+    }
+
+    @Test
+    public void testStandingPromiseSurvivesRestart() {
+        PaxosAcceptor acceptor = acceptors.get(0).delegate;
+        PaxosRangePromise promise = acceptor.prepareRange(5, new PaxosProposalId(10, "leader"));
+        assertTrue(promise.isSuccessful());
+
+        PaxosAcceptor restarted = PaxosAcceptorImpl.newAcceptor(getAcceptorLogDir(0));
+        assertFalse(restarted.prepare(7, new PaxosProposalId(3, "other")).isSuccessful());
+        assertFalse(restarted.accept(5, new PaxosProposal(
+                new PaxosProposalId(9, "other"),
+                new PaxosValue("other", 5, bytes("other")))).isSuccessful());
+        assertTrue(restarted.prepare(4, new PaxosProposalId(3, "other")).isSuccessful());
+        assertTrue(restarted.prepare(7, new PaxosProposalId(11, "other")).isSuccessful());
+        assertFalse(restarted.prepareRange(6, new PaxosProposalId(9, "other")).isSuccessful());
+    }
+
+    @Test
+    public void testSupersededStandingPromisesAreTruncated() {
+        PaxosAcceptor acceptor = acceptors.get(0).delegate;
+        for (int i = 1; i <= 20; i++) {
+            assertTrue(acceptor.prepareRange(i, new PaxosProposalId(i, "leader")).isSuccessful());
+        }
+
+        PaxosStateLog<PaxosAcceptorImpl.StandingPromise> standingPromiseLog =
+                new SegmentedPaxosStateLog<PaxosAcceptorImpl.StandingPromise>(
+                        new File(getAcceptorLogDir(0), "standing-promise").getPath());
+        assertEquals(standingPromiseLog.getGreatestLogEntry(), standingPromiseLog.getLeastLogEntry());
+
+        PaxosAcceptor restarted = PaxosAcceptorImpl.newAcceptor(getAcceptorLogDir(0));
+        assertFalse(restarted.prepare(25, new PaxosProposalId(19, "other")).isSuccessful());
+        assertTrue(restarted.prepare(25, new PaxosProposalId(21, "other")).isSuccessful());
+    }
+
+    /**
+     * Competing proposers may fail a round before one of them outbids the others, as callers of
+     * {@link PaxosProposer#propose} expect.
+     */
+    private static byte[] proposeWithRetries(PaxosProposer proposer, long seq, String value)
+            throws PaxosRoundFailureException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return proposer.propose(seq, bytes(value));
+            } catch (PaxosRoundFailureException e) {
+                if (attempt == 3) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private PaxosProposer newMultiPaxosProposer(int node) {
+        return PaxosProposerImpl.newMultiPaxosProposer(
+                learners.get(node), acceptorList(), learners, QUORUM_SIZE, executor);
+    }
+
+    private List<PaxosAcceptor> acceptorList() {
+        return Lists.<PaxosAcceptor> newArrayList(acceptors);
+    }
+
+    private int totalPrepares() {
+        int total = 0;
+        for (FaultInjectingAcceptor acceptor : acceptors) {
+            total += acceptor.prepares.get();
+        }
+        return total;
+    }
+
+    private int totalRangePrepares() {
+        int total = 0;
+        for (FaultInjectingAcceptor acceptor : acceptors) {
+            total += acceptor.rangePrepares.get();
+        }
+        return total;
+    }
+
+    private static String getAcceptorLogDir(int i) {
+        return LOG_DIR + "acceptor/" + i;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(Charsets.UTF_8);
+    }
+
+    private static class FaultInjectingAcceptor implements PaxosAcceptor {
+        final PaxosAcceptor delegate;
+        final AtomicBoolean down = new AtomicBoolean(false);
+        final AtomicBoolean rangePrepareUnsupported = new AtomicBoolean(false);
+        final AtomicInteger prepares = new AtomicInteger();
+        final AtomicInteger rangePrepares = new AtomicInteger();
+
+        FaultInjectingAcceptor(PaxosAcceptor delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public PaxosPromise prepare(long seq, PaxosProposalId pid) {
+            checkUp();
+            prepares.incrementAndGet();
+            return delegate.prepare(seq, pid);
+        }
+
+        @Override
+        public PaxosRangePromise prepareRange(long seq, PaxosProposalId pid) {
+            checkUp();
+            if (rangePrepareUnsupported.get()) {
+                throw new UnsupportedOperationException("mock acceptor without range prepares");
+            }
+            rangePrepares.incrementAndGet();
+            return delegate.prepareRange(seq, pid);
+        }
+
+        @Override
+        public BooleanPaxosResponse accept(long seq, PaxosProposal proposal) {
+            checkUp();
+            return delegate.accept(seq, proposal);
+        }
+
+        @Override
+        public long getLatestSequencePreparedOrAccepted() {
+            checkUp();
+            return delegate.getLatestSequencePreparedOrAccepted();
+        }
+
+        private void checkUp() {
+            if (down.get()) {
+                throw new RuntimeException("mock server failure");
+            }
+        }
+    }
+}
@@ -0,0 +1,224 @@
+/**
+ * Copyright 2015 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.paxos;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.primitives.Longs;
+import com.palantir.common.persist.Persistable;
+
+public class SegmentedPaxosStateLogTest {
+    private static final String DIR = "segmented-log-test";
+    private static final long SMALL_SEGMENT_SIZE = 1024;
+
+    @Before
+    public void setup() throws IOException {
+        FileUtils.deleteDirectory(new File(DIR));
+    }
+
+    @After
+    public void cleanup() throws IOException {
+        FileUtils.deleteDirectory(new File(DIR));
+    }
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        SegmentedPaxosStateLog<Round> log = new SegmentedPaxosStateLog<Round>(DIR);
+        assertEquals(PaxosAcceptor.NO_LOG_ENTRY, log.getGreatestLogEntry());
+        assertEquals(PaxosAcceptor.NO_LOG_ENTRY, log.getLeastLogEntry());
+        for (long seq = 0; seq < 10; seq++) {
+            log.writeRound(seq, new Round(seq, 0));
+        }
+        assertEquals(9, log.getGreatestLogEntry());
+        assertEquals(PaxosAcceptor.NO_LOG_ENTRY, log.getLeastLogEntry());
+        assertArrayEquals(Longs.toByteArray(3), log.readRound(3));
+        assertNull(log.readRound(10));
+    }
+
+    @Test
+    public void testOlderVersionsAreRejected() throws IOException {
+        SegmentedPaxosStateLog<Round> log = new SegmentedPaxosStateLog<Round>(DIR);
+        log.writeRound(0, new Round(1, 1));
+        log.writeRound(0, new Round(2, 0));
+        assertArrayEquals(Longs.toByteArray(1), log.readRound(0));
+        log.writeRound(0, new Round(3, 1));
+        assertArrayEquals(Longs.toByteArray(3), log.readRound(0));
+
+        log = new SegmentedPaxosStateLog<Round>(DIR);
+        assertArrayEquals(Longs.toByteArray(3), log.readRound(0));
+    }
+
+    @Test
+    public void testReopenAcrossSegments() throws IOException {
+        SegmentedPaxosStateLog<Round> log = new SegmentedPaxosStateLog<Round>(DIR, SMALL_SEGMENT_SIZE);
+        for (long seq = 0; seq < 200; seq++) {
+            log.writeRound(seq, new Round(seq, 0));
+        }
+        assertTrue(getSegmentFiles().length > 1);
+
+        log = new SegmentedPaxosStateLog<Round>(DIR, SMALL_SEGMENT_SIZE);
+        assertEquals(199, log.getGreatestLogEntry());
+        for (long seq = 0; seq < 200; seq++) {
+            assertArrayEquals(Longs.toByteArray(seq), log.readRound(seq));
+        }
+    }
+
+    @Test
+    public void testTruncateDropsSegments() throws IOException {
+        SegmentedPaxosStateLog<Round> log = new SegmentedPaxosStateLog<Round>(DIR, SMALL_SEGMENT_SIZE);
+        for (long seq = 0; seq < 200; seq++) {
+            log.writeRound(seq, new Round(seq, 0));
+        }
+        int segmentsBefore = getSegmentFiles().length;
+        log.truncate(150);
+        assertTrue(getSegmentFiles().length < segmentsBefore);
+        assertEquals(151, log.getLeastLogEntry());
+        assertNull(log.readRound(150));
+        assertArrayEquals(Longs.toByteArray(151), log.readRound(151));
+
+        // Rounds at or below the truncation point stay gone, even once more segments are written.
+        log.writeRound(100, new Round(100, 0));
+        for (long seq = 200; seq < 400; seq++) {
+            log.writeRound(seq, new Round(seq, 0));
+        }
+        log = new SegmentedPaxosStateLog<Round>(DIR, SMALL_SEGMENT_SIZE);
+        assertEquals(151, log.getLeastLogEntry());
+        assertEquals(399, log.getGreatestLogEntry());
+        assertNull(log.readRound(100));
+        assertArrayEquals(Longs.toByteArray(151), log.readRound(151));
+
+        // We never remove our most recent entry.
+        log.truncate(1000);
+        assertEquals(399, log.getLeastLogEntry());
+        assertEquals(399, log.getGreatestLogEntry());
+    }
+
+    @Test
+    public void testTornWriteIsDiscarded() throws IOException {
+        SegmentedPaxosStateLog<Round> log = new SegmentedPaxosStateLog<Round>(DIR);
+        for (long seq = 0; seq < 10; seq++) {
+            log.writeRound(seq, new Round(seq, 0));
+        }
+        FileOutputStream out = new FileOutputStream(getSegmentFiles()[0], true);
+        try {
+            out.write(new byte[] { 1, 0, 0, 0 });
+        } finally {
+            out.close();
+        }
+
+        log = new SegmentedPaxosStateLog<Round>(DIR);
+        assertEquals(9, log.getGreatestLogEntry());
+        log.writeRound(10, new Round(10, 0));
+
+        log = new SegmentedPaxosStateLog<Round>(DIR);
+        assertEquals(10, log.getGreatestLogEntry());
+        assertArrayEquals(Longs.toByteArray(10), log.readRound(10));
+    }
+
+    @Test
+    public void testConcurrentWrites() throws Exception {
+        final SegmentedPaxosStateLog<Round> log = new SegmentedPaxosStateLog<Round>(DIR, SMALL_SEGMENT_SIZE);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = Lists.newArrayList();
+            for (int i = 0; i < 8; i++) {
+                final long first = i * 100;
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        for (long seq = first; seq < first + 100; seq++) {
+                            log.writeRound(seq, new Round(seq, 0));
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        SegmentedPaxosStateLog<Round> reopened = new SegmentedPaxosStateLog<Round>(DIR, SMALL_SEGMENT_SIZE);
+        for (long seq = 0; seq < 800; seq++) {
+            assertArrayEquals(Longs.toByteArray(seq), reopened.readRound(seq));
+        }
+    }
+
+    @Test
+    public void testMigratesRoundFiles() throws IOException {
+        PaxosStateLog<Round> oldLog = new PaxosStateLogImpl<Round>(DIR);
+        for (long seq = 0; seq < 10; seq++) {
+            oldLog.writeRound(seq, new Round(seq, 0));
+        }
+        oldLog.truncate(4);
+
+        SegmentedPaxosStateLog<Round> log = new SegmentedPaxosStateLog<Round>(DIR);
+        assertFalse(PaxosStateLogImpl.hasRoundFiles(new File(DIR)));
+        assertEquals(5, log.getLeastLogEntry());
+        assertEquals(9, log.getGreatestLogEntry());
+        assertNull(log.readRound(4));
+        assertArrayEquals(Longs.toByteArray(7), log.readRound(7));
+
+        // Migrated rounds have no version, so any write replaces them.
+        log.writeRound(7, new Round(70, -1));
+        assertArrayEquals(Longs.toByteArray(70), log.readRound(7));
+    }
+
+    private static File[] getSegmentFiles() {
+        return new File(DIR).listFiles();
+    }
+
+    private static final class Round implements Persistable, Versionable {
+        private final long value;
+        private final long version;
+
+        Round(long value, long version) {
+            this.value = value;
+            this.version = version;
+        }
+
+        @Override
+        public byte[] persistToBytes() {
+            return Longs.toByteArray(value);
+        }
+
+        @Override
+        public long getVersion() {
+            return version;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/**
+ * Copyright 2015 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.lock;
+
+import java.util.Set;
+
+import com.google.common.annotations.Beta;
+import com.google.common.util.concurrent.ListenableFuture;
+
+/**
+ * A {@link RemoteLockService} whose lock calls can also be made without
+ * blocking the calling thread.
+ * <p>
+ * A request that has to wait for its locks is queued on the locks themselves
+ * rather than on a thread, so any number of requests can be blocked at once.
+ * These calls are only available in-process: futures cannot be carried over
+ * the remoting interface, and remote clients use the blocking calls.
+ * <p>
+ * Cancelling a returned future withdraws the request and releases any locks it
+ * had already acquired.
+ */
+@Beta public interface AsyncLockService extends RemoteLockService {
+    /**
+     * Asynchronous version of {@link #lockAnonymously(LockRequest)}. The
+     * future's value is null if the lock request failed.
+     */
+    ListenableFuture<LockRefreshToken> lockAnonymouslyAsync(LockRequest request);
+
+    /**
+     * Asynchronous version of {@link #lockWithClient(String, LockRequest)}. The
+     * future's value is null if the lock request failed.
+     */
+    ListenableFuture<LockRefreshToken> lockWithClientAsync(String client, LockRequest request);
+
+    /**
+     * Asynchronous version of {@link LockService#lock(LockClient, LockRequest)}.
+     */
+    ListenableFuture<LockResponse> lockAsync(LockClient client, LockRequest request);
+
+    /**
+     * Asynchronous version of {@link #waitForLocks(Set)}.
+     */
+    ListenableFuture<Void> waitForLocksAsync(Set<LockDescriptor> lockDescriptors);
+}
@@ -47,6 +47,11 @@ public abstract class ForwardingLockService extends ForwardingObject implements
         return delegate().lock(client, request);
     }
 
+    @Override
+    public void waitForLocks(Set<LockDescriptor> lockDescriptors) throws InterruptedException {
+        delegate().waitForLocks(lockDescriptors);
+    }
+
     @Override
     public boolean unlock(HeldLocksToken token) {
         return delegate().unlockSimple(SimpleHeldLocksToken.fromHeldLocksToken(token));
@@ -35,6 +35,11 @@ public abstract class ForwardingRemoteLockService extends ForwardingObject imple
         return delegate().lockWithClient(client, request);
     }
 
+    @Override
+    public void waitForLocks(Set<LockDescriptor> lockDescriptors) throws InterruptedException {
+        delegate().waitForLocks(lockDescriptors);
+    }
+
     @Override
     public boolean unlock(LockRefreshToken token) {
         return delegate().unlock(token);
@@ -54,6 +54,20 @@ public interface RemoteLockService {
     @Nullable
     LockRefreshToken lockWithClient(@PathParam("client") String client, LockRequest request) throws InterruptedException;
 
+    /**
+     * Blocks until none of the given locks is held for writing. The locks are
+     * not acquired.
+     * <p>
+     * This is a cheaper way to wait for the current writers to finish than a
+     * {@link LockRequest.Builder#lockAndRelease()} request: no locks are taken,
+     * no token is created, and all callers waiting on the same lock share a
+     * single wait on the server.
+     */
+    @POST
+    @Path("wait-for-locks")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Idempotent void waitForLocks(Set<LockDescriptor> lockDescriptors) throws InterruptedException;
+
     /**
      * Attempts to release the set of locks represented by the
      * <code>token</code> parameter. For locks which
@@ -15,9 +15,12 @@
  */
 package com.palantir.lock.client;
 
+import java.util.Set;
+
 import com.palantir.lock.BlockingMode;
 import com.palantir.lock.ForwardingRemoteLockService;
 import com.palantir.lock.LockClient;
+import com.palantir.lock.LockDescriptor;
 import com.palantir.lock.LockGroupBehavior;
 import com.palantir.lock.LockRefreshToken;
 import com.palantir.lock.LockRequest;
@@ -57,6 +60,11 @@ public class ClientSplitLockService extends ForwardingRemoteLockService {
         return result;
     }
 
+    @Override
+    public void waitForLocks(Set<LockDescriptor> lockDescriptors) throws InterruptedException {
+        blockingClient.waitForLocks(lockDescriptors);
+    }
+
     private LockRefreshToken lock(LockClient client, LockRequest request) throws InterruptedException {
         if (request.getBlockingMode() == BlockingMode.DO_NOT_BLOCK) {
             if (client == LockClient.ANONYMOUS) {
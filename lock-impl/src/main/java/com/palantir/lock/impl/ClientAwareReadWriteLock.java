@@ -15,6 +15,7 @@
  */
 package com.palantir.lock.impl;
 
+import com.google.common.util.concurrent.ListenableFuture;
 import com.palantir.lock.LockClient;
 import com.palantir.lock.LockDescriptor;
 import com.palantir.lock.LockMode;
@@ -35,4 +36,11 @@ public interface ClientAwareReadWriteLock {
 
     /** Returns {@code true} iff the lock is in a frozen state. */
     boolean isFrozen();
+
+    /**
+     * Returns a future which completes once no client holds the write lock.
+     * The lock is not acquired. Callers waiting at the same time share a
+     * single wait, and cancelling the returned future affects only the caller.
+     */
+    ListenableFuture<Void> awaitWriteUnlocked();
 }
@@ -19,6 +19,7 @@ import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nullable;
 
+import com.google.common.util.concurrent.ListenableFuture;
 import com.palantir.lock.LockClient;
 import com.palantir.lock.LockMode;
 
@@ -39,6 +40,19 @@ public interface KnownClientLock {
      */
     void lock();
 
+    /**
+     * Acquires the lock without blocking the current thread. The returned
+     * future completes once the lock has been acquired; until then the request
+     * waits in the lock's queue without holding a thread. Cancelling the future
+     * withdraws the request, unless the lock has already been granted, in which
+     * case {@code cancel} returns {@code false} and the lock must be released.
+     *
+     * @throws IllegalMonitorStateException if this is a write lock and the
+     *         registered client currently holds the read lock (the future fails
+     *         with this exception instead if the request has to wait first)
+     */
+    ListenableFuture<Void> lockAsync();
+
     /** Acquires the lock unless the current thread is interrupted. */
     void lockInterruptibly() throws InterruptedException;
 
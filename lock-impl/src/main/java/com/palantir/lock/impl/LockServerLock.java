@@ -15,13 +15,18 @@
  */
 package com.palantir.lock.impl;
 
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.palantir.common.base.Throwables;
 import com.palantir.lock.LockClient;
 import com.palantir.lock.LockDescriptor;
 import com.palantir.lock.LockMode;
@@ -58,6 +63,11 @@ public class LockServerLock implements ClientAwareReadWriteLock {
         return sync.isFrozen();
     }
 
+    @Override
+    public ListenableFuture<Void> awaitWriteUnlocked() {
+        return sync.awaitWriteUnlocked();
+    }
+
     @Override
     public String toString() {
         return MoreObjects.toStringHelper(getClass().getSimpleName())
@@ -72,6 +82,55 @@ public class LockServerLock implements ClientAwareReadWriteLock {
         throw ex;
     }
 
+    private static void awaitUninterruptibly(ListenableFuture<Void> acquisition) {
+        try {
+            Uninterruptibles.getUninterruptibly(acquisition);
+        } catch (ExecutionException e) {
+            throw Throwables.throwUncheckedException(e.getCause());
+        }
+    }
+
+    // An interrupt wins over a grant that raced with it, as it would for a
+    // thread parked on the lock: the lock is released again and the
+    // interrupt is thrown.
+    private static void await(ListenableFuture<Void> acquisition, KnownClientLock lock)
+            throws InterruptedException {
+        try {
+            acquisition.get();
+        } catch (InterruptedException e) {
+            if (!acquisition.cancel(false)) {
+                awaitUninterruptibly(acquisition);
+                lock.unlock();
+            }
+            throw e;
+        } catch (ExecutionException e) {
+            throw Throwables.throwUncheckedException(e.getCause());
+        }
+    }
+
+    // Returns true if the lock was acquired within the given time.
+    private static boolean await(ListenableFuture<Void> acquisition, long nanos, KnownClientLock lock)
+            throws InterruptedException {
+        try {
+            acquisition.get(nanos, TimeUnit.NANOSECONDS);
+            return true;
+        } catch (TimeoutException e) {
+            if (acquisition.cancel(false)) {
+                return false;
+            }
+            awaitUninterruptibly(acquisition);
+            return true;
+        } catch (InterruptedException e) {
+            if (!acquisition.cancel(false)) {
+                awaitUninterruptibly(acquisition);
+                lock.unlock();
+            }
+            throw e;
+        } catch (ExecutionException e) {
+            throw Throwables.throwUncheckedException(e.getCause());
+        }
+    }
+
     private static class ReadLock implements KnownClientLock {
         private final LockServerSync sync;
         private final int clientIndex;
@@ -86,21 +145,26 @@ public class LockServerLock implements ClientAwareReadWriteLock {
             return LockMode.READ;
         }
 
+        @Override
+        public ListenableFuture<Void> lockAsync() {
+            return sync.acquireAsync(clientIndex, true);
+        }
+
         @Override
         public void lock() {
-            sync.acquireShared(clientIndex);
+            awaitUninterruptibly(lockAsync());
         }
 
         @Override
         public void lockInterruptibly() throws InterruptedException {
-            sync.acquireSharedInterruptibly(clientIndex);
+            await(lockAsync(), this);
         }
 
         @Override
         public LockClient tryLock() {
             while (true) {
                 synchronized (sync) {
-                    if (sync.tryAcquireShared(clientIndex) > 0) {
+                    if (sync.tryAcquireShared(clientIndex)) {
                         return null;
                     }
                     LockClient lockHolder = sync.getLockHolder();
@@ -118,7 +182,7 @@ public class LockServerLock implements ClientAwareReadWriteLock {
         @Override
         public LockClient tryLock(long time, TimeUnit unit) throws InterruptedException {
             LockClient client = tryLock();
-            if (client != null && sync.tryAcquireSharedNanos(clientIndex, unit.toNanos(time))) {
+            if (client != null && await(lockAsync(), unit.toNanos(time), this)) {
                 return null;
             }
             return client;
@@ -163,14 +227,19 @@ public class LockServerLock implements ClientAwareReadWriteLock {
             return LockMode.WRITE;
         }
 
+        @Override
+        public ListenableFuture<Void> lockAsync() {
+            return sync.acquireAsync(clientIndex, false);
+        }
+
         @Override
         public void lock() {
-            sync.acquire(clientIndex);
+            awaitUninterruptibly(lockAsync());
         }
 
         @Override
         public void lockInterruptibly() throws InterruptedException {
-            sync.acquireInterruptibly(clientIndex);
+            await(lockAsync(), this);
         }
 
         @Override
@@ -195,7 +264,7 @@ public class LockServerLock implements ClientAwareReadWriteLock {
         @Override
         public LockClient tryLock(long time, TimeUnit unit) throws InterruptedException {
             LockClient client = tryLock();
-            if (client != null && sync.tryAcquireNanos(clientIndex, unit.toNanos(time))) {
+            if (client != null && await(lockAsync(), unit.toNanos(time), this)) {
                 return null;
             }
             return client;
@@ -15,7 +15,9 @@
  */
 package com.palantir.lock.impl;
 
-import java.util.concurrent.locks.AbstractQueuedSynchronizer;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
 
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.GuardedBy;
@@ -23,20 +25,38 @@ import javax.annotation.concurrent.GuardedBy;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import com.google.common.primitives.Ints;
+import com.google.common.util.concurrent.AbstractFuture;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
 import com.palantir.lock.LockClient;
 
 import gnu.trove.iterator.TIntIntIterator;
 import gnu.trove.map.TIntIntMap;
 import gnu.trove.map.hash.TIntIntHashMap;
 
-class LockServerSync extends AbstractQueuedSynchronizer {
-    private static final long serialVersionUID = 1L;
+/**
+ * The state of a single {@link LockServerLock}.
+ * <p>
+ * Requests that cannot be granted immediately are queued as futures rather than
+ * as parked threads. Whenever the state changes the waiters at the head of the
+ * queue are granted in order (one writer, or any run of readers), and their
+ * futures are completed once the monitor has been released.
+ */
+class LockServerSync {
+    private static final ListenableFuture<Void> GRANTED = Futures.immediateFuture(null);
 
     private final LockClientIndices clients;
     private @GuardedBy("this") boolean frozen;
+    private @GuardedBy("this") int writeLockCount = 0;
     private @GuardedBy("this") int writeLockHolder = 0;
     private @GuardedBy("this") TIntIntMap readLockHolders;
+    private @GuardedBy("this") Set<Waiter> waiters;
+    // Shared by everyone waiting for the current write lock holder to finish.
+    private @GuardedBy("this") SettableFuture<Void> writeUnlocked;
 
     public LockServerSync(LockClientIndices clients) {
         this.clients = Preconditions.checkNotNull(clients);
@@ -47,25 +67,96 @@ class LockServerSync extends AbstractQueuedSynchronizer {
     }
 
     private boolean holdsWriteLock(int clientIndex) {
-        Preconditions.checkState(getState() > 0);
+        Preconditions.checkState(writeLockCount > 0);
         return clientIndex == writeLockHolder && !isAnonymous(clientIndex);
     }
 
-    @Override
-    protected synchronized boolean tryAcquire(int clientIndex) {
+    /**
+     * Acquires the lock if that can be done without waiting. Fails if other
+     * requests are already queued, so that newcomers cannot barge past them.
+     */
+    synchronized boolean tryAcquire(int clientIndex) {
+        return tryAcquire(clientIndex, hasQueuedWaiters());
+    }
+
+    synchronized boolean tryAcquireShared(int clientIndex) {
+        return tryAcquireShared(clientIndex, hasQueuedWaiters());
+    }
+
+    /**
+     * Acquires the lock, queueing the request if it cannot be granted yet. The
+     * returned future completes once the lock is held, or fails with an
+     * {@link IllegalMonitorStateException} if the request turns out to be
+     * illegal by the time it reaches the head of the queue.
+     * <p>
+     * Cancelling the future withdraws a queued request. If cancellation fails
+     * then the lock has already been granted and must be released.
+     */
+    ListenableFuture<Void> acquireAsync(int clientIndex, boolean shared) {
+        synchronized (this) {
+            boolean acquired = shared ? tryAcquireShared(clientIndex) : tryAcquire(clientIndex);
+            if (acquired) {
+                return GRANTED;
+            }
+            if (waiters == null) {
+                waiters = Sets.newLinkedHashSet();
+            }
+            Waiter waiter = new Waiter(clientIndex, shared);
+            waiters.add(waiter);
+            return waiter;
+        }
+    }
+
+    /**
+     * Returns a future which completes once the write lock is no longer held.
+     * The lock is not acquired, so this never waits behind queued requests.
+     */
+    ListenableFuture<Void> awaitWriteUnlocked() {
+        synchronized (this) {
+            if (writeLockCount == 0) {
+                return GRANTED;
+            }
+            if (writeUnlocked == null) {
+                writeUnlocked = SettableFuture.create();
+            }
+            // Keep one caller's cancellation from waking everyone else.
+            return Futures.nonCancellationPropagating(writeUnlocked);
+        }
+    }
+
+    void release(int clientIndex) {
+        List<Waiter> dequeued;
+        SettableFuture<Void> unlocked;
+        synchronized (this) {
+            tryRelease(clientIndex);
+            unlocked = takeWriteUnlocked();
+            dequeued = dequeueGrantedWaiters();
+        }
+        complete(dequeued, unlocked);
+    }
+
+    void releaseShared(int clientIndex) {
+        List<Waiter> dequeued;
+        synchronized (this) {
+            tryReleaseShared(clientIndex);
+            dequeued = dequeueGrantedWaiters();
+        }
+        complete(dequeued);
+    }
+
+    private boolean tryAcquire(int clientIndex, boolean hasPredecessors) {
         if (frozen) {
             return false;
         }
-        int writeCount = getState();
-        if (writeCount > 0 && holdsWriteLock(clientIndex)) {
-            setState(writeCount + 1);
+        if (writeLockCount > 0 && holdsWriteLock(clientIndex)) {
+            writeLockCount++;
             return true;
         }
-        if (hasBlockedPredecessors()) {
+        if (hasPredecessors) {
             return false;
         }
-        if (writeCount == 0 && !isReadLockHeld()) {
-            setState(1);
+        if (writeLockCount == 0 && !isReadLockHeld()) {
+            writeLockCount = 1;
             writeLockHolder = clientIndex;
             return true;
         }
@@ -77,117 +168,128 @@ class LockServerSync extends AbstractQueuedSynchronizer {
         return false;
     }
 
-    @Override
-    protected synchronized boolean tryRelease(int clientIndex) {
-        int newWriteCount = getState() - 1;
+    private boolean tryRelease(int clientIndex) {
+        int newWriteCount = writeLockCount - 1;
         if (writeLockHolder != clientIndex || newWriteCount < 0) {
             throw LockServerLock.throwIllegalMonitorStateException(
                     clients.fromIndex(clientIndex) +
                     " does not hold the write lock");
         }
-        setState(newWriteCount);
+        writeLockCount = newWriteCount;
         if (newWriteCount == 0 && !isReadLockHeld()) {
             frozen = false;
         }
         return newWriteCount == 0;
     }
 
-    @Override
-    protected synchronized int tryAcquireShared(int clientIndex) {
+    private boolean tryAcquireShared(int clientIndex, boolean hasPredecessors) {
         if (frozen) {
-            return -1;
+            return false;
         }
-        int writeCount = getState();
-        if (writeCount == 0 && !holdsReadLock(clientIndex) && hasBlockedPredecessors()) {
-            return -1;
+        if (writeLockCount == 0 && !holdsReadLock(clientIndex) && hasPredecessors) {
+            return false;
         }
-        if (writeCount > 0 && !holdsWriteLock(clientIndex)) {
-            return -1;
+        if (writeLockCount > 0 && !holdsWriteLock(clientIndex)) {
+            return false;
         }
         incrementReadCount(clientIndex);
-        return 1;
+        return true;
     }
 
-    @Override
-    protected synchronized boolean tryReleaseShared(int clientIndex) {
+    private void tryReleaseShared(int clientIndex) {
         decrementReadCount(clientIndex);
-        if (!isReadLockHeld() && getState() == 0) {
+        if (!isReadLockHeld() && writeLockCount == 0) {
             frozen = false;
-            return true;
         }
-        return false;
     }
 
-    synchronized void unlockAndFreeze(int clientIndex) {
-        if (isAnonymous(clientIndex)) {
-            throw LockServerLock.throwIllegalMonitorStateException(
-                    "anonymous clients cannot call unlockAndFreeze()");
-        }
-        if (writeLockHolder != clientIndex || getState() == 0) {
-            throw LockServerLock.throwIllegalMonitorStateException(
-                    clients.fromIndex(clientIndex) +
-                    " does not hold the write lock");
-        }
-        if (!release(clientIndex) || isReadLockHeld()) {
-            frozen = true;
+    void unlockAndFreeze(int clientIndex) {
+        List<Waiter> dequeued;
+        SettableFuture<Void> unlocked;
+        synchronized (this) {
+            if (isAnonymous(clientIndex)) {
+                throw LockServerLock.throwIllegalMonitorStateException(
+                        "anonymous clients cannot call unlockAndFreeze()");
+            }
+            if (writeLockHolder != clientIndex || writeLockCount == 0) {
+                throw LockServerLock.throwIllegalMonitorStateException(
+                        clients.fromIndex(clientIndex) +
+                        " does not hold the write lock");
+            }
+            if (!tryRelease(clientIndex) || isReadLockHeld()) {
+                frozen = true;
+            }
+            unlocked = takeWriteUnlocked();
+            dequeued = dequeueGrantedWaiters();
         }
+        complete(dequeued, unlocked);
     }
 
-    synchronized void changeOwnerShared(int oldClient, LockClient newClient) {
-        int newIndex = clients.toIndex(newClient);
-        if (oldClient == newIndex) {
-            throw LockServerLock.throwIllegalMonitorStateException(
-                    "new owner must be different  from old owner, owner=" +
-                    clients.fromIndex(oldClient));
-        }
-        if (frozen) {
-            throw LockServerLock.throwIllegalMonitorStateException(
-                    "cannot change owner because the lock is frozen");
-        }
-        if (!holdsReadLock(oldClient)) {
-            throw LockServerLock.throwIllegalMonitorStateException(
-                    clients.fromIndex(oldClient) +
-                    " does not hold the read lock");
+    void changeOwnerShared(int oldClient, LockClient newClient) {
+        List<Waiter> dequeued;
+        synchronized (this) {
+            int newIndex = clients.toIndex(newClient);
+            if (oldClient == newIndex) {
+                throw LockServerLock.throwIllegalMonitorStateException(
+                        "new owner must be different  from old owner, owner=" +
+                        clients.fromIndex(oldClient));
+            }
+            if (frozen) {
+                throw LockServerLock.throwIllegalMonitorStateException(
+                        "cannot change owner because the lock is frozen");
+            }
+            if (!holdsReadLock(oldClient)) {
+                throw LockServerLock.throwIllegalMonitorStateException(
+                        clients.fromIndex(oldClient) +
+                        " does not hold the read lock");
+            }
+            if (writeLockCount > 0) {
+                throw LockServerLock.throwIllegalMonitorStateException(
+                        clients.fromIndex(oldClient) +
+                        " currently holds both the read and write locks");
+            }
+            decrementReadCount(oldClient);
+            incrementReadCount(newIndex);
+            dequeued = dequeueGrantedWaiters();
         }
-        if (getState() > 0) {
-            throw LockServerLock.throwIllegalMonitorStateException(
-                    clients.fromIndex(oldClient) +
-                    " currently holds both the read and write locks");
-        }
-        decrementReadCount(oldClient);
-        incrementReadCount(newIndex);
+        complete(dequeued);
     }
 
-    synchronized void changeOwner(int oldClient, LockClient newClient) {
-        int newIndex = clients.toIndex(newClient);
-        if (oldClient == newIndex) {
-            throw LockServerLock.throwIllegalMonitorStateException(
-                    "new owner must be different from old owner, owner=" +
-                    clients.fromIndex(oldClient));
-        }
-        if (frozen) {
-            throw LockServerLock.throwIllegalMonitorStateException(
-                    "Cannot change owner because the lock is frozen");
-        }
-        int writeCount = getState();
-        if (writeCount == 0 || writeLockHolder != oldClient) {
-            throw LockServerLock.throwIllegalMonitorStateException(
-                    clients.fromIndex(oldClient) +
-                    " does not hold the write lock");
-        }
-        if (holdsReadLock(oldClient)) {
-            throw LockServerLock.throwIllegalMonitorStateException(
-                    clients.fromIndex(oldClient) +
-                    " currently holds both the read and write locks");
-        }
-        if (writeCount > 1) {
-            throw LockServerLock.throwIllegalMonitorStateException(
-                    clients.fromIndex(oldClient) +
-                    " is attempting to create a lock grant" +
-                    " while being supported by multiple clients." +
-                    " This is not currently supported.");
+    void changeOwner(int oldClient, LockClient newClient) {
+        List<Waiter> dequeued;
+        synchronized (this) {
+            int newIndex = clients.toIndex(newClient);
+            if (oldClient == newIndex) {
+                throw LockServerLock.throwIllegalMonitorStateException(
+                        "new owner must be different from old owner, owner=" +
+                        clients.fromIndex(oldClient));
+            }
+            if (frozen) {
+                throw LockServerLock.throwIllegalMonitorStateException(
+                        "Cannot change owner because the lock is frozen");
+            }
+            if (writeLockCount == 0 || writeLockHolder != oldClient) {
+                throw LockServerLock.throwIllegalMonitorStateException(
+                        clients.fromIndex(oldClient) +
+                        " does not hold the write lock");
+            }
+            if (holdsReadLock(oldClient)) {
+                throw LockServerLock.throwIllegalMonitorStateException(
+                        clients.fromIndex(oldClient) +
+                        " currently holds both the read and write locks");
+            }
+            if (writeLockCount > 1) {
+                throw LockServerLock.throwIllegalMonitorStateException(
+                        clients.fromIndex(oldClient) +
+                        " is attempting to create a lock grant" +
+                        " while being supported by multiple clients." +
+                        " This is not currently supported.");
+            }
+            writeLockHolder = newIndex;
+            // The new owner may have reentrant requests of its own queued.
+            dequeued = dequeueGrantedWaiters();
         }
-        writeLockHolder = newIndex;
+        complete(dequeued);
     }
 
     // Returns null if there is no lock holder. Note: There
@@ -195,7 +297,7 @@ class LockServerSync extends AbstractQueuedSynchronizer {
     // failed because those methods may fail in order to prevent
     // barging.
     @GuardedBy("this") @Nullable LockClient getLockHolder() {
-        if (getState() > 0) {
+        if (writeLockCount > 0) {
             return clients.fromIndex(writeLockHolder);
         }
         if (!isReadLockHeld()) {
@@ -215,10 +317,77 @@ class LockServerSync extends AbstractQueuedSynchronizer {
         return clients.toIndex(client);
     }
 
-    // Note: Replace with hasQueuesPredecessors when lock server
-    // no longer needs to run on java 6.
-    private boolean hasBlockedPredecessors() {
-        return getFirstQueuedThread() != Thread.currentThread() && hasQueuedThreads();
+    private boolean hasQueuedWaiters() {
+        return waiters != null && !waiters.isEmpty();
+    }
+
+    /**
+     * Removes a queued request. Returns false if it is no longer queued
+     * because it has already been granted or failed.
+     */
+    private boolean dequeue(Waiter waiter) {
+        List<Waiter> dequeued;
+        synchronized (this) {
+            if (waiters == null || !waiters.remove(waiter)) {
+                return false;
+            }
+            // The requests behind this one may have been blocked only by it.
+            dequeued = dequeueGrantedWaiters();
+        }
+        complete(dequeued);
+        return true;
+    }
+
+    /**
+     * Grants as many requests from the head of the queue as the current state
+     * allows and removes them, along with any that have become illegal. The
+     * returned waiters must be completed after leaving the monitor.
+     */
+    @GuardedBy("this")
+    private List<Waiter> dequeueGrantedWaiters() {
+        if (!hasQueuedWaiters()) {
+            return ImmutableList.of();
+        }
+        List<Waiter> dequeued = Lists.newArrayList();
+        for (Iterator<Waiter> iter = waiters.iterator(); iter.hasNext(); ) {
+            Waiter waiter = iter.next();
+            try {
+                boolean acquired = waiter.shared
+                        ? tryAcquireShared(waiter.clientIndex, false)
+                        : tryAcquire(waiter.clientIndex, false);
+                if (!acquired) {
+                    break;
+                }
+            } catch (IllegalMonitorStateException e) {
+                waiter.failure = e;
+            }
+            iter.remove();
+            dequeued.add(waiter);
+        }
+        return dequeued;
+    }
+
+    private static void complete(List<Waiter> dequeued) {
+        for (Waiter waiter : dequeued) {
+            waiter.complete();
+        }
+    }
+
+    private static void complete(List<Waiter> dequeued, @Nullable SettableFuture<Void> unlocked) {
+        if (unlocked != null) {
+            unlocked.set(null);
+        }
+        complete(dequeued);
+    }
+
+    @GuardedBy("this") @Nullable
+    private SettableFuture<Void> takeWriteUnlocked() {
+        if (writeLockCount > 0) {
+            return null;
+        }
+        SettableFuture<Void> unlocked = writeUnlocked;
+        writeUnlocked = null;
+        return unlocked;
     }
 
     synchronized boolean isFrozen() {
@@ -229,10 +398,10 @@ class LockServerSync extends AbstractQueuedSynchronizer {
     public synchronized String toString() {
         return MoreObjects.toStringHelper(getClass().getSimpleName())
                 .add("hashCode", hashCode())
-                .add("writeLockCount", getState())
+                .add("writeLockCount", writeLockCount)
                 .add("writeClient", writeLockHolder == 0 ? null : clients.fromIndex(writeLockHolder))
                 .add("readClients", clients.fromIndices(getReadClients()))
-                .add("queuedThreads", getQueueLength())
+                .add("queuedRequests", waiters == null ? 0 : waiters.size())
                 .add("isFrozen", frozen)
                 .toString();
     }
@@ -274,4 +443,30 @@ class LockServerSync extends AbstractQueuedSynchronizer {
         }
         return Ints.asList(readLockHolders.keys()); // (authorized)
     }
+
+    /** A queued request for the lock. */
+    private final class Waiter extends AbstractFuture<Void> {
+        final int clientIndex;
+        final boolean shared;
+        // Set under the monitor when the request is dequeued as illegal.
+        @Nullable IllegalMonitorStateException failure;
+
+        Waiter(int clientIndex, boolean shared) {
+            this.clientIndex = clientIndex;
+            this.shared = shared;
+        }
+
+        void complete() {
+            if (failure == null) {
+                set(null);
+            } else {
+                setException(failure);
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            return dequeue(this) && super.cancel(false);
+        }
+    }
 }
@@ -31,10 +31,13 @@ import java.util.Map.Entry;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -46,6 +49,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Function;
+import com.google.common.base.Functions;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Supplier;
@@ -64,12 +68,20 @@ import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
 import com.google.common.collect.SetMultimap;
+import com.google.common.collect.Sets;
 import com.google.common.collect.TreeMultiset;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
 import com.palantir.common.base.Throwables;
 import com.palantir.common.concurrent.NamedThreadFactory;
 import com.palantir.common.concurrent.PTExecutors;
 import com.palantir.common.random.SecureRandomPool;
 import com.palantir.common.remoting.ServiceNotAvailableException;
+import com.palantir.lock.AsyncLockService;
 import com.palantir.lock.BlockingMode;
 import com.palantir.lock.ExpiringToken;
 import com.palantir.lock.HeldLocksGrant;
@@ -86,7 +98,6 @@ import com.palantir.lock.LockRequest;
 import com.palantir.lock.LockResponse;
 import com.palantir.lock.LockServerOptions;
 import com.palantir.lock.LockService;
-import com.palantir.lock.RemoteLockService;
 import com.palantir.lock.SimpleHeldLocksToken;
 import com.palantir.lock.SimpleTimeDuration;
 import com.palantir.lock.SortedLockCollection;
@@ -100,7 +111,7 @@ import com.palantir.util.Pair;
  *
  * @author jtamer
  */
-@ThreadSafe public final class LockServiceImpl implements LockService, RemoteLockService, LockServiceImplMBean, Closeable {
+@ThreadSafe public final class LockServiceImpl implements LockService, AsyncLockService, LockServiceImplMBean, Closeable {
 
     private static final Logger log = LoggerFactory.getLogger(LockServiceImpl.class);
     private static final Logger requestLogger = LoggerFactory.getLogger("lock.request");
@@ -110,6 +121,26 @@ import com.palantir.util.Pair;
     private final ExecutorService executor = PTExecutors.newCachedThreadPool(
             new NamedThreadFactory(LockServiceImpl.class.getName(), true));
 
+    /**
+     * Executor that continues lock requests once a lock they were waiting for
+     * is granted. Its tasks never block.
+     */
+    private final ExecutorService grantExecutor = PTExecutors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(),
+            new NamedThreadFactory(LockServiceImpl.class.getName() + "-grants", true));
+
+    /** Executor that expires lock requests which block for a limited time. */
+    private final ScheduledThreadPoolExecutor timeoutExecutor = PTExecutors.newScheduledThreadPoolExecutor(1,
+            new NamedThreadFactory(LockServiceImpl.class.getName() + "-timeouts", true));
+
+    private static final Function<LockResponse, LockRefreshToken> TO_LOCK_REFRESH_TOKEN =
+            new Function<LockResponse, LockRefreshToken>() {
+        @Override
+        public LockRefreshToken apply(LockResponse from) {
+            return from.success() ? from.getLockRefreshToken() : null;
+        }
+    };
+
     private static final Function<HeldLocksToken, String> TOKEN_TO_ID =
             new Function<HeldLocksToken, String>() {
         @Override
@@ -155,6 +186,9 @@ import com.palantir.util.Pair;
     private final int randomBitCount;
     private volatile boolean isShutDown = false;
 
+    /** Lock requests that have started and not yet completed, so that {@link #close()} can fail them. */
+    private final Set<LockAttempt> activeAttempts = Sets.newConcurrentHashSet();
+
     private final LockClientIndices clientIndices = new LockClientIndices();
 
     /** The backing client-aware read write lock for each lock descriptor. */
@@ -226,6 +260,7 @@ import com.palantir.util.Pair;
         maxAllowedClockDrift = SimpleTimeDuration.of(options.getMaxAllowedClockDrift());
         maxAllowedBlockingDuration = SimpleTimeDuration.of(options.getMaxAllowedBlockingDuration());
         randomBitCount = options.getRandomBitCount();
+        timeoutExecutor.setRemoveOnCancelPolicy(true);
         executor.execute(new Runnable() {
             @Override
             public void run() {
@@ -297,8 +332,47 @@ import com.palantir.util.Pair;
         return result.success() ? result.getLockRefreshToken() : null;
     }
 
+    @Override
+    public ListenableFuture<LockRefreshToken> lockAnonymouslyAsync(LockRequest request) {
+        return Futures.transform(lockAsync(LockClient.ANONYMOUS, request), TO_LOCK_REFRESH_TOKEN,
+                MoreExecutors.directExecutor());
+    }
+
+    @Override
+    public ListenableFuture<LockRefreshToken> lockWithClientAsync(String client, LockRequest request) {
+        return Futures.transform(lockAsync(LockClient.of(client), request), TO_LOCK_REFRESH_TOKEN,
+                MoreExecutors.directExecutor());
+    }
+
     @Override
     public LockResponse lock(LockClient client, LockRequest request) throws InterruptedException {
+        ListenableFuture<LockResponse> response = lockAsync(client, request);
+        try {
+            return response.get();
+        } catch (InterruptedException e) {
+            if (!response.cancel(false)) {
+                // The request completed as we were interrupted; nobody will see its token.
+                unlockIfSuccessful(response);
+            }
+            throw e;
+        } catch (ExecutionException e) {
+            throw Throwables.throwUncheckedException(e.getCause());
+        }
+    }
+
+    private void unlockIfSuccessful(ListenableFuture<LockResponse> response) {
+        try {
+            @Nullable HeldLocksToken token = Uninterruptibles.getUninterruptibly(response).getToken();
+            if (token != null) {
+                unlock(token);
+            }
+        } catch (ExecutionException e) {
+            // The request failed, so it holds nothing.
+        }
+    }
+
+    @Override
+    public ListenableFuture<LockResponse> lockAsync(LockClient client, LockRequest request) {
         Preconditions.checkNotNull(client);
         Preconditions.checkArgument(client != INTERNAL_LOCK_GRANT_CLIENT);
         Preconditions.checkArgument(request.getLockTimeout().compareTo(maxAllowedLockTimeout) <= 0,
@@ -308,29 +382,269 @@ import com.palantir.util.Pair;
                 || (request.getBlockingDuration().compareTo(maxAllowedBlockingDuration) <= 0),
                 "Requested blocking duration (%s) is greater than maximum allowed blocking duration (%s)",
                 request.getBlockingDuration(), maxAllowedBlockingDuration);
-        long startTime = System.currentTimeMillis();
         if (requestLogger.isDebugEnabled()) {
             requestLogger.debug("LockServiceImpl processing lock request {} for requesting thread {}",
                     request, request.getCreatingThreadName());
         }
-        Map<ClientAwareReadWriteLock, LockMode> locks = Maps.newLinkedHashMap();
         if (isShutDown) {
             throw new ServiceNotAvailableException("This lock server is shut down.");
         }
-        try {
-            outstandingLockRequestMultimap.put(client, request);
-            Map<LockDescriptor, LockClient> failedLocks = Maps.newHashMap();
-            @Nullable Long deadline = (request.getBlockingDuration() == null) ? null
+        LockAttempt attempt = new LockAttempt(client, request);
+        attempt.start();
+        return attempt.result;
+    }
+
+    /**
+     * A single lock request in progress.
+     * <p>
+     * The request works through its lock descriptors in order. When it has to
+     * wait for a lock it registers a continuation on that lock and returns, so
+     * no thread is held while it is blocked. Continuations run on
+     * {@link #grantExecutor}, and at most one is ever outstanding, so the
+     * request's state is only touched by one thread at a time.
+     */
+    private final class LockAttempt {
+        final LockClient client;
+        final LockRequest request;
+        final SettableFuture<LockResponse> result = SettableFuture.create();
+        private final long startTime = System.currentTimeMillis();
+        private final @Nullable Long deadline;
+        private final Map<ClientAwareReadWriteLock, LockMode> locks = Maps.newLinkedHashMap();
+        private final Map<LockDescriptor, LockClient> failedLocks = Maps.newHashMap();
+        private BlockingMode blockingMode;
+        private LockGroupBehavior lockGroupBehavior;
+        private Iterator<Entry<LockDescriptor, LockMode>> entries;
+        private volatile @Nullable ListenableFuture<Void> waitingFor;
+
+        LockAttempt(LockClient client, LockRequest request) {
+            this.client = client;
+            this.request = request;
+            this.deadline = (request.getBlockingDuration() == null) ? null
                 : System.nanoTime() + request.getBlockingDuration().toNanos();
-            if (request.getBlockingMode() == BLOCK_UNTIL_TIMEOUT) {
-                if (request.getLockGroupBehavior() == LOCK_AS_MANY_AS_POSSIBLE) {
-                    tryLocks(client, request, DO_NOT_BLOCK, null, LOCK_AS_MANY_AS_POSSIBLE, locks,
-                            failedLocks);
+        }
+
+        void start() {
+            outstandingLockRequestMultimap.put(client, request);
+            activeAttempts.add(this);
+            result.addListener(new Runnable() {
+                @Override
+                public void run() {
+                    activeAttempts.remove(LockAttempt.this);
+                    @Nullable ListenableFuture<Void> acquisition = waitingFor;
+                    if (result.isCancelled() && acquisition != null) {
+                        acquisition.cancel(false);
+                    }
                 }
+            }, MoreExecutors.directExecutor());
+            if (isShutDown) {
+                // close() may have run after lockAsync checked, and missed this request.
+                finish(new ServiceNotAvailableException("This lock server is shut down."));
+                return;
             }
-            tryLocks(client, request, request.getBlockingMode(), deadline,
-                    request.getLockGroupBehavior(), locks, failedLocks);
+            try {
+                if (request.getBlockingMode() == BLOCK_UNTIL_TIMEOUT
+                        && request.getLockGroupBehavior() == LOCK_AS_MANY_AS_POSSIBLE) {
+                    startPass(DO_NOT_BLOCK, LOCK_AS_MANY_AS_POSSIBLE);
+                    tryLocks();
+                }
+                startPass(request.getBlockingMode(), request.getLockGroupBehavior());
+            } catch (Throwable t) { // (authorized)
+                finish(t);
+                return;
+            }
+            resume();
+        }
 
+        private void startPass(BlockingMode mode, LockGroupBehavior behavior) {
+            blockingMode = mode;
+            lockGroupBehavior = behavior;
+            entries = request.getLockDescriptors().entries().iterator();
+        }
+
+        /** Continues the current pass, and completes the request unless it has to wait. */
+        private void resume() {
+            try {
+                if (!tryLocks()) {
+                    return;
+                }
+            } catch (Throwable t) { // (authorized)
+                finish(t);
+                return;
+            }
+            finish(null);
+        }
+
+        /**
+         * Tries the remaining locks of the current pass. Returns false if the
+         * request is now waiting for a lock, and true once the pass is over.
+         */
+        private boolean tryLocks() {
+            while (entries.hasNext() && !result.isCancelled()) {
+                Entry<LockDescriptor, LockMode> entry = entries.next();
+                if (blockingMode == BlockingMode.BLOCK_INDEFINITELY_THEN_RELEASE
+                        && !descriptorToLockMap.asMap().containsKey(entry.getKey())) {
+                    continue;
+                }
+
+                ClientAwareReadWriteLock lock;
+                try {
+                    lock = descriptorToLockMap.get(entry.getKey());
+                } catch (ExecutionException e) {
+                    throw new RuntimeException(e.getCause());
+                }
+                if (locks.containsKey(lock)) {
+                    // This is the 2nd pass and we already locked this one.
+                    continue;
+                }
+                KnownClientLock knownClientLock = lock.get(client, entry.getValue());
+                @Nullable LockClient currentHolder = null;
+                @Nullable ListenableFuture<Void> acquisition = null;
+                switch (blockingMode) {
+                case DO_NOT_BLOCK:
+                    currentHolder = knownClientLock.tryLock();
+                    break;
+                case BLOCK_UNTIL_TIMEOUT:
+                    currentHolder = knownClientLock.tryLock();
+                    if (currentHolder != null && deadline - System.nanoTime() > 0) {
+                        acquisition = knownClientLock.lockAsync();
+                    }
+                    break;
+                case BLOCK_INDEFINITELY:
+                case BLOCK_INDEFINITELY_THEN_RELEASE:
+                    acquisition = knownClientLock.lockAsync();
+                    break;
+                default:
+                    throw new IllegalArgumentException("blockingMode = " + blockingMode);
+                }
+                if (acquisition != null) {
+                    if (!acquisition.isDone()) {
+                        waitFor(entry, lock, acquisition, currentHolder);
+                        return false;
+                    }
+                    try {
+                        Uninterruptibles.getUninterruptibly(acquisition);
+                    } catch (ExecutionException e) {
+                        throw Throwables.throwUncheckedException(e.getCause());
+                    }
+                    currentHolder = null;
+                }
+                if (!recordAttempt(entry, lock, currentHolder)) {
+                    return true;
+                }
+            }
+            return true;
+        }
+
+        // Returns false if the rest of the pass should be skipped.
+        private boolean recordAttempt(Entry<LockDescriptor, LockMode> entry,
+                ClientAwareReadWriteLock lock, @Nullable LockClient currentHolder) {
+            if (currentHolder == null) {
+                locks.put(lock, entry.getValue());
+                return true;
+            }
+            failedLocks.put(entry.getKey(), currentHolder);
+            return lockGroupBehavior != LOCK_ALL_OR_NONE;
+        }
+
+        private void waitFor(final Entry<LockDescriptor, LockMode> entry,
+                final ClientAwareReadWriteLock lock,
+                final ListenableFuture<Void> acquisition,
+                @Nullable final LockClient currentHolder) {
+            final long waitStartTime = System.currentTimeMillis();
+            final @Nullable ScheduledFuture<?> timeout;
+            if (blockingMode == BLOCK_UNTIL_TIMEOUT) {
+                timeout = timeoutExecutor.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        acquisition.cancel(false);
+                    }
+                }, deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            } else {
+                timeout = null;
+            }
+            waitingFor = acquisition;
+            if (result.isCancelled()) {
+                acquisition.cancel(false);
+            }
+            Futures.addCallback(acquisition, new FutureCallback<Void>() {
+                @Override
+                public void onSuccess(Void unused) {
+                    if (timeout != null) {
+                        timeout.cancel(false);
+                    }
+                    logBlocked(entry.getKey(), waitStartTime, true);
+                    locks.put(lock, entry.getValue());
+                    resume();
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    if (!(t instanceof CancellationException) || result.isCancelled()) {
+                        finish(t);
+                        return;
+                    }
+                    // Timed out.
+                    logBlocked(entry.getKey(), waitStartTime, false);
+                    if (recordAttempt(entry, lock, currentHolder)) {
+                        resume();
+                    } else {
+                        finish(null);
+                    }
+                }
+            }, grantExecutor);
+        }
+
+        /**
+         * Fails the request because the server is shutting down.  Unlike the rest of the request's
+         * state, this may be called from any thread.
+         */
+        void abort() {
+            result.setException(new ServiceNotAvailableException("This lock server is shut down."));
+        }
+
+        private void logBlocked(LockDescriptor descriptor, long waitStartTime, boolean success) {
+            if (log.isDebugEnabled()) {
+                long duration = System.currentTimeMillis() - waitStartTime;
+                if (duration > 100) {
+                    log.debug("Blocked for {} ms to acquire lock {} {}.",
+                            duration,
+                            descriptor.getLockIdAsString(),
+                            success ? "successfully" : "unsuccessfully");
+                }
+            }
+        }
+
+        /**
+         * Completes the request, releasing any locks that did not make it into
+         * a token. A failure or cancellation releases everything.
+         */
+        private void finish(@Nullable Throwable failure) {
+            @Nullable LockResponse response = null;
+            if (failure == null && !result.isCancelled()) {
+                try {
+                    response = createResponse();
+                } catch (Throwable t) { // (authorized)
+                    failure = t;
+                }
+            }
+            outstandingLockRequestMultimap.remove(client, request);
+            try {
+                for (Entry<ClientAwareReadWriteLock, LockMode> entry : locks.entrySet()) {
+                    entry.getKey().get(client, entry.getValue()).unlock();
+                }
+            } catch (Throwable e) { // (authorized)
+                log.error("Internal lock server error: state has been corrupted!!", e);
+                failure = e;
+            }
+            if (failure != null) {
+                result.setException(failure);
+            } else if (response != null && !result.set(response) && response.getToken() != null) {
+                // Cancelled while the token was being created.
+                unlock(response.getToken());
+            }
+        }
+
+        private LockResponse createResponse() {
             if (request.getBlockingMode() == BlockingMode.BLOCK_INDEFINITELY_THEN_RELEASE) {
                 if (log.isTraceEnabled()) {
                     log.trace(".lock(" + client + ", " + request + ") returns null");
@@ -355,10 +669,10 @@ import com.palantir.util.Pair;
                     StringBuilder sb = new StringBuilder("Current holders of the first ").append(
                             MAX_FAILED_LOCKS_TO_LOG).append(" of ").append(failedLocks.size()).append(
                             " total failed locks were: [");
-                    Iterator<Entry<LockDescriptor, LockClient>> entries = failedLocks.entrySet().iterator();
+                    Iterator<Entry<LockDescriptor, LockClient>> failedEntries = failedLocks.entrySet().iterator();
                     for (int i = 0; i < MAX_FAILED_LOCKS_TO_LOG; i++) {
-                        if (entries.hasNext()) {
-                            Entry<LockDescriptor, LockClient> entry = entries.next();
+                        if (failedEntries.hasNext()) {
+                            Entry<LockDescriptor, LockClient> entry = failedEntries.next();
                             sb.append(" Lock: ").append(entry.getKey().toString()).append(
                                     ", Holder: ").append(entry.getValue().toString()).append(";");
                         }
@@ -382,93 +696,49 @@ import com.palantir.util.Pair;
             if (log.isTraceEnabled()) {
                 log.trace(".lock(" + client + ", " + request + ") returns " + token);
             }
-            if (Thread.interrupted()) {
-                throw new InterruptedException("Interrupted while locking.");
-            }
             if (requestLogger.isDebugEnabled()) {
                 requestLogger.debug("Successfully acquired locks {} for requesting thread {} after {} ms",
                         request, request.getCreatingThreadName(), System.currentTimeMillis() - startTime);
             }
             return new LockResponse(token, failedLocks);
-        } finally {
-            outstandingLockRequestMultimap.remove(client, request);
-            try {
-                for (Entry<ClientAwareReadWriteLock, LockMode> entry : locks.entrySet()) {
-                    entry.getKey().get(client, entry.getValue()).unlock();
-                }
-            } catch (Throwable e) { // (authorized)
-                log.error("Internal lock server error: state has been corrupted!!", e);
-                throw Throwables.throwUncheckedException(e);
-            }
         }
     }
 
-    private void tryLocks(LockClient client, LockRequest request, BlockingMode blockingMode,
-            @Nullable Long deadline, LockGroupBehavior lockGroupBehavior,
-            Map<? super ClientAwareReadWriteLock, ? super LockMode> locks,
-            Map<? super LockDescriptor, ? super LockClient> failedLocks)
-            throws InterruptedException {
-        String previousThreadName = null;
+    @Override
+    public void waitForLocks(Set<LockDescriptor> lockDescriptors) throws InterruptedException {
+        ListenableFuture<Void> unlocked = waitForLocksAsync(lockDescriptors);
         try {
-            previousThreadName = updateThreadName(request);
-            for (Entry<LockDescriptor, LockMode> entry : request.getLockDescriptors().entries()) {
-                if (blockingMode == BlockingMode.BLOCK_INDEFINITELY_THEN_RELEASE
-                        && !descriptorToLockMap.asMap().containsKey(entry.getKey())) {
-                    continue;
-                }
+            unlocked.get();
+        } catch (InterruptedException e) {
+            unlocked.cancel(false);
+            throw e;
+        } catch (ExecutionException e) {
+            throw Throwables.throwUncheckedException(e.getCause());
+        }
+    }
 
-                ClientAwareReadWriteLock lock;
-                try {
-                    lock = descriptorToLockMap.get(entry.getKey());
-                } catch (ExecutionException e) {
-                    throw new RuntimeException(e.getCause());
-                }
-                if (locks.containsKey(lock)) {
-                    // This is the 2nd time we are calling tryLocks and we already locked this one.
-                    continue;
-                }
-                long startTime = System.currentTimeMillis();
-                @Nullable LockClient currentHolder = tryLock(lock.get(client, entry.getValue()),
-                        blockingMode, deadline);
-                if (log.isDebugEnabled()) {
-                    long duration = System.currentTimeMillis() - startTime;
-                    if (duration > 100) {
-                        log.debug("Blocked for {} ms to acquire lock {} {}.",
-                                duration,
-                                entry.getKey().getLockIdAsString(),
-                                currentHolder == null ? "successfully" : "unsuccessfully");
-                    }
-                }
-                if (currentHolder == null) {
-                    locks.put(lock, entry.getValue());
-                } else {
-                    failedLocks.put(entry.getKey(), currentHolder);
-                    if (lockGroupBehavior == LOCK_ALL_OR_NONE) {
-                        return;
-                    }
+    @Override
+    public ListenableFuture<Void> waitForLocksAsync(Set<LockDescriptor> lockDescriptors) {
+        Preconditions.checkNotNull(lockDescriptors);
+        if (isShutDown) {
+            throw new ServiceNotAvailableException("This lock server is shut down.");
+        }
+        List<ListenableFuture<Void>> waits = Lists.newArrayList();
+        for (LockDescriptor descriptor : lockDescriptors) {
+            // A lock that has no lock object is not held by anyone.
+            @Nullable ClientAwareReadWriteLock lock = descriptorToLockMap.getIfPresent(descriptor);
+            if (lock != null) {
+                ListenableFuture<Void> unlocked = lock.awaitWriteUnlocked();
+                if (!unlocked.isDone()) {
+                    waits.add(unlocked);
                 }
             }
-        } finally {
-            if (previousThreadName != null) {
-                tryRenameThread(previousThreadName);
-            }
         }
-    }
-
-    @Nullable private LockClient tryLock(KnownClientLock lock, BlockingMode blockingMode,
-            @Nullable Long deadline) throws InterruptedException {
-        switch (blockingMode) {
-        case DO_NOT_BLOCK:
-            return lock.tryLock();
-        case BLOCK_UNTIL_TIMEOUT:
-            return lock.tryLock(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
-        case BLOCK_INDEFINITELY:
-        case BLOCK_INDEFINITELY_THEN_RELEASE:
-            lock.lockInterruptibly();
-            return null;
-        default:
-            throw new IllegalArgumentException("blockingMode = " + blockingMode);
+        if (waits.isEmpty()) {
+            return Futures.immediateFuture(null);
         }
+        return Futures.transform(Futures.allAsList(waits), Functions.constant((Void) null),
+                MoreExecutors.directExecutor());
     }
 
     @Override
@@ -961,7 +1231,14 @@ import com.palantir.util.Pair;
     @Override
     public void close() {
         isShutDown = true;
+        // Fail waiting requests before stopping the executor that would have continued them, so
+        // that no caller is left blocked on a request that can never complete.
+        for (LockAttempt attempt : activeAttempts) {
+            attempt.abort();
+        }
         executor.shutdownNow();
+        grantExecutor.shutdownNow();
+        timeoutExecutor.shutdownNow();
     }
 
     private void logCurrentStateToLoggerInconsistent(Logger logger) {
@@ -1005,26 +1282,4 @@ import com.palantir.util.Pair;
         return false;
     }
 
-    private String getRequestDescription(LockRequest request) {
-        StringBuilder builder = new StringBuilder();
-        builder.append("\twaiting to lock() ").append(request);
-        builder.append("\n\tfor requesting thread\n\t\t").append(request.getCreatingThreadName()).append("\n");
-        return builder.toString();
-    }
-
-    private String updateThreadName(LockRequest request) {
-        String currentThreadName = Thread.currentThread().getName();
-        String requestDescription = getRequestDescription(request);
-        tryRenameThread(currentThreadName + "\n" + requestDescription);
-        return currentThreadName;
-    }
-
-    private void tryRenameThread(String name) {
-        try {
-            Thread.currentThread().setName(name);
-        } catch (SecurityException ex) {
-            requestLogger.error("Cannot rename LockServer threads");
-        }
-    }
-
 }
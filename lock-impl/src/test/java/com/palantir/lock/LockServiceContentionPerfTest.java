@@ -0,0 +1,146 @@
+/**
+ * Copyright 2015 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.lock;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.palantir.common.concurrent.NamedThreadFactory;
+import com.palantir.common.concurrent.PTExecutors;
+import com.palantir.lock.impl.LockServiceImpl;
+
+/**
+ * Measures the threads used and the acquisition latency when many requests
+ * contend for a few write locks, through both the blocking and the
+ * asynchronous lock calls. Each lock is held for {@link #HOLD_MILLIS} and
+ * released from a timer, so the only threads in play are the ones spent
+ * waiting.
+ */
+@Ignore("Benchmark; run by hand")
+public final class LockServiceContentionPerfTest {
+    private static final int NUM_REQUESTS = 2000;
+    private static final int NUM_LOCKS = 4;
+    private static final long HOLD_MILLIS = 1;
+
+    private LockServiceImpl server;
+    private ScheduledExecutorService unlocker;
+
+    @Before public void setUp() {
+        server = LockServiceImpl.create();
+        unlocker = PTExecutors.newSingleThreadScheduledExecutor(
+                new NamedThreadFactory(LockServiceContentionPerfTest.class.getName(), true));
+    }
+
+    @After public void tearDown() {
+        unlocker.shutdownNow();
+        server.close();
+    }
+
+    @Test public void testBlockingLockContention() throws Exception {
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        final List<Long> latencies = Collections.synchronizedList(Lists.<Long>newArrayList());
+        final CountDownLatch done = new CountDownLatch(NUM_REQUESTS);
+        ExecutorService requestThreads = PTExecutors.newCachedThreadPool();
+        threads.resetPeakThreadCount();
+        int baseThreads = threads.getThreadCount();
+        for (int i = 0; i < NUM_REQUESTS; i++) {
+            final LockRequest request = request(i);
+            final long start = System.nanoTime();
+            requestThreads.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        LockResponse response = server.lock(LockClient.ANONYMOUS, request);
+                        latencies.add(System.nanoTime() - start);
+                        unlockLater(response.getLockRefreshToken(), done);
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            });
+        }
+        done.await();
+        requestThreads.shutdown();
+        report("blocking", latencies, threads.getPeakThreadCount() - baseThreads);
+    }
+
+    @Test public void testAsyncLockContention() throws Exception {
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        final List<Long> latencies = Collections.synchronizedList(Lists.<Long>newArrayList());
+        final CountDownLatch done = new CountDownLatch(NUM_REQUESTS);
+        threads.resetPeakThreadCount();
+        int baseThreads = threads.getThreadCount();
+        for (int i = 0; i < NUM_REQUESTS; i++) {
+            final long start = System.nanoTime();
+            Futures.addCallback(server.lockAsync(LockClient.ANONYMOUS, request(i)), new FutureCallback<LockResponse>() {
+                @Override
+                public void onSuccess(LockResponse response) {
+                    latencies.add(System.nanoTime() - start);
+                    unlockLater(response.getLockRefreshToken(), done);
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    throw new RuntimeException(t);
+                }
+            }, MoreExecutors.directExecutor());
+        }
+        done.await();
+        report("async", latencies, threads.getPeakThreadCount() - baseThreads);
+    }
+
+    private static LockRequest request(int i) {
+        return LockRequest.builder(ImmutableSortedMap.of(
+                StringLockDescriptor.of("lock " + (i % NUM_LOCKS)), LockMode.WRITE))
+                .build();
+    }
+
+    private void unlockLater(final LockRefreshToken token, final CountDownLatch done) {
+        unlocker.schedule(new Runnable() {
+            @Override
+            public void run() {
+                server.unlock(token);
+                done.countDown();
+            }
+        }, HOLD_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private static void report(String name, List<Long> latencies, int extraThreads) {
+        List<Long> sorted = Lists.newArrayList(latencies);
+        Collections.sort(sorted);
+        long p50 = sorted.get(sorted.size() / 2);
+        long p99 = sorted.get(sorted.size() * 99 / 100);
+        System.out.println(name + ": " + NUM_REQUESTS + " requests on " + NUM_LOCKS + " locks, peak extra threads = "
+                + extraThreads + ", p50 = " + TimeUnit.NANOSECONDS.toMillis(p50) + " ms, p99 = "
+                + TimeUnit.NANOSECONDS.toMillis(p99) + " ms");
+    }
+}
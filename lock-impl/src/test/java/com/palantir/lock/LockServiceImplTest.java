@@ -30,6 +30,7 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSortedMap;
@@ -40,6 +41,7 @@ import com.palantir.common.concurrent.NamedThreadFactory;
 import com.palantir.common.concurrent.PTExecutors;
 import com.palantir.common.proxy.SerializingProxy;
 import com.palantir.common.proxy.SimulatingServerProxy;
+import com.palantir.common.remoting.ServiceNotAvailableException;
 import com.palantir.lock.impl.LockServiceImpl;
 import com.palantir.util.Mutable;
 import com.palantir.util.Mutables;
@@ -371,6 +373,41 @@ public final class LockServiceImplTest {
         server.unlock(resp2.getToken());
     }
 
+    /** Tests waiting for write locks to be released without acquiring them */
+    @Test public void testWaitForLocks() throws Exception {
+        LockRequest readLock1 = LockRequest.builder(ImmutableSortedMap.of(lock1, LockMode.READ)).build();
+        LockRequest writeLock2 = LockRequest.builder(ImmutableSortedMap.of(lock2, LockMode.WRITE)).build();
+        server.waitForLocks(ImmutableSet.of(lock1, lock2));
+
+        LockResponse resp1 = server.lock(client, readLock1);
+        LockResponse resp2 = server.lock(LockClient.ANONYMOUS, writeLock2);
+        List<Future<?>> futures = Lists.newArrayList();
+        for (int i = 0; i < 2; i++) {
+            futures.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws InterruptedException {
+                    server.waitForLocks(ImmutableSet.of(lock1, lock2));
+                    return null;
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get(10, TimeUnit.MILLISECONDS);
+                Assert.fail();
+            } catch (TimeoutException e) {
+                // good
+            }
+        }
+
+        server.unlock(resp2.getToken());
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        Assert.assertTrue(server.getTokens(client).contains(resp1.getToken()));
+        server.unlock(resp1.getToken());
+    }
+
     /** Tests lockAsManyAsPossible() */
     @Test public void testLockAsManyAsPossible() throws InterruptedException {
         LockRequest request1 = LockRequest.builder(ImmutableSortedMap.of(lock1, LockMode.WRITE))
@@ -1098,6 +1135,37 @@ public final class LockServiceImplTest {
         Assert.assertEquals("lock2", lock2.getLockIdAsString());
     }
 
+    /** Tests that closing the server fails requests that are waiting for a lock. */
+    @Test public void testCloseFailsWaitingRequests() throws Exception {
+        final LockServiceImpl closingServer = LockServiceImpl.create();
+        LockRequest request = LockRequest.builder(ImmutableSortedMap.of(lock1, LockMode.WRITE)).build();
+        Assert.assertNotNull(closingServer.lock(client, request).getToken());
+
+        Future<?> blocked = executor.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws InterruptedException {
+                closingServer.lock(LockClient.ANONYMOUS, LockRequest.builder(
+                        ImmutableSortedMap.of(lock1, LockMode.WRITE)).build());
+                return null;
+            }
+        });
+        Future<LockResponse> blockedAsync = closingServer.lockAsync(LockClient.ANONYMOUS, LockRequest.builder(
+                ImmutableSortedMap.of(lock1, LockMode.READ)).build());
+        Thread.sleep(100);
+        Assert.assertFalse(blocked.isDone());
+        Assert.assertFalse(blockedAsync.isDone());
+
+        closingServer.close();
+        for (Future<?> future : ImmutableList.of(blocked, blockedAsync)) {
+            try {
+                future.get(10, TimeUnit.SECONDS);
+                Assert.fail("Request succeeded on a closed server");
+            } catch (ExecutionException e) {
+                Assert.assertTrue(e.getCause() instanceof ServiceNotAvailableException);
+            }
+        }
+    }
+
     @Test
     public void testReentrantReadRead() throws InterruptedException {
         testReentrancy(LockMode.READ, LockMode.READ);
@@ -29,6 +29,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.palantir.common.concurrent.InterruptibleFuture;
 import com.palantir.common.concurrent.NamedThreadFactory;
 import com.palantir.common.concurrent.PTExecutors;
@@ -390,6 +391,42 @@ public final class ClientAwareLockTest {
         anonymousWriteLock.unlock();
     }
 
+    /** Tests that queued asynchronous requests are granted in order as the lock is released. */
+    @Test public void testAsyncLock() throws Exception {
+        Assert.assertTrue(knownClientWriteLock.lockAsync().isDone());
+        ListenableFuture<Void> anonymousWrite = anonymousWriteLock.lockAsync();
+        ListenableFuture<Void> firstRead = anonymousReadLock.lockAsync();
+        ListenableFuture<Void> secondRead = anonymousReadLock.lockAsync();
+        Assert.assertFalse(anonymousWrite.isDone());
+        Assert.assertFalse(firstRead.isDone());
+        Assert.assertNotNull(anonymousReadLock.tryLock());
+        knownClientWriteLock.unlock();
+        anonymousWrite.get(10, TimeUnit.MILLISECONDS);
+        Assert.assertFalse(firstRead.isDone());
+        anonymousWriteLock.unlock();
+        firstRead.get(10, TimeUnit.MILLISECONDS);
+        secondRead.get(10, TimeUnit.MILLISECONDS);
+        anonymousReadLock.unlock();
+        anonymousReadLock.unlock();
+        Assert.assertNull(knownClientWriteLock.tryLock());
+        knownClientWriteLock.unlock();
+    }
+
+    /** Tests that cancelling a queued request lets the requests behind it through. */
+    @Test public void testCancelAsyncLock() throws Exception {
+        anonymousReadLock.lock();
+        ListenableFuture<Void> write = knownClientWriteLock.lockAsync();
+        ListenableFuture<Void> read = knownClientReadLock.lockAsync();
+        Assert.assertFalse(read.isDone());
+        Assert.assertTrue(write.cancel(false));
+        read.get(10, TimeUnit.MILLISECONDS);
+        Assert.assertFalse(read.cancel(false));
+        knownClientReadLock.unlock();
+        anonymousReadLock.unlock();
+        Assert.assertNull(knownClientWriteLock.tryLock());
+        knownClientWriteLock.unlock();
+    }
+
     /** Tests that our objects have {@code toString()} methods defined. */
     @Test public void testToStrings() {
         Assert.assertEquals("client", client.getClientId());
@@ -16,9 +16,11 @@
 package com.palantir.timestamp;
 
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
+import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.concurrent.ThreadSafe;
 
 import org.slf4j.Logger;
@@ -30,14 +32,32 @@ import com.palantir.common.concurrent.PTExecutors;
 import com.palantir.common.remoting.ServiceNotAvailableException;
 import com.palantir.common.time.Clock;
 import com.palantir.exception.PalantirInterruptedException;
+import com.palantir.util.JMXUtils;
 
+/**
+ * Hands out timestamps from a range reserved in the {@link TimestampBoundStore}.
+ * <p>
+ * A background task reserves more timestamps when less than half of the allocation buffer is left.
+ * The size of the buffer follows the observed hand-out rate, so that a busy server reserves enough
+ * timestamps to ride out a slow store and an idle one does not burn through timestamps on restart.
+ * If the buffer does run out, callers wait for the allocation task to finish instead of spinning.
+ */
 @ThreadSafe
-public class PersistentTimestampService implements TimestampService {
+public class PersistentTimestampService implements TimestampService, PersistentTimestampServiceMBean {
     private static final Logger log = LoggerFactory.getLogger(PersistentTimestampService.class);
 
     private static final int MAX_REQUEST_RANGE_SIZE = 10 * 1000;
     static final long ALLOCATION_BUFFER_SIZE = 1000 * 1000;
+    static final long MIN_ALLOCATION_BUFFER_SIZE = 100 * 1000;
+    static final long MAX_ALLOCATION_BUFFER_SIZE = 100 * 1000 * 1000;
+    // Size the buffer so that half of it lasts this long at the current hand-out rate.
+    private static final long TARGET_HALF_BUFFER_MILLIS = 60 * 1000;
+    private static final double RATE_SMOOTHING_FACTOR = 0.3;
     private static final int ONE_MINUTE_IN_MILLIS = 60000;
+    private static final long MAX_WAIT_FOR_ALLOCATION_MILLIS = 1000;
+    // One name for every instance, so that a replacement service takes over the bean instead of
+    // leaving the old one registered.
+    private static final String MBEAN_NAME = "com.palantir.timestamp:type=PersistentTimestampService";
 
     private final TimestampBoundStore store;
 
@@ -48,7 +68,21 @@ public class PersistentTimestampService implements TimestampService {
     private final AtomicBoolean isAllocationTaskSubmitted;
 
     private Clock clock;
-    private long lastAllocatedTime;
+    private volatile long lastAllocatedTime;
+
+    private final Object allocationMonitor = new Object();
+    @GuardedBy("allocationMonitor")
+    private long allocationsCompleted = 0;
+
+    private volatile long allocationBufferSize = ALLOCATION_BUFFER_SIZE;
+    private volatile double handOutRatePerSecond = 0.0;
+    // Only touched by the allocation task.
+    private long lastRateSampleTime;
+    private long lastRateSampleTimestamp;
+
+    private final AtomicLong stallCount = new AtomicLong();
+    private final AtomicLong totalStallNanos = new AtomicLong();
+    private final AtomicBoolean stalledSinceLastAllocation = new AtomicBoolean(false);
 
     public static TimestampService create(TimestampBoundStore tbs) {
         PersistentTimestampService ts = new PersistentTimestampService(
@@ -71,6 +105,7 @@ public class PersistentTimestampService implements TimestampService {
 
     private static TimestampService init(PersistentTimestampService ts) {
         ts.allocateMoreTimestamps();
+        JMXUtils.registerMBeanCatchAndLogExceptions(ts, MBEAN_NAME);
         return ts;
     }
 
@@ -82,10 +117,12 @@ public class PersistentTimestampService implements TimestampService {
         isAllocationTaskSubmitted = new AtomicBoolean(false);
         this.clock = clock;
         lastAllocatedTime = clock.getTimeMillis();
+        lastRateSampleTime = lastAllocatedTime;
+        lastRateSampleTimestamp = lastUpperBound;
     }
 
     private synchronized void allocateMoreTimestamps() {
-        long newLimit = lastReturnedTimestamp.get() + ALLOCATION_BUFFER_SIZE;
+        long newLimit = lastReturnedTimestamp.get() + allocationBufferSize;
         store.storeUpperLimit(newLimit);
         // Prevent upper limit from falling behind stored upper limit.
         advanceAtomicLongToValue(upperLimitToHandOutInclusive, newLimit);
@@ -112,6 +149,7 @@ public class PersistentTimestampService implements TimestampService {
                             // We cannot allocate timestamps anymore because another server is running.
                             return;
                         }
+                        resizeAllocationBuffer();
                         allocateMoreTimestamps();
                         lastAllocatedTime = clock.getTimeMillis();
                         allocationFailure = null;
@@ -127,14 +165,79 @@ public class PersistentTimestampService implements TimestampService {
                         allocationFailure = e;
                     } finally {
                         isAllocationTaskSubmitted.set(false);
+                        synchronized (allocationMonitor) {
+                            allocationsCompleted++;
+                            allocationMonitor.notifyAll();
+                        }
                     }
                 }
             });
         }
     }
 
-    private static boolean isAllocationRequired(long lastVal, long upperLimit) {
-        return (upperLimit - lastVal) <= ALLOCATION_BUFFER_SIZE / 2;
+    /**
+     * Updates the smoothed hand-out rate and picks the buffer size for the next allocation.  The
+     * buffer grows straight away when the rate goes up or a caller had to wait, and shrinks
+     * gradually when the rate drops.  Only called from the allocation task.
+     */
+    private void resizeAllocationBuffer() {
+        long now = clock.getTimeMillis();
+        long lastReturned = lastReturnedTimestamp.get();
+        long elapsedMillis = now - lastRateSampleTime;
+        if (elapsedMillis > 0) {
+            double sampledRate = (lastReturned - lastRateSampleTimestamp) * 1000.0 / elapsedMillis;
+            double oldRate = handOutRatePerSecond;
+            handOutRatePerSecond = oldRate == 0.0
+                    ? sampledRate
+                    : RATE_SMOOTHING_FACTOR * sampledRate + (1 - RATE_SMOOTHING_FACTOR) * oldRate;
+            lastRateSampleTime = now;
+            lastRateSampleTimestamp = lastReturned;
+        }
+
+        long current = allocationBufferSize;
+        long desired = (long) (2 * handOutRatePerSecond * TARGET_HALF_BUFFER_MILLIS / 1000);
+        long next;
+        if (stalledSinceLastAllocation.getAndSet(false)) {
+            next = Math.max(desired, current * 2);
+        } else if (desired >= current) {
+            next = desired;
+        } else {
+            next = current - (current - desired) / 4;
+        }
+        next = Math.max(MIN_ALLOCATION_BUFFER_SIZE, Math.min(MAX_ALLOCATION_BUFFER_SIZE, next));
+        if (next != current) {
+            log.debug("Changing timestamp allocation buffer from {} to {} (hand-out rate {}/s).",
+                    current, next, (long) handOutRatePerSecond);
+            allocationBufferSize = next;
+        }
+    }
+
+    private boolean isAllocationRequired(long lastVal, long upperLimit) {
+        return (upperLimit - lastVal) <= allocationBufferSize / 2;
+    }
+
+    /**
+     * Blocks until the allocation task has run at least once more or timestamps are available.
+     */
+    private void waitForAllocation() {
+        long startNanos = System.nanoTime();
+        try {
+            synchronized (allocationMonitor) {
+                long allocationsSeen = allocationsCompleted;
+                submitAllocationTask();
+                while (allocationsSeen == allocationsCompleted
+                        && lastReturnedTimestamp.get() >= upperLimitToHandOutInclusive.get()) {
+                    allocationMonitor.wait(MAX_WAIT_FOR_ALLOCATION_MILLIS);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PalantirInterruptedException("Interrupted while waiting for timestamp allocation.", e);
+        } finally {
+            stallCount.incrementAndGet();
+            totalStallNanos.addAndGet(System.nanoTime() - startNanos);
+            stalledSinceLastAllocation.set(true);
+        }
     }
 
     @Override
@@ -165,10 +268,7 @@ public class PersistentTimestampService implements TimestampService {
                     log.error("We haven't gotten enough timestamps from the DB", new RuntimeException());
                     hasLogged = true;
                 }
-                if (Thread.interrupted()) {
-                    Thread.currentThread().interrupt();
-                    throw new PalantirInterruptedException("Interrupted while waiting for timestamp allocation.");
-                }
+                waitForAllocation();
                 continue;
             }
             long newVal = Math.min(upperLimit, lastVal + numTimestampsRequested);
@@ -185,4 +285,34 @@ public class PersistentTimestampService implements TimestampService {
             }
         }
     }
+
+    @Override
+    public long getAllocationBufferSize() {
+        return allocationBufferSize;
+    }
+
+    @Override
+    public double getHandOutRatePerSecond() {
+        return handOutRatePerSecond;
+    }
+
+    @Override
+    public long getStallCount() {
+        return stallCount.get();
+    }
+
+    @Override
+    public long getTotalStallTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(totalStallNanos.get());
+    }
+
+    @Override
+    public long getLastReturnedTimestamp() {
+        return lastReturnedTimestamp.get();
+    }
+
+    @Override
+    public long getUpperLimitToHandOut() {
+        return upperLimitToHandOutInclusive.get();
+    }
 }
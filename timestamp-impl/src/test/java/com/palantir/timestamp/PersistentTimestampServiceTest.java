@@ -0,0 +1,166 @@
+/**
+ * Copyright 2015 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.timestamp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.palantir.common.time.Clock;
+
+public class PersistentTimestampServiceTest {
+    private static final int MAX_RANGE = 10 * 1000;
+
+    private final AtomicLong time = new AtomicLong(1000 * 1000);
+    private final Clock clock = new Clock() {
+        @Override
+        public long getTimeMillis() {
+            return time.get();
+        }
+    };
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testCallerWaitsForAllocationWhenBufferRunsOut() throws Exception {
+        final BlockingBoundStore store = new BlockingBoundStore();
+        final PersistentTimestampService service = create(store);
+        // Every allocation after the initial one now blocks until released.
+        store.block();
+        Future<Long> future = executor.submit(new Callable<Long>() {
+            @Override
+            public Long call() {
+                long last = 0;
+                for (long i = 0; i <= PersistentTimestampService.ALLOCATION_BUFFER_SIZE / MAX_RANGE; i++) {
+                    last = service.getFreshTimestamps(MAX_RANGE).getUpperBound();
+                }
+                return last;
+            }
+        });
+        try {
+            future.get(500, TimeUnit.MILLISECONDS);
+            throw new AssertionError("Handed out timestamps beyond the stored limit");
+        } catch (TimeoutException e) {
+            // expected: the caller is waiting for the allocation task
+        }
+        assertEquals(PersistentTimestampService.ALLOCATION_BUFFER_SIZE, service.getUpperLimitToHandOut());
+
+        store.release();
+        long last = future.get(10, TimeUnit.SECONDS);
+        assertEquals(PersistentTimestampService.ALLOCATION_BUFFER_SIZE + MAX_RANGE, last);
+        assertTrue(last <= store.getUpperLimit());
+        assertTrue(service.getStallCount() > 0);
+    }
+
+    @Test
+    public void testBufferGrowsWithRateAndShrinksWhenIdle() throws Exception {
+        PersistentTimestampService service = create(new BlockingBoundStore());
+        assertEquals(PersistentTimestampService.ALLOCATION_BUFFER_SIZE, service.getAllocationBufferSize());
+
+        // Hand out half the buffer in one second, which triggers an allocation at a high rate.
+        time.addAndGet(1000);
+        for (long i = 0; i < PersistentTimestampService.ALLOCATION_BUFFER_SIZE / 2 / MAX_RANGE; i++) {
+            service.getFreshTimestamps(MAX_RANGE);
+        }
+        long grown = awaitBufferChange(service, PersistentTimestampService.ALLOCATION_BUFFER_SIZE);
+        assertTrue("buffer did not grow: " + grown, grown > PersistentTimestampService.ALLOCATION_BUFFER_SIZE);
+        assertTrue(grown <= PersistentTimestampService.MAX_ALLOCATION_BUFFER_SIZE);
+
+        // Nothing handed out for ten minutes; the next request triggers an allocation at a low rate.
+        time.addAndGet(10 * 60 * 1000);
+        service.getFreshTimestamp();
+        long shrunk = awaitBufferChange(service, grown);
+        assertTrue("buffer did not shrink: " + shrunk, shrunk < grown);
+        // Shrinking is gradual rather than straight to the minimum.
+        assertTrue(shrunk > PersistentTimestampService.MIN_ALLOCATION_BUFFER_SIZE);
+    }
+
+    @Test
+    public void testInstancesShareOneMBean() throws Exception {
+        create(new BlockingBoundStore());
+        create(new BlockingBoundStore());
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName pattern = new ObjectName("com.palantir.timestamp:type=PersistentTimestampService*");
+        assertEquals(1, server.queryNames(pattern, null).size());
+    }
+
+    private PersistentTimestampService create(TimestampBoundStore store) {
+        return (PersistentTimestampService) PersistentTimestampService.create(store, clock);
+    }
+
+    private static long awaitBufferChange(PersistentTimestampService service, long oldSize) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10 * 1000;
+        while (service.getAllocationBufferSize() == oldSize && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        return service.getAllocationBufferSize();
+    }
+
+    private static final class BlockingBoundStore implements TimestampBoundStore {
+        private volatile long upperLimit = 0;
+        private volatile CountDownLatch gate = new CountDownLatch(0);
+
+        void block() {
+            gate = new CountDownLatch(1);
+        }
+
+        void release() {
+            gate.countDown();
+        }
+
+        @Override
+        public long getUpperLimit() {
+            return upperLimit;
+        }
+
+        @Override
+        public void storeUpperLimit(long limit) {
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+            upperLimit = limit;
+        }
+    }
+}